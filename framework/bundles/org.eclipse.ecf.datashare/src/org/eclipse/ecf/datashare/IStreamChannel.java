@@ -0,0 +1,69 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.datashare;
+
+import java.io.File;
+import java.io.OutputStream;
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.util.ECFException;
+
+/**
+ * Channel for streaming data of any size to a remote instance of the channel,
+ * without holding all of it in memory on either end. The data is sent in
+ * chunks, and the sender waits whenever the chunks that the receiver has not
+ * read yet fill the window of the stream.
+ * <p>
+ * The receiving channel's listener is sent an
+ * {@link org.eclipse.ecf.datashare.events.IChannelStreamEvent} when a stream
+ * begins. Channels that support streams return an instance of this interface
+ * from <code>getAdapter(IStreamChannel.class)</code>.
+ * </p>
+ * 
+ * @since 3.2
+ */
+public interface IStreamChannel {
+
+	/**
+	 * Open a stream to the remote instance of this channel in the given
+	 * container. The data written to the stream is received once it has been
+	 * flushed or a chunk of it has been written, and the stream ends when it
+	 * is closed. Writing to the stream blocks while the window of the stream
+	 * is full, so the stream must not be written to by the thread that
+	 * delivers the events of this channel.
+	 * 
+	 * @param receiver
+	 *            the ID of the container to stream to. Must not be
+	 *            <code>null</code>.
+	 * @return the stream to write the data to. Will not be <code>null</code>.
+	 * @throws ECFException
+	 *             if the stream could not be opened
+	 */
+	public OutputStream sendStream(ID receiver) throws ECFException;
+
+	/**
+	 * Stream the contents of the given file to the remote instance of this
+	 * channel in the given container. The file is received as a stream, like
+	 * the ones opened with {@link #sendStream(ID)}, and is read in chunks
+	 * without being loaded into memory. This method blocks until the last
+	 * chunk has been handed to the channel.
+	 * 
+	 * @param receiver
+	 *            the ID of the container to stream to. Must not be
+	 *            <code>null</code>.
+	 * @param file
+	 *            the file to send. Must not be <code>null</code>.
+	 * @throws ECFException
+	 *             if the file could not be read or sent
+	 */
+	public void sendFile(ID receiver, File file) throws ECFException;
+}
@@ -0,0 +1,46 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.datashare.events;
+
+import java.io.InputStream;
+import org.eclipse.ecf.core.identity.ID;
+
+/**
+ * Channel stream event. This event is received by IChannelListeners when a
+ * remote begins to send a stream (via IStreamChannel.sendStream or
+ * IStreamChannel.sendFile). The event is delivered on a thread of its own, so
+ * the stream may be read to its end in the listener.
+ * <p>
+ * The sender is held back once the data that has not been read fills the
+ * window of the stream, so the stream should be read or closed promptly.
+ * Closing the stream before its end cancels it on the sender.
+ * </p>
+ * 
+ * @since 3.2
+ */
+public interface IChannelStreamEvent extends IChannelEvent {
+	/**
+	 * Get ID of sender container
+	 * 
+	 * @return ID of sender's container. Will not be <code>null</code>.
+	 */
+	public ID getFromContainerID();
+
+	/**
+	 * Get the stream of the data that is sent.
+	 * 
+	 * @return InputStream of the data, which ends when the sender closes the
+	 *         stream. Will not be <code>null</code>.
+	 */
+	public InputStream getInputStream();
+}
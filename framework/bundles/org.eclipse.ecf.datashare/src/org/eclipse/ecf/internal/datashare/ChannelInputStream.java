@@ -0,0 +1,195 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.internal.datashare;
+
+import java.io.*;
+import java.util.LinkedList;
+
+/**
+ * The receiving end of a stream sent through an
+ * {@link org.eclipse.ecf.datashare.IStreamChannel}. A channel implementation
+ * adds the chunks of the stream as they arrive, and is told about the bytes
+ * that have been read so that it can credit the window of the sender with
+ * them.
+ * <p>
+ * Consumed bytes are reported in batches of at least the credit threshold, and
+ * whenever all of the received chunks have been read, so the sender never
+ * waits for bytes that have been read but not reported.
+ * </p>
+ */
+public abstract class ChannelInputStream extends InputStream {
+
+	private final LinkedList chunks = new LinkedList();
+	private final int creditThreshold;
+	private byte[] chunk;
+	private int position;
+	private int unreported;
+	private boolean ended;
+	private boolean closed;
+	private IOException failure;
+
+	/**
+	 * @param creditThreshold
+	 *            the number of bytes to read before they are reported with
+	 *            {@link #consumed(int)}
+	 */
+	protected ChannelInputStream(int creditThreshold) {
+		this.creditThreshold = creditThreshold;
+	}
+
+	/**
+	 * Called when bytes of the stream have been read.
+	 * 
+	 * @param count
+	 *            the number of bytes read since the last call
+	 */
+	protected abstract void consumed(int count);
+
+	/**
+	 * Called when the stream is closed before its end has been received.
+	 */
+	protected abstract void cancelled();
+
+	/**
+	 * Add a chunk of the stream.
+	 * 
+	 * @param data
+	 *            the chunk. Must not be <code>null</code>.
+	 */
+	public synchronized void receive(byte[] data) {
+		if (closed || data.length == 0)
+			return;
+		chunks.add(data);
+		notifyAll();
+	}
+
+	/**
+	 * Mark the end of the stream. Once the chunks that have been received are
+	 * read, the stream returns end of file.
+	 */
+	public synchronized void end() {
+		ended = true;
+		notifyAll();
+	}
+
+	/**
+	 * Fail the stream, because the sender or the connection to it has gone
+	 * away. Once the chunks that have been received are read, reading the
+	 * stream throws the given exception.
+	 * 
+	 * @param exception
+	 *            the failure. Must not be <code>null</code>.
+	 */
+	public synchronized void fail(IOException exception) {
+		if (!ended && failure == null) {
+			failure = exception;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * @return true if the stream has ended, failed or been closed
+	 */
+	public synchronized boolean isDone() {
+		return ended || closed || failure != null;
+	}
+
+	// Called with the lock held.  Returns false at the end of the stream.
+	private boolean next() throws IOException {
+		while (chunk == null || position == chunk.length) {
+			if (closed)
+				throw new IOException("Stream closed"); //$NON-NLS-1$
+			if (!chunks.isEmpty()) {
+				chunk = (byte[]) chunks.removeFirst();
+				position = 0;
+			} else if (failure != null) {
+				throw ChannelStreamWindow.newFailure(failure);
+			} else if (ended) {
+				return false;
+			} else {
+				try {
+					wait();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+			}
+		}
+		return true;
+	}
+
+	// Called with the lock held.  Returns the number of bytes to report.
+	private int credit(int count) {
+		unreported += count;
+		if (unreported >= creditThreshold || (position == chunk.length && chunks.isEmpty())) {
+			final int credit = unreported;
+			unreported = 0;
+			return credit;
+		}
+		return 0;
+	}
+
+	public int read() throws IOException {
+		int result;
+		int credit;
+		synchronized (this) {
+			if (!next())
+				return -1;
+			result = chunk[position++] & 0xff;
+			credit = credit(1);
+		}
+		if (credit > 0)
+			consumed(credit);
+		return result;
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		int count;
+		int credit;
+		synchronized (this) {
+			if (!next())
+				return -1;
+			count = Math.min(len, chunk.length - position);
+			System.arraycopy(chunk, position, b, off, count);
+			position += count;
+			credit = credit(count);
+		}
+		if (credit > 0)
+			consumed(credit);
+		return count;
+	}
+
+	public synchronized int available() {
+		int result = (chunk == null) ? 0 : chunk.length - position;
+		for (int i = 0; i < chunks.size(); i++)
+			result += ((byte[]) chunks.get(i)).length;
+		return result;
+	}
+
+	public void close() {
+		boolean cancel;
+		synchronized (this) {
+			if (closed)
+				return;
+			closed = true;
+			cancel = !ended && failure == null;
+			chunks.clear();
+			chunk = null;
+			notifyAll();
+		}
+		if (cancel)
+			cancelled();
+	}
+}
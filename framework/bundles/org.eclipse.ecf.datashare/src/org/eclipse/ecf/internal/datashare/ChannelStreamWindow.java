@@ -0,0 +1,92 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.internal.datashare;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * The window of a stream sent through an
+ * {@link org.eclipse.ecf.datashare.IStreamChannel}, which is the number of
+ * bytes the sender may send before the receiver has read them. A channel
+ * implementation acquires the size of each chunk before sending it, and
+ * releases the bytes that the receiver reports as read.
+ */
+public class ChannelStreamWindow {
+
+	private int available;
+	private IOException failure;
+
+	/**
+	 * @param size
+	 *            the size of the window in bytes. Must be at least the size of
+	 *            the largest chunk.
+	 */
+	public ChannelStreamWindow(int size) {
+		this.available = size;
+	}
+
+	/**
+	 * Wait until the given number of bytes may be sent.
+	 * 
+	 * @param count
+	 *            the number of bytes to send
+	 * @throws IOException
+	 *             if the stream has failed, or the thread is interrupted
+	 */
+	public synchronized void acquire(int count) throws IOException {
+		while (failure == null && available < count) {
+			try {
+				wait();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+		if (failure != null)
+			throw newFailure(failure);
+		available -= count;
+	}
+
+	/**
+	 * Release bytes that the receiver has read.
+	 * 
+	 * @param count
+	 *            the number of bytes read
+	 */
+	public synchronized void release(int count) {
+		available += count;
+		notifyAll();
+	}
+
+	/**
+	 * Fail the stream, so that senders waiting for the window, and any later
+	 * ones, get the given exception.
+	 * 
+	 * @param exception
+	 *            the failure. Must not be <code>null</code>.
+	 */
+	public synchronized void fail(IOException exception) {
+		if (failure == null) {
+			failure = exception;
+			notifyAll();
+		}
+	}
+
+	// A new exception for each caller, so that callers may add suppressed exceptions to it
+	static IOException newFailure(IOException failure) {
+		final IOException exception = new IOException(failure.getMessage());
+		exception.initCause(failure);
+		return exception;
+	}
+}
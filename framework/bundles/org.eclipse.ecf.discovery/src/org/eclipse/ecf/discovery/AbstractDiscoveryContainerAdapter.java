@@ -13,6 +13,7 @@
 package org.eclipse.ecf.discovery;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.ecf.core.AbstractContainer;
@@ -23,6 +24,19 @@ import org.eclipse.ecf.discovery.identity.IServiceTypeID;
 import org.eclipse.ecf.internal.discovery.*;
 import org.eclipse.equinox.concurrent.future.*;
 
+/**
+ * Base class for discovery containers, which keeps their service and service
+ * type listeners and fires events to them.
+ * <p>
+ * Since 5.4 events are fired to a snapshot of the listeners, which is only
+ * taken again after {@link #listenersChanged()} has been called. The add,
+ * remove and clear methods of this class call it. This is a change in
+ * behavior for subclasses that modify {@link #allServiceListeners},
+ * {@link #serviceListeners} or {@link #serviceTypeListeners} directly: they
+ * must call {@link #listenersChanged()} afterwards, otherwise events keep
+ * being fired to the listeners of the previous snapshot.
+ * </p>
+ */
 public abstract class AbstractDiscoveryContainerAdapter extends AbstractContainer
 		implements IDiscoveryLocator, IDiscoveryAdvertiser {
 
@@ -48,10 +62,14 @@ public abstract class AbstractDiscoveryContainerAdapter extends AbstractContaine
 
 	private DiscoveryServiceListener discoveryServiceListener;
 	private DiscoveryServiceListener discoveryServiceTypeListener;
-	private ServiceTypeComparator discoveryServiceListenerComparator;
 
 	private final IServiceInfoServiceListener iServiceInfoServiceListener;
 
+	// Incremented whenever the listeners change, see listenersChanged()
+	private final AtomicInteger listenersVersion = new AtomicInteger();
+	// Snapshot of the listeners used to fire events without locking
+	private volatile ServiceListenerIndex listenerIndex;
+
 	/**
 	 * @param aNamespaceName
 	 *            namespace name
@@ -70,8 +88,6 @@ public abstract class AbstractDiscoveryContainerAdapter extends AbstractContaine
 		discoveryServiceListener = new DiscoveryServiceListener(this, IServiceListener.class);
 		discoveryServiceTypeListener = new DiscoveryServiceListener(this, IServiceTypeListener.class);
 
-		discoveryServiceListenerComparator = new ServiceTypeComparator();
-
 		iServiceInfoServiceListener = new IServiceInfoServiceListener(this);
 	}
 
@@ -96,11 +112,13 @@ public abstract class AbstractDiscoveryContainerAdapter extends AbstractContaine
 						aListener.serviceDiscovered(getServiceEvent(iServiceInfo, getConfig().getID()));
 					}
 					allServiceListeners.add(aListener);
+					listenersChanged();
 					return null;
 				}
 			}, null);
 		} else {
 			allServiceListeners.add(aListener);
+			listenersChanged();
 		}
 	}
 
@@ -165,6 +183,7 @@ public abstract class AbstractDiscoveryContainerAdapter extends AbstractContaine
 			}
 			v.add(aListener);
 		}
+		listenersChanged();
 	}
 
 	/*
@@ -176,12 +195,48 @@ public abstract class AbstractDiscoveryContainerAdapter extends AbstractContaine
 	public void addServiceTypeListener(IServiceTypeListener aListener) {
 		Assert.isNotNull(aListener);
 		serviceTypeListeners.add(aListener);
+		listenersChanged();
 	}
 
 	protected void clearListeners() {
 		serviceListeners.clear();
 		serviceTypeListeners.clear();
 		allServiceListeners.clear();
+		listenersChanged();
+	}
+
+	/**
+	 * Must be called after {@link #allServiceListeners},
+	 * {@link #serviceListeners} or {@link #serviceTypeListeners} have been
+	 * modified directly, so that events are fired to the current listeners.
+	 * The add, remove and clear methods of this class call it already.
+	 * 
+	 * @since 5.4
+	 */
+	protected void listenersChanged() {
+		listenersVersion.incrementAndGet();
+	}
+
+	/**
+	 * @return the snapshot of the current listeners, taken again if they
+	 *         have changed since the last one
+	 */
+	private ServiceListenerIndex getListenerIndex() {
+		final ServiceListenerIndex index = listenerIndex;
+		final int version = listenersVersion.get();
+		if (index != null && index.getVersion() == version) {
+			return index;
+		}
+		final ServiceListenerIndex newIndex;
+		synchronized (serviceListeners) {
+			newIndex = new ServiceListenerIndex(version, serviceListeners, allServiceListeners, serviceTypeListeners);
+		}
+		// A snapshot taken concurrently for a later version is kept
+		final ServiceListenerIndex current = listenerIndex;
+		if (current == null || current.getVersion() - version < 0) {
+			listenerIndex = newIndex;
+		}
+		return newIndex;
 	}
 
 	/*
@@ -208,11 +263,12 @@ public abstract class AbstractDiscoveryContainerAdapter extends AbstractContaine
 	 */
 	protected void fireServiceDiscovered(IServiceEvent aServiceEvent) {
 		Assert.isNotNull(aServiceEvent);
-		final Collection listeners = getListeners(aServiceEvent.getServiceInfo().getServiceID().getServiceTypeID());
-		if (listeners != null) {
-			for (final Iterator i = listeners.iterator(); i.hasNext();) {
-				final IServiceListener l = (IServiceListener) i.next();
-				l.serviceDiscovered(aServiceEvent);
+		final Object[] listeners = getListenerIndex()
+				.getServiceListeners(aServiceEvent.getServiceInfo().getServiceID().getServiceTypeID());
+		final boolean trace = Trace.shouldTrace(DiscoveryPlugin.PLUGIN_ID, DiscoveryDebugOption.METHODS_TRACING);
+		for (int i = 0; i < listeners.length; i++) {
+			((IServiceListener) listeners[i]).serviceDiscovered(aServiceEvent);
+			if (trace) {
 				Trace.trace(DiscoveryPlugin.PLUGIN_ID, DiscoveryDebugOption.METHODS_TRACING, this.getClass(),
 						"fireServiceDiscovered", aServiceEvent.toString()); //$NON-NLS-1$
 			}
@@ -229,15 +285,14 @@ public abstract class AbstractDiscoveryContainerAdapter extends AbstractContaine
 	 */
 	protected void fireServiceTypeDiscovered(IServiceTypeEvent aServiceTypeEvent) {
 		Assert.isNotNull(aServiceTypeEvent);
-		List notify = null;
-		synchronized (serviceTypeListeners) {
-			notify = new ArrayList(serviceTypeListeners);
-		}
-		for (final Iterator i = notify.iterator(); i.hasNext();) {
-			final IServiceTypeListener l = (IServiceTypeListener) i.next();
-			l.serviceTypeDiscovered(aServiceTypeEvent);
-			Trace.trace(DiscoveryPlugin.PLUGIN_ID, DiscoveryDebugOption.METHODS_TRACING, this.getClass(),
-					"fireServiceTypeDiscovered", aServiceTypeEvent.toString()); //$NON-NLS-1$
+		final Object[] listeners = getListenerIndex().getServiceTypeListeners();
+		final boolean trace = Trace.shouldTrace(DiscoveryPlugin.PLUGIN_ID, DiscoveryDebugOption.METHODS_TRACING);
+		for (int i = 0; i < listeners.length; i++) {
+			((IServiceTypeListener) listeners[i]).serviceTypeDiscovered(aServiceTypeEvent);
+			if (trace) {
+				Trace.trace(DiscoveryPlugin.PLUGIN_ID, DiscoveryDebugOption.METHODS_TRACING, this.getClass(),
+						"fireServiceTypeDiscovered", aServiceTypeEvent.toString()); //$NON-NLS-1$
+			}
 		}
 	}
 
@@ -250,11 +305,12 @@ public abstract class AbstractDiscoveryContainerAdapter extends AbstractContaine
 	 */
 	protected void fireServiceUndiscovered(IServiceEvent aServiceEvent) {
 		Assert.isNotNull(aServiceEvent);
-		final Collection listeners = getListeners(aServiceEvent.getServiceInfo().getServiceID().getServiceTypeID());
-		if (listeners != null) {
-			for (final Iterator i = listeners.iterator(); i.hasNext();) {
-				final IServiceListener l = (IServiceListener) i.next();
-				l.serviceUndiscovered(aServiceEvent);
+		final Object[] listeners = getListenerIndex()
+				.getServiceListeners(aServiceEvent.getServiceInfo().getServiceID().getServiceTypeID());
+		final boolean trace = Trace.shouldTrace(DiscoveryPlugin.PLUGIN_ID, DiscoveryDebugOption.METHODS_TRACING);
+		for (int i = 0; i < listeners.length; i++) {
+			((IServiceListener) listeners[i]).serviceUndiscovered(aServiceEvent);
+			if (trace) {
 				Trace.trace(DiscoveryPlugin.PLUGIN_ID, DiscoveryDebugOption.METHODS_TRACING, this.getClass(),
 						"fireServiceUndiscovered", aServiceEvent.toString()); //$NON-NLS-1$
 			}
@@ -296,13 +352,12 @@ public abstract class AbstractDiscoveryContainerAdapter extends AbstractContaine
 	 */
 	public abstract String getContainerName();
 
-	// merges the allServiceListener with the serviceListeners for the given
-	// type
-
 	/**
 	 * Joins the {@link Collection} of {@link IServiceListener}s interested in
 	 * any {@link IServiceTypeID} with the {@link Collection} of the
-	 * {@link IServiceListener} registered for the given {@link IServiceTypeID}
+	 * {@link IServiceListener} registered for the given {@link IServiceTypeID}.
+	 * The listeners are looked up in a snapshot that is indexed by service
+	 * type and taken again only when the listeners change.
 	 * 
 	 * @param aServiceType
 	 *            The {@link IServiceTypeID} for which the
@@ -312,23 +367,7 @@ public abstract class AbstractDiscoveryContainerAdapter extends AbstractContaine
 	 */
 	protected Collection getListeners(IServiceTypeID aServiceType) {
 		Assert.isNotNull(aServiceType);
-		Collection listeners = new HashSet();
-		synchronized (serviceListeners) {
-			for (Iterator itr = serviceListeners.keySet().iterator(); itr.hasNext();) {
-				final IServiceTypeID typeID = (IServiceTypeID) itr.next();
-				int compare = discoveryServiceListenerComparator.compare(aServiceType, typeID);
-				if (compare == 0) {
-					Collection collection = (Collection) serviceListeners.get(typeID);
-					if (collection != null) {
-						listeners.addAll(collection);
-					}
-				}
-			}
-		}
-		synchronized (allServiceListeners) {
-			listeners.addAll(allServiceListeners);
-		}
-		return Collections.unmodifiableCollection(listeners);
+		return getListenerIndex().getListeners(aServiceType);
 	}
 
 	/*
@@ -351,6 +390,7 @@ public abstract class AbstractDiscoveryContainerAdapter extends AbstractContaine
 	public void removeServiceListener(IServiceListener aListener) {
 		Assert.isNotNull(aListener);
 		allServiceListeners.remove(aListener);
+		listenersChanged();
 	}
 
 	/*
@@ -369,6 +409,7 @@ public abstract class AbstractDiscoveryContainerAdapter extends AbstractContaine
 				v.remove(aListener);
 			}
 		}
+		listenersChanged();
 	}
 
 	/*
@@ -380,6 +421,7 @@ public abstract class AbstractDiscoveryContainerAdapter extends AbstractContaine
 	public void removeServiceTypeListener(IServiceTypeListener aListener) {
 		Assert.isNotNull(aListener);
 		serviceTypeListeners.remove(aListener);
+		listenersChanged();
 	}
 
 	/**
@@ -0,0 +1,269 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.internal.discovery;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.ecf.discovery.identity.IServiceTypeID;
+
+/**
+ * Immutable snapshot of the service listeners of a discovery container,
+ * indexed by service type. Listeners registered for a type are grouped by
+ * which parts of the type are wildcards ("*"), and within each group by the
+ * remaining parts, so the listeners interested in an event's type are found
+ * with at most one lookup per group instead of comparing the event's type
+ * with every registered type. The result is cached per event type, so
+ * repeated events for the same type neither lock nor allocate.
+ * <p>
+ * A snapshot is never modified. The container replaces it when its
+ * listeners change.
+ * </p>
+ */
+public final class ServiceListenerIndex {
+
+	private static final String WILDCARD = "*"; //$NON-NLS-1$
+
+	private static final int NAMING_AUTHORITY = 1;
+	private static final int SERVICES = 2;
+	private static final int PROTOCOLS = 4;
+	private static final int SCOPES = 8;
+
+	/**
+	 * The maximum number of event types whose listeners are cached, so that
+	 * types that keep changing do not grow the cache without bound.
+	 */
+	private static final int MAX_CACHED_TYPES = 1024;
+
+	/**
+	 * The listeners for one event type, as an array for firing events and as
+	 * a read-only collection for {@link #getListeners(IServiceTypeID)}.
+	 */
+	private static final class Entry {
+		final Object[] listeners;
+		final Collection collection;
+
+		Entry(Object[] listeners) {
+			this.listeners = listeners;
+			this.collection = Collections.unmodifiableList(Arrays.asList(listeners));
+		}
+	}
+
+	private final int version;
+
+	private final Object[] allServiceListeners;
+
+	private final Object[] serviceTypeListeners;
+
+	// Registered types and their listeners, for event types with wildcards
+	private final IServiceTypeID[] types;
+	private final Object[][] typeListeners;
+
+	// Wildcard masks with at least one registered type, and for each of
+	// them the listeners by the key of the parts that are not wildcards
+	private final int[] masks;
+	private final Map[] byKey;
+
+	private final Map cache = new ConcurrentHashMap();
+
+	private final Entry all;
+
+	/**
+	 * @param version
+	 *            the modification count of the listeners the snapshot is
+	 *            taken of
+	 * @param serviceListeners
+	 *            map of {@link IServiceTypeID} to a synchronized collection of
+	 *            service listeners. The caller must hold the lock of the map.
+	 * @param allServiceListeners
+	 *            synchronized collection of the listeners for all service
+	 *            types
+	 * @param serviceTypeListeners
+	 *            synchronized collection of the service type listeners
+	 */
+	public ServiceListenerIndex(int version, Map serviceListeners, Collection allServiceListeners, Collection serviceTypeListeners) {
+		this.version = version;
+		this.allServiceListeners = allServiceListeners.toArray();
+		this.serviceTypeListeners = serviceTypeListeners.toArray();
+		this.all = new Entry(this.allServiceListeners);
+
+		final List typeList = new ArrayList(serviceListeners.size());
+		final List listenerList = new ArrayList(serviceListeners.size());
+		final Map[] groups = new Map[16];
+		for (final Iterator itr = serviceListeners.entrySet().iterator(); itr.hasNext();) {
+			final Map.Entry e = (Map.Entry) itr.next();
+			final Collection collection = (Collection) e.getValue();
+			if (collection == null || collection.isEmpty()) {
+				continue;
+			}
+			final IServiceTypeID type = (IServiceTypeID) e.getKey();
+			final Object[] listeners = collection.toArray();
+			typeList.add(type);
+			listenerList.add(listeners);
+
+			final int mask = getMask(type);
+			if (groups[mask] == null) {
+				groups[mask] = new HashMap();
+			}
+			final String key = getKey(type, mask);
+			final Object[] existing = (Object[]) groups[mask].get(key);
+			groups[mask].put(key, existing == null ? listeners : concat(existing, listeners));
+		}
+		this.types = (IServiceTypeID[]) typeList.toArray(new IServiceTypeID[typeList.size()]);
+		this.typeListeners = (Object[][]) listenerList.toArray(new Object[listenerList.size()][]);
+
+		int count = 0;
+		for (int i = 0; i < groups.length; i++) {
+			if (groups[i] != null) {
+				count++;
+			}
+		}
+		this.masks = new int[count];
+		this.byKey = new Map[count];
+		count = 0;
+		for (int i = 0; i < groups.length; i++) {
+			if (groups[i] != null) {
+				masks[count] = i;
+				byKey[count++] = groups[i];
+			}
+		}
+	}
+
+	/**
+	 * @return the modification count of the listeners the snapshot is taken
+	 *         of
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the service type listeners. The array must not be modified.
+	 */
+	public Object[] getServiceTypeListeners() {
+		return serviceTypeListeners;
+	}
+
+	/**
+	 * @param aServiceType
+	 *            the type of a discovered or undiscovered service
+	 * @return the service listeners interested in the type, each of them
+	 *         once. The array must not be modified.
+	 */
+	public Object[] getServiceListeners(IServiceTypeID aServiceType) {
+		return getEntry(aServiceType).listeners;
+	}
+
+	/**
+	 * @param aServiceType
+	 *            the type of a discovered or undiscovered service
+	 * @return a read-only collection of the service listeners interested in
+	 *         the type
+	 */
+	public Collection getListeners(IServiceTypeID aServiceType) {
+		return getEntry(aServiceType).collection;
+	}
+
+	private Entry getEntry(IServiceTypeID aServiceType) {
+		if (types.length == 0) {
+			return all;
+		}
+		Entry entry = (Entry) cache.get(aServiceType);
+		if (entry == null) {
+			entry = new Entry(resolve(aServiceType));
+			if (cache.size() < MAX_CACHED_TYPES) {
+				cache.put(aServiceType, entry);
+			}
+		}
+		return entry;
+	}
+
+	private Object[] resolve(IServiceTypeID aServiceType) {
+		final Set listeners = new LinkedHashSet();
+		if (getMask(aServiceType) == 0) {
+			for (int i = 0; i < masks.length; i++) {
+				final Object[] matches = (Object[]) byKey[i].get(getKey(aServiceType, masks[i]));
+				if (matches != null) {
+					listeners.addAll(Arrays.asList(matches));
+				}
+			}
+		} else {
+			// Wildcards in the event's type match any registered type part
+			final ServiceTypeComparator comparator = new ServiceTypeComparator();
+			for (int i = 0; i < types.length; i++) {
+				if (comparator.compare(aServiceType, types[i]) == 0) {
+					listeners.addAll(Arrays.asList(typeListeners[i]));
+				}
+			}
+		}
+		if (listeners.isEmpty()) {
+			return allServiceListeners;
+		}
+		listeners.addAll(Arrays.asList(allServiceListeners));
+		return listeners.toArray();
+	}
+
+	private static int getMask(IServiceTypeID type) {
+		int mask = 0;
+		if (WILDCARD.equals(type.getNamingAuthority())) {
+			mask |= NAMING_AUTHORITY;
+		}
+		if (WILDCARD.equals(type.getServices()[0])) {
+			mask |= SERVICES;
+		}
+		if (WILDCARD.equals(type.getProtocols()[0])) {
+			mask |= PROTOCOLS;
+		}
+		if (WILDCARD.equals(type.getScopes()[0])) {
+			mask |= SCOPES;
+		}
+		return mask;
+	}
+
+	/**
+	 * Joins the parts of a type that are not wildcards in the given mask.
+	 * Separators that cannot be part of a type keep ["a", "b"] and ["a.b"]
+	 * apart, as {@link ServiceTypeComparator} does.
+	 */
+	private static String getKey(IServiceTypeID type, int mask) {
+		final StringBuffer key = new StringBuffer();
+		if ((mask & NAMING_AUTHORITY) == 0) {
+			key.append(type.getNamingAuthority());
+		}
+		key.append('\u0001');
+		if ((mask & SERVICES) == 0) {
+			append(key, type.getServices());
+		}
+		key.append('\u0001');
+		if ((mask & PROTOCOLS) == 0) {
+			append(key, type.getProtocols());
+		}
+		key.append('\u0001');
+		if ((mask & SCOPES) == 0) {
+			append(key, type.getScopes());
+		}
+		return key.toString();
+	}
+
+	private static void append(StringBuffer key, String[] parts) {
+		for (int i = 0; i < parts.length; i++) {
+			key.append(parts[i]).append('\u0000');
+		}
+	}
+
+	private static Object[] concat(Object[] a, Object[] b) {
+		final Object[] result = new Object[a.length + b.length];
+		System.arraycopy(a, 0, result, 0, a.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+}
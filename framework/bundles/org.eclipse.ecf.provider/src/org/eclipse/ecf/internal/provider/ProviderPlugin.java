@@ -21,7 +21,10 @@ import org.eclipse.core.runtime.*;
 import org.eclipse.ecf.core.ContainerTypeDescription;
 import org.eclipse.ecf.core.util.*;
 import org.eclipse.ecf.provider.generic.GenericContainerInstantiator;
+import org.eclipse.ecf.provider.generic.NIOGenericContainerInstantiator;
 import org.eclipse.ecf.provider.generic.SSLGenericContainerInstantiator;
+import org.eclipse.ecf.provider.generic.codec.CompactMessageCodec;
+import org.eclipse.ecf.provider.generic.codec.IMessageCodec;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.log.LogService;
@@ -48,6 +51,7 @@ public class ProviderPlugin implements BundleActivator {
 
 	private ServiceTracker sslServerSocketFactoryTracker;
 	private ServiceTracker sslSocketFactoryTracker;
+	private ServiceTracker messageCodecTracker;
 
 	public IAdapterManager getAdapterManager() {
 		if (context == null)
@@ -79,6 +83,8 @@ public class ProviderPlugin implements BundleActivator {
 				context1.registerService(ContainerTypeDescription.class, new ContainerTypeDescription(GenericContainerInstantiator.TCPCLIENT_NAME, new GenericContainerInstantiator(), "ECF Generic Client", true, true), null); //$NON-NLS-1$
 				context1.registerService(ContainerTypeDescription.class, new ContainerTypeDescription(SSLGenericContainerInstantiator.SSLSERVER_NAME, new SSLGenericContainerInstantiator(), "ECF SSL Generic Server", true, false), null); //$NON-NLS-1$
 				context1.registerService(ContainerTypeDescription.class, new ContainerTypeDescription(SSLGenericContainerInstantiator.SSLCLIENT_NAME, new SSLGenericContainerInstantiator(), "ECF SSL Generic Client", true, true), null); //$NON-NLS-1$
+				context1.registerService(ContainerTypeDescription.class, new ContainerTypeDescription(NIOGenericContainerInstantiator.NIOSERVER_NAME, new NIOGenericContainerInstantiator(), "ECF NIO Generic Server", true, false), null); //$NON-NLS-1$
+				context1.registerService(ContainerTypeDescription.class, new ContainerTypeDescription(NIOGenericContainerInstantiator.NIOCLIENT_NAME, new NIOGenericContainerInstantiator(), "ECF NIO Generic Client", true, true), null); //$NON-NLS-1$
 			}
 		});
 		if (genericClassResolverOverride) {
@@ -113,6 +119,12 @@ public class ProviderPlugin implements BundleActivator {
 			sslSocketFactoryTracker.close();
 			sslSocketFactoryTracker = null;
 		}
+		synchronized (this) {
+			if (messageCodecTracker != null) {
+				messageCodecTracker.close();
+				messageCodecTracker = null;
+			}
+		}
 		this.context = null;
 	}
 
@@ -180,4 +192,39 @@ public class ProviderPlugin implements BundleActivator {
 		return (SSLSocketFactory) sslSocketFactoryTracker.getService();
 	}
 
-}
\ No newline at end of file
+	/**
+	 * @param name the codec name
+	 * @return the built in codec or the registered {@link IMessageCodec} service with the given name, or
+	 * <code>null</code> if there is none
+	 */
+	public IMessageCodec getMessageCodec(String name) {
+		final IMessageCodec[] codecs = getMessageCodecs();
+		for (int i = 0; i < codecs.length; i++)
+			if (codecs[i].getName().equals(name))
+				return codecs[i];
+		return null;
+	}
+
+	/**
+	 * @return the built in codec followed by all registered {@link IMessageCodec} services
+	 */
+	@SuppressWarnings("unchecked")
+	public IMessageCodec[] getMessageCodecs() {
+		ServiceTracker tracker;
+		synchronized (this) {
+			if (context != null && messageCodecTracker == null) {
+				messageCodecTracker = new ServiceTracker(this.context, IMessageCodec.class.getName(), null);
+				messageCodecTracker.open();
+			}
+			tracker = messageCodecTracker;
+		}
+		final Object[] services = (tracker == null) ? null : tracker.getServices();
+		if (services == null)
+			return new IMessageCodec[] {CompactMessageCodec.getDefault()};
+		final IMessageCodec[] result = new IMessageCodec[services.length + 1];
+		result[0] = CompactMessageCodec.getDefault();
+		System.arraycopy(services, 0, result, 1, services.length);
+		return result;
+	}
+
+}
@@ -0,0 +1,38 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.comm.nio;
+
+import java.io.Serializable;
+import org.eclipse.ecf.provider.comm.tcp.ConnectRequestMessage;
+
+/**
+ * Handler for connect requests received by a {@link NIOServer}.  This is the nio
+ * equivalent of {@link org.eclipse.ecf.provider.comm.tcp.ISocketAcceptHandler}.
+ *
+ * @since 4.11
+ */
+public interface INIOAcceptHandler {
+	/**
+	 * Handle the connect request received as first message on a newly accepted connection.
+	 * Implementations must set the connection's event handler via
+	 * {@link NIOClient#setEventHandler(org.eclipse.ecf.provider.comm.ISynchAsynchEventHandler)}
+	 * before starting it.  Nothing else is sent on the connection before the returned
+	 * response.
+	 *
+	 * @param client the new connection.  Will not be <code>null</code>.
+	 * @param request the connect request.  Will not be <code>null</code>.
+	 * @return Serializable the data to send back in the connect result message
+	 * @throws Exception if the request is invalid.  The connection is then closed.
+	 */
+	public Serializable handleConnectRequest(NIOClient client, ConnectRequestMessage request) throws Exception;
+}
@@ -0,0 +1,30 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.comm.nio;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+
+/**
+ * Attachment of every {@link SelectionKey} registered with a {@link NIOSelectorLoop}.
+ * Called on the selector thread, so implementations must never block.
+ */
+interface INIOSelectHandler {
+
+	/**
+	 * @param key the selected key.  Will not be <code>null</code>.
+	 * @param readBuffer the read buffer shared by all channels of the selector thread.
+	 * Contents are only valid for the duration of this call.
+	 */
+	void handleSelect(SelectionKey key, ByteBuffer readBuffer);
+}
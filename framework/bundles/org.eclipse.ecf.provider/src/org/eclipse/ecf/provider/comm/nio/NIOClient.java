@@ -0,0 +1,590 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.comm.nio;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.identity.IDFactory;
+import org.eclipse.ecf.core.util.ECFException;
+import org.eclipse.ecf.core.util.Trace;
+import org.eclipse.ecf.internal.provider.ECFProviderDebugOptions;
+import org.eclipse.ecf.internal.provider.ProviderPlugin;
+import org.eclipse.ecf.provider.comm.*;
+import org.eclipse.ecf.provider.comm.tcp.*;
+
+/**
+ * Selector based connection speaking the same wire protocol as {@link Client}, so
+ * nio and classic generic containers interoperate.  Instead of dedicated send, receive
+ * and ping threads per connection, reads and writes are multiplexed onto the selector
+ * threads of a {@link NIOSelectorGroup}.  Received messages are decoded and dispatched
+ * in order on a worker thread that is only held while the connection has data to
+ * dispatch.
+ *
+ * @since 4.11
+ */
+public class NIOClient implements ISynchAsynchConnection, INIOSelectHandler {
+
+	public static final String PROTOCOL = Client.PROTOCOL;
+
+	public static final int DEFAULT_KEEPALIVE = Integer.parseInt(System.getProperty("org.eclipse.ecf.provider.generic.keepalive", "30000")); //$NON-NLS-1$ //$NON-NLS-2$
+
+	private static final int STATE_HANDSHAKE = 0;
+	private static final int STATE_CONNECTED = 1;
+	private static final int STATE_STARTED = 2;
+
+	protected final NIOSelectorGroup selectorGroup;
+	protected SocketChannel channel;
+	protected ISynchAsynchEventHandler handler;
+	protected ID containerID;
+	protected Map properties;
+	protected int keepAlive;
+	protected long closeTimeout = Client.DEFAULT_CLOSE_TIMEOUT;
+
+	private final INIOAcceptHandler acceptHandler;
+	private NIOSelectorLoop loop;
+	private SelectionKey key;
+	private String addressPort = "-1:<no endpoint>:-1"; //$NON-NLS-1$
+	private volatile int state = STATE_HANDSHAKE;
+	private ConnectResultMessage connectResult;
+
+	// Outbound: messages are serialized by the sending thread into outputBuffer and queued for the selector
+	private final Object outputStreamLock = new Object();
+	private final ByteArrayOutputStream outputBuffer = new ByteArrayOutputStream(1024);
+	private ObjectOutputStream outputStream;
+	private final int maxmsgs;
+	private int resetCounter = 0;
+	private final LinkedList<ByteBuffer> writeQueue = new LinkedList<ByteBuffer>();
+
+	// Inbound: filled by the selector thread, decoded on a worker thread
+	private final NIOInputBuffer inputBuffer = new NIOInputBuffer();
+	private ObjectInputStream inputStream;
+	private final AtomicBoolean decodeScheduled = new AtomicBoolean();
+	private final Runnable decodeRunnable = new Runnable() {
+		public void run() {
+			decode();
+		}
+	};
+
+	private final PingMessage ping = new PingMessage();
+	private final PingResponseMessage pingResp = new PingResponseMessage();
+	private volatile boolean waitForPing = false;
+	private ScheduledFuture<?> pingFuture;
+
+	private volatile boolean isClosing = false;
+	private volatile boolean disconnectHandled = false;
+	private final Object disconnectLock = new Object();
+
+	/**
+	 * Create client side connection.  {@link #connect(ID, Object, int)} must be called to open it.
+	 * @param selectorGroup selector group to use.  Must not be <code>null</code>.
+	 * @param handler event handler.  Must not be <code>null</code>.
+	 * @param keepAlive keep alive interval in ms.  If &lt;= 0 no pings are sent.
+	 */
+	public NIOClient(NIOSelectorGroup selectorGroup, ISynchAsynchEventHandler handler, int keepAlive) {
+		if (selectorGroup == null)
+			throw new NullPointerException("selector group cannot be null"); //$NON-NLS-1$
+		if (handler == null)
+			throw new NullPointerException("event handler cannot be null"); //$NON-NLS-1$
+		this.selectorGroup = selectorGroup;
+		this.handler = handler;
+		this.keepAlive = keepAlive;
+		this.containerID = handler.getEventHandlerID();
+		this.properties = new HashMap();
+		this.acceptHandler = null;
+		this.maxmsgs = Client.DEFAULT_MAX_BUFFER_MSG;
+	}
+
+	/**
+	 * Create server side connection for an accepted channel.
+	 */
+	NIOClient(NIOSelectorGroup selectorGroup, SocketChannel channel, INIOAcceptHandler acceptHandler, int keepAlive) throws IOException {
+		this.selectorGroup = selectorGroup;
+		this.acceptHandler = acceptHandler;
+		this.keepAlive = keepAlive;
+		this.properties = new Properties();
+		this.maxmsgs = Client.DEFAULT_MAX_BUFFER_MSG;
+		open(channel);
+	}
+
+	private void open(SocketChannel ch) throws IOException {
+		ch.configureBlocking(false);
+		Socket s = ch.socket();
+		s.setTcpNoDelay(true);
+		if (keepAlive > 0)
+			s.setKeepAlive(true);
+		this.channel = ch;
+		this.addressPort = s.getLocalPort() + ":" + getHostNameForAddressWithoutLookup(s.getInetAddress()) + ":" + s.getPort(); //$NON-NLS-1$ //$NON-NLS-2$
+		synchronized (outputStreamLock) {
+			// Object stream header goes out first, as with Client
+			outputStream = new ObjectOutputStream(outputBuffer);
+			outputStream.flush();
+			this.loop = selectorGroup.nextLoop();
+			this.key = loop.register(ch, SelectionKey.OP_READ, this);
+			enqueueWrite();
+		}
+	}
+
+	private String getHostNameForAddressWithoutLookup(InetAddress inetAddress) {
+		if (inetAddress == null)
+			return "<no endpoint>"; //$NON-NLS-1$
+		String inetAddressStr = inetAddress.toString();
+		int slashPos = inetAddressStr.indexOf('/');
+		if (slashPos == 0)
+			return inetAddressStr.substring(1);
+		return inetAddressStr.substring(0, slashPos);
+	}
+
+	/**
+	 * Set the event handler for a connection created by {@link NIOServer}.  Must be called by
+	 * {@link INIOAcceptHandler#handleConnectRequest(NIOClient, ConnectRequestMessage)} before
+	 * the connection is started.
+	 * @param handler the event handler.  Must not be <code>null</code>.
+	 */
+	public void setEventHandler(ISynchAsynchEventHandler handler) {
+		if (handler == null)
+			throw new NullPointerException("event handler cannot be null"); //$NON-NLS-1$
+		this.handler = handler;
+		this.containerID = handler.getEventHandlerID();
+	}
+
+	/**
+	 * @return Socket the socket for this connection.  May be <code>null</code> if not connected.
+	 */
+	public Socket getSocket() {
+		SocketChannel ch = channel;
+		return (ch == null) ? null : ch.socket();
+	}
+
+	public synchronized ID getLocalID() {
+		if (containerID != null)
+			return containerID;
+		Socket socket = getSocket();
+		if (socket == null)
+			return null;
+		try {
+			return IDFactory.getDefault().createStringID(PROTOCOL + "://" + getHostNameForAddressWithoutLookup(socket.getLocalAddress()) //$NON-NLS-1$
+					+ ":" + socket.getLocalPort()); //$NON-NLS-1$
+		} catch (final Exception e) {
+			traceStack("Exception in getLocalID()", e); //$NON-NLS-1$
+			return null;
+		}
+	}
+
+	public synchronized Object connect(ID remote, Object data, int timeout) throws ECFException {
+		debug("connect(" + remote + "," + data + "," + timeout + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		if (channel != null)
+			throw new ECFException("Already connected"); //$NON-NLS-1$
+		if (remote == null)
+			throw new ECFException("remote cannot be null"); //$NON-NLS-1$
+		URI anURI = null;
+		try {
+			anURI = new URI(remote.getName());
+		} catch (final URISyntaxException e) {
+			throw new ECFException("Invalid URI for remoteID=" + remote, e); //$NON-NLS-1$
+		}
+		final long deadline = System.currentTimeMillis() + timeout;
+		SocketChannel ch = null;
+		try {
+			ch = SocketChannel.open();
+			ch.socket().connect(new InetSocketAddress(anURI.getHost(), anURI.getPort()), timeout);
+			open(ch);
+			send(new ConnectRequestMessage(anURI, (Serializable) data));
+			// Result is read by the decoder, which notifies us
+			while (connectResult == null && !disconnectHandled) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0)
+					throw new SocketTimeoutException("Timeout waiting for connect response from " + remote.getName()); //$NON-NLS-1$
+				wait(remaining);
+			}
+			if (connectResult == null)
+				throw new ConnectException("Connection closed during connect to " + remote.getName()); //$NON-NLS-1$
+		} catch (final IOException e) {
+			closeChannel();
+			throw new ECFException("Exception during connection to " + remote.getName(), e); //$NON-NLS-1$
+		} catch (final InterruptedException e) {
+			closeChannel();
+			Thread.currentThread().interrupt();
+			throw new ECFException("Interrupted during connection to " + remote.getName(), e); //$NON-NLS-1$
+		}
+		debug("connect;rcv:" + connectResult); //$NON-NLS-1$
+		return connectResult.getData();
+	}
+
+	public synchronized void start() {
+		debug("start()"); //$NON-NLS-1$
+		if (state == STATE_STARTED || disconnectHandled)
+			return;
+		state = STATE_STARTED;
+		if (keepAlive > 0) {
+			final int frequency = keepAlive / 2;
+			final int pingStartWait = (new SecureRandom()).nextInt(frequency) + frequency;
+			pingFuture = selectorGroup.getTimer().scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					ping();
+				}
+			}, pingStartWait, frequency, TimeUnit.MILLISECONDS);
+		}
+		scheduleDecode();
+	}
+
+	public void stop() {
+		debug("stop()"); //$NON-NLS-1$
+	}
+
+	public synchronized boolean isStarted() {
+		return state == STATE_STARTED && !disconnectHandled;
+	}
+
+	public synchronized boolean isConnected() {
+		return channel != null && channel.isConnected();
+	}
+
+	public synchronized void disconnect() {
+		debug("disconnect()"); //$NON-NLS-1$
+		closeChannel();
+		notifyAll();
+		// As with Client, a local disconnect is reported to the handler (without exception)
+		selectorGroup.getWorkerExecutor().execute(new Runnable() {
+			public void run() {
+				handleException(null);
+			}
+		});
+	}
+
+	private void closeChannel() {
+		if (pingFuture != null) {
+			pingFuture.cancel(false);
+			pingFuture = null;
+		}
+		if (key != null)
+			key.cancel();
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (final IOException e) {
+				traceStack("closeChannel Exception", e); //$NON-NLS-1$
+			}
+		}
+		inputBuffer.close(null);
+		synchronized (writeQueue) {
+			writeQueue.clear();
+		}
+	}
+
+	void handleException(Throwable e) {
+		synchronized (disconnectLock) {
+			if (disconnectHandled)
+				return;
+			disconnectHandled = true;
+		}
+		if (e != null)
+			traceStack("handleException in thread=" + Thread.currentThread().getName(), e); //$NON-NLS-1$
+		closeChannel();
+		synchronized (this) {
+			notifyAll();
+		}
+		// A connection that never completed its handshake is not known to the handler
+		if (state != STATE_HANDSHAKE && handler != null)
+			handler.handleDisconnectEvent(new DisconnectEvent(this, e, null));
+	}
+
+	// Sending
+
+	/**
+	 * Serialize the given message onto the object stream and queue it for writing.
+	 * @param snd the message to send
+	 * @throws IOException if the connection is closed
+	 */
+	protected void send(Serializable snd) throws IOException {
+		synchronized (outputStreamLock) {
+			if (disconnectHandled || channel == null || !channel.isOpen())
+				throw new ConnectException("Not connected"); //$NON-NLS-1$
+			outputStream.writeObject(snd);
+			if (resetCounter > this.maxmsgs) {
+				outputStream.reset();
+				resetCounter = 0;
+			} else
+				resetCounter++;
+			outputStream.flush();
+			enqueueWrite();
+		}
+	}
+
+	// Called with outputStreamLock held, so the write queue order is the serialization order
+	private void enqueueWrite() throws IOException {
+		if (outputBuffer.size() == 0)
+			return;
+		ByteBuffer buf = ByteBuffer.wrap(outputBuffer.toByteArray());
+		outputBuffer.reset();
+		synchronized (writeQueue) {
+			writeQueue.add(buf);
+			// Try to write directly from the caller; only involve the selector if the socket is full
+			if (writeQueue.size() == 1)
+				flushWriteQueue();
+		}
+	}
+
+	// Called with writeQueue lock held
+	private void flushWriteQueue() throws IOException {
+		while (!writeQueue.isEmpty()) {
+			ByteBuffer head = writeQueue.getFirst();
+			channel.write(head);
+			if (head.hasRemaining()) {
+				if ((key.interestOps() & SelectionKey.OP_WRITE) == 0) {
+					key.interestOpsOr(SelectionKey.OP_WRITE);
+					loop.wakeup();
+				}
+				return;
+			}
+			writeQueue.removeFirst();
+		}
+		if ((key.interestOps() & SelectionKey.OP_WRITE) != 0)
+			key.interestOpsAnd(~SelectionKey.OP_WRITE);
+	}
+
+	// Selector thread
+
+	public void handleSelect(SelectionKey k, ByteBuffer readBuffer) {
+		try {
+			if (k.isReadable()) {
+				readBuffer.clear();
+				int n = channel.read(readBuffer);
+				if (n < 0) {
+					handleReadFailure(k, new EOFException("Connection closed by peer")); //$NON-NLS-1$
+					return;
+				}
+				if (n > 0) {
+					readBuffer.flip();
+					byte[] chunk = new byte[n];
+					readBuffer.get(chunk);
+					inputBuffer.append(chunk);
+					scheduleDecode();
+				}
+			}
+			if (k.isValid() && k.isWritable()) {
+				synchronized (writeQueue) {
+					flushWriteQueue();
+				}
+			}
+		} catch (final IOException e) {
+			handleReadFailure(k, e);
+		}
+	}
+
+	private void handleReadFailure(SelectionKey k, IOException e) {
+		k.cancel();
+		// Messages already received are still dispatched before the failure is reported
+		inputBuffer.close(e);
+		if (state == STATE_CONNECTED)
+			// Not started (yet), e.g. refused by the accept handler, so nobody is decoding
+			closeChannel();
+		else
+			scheduleDecode();
+	}
+
+	// Receiving
+
+	private boolean canDecode() {
+		return (state != STATE_CONNECTED) && !disconnectHandled && inputBuffer.isReadable();
+	}
+
+	private void scheduleDecode() {
+		if (canDecode() && decodeScheduled.compareAndSet(false, true))
+			selectorGroup.getWorkerExecutor().execute(decodeRunnable);
+	}
+
+	void decode() {
+		for (;;) {
+			try {
+				while (canDecode())
+					handleRcv(readObject());
+			} catch (final Exception e) {
+				handleException(e);
+				return;
+			}
+			decodeScheduled.set(false);
+			// Re-check, as data may have arrived after our last check
+			if (!canDecode() || !decodeScheduled.compareAndSet(false, true))
+				return;
+		}
+	}
+
+	Serializable readObject() throws IOException {
+		if (inputStream == null)
+			inputStream = ProviderPlugin.getDefault().createObjectInputStream(inputBuffer);
+		try {
+			return (Serializable) inputStream.readObject();
+		} catch (final ClassNotFoundException e) {
+			traceStack("readObject;classnotfoundexception", e); //$NON-NLS-1$
+			final IOException except = new IOException("Protocol violation due to class load failure"); //$NON-NLS-1$
+			except.setStackTrace(e.getStackTrace());
+			throw except;
+		}
+	}
+
+	void handleRcv(Serializable rcv) throws Exception {
+		if (state == STATE_HANDSHAKE) {
+			handleHandshake(rcv);
+			return;
+		}
+		if (rcv instanceof SynchMessage) {
+			handler.handleSynchEvent(new SynchEvent(this, ((SynchMessage) rcv).getData()));
+		} else if (rcv instanceof AsynchMessage) {
+			handler.handleAsynchEvent(new AsynchEvent(this, ((AsynchMessage) rcv).getData()));
+		} else if (rcv instanceof PingMessage) {
+			send(pingResp);
+		} else if (rcv instanceof PingResponseMessage) {
+			waitForPing = false;
+		} else
+			throw new IOException("Invalid message received"); //$NON-NLS-1$
+	}
+
+	private void handleHandshake(Serializable rcv) throws Exception {
+		if (acceptHandler == null) {
+			if (!(rcv instanceof ConnectResultMessage))
+				throw new InvalidObjectException("Invalid connect response"); //$NON-NLS-1$
+			synchronized (this) {
+				connectResult = (ConnectResultMessage) rcv;
+				state = STATE_CONNECTED;
+				notifyAll();
+			}
+		} else {
+			if (!(rcv instanceof ConnectRequestMessage))
+				throw new InvalidObjectException("Invalid connect request"); //$NON-NLS-1$
+			state = STATE_CONNECTED;
+			// Nothing else may be sent until the connect request has been accepted or rejected
+			synchronized (outputStreamLock) {
+				final Serializable resp = acceptHandler.handleConnectRequest(this, (ConnectRequestMessage) rcv);
+				send(new ConnectResultMessage(resp));
+			}
+		}
+	}
+
+	// Keep alive
+
+	void ping() {
+		if (disconnectHandled)
+			return;
+		if (waitForPing) {
+			handleException(new IOException(getAddressPort() + " remote not reachable by ping")); //$NON-NLS-1$
+			return;
+		}
+		waitForPing = true;
+		try {
+			send(ping);
+		} catch (final IOException e) {
+			handleException(e);
+		}
+	}
+
+	// ISynchAsynchConnection
+
+	public void sendAsynch(ID recipient, byte[] obj) throws IOException {
+		queueObject(recipient, obj);
+	}
+
+	public void sendAsynch(ID recipient, Object obj) throws IOException {
+		queueObject(recipient, (Serializable) obj);
+	}
+
+	public void queueObject(ID recipient, Serializable obj) throws IOException {
+		if (isClosing)
+			throw new ConnectException("Not connected"); //$NON-NLS-1$
+		send(new AsynchMessage(obj));
+	}
+
+	public synchronized Serializable sendObject(ID recipient, Serializable obj) throws IOException {
+		if (isClosing || disconnectHandled)
+			throw new ConnectException("Not connected"); //$NON-NLS-1$
+		isClosing = true;
+		send(new SynchMessage(obj));
+		int count = 0;
+		final int interval = Client.DEFAULT_WAIT_INTERVAL;
+		while (!disconnectHandled && count < interval) {
+			try {
+				wait(closeTimeout / interval);
+				count++;
+			} catch (final InterruptedException e) {
+				traceStack("sendObject wait", e); //$NON-NLS-1$
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		return null;
+	}
+
+	public Object sendSynch(ID rec, Object obj) throws IOException {
+		return sendObject(rec, (Serializable) obj);
+	}
+
+	public Object sendSynch(ID rec, byte[] obj) throws IOException {
+		return sendObject(rec, obj);
+	}
+
+	public void setCloseTimeout(long t) {
+		closeTimeout = t;
+	}
+
+	public void removeListener(IConnectionListener l) {
+		// does not support listeners
+	}
+
+	public void addListener(IConnectionListener l) {
+		// does not support listeners
+	}
+
+	public Map getProperties() {
+		return properties;
+	}
+
+	public void setProperties(Map props) {
+		this.properties = props;
+	}
+
+	@SuppressWarnings("unchecked")
+	public Object getAdapter(Class clazz) {
+		return null;
+	}
+
+	/**
+	 * @return Object the output stream lock.  While held, nothing is sent on this connection.
+	 */
+	public Object getOutputStreamLock() {
+		return outputStreamLock;
+	}
+
+	String getAddressPort() {
+		return addressPort;
+	}
+
+	public String toString() {
+		return "NIOClient[" + getAddressPort() + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	protected void debug(String msg) {
+		Trace.trace(ProviderPlugin.PLUGIN_ID, ECFProviderDebugOptions.CONNECTION, getLocalID() + "." + msg); //$NON-NLS-1$
+	}
+
+	protected void traceStack(String msg, Throwable e) {
+		Trace.catching(ProviderPlugin.PLUGIN_ID, ECFProviderDebugOptions.EXCEPTIONS_CATCHING, NIOClient.class, msg, e);
+	}
+}
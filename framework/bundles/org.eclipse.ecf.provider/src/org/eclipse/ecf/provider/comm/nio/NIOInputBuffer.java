@@ -0,0 +1,119 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.comm.nio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.LinkedList;
+
+/**
+ * InputStream filled by a selector thread and drained by an ObjectInputStream on a worker
+ * thread.  A read only blocks when a message has been partially received.
+ */
+class NIOInputBuffer extends InputStream {
+
+	private final LinkedList<byte[]> chunks = new LinkedList<byte[]>();
+	private int position;
+	private int available;
+	private boolean closed;
+	private IOException closeCause;
+
+	synchronized void append(byte[] chunk) {
+		if (closed)
+			return;
+		chunks.add(chunk);
+		available += chunk.length;
+		notifyAll();
+	}
+
+	/**
+	 * @param cause exception to report once all buffered data has been read.  May be <code>null</code>
+	 * to report end of stream.
+	 */
+	synchronized void close(IOException cause) {
+		if (closed)
+			return;
+		closed = true;
+		closeCause = cause;
+		notifyAll();
+	}
+
+	/**
+	 * @return true if a read will not block: either data is buffered or the stream is closed
+	 */
+	synchronized boolean isReadable() {
+		return available > 0 || closed;
+	}
+
+	public synchronized int available() {
+		return available;
+	}
+
+	private boolean waitForData() throws IOException {
+		while (available == 0) {
+			if (closed) {
+				if (closeCause != null)
+					throw closeCause;
+				return false;
+			}
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+		return true;
+	}
+
+	public synchronized int read() throws IOException {
+		if (!waitForData())
+			return -1;
+		byte[] head = chunks.getFirst();
+		int b = head[position++] & 0xff;
+		consumed(head, 1);
+		return b;
+	}
+
+	public synchronized int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (!waitForData())
+			return -1;
+		int total = 0;
+		while (len > 0 && available > 0) {
+			byte[] head = chunks.getFirst();
+			int n = Math.min(len, head.length - position);
+			System.arraycopy(head, position, b, off, n);
+			position += n;
+			off += n;
+			len -= n;
+			total += n;
+			consumed(head, n);
+		}
+		return total;
+	}
+
+	private void consumed(byte[] head, int n) {
+		available -= n;
+		if (position == head.length) {
+			chunks.removeFirst();
+			position = 0;
+		}
+	}
+
+	public void close() {
+		close(null);
+	}
+}
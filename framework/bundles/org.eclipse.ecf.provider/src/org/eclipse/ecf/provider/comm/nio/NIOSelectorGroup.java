@@ -0,0 +1,108 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.comm.nio;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed set of selector threads shared by any number of {@link NIOClient} and
+ * {@link NIOServer} instances, plus the executors used to decode/dispatch received
+ * messages and to send keep alive pings.
+ * <p>
+ * The number of selector threads is given by the system property
+ * <code>org.eclipse.ecf.provider.comm.nio.selectorThreads</code> (default: number
+ * of processors, at most 4).  Worker threads only exist while a connection has
+ * received data to dispatch, and are reclaimed after being idle for 60 seconds.
+ *
+ * @since 4.11
+ */
+public class NIOSelectorGroup {
+
+	public static final int DEFAULT_SELECTOR_THREADS = Integer.parseInt(System.getProperty("org.eclipse.ecf.provider.comm.nio.selectorThreads", String.valueOf(Math.min(4, Runtime.getRuntime().availableProcessors())))); //$NON-NLS-1$
+
+	public static final int DEFAULT_READ_BUFFER_SIZE = Integer.parseInt(System.getProperty("org.eclipse.ecf.provider.comm.nio.readBufferSize", "65536")); //$NON-NLS-1$ //$NON-NLS-2$
+
+	private static NIOSelectorGroup defaultGroup;
+
+	private final String name;
+	private final NIOSelectorLoop[] loops;
+	private final AtomicInteger nextLoop = new AtomicInteger();
+	private final ExecutorService workerExecutor;
+	private final ScheduledExecutorService timer;
+
+	/**
+	 * @return NIOSelectorGroup the selector group shared by all nio generic containers in this
+	 * process.  Will not be <code>null</code>.
+	 * @throws IOException if the selectors cannot be opened
+	 */
+	public static synchronized NIOSelectorGroup getDefault() throws IOException {
+		if (defaultGroup == null)
+			defaultGroup = new NIOSelectorGroup("ECF NIO", DEFAULT_SELECTOR_THREADS, DEFAULT_READ_BUFFER_SIZE); //$NON-NLS-1$
+		return defaultGroup;
+	}
+
+	public NIOSelectorGroup(String name, int selectorThreads, int readBufferSize) throws IOException {
+		if (selectorThreads < 1)
+			throw new IllegalArgumentException("selectorThreads must be > 0"); //$NON-NLS-1$
+		this.name = name;
+		this.loops = new NIOSelectorLoop[selectorThreads];
+		for (int i = 0; i < selectorThreads; i++)
+			loops[i] = new NIOSelectorLoop(name + ":selector:" + i, readBufferSize); //$NON-NLS-1$
+		this.workerExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new NamedThreadFactory(name + ":worker:")); //$NON-NLS-1$
+		this.timer = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(name + ":ping:")); //$NON-NLS-1$
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	NIOSelectorLoop nextLoop() {
+		return loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+	}
+
+	Executor getWorkerExecutor() {
+		return workerExecutor;
+	}
+
+	ScheduledExecutorService getTimer() {
+		return timer;
+	}
+
+	public void dispose() {
+		for (int i = 0; i < loops.length; i++)
+			loops[i].close();
+		workerExecutor.shutdown();
+		timer.shutdown();
+		synchronized (NIOSelectorGroup.class) {
+			if (defaultGroup == this)
+				defaultGroup = null;
+		}
+	}
+
+	static class NamedThreadFactory implements ThreadFactory {
+		private final String prefix;
+		private final AtomicInteger count = new AtomicInteger();
+
+		NamedThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, prefix + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.comm.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.Iterator;
+import org.eclipse.ecf.core.util.Trace;
+import org.eclipse.ecf.internal.provider.ECFProviderDebugOptions;
+import org.eclipse.ecf.internal.provider.ProviderPlugin;
+
+/**
+ * A single selector thread.  All channels registered with this loop have their
+ * readiness events dispatched to the {@link INIOSelectHandler} attached to their key.
+ */
+class NIOSelectorLoop implements Runnable {
+
+	private final Selector selector;
+	private final ByteBuffer readBuffer;
+	private final Thread thread;
+	private volatile boolean running = true;
+
+	NIOSelectorLoop(String name, int readBufferSize) throws IOException {
+		this.selector = Selector.open();
+		this.readBuffer = ByteBuffer.allocateDirect(readBufferSize);
+		this.thread = new Thread(this, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	SelectionKey register(SelectableChannel channel, int ops, INIOSelectHandler handler) throws ClosedChannelException {
+		// Since Java 11 registration does not block while the selector is in select()
+		SelectionKey key = channel.register(selector, ops, handler);
+		selector.wakeup();
+		return key;
+	}
+
+	void wakeup() {
+		selector.wakeup();
+	}
+
+	boolean isSelectorThread() {
+		return Thread.currentThread() == thread;
+	}
+
+	public void run() {
+		while (running) {
+			try {
+				selector.select();
+			} catch (IOException e) {
+				traceStack("select", e); //$NON-NLS-1$
+				break;
+			} catch (ClosedSelectorException e) {
+				break;
+			}
+			Iterator<SelectionKey> i = selector.selectedKeys().iterator();
+			while (i.hasNext()) {
+				SelectionKey key = i.next();
+				i.remove();
+				INIOSelectHandler handler = (INIOSelectHandler) key.attachment();
+				try {
+					if (key.isValid() && handler != null)
+						handler.handleSelect(key, readBuffer);
+				} catch (CancelledKeyException e) {
+					// channel closed concurrently
+				} catch (RuntimeException e) {
+					traceStack("handleSelect", e); //$NON-NLS-1$
+					key.cancel();
+				}
+			}
+		}
+		debug("SELECTOR TERMINATING"); //$NON-NLS-1$
+	}
+
+	void close() {
+		running = false;
+		try {
+			selector.close();
+		} catch (IOException e) {
+			traceStack("close", e); //$NON-NLS-1$
+		}
+	}
+
+	private void debug(String msg) {
+		Trace.trace(ProviderPlugin.PLUGIN_ID, ECFProviderDebugOptions.CONNECTION, thread.getName() + "." + msg); //$NON-NLS-1$
+	}
+
+	private void traceStack(String msg, Throwable e) {
+		Trace.catching(ProviderPlugin.PLUGIN_ID, ECFProviderDebugOptions.EXCEPTIONS_CATCHING, NIOSelectorLoop.class, msg, e);
+	}
+}
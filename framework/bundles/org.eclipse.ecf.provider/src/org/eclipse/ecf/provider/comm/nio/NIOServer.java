@@ -0,0 +1,103 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.comm.nio;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import org.eclipse.ecf.core.util.Trace;
+import org.eclipse.ecf.internal.provider.ECFProviderDebugOptions;
+import org.eclipse.ecf.internal.provider.ProviderPlugin;
+import org.eclipse.ecf.provider.comm.tcp.Server;
+
+/**
+ * Selector based acceptor.  Unlike {@link Server}, no thread is created per accepted
+ * socket: accepted channels are handed to {@link NIOClient} instances registered with
+ * the selector threads of the given {@link NIOSelectorGroup}.
+ *
+ * @since 4.11
+ */
+public class NIOServer implements INIOSelectHandler {
+
+	private final NIOSelectorGroup selectorGroup;
+	private final ServerSocketChannel serverChannel;
+	private final SelectionKey key;
+	private final int keepAlive;
+	private INIOAcceptHandler acceptHandler;
+
+	public NIOServer(NIOSelectorGroup selectorGroup, int port, int backlog, InetAddress bindAddress, INIOAcceptHandler handler, int keepAlive) throws IOException {
+		if (handler == null)
+			throw new NullPointerException("accept handler cannot be null"); //$NON-NLS-1$
+		this.selectorGroup = selectorGroup;
+		this.acceptHandler = handler;
+		this.keepAlive = keepAlive;
+		this.serverChannel = ServerSocketChannel.open();
+		try {
+			serverChannel.bind((bindAddress == null) ? new InetSocketAddress(port) : new InetSocketAddress(bindAddress, port), backlog);
+			serverChannel.configureBlocking(false);
+			this.key = selectorGroup.nextLoop().register(serverChannel, SelectionKey.OP_ACCEPT, this);
+		} catch (IOException e) {
+			serverChannel.close();
+			throw e;
+		}
+	}
+
+	public NIOServer(NIOSelectorGroup selectorGroup, int port, InetAddress bindAddress, INIOAcceptHandler handler) throws IOException {
+		this(selectorGroup, port, Server.DEFAULT_BACKLOG, bindAddress, handler, NIOClient.DEFAULT_KEEPALIVE);
+	}
+
+	public int getLocalPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	public void handleSelect(SelectionKey k, ByteBuffer readBuffer) {
+		if (!k.isAcceptable())
+			return;
+		for (;;) {
+			SocketChannel ch = null;
+			try {
+				ch = serverChannel.accept();
+				if (ch == null)
+					return;
+				debug("accept:" + ch.socket().getInetAddress()); //$NON-NLS-1$
+				new NIOClient(selectorGroup, ch, acceptHandler, keepAlive);
+			} catch (IOException e) {
+				traceStack("Exception in accept", e); //$NON-NLS-1$
+				if (ch != null) {
+					try {
+						ch.close();
+					} catch (IOException e1) {
+						// ignore
+					}
+				}
+				return;
+			}
+		}
+	}
+
+	public synchronized void close() throws IOException {
+		key.cancel();
+		serverChannel.close();
+		acceptHandler = null;
+	}
+
+	protected void debug(String msg) {
+		Trace.trace(ProviderPlugin.PLUGIN_ID, ECFProviderDebugOptions.CONNECTION, msg);
+	}
+
+	protected void traceStack(String msg, Throwable e) {
+		Trace.catching(ProviderPlugin.PLUGIN_ID, ECFProviderDebugOptions.EXCEPTIONS_CATCHING, NIOServer.class, msg, e);
+	}
+}
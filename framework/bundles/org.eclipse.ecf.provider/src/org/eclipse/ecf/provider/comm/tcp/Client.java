@@ -37,6 +37,24 @@ public final class Client implements ISynchAsynchConnection {
 	// Default maximum cached messages on object stream is 50
 	public static final int DEFAULT_MAX_BUFFER_MSG = Integer.parseInt(System.getProperty("org.eclipse.ecf.provider.comm.tcp.client.maxmsgs", "50")); //$NON-NLS-1$ //$NON-NLS-2$
 	public static final int DEFAULT_WAIT_INTERVAL = Integer.parseInt(System.getProperty("org.eclipse.ecf.provider.comm.tcp.client.waitinterval", "10")); //$NON-NLS-1$ //$NON-NLS-2$
+	/**
+	 * Maximum number of queued messages written before the output stream is flushed.  1 flushes
+	 * every message.
+	 * @since 4.11
+	 */
+	public static final int DEFAULT_MAX_BATCH = Integer.parseInt(System.getProperty("org.eclipse.ecf.provider.comm.tcp.client.maxbatch", "64")); //$NON-NLS-1$ //$NON-NLS-2$
+	/**
+	 * Maximum time in ms the sender waits for more messages to fill a batch.  With the default of 0
+	 * the sender only batches messages that are already queued, so no message is delayed.
+	 * @since 4.11
+	 */
+	public static final long DEFAULT_MAX_LINGER = Long.parseLong(System.getProperty("org.eclipse.ecf.provider.comm.tcp.client.lingerms", "0")); //$NON-NLS-1$ //$NON-NLS-2$
+	/**
+	 * Size of the buffer between object output streams and sockets, so that a batch of
+	 * messages is written to the socket at once when flushed.
+	 * @since 4.11
+	 */
+	public static final int DEFAULT_SEND_BUFFER_SIZE = Integer.parseInt(System.getProperty("org.eclipse.ecf.provider.comm.tcp.client.sendbuffer", "16384")); //$NON-NLS-1$ //$NON-NLS-2$
 	protected Socket socket;
 	private String addressPort = "-1:<no endpoint>:-1"; //$NON-NLS-1$
 	// Underlying streams
@@ -62,6 +80,11 @@ public final class Client implements ISynchAsynchConnection {
 	private final Object disconnectLock = new Object();
 	protected final Object outputStreamLock = new Object();
 	private int maxmsgs = DEFAULT_MAX_BUFFER_MSG;
+	private int maxBatch = DEFAULT_MAX_BATCH;
+	private long maxLinger = DEFAULT_MAX_LINGER;
+	// Written while holding outputStreamLock
+	private volatile long messagesSent;
+	private volatile long flushes;
 
 	private String getHostNameForAddressWithoutLookup(InetAddress inetAddress) {
 		// First get InetAddress.toString(), which returns
@@ -215,7 +238,7 @@ public final class Client implements ISynchAsynchConnection {
 			setSocketOptions(s);
 			// Now we've got a connection so set our socket
 			setSocket(s);
-			outputStream = new ObjectOutputStream(s.getOutputStream());
+			outputStream = new ObjectOutputStream(new BufferedOutputStream(s.getOutputStream(), DEFAULT_SEND_BUFFER_SIZE));
 			outputStream.flush();
 			inputStream = ProviderPlugin.getDefault().createObjectInputStream(s.getInputStream());
 			debug("connect;" + anURI); //$NON-NLS-1$
@@ -267,17 +290,15 @@ public final class Client implements ISynchAsynchConnection {
 					if (me.isInterrupted() || aMsg == null)
 						break;
 					try {
-						// Actually send message
-						send(aMsg);
-						// Successful...remove message from queue
-						queue.removeHead();
+						// Actually send message, and the messages queued after it
+						sendBatch(aMsg);
 					} catch (Exception e) {
 						handleException(e);
 						break;
 					}
 				}
 				handleException(null);
-				debug("SENDER TERMINATING"); //$NON-NLS-1$
+				debug("SENDER TERMINATING;messages=" + messagesSent + ";flushes=" + flushes); //$NON-NLS-1$ //$NON-NLS-2$
 			}
 		}, getLocalID() + ":sndr:" + getAddressPort()); //$NON-NLS-1$
 		// Set priority for new thread
@@ -315,16 +336,98 @@ public final class Client implements ISynchAsynchConnection {
 
 	void send(Serializable snd) throws IOException {
 		synchronized (outputStreamLock) {
-			outputStream.writeObject(snd);
-			outputStream.flush();
-			if (resetCounter > this.maxmsgs) {
-				outputStream.reset();
-				resetCounter = 0;
-			} else
-				resetCounter++;
+			write(snd);
+			flush();
+		}
+	}
+
+	// Must hold outputStreamLock
+	private void write(Serializable snd) throws IOException {
+		outputStream.writeObject(snd);
+		messagesSent++;
+		if (resetCounter > this.maxmsgs) {
+			outputStream.reset();
+			resetCounter = 0;
+		} else
+			resetCounter++;
+	}
+
+	// Must hold outputStreamLock
+	private void flush() throws IOException {
+		outputStream.flush();
+		flushes++;
+	}
+
+	/**
+	 * Write the given message, which is the head of the queue, and the messages queued after it
+	 * up to the maximum batch size, and then flush them all at once.  Messages are removed from
+	 * the queue once written.
+	 */
+	private void sendBatch(Serializable first) throws IOException {
+		if (maxLinger > 0 && maxBatch > 1)
+			awaitBatch();
+		synchronized (outputStreamLock) {
+			Serializable aMsg = first;
+			for (int count = 1;; count++) {
+				write(aMsg);
+				queue.removeHead();
+				// Only this thread removes messages, so the queue does not block when not empty
+				if (count >= maxBatch || queue.isEmpty())
+					break;
+				aMsg = (Serializable) queue.peekQueue();
+				if (aMsg == null)
+					break;
+			}
+			flush();
 		}
 	}
 
+	// Wait up to maxLinger ms for a full batch of messages to be queued
+	private void awaitBatch() {
+		final long deadline = System.currentTimeMillis() + maxLinger;
+		synchronized (queue) {
+			long remaining = maxLinger;
+			while (remaining > 0 && queue.size() < maxBatch && !queue.isStopped()) {
+				try {
+					queue.wait(remaining);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				remaining = deadline - System.currentTimeMillis();
+			}
+		}
+	}
+
+	/**
+	 * @param max the maximum number of queued messages written before the output stream is flushed.
+	 * 1 flushes every message.
+	 * @param lingerMS the maximum time in ms to wait for more messages to fill a batch.  0 only
+	 * batches messages that are already queued.
+	 * @since 4.11
+	 */
+	public void setBatching(int max, long lingerMS) {
+		this.maxBatch = Math.max(1, max);
+		this.maxLinger = Math.max(0, lingerMS);
+	}
+
+	/**
+	 * @return the number of messages written to the output stream
+	 * @since 4.11
+	 */
+	public long getMessagesSent() {
+		return messagesSent;
+	}
+
+	/**
+	 * @return the number of times the output stream was flushed.  The number of messages sent divided
+	 * by this is the average number of messages per batch.
+	 * @since 4.11
+	 */
+	public long getFlushes() {
+		return flushes;
+	}
+
 	private void handlePingResp() {
 		synchronized (pingLock) {
 			waitForPing = false;
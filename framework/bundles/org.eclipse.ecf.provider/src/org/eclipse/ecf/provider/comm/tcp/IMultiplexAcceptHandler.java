@@ -0,0 +1,48 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+
+package org.eclipse.ecf.provider.comm.tcp;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.Socket;
+import org.eclipse.ecf.provider.comm.ISynchAsynchEventHandler;
+
+/**
+ * Handler for the sessions opened on a multiplexed connection accepted by a server.
+ *
+ * @see Multiplexer#accept(Socket, java.io.ObjectInputStream, java.io.ObjectOutputStream, IMultiplexAcceptHandler)
+ * @since 4.11
+ */
+public interface IMultiplexAcceptHandler {
+	/**
+	 * Get the event handler for a new session.
+	 *
+	 * @param target the path of the target of the session
+	 * @return the event handler for the messages received by the session.  Must not be <code>null</code>.
+	 * @throws IOException if there is nothing to connect to for the target
+	 */
+	public ISynchAsynchEventHandler getEventHandler(String target) throws IOException;
+
+	/**
+	 * Handle the connect request of a new session.  Nothing is sent by the session until this returns.
+	 *
+	 * @param aSocket the socket shared by the sessions
+	 * @param target the path of the target of the session
+	 * @param data the data sent with the connect request
+	 * @param conn the connection for the session
+	 * @return the data for the connect result
+	 * @throws Exception if the connect request cannot be handled
+	 */
+	public Serializable handleConnectRequest(Socket aSocket, String target, Serializable data, MultiplexClient conn) throws Exception;
+}
@@ -0,0 +1,393 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+
+package org.eclipse.ecf.provider.comm.tcp;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.util.ECFException;
+import org.eclipse.ecf.core.util.Trace;
+import org.eclipse.ecf.internal.provider.ECFProviderDebugOptions;
+import org.eclipse.ecf.internal.provider.ProviderPlugin;
+import org.eclipse.ecf.provider.comm.*;
+
+/**
+ * Connection that is a session of a {@link Multiplexer}, so that it shares a socket with the other
+ * sessions connected to the same server.  It is used like a {@link Client}: on clients it is created
+ * unconnected and then connected, and on servers it is created for every session opened by a client.
+ * When the server does not accept multiplexed connections, the session connects with a plain
+ * {@link Client} of its own instead.
+ *
+ * @since 4.11
+ */
+public final class MultiplexClient implements ISynchAsynchConnection {
+
+	// Events delivered before the session turns to the next one
+	private static final int DELIVERY_BATCH = 64;
+
+	private final ISynchAsynchEventHandler handler;
+	private final int keepAlive;
+	private final ID containerID;
+	private Map properties = new HashMap();
+	private volatile Multiplexer multiplexer;
+	private volatile int session;
+	// Guarded by the multiplexer
+	final LinkedList<Serializable> outbound = new LinkedList<Serializable>();
+	boolean ready;
+	boolean pending;
+	// Received messages and disconnect event, delivered in order once started
+	private final ConcurrentLinkedQueue<Object> inbound = new ConcurrentLinkedQueue<Object>();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private volatile boolean started;
+	// Guarded by this
+	private boolean connected;
+	private Serializable connectResult;
+	private volatile boolean closed;
+	private volatile boolean isClosing;
+	private long closeTimeout = Client.DEFAULT_CLOSE_TIMEOUT;
+	// Connection used instead of a session when the server does not accept multiplexed connections
+	private volatile Client plain;
+
+	private final Runnable delivery = new Runnable() {
+		public void run() {
+			try {
+				for (int i = 0; i < DELIVERY_BATCH; i++) {
+					final Object event = inbound.poll();
+					if (event == null)
+						break;
+					deliver(event);
+				}
+			} finally {
+				scheduled.set(false);
+				// Events may have been received after the last poll
+				schedule();
+			}
+		}
+	};
+
+	public MultiplexClient(ISynchAsynchEventHandler handler, int keepAlive) {
+		if (handler == null)
+			throw new NullPointerException("event handler cannot be null"); //$NON-NLS-1$
+		this.handler = handler;
+		this.keepAlive = keepAlive;
+		this.containerID = handler.getEventHandlerID();
+	}
+
+	// Session opened by a client
+	MultiplexClient(ISynchAsynchEventHandler handler, Multiplexer multiplexer, int session) {
+		this(handler, 0);
+		this.multiplexer = multiplexer;
+		this.session = session;
+		this.connected = true;
+	}
+
+	void setSession(Multiplexer mux, int id) {
+		this.multiplexer = mux;
+		this.session = id;
+		// Nothing is sent until connected, so the session is ready at once
+		this.ready = true;
+	}
+
+	int getSession() {
+		return session;
+	}
+
+	public synchronized Object connect(ID remote, Object data, int timeout) throws ECFException {
+		debug("connect(" + remote + "," + data + "," + timeout + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		if (multiplexer != null || plain != null)
+			throw new ECFException("Already connected"); //$NON-NLS-1$
+		if (remote == null)
+			throw new ECFException("remote cannot be null"); //$NON-NLS-1$
+		URI anURI = null;
+		try {
+			anURI = new URI(remote.getName());
+		} catch (final URISyntaxException e) {
+			throw new ECFException("Invalid URI for remoteID=" + remote, e); //$NON-NLS-1$
+		}
+		final Multiplexer mux = Multiplexer.connect(anURI, keepAlive, timeout, this);
+		if (mux == null) {
+			debug("connect;multiplexing rejected by server, connecting plain"); //$NON-NLS-1$
+			plain = new Client(new PlainEventHandler(), keepAlive);
+			plain.setCloseTimeout(closeTimeout);
+			plain.setProperties(properties);
+			return plain.connect(remote, data, timeout);
+		}
+		try {
+			mux.send(this, new ConnectRequestMessage(anURI, (Serializable) data));
+			final long deadline = System.currentTimeMillis() + timeout;
+			while (!connected && !closed) {
+				final long remaining = (timeout > 0) ? deadline - System.currentTimeMillis() : 0;
+				if (timeout > 0 && remaining <= 0)
+					throw new ECFException("Timeout connecting to " + remote.getName()); //$NON-NLS-1$
+				wait(remaining);
+			}
+			if (!connected)
+				throw new ECFException("Connection to " + remote.getName() + " closed"); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (final IOException e) {
+			disconnect();
+			throw new ECFException("Exception during connection to " + remote.getName(), e); //$NON-NLS-1$
+		} catch (final InterruptedException e) {
+			disconnect();
+			throw new ECFException("Interrupted connecting to " + remote.getName(), e); //$NON-NLS-1$
+		} catch (final ECFException e) {
+			disconnect();
+			throw e;
+		}
+		debug("connect;returning:" + connectResult); //$NON-NLS-1$
+		return connectResult;
+	}
+
+	// Called by the receiver thread of the multiplexer
+	void handleMessage(Serializable message) {
+		if (message instanceof ConnectResultMessage) {
+			synchronized (this) {
+				connectResult = ((ConnectResultMessage) message).getData();
+				connected = true;
+				notifyAll();
+			}
+		} else if (message == null) {
+			multiplexer.close(this, false);
+			handleClosed(new ConnectException("Connection closed by remote")); //$NON-NLS-1$
+		} else {
+			inbound.add(message);
+			schedule();
+		}
+	}
+
+	/**
+	 * Mark the session closed, and deliver the disconnect event after the messages already received.
+	 */
+	void handleClosed(Throwable e) {
+		synchronized (this) {
+			if (closed)
+				return;
+			closed = true;
+			notifyAll();
+		}
+		inbound.add(new DisconnectEvent(this, e, null));
+		schedule();
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	private void schedule() {
+		if (started && !inbound.isEmpty() && scheduled.compareAndSet(false, true))
+			Multiplexer.getExecutor().execute(delivery);
+	}
+
+	void deliver(Object event) {
+		try {
+			// SynchMessage extends AsynchMessage, so it is checked first
+			if (event instanceof SynchMessage)
+				// The only valid synch message is 'close'
+				handler.handleSynchEvent(new SynchEvent(this, ((SynchMessage) event).getData()));
+			else if (event instanceof AsynchMessage)
+				handler.handleAsynchEvent(new AsynchEvent(this, ((AsynchMessage) event).getData()));
+			else if (event instanceof DisconnectEvent)
+				handler.handleDisconnectEvent((DisconnectEvent) event);
+		} catch (final IOException e) {
+			traceStack("deliver " + event, e); //$NON-NLS-1$
+			close(e);
+		} catch (final RuntimeException e) {
+			traceStack("deliver " + event, e); //$NON-NLS-1$
+		}
+	}
+
+	private void close(Throwable e) {
+		final Multiplexer mux = multiplexer;
+		if (mux != null)
+			mux.close(this, true);
+		handleClosed(e);
+	}
+
+	public void disconnect() {
+		debug("disconnect()"); //$NON-NLS-1$
+		final Client p = plain;
+		if (p != null)
+			p.disconnect();
+		else
+			close(null);
+	}
+
+	public boolean isConnected() {
+		final Client p = plain;
+		if (p != null)
+			return p.isConnected();
+		return multiplexer != null && !closed;
+	}
+
+	public ID getLocalID() {
+		return containerID;
+	}
+
+	public void start() {
+		debug("start()"); //$NON-NLS-1$
+		final Client p = plain;
+		if (p != null) {
+			p.start();
+			return;
+		}
+		started = true;
+		schedule();
+	}
+
+	public void stop() {
+		debug("stop()"); //$NON-NLS-1$
+		final Client p = plain;
+		if (p != null)
+			p.stop();
+	}
+
+	public boolean isStarted() {
+		final Client p = plain;
+		if (p != null)
+			return p.isStarted();
+		return started && !closed;
+	}
+
+	public void sendAsynch(ID recipient, byte[] obj) throws IOException {
+		final Client p = plain;
+		if (p != null) {
+			p.sendAsynch(recipient, obj);
+			return;
+		}
+		if (isClosing)
+			throw new ConnectException("Not connected"); //$NON-NLS-1$
+		send(new AsynchMessage(obj));
+	}
+
+	public Object sendSynch(ID recipient, byte[] obj) throws IOException {
+		final Client p = plain;
+		if (p != null)
+			return p.sendSynch(recipient, obj);
+		return sendSessionSynch(obj);
+	}
+
+	private synchronized Object sendSessionSynch(byte[] obj) throws IOException {
+		if (isClosing)
+			throw new ConnectException("Not connected"); //$NON-NLS-1$
+		// As for a plain connection, the synch message is the last one and the remote closes the session
+		isClosing = true;
+		send(new SynchMessage(obj));
+		final long deadline = System.currentTimeMillis() + closeTimeout;
+		long remaining = closeTimeout;
+		while (!closed && remaining > 0) {
+			try {
+				wait(remaining);
+			} catch (final InterruptedException e) {
+				traceStack("sendSynch wait", e); //$NON-NLS-1$
+				break;
+			}
+			remaining = deadline - System.currentTimeMillis();
+		}
+		return null;
+	}
+
+	private void send(Serializable message) throws IOException {
+		final Multiplexer mux = multiplexer;
+		if (mux == null || closed)
+			throw new ConnectException("Not connected"); //$NON-NLS-1$
+		mux.send(this, message);
+	}
+
+	public void setCloseTimeout(long t) {
+		closeTimeout = t;
+		final Client p = plain;
+		if (p != null)
+			p.setCloseTimeout(t);
+	}
+
+	/**
+	 * @return the multiplexer of this session, or <code>null</code> if not connected or connected with
+	 * a plain connection because the server does not accept multiplexed connections
+	 */
+	public Multiplexer getMultiplexer() {
+		return multiplexer;
+	}
+
+	public Map getProperties() {
+		return properties;
+	}
+
+	public void setProperties(Map props) {
+		this.properties = props;
+		final Client p = plain;
+		if (p != null)
+			p.setProperties(props);
+	}
+
+	public void addListener(IConnectionListener listener) {
+		// XXX does not support listeners
+	}
+
+	public void removeListener(IConnectionListener listener) {
+		// XXX does not support listeners
+	}
+
+	@SuppressWarnings("unchecked")
+	public Object getAdapter(Class clazz) {
+		return null;
+	}
+
+	public String toString() {
+		final Client p = plain;
+		if (p != null)
+			return "MultiplexClient[" + p + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+		final Multiplexer mux = multiplexer;
+		StringBuffer buf = new StringBuffer("MultiplexClient["); //$NON-NLS-1$
+		buf.append(containerID).append(";").append(session); //$NON-NLS-1$
+		buf.append(";").append((mux == null) ? null : mux.getAddressPort()).append("]"); //$NON-NLS-1$ //$NON-NLS-2$
+		return buf.toString();
+	}
+
+	/**
+	 * Handler for the events of the plain connection, which passes them on as events of this connection,
+	 * as the container only handles the events of the connection it created.
+	 */
+	private class PlainEventHandler implements ISynchAsynchEventHandler {
+		public ID getEventHandlerID() {
+			return handler.getEventHandlerID();
+		}
+
+		public void handleConnectEvent(ConnectionEvent event) {
+			handler.handleConnectEvent(new ConnectionEvent(MultiplexClient.this, event.getData()));
+		}
+
+		public void handleDisconnectEvent(DisconnectEvent event) {
+			handler.handleDisconnectEvent(new DisconnectEvent(MultiplexClient.this, event.getException(), event.getData()));
+		}
+
+		public void handleAsynchEvent(AsynchEvent event) throws IOException {
+			handler.handleAsynchEvent(new AsynchEvent(MultiplexClient.this, event.getData()));
+		}
+
+		public Object handleSynchEvent(SynchEvent event) throws IOException {
+			return handler.handleSynchEvent(new SynchEvent(MultiplexClient.this, event.getData()));
+		}
+	}
+
+	private void debug(String msg) {
+		Trace.trace(ProviderPlugin.PLUGIN_ID, ECFProviderDebugOptions.CONNECTION, getLocalID() + "." + msg); //$NON-NLS-1$
+	}
+
+	private void traceStack(String msg, Throwable e) {
+		Trace.catching(ProviderPlugin.PLUGIN_ID, ECFProviderDebugOptions.EXCEPTIONS_CATCHING, MultiplexClient.class, msg, e);
+	}
+}
@@ -0,0 +1,38 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+
+package org.eclipse.ecf.provider.comm.tcp;
+
+import java.io.Serializable;
+
+/**
+ * Message of one session of a {@link Multiplexer}.  The message is a {@link ConnectRequestMessage}
+ * opening the session, the {@link ConnectResultMessage} for it, an {@link AsynchMessage} or
+ * {@link SynchMessage}, or <code>null</code> when the session is closed.
+ */
+final class MultiplexMessage implements Serializable {
+	private static final long serialVersionUID = -2870925468411734512L;
+	int session;
+	Serializable message;
+
+	MultiplexMessage(int session, Serializable message) {
+		this.session = session;
+		this.message = message;
+	}
+
+	public String toString() {
+		StringBuffer buf = new StringBuffer("MultiplexMessage["); //$NON-NLS-1$
+		buf.append(session).append(";").append(message).append("]"); //$NON-NLS-1$ //$NON-NLS-2$
+		return buf.toString();
+	}
+}
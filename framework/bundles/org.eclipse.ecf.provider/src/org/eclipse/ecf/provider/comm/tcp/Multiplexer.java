@@ -0,0 +1,624 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+
+package org.eclipse.ecf.provider.comm.tcp;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.ecf.core.util.ECFException;
+import org.eclipse.ecf.core.util.Trace;
+import org.eclipse.ecf.internal.provider.ECFProviderDebugOptions;
+import org.eclipse.ecf.internal.provider.ProviderPlugin;
+import org.eclipse.ecf.provider.comm.ISynchAsynchEventHandler;
+
+/**
+ * Connection to a server that is shared by the {@link MultiplexClient} sessions of all the client
+ * containers connected to that server, rather than every container opening a socket of its own.
+ * <p>
+ * Every session has its own queue of outgoing messages, which is bounded so that a session that sends
+ * faster than the connection can carry waits rather than holding back the others.  The sender writes
+ * the queued messages of the sessions in turn, a few at a time, and flushes them all at once.  Received
+ * messages are delivered to the sessions in order, on threads of their own, so that a session that is
+ * slow to handle its messages does not hold back the others either.  Sessions are opened and closed
+ * with messages on the connection, which is closed by the client with its last session.  Keep alive
+ * pings are sent once for the connection rather than for every session, so only sessions with the
+ * same keep alive share a connection.
+ * <p>
+ * Multiplexing is used by tcp client containers when the
+ * <code>org.eclipse.ecf.provider.comm.tcp.client.multiplex</code> system property is <code>true</code>.
+ * Servers of tcp server container groups accept both multiplexed and plain connections.  Other servers,
+ * such as those of nio server container groups, reject multiplexed connections, and sessions connect to
+ * them with plain connections instead.
+ *
+ * @since 4.11
+ */
+public final class Multiplexer {
+
+	/**
+	 * Whether tcp client containers share connections to the same server.  Default is false.
+	 */
+	public static final boolean DEFAULT_MULTIPLEX = Boolean.valueOf(System.getProperty("org.eclipse.ecf.provider.comm.tcp.client.multiplex", "false")).booleanValue(); //$NON-NLS-1$ //$NON-NLS-2$
+	/**
+	 * Maximum number of messages queued by a session before its senders wait.
+	 */
+	public static final int DEFAULT_MAX_QUEUED = Integer.parseInt(System.getProperty("org.eclipse.ecf.provider.comm.tcp.multiplex.maxqueued", "1000")); //$NON-NLS-1$ //$NON-NLS-2$
+	/**
+	 * Maximum number of messages of a session written before the sender turns to the next session.
+	 */
+	public static final int DEFAULT_QUANTUM = Integer.parseInt(System.getProperty("org.eclipse.ecf.provider.comm.tcp.multiplex.quantum", "8")); //$NON-NLS-1$ //$NON-NLS-2$
+
+	// Data of the connect request for a multiplexed connection, and of the result accepting it
+	private static final String MULTIPLEX_REQUEST = "org.eclipse.ecf.provider.comm.tcp.multiplex"; //$NON-NLS-1$
+
+	// Client multiplexers by host:port:keepAlive.  Guarded by itself.
+	private static final Map<String, Multiplexer> multiplexers = new HashMap<String, Multiplexer>();
+	// Connections being opened, by the keys of multiplexers.  Guarded by multiplexers.
+	private static final Map<String, Opening> openings = new HashMap<String, Opening>();
+	// host:port of the servers that rejected multiplexed connections.  Guarded by multiplexers.
+	private static final Set<String> plainServers = new HashSet<String>();
+
+	// Connection being opened, which the other sessions connecting to the same server wait for
+	private static final class Opening {
+		final CountDownLatch done = new CountDownLatch(1);
+		volatile ECFException exception;
+	}
+
+	private static ExecutorService executor;
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	static synchronized Executor getExecutor() {
+		if (executor == null) {
+			final ThreadPoolExecutor exec = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					final Thread t = new Thread(r, "Multiplexer:" + threadCount.incrementAndGet()); //$NON-NLS-1$
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			executor = exec;
+		}
+		return executor;
+	}
+
+	private final Socket socket;
+	private final ObjectInputStream inputStream;
+	private final ObjectOutputStream outputStream;
+	// Key in multiplexers on clients, null on servers
+	private final String key;
+	// Handler for sessions opened on servers, null on clients
+	private final IMultiplexAcceptHandler acceptHandler;
+	private final int keepAlive;
+	private final String addressPort;
+	private final Map<Integer, MultiplexClient> sessions = new ConcurrentHashMap<Integer, MultiplexClient>();
+	private final AtomicInteger nextSession = new AtomicInteger();
+	// Guarded by this
+	private final LinkedList<Serializable> control = new LinkedList<Serializable>();
+	private final LinkedList<MultiplexClient> pending = new LinkedList<MultiplexClient>();
+	private boolean shutdown;
+	private boolean closed;
+	private Thread pingThread;
+	private final Object pingLock = new Object();
+	private boolean waitForPing;
+	// Only used by the sender thread
+	private int resetCounter;
+	private volatile long messagesSent;
+	private volatile long flushes;
+
+	private Multiplexer(Socket socket, ObjectInputStream iStream, ObjectOutputStream oStream, String key, IMultiplexAcceptHandler acceptHandler, int keepAlive) {
+		this.socket = socket;
+		this.inputStream = iStream;
+		this.outputStream = oStream;
+		this.key = key;
+		this.acceptHandler = acceptHandler;
+		this.keepAlive = keepAlive;
+		this.addressPort = socket.getLocalPort() + ":" + socket.getInetAddress().getHostAddress() + ":" + socket.getPort(); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * @param request the connect request read from a new connection
+	 * @return true if the connect request is for a multiplexed connection
+	 */
+	public static boolean isMultiplexRequest(ConnectRequestMessage request) {
+		return request != null && MULTIPLEX_REQUEST.equals(request.getData());
+	}
+
+	/**
+	 * Accept a multiplexed connection.  The sessions opened on the connection are handled by the given
+	 * handler.
+	 *
+	 * @param aSocket the socket of the connection
+	 * @param iStream the object input stream of the socket, from which the connect request was read
+	 * @param oStream the object output stream of the socket
+	 * @param handler the handler for the sessions opened on the connection.  Must not be <code>null</code>.
+	 * @throws IOException if the connect result cannot be sent
+	 */
+	public static void accept(Socket aSocket, ObjectInputStream iStream, ObjectOutputStream oStream, IMultiplexAcceptHandler handler) throws IOException {
+		if (handler == null)
+			throw new NullPointerException("Multiplex accept handler cannot be null"); //$NON-NLS-1$
+		final int ka = Integer.valueOf(System.getProperty("org.eclipse.ecf.provider.generic.keepalive", "30000")).intValue(); //$NON-NLS-1$ //$NON-NLS-2$
+		if (ka > 0)
+			aSocket.setSoTimeout(ka);
+		final Multiplexer mux = new Multiplexer(aSocket, iStream, oStream, null, handler, ka);
+		oStream.writeObject(new ConnectResultMessage(MULTIPLEX_REQUEST));
+		oStream.flush();
+		mux.start();
+	}
+
+	/**
+	 * Add the given session to the multiplexer connected to the server of the given URI with the given
+	 * keep alive, connecting a new one if there is none.  The connection is opened without holding the
+	 * lock on the multiplexers, and other sessions connecting to the same server wait for it meanwhile.
+	 *
+	 * @return the multiplexer, or <code>null</code> if the server does not accept multiplexed connections
+	 */
+	static Multiplexer connect(URI uri, int keepAlive, int timeout, MultiplexClient session) throws ECFException {
+		final String server = uri.getHost() + ":" + uri.getPort(); //$NON-NLS-1$
+		final String k = server + ":" + keepAlive; //$NON-NLS-1$
+		for (;;) {
+			Opening opening;
+			boolean opener = false;
+			synchronized (multiplexers) {
+				if (plainServers.contains(server))
+					return null;
+				final Multiplexer mux = multiplexers.get(k);
+				if (mux != null && mux.addSession(session))
+					return mux;
+				opening = openings.get(k);
+				if (opening == null) {
+					opening = new Opening();
+					openings.put(k, opening);
+					opener = true;
+				}
+			}
+			if (opener)
+				open(uri, server, k, keepAlive, timeout, opening);
+			else
+				await(uri, timeout, opening);
+			if (opening.exception != null)
+				throw opening.exception;
+			// Add the session to the new multiplexer, or fall back if the server rejected it
+		}
+	}
+
+	private static void await(URI uri, int timeout, Opening opening) throws ECFException {
+		try {
+			if (timeout <= 0)
+				opening.done.await();
+			else if (!opening.done.await(timeout, TimeUnit.MILLISECONDS))
+				throw new ECFException("Timeout connecting to " + uri); //$NON-NLS-1$
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ECFException("Interrupted connecting to " + uri, e); //$NON-NLS-1$
+		}
+	}
+
+	private static void open(URI uri, String server, String k, int keepAlive, int timeout, Opening opening) {
+		Multiplexer mux = null;
+		try {
+			mux = open(uri, k, keepAlive, timeout);
+		} catch (final ECFException e) {
+			opening.exception = e;
+		}
+		synchronized (multiplexers) {
+			openings.remove(k);
+			if (mux != null)
+				multiplexers.put(k, mux);
+			else if (opening.exception == null)
+				plainServers.add(server);
+		}
+		opening.done.countDown();
+	}
+
+	/**
+	 * @return the connected multiplexer, or <code>null</code> if the server rejected the multiplexed connection
+	 */
+	private static Multiplexer open(URI uri, String k, int keepAlive, int timeout) throws ECFException {
+		SocketFactory fact = SocketFactory.getSocketFactory();
+		if (fact == null)
+			fact = SocketFactory.getDefaultSocketFactory();
+		Socket s = null;
+		try {
+			s = fact.createSocket(uri.getHost(), uri.getPort(), timeout);
+			s.setTcpNoDelay(true);
+			if (keepAlive > 0) {
+				s.setKeepAlive(true);
+				s.setSoTimeout(keepAlive);
+			}
+			final ObjectOutputStream oStream = new ObjectOutputStream(new BufferedOutputStream(s.getOutputStream(), Client.DEFAULT_SEND_BUFFER_SIZE));
+			oStream.flush();
+			final ObjectInputStream iStream = ProviderPlugin.getDefault().createObjectInputStream(s.getInputStream());
+			oStream.writeObject(new ConnectRequestMessage(uri, MULTIPLEX_REQUEST));
+			oStream.flush();
+			Object res = null;
+			try {
+				res = iStream.readObject();
+			} catch (final EOFException e) {
+				// Closed by a server that does not know multiplexed connections
+			}
+			if (!(res instanceof ConnectResultMessage) || !MULTIPLEX_REQUEST.equals(((ConnectResultMessage) res).getData())) {
+				Trace.trace(ProviderPlugin.PLUGIN_ID, ECFProviderDebugOptions.CONNECTION, "Multiplexed connection rejected by " + uri); //$NON-NLS-1$
+				s.close();
+				return null;
+			}
+			final Multiplexer mux = new Multiplexer(s, iStream, oStream, k, null, keepAlive);
+			mux.start();
+			return mux;
+		} catch (final Exception e) {
+			if (s != null) {
+				try {
+					s.close();
+				} catch (final IOException e1) {
+					// ignore
+				}
+			}
+			throw new ECFException("Exception during connection to " + uri, e); //$NON-NLS-1$
+		}
+	}
+
+	private void start() {
+		final String name = addressPort;
+		final Thread sendThread = new Thread(new Runnable() {
+			public void run() {
+				sendMessages();
+				debug("SENDER TERMINATING;messages=" + messagesSent + ";flushes=" + flushes); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}, "mux:sndr:" + name); //$NON-NLS-1$
+		sendThread.setDaemon(true);
+		final Thread rcvThread = new Thread(new Runnable() {
+			public void run() {
+				receiveMessages();
+				debug("RCVR TERMINATING"); //$NON-NLS-1$
+			}
+		}, "mux:rcvr:" + name); //$NON-NLS-1$
+		rcvThread.setDaemon(true);
+		sendThread.start();
+		rcvThread.start();
+		if (keepAlive > 0) {
+			synchronized (this) {
+				pingThread = new Thread(new Runnable() {
+					public void run() {
+						ping();
+						debug("PING TERMINATING"); //$NON-NLS-1$
+					}
+				}, "mux:ping:" + name); //$NON-NLS-1$
+				pingThread.setDaemon(true);
+				pingThread.start();
+			}
+		}
+	}
+
+	// Called while holding the multiplexers lock
+	private synchronized boolean addSession(MultiplexClient session) {
+		if (closed || shutdown)
+			return false;
+		final int id = nextSession.incrementAndGet();
+		session.setSession(this, id);
+		sessions.put(Integer.valueOf(id), session);
+		return true;
+	}
+
+	/**
+	 * Queue a message of the given session.  Waits while the queue of the session is full.
+	 */
+	void send(MultiplexClient session, Serializable message) throws IOException {
+		synchronized (this) {
+			while (!closed && !session.isClosed() && session.outbound.size() >= DEFAULT_MAX_QUEUED) {
+				try {
+					wait();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted waiting to queue message"); //$NON-NLS-1$
+				}
+			}
+			if (closed || session.isClosed())
+				throw new ConnectException("Not connected"); //$NON-NLS-1$
+			session.outbound.add(message);
+			if (session.ready && !session.pending) {
+				session.pending = true;
+				pending.add(session);
+				notifyAll();
+			}
+		}
+	}
+
+	private synchronized void sendControl(Serializable message) {
+		if (!closed) {
+			control.add(message);
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Send the connect result of a session opened by the client, and then the messages queued for it.
+	 */
+	synchronized void opened(MultiplexClient session, Serializable result) {
+		if (session.isClosed())
+			return;
+		sendControl(new MultiplexMessage(session.getSession(), new ConnectResultMessage(result)));
+		session.ready = true;
+		if (!session.outbound.isEmpty() && !session.pending) {
+			session.pending = true;
+			pending.add(session);
+		}
+	}
+
+	/**
+	 * Remove the given session, discarding its queued messages.
+	 *
+	 * @param notifyRemote true to close the session at the other end as well
+	 */
+	void close(MultiplexClient session, boolean notifyRemote) {
+		boolean last = false;
+		synchronized (this) {
+			if (sessions.remove(Integer.valueOf(session.getSession()), session)) {
+				session.outbound.clear();
+				if (session.pending) {
+					session.pending = false;
+					pending.remove(session);
+				}
+				if (notifyRemote)
+					sendControl(new MultiplexMessage(session.getSession(), null));
+				last = sessions.isEmpty();
+			}
+			// Wake senders waiting for space
+			notifyAll();
+		}
+		if (last && key != null)
+			release();
+	}
+
+	// Close the connection once the close messages of the sessions are sent, unless a new session was added
+	private void release() {
+		synchronized (multiplexers) {
+			synchronized (this) {
+				if (!sessions.isEmpty() || closed)
+					return;
+				shutdown = true;
+				notifyAll();
+			}
+			if (multiplexers.get(key) == this)
+				multiplexers.remove(key);
+		}
+	}
+
+	void sendMessages() {
+		final List<Serializable> batch = new ArrayList<Serializable>();
+		try {
+			for (;;) {
+				synchronized (this) {
+					while (!closed && !shutdown && control.isEmpty() && pending.isEmpty())
+						wait();
+					if (closed)
+						return;
+					if (control.isEmpty() && pending.isEmpty())
+						break;
+					takeBatch(batch);
+					// There is space for senders waiting for it
+					notifyAll();
+				}
+				for (int i = 0; i < batch.size(); i++)
+					write(batch.get(i));
+				outputStream.flush();
+				flushes++;
+				batch.clear();
+			}
+			close(null);
+		} catch (final Exception e) {
+			close(e);
+		}
+	}
+
+	// Must hold this lock.  Take the control messages, and then the queued messages of the sessions in turn.
+	private void takeBatch(List<Serializable> batch) {
+		batch.addAll(control);
+		control.clear();
+		while (batch.size() < Client.DEFAULT_MAX_BATCH && !pending.isEmpty()) {
+			final MultiplexClient session = pending.removeFirst();
+			for (int i = 0; i < DEFAULT_QUANTUM && !session.outbound.isEmpty(); i++)
+				batch.add(new MultiplexMessage(session.getSession(), session.outbound.removeFirst()));
+			if (session.outbound.isEmpty())
+				session.pending = false;
+			else
+				pending.addLast(session);
+		}
+	}
+
+	private void write(Serializable message) throws IOException {
+		outputStream.writeObject(message);
+		messagesSent++;
+		if (resetCounter > Client.DEFAULT_MAX_BUFFER_MSG) {
+			outputStream.reset();
+			resetCounter = 0;
+		} else
+			resetCounter++;
+	}
+
+	void receiveMessages() {
+		try {
+			for (;;)
+				handleRcv(readObject());
+		} catch (final Exception e) {
+			close(e);
+		}
+	}
+
+	private Serializable readObject() throws IOException {
+		try {
+			return (Serializable) inputStream.readObject();
+		} catch (final ClassNotFoundException e) {
+			traceStack("readObject;classnotfoundexception", e); //$NON-NLS-1$
+			final IOException except = new IOException("Protocol violation due to class load failure"); //$NON-NLS-1$
+			except.setStackTrace(e.getStackTrace());
+			throw except;
+		}
+	}
+
+	private void handleRcv(Serializable rcv) throws IOException {
+		if (rcv instanceof MultiplexMessage) {
+			final MultiplexMessage mess = (MultiplexMessage) rcv;
+			if (acceptHandler != null && mess.message instanceof ConnectRequestMessage)
+				acceptSession(mess.session, (ConnectRequestMessage) mess.message);
+			else {
+				final MultiplexClient session = sessions.get(Integer.valueOf(mess.session));
+				// Messages for sessions that were closed meanwhile are dropped
+				if (session != null)
+					session.handleMessage(mess.message);
+			}
+		} else if (rcv instanceof PingMessage) {
+			sendControl(new PingResponseMessage());
+		} else if (rcv instanceof PingResponseMessage) {
+			synchronized (pingLock) {
+				waitForPing = false;
+			}
+		} else
+			throw new IOException("Invalid message received"); //$NON-NLS-1$
+	}
+
+	private void acceptSession(final int id, final ConnectRequestMessage req) {
+		final URI uri = req.getTarget();
+		final String path = (uri == null) ? null : uri.getPath();
+		ISynchAsynchEventHandler handler = null;
+		try {
+			if (path == null)
+				throw new InvalidObjectException("Invalid connect request.  Path cannot be null"); //$NON-NLS-1$
+			handler = acceptHandler.getEventHandler(path);
+		} catch (final IOException e) {
+			traceStack("acceptSession " + req, e); //$NON-NLS-1$
+			sendControl(new MultiplexMessage(id, null));
+			return;
+		}
+		final MultiplexClient session = new MultiplexClient(handler, this, id);
+		synchronized (this) {
+			if (closed)
+				return;
+			sessions.put(Integer.valueOf(id), session);
+		}
+		// Handle the connect request on another thread, as for a new plain connection
+		getExecutor().execute(new Runnable() {
+			public void run() {
+				try {
+					opened(session, acceptHandler.handleConnectRequest(socket, path, req.getData(), session));
+				} catch (final Exception e) {
+					traceStack("acceptSession " + req, e); //$NON-NLS-1$
+					close(session, true);
+				}
+			}
+		});
+	}
+
+	private void ping() {
+		final int frequency = keepAlive / 2;
+		try {
+			while (!isClosed()) {
+				Thread.sleep(frequency);
+				synchronized (pingLock) {
+					waitForPing = true;
+					sendControl(new PingMessage());
+					int count = 0;
+					final int interval = Client.DEFAULT_WAIT_INTERVAL;
+					while (waitForPing && count < interval) {
+						pingLock.wait(frequency / interval);
+						count++;
+					}
+					if (waitForPing)
+						throw new IOException(addressPort + " remote not reachable by ping"); //$NON-NLS-1$
+				}
+			}
+		} catch (final InterruptedException e) {
+			// closed
+		} catch (final IOException e) {
+			close(e);
+		}
+	}
+
+	private synchronized boolean isClosed() {
+		return closed || shutdown;
+	}
+
+	/**
+	 * Close the connection, and all its sessions.
+	 *
+	 * @param e the exception that closed the connection, or <code>null</code> if closed normally
+	 */
+	private void close(Throwable e) {
+		final MultiplexClient[] closedSessions;
+		synchronized (this) {
+			if (closed)
+				return;
+			closed = true;
+			closedSessions = sessions.values().toArray(new MultiplexClient[sessions.size()]);
+			sessions.clear();
+			control.clear();
+			pending.clear();
+			if (pingThread != null && pingThread != Thread.currentThread())
+				pingThread.interrupt();
+			notifyAll();
+		}
+		if (e != null)
+			traceStack("Multiplexed connection closed " + addressPort, e); //$NON-NLS-1$
+		try {
+			socket.close();
+		} catch (final IOException e1) {
+			traceStack("closeSocket Exception", e1); //$NON-NLS-1$
+		}
+		if (key != null) {
+			synchronized (multiplexers) {
+				if (multiplexers.get(key) == this)
+					multiplexers.remove(key);
+			}
+		}
+		for (int i = 0; i < closedSessions.length; i++)
+			closedSessions[i].handleClosed(e);
+	}
+
+	/**
+	 * @return the number of open sessions
+	 */
+	public int getSessionCount() {
+		return sessions.size();
+	}
+
+	/**
+	 * @return the number of messages written to the connection
+	 */
+	public long getMessagesSent() {
+		return messagesSent;
+	}
+
+	/**
+	 * @return the number of times the connection was flushed
+	 */
+	public long getFlushes() {
+		return flushes;
+	}
+
+	String getAddressPort() {
+		return addressPort;
+	}
+
+	Socket getSocket() {
+		return socket;
+	}
+
+	void debug(String msg) {
+		Trace.trace(ProviderPlugin.PLUGIN_ID, ECFProviderDebugOptions.CONNECTION, "Multiplexer[" + addressPort + "]." + msg); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	void traceStack(String msg, Throwable e) {
+		Trace.catching(ProviderPlugin.PLUGIN_ID, ECFProviderDebugOptions.EXCEPTIONS_CATCHING, Multiplexer.class, msg, e);
+	}
+}
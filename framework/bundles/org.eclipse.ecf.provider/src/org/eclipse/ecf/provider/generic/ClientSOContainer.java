@@ -13,6 +13,7 @@ package org.eclipse.ecf.provider.generic;
 
 import java.io.*;
 import java.net.ConnectException;
+import java.util.Arrays;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.ecf.core.ContainerConnectException;
@@ -22,6 +23,7 @@ import org.eclipse.ecf.core.security.*;
 import org.eclipse.ecf.core.sharedobject.*;
 import org.eclipse.ecf.core.util.ECFException;
 import org.eclipse.ecf.provider.comm.*;
+import org.eclipse.ecf.provider.generic.codec.IMessageCodec;
 import org.eclipse.ecf.provider.generic.gmm.Member;
 
 public abstract class ClientSOContainer extends SOContainer implements ISharedObjectContainerClient {
@@ -36,6 +38,11 @@ public abstract class ClientSOContainer extends SOContainer implements ISharedOb
 
 	protected IConnectInitiatorPolicy connectPolicy = null;
 
+	// Whether the server accepted framed messages for the current connection
+	private volatile boolean framedMessages;
+	// The codec chosen by the server for the current connection, if any
+	private volatile IMessageCodec messageCodec;
+
 	public static final byte DISCONNECTED = 0;
 
 	public static final byte CONNECTING = 1;
@@ -197,7 +204,7 @@ public abstract class ClientSOContainer extends SOContainer implements ISharedOb
 					handler.handle(callbacks);
 			}
 		}
-		return ContainerMessage.createJoinGroupMessage(getID(), remote, getNextSequenceNumber(), (Serializable) connectData);
+		return ContainerMessage.createJoinGroupMessage(getID(), remote, getNextSequenceNumber(), (Serializable) connectData, getMessageFeatures(), getMessageCodecNames());
 	}
 
 	protected int getConnectTimeout() {
@@ -310,7 +317,22 @@ public abstract class ClientSOContainer extends SOContainer implements ISharedOb
 	 */
 	protected void queueContainerMessage(ContainerMessage message) throws IOException {
 		// Do it
-		connection.sendAsynch(message.getToContainerID(), serialize(message));
+		connection.sendAsynch(message.getToContainerID(), serializeContainerMessage(message, framedMessages, messageCodec));
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.ecf.provider.generic.SOContainer#isFramedMessageTarget(org.eclipse.ecf.core.identity.ID)
+	 */
+	protected boolean isFramedMessageTarget(ID toContainerID) {
+		return framedMessages;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.ecf.provider.generic.SOContainer#getMessageCodecForTarget(org.eclipse.ecf.core.identity.ID)
+	 */
+	protected IMessageCodec getMessageCodecForTarget(ID toContainerID) {
+		// All messages go through the server
+		return messageCodec;
 	}
 
 	/**
@@ -532,6 +554,9 @@ public abstract class ClientSOContainer extends SOContainer implements ISharedOb
 		// IDs from server
 		final ID[] ids = viewChangeMessage.getChangeIDs();
 		Assert.isNotNull(ids, "view change ids cannot be null"); //$NON-NLS-1$
+		framedMessages = (viewChangeMessage.getFeatures() & getMessageFeatures() & ContainerMessage.FEATURE_FRAMED_MESSAGES) != 0;
+		final String codec = viewChangeMessage.getCodec();
+		messageCodec = (codec != null && Arrays.asList(getMessageCodecNames()).contains(codec)) ? getMessageCodec(codec) : null;
 		for (int i = 0; i < ids.length; i++) {
 			final ID id = ids[i];
 			if (id != null && !id.equals(getID()))
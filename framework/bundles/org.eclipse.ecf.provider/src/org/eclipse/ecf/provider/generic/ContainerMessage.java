@@ -13,11 +13,19 @@
 
 package org.eclipse.ecf.provider.generic;
 
-import java.io.Serializable;
+import java.io.*;
 import org.eclipse.ecf.core.identity.ID;
 
 public class ContainerMessage implements Serializable {
 	private static final long serialVersionUID = 3257009847533975857L;
+
+	/**
+	 * Feature flag for {@link JoinGroupMessage#getFeatures()} and {@link ViewChangeMessage#getFeatures()}.
+	 * When set by both client and server, shared object messages are exchanged as frames
+	 * rather than as Java serialized container messages.
+	 * @since 4.11
+	 */
+	public static final int FEATURE_FRAMED_MESSAGES = 0x1;
 	private ID fromContainerID;
 	private ID toContainerID;
 	private long sequence;
@@ -84,13 +92,27 @@ public class ContainerMessage implements Serializable {
 	}
 
 	public static ContainerMessage createViewChangeMessage(ID from, ID to, long seq, ID ids[], boolean add, Serializable data) {
-		return new ContainerMessage(from, to, seq, new ViewChangeMessage(ids, add, data));
+		return new ContainerMessage(from, to, seq, new ViewChangeMessage(ids, add, data, 0, null));
+	}
+
+	/**
+	 * @since 4.11
+	 */
+	public static ContainerMessage createViewChangeMessage(ID from, ID to, long seq, ID ids[], boolean add, Serializable data, int features, String codec) {
+		return new ContainerMessage(from, to, seq, new ViewChangeMessage(ids, add, data, features, codec));
 	}
 
 	public static ContainerMessage createJoinGroupMessage(ID from, ID to, long seq, Serializable data) {
 		return new ContainerMessage(from, to, seq, new JoinGroupMessage(data));
 	}
 
+	/**
+	 * @since 4.11
+	 */
+	public static ContainerMessage createJoinGroupMessage(ID from, ID to, long seq, Serializable data, int features, String[] codecs) {
+		return new ContainerMessage(from, to, seq, new JoinGroupMessage(data, features, codecs));
+	}
+
 	public static ContainerMessage createLeaveGroupMessage(ID from, ID to, long seq, Serializable data) {
 		return new ContainerMessage(from, to, seq, new LeaveGroupMessage(data));
 	}
@@ -131,11 +153,16 @@ public class ContainerMessage implements Serializable {
 		private final ID changeIDs[];
 		private final boolean add;
 		private final Serializable data;
+		// Not present in messages from older peers, which therefore read as 0 and null
+		private final int features;
+		private final String codec;
 
-		ViewChangeMessage(ID id[], boolean a, Serializable data) {
+		ViewChangeMessage(ID id[], boolean a, Serializable data, int features, String codec) {
 			this.changeIDs = id;
 			this.add = a;
 			this.data = data;
+			this.features = features;
+			this.codec = codec;
 		}
 
 		protected String printChangeIDs() {
@@ -177,6 +204,24 @@ public class ContainerMessage implements Serializable {
 		public Serializable getData() {
 			return data;
 		}
+
+		/**
+		 * @return the features accepted by the server for the connection
+		 * @since 4.11
+		 */
+		public int getFeatures() {
+			return features;
+		}
+
+		/**
+		 * @return the name of the {@link org.eclipse.ecf.provider.generic.codec.IMessageCodec} chosen by
+		 * the server for the connection, or <code>null</code> if shared object messages are
+		 * Java serialized
+		 * @since 4.11
+		 */
+		public String getCodec() {
+			return codec;
+		}
 	}
 
 	public static final class CreateMessage implements Serializable {
@@ -241,17 +286,21 @@ public class ContainerMessage implements Serializable {
 
 	public static final class SharedObjectMessage implements Serializable {
 		private static final long serialVersionUID = 3257281448531867441L;
-		private final Serializable data;
+		private Serializable data;
 		private final ID fromSharedObjectID;
+		private transient SharedObjectMessageFrame frame;
 
 		SharedObjectMessage(ID fromSharedObject, Serializable data) {
 			this.fromSharedObjectID = fromSharedObject;
-			this.data = data;
+			if (data instanceof SharedObjectMessageFrame)
+				this.frame = (SharedObjectMessageFrame) data;
+			else
+				this.data = data;
 		}
 
 		public String toString() {
 			final StringBuffer sb = new StringBuffer("SharedObjectMessage["); //$NON-NLS-1$
-			sb.append(fromSharedObjectID).append(";").append(data).append("]"); //$NON-NLS-1$ //$NON-NLS-2$
+			sb.append(fromSharedObjectID).append(";").append((data == null) ? frame : data).append("]"); //$NON-NLS-1$ //$NON-NLS-2$
 			return sb.toString();
 		}
 
@@ -259,9 +308,21 @@ public class ContainerMessage implements Serializable {
 		 * @return Returns the data.
 		 */
 		public Serializable getData() {
+			// Framed messages keep the data in the frame until it is asked for
+			if (data == null && frame != null)
+				data = frame.copyPayload();
 			return data;
 		}
 
+		SharedObjectMessageFrame getFrame() {
+			return frame;
+		}
+
+		private void writeObject(ObjectOutputStream out) throws IOException {
+			getData();
+			out.defaultWriteObject();
+		}
+
 		/**
 		 * @return Returns the fromSharedObjectID.
 		 */
@@ -295,15 +356,44 @@ public class ContainerMessage implements Serializable {
 	public static final class JoinGroupMessage implements Serializable {
 		private static final long serialVersionUID = 3257564022885855287L;
 		private final Serializable data;
+		// Not present in messages from older peers, which therefore read as 0 and null
+		private final int features;
+		private final String[] codecs;
 
 		public JoinGroupMessage(Serializable data) {
+			this(data, 0, null);
+		}
+
+		/**
+		 * @since 4.11
+		 */
+		public JoinGroupMessage(Serializable data, int features, String[] codecs) {
 			this.data = data;
+			this.features = features;
+			this.codecs = codecs;
 		}
 
 		public Serializable getData() {
 			return data;
 		}
 
+		/**
+		 * @return the features requested by the client
+		 * @since 4.11
+		 */
+		public int getFeatures() {
+			return features;
+		}
+
+		/**
+		 * @return the names of the {@link org.eclipse.ecf.provider.generic.codec.IMessageCodec}s
+		 * offered by the client, in order of preference.  May be <code>null</code>.
+		 * @since 4.11
+		 */
+		public String[] getCodecs() {
+			return codecs;
+		}
+
 		public String toString() {
 			final StringBuffer sb = new StringBuffer("JoinGroupMessage["); //$NON-NLS-1$
 			sb.append(data).append("]"); //$NON-NLS-1$
@@ -407,12 +407,12 @@ public class GenericContainerInstantiator implements IContainerInstantiator, IRe
 		List supportedConfigs = Arrays.asList(exporterSupportedConfigs);
 		// For a server, if exporter is a client then we can be an importer
 		if (TCPSERVER_NAME.equals(description.getName())) {
-			if (supportedConfigs.contains(TCPCLIENT_NAME))
+			if (supportedConfigs.contains(TCPCLIENT_NAME) || supportedConfigs.contains(NIOGenericContainerInstantiator.NIOCLIENT_NAME))
 				results.add(TCPSERVER_NAME);
 			// For a client, if exporter is server we can import
 			// or if remote is either generic server or generic client
 		} else if (TCPCLIENT_NAME.equals(description.getName())) {
-			if (supportedConfigs.contains(TCPSERVER_NAME) || supportedConfigs.contains(TCPCLIENT_NAME))
+			if (supportedConfigs.contains(TCPSERVER_NAME) || supportedConfigs.contains(TCPCLIENT_NAME) || supportedConfigs.contains(NIOGenericContainerInstantiator.NIOSERVER_NAME) || supportedConfigs.contains(NIOGenericContainerInstantiator.NIOCLIENT_NAME))
 				results.add(TCPCLIENT_NAME);
 		}
 		if (results.size() == 0)
@@ -0,0 +1,47 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.generic;
+
+import java.io.IOException;
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.sharedobject.ISharedObjectContainerConfig;
+import org.eclipse.ecf.provider.comm.ConnectionCreateException;
+import org.eclipse.ecf.provider.comm.ISynchAsynchConnection;
+import org.eclipse.ecf.provider.comm.nio.NIOClient;
+import org.eclipse.ecf.provider.comm.nio.NIOSelectorGroup;
+
+/**
+ * Generic client container using a {@link NIOClient} connection.  Can connect to classic
+ * as well as nio generic servers.
+ *
+ * @since 4.11
+ */
+public class NIOClientSOContainer extends TCPClientSOContainer {
+
+	public NIOClientSOContainer(ISharedObjectContainerConfig config) {
+		super(config);
+	}
+
+	public NIOClientSOContainer(ISharedObjectContainerConfig config, int ka) {
+		super(config, ka);
+	}
+
+	protected ISynchAsynchConnection createConnection(ID remoteSpace, Object data) throws ConnectionCreateException {
+		debug("createClientConnection:" + remoteSpace + ":" + data); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			return new NIOClient(NIOSelectorGroup.getDefault(), receiver, keepAlive);
+		} catch (IOException e) {
+			throw new ConnectionCreateException("Could not create nio connection to " + remoteSpace, e); //$NON-NLS-1$
+		}
+	}
+}
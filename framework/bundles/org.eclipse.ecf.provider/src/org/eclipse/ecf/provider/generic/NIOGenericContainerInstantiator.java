@@ -0,0 +1,70 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.generic;
+
+import java.util.*;
+import org.eclipse.ecf.core.ContainerTypeDescription;
+import org.eclipse.ecf.core.IContainer;
+
+/**
+ * Instantiator for the <code>ecf.generic.nio.server</code> and <code>ecf.generic.nio.client</code>
+ * container types.  These accept the same arguments as <code>ecf.generic.server</code> and
+ * <code>ecf.generic.client</code> and speak the same wire protocol, but multiplex all
+ * connections onto a small set of selector threads rather than using several threads per
+ * connection.
+ *
+ * @since 4.11
+ */
+public class NIOGenericContainerInstantiator extends GenericContainerInstantiator {
+
+	public static final String NIOCLIENT_NAME = "ecf.generic.nio.client"; //$NON-NLS-1$
+
+	public static final String NIOSERVER_NAME = "ecf.generic.nio.server"; //$NON-NLS-1$
+
+	protected boolean isClient(ContainerTypeDescription description) {
+		return !NIOSERVER_NAME.equals(description.getName());
+	}
+
+	protected IContainer createClientContainer(GenericContainerArgs gcargs) throws Exception {
+		return new NIOClientSOContainer(new SOContainerConfig(gcargs.getID()), gcargs.getKeepAlive().intValue());
+	}
+
+	protected IContainer createServerContainer(GenericContainerArgs gcargs) throws Exception {
+		return new NIOServerSOContainer(new SOContainerConfig(gcargs.getID()), gcargs.getBindAddress(), gcargs.getKeepAlive().intValue());
+	}
+
+	public String[] getSupportedAdapterTypes(ContainerTypeDescription description) {
+		if (!isClient(description))
+			return getInterfacesAndAdaptersForClass(NIOServerSOContainer.class);
+		return getInterfacesAndAdaptersForClass(NIOClientSOContainer.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	public String[] getImportedConfigs(ContainerTypeDescription description, String[] exporterSupportedConfigs) {
+		if (exporterSupportedConfigs == null)
+			return null;
+		List results = new ArrayList();
+		List supportedConfigs = Arrays.asList(exporterSupportedConfigs);
+		// Same wire protocol as generic, so nio and classic containers can import from each other
+		if (NIOSERVER_NAME.equals(description.getName())) {
+			if (supportedConfigs.contains(NIOCLIENT_NAME) || supportedConfigs.contains(TCPCLIENT_NAME))
+				results.add(NIOSERVER_NAME);
+		} else if (NIOCLIENT_NAME.equals(description.getName())) {
+			if (supportedConfigs.contains(NIOSERVER_NAME) || supportedConfigs.contains(NIOCLIENT_NAME) || supportedConfigs.contains(TCPSERVER_NAME) || supportedConfigs.contains(TCPCLIENT_NAME))
+				results.add(NIOCLIENT_NAME);
+		}
+		if (results.size() == 0)
+			return null;
+		return (String[]) results.toArray(new String[] {});
+	}
+}
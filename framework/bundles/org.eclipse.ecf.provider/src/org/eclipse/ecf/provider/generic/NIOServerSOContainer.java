@@ -0,0 +1,50 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.generic;
+
+import java.io.IOException;
+import java.net.*;
+import org.eclipse.ecf.core.sharedobject.ISharedObjectContainerConfig;
+
+/**
+ * Generic server container whose connections are handled by a {@link NIOServerSOContainerGroup}.
+ * Uses the same wire protocol as {@link TCPServerSOContainer}, so classic generic clients can
+ * connect to it.
+ *
+ * @since 4.11
+ */
+public class NIOServerSOContainer extends TCPServerSOContainer {
+
+	/**
+	 * @param config config
+	 * @param bindAddress bind address.  May be <code>null</code>.
+	 * @param keepAlive keep alive
+	 * @throws IOException if the server cannot be put on the air
+	 * @throws URISyntaxException if the container ID is not a valid URI
+	 */
+	public NIOServerSOContainer(ISharedObjectContainerConfig config, InetAddress bindAddress, int keepAlive) throws IOException, URISyntaxException {
+		super(config, new NIOServerSOContainerGroup(NIOServerSOContainerGroup.DEFAULT_GROUP_NAME, parseURI(config).getPort(), bindAddress), parseURI(config).getPath(), keepAlive);
+		isSingle = true;
+		this.group.putOnTheAir();
+	}
+
+	public NIOServerSOContainer(ISharedObjectContainerConfig config, NIOServerSOContainerGroup group, String path, int keepAlive) {
+		super(config, group, path, keepAlive);
+	}
+
+	private static URI parseURI(ISharedObjectContainerConfig config) throws URISyntaxException {
+		URI uri = new URI(config.getID().getName());
+		uri.parseServerAuthority();
+		return uri;
+	}
+}
@@ -0,0 +1,106 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.generic;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.URI;
+import org.eclipse.ecf.provider.comm.IConnectRequestHandler;
+import org.eclipse.ecf.provider.comm.nio.*;
+import org.eclipse.ecf.provider.comm.tcp.ConnectRequestMessage;
+import org.eclipse.ecf.provider.comm.tcp.Multiplexer;
+import org.eclipse.ecf.provider.comm.tcp.Server;
+
+/**
+ * Container group that accepts connections with a {@link NIOServer}, so that all
+ * connections to all of its containers are multiplexed onto the selector threads of
+ * a shared {@link NIOSelectorGroup}.
+ *
+ * @since 4.11
+ */
+public class NIOServerSOContainerGroup extends TCPServerSOContainerGroup implements INIOAcceptHandler {
+
+	public static final String DEFAULT_GROUP_NAME = NIOServerSOContainerGroup.class.getName();
+
+	private final NIOSelectorGroup selectorGroup;
+	private int port;
+	private final int backlog;
+	private final InetAddress bindAddress;
+	private NIOServer listener;
+
+	public NIOServerSOContainerGroup(String name, NIOSelectorGroup selectorGroup, int port, int backlog, InetAddress bindAddress) {
+		super(name, null, port, backlog, bindAddress);
+		this.selectorGroup = selectorGroup;
+		this.port = port;
+		this.backlog = backlog;
+		this.bindAddress = bindAddress;
+	}
+
+	public NIOServerSOContainerGroup(String name, int port, InetAddress bindAddress) throws IOException {
+		this(name, NIOSelectorGroup.getDefault(), port, Server.DEFAULT_BACKLOG, bindAddress);
+	}
+
+	public NIOServerSOContainerGroup(int port) throws IOException {
+		this(DEFAULT_GROUP_NAME, port, null);
+	}
+
+	public synchronized void putOnTheAir() throws IOException {
+		trace("NIOServerSOContainerGroup at port " + port + " on the air"); //$NON-NLS-1$ //$NON-NLS-2$
+		listener = new NIOServer(selectorGroup, port, backlog, bindAddress, this, TCPServerSOContainer.DEFAULT_KEEPALIVE);
+		port = listener.getLocalPort();
+	}
+
+	public synchronized boolean isOnTheAir() {
+		return listener != null;
+	}
+
+	public synchronized void takeOffTheAir() {
+		if (listener != null) {
+			trace("Taking " + getName() + " off the air."); //$NON-NLS-1$ //$NON-NLS-2$
+			try {
+				listener.close();
+			} catch (final IOException e) {
+				traceStack("Exception in closeListener", e); //$NON-NLS-1$
+			}
+			listener = null;
+		}
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public String toString() {
+		return getClass().getName() + ";name:" + getName() + ";port:" + port; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public Serializable handleConnectRequest(NIOClient client, ConnectRequestMessage req) throws Exception {
+		// Multiplexed connections are closed, and their sessions then connect with plain connections
+		if (Multiplexer.isMultiplexRequest(req))
+			throw new InvalidObjectException(INVALID_CONNECT + " Multiplexed connections not accepted"); //$NON-NLS-1$
+		final URI uri = req.getTarget();
+		if (uri == null)
+			throw new InvalidObjectException(INVALID_CONNECT + " URI connect target cannot be null"); //$NON-NLS-1$
+		final String path = uri.getPath();
+		if (path == null)
+			throw new InvalidObjectException(INVALID_CONNECT + " Path cannot be null"); //$NON-NLS-1$
+		// Given path, lookup associated container
+		final SOContainer srs = get(path);
+		if (srs == null)
+			throw new InvalidObjectException("Container not found for path=" + path); //$NON-NLS-1$
+		client.setEventHandler(srs.getMessageReceiver());
+		return ((IConnectRequestHandler) srs).handleConnectRequest(client.getSocket(), path, req.getData(), client);
+	}
+}
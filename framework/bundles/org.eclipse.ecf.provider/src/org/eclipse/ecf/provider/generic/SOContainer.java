@@ -13,8 +13,10 @@ package org.eclipse.ecf.provider.generic;
 
 import java.io.*;
 import java.security.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import org.eclipse.core.runtime.*;
 import org.eclipse.ecf.core.AbstractContainer;
 import org.eclipse.ecf.core.ContainerConnectException;
@@ -31,6 +33,8 @@ import org.eclipse.ecf.internal.provider.ECFProviderDebugOptions;
 import org.eclipse.ecf.internal.provider.ProviderPlugin;
 import org.eclipse.ecf.provider.comm.*;
 import org.eclipse.ecf.provider.generic.ContainerMessage.SharedObjectMessage;
+import org.eclipse.ecf.provider.generic.codec.CompactMessageCodec;
+import org.eclipse.ecf.provider.generic.codec.IMessageCodec;
 import org.eclipse.ecf.provider.generic.gmm.Member;
 
 public abstract class SOContainer extends AbstractContainer implements ISharedObjectContainer {
@@ -139,6 +143,86 @@ public abstract class SOContainer extends AbstractContainer implements ISharedOb
 	public static final String DEFAULT_OBJECT_ARG_KEY = SOContainer.class.getName() + ".sharedobjectargs"; //$NON-NLS-1$
 	public static final String DEFAULT_OBJECT_ARGTYPES_KEY = SOContainer.class.getName() + ".sharedobjectargtypes"; //$NON-NLS-1$
 
+	/**
+	 * Whether shared object messages are sent as frames (see {@link ContainerMessage#FEATURE_FRAMED_MESSAGES})
+	 * to peers that support them.  Set the system property to false to always use Java serialization.
+	 * @since 4.11
+	 */
+	public static final boolean DEFAULT_FRAMED_MESSAGES = Boolean.valueOf(System.getProperty("org.eclipse.ecf.provider.generic.framedMessages", "true")).booleanValue(); //$NON-NLS-1$ //$NON-NLS-2$
+
+	/**
+	 * Names of the {@link IMessageCodec}s offered by clients and accepted by servers when connecting, in
+	 * order of preference.  Set with the comma separated system property, for example to
+	 * {@link CompactMessageCodec#NAME}.  Empty by default, so that shared object messages are Java serialized.
+	 * @since 4.11
+	 */
+	public static final String[] DEFAULT_MESSAGE_CODECS = System.getProperty("org.eclipse.ecf.provider.generic.codecs", "").trim().split("\\s*,\\s*"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+	/**
+	 * How the events of shared objects are processed.  With {@link #SHARED_OBJECT_EXECUTOR_THREAD}, the
+	 * default, every shared object has a thread of its own.  With {@link #SHARED_OBJECT_EXECUTOR_POOLED}
+	 * or {@link #SHARED_OBJECT_EXECUTOR_VIRTUAL}, shared objects have bounded mailboxes that are processed
+	 * in order on an executor shared by all containers, using pooled or virtual threads.
+	 * @since 4.11
+	 */
+	public static final String DEFAULT_SHARED_OBJECT_EXECUTOR = System.getProperty("org.eclipse.ecf.provider.generic.sharedObjectExecutor", "thread"); //$NON-NLS-1$ //$NON-NLS-2$
+
+	/**
+	 * @since 4.11
+	 */
+	public static final String SHARED_OBJECT_EXECUTOR_THREAD = "thread"; //$NON-NLS-1$
+
+	/**
+	 * @since 4.11
+	 */
+	public static final String SHARED_OBJECT_EXECUTOR_POOLED = "pooled"; //$NON-NLS-1$
+
+	/**
+	 * Virtual threads where the runtime has them, and pooled threads otherwise.
+	 * @since 4.11
+	 */
+	public static final String SHARED_OBJECT_EXECUTOR_VIRTUAL = "virtual"; //$NON-NLS-1$
+
+	/**
+	 * Maximum number of events in the mailbox of a shared object that is processed on the shared executor.
+	 * Zero or less for unbounded mailboxes.
+	 * @since 4.11
+	 */
+	public static final int DEFAULT_SHARED_OBJECT_MAILBOX_CAPACITY = Integer.getInteger("org.eclipse.ecf.provider.generic.sharedObjectMailboxCapacity", 10000).intValue(); //$NON-NLS-1$
+
+	/**
+	 * What happens to an event sent to a full mailbox.  With "block", the default, the sender waits for
+	 * space, which slows down the connection the event came from.  With "drop", the event is dropped.
+	 * @since 4.11
+	 */
+	public static final String DEFAULT_SHARED_OBJECT_MAILBOX_OVERFLOW = System.getProperty("org.eclipse.ecf.provider.generic.sharedObjectMailboxOverflow", "block"); //$NON-NLS-1$ //$NON-NLS-2$
+
+	private static Executor sharedObjectExecutor;
+
+	private static synchronized Executor getDefaultSharedObjectExecutor() {
+		if (sharedObjectExecutor == null) {
+			if (SHARED_OBJECT_EXECUTOR_VIRTUAL.equalsIgnoreCase(DEFAULT_SHARED_OBJECT_EXECUTOR)) {
+				try {
+					sharedObjectExecutor = (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null); //$NON-NLS-1$
+				} catch (final Exception e) {
+					// No virtual threads before Java 21
+				}
+			}
+			if (sharedObjectExecutor == null) {
+				// Threads are added while shared objects block in handleEvent, and removed when idle
+				final AtomicInteger count = new AtomicInteger();
+				sharedObjectExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						final Thread t = new Thread(r, "SOExecutor:" + count.incrementAndGet()); //$NON-NLS-1$
+						t.setDaemon(true);
+						return t;
+					}
+				});
+			}
+		}
+		return sharedObjectExecutor;
+	}
+
 	private long sequenceNumber = 0L;
 
 	protected ISharedObjectContainerConfig config = null;
@@ -155,10 +239,7 @@ public abstract class SOContainer extends AbstractContainer implements ISharedOb
 
 	protected ThreadGroup sharedObjectThreadGroup = null;
 
-	/**
-	 * @since 2.0
-	 */
-	protected ISharedObjectMessageSerializer sharedObjectMessageSerializer = new ISharedObjectMessageSerializer() {
+	private final ISharedObjectMessageSerializer defaultSharedObjectMessageSerializer = new ISharedObjectMessageSerializer() {
 
 		public Object deserializeMessage(byte[] data) throws IOException, ClassNotFoundException {
 			return defaultDeserializeSharedObjectMessage(data);
@@ -170,6 +251,11 @@ public abstract class SOContainer extends AbstractContainer implements ISharedOb
 
 	};
 
+	/**
+	 * @since 2.0
+	 */
+	protected ISharedObjectMessageSerializer sharedObjectMessageSerializer = defaultSharedObjectMessageSerializer;
+
 	/**
 	 * @since 2.0
 	 */
@@ -516,6 +602,35 @@ public abstract class SOContainer extends AbstractContainer implements ISharedOb
 		return new Thread(sharedObjectThreadGroup, runnable, sharedObjectID.getName() + ":run"); //$NON-NLS-1$
 	}
 
+	/**
+	 * @param sharedObjectID the ID of the shared object
+	 * @return the executor to process the events of the given shared object on, or <code>null</code> if
+	 * the shared object gets its own thread from {@link #getNewSharedObjectThread(ID, Runnable)}
+	 * @since 4.11
+	 */
+	protected Executor getSharedObjectExecutor(ID sharedObjectID) {
+		if (SHARED_OBJECT_EXECUTOR_THREAD.equalsIgnoreCase(DEFAULT_SHARED_OBJECT_EXECUTOR))
+			return null;
+		return getDefaultSharedObjectExecutor();
+	}
+
+	/**
+	 * @return the maximum number of events in the mailbox of a shared object that is processed on
+	 * an executor.  Zero or less for no limit.
+	 * @since 4.11
+	 */
+	protected int getSharedObjectMailboxCapacity() {
+		return DEFAULT_SHARED_OBJECT_MAILBOX_CAPACITY;
+	}
+
+	/**
+	 * @return true if senders wait for space in a full mailbox, false if their events are dropped
+	 * @since 4.11
+	 */
+	protected boolean isSharedObjectMailboxBlocking() {
+		return !"drop".equalsIgnoreCase(DEFAULT_SHARED_OBJECT_MAILBOX_OVERFLOW); //$NON-NLS-1$
+	}
+
 	protected long getNextSequenceNumber() {
 		if (sequenceNumber == Long.MAX_VALUE) {
 			sequenceNumber = 0;
@@ -524,12 +639,145 @@ public abstract class SOContainer extends AbstractContainer implements ISharedOb
 		return sequenceNumber++;
 	}
 
-	public static ContainerMessage deserializeContainerMessage(byte[] bytes) throws IOException {
-		final ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
+	/**
+	 * Serialize a container message for sending to a peer.
+	 * 
+	 * @param message the message to serialize.  Must not be <code>null</code>.
+	 * @param framed true if the receiving peer supports framed shared object messages
+	 * @param codec the codec negotiated with the receiving peer, or <code>null</code> if none
+	 * @return byte[] the serialized message
+	 * @throws IOException if the message cannot be serialized
+	 * @since 4.11
+	 */
+	protected byte[] serializeContainerMessage(ContainerMessage message, boolean framed, IMessageCodec codec) throws IOException {
+		message = transcodeSharedObjectMessage(message, codec);
+		if (framed) {
+			final byte[] frame = SharedObjectMessageCodec.encode(message);
+			if (frame != null)
+				return frame;
+		}
+		return serialize(message);
+	}
+
+	/**
+	 * @return the {@link ContainerMessage} features this container supports when connecting
+	 * @since 4.11
+	 */
+	protected int getMessageFeatures() {
+		return DEFAULT_FRAMED_MESSAGES ? ContainerMessage.FEATURE_FRAMED_MESSAGES : 0;
+	}
+
+	/**
+	 * @return the names of the message codecs this container offers or accepts when connecting, in order
+	 * of preference.  This implementation returns the available codecs named by {@link #DEFAULT_MESSAGE_CODECS},
+	 * or none if a shared object message serializer has been set.
+	 * @since 4.11
+	 */
+	protected String[] getMessageCodecNames() {
+		// Codecs replace the default serializer only
+		if (getSharedObjectMessageSerializer() != defaultSharedObjectMessageSerializer)
+			return new String[0];
+		final List<String> result = new ArrayList<String>(DEFAULT_MESSAGE_CODECS.length);
+		for (int i = 0; i < DEFAULT_MESSAGE_CODECS.length; i++)
+			if (getMessageCodec(DEFAULT_MESSAGE_CODECS[i]) != null)
+				result.add(DEFAULT_MESSAGE_CODECS[i]);
+		return result.toArray(new String[result.size()]);
+	}
+
+	/**
+	 * @param name the codec name
+	 * @return the codec with the given name, or <code>null</code> if it is not available
+	 * @since 4.11
+	 */
+	protected IMessageCodec getMessageCodec(String name) {
+		return (name == null || name.length() == 0) ? null : ProviderPlugin.getDefault().getMessageCodec(name);
+	}
+
+	/**
+	 * @param toContainerID the target container, or <code>null</code> for all group members
+	 * @return the codec to write shared object messages to toContainerID with, or <code>null</code>
+	 * to use Java serialization.  This implementation returns <code>null</code>.
+	 * @since 4.11
+	 */
+	protected IMessageCodec getMessageCodecForTarget(ID toContainerID) {
+		return null;
+	}
+
+	/**
+	 * Shared object messages relayed to a peer that did not negotiate the codec they were written
+	 * with are rewritten with Java serialization, which every peer can read.
+	 */
+	private ContainerMessage transcodeSharedObjectMessage(ContainerMessage message, IMessageCodec codec) throws IOException {
+		final Serializable data = message.getData();
+		if (!(data instanceof SharedObjectMessage))
+			return message;
+		final SharedObjectMessage som = (SharedObjectMessage) data;
+		final SharedObjectMessageFrame frame = som.getFrame();
+		byte[] bytes;
+		int offset;
+		int length;
+		if (frame != null) {
+			bytes = frame.getBytes();
+			offset = frame.getPayloadOffset();
+			length = frame.getPayloadLength();
+		} else if (som.getData() instanceof byte[]) {
+			bytes = (byte[]) som.getData();
+			offset = 0;
+			length = bytes.length;
+		} else
+			return message;
+		final IMessageCodec payloadCodec = findMessageCodec(bytes, offset, length);
+		if (payloadCodec == null || (codec != null && codec.getName().equals(payloadCodec.getName())))
+			return message;
+		final ID sharedObjectID = som.getFromSharedObjectID();
+		Object payload = null;
+		try {
+			payload = readMessage(payloadCodec, bytes, offset, length, id -> {
+				// Relaying containers do not necessarily have the shared object
+				final ISharedObject so = getSharedObject(id);
+				return (so == null) ? ProviderPlugin.class.getClassLoader() : so.getClass().getClassLoader();
+			});
+		} catch (final ClassNotFoundException e) {
+			throw new IOException("Could not transcode message from sharedObjectID=" + sharedObjectID, e); //$NON-NLS-1$
+		}
+		final ByteArrayOutputStream bouts = new ByteArrayOutputStream();
+		writeSharedObjectMessage(bouts, sharedObjectID, payload, null);
+		return ContainerMessage.createSharedObjectMessage(message.getFromContainerID(), message.getToContainerID(), message.getSequence(), sharedObjectID, bouts.toByteArray());
+	}
 
-		final ObjectInputStream ois = ProviderPlugin.getDefault().createObjectInputStream(bis);
+	/**
+	 * @return the codec that wrote the given shared object message, or <code>null</code> if it
+	 * was Java serialized
+	 */
+	private static IMessageCodec findMessageCodec(byte[] bytes, int offset, int length) {
+		if (length > 1 && (short) (((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF)) == ObjectStreamConstants.STREAM_MAGIC)
+			return null;
+		final IMessageCodec compact = CompactMessageCodec.getDefault();
+		if (compact.isEncoded(bytes, offset, length))
+			return compact;
+		final IMessageCodec[] codecs = ProviderPlugin.getDefault().getMessageCodecs();
+		for (int i = 0; i < codecs.length; i++)
+			if (codecs[i].isEncoded(bytes, offset, length))
+				return codecs[i];
+		return null;
+	}
+
+	/**
+	 * @param toContainerID the target container, or <code>null</code> for all group members
+	 * @return true if shared object messages to toContainerID should be written as frames. This
+	 * implementation returns false.
+	 * @since 4.11
+	 */
+	protected boolean isFramedMessageTarget(ID toContainerID) {
+		return false;
+	}
+
+	public static ContainerMessage deserializeContainerMessage(byte[] bytes) throws IOException {
 		Object obj = null;
 		try {
+			if (SharedObjectMessageCodec.isFrame(bytes))
+				return SharedObjectMessageCodec.decode(bytes);
+			final ObjectInputStream ois = ProviderPlugin.getDefault().createObjectInputStream(new ByteArrayInputStream(bytes));
 			obj = ois.readObject();
 		} catch (final ClassNotFoundException e) {
 			ProviderPlugin.getDefault().log(new Status(IStatus.ERROR, ProviderPlugin.PLUGIN_ID, "class not found on deserialize", e)); //$NON-NLS-1$
@@ -714,7 +962,7 @@ public abstract class SOContainer extends AbstractContainer implements ISharedOb
 				sow = getSharedObjectWrapper(sharedObjectID);
 				if (sow != null) {
 					try {
-						obj = (Serializable) deserializeSharedObjectMessage((byte[]) resp.getData());
+						obj = (Serializable) deserializeSharedObjectMessage(resp);
 						// Actually deliver event to shared object asynchronously
 						sow.deliverSharedObjectMessage(fromID, obj);
 					} catch (final ClassNotFoundException e) {
@@ -1001,19 +1249,28 @@ public abstract class SOContainer extends AbstractContainer implements ISharedOb
 	 * @since 2.0
 	 */
 	protected byte[] defaultSerializeSharedObjectMessage(ID sharedObjectID, Object message) throws IOException {
+		final ByteArrayOutputStream bouts = new ByteArrayOutputStream();
+		writeSharedObjectMessage(bouts, sharedObjectID, message, null);
+		return bouts.toByteArray();
+	}
+
+	private void writeSharedObjectMessage(OutputStream outs, ID sharedObjectID, Object message, IMessageCodec codec) throws IOException {
 		if (!(message instanceof Serializable))
 			throw new NotSerializableException("shared object=" + sharedObjectID + " message=" + message + " not serializable"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 		try {
-			return AccessController.doPrivileged((PrivilegedExceptionAction<byte[]>) () -> {
-				final ByteArrayOutputStream bouts = new ByteArrayOutputStream();
+			AccessController.doPrivileged((PrivilegedExceptionAction<Object>) () -> {
+				if (codec != null) {
+					codec.writeMessage(outs, sharedObjectID, message);
+					return null;
+				}
 				// If system property set to osgi.basic then use OSGIObjectOutputStream, if not then  
 				// use ObjectOutputStream
-				final ObjectOutputStream oos = new OSGIObjectOutputStream(bouts);
+				final ObjectOutputStream oos = new OSGIObjectOutputStream(outs);
 				// write shared object id, so we can read it on receiver and get the classloader for the given shared object
 				oos.writeObject(sharedObjectID);
 				oos.writeObject(message);
 				oos.close();
-				return bouts.toByteArray();
+				return null;
 			});
 		} catch (PrivilegedActionException e) {
 			Throwable t = e.getCause();
@@ -1032,9 +1289,13 @@ public abstract class SOContainer extends AbstractContainer implements ISharedOb
 	 * @since 2.0
 	 */
 	protected Object defaultDeserializeSharedObjectMessage(byte[] bytes) throws IOException, ClassNotFoundException {
+		return readSharedObjectMessage(bytes, 0, bytes.length);
+	}
+
+	private Object readSharedObjectMessage(byte[] bytes, int offset, int length) throws IOException, ClassNotFoundException {
 		try {
 			return AccessController.doPrivileged((PrivilegedExceptionAction<Object>) () -> {
-				final ByteArrayInputStream bins = new ByteArrayInputStream(bytes);
+				final ByteArrayInputStream bins = new ByteArrayInputStream(bytes, offset, length);
 				final OSGIObjectInputStream oins = new OSGIObjectInputStream(ProviderPlugin.getDefault().getContext().getBundle(), bins);
 				ID sharedObjectID = (ID) oins.readObject();
 				if (sharedObjectID != null) {
@@ -1062,12 +1323,56 @@ public abstract class SOContainer extends AbstractContainer implements ISharedOb
 		return getSharedObjectMessageSerializer().deserializeMessage(bytes);
 	}
 
+	private Object deserializeSharedObjectMessage(SharedObjectMessage message) throws IOException, ClassNotFoundException {
+		if (getSharedObjectMessageSerializer() != defaultSharedObjectMessageSerializer)
+			return deserializeSharedObjectMessage((byte[]) message.getData());
+		// Read framed messages in place
+		final SharedObjectMessageFrame frame = message.getFrame();
+		final byte[] bytes = (frame == null) ? (byte[]) message.getData() : frame.getBytes();
+		final int offset = (frame == null) ? 0 : frame.getPayloadOffset();
+		final int length = (frame == null) ? bytes.length : frame.getPayloadLength();
+		final IMessageCodec codec = findMessageCodec(bytes, offset, length);
+		if (codec != null)
+			return readMessage(codec, bytes, offset, length, id -> {
+				final ISharedObject so = getSharedObject(id);
+				return (so == null) ? null : so.getClass().getClassLoader();
+			});
+		if (frame != null)
+			return readSharedObjectMessage(bytes, offset, length);
+		return deserializeSharedObjectMessage(bytes);
+	}
+
+	private Object readMessage(IMessageCodec codec, byte[] bytes, int offset, int length, Function<ID, ClassLoader> classLoaders) throws IOException, ClassNotFoundException {
+		try {
+			return AccessController.doPrivileged((PrivilegedExceptionAction<Object>) () -> codec.readMessage(bytes, offset, length, classLoaders));
+		} catch (PrivilegedActionException e) {
+			Throwable t = e.getCause();
+			if (t instanceof IOException)
+				throw (IOException) t;
+			if (t instanceof ClassNotFoundException)
+				throw (ClassNotFoundException) t;
+			throw new IOException("Unexpected exception thrown reading message with codec " + codec.getName(), e); //$NON-NLS-1$
+		}
+	}
+
 	protected void sendMessage(ID toContainerID, ID sharedObjectID, Object message) throws IOException {
 		if (message == null)
 			return;
 		// fire IContainerSharedObjectMessageSendingEvent
 		fireContainerEvent(new ContainerSharedObjectMessageSendingEvent(getID(), toContainerID, sharedObjectID, message));
-		final byte[] sendData = serializeSharedObjectMessage(sharedObjectID, message);
+		Serializable sendData = null;
+		// Frames and codecs are only used when no serializer has been set
+		final boolean defaultSerializer = getSharedObjectMessageSerializer() == defaultSharedObjectMessageSerializer;
+		final IMessageCodec codec = defaultSerializer ? getMessageCodecForTarget(toContainerID) : null;
+		// Write header and message in one pass
+		if (defaultSerializer && isFramedMessageTarget(toContainerID))
+			sendData = SharedObjectMessageCodec.encodeFrame(getID(), toContainerID, sharedObjectID, outs -> writeSharedObjectMessage(outs, sharedObjectID, message, codec));
+		else if (codec != null) {
+			final ByteArrayOutputStream bouts = new ByteArrayOutputStream();
+			writeSharedObjectMessage(bouts, sharedObjectID, message, codec);
+			sendData = bouts.toByteArray();
+		} else
+			sendData = serializeSharedObjectMessage(sharedObjectID, message);
 		sendSharedObjectMessage(toContainerID, sharedObjectID, sendData);
 	}
 
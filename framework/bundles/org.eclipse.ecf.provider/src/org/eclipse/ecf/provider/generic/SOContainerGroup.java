@@ -19,9 +19,10 @@ import java.net.URI;
 import java.util.*;
 import org.eclipse.ecf.internal.provider.ProviderPlugin;
 import org.eclipse.ecf.provider.comm.IConnectRequestHandler;
+import org.eclipse.ecf.provider.comm.ISynchAsynchEventHandler;
 import org.eclipse.ecf.provider.comm.tcp.*;
 
-public class SOContainerGroup implements ISocketAcceptHandler {
+public class SOContainerGroup implements ISocketAcceptHandler, IMultiplexAcceptHandler {
 
 	/**
 	 * @since 4.7
@@ -76,7 +77,7 @@ public class SOContainerGroup implements ISocketAcceptHandler {
 	 * @since 4.7
 	 */
 	protected ObjectOutputStream createObjectOutputStream(Socket aSocket) throws IOException {
-		return new ObjectOutputStream(aSocket.getOutputStream());
+		return new ObjectOutputStream(new BufferedOutputStream(aSocket.getOutputStream(), Client.DEFAULT_SEND_BUFFER_SIZE));
 	}
 
 	/**
@@ -117,6 +118,12 @@ public class SOContainerGroup implements ISocketAcceptHandler {
 
 		final ConnectRequestMessage req = readConnectRequestMessage(iStream);
 
+		// Connection shared by the client containers of a process, which connect to containers with sessions on it
+		if (Multiplexer.isMultiplexRequest(req)) {
+			Multiplexer.accept(aSocket, iStream, oStream, this);
+			return;
+		}
+
 		final URI uri = req.getTarget();
 		if (uri == null)
 			throw new InvalidObjectException(INVALID_CONNECT + " URI connect target cannot be null"); //$NON-NLS-1$
@@ -144,4 +151,25 @@ public class SOContainerGroup implements ISocketAcceptHandler {
 		}
 	}
 
-}
\ No newline at end of file
+	/**
+	 * @since 4.11
+	 */
+	public ISynchAsynchEventHandler getEventHandler(String target) throws IOException {
+		return getContainer(target).getMessageReceiver();
+	}
+
+	/**
+	 * @since 4.11
+	 */
+	public Serializable handleConnectRequest(Socket aSocket, String target, Serializable data, MultiplexClient conn) throws Exception {
+		return ((IConnectRequestHandler) getContainer(target)).handleConnectRequest(aSocket, target, data, conn);
+	}
+
+	private SOContainer getContainer(String path) throws IOException {
+		final SOContainer srs = get(path);
+		if (srs == null)
+			throw new InvalidObjectException("Container not found for path=" + path); //$NON-NLS-1$
+		return srs;
+	}
+
+}
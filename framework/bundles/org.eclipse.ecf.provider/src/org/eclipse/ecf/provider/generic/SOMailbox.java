@@ -0,0 +1,226 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.generic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.eclipse.ecf.core.sharedobject.util.SimpleFIFOQueue;
+
+/**
+ * Bounded mailbox of a shared object whose events are processed on a shared executor rather than
+ * a thread of its own.  Events are queued without locking, and the mailbox schedules itself on the
+ * executor whenever it has events, so it is processed by at most one thread at a time and in order.
+ * Unlike {@link SimpleFIFOQueue}, {@link #dequeue()} does not wait for events.
+ * <p>
+ * When the mailbox is full, senders either wait for space or their events are dropped.  Control events
+ * such as activation and disposal are always accepted, as are events the shared object sends to itself
+ * while it is processing, which would otherwise wait for ever.
+ */
+final class SOMailbox extends SimpleFIFOQueue implements Runnable {
+
+	// Events processed before the mailbox is scheduled again, so that busy mailboxes share the executor
+	private static final int BATCH_SIZE = 64;
+
+	private final ConcurrentLinkedQueue<Object> events = new ConcurrentLinkedQueue<Object>();
+	private final AtomicInteger size = new AtomicInteger();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final AtomicInteger dropped = new AtomicInteger();
+	private final int capacity;
+	private final boolean blocking;
+	private final Object spaceLock = new Object();
+	// Guarded by spaceLock
+	private volatile int waiters;
+	private volatile boolean stopped;
+	private volatile Executor executor;
+	private volatile Consumer<Object> processor;
+	private volatile Thread runner;
+
+	SOMailbox(int capacity, boolean blocking) {
+		this.capacity = (capacity <= 0) ? Integer.MAX_VALUE : capacity;
+		this.blocking = blocking;
+	}
+
+	/**
+	 * Start processing the queued and future events with the given processor on the given executor.
+	 *
+	 * @param exec the executor
+	 * @param proc the processor for the events
+	 */
+	void start(Executor exec, Consumer<Object> proc) {
+		this.processor = proc;
+		this.executor = exec;
+		schedule();
+	}
+
+	public boolean enqueue(Object obj) {
+		return enqueue(obj, false);
+	}
+
+	/**
+	 * Queue a control event, regardless of the capacity of the mailbox.
+	 *
+	 * @param obj the event
+	 * @return true if queued, false if the mailbox is stopped
+	 */
+	boolean enqueueControl(Object obj) {
+		return enqueue(obj, true);
+	}
+
+	private boolean enqueue(Object obj, boolean control) {
+		if (obj == null || stopped)
+			return false;
+		if (!reserve(control || Thread.currentThread() == runner)) {
+			dropped.incrementAndGet();
+			return false;
+		}
+		events.add(obj);
+		schedule();
+		return true;
+	}
+
+	private boolean reserve(boolean force) {
+		for (;;) {
+			final int current = size.get();
+			if (current < capacity || force) {
+				if (size.compareAndSet(current, current + 1))
+					return true;
+			} else if (!blocking || !awaitSpace())
+				return false;
+		}
+	}
+
+	private boolean awaitSpace() {
+		synchronized (spaceLock) {
+			waiters++;
+			try {
+				while (!stopped && size.get() >= capacity)
+					spaceLock.wait();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			} finally {
+				waiters--;
+			}
+		}
+		return !stopped;
+	}
+
+	private void released() {
+		size.decrementAndGet();
+		if (waiters > 0) {
+			synchronized (spaceLock) {
+				spaceLock.notifyAll();
+			}
+		}
+	}
+
+	private void schedule() {
+		final Executor exec = executor;
+		if (exec != null && !events.isEmpty() && scheduled.compareAndSet(false, true)) {
+			try {
+				exec.execute(this);
+			} catch (final RejectedExecutionException e) {
+				scheduled.set(false);
+				close();
+			}
+		}
+	}
+
+	public void run() {
+		runner = Thread.currentThread();
+		try {
+			final Consumer<Object> proc = processor;
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				final Object event = events.poll();
+				if (event == null)
+					break;
+				released();
+				proc.accept(event);
+			}
+		} finally {
+			runner = null;
+			scheduled.set(false);
+			// Events may have been queued after the last poll
+			schedule();
+		}
+	}
+
+	public Object dequeue() {
+		final Object event = events.poll();
+		if (event != null)
+			released();
+		return event;
+	}
+
+	public Object peekQueue() {
+		return events.peek();
+	}
+
+	public Object peekQueue(long waitMS) {
+		return events.peek();
+	}
+
+	public Object removeHead() {
+		return dequeue();
+	}
+
+	public boolean isEmpty() {
+		return events.isEmpty();
+	}
+
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * @return the number of events dropped because the mailbox was full
+	 */
+	int getDropped() {
+		return dropped.get();
+	}
+
+	public void stop() {
+		stopped = true;
+		synchronized (spaceLock) {
+			spaceLock.notifyAll();
+		}
+	}
+
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	public Object[] flush() {
+		final List<Object> out = new ArrayList<Object>();
+		Object event;
+		while ((event = dequeue()) != null)
+			out.add(event);
+		close();
+		return out.toArray();
+	}
+
+	public void close() {
+		stop();
+	}
+
+	public String toString() {
+		final StringBuffer sb = new StringBuffer("SOMailbox["); //$NON-NLS-1$
+		sb.append("size=").append(size.get()).append(";capacity=").append(capacity); //$NON-NLS-1$ //$NON-NLS-2$
+		sb.append(";dropped=").append(dropped.get()).append("]"); //$NON-NLS-1$ //$NON-NLS-2$
+		return sb.toString();
+	}
+}
@@ -16,6 +16,8 @@ package org.eclipse.ecf.provider.generic;
 import java.io.Serializable;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import org.eclipse.ecf.core.events.ContainerConnectedEvent;
 import org.eclipse.ecf.core.events.ContainerDisconnectedEvent;
 import org.eclipse.ecf.core.identity.ID;
@@ -37,6 +39,9 @@ public class SOWrapper {
 	private SOContainer container;
 	private ID containerID;
 	private Thread thread;
+	// Executor the mailbox is processed on, or null if the shared object has a thread of its own
+	private final Executor executor;
+	private volatile boolean started;
 	SimpleFIFOQueue queue;
 
 	protected SOWrapper(SOContainer.LoadingSharedObject obj, SOContainer cont) {
@@ -46,6 +51,7 @@ public class SOWrapper {
 		containerID = cont.getID();
 		sharedObjectConfig = null;
 		thread = null;
+		executor = null;
 		queue = new SimpleFIFOQueue();
 	}
 
@@ -56,7 +62,8 @@ public class SOWrapper {
 		container = cont;
 		containerID = cont.getID();
 		thread = null;
-		queue = new SimpleFIFOQueue();
+		executor = cont.getSharedObjectExecutor(sharedObjectID);
+		queue = (executor == null) ? new SimpleFIFOQueue() : new SOMailbox(cont.getSharedObjectMailboxCapacity(), cont.isSharedObjectMailboxBlocking());
 	}
 
 	protected void init() throws SharedObjectInitException {
@@ -78,48 +85,58 @@ public class SOWrapper {
 	}
 
 	protected void activated() {
-		thread = (Thread) AccessController.doPrivileged(new PrivilegedAction() {
-			public Object run() {
-				Thread aThread = getThread();
-				return aThread;
-			}
-		});
+		if (executor == null) {
+			thread = (Thread) AccessController.doPrivileged(new PrivilegedAction() {
+				public Object run() {
+					Thread aThread = getThread();
+					return aThread;
+				}
+			});
+		}
+		started = true;
 		// Notify container and listeners
 		container.notifySharedObjectActivated(sharedObjectID);
-		// Start thread
-		thread.start();
+		// Start thread, or processing the mailbox on the executor
+		if (executor == null)
+			thread.start();
+		else
+			((SOMailbox) queue).start(executor, new Consumer<Object>() {
+				public void accept(Object evt) {
+					process((Event) evt);
+				}
+			});
 		// Send message
-		send(new SharedObjectActivatedEvent(containerID, sharedObjectID));
+		sendControl(new SharedObjectActivatedEvent(containerID, sharedObjectID));
 	}
 
 	protected void deactivated() {
 		container.notifySharedObjectDeactivated(sharedObjectID);
-		send(new SharedObjectDeactivatedEvent(containerID, sharedObjectID));
+		sendControl(new SharedObjectDeactivatedEvent(containerID, sharedObjectID));
 		destroyed();
 	}
 
 	protected void destroyed() {
 		if (!queue.isStopped()) {
-			if (thread != null)
-				queue.enqueue(new DisposeEvent());
+			if (started)
+				enqueueControl(new DisposeEvent());
 			queue.close();
 		}
 	}
 
 	protected void otherChanged(ID otherID, boolean activated) {
-		if (activated && thread != null) {
-			send(new SharedObjectActivatedEvent(containerID, otherID));
+		if (activated && started) {
+			sendControl(new SharedObjectActivatedEvent(containerID, otherID));
 		} else {
-			send(new SharedObjectDeactivatedEvent(containerID, otherID));
+			sendControl(new SharedObjectDeactivatedEvent(containerID, otherID));
 		}
 	}
 
 	protected void memberChanged(Member m, boolean add) {
-		if (thread != null) {
+		if (started) {
 			if (add) {
-				send(new ContainerConnectedEvent(containerID, m.getID()));
+				sendControl(new ContainerConnectedEvent(containerID, m.getID()));
 			} else {
-				send(new ContainerDisconnectedEvent(containerID, m.getID()));
+				sendControl(new ContainerDisconnectedEvent(containerID, m.getID()));
 			}
 		}
 	}
@@ -135,17 +152,7 @@ public class SOWrapper {
 					evt = (Event) queue.dequeue();
 					if (Thread.currentThread().isInterrupted() || evt == null)
 						break;
-					try {
-						if (evt instanceof ProcEvent) {
-							SOWrapper.this.svc(((ProcEvent) evt).getEvent());
-						} else if (evt instanceof DisposeEvent) {
-							SOWrapper.this.doDestroy();
-						} else {
-							SOWrapper.this.svc(evt);
-						}
-					} catch (Throwable t) {
-						handleRuntimeException(t);
-					}
+					process(evt);
 				}
 				if (Thread.currentThread().isInterrupted()) {
 					debug("runner(" + sharedObjectID //$NON-NLS-1$
@@ -158,8 +165,35 @@ public class SOWrapper {
 		});
 	}
 
+	void process(Event evt) {
+		try {
+			if (evt instanceof ProcEvent) {
+				svc(((ProcEvent) evt).getEvent());
+			} else if (evt instanceof DisposeEvent) {
+				doDestroy();
+			} else {
+				svc(evt);
+			}
+		} catch (Throwable t) {
+			handleRuntimeException(t);
+		}
+	}
+
 	private void send(Event evt) {
-		queue.enqueue(new ProcEvent(evt));
+		if (!queue.enqueue(new ProcEvent(evt)) && queue instanceof SOMailbox && !queue.isStopped())
+			debug("mailbox full, dropped event=" + evt); //$NON-NLS-1$
+	}
+
+	// Send an event that must not be dropped or wait for space in a full mailbox
+	private void sendControl(Event evt) {
+		enqueueControl(new ProcEvent(evt));
+	}
+
+	private void enqueueControl(Event evt) {
+		if (queue instanceof SOMailbox)
+			((SOMailbox) queue).enqueueControl(evt);
+		else
+			queue.enqueue(evt);
 	}
 
 	public static class ProcEvent implements Event {
@@ -204,7 +238,7 @@ public class SOWrapper {
 
 	protected void destroySelf() {
 		debug("destroySelf()"); //$NON-NLS-1$
-		send(new DisposeEvent());
+		sendControl(new DisposeEvent());
 	}
 
 	public String toString() {
@@ -16,6 +16,8 @@ package org.eclipse.ecf.provider.generic;
 import java.io.IOException;
 import java.io.Serializable;
 import java.net.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import org.eclipse.ecf.core.ContainerConnectException;
 import org.eclipse.ecf.core.events.*;
 import org.eclipse.ecf.core.identity.ID;
@@ -24,12 +26,18 @@ import org.eclipse.ecf.core.security.IConnectHandlerPolicy;
 import org.eclipse.ecf.core.sharedobject.ISharedObjectContainerConfig;
 import org.eclipse.ecf.core.sharedobject.ISharedObjectContainerGroupManager;
 import org.eclipse.ecf.provider.comm.*;
+import org.eclipse.ecf.provider.generic.codec.IMessageCodec;
 import org.eclipse.ecf.provider.generic.gmm.Member;
 
 public class ServerSOContainer extends SOContainer implements ISharedObjectContainerGroupManager {
 
 	protected IConnectHandlerPolicy connectHandlerPolicy;
 
+	// Members that accepted framed messages when connecting
+	private final Set<ID> framedMembers = ConcurrentHashMap.newKeySet();
+	// Codecs chosen for members when they connected
+	private final Map<ID, IMessageCodec> memberCodecs = new ConcurrentHashMap<ID, IMessageCodec>();
+
 	public ServerSOContainer(ISharedObjectContainerConfig config) {
 		super(config);
 	}
@@ -139,7 +147,7 @@ public class ServerSOContainer extends SOContainer implements ISharedObjectConta
 		} else {
 			final IAsynchConnection conn = getConnectionForID(message.getToContainerID());
 			if (conn != null)
-				conn.sendAsynch(message.getToContainerID(), serialize(message));
+				conn.sendAsynch(message.getToContainerID(), serializeContainerMessage(message, framedMembers.contains(message.getToContainerID()), memberCodecs.get(message.getToContainerID())));
 		}
 	}
 
@@ -159,7 +167,7 @@ public class ServerSOContainer extends SOContainer implements ISharedObjectConta
 					final IAsynchConnection conn = (IAsynchConnection) m.getData();
 					if (conn != null) {
 						try {
-							conn.sendAsynch(oldID, serialize(new ContainerMessage(from, oldID, getNextSequenceNumber(), data.getData())));
+							conn.sendAsynch(oldID, serializeContainerMessage(new ContainerMessage(from, oldID, getNextSequenceNumber(), data.getData()), framedMembers.contains(oldID), memberCodecs.get(oldID)));
 						} catch (final IOException e) {
 							traceStack("Exception in forwardExcluding from " //$NON-NLS-1$
 									+ from + " with oldID " + oldID, e); //$NON-NLS-1$
@@ -194,6 +202,8 @@ public class ServerSOContainer extends SOContainer implements ISharedObjectConta
 			if (jgm == null)
 				throw new NullPointerException("Join group message cannot be null"); //$NON-NLS-1$
 			ID memberIDs[] = null;
+			final int features = jgm.getFeatures() & getMessageFeatures();
+			final IMessageCodec codec = selectMessageCodec(jgm.getCodecs());
 			synchronized (getGroupMembershipLock()) {
 				if (isClosing) {
 					final Exception e = new IllegalStateException("Server container is closing"); //$NON-NLS-1$
@@ -210,6 +220,10 @@ public class ServerSOContainer extends SOContainer implements ISharedObjectConta
 					handleLeave(remoteID, oldConn);
 				// Now we add the new connection
 				if (addNewRemoteMember(remoteID, conn)) {
+					if ((features & ContainerMessage.FEATURE_FRAMED_MESSAGES) != 0)
+						framedMembers.add(remoteID);
+					if (codec != null)
+						memberCodecs.put(remoteID, codec);
 					// Notify existing remotes about new member
 					try {
 						forwardExcluding(getID(), remoteID, ContainerMessage.createViewChangeMessage(getID(), remoteID, getNextSequenceNumber(), new ID[] {remoteID}, true, null));
@@ -228,7 +242,7 @@ public class ServerSOContainer extends SOContainer implements ISharedObjectConta
 			// notify listeners
 			fireContainerEvent(new ContainerConnectedEvent(this.getID(), remoteID));
 
-			return ContainerMessage.createViewChangeMessage(getID(), remoteID, getNextSequenceNumber(), memberIDs, true, null);
+			return ContainerMessage.createViewChangeMessage(getID(), remoteID, getNextSequenceNumber(), memberIDs, true, null, features, (codec == null) ? null : codec.getName());
 		} catch (final Exception e) {
 			traceStack("Exception in acceptNewClient(" + socket + "," //$NON-NLS-1$ //$NON-NLS-2$
 					+ target + "," + data + "," + conn, e); //$NON-NLS-1$ //$NON-NLS-2$
@@ -237,6 +251,19 @@ public class ServerSOContainer extends SOContainer implements ISharedObjectConta
 		}
 	}
 
+	/**
+	 * @return the first of the codecs offered by a client that this container accepts
+	 */
+	private IMessageCodec selectMessageCodec(String[] offered) {
+		if (offered == null)
+			return null;
+		final List<String> accepted = Arrays.asList(getMessageCodecNames());
+		for (int i = 0; i < offered.length; i++)
+			if (accepted.contains(offered[i]))
+				return getMessageCodec(offered[i]);
+		return null;
+	}
+
 	protected Object checkJoin(SocketAddress saddr, ID fromID, String target, Serializable data) throws Exception {
 		if (this.connectHandlerPolicy != null) {
 			return this.connectHandlerPolicy.checkConnect(saddr, fromID, getID(), target, data);
@@ -284,13 +311,47 @@ public class ServerSOContainer extends SOContainer implements ISharedObjectConta
 		return (ISynchConnection) mem.getData();
 	}
 
+	/* (non-Javadoc)
+	 * @see org.eclipse.ecf.provider.generic.SOContainer#isFramedMessageTarget(org.eclipse.ecf.core.identity.ID)
+	 */
+	protected boolean isFramedMessageTarget(ID toContainerID) {
+		return (toContainerID == null) ? !framedMembers.isEmpty() : framedMembers.contains(toContainerID);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.ecf.provider.generic.SOContainer#getMessageCodecForTarget(org.eclipse.ecf.core.identity.ID)
+	 */
+	protected IMessageCodec getMessageCodecForTarget(ID toContainerID) {
+		// Messages to all members are Java serialized, which every member can read
+		return (toContainerID == null) ? null : memberCodecs.get(toContainerID);
+	}
+
+	protected void handleLeave(ID leftID, IConnection conn) {
+		if (leftID != null) {
+			framedMembers.remove(leftID);
+			memberCodecs.remove(leftID);
+		}
+		super.handleLeave(leftID, conn);
+	}
+
 	private final void queueToAll(ContainerMessage message) {
 		final Object[] members = groupManager.getMembers();
+		// The message is the same for all members, so serialize it at most once per format
+		final Map<String, byte[]> serialized = new HashMap<String, byte[]>(4);
 		for (int i = 0; i < members.length; i++) {
-			final IAsynchConnection conn = (IAsynchConnection) ((Member) members[i]).getData();
+			final Member member = (Member) members[i];
+			final IAsynchConnection conn = (IAsynchConnection) member.getData();
 			if (conn != null) {
 				try {
-					conn.sendAsynch(message.getToContainerID(), serialize(message));
+					final boolean framed = framedMembers.contains(member.getID());
+					final IMessageCodec codec = memberCodecs.get(member.getID());
+					final String format = (codec == null) ? String.valueOf(framed) : framed + codec.getName();
+					byte[] bytes = serialized.get(format);
+					if (bytes == null) {
+						bytes = serializeContainerMessage(message, framed, codec);
+						serialized.put(format, bytes);
+					}
+					conn.sendAsynch(message.getToContainerID(), bytes);
 				} catch (final IOException e) {
 					traceStack("Exception in queueToAll for ContainerMessage " + message, e); //$NON-NLS-1$
 				}
@@ -0,0 +1,272 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.generic;
+
+import java.io.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.ecf.core.identity.*;
+import org.eclipse.ecf.internal.provider.ProviderPlugin;
+import org.eclipse.ecf.provider.generic.ContainerMessage.SharedObjectMessage;
+
+/**
+ * Framed encoding of container messages carrying a {@link SharedObjectMessage}.  It is used
+ * instead of Java serialization of the whole {@link ContainerMessage} between containers that
+ * negotiated {@link ContainerMessage#FEATURE_FRAMED_MESSAGES} when connecting.  The layout is
+ * <pre>
+ * magic(2) version(1) type(1) sequence(8) fromID toID sharedObjectID payloadLength(4) payload
+ * </pre>
+ * where the common ID types are written as their names and the payload is the serialized
+ * shared object message exactly as produced by
+ * {@link SOContainer#defaultSerializeSharedObjectMessage(ID, Object)}.  The header and payload
+ * are written in one pass into a buffer reused by the sending thread, and on receive the
+ * payload is left in place until the message is delivered to a local shared object.
+ */
+final class SharedObjectMessageCodec {
+
+	static final byte MAGIC0 = (byte) 0xEC;
+	static final byte MAGIC1 = (byte) 0xF0;
+	static final byte VERSION = 1;
+	static final byte TYPE_SHARED_OBJECT_MESSAGE = 1;
+	static final int SEQUENCE_OFFSET = 4;
+
+	private static final byte ID_NULL = 0;
+	private static final byte ID_STRING = 1;
+	private static final byte ID_GUID = 2;
+	private static final byte ID_SERIALIZED = 3;
+
+	// Longest string for which writeUTF cannot fail, whatever the characters
+	private static final int MAX_UTF_CHARS = 65535 / 3;
+	private static final String STRINGID_PREFIX = StringID.class.getName() + Namespace.SCHEME_SEPARATOR;
+	private static final String GUID_PREFIX = GUID.class.getName() + Namespace.SCHEME_SEPARATOR;
+
+	private static final int MAX_CACHED_IDS = 1024;
+	private static final Map<String, ID> idCache = new ConcurrentHashMap<String, ID>();
+
+	interface PayloadWriter {
+		void write(OutputStream out) throws IOException;
+	}
+
+	private SharedObjectMessageCodec() {
+		// no instances
+	}
+
+	static boolean isFrame(byte[] bytes) {
+		return bytes != null && bytes.length > SEQUENCE_OFFSET && bytes[0] == MAGIC0 && bytes[1] == MAGIC1;
+	}
+
+	/**
+	 * Write a shared object message frame.  The sequence is left zero, and set when the frame
+	 * is sent by {@link #encode(ContainerMessage)}.
+	 */
+	static SharedObjectMessageFrame encodeFrame(ID from, ID to, ID sharedObjectID, PayloadWriter payload) throws IOException {
+		final FrameBuffer buf = FrameBuffer.acquire();
+		try {
+			writeHeader(buf, 0L, from, to, sharedObjectID);
+			final int lengthPosition = buf.size();
+			buf.data.writeInt(0);
+			final int payloadOffset = buf.size();
+			payload.write(buf);
+			final int payloadLength = buf.size() - payloadOffset;
+			buf.putInt(lengthPosition, payloadLength);
+			return new SharedObjectMessageFrame(buf.toByteArray(), payloadOffset, payloadLength, from, to);
+		} finally {
+			buf.release();
+		}
+	}
+
+	/**
+	 * @param message the message to encode
+	 * @return the frame for message, or <code>null</code> if message cannot be framed and has to
+	 * be Java serialized
+	 * @throws IOException if an ID cannot be serialized
+	 */
+	static byte[] encode(ContainerMessage message) throws IOException {
+		final Serializable data = message.getData();
+		if (!(data instanceof SharedObjectMessage))
+			return null;
+		final SharedObjectMessage som = (SharedObjectMessage) data;
+		final ID from = message.getFromContainerID();
+		final ID to = message.getToContainerID();
+		final SharedObjectMessageFrame frame = som.getFrame();
+		if (frame != null && frame.hasHeader(from, to)) {
+			// Only the sequence differs, so send a copy of the frame
+			final byte[] result = frame.getBytes().clone();
+			putLong(result, SEQUENCE_OFFSET, message.getSequence());
+			return result;
+		}
+		byte[] payload;
+		int offset;
+		int length;
+		if (frame != null) {
+			payload = frame.getBytes();
+			offset = frame.getPayloadOffset();
+			length = frame.getPayloadLength();
+		} else if (som.getData() instanceof byte[]) {
+			payload = (byte[]) som.getData();
+			offset = 0;
+			length = payload.length;
+		} else
+			return null;
+		final FrameBuffer buf = FrameBuffer.acquire();
+		try {
+			writeHeader(buf, message.getSequence(), from, to, som.getFromSharedObjectID());
+			buf.data.writeInt(length);
+			buf.write(payload, offset, length);
+			return buf.toByteArray();
+		} finally {
+			buf.release();
+		}
+	}
+
+	static ContainerMessage decode(byte[] bytes) throws IOException, ClassNotFoundException {
+		final ByteArrayInputStream bins = new ByteArrayInputStream(bytes);
+		final DataInputStream in = new DataInputStream(bins);
+		if (in.readByte() != MAGIC0 || in.readByte() != MAGIC1)
+			throw new StreamCorruptedException("Not a shared object message frame"); //$NON-NLS-1$
+		final byte version = in.readByte();
+		if (version != VERSION)
+			throw new StreamCorruptedException("Unsupported frame version " + version); //$NON-NLS-1$
+		final byte type = in.readByte();
+		if (type != TYPE_SHARED_OBJECT_MESSAGE)
+			throw new StreamCorruptedException("Unsupported frame type " + type); //$NON-NLS-1$
+		final long sequence = in.readLong();
+		final ID from = readID(in);
+		final ID to = readID(in);
+		final ID sharedObjectID = readID(in);
+		final int payloadLength = in.readInt();
+		if (payloadLength != bins.available())
+			throw new StreamCorruptedException("Invalid frame payload length " + payloadLength); //$NON-NLS-1$
+		final SharedObjectMessageFrame frame = new SharedObjectMessageFrame(bytes, bytes.length - payloadLength, payloadLength, from, to);
+		return ContainerMessage.createSharedObjectMessage(from, to, sequence, sharedObjectID, frame);
+	}
+
+	private static void writeHeader(FrameBuffer buf, long sequence, ID from, ID to, ID sharedObjectID) throws IOException {
+		buf.write(MAGIC0);
+		buf.write(MAGIC1);
+		buf.write(VERSION);
+		buf.write(TYPE_SHARED_OBJECT_MESSAGE);
+		buf.data.writeLong(sequence);
+		writeID(buf.data, from);
+		writeID(buf.data, to);
+		writeID(buf.data, sharedObjectID);
+	}
+
+	private static void writeID(DataOutputStream out, ID id) throws IOException {
+		if (id == null) {
+			out.writeByte(ID_NULL);
+			return;
+		}
+		final String name = id.getName();
+		if (id.getClass() == StringID.class && isCompact(name, STRINGID_PREFIX)) {
+			out.writeByte(ID_STRING);
+			out.writeUTF(name);
+		} else if (id.getClass() == GUID.class && isCompact(name, GUID_PREFIX)) {
+			out.writeByte(ID_GUID);
+			out.writeUTF(name);
+		} else {
+			final byte[] bytes = SOContainer.serialize(id);
+			out.writeByte(ID_SERIALIZED);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static boolean isCompact(String name, String schemePrefix) {
+		// Names starting with the namespace scheme would not be recreated as is by the namespace
+		return name != null && name.length() <= MAX_UTF_CHARS && !name.startsWith(schemePrefix);
+	}
+
+	private static ID readID(DataInputStream in) throws IOException, ClassNotFoundException {
+		final byte tag = in.readByte();
+		switch (tag) {
+			case ID_NULL :
+				return null;
+			case ID_STRING :
+			case ID_GUID :
+				return getID(tag, in.readUTF());
+			case ID_SERIALIZED :
+				final byte[] bytes = new byte[in.readInt()];
+				in.readFully(bytes);
+				final Object obj = ProviderPlugin.getDefault().createObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+				if (!(obj instanceof ID))
+					throw new InvalidObjectException("object " + obj + " not appropriate type"); //$NON-NLS-1$ //$NON-NLS-2$
+				return (ID) obj;
+			default :
+				throw new StreamCorruptedException("Invalid ID tag " + tag); //$NON-NLS-1$
+		}
+	}
+
+	private static ID getID(byte tag, String name) throws IOException {
+		final String key = tag + name;
+		ID result = idCache.get(key);
+		if (result != null)
+			return result;
+		try {
+			result = (tag == ID_STRING) ? IDFactory.getDefault().createStringID(name) : IDFactory.getDefault().createID(GUID.class.getName(), name);
+		} catch (final IDCreateException e) {
+			throw new IOException("Could not create ID for name=" + name, e); //$NON-NLS-1$
+		}
+		if (idCache.size() >= MAX_CACHED_IDS)
+			idCache.clear();
+		idCache.put(key, result);
+		return result;
+	}
+
+	private static void putLong(byte[] bytes, int offset, long value) {
+		for (int i = 7; i >= 0; i--) {
+			bytes[offset + i] = (byte) value;
+			value >>>= 8;
+		}
+	}
+
+	/**
+	 * Per thread buffer that frames are written to.  Only the resulting frame is copied, and
+	 * buffers that grew for unusually large messages are not kept.
+	 */
+	static final class FrameBuffer extends ByteArrayOutputStream {
+		private static final int INITIAL_SIZE = 1024;
+		private static final int MAX_RETAINED_SIZE = 256 * 1024;
+		private static final ThreadLocal<FrameBuffer> buffers = ThreadLocal.withInitial(FrameBuffer::new);
+
+		final DataOutputStream data = new DataOutputStream(this);
+		private boolean inUse;
+
+		private FrameBuffer() {
+			super(INITIAL_SIZE);
+		}
+
+		static FrameBuffer acquire() {
+			final FrameBuffer buffer = buffers.get();
+			// A message may be sent while serializing another one on the same thread
+			if (buffer.inUse)
+				return new FrameBuffer();
+			buffer.inUse = true;
+			return buffer;
+		}
+
+		void release() {
+			inUse = false;
+			if (buf.length > MAX_RETAINED_SIZE)
+				buf = new byte[INITIAL_SIZE];
+			reset();
+		}
+
+		void putInt(int position, int value) {
+			buf[position] = (byte) (value >>> 24);
+			buf[position + 1] = (byte) (value >>> 16);
+			buf[position + 2] = (byte) (value >>> 8);
+			buf[position + 3] = (byte) value;
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.generic;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import org.eclipse.ecf.core.identity.ID;
+
+/**
+ * An encoded shared object message frame (see {@link SharedObjectMessageCodec}).  The
+ * serialized shared object message is the region [payloadOffset, payloadOffset + payloadLength)
+ * of the frame bytes, and is only copied out when it has to be sent to a peer that
+ * does not understand frames.
+ */
+final class SharedObjectMessageFrame implements Serializable {
+
+	private static final long serialVersionUID = -2710935862338047702L;
+
+	private final transient byte[] bytes;
+	private final transient int payloadOffset;
+	private final transient int payloadLength;
+	private final transient ID fromContainerID;
+	private final transient ID toContainerID;
+
+	SharedObjectMessageFrame(byte[] bytes, int payloadOffset, int payloadLength, ID fromContainerID, ID toContainerID) {
+		this.bytes = bytes;
+		this.payloadOffset = payloadOffset;
+		this.payloadLength = payloadLength;
+		this.fromContainerID = fromContainerID;
+		this.toContainerID = toContainerID;
+	}
+
+	byte[] getBytes() {
+		return bytes;
+	}
+
+	int getPayloadOffset() {
+		return payloadOffset;
+	}
+
+	int getPayloadLength() {
+		return payloadLength;
+	}
+
+	/**
+	 * @param from from container id of the message to send
+	 * @param to to container id of the message to send
+	 * @return true if the header of this frame was written for the given from and to ids,
+	 * so that the frame can be sent with only its sequence changed
+	 */
+	boolean hasHeader(ID from, ID to) {
+		return equals(fromContainerID, from) && equals(toContainerID, to);
+	}
+
+	private static boolean equals(ID a, ID b) {
+		return (a == null) ? b == null : a.equals(b);
+	}
+
+	byte[] copyPayload() {
+		final byte[] result = new byte[payloadLength];
+		System.arraycopy(bytes, payloadOffset, result, 0, payloadLength);
+		return result;
+	}
+
+	/**
+	 * Frames are only used between peers that negotiated them.  If a frame ends
+	 * up being Java serialized it is replaced by the serialized shared object message, which
+	 * is what such peers expect.
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		return copyPayload();
+	}
+
+	public String toString() {
+		final StringBuffer sb = new StringBuffer("SharedObjectMessageFrame["); //$NON-NLS-1$
+		sb.append(bytes.length).append(";").append(payloadLength).append("]"); //$NON-NLS-1$ //$NON-NLS-2$
+		return sb.toString();
+	}
+}
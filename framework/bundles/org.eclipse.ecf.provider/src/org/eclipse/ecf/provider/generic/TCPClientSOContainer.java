@@ -18,7 +18,7 @@ import org.eclipse.ecf.core.identity.IDFactory;
 import org.eclipse.ecf.core.sharedobject.ISharedObjectContainerConfig;
 import org.eclipse.ecf.provider.comm.ConnectionCreateException;
 import org.eclipse.ecf.provider.comm.ISynchAsynchConnection;
-import org.eclipse.ecf.provider.comm.tcp.Client;
+import org.eclipse.ecf.provider.comm.tcp.*;
 
 public class TCPClientSOContainer extends ClientSOContainer {
 	int keepAlive = 0;
@@ -48,10 +48,21 @@ public class TCPClientSOContainer extends ClientSOContainer {
 	 */
 	protected ISynchAsynchConnection createConnection(ID remoteSpace, Object data) throws ConnectionCreateException {
 		debug("createClientConnection:" + remoteSpace + ":" + data); //$NON-NLS-1$ //$NON-NLS-2$
+		if (isMultiplexed())
+			return new MultiplexClient(receiver, keepAlive);
 		ISynchAsynchConnection conn = new Client(receiver, keepAlive);
 		return conn;
 	}
 
+	/**
+	 * @return true if the connection to the server is to be shared with the other containers
+	 * connected to it.  Returns {@link Multiplexer#DEFAULT_MULTIPLEX} by default.
+	 * @since 4.11
+	 */
+	protected boolean isMultiplexed() {
+		return Multiplexer.DEFAULT_MULTIPLEX;
+	}
+
 	public static final void main(String[] args) throws Exception {
 		ISharedObjectContainerConfig config = new SOContainerConfig(IDFactory.getDefault().createGUID());
 		TCPClientSOContainer container = new TCPClientSOContainer(config);
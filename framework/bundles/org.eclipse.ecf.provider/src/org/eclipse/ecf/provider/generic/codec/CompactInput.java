@@ -0,0 +1,262 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.generic.codec;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.ecf.internal.provider.ProviderPlugin;
+import org.osgi.framework.BundleContext;
+
+/**
+ * Input that values are read from by a {@link CompactMessageCodec} and its {@link ITypeCodec}s.
+ * Values are read directly from the message bytes.
+ *
+ * @since 4.11
+ */
+public class CompactInput implements DataInput {
+
+	private final CompactMessageCodec codec;
+	private final List<String> names = new ArrayList<String>();
+	private final byte[] buf;
+	private int pos;
+	private final int limit;
+	private ClassLoader classLoader;
+	int depth;
+
+	CompactInput(CompactMessageCodec codec, byte[] bytes, int offset, int length) {
+		this.codec = codec;
+		this.buf = bytes;
+		this.pos = offset;
+		this.limit = offset + length;
+	}
+
+	/**
+	 * @return the class loader to load the classes of values with.  May be <code>null</code>.
+	 */
+	public ClassLoader getClassLoader() {
+		return classLoader;
+	}
+
+	void setClassLoader(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+	}
+
+	/**
+	 * Load a class with the class loader of this input, and if that fails with the
+	 * provider bundle.
+	 *
+	 * @param className the name of the class to load
+	 * @return the class
+	 * @throws ClassNotFoundException if the class cannot be loaded
+	 */
+	public Class<?> loadClass(String className) throws ClassNotFoundException {
+		if (classLoader != null) {
+			try {
+				return Class.forName(className, false, classLoader);
+			} catch (final ClassNotFoundException e) {
+				// Try bundle loading
+			}
+		}
+		final BundleContext context = ProviderPlugin.getDefault().getContext();
+		return (context == null) ? Class.forName(className) : context.getBundle().loadClass(className);
+	}
+
+	/**
+	 * @return the number of bytes left
+	 */
+	public int available() {
+		return limit - pos;
+	}
+
+	private int next(int length) throws EOFException {
+		if (length > limit - pos)
+			throw new EOFException();
+		final int result = pos;
+		pos += length;
+		return result;
+	}
+
+	public void readFully(byte[] b) throws IOException {
+		readFully(b, 0, b.length);
+	}
+
+	public void readFully(byte[] b, int off, int len) throws IOException {
+		System.arraycopy(buf, next(len), b, off, len);
+	}
+
+	public int skipBytes(int n) {
+		final int result = Math.max(0, Math.min(n, limit - pos));
+		pos += result;
+		return result;
+	}
+
+	public boolean readBoolean() throws IOException {
+		return buf[next(1)] != 0;
+	}
+
+	public byte readByte() throws IOException {
+		return buf[next(1)];
+	}
+
+	public int readUnsignedByte() throws IOException {
+		return buf[next(1)] & 0xFF;
+	}
+
+	public short readShort() throws IOException {
+		final int p = next(2);
+		return (short) (((buf[p] & 0xFF) << 8) | (buf[p + 1] & 0xFF));
+	}
+
+	public int readUnsignedShort() throws IOException {
+		return readShort() & 0xFFFF;
+	}
+
+	public char readChar() throws IOException {
+		return (char) readShort();
+	}
+
+	public int readInt() throws IOException {
+		final int p = next(4);
+		return ((buf[p] & 0xFF) << 24) | ((buf[p + 1] & 0xFF) << 16) | ((buf[p + 2] & 0xFF) << 8) | (buf[p + 3] & 0xFF);
+	}
+
+	public long readLong() throws IOException {
+		return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+	}
+
+	public float readFloat() throws IOException {
+		return Float.intBitsToFloat(readInt());
+	}
+
+	public double readDouble() throws IOException {
+		return Double.longBitsToDouble(readLong());
+	}
+
+	/**
+	 * Read a line the way {@link DataInputStream#readLine()} does: each byte is
+	 * converted to a char, and the line ends with <code>'\n'</code>, <code>'\r'</code>,
+	 * <code>"\r\n"</code> or the end of the input.
+	 *
+	 * @return the line without its terminator, or <code>null</code> if no bytes are left
+	 */
+	public String readLine() {
+		if (pos >= limit)
+			return null;
+		final StringBuilder sb = new StringBuilder();
+		while (pos < limit) {
+			final int c = buf[pos++] & 0xFF;
+			if (c == '\n')
+				break;
+			if (c == '\r') {
+				if (pos < limit && buf[pos] == '\n')
+					pos++;
+				break;
+			}
+			sb.append((char) c);
+		}
+		return sb.toString();
+	}
+
+	public String readUTF() throws IOException {
+		return DataInputStream.readUTF(this);
+	}
+
+	/**
+	 * @return an int written by {@link CompactOutput#writeVarInt(int)}
+	 * @throws IOException if the value cannot be read
+	 */
+	public int readVarInt() throws IOException {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			final int b = readUnsignedByte();
+			result |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return result;
+		}
+		throw new StreamCorruptedException("Invalid varint"); //$NON-NLS-1$
+	}
+
+	/**
+	 * @return a long written by {@link CompactOutput#writeVarLong(long)}
+	 * @throws IOException if the value cannot be read
+	 */
+	public long readVarLong() throws IOException {
+		long result = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final int b = readUnsignedByte();
+			result |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return result;
+		}
+		throw new StreamCorruptedException("Invalid varlong"); //$NON-NLS-1$
+	}
+
+	/**
+	 * @return a string written by {@link CompactOutput#writeString(String)}
+	 * @throws IOException if the value cannot be read
+	 */
+	public String readString() throws IOException {
+		final int length = readLength();
+		return new String(buf, next(length), length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return a name written by {@link CompactOutput#writeName(String)}
+	 * @throws IOException if the value cannot be read
+	 */
+	public String readName() throws IOException {
+		final int index = readVarInt();
+		if (index == 0) {
+			final String name = readString();
+			names.add(name);
+			return name;
+		}
+		if (index < 0 || index > names.size())
+			throw new StreamCorruptedException("Invalid name reference " + index); //$NON-NLS-1$
+		return names.get(index - 1);
+	}
+
+	/**
+	 * @return a value written by {@link CompactOutput#writeValue(Object)}
+	 * @throws IOException if the value cannot be read
+	 * @throws ClassNotFoundException if a class of the value cannot be loaded
+	 */
+	public Object readValue() throws IOException, ClassNotFoundException {
+		return codec.readValue(this);
+	}
+
+	/**
+	 * Read a length or element count, and check that at least that many bytes are left so
+	 * that corrupt input does not cause huge allocations.
+	 *
+	 * @return a length written with {@link CompactOutput#writeVarInt(int)}
+	 * @throws IOException if the value cannot be read or is invalid
+	 */
+	public int readLength() throws IOException {
+		final int length = readVarInt();
+		if (length < 0 || length > limit - pos)
+			throw new StreamCorruptedException("Invalid length " + length); //$NON-NLS-1$
+		return length;
+	}
+
+	/**
+	 * @param length the number of bytes to skip
+	 * @return a stream of the next length bytes, which are skipped
+	 * @throws IOException if there are less than length bytes left
+	 */
+	InputStream readStream(int length) throws IOException {
+		return new ByteArrayInputStream(buf, next(length), length);
+	}
+}
@@ -0,0 +1,517 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.generic.codec;
+
+import java.io.*;
+import java.lang.reflect.Array;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.eclipse.ecf.core.identity.*;
+import org.eclipse.ecf.core.sharedobject.SharedObjectMsg;
+import org.eclipse.ecf.core.sharedobject.SharedObjectMsgEvent;
+import org.eclipse.ecf.core.util.OSGIObjectInputStream;
+import org.eclipse.ecf.core.util.OSGIObjectOutputStream;
+import org.eclipse.ecf.internal.provider.ProviderPlugin;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+
+/**
+ * Schema-less binary codec for shared object messages.  Each value is written as a one
+ * byte tag followed by its content.  Primitive wrappers, strings, primitive and object arrays,
+ * the common collection classes, {@link StringID}s and {@link GUID}s are written directly,
+ * class names are written once per message, and classes with a registered {@link ITypeCodec}
+ * (such as {@link SharedObjectMsg}) are written by that codec.  All other values are written
+ * with Java serialization.
+ * <p>
+ * Object identity is not kept for values written directly: a value referenced twice in a
+ * message is read as two equal values.
+ *
+ * @since 4.11
+ */
+public class CompactMessageCodec implements IMessageCodec {
+
+	public static final String NAME = "ecf.compact"; //$NON-NLS-1$
+
+	static final byte MAGIC0 = (byte) 0xEC;
+	static final byte MAGIC1 = (byte) 0xC0;
+	static final byte VERSION = 1;
+
+	private static final byte NULL = 0;
+	private static final byte TRUE = 1;
+	private static final byte FALSE = 2;
+	private static final byte BYTE = 3;
+	private static final byte SHORT = 4;
+	private static final byte CHAR = 5;
+	private static final byte INT = 6;
+	private static final byte LONG = 7;
+	private static final byte FLOAT = 8;
+	private static final byte DOUBLE = 9;
+	private static final byte STRING = 10;
+	private static final byte BYTES = 11;
+	private static final byte INTS = 12;
+	private static final byte LONGS = 13;
+	private static final byte DOUBLES = 14;
+	private static final byte OBJECTS = 15;
+	private static final byte ARRAY_LIST = 16;
+	private static final byte HASH_MAP = 17;
+	private static final byte LINKED_HASH_MAP = 18;
+	private static final byte HASHTABLE = 19;
+	private static final byte HASH_SET = 20;
+	private static final byte LINKED_HASH_SET = 21;
+	private static final byte STRING_ID = 22;
+	private static final byte GUID_ID = 23;
+	private static final byte TYPED = 24;
+	private static final byte JAVA = 25;
+
+	// Nesting beyond this is written with Java serialization, which also handles cycles
+	private static final int MAX_DEPTH = 32;
+
+	private static final String STRINGID_PREFIX = StringID.class.getName() + Namespace.SCHEME_SEPARATOR;
+	private static final String GUID_PREFIX = GUID.class.getName() + Namespace.SCHEME_SEPARATOR;
+
+	private static final int MAX_CACHED_IDS = 1024;
+	private static final Map<String, ID> idCache = new ConcurrentHashMap<String, ID>();
+
+	private static final CompactMessageCodec instance = new CompactMessageCodec();
+
+	private final Map<Class<?>, ITypeCodec> typeCodecs = new ConcurrentHashMap<Class<?>, ITypeCodec>();
+	private final Map<String, ITypeCodec> typeCodecsByName = new ConcurrentHashMap<String, ITypeCodec>();
+
+	/**
+	 * @return the codec used by the generic provider
+	 */
+	public static CompactMessageCodec getDefault() {
+		return instance;
+	}
+
+	public CompactMessageCodec() {
+		addTypeCodec(new SharedObjectMsgCodec());
+		addTypeCodec(new SharedObjectMsgEventCodec());
+	}
+
+	public String getName() {
+		return NAME;
+	}
+
+	/**
+	 * Register a type codec.  Replaces any type codec previously registered for the same type.
+	 *
+	 * @param typeCodec the type codec to add.  Must not be <code>null</code>.
+	 */
+	public void addTypeCodec(ITypeCodec typeCodec) {
+		typeCodecs.put(typeCodec.getType(), typeCodec);
+		typeCodecsByName.put(typeCodec.getTypeName(), typeCodec);
+	}
+
+	/**
+	 * @param typeCodec the type codec to remove.  Must not be <code>null</code>.
+	 */
+	public void removeTypeCodec(ITypeCodec typeCodec) {
+		typeCodecs.remove(typeCodec.getType(), typeCodec);
+		typeCodecsByName.remove(typeCodec.getTypeName(), typeCodec);
+	}
+
+	public boolean isEncoded(byte[] bytes, int offset, int length) {
+		return length > 2 && bytes[offset] == MAGIC0 && bytes[offset + 1] == MAGIC1;
+	}
+
+	public void writeMessage(OutputStream out, ID sharedObjectID, Object message) throws IOException {
+		final CompactOutput output = new CompactOutput(this);
+		output.write(MAGIC0);
+		output.write(MAGIC1);
+		output.write(VERSION);
+		writeValue(output, sharedObjectID);
+		writeValue(output, message);
+		output.writeTo(out);
+	}
+
+	public Object readMessage(byte[] bytes, int offset, int length, Function<ID, ClassLoader> classLoaders) throws IOException, ClassNotFoundException {
+		if (!isEncoded(bytes, offset, length))
+			throw new StreamCorruptedException("Not a compact message"); //$NON-NLS-1$
+		final byte version = bytes[offset + 2];
+		if (version != VERSION)
+			throw new StreamCorruptedException("Unsupported compact message version " + version); //$NON-NLS-1$
+		final CompactInput input = new CompactInput(this, bytes, offset + 3, length - 3);
+		final Object sharedObjectID = readValue(input);
+		if (!(sharedObjectID instanceof ID))
+			throw new InvalidObjectException("object " + sharedObjectID + " not appropriate type"); //$NON-NLS-1$ //$NON-NLS-2$
+		final ClassLoader classLoader = classLoaders.apply((ID) sharedObjectID);
+		if (classLoader == null)
+			throw new IOException("Could not find sharedObjectID=" + sharedObjectID + " in readMessage"); //$NON-NLS-1$ //$NON-NLS-2$
+		input.setClassLoader(classLoader);
+		return readValue(input);
+	}
+
+	void writeValue(CompactOutput out, Object value) throws IOException {
+		if (value == null) {
+			out.write(NULL);
+			return;
+		}
+		if (out.depth >= MAX_DEPTH) {
+			writeJava(out, value);
+			return;
+		}
+		out.depth++;
+		try {
+			writeNonNull(out, value);
+		} finally {
+			out.depth--;
+		}
+	}
+
+	private void writeNonNull(CompactOutput out, Object value) throws IOException {
+		final Class<?> type = value.getClass();
+		if (type == String.class) {
+			out.write(STRING);
+			out.writeString((String) value);
+		} else if (type == Integer.class) {
+			out.write(INT);
+			out.writeVarInt(zigzag(((Integer) value).intValue()));
+		} else if (type == Long.class) {
+			out.write(LONG);
+			out.writeVarLong(zigzag(((Long) value).longValue()));
+		} else if (type == Boolean.class) {
+			out.write(((Boolean) value).booleanValue() ? TRUE : FALSE);
+		} else if (type == Double.class) {
+			out.write(DOUBLE);
+			out.writeDouble(((Double) value).doubleValue());
+		} else if (type == Float.class) {
+			out.write(FLOAT);
+			out.writeFloat(((Float) value).floatValue());
+		} else if (type == Byte.class) {
+			out.write(BYTE);
+			out.write(((Byte) value).byteValue());
+		} else if (type == Short.class) {
+			out.write(SHORT);
+			out.writeShort(((Short) value).shortValue());
+		} else if (type == Character.class) {
+			out.write(CHAR);
+			out.writeChar(((Character) value).charValue());
+		} else if (type == StringID.class && isCompact(((ID) value).getName(), STRINGID_PREFIX)) {
+			out.write(STRING_ID);
+			out.writeName(((ID) value).getName());
+		} else if (type == GUID.class && isCompact(((ID) value).getName(), GUID_PREFIX)) {
+			out.write(GUID_ID);
+			out.writeName(((ID) value).getName());
+		} else if (type.isArray())
+			writeArray(out, value, type.getComponentType());
+		else if (type == ArrayList.class)
+			writeCollection(out, ARRAY_LIST, (Collection<?>) value);
+		else if (type == HashMap.class)
+			writeMap(out, HASH_MAP, (Map<?, ?>) value);
+		else if (type == LinkedHashMap.class)
+			writeMap(out, LINKED_HASH_MAP, (Map<?, ?>) value);
+		else if (type == Hashtable.class)
+			writeMap(out, HASHTABLE, (Map<?, ?>) value);
+		else if (type == HashSet.class)
+			writeCollection(out, HASH_SET, (Collection<?>) value);
+		else if (type == LinkedHashSet.class)
+			writeCollection(out, LINKED_HASH_SET, (Collection<?>) value);
+		else {
+			final ITypeCodec typeCodec = typeCodecs.get(type);
+			if (typeCodec != null) {
+				out.write(TYPED);
+				out.writeName(typeCodec.getTypeName());
+				typeCodec.write(out, value);
+			} else
+				writeJava(out, value);
+		}
+	}
+
+	private void writeArray(CompactOutput out, Object value, Class<?> componentType) throws IOException {
+		if (componentType == byte.class) {
+			final byte[] bytes = (byte[]) value;
+			out.write(BYTES);
+			out.writeVarInt(bytes.length);
+			out.write(bytes);
+		} else if (componentType == int.class) {
+			final int[] ints = (int[]) value;
+			out.write(INTS);
+			out.writeVarInt(ints.length);
+			for (int i = 0; i < ints.length; i++)
+				out.writeVarInt(zigzag(ints[i]));
+		} else if (componentType == long.class) {
+			final long[] longs = (long[]) value;
+			out.write(LONGS);
+			out.writeVarInt(longs.length);
+			for (int i = 0; i < longs.length; i++)
+				out.writeVarLong(zigzag(longs[i]));
+		} else if (componentType == double.class) {
+			final double[] doubles = (double[]) value;
+			out.write(DOUBLES);
+			out.writeVarInt(doubles.length);
+			for (int i = 0; i < doubles.length; i++)
+				out.writeDouble(doubles[i]);
+		} else if (!componentType.isPrimitive()) {
+			final Object[] objects = (Object[]) value;
+			out.write(OBJECTS);
+			out.writeName(componentType.getName());
+			out.writeVarInt(objects.length);
+			for (int i = 0; i < objects.length; i++)
+				writeValue(out, objects[i]);
+		} else
+			writeJava(out, value);
+	}
+
+	private void writeCollection(CompactOutput out, byte tag, Collection<?> collection) throws IOException {
+		out.write(tag);
+		out.writeVarInt(collection.size());
+		for (final Object element : collection)
+			writeValue(out, element);
+	}
+
+	private void writeMap(CompactOutput out, byte tag, Map<?, ?> map) throws IOException {
+		out.write(tag);
+		out.writeVarInt(map.size());
+		for (final Map.Entry<?, ?> entry : map.entrySet()) {
+			writeValue(out, entry.getKey());
+			writeValue(out, entry.getValue());
+		}
+	}
+
+	private void writeJava(CompactOutput out, Object value) throws IOException {
+		if (!(value instanceof Serializable))
+			throw new NotSerializableException(value.getClass().getName());
+		final ByteArrayOutputStream bouts = new ByteArrayOutputStream();
+		final ObjectOutputStream oos = new OSGIObjectOutputStream(bouts);
+		oos.writeObject(value);
+		oos.close();
+		out.write(JAVA);
+		out.writeVarInt(bouts.size());
+		bouts.writeTo(out);
+	}
+
+	Object readValue(CompactInput in) throws IOException, ClassNotFoundException {
+		if (in.depth >= MAX_DEPTH + 1)
+			throw new StreamCorruptedException("Compact message nested too deeply"); //$NON-NLS-1$
+		in.depth++;
+		try {
+			return readTagged(in, in.readByte());
+		} finally {
+			in.depth--;
+		}
+	}
+
+	private Object readTagged(CompactInput in, byte tag) throws IOException, ClassNotFoundException {
+		switch (tag) {
+			case NULL :
+				return null;
+			case TRUE :
+				return Boolean.TRUE;
+			case FALSE :
+				return Boolean.FALSE;
+			case BYTE :
+				return Byte.valueOf(in.readByte());
+			case SHORT :
+				return Short.valueOf(in.readShort());
+			case CHAR :
+				return Character.valueOf(in.readChar());
+			case INT :
+				return Integer.valueOf(unzigzag(in.readVarInt()));
+			case LONG :
+				return Long.valueOf(unzigzag(in.readVarLong()));
+			case FLOAT :
+				return Float.valueOf(in.readFloat());
+			case DOUBLE :
+				return Double.valueOf(in.readDouble());
+			case STRING :
+				return in.readString();
+			case BYTES : {
+				final byte[] bytes = new byte[in.readLength()];
+				in.readFully(bytes);
+				return bytes;
+			}
+			case INTS : {
+				final int[] ints = new int[in.readLength()];
+				for (int i = 0; i < ints.length; i++)
+					ints[i] = unzigzag(in.readVarInt());
+				return ints;
+			}
+			case LONGS : {
+				final long[] longs = new long[in.readLength()];
+				for (int i = 0; i < longs.length; i++)
+					longs[i] = unzigzag(in.readVarLong());
+				return longs;
+			}
+			case DOUBLES : {
+				final double[] doubles = new double[in.readLength()];
+				for (int i = 0; i < doubles.length; i++)
+					doubles[i] = in.readDouble();
+				return doubles;
+			}
+			case OBJECTS : {
+				final Class<?> componentType = in.loadClass(in.readName());
+				final Object[] objects = (Object[]) Array.newInstance(componentType, in.readLength());
+				for (int i = 0; i < objects.length; i++)
+					objects[i] = readValue(in);
+				return objects;
+			}
+			case ARRAY_LIST : {
+				final int size = in.readLength();
+				return readElements(in, new ArrayList<Object>(size), size);
+			}
+			case HASH_SET : {
+				final int size = in.readLength();
+				return readElements(in, new HashSet<Object>(capacity(size)), size);
+			}
+			case LINKED_HASH_SET : {
+				final int size = in.readLength();
+				return readElements(in, new LinkedHashSet<Object>(capacity(size)), size);
+			}
+			case HASH_MAP : {
+				final int size = in.readLength();
+				return readEntries(in, new HashMap<Object, Object>(capacity(size)), size);
+			}
+			case LINKED_HASH_MAP : {
+				final int size = in.readLength();
+				return readEntries(in, new LinkedHashMap<Object, Object>(capacity(size)), size);
+			}
+			case HASHTABLE : {
+				final int size = in.readLength();
+				return readEntries(in, new Hashtable<Object, Object>(capacity(size)), size);
+			}
+			case STRING_ID :
+				return getID(tag, in.readName());
+			case GUID_ID :
+				return getID(tag, in.readName());
+			case TYPED : {
+				final String typeName = in.readName();
+				final ITypeCodec typeCodec = typeCodecsByName.get(typeName);
+				if (typeCodec == null)
+					throw new ClassNotFoundException("No type codec for " + typeName); //$NON-NLS-1$
+				return typeCodec.read(in);
+			}
+			case JAVA :
+				return readJava(in);
+			default :
+				throw new StreamCorruptedException("Invalid compact value tag " + tag); //$NON-NLS-1$
+		}
+	}
+
+	private Collection<Object> readElements(CompactInput in, Collection<Object> collection, int size) throws IOException, ClassNotFoundException {
+		for (int i = 0; i < size; i++)
+			collection.add(readValue(in));
+		return collection;
+	}
+
+	private Map<Object, Object> readEntries(CompactInput in, Map<Object, Object> map, int size) throws IOException, ClassNotFoundException {
+		for (int i = 0; i < size; i++)
+			map.put(readValue(in), readValue(in));
+		return map;
+	}
+
+	private Object readJava(CompactInput in) throws IOException, ClassNotFoundException {
+		final InputStream bytes = in.readStream(in.readLength());
+		final BundleContext context = ProviderPlugin.getDefault().getContext();
+		final Bundle bundle = (context == null) ? null : context.getBundle();
+		final OSGIObjectInputStream oins = new OSGIObjectInputStream(bundle, bytes);
+		if (in.getClassLoader() != null)
+			oins.setClassLoader(in.getClassLoader());
+		final Object result = oins.readObject();
+		oins.close();
+		return result;
+	}
+
+	private static ID getID(byte tag, String name) throws IOException {
+		final String key = tag + name;
+		ID result = idCache.get(key);
+		if (result != null)
+			return result;
+		try {
+			result = (tag == STRING_ID) ? IDFactory.getDefault().createStringID(name) : IDFactory.getDefault().createID(GUID.class.getName(), name);
+		} catch (final IDCreateException e) {
+			throw new IOException("Could not create ID for name=" + name, e); //$NON-NLS-1$
+		}
+		if (idCache.size() >= MAX_CACHED_IDS)
+			idCache.clear();
+		idCache.put(key, result);
+		return result;
+	}
+
+	private static boolean isCompact(String name, String schemePrefix) {
+		// Names starting with the namespace scheme would not be recreated as is by the namespace
+		return name != null && !name.startsWith(schemePrefix);
+	}
+
+	private static int capacity(int size) {
+		return Math.max(size * 4 / 3 + 1, 16);
+	}
+
+	private static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public String toString() {
+		return "CompactMessageCodec[" + NAME + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	static final class SharedObjectMsgCodec implements ITypeCodec {
+		public Class<?> getType() {
+			return SharedObjectMsg.class;
+		}
+
+		public String getTypeName() {
+			return SharedObjectMsg.class.getName();
+		}
+
+		public void write(CompactOutput out, Object value) throws IOException {
+			final SharedObjectMsg msg = (SharedObjectMsg) value;
+			out.writeValue(msg.getClassName());
+			out.writeValue(msg.getMethod());
+			out.writeValue(msg.getParameters());
+		}
+
+		public Object read(CompactInput in) throws IOException, ClassNotFoundException {
+			final String className = (String) in.readValue();
+			final String method = (String) in.readValue();
+			final Object[] parameters = (Object[]) in.readValue();
+			return SharedObjectMsg.createMsg(className, method, (parameters == null) ? new Object[0] : parameters);
+		}
+	}
+
+	static final class SharedObjectMsgEventCodec implements ITypeCodec {
+		public Class<?> getType() {
+			return SharedObjectMsgEvent.class;
+		}
+
+		public String getTypeName() {
+			return SharedObjectMsgEvent.class.getName();
+		}
+
+		public void write(CompactOutput out, Object value) throws IOException {
+			final SharedObjectMsgEvent event = (SharedObjectMsgEvent) value;
+			out.writeValue(event.getSenderSharedObjectID());
+			out.writeValue(event.getRemoteContainerID());
+			out.writeValue(event.getSharedObjectMsg());
+		}
+
+		public Object read(CompactInput in) throws IOException, ClassNotFoundException {
+			final ID sender = (ID) in.readValue();
+			final ID remoteContainer = (ID) in.readValue();
+			return new SharedObjectMsgEvent(sender, remoteContainer, (SharedObjectMsg) in.readValue());
+		}
+	}
+}
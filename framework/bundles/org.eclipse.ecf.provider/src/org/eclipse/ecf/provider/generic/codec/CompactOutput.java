@@ -0,0 +1,198 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.generic.codec;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Output that values are written to by a {@link CompactMessageCodec} and its {@link ITypeCodec}s.
+ * Values are collected in an unsynchronized buffer, since most of them are only a few bytes long.
+ *
+ * @since 4.11
+ */
+public class CompactOutput extends OutputStream implements DataOutput {
+
+	private final CompactMessageCodec codec;
+	// Names already written to this output, by index
+	private final Map<String, Integer> names = new HashMap<String, Integer>();
+	private byte[] buf = new byte[256];
+	private int count;
+	int depth;
+
+	CompactOutput(CompactMessageCodec codec) {
+		this.codec = codec;
+	}
+
+	private void ensureCapacity(int length) {
+		if (count + length > buf.length)
+			buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + length));
+	}
+
+	public void write(int b) {
+		ensureCapacity(1);
+		buf[count++] = (byte) b;
+	}
+
+	public void write(byte[] b, int off, int len) {
+		ensureCapacity(len);
+		System.arraycopy(b, off, buf, count, len);
+		count += len;
+	}
+
+	public void write(byte[] b) {
+		write(b, 0, b.length);
+	}
+
+	public void writeBoolean(boolean v) {
+		write(v ? 1 : 0);
+	}
+
+	public void writeByte(int v) {
+		write(v);
+	}
+
+	public void writeShort(int v) {
+		ensureCapacity(2);
+		buf[count++] = (byte) (v >>> 8);
+		buf[count++] = (byte) v;
+	}
+
+	public void writeChar(int v) {
+		writeShort(v);
+	}
+
+	public void writeInt(int v) {
+		ensureCapacity(4);
+		buf[count++] = (byte) (v >>> 24);
+		buf[count++] = (byte) (v >>> 16);
+		buf[count++] = (byte) (v >>> 8);
+		buf[count++] = (byte) v;
+	}
+
+	public void writeLong(long v) {
+		writeInt((int) (v >>> 32));
+		writeInt((int) v);
+	}
+
+	public void writeFloat(float v) {
+		writeInt(Float.floatToIntBits(v));
+	}
+
+	public void writeDouble(double v) {
+		writeLong(Double.doubleToLongBits(v));
+	}
+
+	public void writeBytes(String s) {
+		final int length = s.length();
+		ensureCapacity(length);
+		for (int i = 0; i < length; i++)
+			buf[count++] = (byte) s.charAt(i);
+	}
+
+	public void writeChars(String s) {
+		final int length = s.length();
+		for (int i = 0; i < length; i++)
+			writeChar(s.charAt(i));
+	}
+
+	public void writeUTF(String s) throws IOException {
+		new DataOutputStream(this).writeUTF(s);
+	}
+
+	/**
+	 * Write a non negative int in one to five bytes.
+	 *
+	 * @param value the value to write
+	 */
+	public void writeVarInt(int value) {
+		ensureCapacity(5);
+		while ((value & ~0x7F) != 0) {
+			buf[count++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buf[count++] = (byte) value;
+	}
+
+	/**
+	 * Write a non negative long in one to ten bytes.
+	 *
+	 * @param value the value to write
+	 */
+	public void writeVarLong(long value) {
+		ensureCapacity(10);
+		while ((value & ~0x7FL) != 0) {
+			buf[count++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buf[count++] = (byte) value;
+	}
+
+	/**
+	 * Write a string as its UTF-8 length and bytes.
+	 *
+	 * @param value the string to write.  Must not be <code>null</code>.
+	 */
+	public void writeString(String value) {
+		final int length = value.length();
+		for (int i = 0; i < length; i++) {
+			if (value.charAt(i) >= 0x80) {
+				final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				writeVarInt(bytes.length);
+				write(bytes);
+				return;
+			}
+		}
+		writeVarInt(length);
+		writeBytes(value);
+	}
+
+	/**
+	 * Write a name, such as a class name, that is likely to be repeated in the message.  Only the
+	 * first occurrence is written as a string, and later ones as a reference to it.
+	 *
+	 * @param name the name to write.  Must not be <code>null</code>.
+	 */
+	public void writeName(String name) {
+		final Integer index = names.get(name);
+		if (index != null) {
+			writeVarInt(index.intValue() + 1);
+			return;
+		}
+		names.put(name, Integer.valueOf(names.size()));
+		writeVarInt(0);
+		writeString(name);
+	}
+
+	/**
+	 * Write any value, using Java serialization only for values the codec has no encoding for.
+	 *
+	 * @param value the value to write.  May be <code>null</code>.
+	 * @throws IOException if the value cannot be written
+	 */
+	public void writeValue(Object value) throws IOException {
+		codec.writeValue(this, value);
+	}
+
+	/**
+	 * @return the number of bytes written
+	 */
+	public int size() {
+		return count;
+	}
+
+	void writeTo(OutputStream out) throws IOException {
+		out.write(buf, 0, count);
+	}
+}
@@ -0,0 +1,82 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.generic.codec;
+
+import java.io.*;
+import java.util.function.Function;
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.sharedobject.util.ISharedObjectMessageSerializer;
+
+/**
+ * Connection level codec for shared object messages.  Containers of the generic provider
+ * offer the names of their enabled codecs when connecting, and the server picks one
+ * of them for the connection.  Shared object messages between the client and the server
+ * are then written with that codec instead of Java serialization.
+ * <p>
+ * Codecs are found by name, either the built in {@link CompactMessageCodec} or
+ * codecs registered as OSGi services under this interface.  Both peers of a
+ * connection must have the codec with the same name, and messages written by a
+ * codec must start with bytes that cannot start a Java serialization stream, so
+ * that {@link #isEncoded(byte[], int, int)} can tell them apart.
+ *
+ * @since 4.11
+ */
+public interface IMessageCodec extends ISharedObjectMessageSerializer {
+
+	/**
+	 * @return the name this codec is negotiated with.  Must not be <code>null</code>.
+	 */
+	public String getName();
+
+	/**
+	 * @param bytes the message bytes
+	 * @param offset offset of the message in bytes
+	 * @param length length of the message
+	 * @return true if the message was written by this codec
+	 */
+	public boolean isEncoded(byte[] bytes, int offset, int length);
+
+	/**
+	 * Write a shared object message.
+	 *
+	 * @param out the stream to write to
+	 * @param sharedObjectID the ID of the sending (and receiving) shared object
+	 * @param message the message to write
+	 * @throws IOException if the message cannot be written
+	 */
+	public void writeMessage(OutputStream out, ID sharedObjectID, Object message) throws IOException;
+
+	/**
+	 * Read a shared object message written by {@link #writeMessage(OutputStream, ID, Object)}.
+	 *
+	 * @param bytes the message bytes
+	 * @param offset offset of the message in bytes
+	 * @param length length of the message
+	 * @param classLoaders gives the class loader to load the message classes with for the shared
+	 * object ID read from the message, or <code>null</code> if the shared object is not known
+	 * @return the message
+	 * @throws IOException if the message cannot be read
+	 * @throws ClassNotFoundException if a class of the message cannot be loaded
+	 */
+	public Object readMessage(byte[] bytes, int offset, int length, Function<ID, ClassLoader> classLoaders) throws IOException, ClassNotFoundException;
+
+	default byte[] serializeMessage(ID sharedObjectID, Object message) throws IOException {
+		final ByteArrayOutputStream bouts = new ByteArrayOutputStream();
+		writeMessage(bouts, sharedObjectID, message);
+		return bouts.toByteArray();
+	}
+
+	default Object deserializeMessage(byte[] data) throws IOException, ClassNotFoundException {
+		return readMessage(data, 0, data.length, id -> getClass().getClassLoader());
+	}
+}
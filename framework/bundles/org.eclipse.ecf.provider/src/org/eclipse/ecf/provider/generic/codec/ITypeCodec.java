@@ -0,0 +1,51 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.generic.codec;
+
+import java.io.IOException;
+
+/**
+ * Writes and reads the values of one class with a {@link CompactMessageCodec}.  Type
+ * codecs are registered with {@link CompactMessageCodec#addTypeCodec(ITypeCodec)}, and
+ * must be registered under the same type name on all peers using the codec.
+ *
+ * @since 4.11
+ */
+public interface ITypeCodec {
+
+	/**
+	 * @return the class whose instances this codec writes.  Only instances of exactly this
+	 * class are written with this codec, instances of subclasses are not.
+	 */
+	public Class<?> getType();
+
+	/**
+	 * @return the name the type is written as.  Usually the class name.
+	 */
+	public String getTypeName();
+
+	/**
+	 * @param out the output to write to
+	 * @param value the value to write.  Will not be <code>null</code>.
+	 * @throws IOException if the value cannot be written
+	 */
+	public void write(CompactOutput out, Object value) throws IOException;
+
+	/**
+	 * @param in the input to read from
+	 * @return the value read
+	 * @throws IOException if the value cannot be read
+	 * @throws ClassNotFoundException if a class of the value cannot be loaded
+	 */
+	public Object read(CompactInput in) throws IOException, ClassNotFoundException;
+}
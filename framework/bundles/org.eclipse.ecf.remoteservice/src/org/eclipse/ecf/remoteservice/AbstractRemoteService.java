@@ -145,7 +145,26 @@ public abstract class AbstractRemoteService extends AbstractAsyncProxyRemoteServ
 		return callAsync((IRemoteCall) call);
 	}
 
+	/**
+	 * Whether {@link #callAsync(IRemoteCall, IRemoteCallListener)} sends the call and returns without
+	 * waiting for the response, and notifies the listener when the response is received.  If it does,
+	 * the IFuture and Future returned by {@link #callAsync(IRemoteCall)} and {@link #callFutureAsync(IRemoteCall)}
+	 * are completed by the listener, rather than by a thread of an executor that waits for {@link #callSync(IRemoteCall)}.
+	 * The default is <code>false</code>, and providers override this to return <code>true</code>.
+	 *
+	 * @return true if callAsync with a listener does not block
+	 * @since 8.16
+	 */
+	protected boolean isCallAsyncNonBlocking() {
+		return false;
+	}
+
 	public IFuture callAsync(final IRemoteCall call) {
+		if (isCallAsyncNonBlocking()) {
+			final RemoteCallFuture future = new RemoteCallFuture();
+			callAsync(call, future);
+			return future;
+		}
 		IExecutor executor = getIFutureExecutor(call);
 		if (executor == null)
 			throw new ServiceException("iFuture executor is null.  Cannot callAsync remote method=" + call.getMethod()); //$NON-NLS-1$
@@ -637,6 +656,21 @@ public abstract class AbstractRemoteService extends AbstractAsyncProxyRemoteServ
 	 * @return Future future result
 	 */
 	protected Future callFutureAsync(final IRemoteCall call) {
+		if (isCallAsyncNonBlocking()) {
+			final CompletableFuture<Object> future = new CompletableFuture<Object>();
+			callAsync(call, new IRemoteCallListener() {
+				public void handleEvent(IRemoteCallEvent event) {
+					if (event instanceof IRemoteCallCompleteEvent) {
+						IRemoteCallCompleteEvent cce = (IRemoteCallCompleteEvent) event;
+						if (cce.hadException())
+							future.completeExceptionally(cce.getException());
+						else
+							future.complete(cce.getResponse());
+					}
+				}
+			});
+			return future;
+		}
 		ExecutorService executorService = getFutureExecutorService(call);
 		if (executorService == null)
 			throw new ServiceException("future executor service is null.  .  Cannot callAsync remote method=" + call.getMethod()); //$NON-NLS-1$
@@ -647,6 +681,21 @@ public abstract class AbstractRemoteService extends AbstractAsyncProxyRemoteServ
 		});
 	}
 
+	/**
+	 * IFuture completed by the complete event of a remote call.
+	 */
+	static class RemoteCallFuture extends SingleOperationFuture implements IRemoteCallListener {
+		public void handleEvent(IRemoteCallEvent event) {
+			if (event instanceof IRemoteCallCompleteEvent) {
+				IRemoteCallCompleteEvent cce = (IRemoteCallCompleteEvent) event;
+				if (cce.hadException())
+					setException(cce.getException());
+				else
+					set(cce.getResponse());
+			}
+		}
+	}
+
 	/**
 	 * @since 3.3
 	 * @param method method 
@@ -0,0 +1,185 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *   Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.internal.osgi.services.remoteserviceadmin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the endpoint description properties parsed from EDEF documents,
+ * keyed by the SHA-256 hash of the document content, so that documents that
+ * are read again unchanged, such as on every discovery refresh, are not parsed
+ * again. The least recently used documents are evicted once the cache holds
+ * the maximum number of documents.
+ */
+public class EndpointDescriptionParseCache {
+
+	private final int maxEntries;
+
+	// Guarded by itself
+	private final Map<String, List<Map<String, Object>>> cache;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param maxEntries
+	 *            the maximum number of documents cached. With <code>0</code>
+	 *            nothing is cached.
+	 */
+	public EndpointDescriptionParseCache(final int maxEntries) {
+		this.maxEntries = maxEntries;
+		this.cache = new LinkedHashMap<String, List<Map<String, Object>>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<String, List<Map<String, Object>>> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Parse the endpoint descriptions in the given EDEF document, or get them
+	 * from the cache if a document with the same content was parsed before.
+	 *
+	 * @param input
+	 *            the document. Closed when read.
+	 * @return the properties of each endpoint description in the document.
+	 *         The maps and their multi-value properties are copies that the
+	 *         caller may modify.
+	 * @throws IOException
+	 *             if the document cannot be read or parsed
+	 */
+	public List<Map<String, Object>> parse(InputStream input) throws IOException {
+		if (maxEntries <= 0)
+			return parse0(input);
+		byte[] content = readFully(input);
+		String key = hash(content);
+		List<Map<String, Object>> parsed;
+		synchronized (cache) {
+			parsed = cache.get(key);
+		}
+		if (parsed != null)
+			hits.incrementAndGet();
+		else {
+			misses.incrementAndGet();
+			parsed = parse0(new ByteArrayInputStream(content));
+			synchronized (cache) {
+				cache.put(key, parsed);
+			}
+		}
+		return copy(parsed);
+	}
+
+	private static List<Map<String, Object>> parse0(InputStream input) throws IOException {
+		EndpointDescriptionParser parser = new EndpointDescriptionParser();
+		parser.parse(input);
+		List<EndpointDescriptionParser.EndpointDescription> eds = parser.getEndpointDescriptions();
+		List<Map<String, Object>> results = new ArrayList<Map<String, Object>>(eds.size());
+		for (EndpointDescriptionParser.EndpointDescription ed : eds)
+			results.add(ed.getProperties());
+		return results;
+	}
+
+	private static byte[] readFully(InputStream input) throws IOException {
+		try {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream(4096);
+			byte[] buf = new byte[4096];
+			int count;
+			while ((count = input.read(buf)) != -1)
+				bos.write(buf, 0, count);
+			return bos.toByteArray();
+		} finally {
+			input.close();
+		}
+	}
+
+	private static String hash(byte[] content) throws IOException {
+		byte[] digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256").digest(content); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("SHA-256 not available"); //$NON-NLS-1$
+		}
+		StringBuilder sb = new StringBuilder(digest.length * 2);
+		for (int i = 0; i < digest.length; i++) {
+			int b = digest[i] & 0xff;
+			if (b < 16)
+				sb.append('0');
+			sb.append(Integer.toHexString(b));
+		}
+		return sb.toString();
+	}
+
+	private static List<Map<String, Object>> copy(List<Map<String, Object>> parsed) {
+		List<Map<String, Object>> results = new ArrayList<Map<String, Object>>(parsed.size());
+		for (Map<String, Object> properties : parsed) {
+			Map<String, Object> result = new TreeMap<String, Object>(String.CASE_INSENSITIVE_ORDER);
+			for (Iterator<Map.Entry<String, Object>> i = properties.entrySet().iterator(); i.hasNext();) {
+				Map.Entry<String, Object> e = i.next();
+				result.put(e.getKey(), copyValue(e.getValue()));
+			}
+			results.add(result);
+		}
+		return results;
+	}
+
+	private static Object copyValue(Object value) {
+		if (value instanceof Object[])
+			return ((Object[]) value).clone();
+		else if (value instanceof List)
+			return new ArrayList<Object>((List<?>) value);
+		else if (value instanceof Set)
+			return new HashSet<Object>((Set<?>) value);
+		// Strings and wrappers are immutable
+		return value;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	public void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	public String toString() {
+		return "EndpointDescriptionParseCache[size=" + size() + ";hits=" + getHits() + ";misses=" + getMisses() //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ "]"; //$NON-NLS-1$
+	}
+}
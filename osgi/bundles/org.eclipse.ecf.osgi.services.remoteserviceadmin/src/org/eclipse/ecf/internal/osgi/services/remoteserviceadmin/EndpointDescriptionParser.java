@@ -16,25 +16,22 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.TreeMap;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-
-import org.xml.sax.Attributes;
-import org.xml.sax.ContentHandler;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
-import org.xml.sax.helpers.DefaultHandler;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
+/**
+ * Parser for the Endpoint Description Extender Format (section 122.8 of the
+ * OSGi enterprise specification). The document is read in a single pass with
+ * a StAX stream reader.
+ */
 public class EndpointDescriptionParser {
 
 	private static List<String> multiValueTypes;
@@ -57,321 +54,23 @@ public class EndpointDescriptionParser {
 	private static final String ENDPOINT_PROPERTY_SET = "set"; //$NON-NLS-1$
 	private static final String ENDPOINT_PROPERTY_XML = "xml"; //$NON-NLS-1$
 
-	public static String[] noAttributes = new String[0];
-
-	private XMLReader xmlReader;
-
-	class IgnoringHandler extends AbstractHandler {
-		public IgnoringHandler(AbstractHandler parent) {
-			super(parent);
-			this.elementHandled = "IgnoringAll"; //$NON-NLS-1$
-		}
-
-		public void startElement(String name, Attributes attributes) {
-			noSubElements(name, attributes);
-		}
-	}
-
-	/**
-	 * Abstract base class for content handlers
-	 */
-	abstract class AbstractHandler extends DefaultHandler {
-
-		protected ContentHandler parentHandler = null;
-		protected String elementHandled = null;
-
-		protected StringBuffer characters = null; // character data inside an
-													// element
-
-		public AbstractHandler() {
-			// Empty constructor for a root handler
-		}
-
-		public AbstractHandler(ContentHandler parentHandler) {
-			this.parentHandler = parentHandler;
-			xmlReader.setContentHandler(this);
-		}
-
-		public AbstractHandler(ContentHandler parentHandler,
-				String elementHandled) {
-			this.parentHandler = parentHandler;
-			xmlReader.setContentHandler(this);
-			this.elementHandled = elementHandled;
-		}
-
-		public void startElement(String uri, String localName, String qName,
-				Attributes attributes) throws SAXException {
-			finishCharacters();
-			String name = makeSimpleName(localName, qName);
-			startElement(name, attributes);
-		}
-
-		public abstract void startElement(String name, Attributes attributes)
-				throws SAXException;
-
-		public void invalidElement(String name, Attributes attributes) {
-			unexpectedElement(this, name, attributes);
-			new IgnoringHandler(this);
-		}
-
-		public void endElement(String namespaceURI, String localName,
-				String qName) {
-			finishCharacters();
-			finished();
-			// Restore the parent content handler
-			xmlReader.setContentHandler(parentHandler);
-		}
-
-		/**
-		 * An implementation for startElement when there are no sub-elements
-		 */
-		protected void noSubElements(String name, Attributes attributes) {
-			unexpectedElement(this, name, attributes);
-			// Create a new handler to ignore subsequent nested elements
-			new IgnoringHandler(this);
-		}
-
-		/*
-		 * Save up character data until endElement or nested startElement
-		 * 
-		 * @see org.xml.sax.ContentHandler#characters
-		 */
-		public void characters(char[] chars, int start, int length) {
-			if (this.characters == null) {
-				this.characters = new StringBuffer();
-			}
-			this.characters.append(chars, start, length);
-		}
+	private static XMLInputFactory inputFactory;
 
-		// Consume the characters accumulated in this.characters.
-		// Called before startElement or endElement
-		private String finishCharacters() {
-			// common case -- no characters or only whitespace
-			if (this.characters == null || this.characters.length() == 0) {
-				return null;
-			}
-			if (allWhiteSpace(this.characters)) {
-				this.characters.setLength(0);
-				return null;
-			}
-
-			// process the characters
+	private static synchronized XMLInputFactory getInputFactory() {
+		if (inputFactory == null) {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+			factory.setProperty(XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
+			factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
 			try {
-				String trimmedChars = this.characters.toString().trim();
-				if (trimmedChars.length() == 0) {
-					// this shouldn't happen due to the test for allWhiteSpace
-					// above
-					System.err.println("Unexpected non-whitespace characters: " //$NON-NLS-1$
-							+ trimmedChars);
-					return null;
-				}
-				processCharacters(trimmedChars);
-				return trimmedChars;
-			} finally {
-				this.characters.setLength(0);
-			}
-		}
-
-		// Method to override in the handler of an element with CDATA.
-		protected void processCharacters(String data) {
-			if (data.length() > 0)
-				unexpectedCharacterData(this, data);
-		}
-
-		private boolean allWhiteSpace(StringBuffer sb) {
-			int length = sb.length();
-			for (int i = 0; i < length; i += 1)
-				if (!Character.isWhitespace(sb.charAt(i)))
-					return false;
-			return true;
-		}
-
-		/**
-		 * Called when this element and all elements nested into it have been
-		 * handled.
-		 */
-		protected void finished() {
-			// Do nothing by default
-		}
-
-		/*
-		 * A name used to identify the handler.
-		 */
-		public String getName() {
-			return (elementHandled != null ? elementHandled : "NoName"); //$NON-NLS-1$
-		}
-
-		/**
-		 * Parse the attributes of an element with only required attributes.
-		 */
-		protected String[] parseRequiredAttributes(Attributes attributes,
-				String[] required) {
-			return parseAttributes(attributes, required, noAttributes);
-		}
-
-		/**
-		 * Parse the attributes of an element with a single optional attribute.
-		 */
-		protected String parseOptionalAttribute(Attributes attributes,
-				String name) {
-			return parseAttributes(attributes, noAttributes,
-					new String[] { name })[0];
-		}
-
-		/**
-		 * Parse the attributes of an element, given the list of required and
-		 * optional ones. Return values in same order, null for those not
-		 * present. Log warnings for extra attributes or missing required
-		 * attributes.
-		 */
-		protected String[] parseAttributes(Attributes attributes,
-				String[] required, String[] optional) {
-			String[] result = new String[required.length + optional.length];
-			for (int i = 0; i < attributes.getLength(); i += 1) {
-				String name = attributes.getLocalName(i);
-				String value = attributes.getValue(i).trim();
-				int j;
-				if ((j = indexOf(required, name)) >= 0)
-					result[j] = value;
-				else if ((j = indexOf(optional, name)) >= 0)
-					result[required.length + j] = value;
-				else
-					unexpectedAttribute(elementHandled, name, value);
-			}
-			for (int i = 0; i < required.length; i += 1)
-				checkRequiredAttribute(elementHandled, required[i], result[i]);
-			return result;
-		}
-
-	}
-
-	SAXParser getParser() throws ParserConfigurationException, SAXException {
-		Activator a = Activator.getDefault();
-		if (a == null)
-			return null;
-
-		SAXParserFactory factory = a.getSAXParserFactory();
-		if (factory == null)
-			throw new SAXException("Unable to acquire sax parser"); //$NON-NLS-1$
-		factory.setNamespaceAware(true);
-		factory.setValidating(false);
-		try {
-			factory.setFeature(
-					"http://xml.org/sax/features/string-interning", true); //$NON-NLS-1$
-		} catch (SAXException se) {
-			// some parsers may not support string interning
-		}
-		SAXParser theParser = factory.newSAXParser();
-		if (theParser == null) {
-			throw new SAXException("Unable to create sax parser"); //$NON-NLS-1$
-		}
-		xmlReader = theParser.getXMLReader();
-		return theParser;
-	}
-
-	abstract class RootHandler extends AbstractHandler {
-
-		public RootHandler() {
-			super();
-		}
-
-		public void initialize(DocHandler document, String rootName,
-				Attributes attributes) {
-			this.parentHandler = document;
-			this.elementHandled = rootName;
-			handleRootAttributes(attributes);
-		}
-
-		protected abstract void handleRootAttributes(Attributes attributes);
-
-	}
-
-	class DocHandler extends AbstractHandler {
-
-		RootHandler rootHandler;
-
-		public DocHandler(String rootName, RootHandler rootHandler) {
-			super(null, rootName);
-			this.rootHandler = rootHandler;
-		}
-
-		public void startElement(String name, Attributes attributes) {
-			if (name.equals(elementHandled)) {
-				rootHandler.initialize(this, name, attributes);
-				xmlReader.setContentHandler(rootHandler);
-			} else
-				noSubElements(name, attributes);
-		}
-
-	}
-
-	class EndpointDescriptionDocHandler extends DocHandler {
-
-		public EndpointDescriptionDocHandler(String rootName,
-				RootHandler rootHandler) {
-			super(rootName, rootHandler);
-		}
-
-		public void processingInstruction(String target, String data)
-				throws SAXException {
-			// do nothing
-		}
-	}
-
-	class EndpointDescriptionsHandler extends RootHandler {
-
-		private List<EndpointDescription> endpointDescriptions = new ArrayList<EndpointDescription>();
-
-		protected void handleRootAttributes(Attributes attributes) {
-		}
-
-		public void startElement(String name, Attributes attributes)
-				throws SAXException {
-			if (ENDPOINT_DESCRIPTION.equals(name))
-				new EndpointDescriptionHandler(this, attributes,
-						endpointDescriptions);
-			else
-				invalidElement(name, attributes);
-		}
-
-		public void endElement(String namespaceURI, String localName,
-				String qName) {
-			if (elementHandled.equals(localName))
-				super.endElement(namespaceURI, localName, qName);
-		}
-
-		public List<EndpointDescription> getEndpointDescriptions() {
-			return endpointDescriptions;
-		}
-	}
-
-	class EndpointDescriptionHandler extends AbstractHandler {
-
-		private Map<String, Object> properties;
-		private List<EndpointDescription> descriptions;
-
-		public EndpointDescriptionHandler(ContentHandler parentHandler,
-				Attributes attributes, List<EndpointDescription> descriptions) {
-			super(parentHandler, ENDPOINT_DESCRIPTION);
-			this.properties = new TreeMap<String, Object>(
-					String.CASE_INSENSITIVE_ORDER);
-			this.descriptions = descriptions;
-		}
-
-		public void startElement(String name, Attributes attributes)
-				throws SAXException {
-			if (ENDPOINT_PROPERTY.equals(name))
-				new EndpointPropertyHandler(this, attributes, properties);
-		}
-
-		public void endElement(String namespaceURI, String localName,
-				String qName) {
-			if (elementHandled.equals(localName)) {
-				descriptions.add(new EndpointDescription(properties));
-				super.endElement(namespaceURI, localName, qName);
+				factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+			} catch (IllegalArgumentException e) {
+				// some implementations may not support this property
 			}
+			inputFactory = factory;
 		}
-
+		// The factory is thread safe once configured
+		return inputFactory;
 	}
 
 	private Object createValue(String valueType, String value) {
@@ -403,353 +102,323 @@ public class EndpointDescriptionParser {
 		return null;
 	}
 
-	abstract class MultiValueHandler extends AbstractHandler {
-
-		protected String valueType;
-
-		public MultiValueHandler(ContentHandler parentHandler,
-				String elementHandled, String valueType) {
-			super(parentHandler, elementHandled);
-			this.valueType = valueType;
-		}
-
-		public void startElement(String name, Attributes attributes)
-				throws SAXException {
-			if (ENDPOINT_PROPERTY_VALUE.equals(name))
-				characters = new StringBuffer();
-		}
-
-		public void endElement(String namespaceURI, String localName,
-				String qName) {
-			if (ENDPOINT_PROPERTY_VALUE.equals(localName)) {
-				Object value = createValue(
-						valueType,
-						processValue((characters == null) ? null : characters
-								.toString()));
-				if (value != null)
-					addValue(value);
-				characters = null;
-			} else if (elementHandled.equals(localName))
-				super.endElement(namespaceURI, localName, qName);
-		}
-
-		private String processValue(String characters) {
-			if (characters == null || characters.length() == 0)
-				return null;
-			if (valueType.equals("String")) //$NON-NLS-1$
-				return characters;
-			return characters.trim();
-		}
-
-		protected abstract void addValue(Object value);
-
-		public abstract Object getValues();
-	}
-
-	class ArrayMultiValueHandler extends MultiValueHandler {
-
-		private List<Object> values = new ArrayList<Object>();
-
-		public ArrayMultiValueHandler(ContentHandler parentHandler,
-				String elementHandled, String valueType) {
-			super(parentHandler, elementHandled, valueType);
-		}
-
-		protected Object[] createEmptyArrayOfType() {
-			if (valueType.equals("String")) //$NON-NLS-1$
-				return new String[] {};
-			else if (valueType.equals("long") || valueType.equals("Long")) //$NON-NLS-1$ //$NON-NLS-2$
-				return new Long[] {};
-			else if (valueType.equals("double") || valueType.equals("Double")) //$NON-NLS-1$ //$NON-NLS-2$
-				return new Double[] {};
-			else if (valueType.equals("float") || valueType.equals("Float")) //$NON-NLS-1$ //$NON-NLS-2$
-				return new Double[] {};
-			else if (valueType.equals("int") || valueType.equals("Integer")) //$NON-NLS-1$ //$NON-NLS-2$
-				return new Integer[] {};
-			else if (valueType.equals("byte") || valueType.equals("Byte")) //$NON-NLS-1$ //$NON-NLS-2$
-				return new Byte[] {};
-			else if (valueType.equals("char") //$NON-NLS-1$
-					|| valueType.equals("Character")) //$NON-NLS-1$
-				return new Character[] {};
-			else if (valueType.equals("boolean") //$NON-NLS-1$
-					|| valueType.equals("Boolean")) //$NON-NLS-1$
-				return new Boolean[] {};
-			else if (valueType.equals("short") || valueType.equals("Short")) //$NON-NLS-1$ //$NON-NLS-2$
-				return new Short[] {};
-			else
-				return null;
-		}
-
-		public Object getValues() {
-			return values.toArray(createEmptyArrayOfType());
-		}
-
-		protected void addValue(Object value) {
-			values.add(value);
-		}
+	private Object[] createEmptyArrayOfType(String valueType) {
+		if (valueType.equals("String")) //$NON-NLS-1$
+			return new String[] {};
+		else if (valueType.equals("long") || valueType.equals("Long")) //$NON-NLS-1$ //$NON-NLS-2$
+			return new Long[] {};
+		else if (valueType.equals("double") || valueType.equals("Double")) //$NON-NLS-1$ //$NON-NLS-2$
+			return new Double[] {};
+		else if (valueType.equals("float") || valueType.equals("Float")) //$NON-NLS-1$ //$NON-NLS-2$
+			return new Float[] {};
+		else if (valueType.equals("int") || valueType.equals("Integer")) //$NON-NLS-1$ //$NON-NLS-2$
+			return new Integer[] {};
+		else if (valueType.equals("byte") || valueType.equals("Byte")) //$NON-NLS-1$ //$NON-NLS-2$
+			return new Byte[] {};
+		else if (valueType.equals("char") //$NON-NLS-1$
+				|| valueType.equals("Character")) //$NON-NLS-1$
+			return new Character[] {};
+		else if (valueType.equals("boolean") //$NON-NLS-1$
+				|| valueType.equals("Boolean")) //$NON-NLS-1$
+			return new Boolean[] {};
+		else if (valueType.equals("short") || valueType.equals("Short")) //$NON-NLS-1$ //$NON-NLS-2$
+			return new Short[] {};
+		else
+			return null;
 	}
 
-	class ListMultiValueHandler extends MultiValueHandler {
-
-		private List<Object> values = new ArrayList<Object>();
-
-		public ListMultiValueHandler(ContentHandler parentHandler,
-				String elementHandled, String valueType) {
-			super(parentHandler, elementHandled, valueType);
-		}
-
-		public Object getValues() {
-			return values;
-		}
+	public class EndpointDescription {
+		private Map<String, Object> properties;
 
-		protected void addValue(Object value) {
-			values.add(value);
+		public EndpointDescription(Map<String, Object> properties) {
+			this.properties = properties;
 		}
-	}
-
-	class SetMultiValueHandler extends MultiValueHandler {
-
-		private Set<Object> values = new HashSet<Object>();
 
-		public SetMultiValueHandler(ContentHandler parentHandler,
-				String elementHandled, String valueType) {
-			super(parentHandler, elementHandled, valueType);
+		public Map<String, Object> getProperties() {
+			return properties;
 		}
 
-		public Object getValues() {
-			return values;
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append("EndpointDescription [properties="); //$NON-NLS-1$
+			builder.append(properties);
+			builder.append("]"); //$NON-NLS-1$
+			return builder.toString();
 		}
 
-		protected void addValue(Object value) {
-			values.add(value);
-		}
 	}
 
-	class XMLValueHandler extends AbstractHandler {
-
-		private Map<String, String> nsPrefixMap = new HashMap<String, String>();
-		private StringBuffer buf;
-
-		public XMLValueHandler(ContentHandler parentHandler) {
-			super(parentHandler, ENDPOINT_PROPERTY_XML);
-			buf = new StringBuffer();
-		}
-
-		public void startPrefixMapping(String prefix, String uri)
-				throws SAXException {
-			nsPrefixMap.put(uri, prefix);
-		}
-
-		public void startElement(String uri, String localName, String qName,
-				Attributes attributes) throws SAXException {
-			buf.append("<").append(qName); //$NON-NLS-1$
-			for (Iterator<String> i = nsPrefixMap.keySet().iterator(); i
-					.hasNext();) {
-				String nsURI = (String) i.next();
-				String prefix = (String) nsPrefixMap.get(nsURI);
-				i.remove();
-				if (nsURI != null) {
-					buf.append(" xmlns"); //$NON-NLS-1$
-					if (prefix != null)
-						buf.append(":").append(prefix); //$NON-NLS-1$
-					buf.append("=\"").append(nsURI).append("\""); //$NON-NLS-1$ //$NON-NLS-2$
+	public synchronized void parse(InputStream input) throws IOException {
+		XMLStreamReader reader = null;
+		try {
+			reader = getInputFactory().createXMLStreamReader(input);
+			endpointDescriptions = parseDocument(reader);
+		} catch (XMLStreamException e) {
+			throw new IOException(e.getMessage());
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException e) {
+					// ignore
 				}
 			}
-			for (int i = 0; i < attributes.getLength(); i++) {
-				buf.append(" "); //$NON-NLS-1$
-				buf.append(attributes.getQName(i))
-						.append("=\"").append(attributes.getValue(i)).append("\""); //$NON-NLS-1$ //$NON-NLS-2$
-			}
-			buf.append(">"); //$NON-NLS-1$
-			characters = new StringBuffer();
-		}
-
-		public void startElement(String name, Attributes attributes)
-				throws SAXException {
-			// not used
+			input.close();
 		}
+	}
 
-		public void endElement(String namespaceURI, String localName,
-				String qName) {
-			if (elementHandled.equals(localName)) {
-				super.endElement(namespaceURI, localName, qName);
-			} else {
-				if (characters != null)
-					buf.append(characters);
-				buf.append("</").append(qName).append(">"); //$NON-NLS-1$ //$NON-NLS-2$
-				characters = null;
+	private List<EndpointDescription> parseDocument(XMLStreamReader reader) throws XMLStreamException {
+		List<EndpointDescription> results = new ArrayList<EndpointDescription>();
+		while (reader.hasNext()) {
+			if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+				// Documents with another root element have no endpoint
+				// descriptions
+				if (ENDPOINT_DESCRIPTIONS.equals(reader.getLocalName()))
+					parseEndpointDescriptions(reader, results);
+				break;
 			}
 		}
+		return results;
+	}
 
-		public String getXML() {
-			return buf.toString();
+	private void parseEndpointDescriptions(XMLStreamReader reader, List<EndpointDescription> results)
+			throws XMLStreamException {
+		while (nextTag(reader) == XMLStreamConstants.START_ELEMENT) {
+			if (ENDPOINT_DESCRIPTION.equals(reader.getLocalName()))
+				results.add(new EndpointDescription(parseEndpointDescription(reader)));
+			else
+				skipElement(reader);
 		}
 	}
 
-	class EndpointPropertyHandler extends AbstractHandler {
-
-		private Map<String, Object> properties;
-		private String name;
-		private String valueType = "String"; //$NON-NLS-1$
-		private Object value;
-		private MultiValueHandler multiValueHandler;
-		private XMLValueHandler xmlValueHandler;
+	private Map<String, Object> parseEndpointDescription(XMLStreamReader reader) throws XMLStreamException {
+		Map<String, Object> properties = new TreeMap<String, Object>(String.CASE_INSENSITIVE_ORDER);
+		// Property elements nested in unknown elements are read as well
+		int depth = 0;
+		while (true) {
+			int event = nextTag(reader);
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				if (ENDPOINT_PROPERTY.equals(reader.getLocalName()))
+					parseProperty(reader, properties);
+				else
+					depth++;
+			} else if (depth-- == 0)
+				return properties;
+		}
+	}
 
-		public EndpointPropertyHandler(ContentHandler parentHandler,
-				Attributes attributes, Map<String, Object> properties)
-				throws SAXException {
-			super(parentHandler, ENDPOINT_PROPERTY);
-			name = parseRequiredAttributes(attributes,
-					new String[] { ENDPOINT_PROPERTY_NAME })[0];
-			String strValue = parseOptionalAttribute(attributes,
-					ENDPOINT_PROPERTY_VALUE);
-			String vt = parseOptionalAttribute(attributes,
-					ENDPOINT_PROPERTY_VALUETYPE);
-			if (vt != null) {
+	private void parseProperty(XMLStreamReader reader, Map<String, Object> properties) throws XMLStreamException {
+		String name = null;
+		String strValue = null;
+		String valueType = "String"; //$NON-NLS-1$
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String attribute = reader.getAttributeLocalName(i);
+			if (ENDPOINT_PROPERTY_NAME.equals(attribute))
+				name = reader.getAttributeValue(i).trim();
+			else if (ENDPOINT_PROPERTY_VALUE.equals(attribute))
+				strValue = reader.getAttributeValue(i).trim();
+			else if (ENDPOINT_PROPERTY_VALUETYPE.equals(attribute)) {
+				String vt = reader.getAttributeValue(i).trim();
 				if (!multiValueTypes.contains(vt))
-					throw new SAXException("property element valueType=" + vt //$NON-NLS-1$
+					throw new XMLStreamException("property element valueType=" + vt //$NON-NLS-1$
 							+ " not allowed"); //$NON-NLS-1$
-				this.valueType = vt;
-			}
-			this.properties = properties;
-			if (strValue != null) {
-				value = createValue(this.valueType, strValue);
-				if (isValidProperty(name, value))
-					this.properties.put(name, value);
+				valueType = vt;
 			}
 		}
-
-		public void startElement(String name, Attributes attributes)
-				throws SAXException {
-			// Should not happen if value is non-null
+		if (name == null) {
+			skipElement(reader);
+			return;
+		}
+		Object value = null;
+		if (strValue != null) {
+			value = createValue(valueType, strValue);
 			if (value != null)
-				throw new SAXException(
-						"property element has both value attribute and sub-element"); //$NON-NLS-1$
-			if (ENDPOINT_PROPERTY_ARRAY.equals(name)) {
-				if (multiValueHandler == null)
-					multiValueHandler = new ArrayMultiValueHandler(this,
-							ENDPOINT_PROPERTY_ARRAY, valueType);
-				else
-					duplicateElement(this, name, attributes);
-
-			} else if (ENDPOINT_PROPERTY_LIST.equals(name)) {
-				if (multiValueHandler == null)
-					multiValueHandler = new ListMultiValueHandler(this,
-							ENDPOINT_PROPERTY_LIST, valueType);
-				else
-					duplicateElement(this, name, attributes);
-			} else if (ENDPOINT_PROPERTY_SET.equals(name)) {
-				if (multiValueHandler == null)
-					multiValueHandler = new SetMultiValueHandler(this,
-							ENDPOINT_PROPERTY_SET, valueType);
+				properties.put(name, value);
+		}
+		Object values = null;
+		String xml = null;
+		while (nextTag(reader) == XMLStreamConstants.START_ELEMENT) {
+			if (value != null)
+				throw new XMLStreamException("property element has both value attribute and sub-element"); //$NON-NLS-1$
+			String element = reader.getLocalName();
+			if (ENDPOINT_PROPERTY_ARRAY.equals(element) || ENDPOINT_PROPERTY_LIST.equals(element)
+					|| ENDPOINT_PROPERTY_SET.equals(element)) {
+				if (values == null)
+					values = parseValues(reader, element, valueType);
 				else
-					duplicateElement(this, name, attributes);
-			} else if (ENDPOINT_PROPERTY_XML.equals(name)) {
-				// xml
-				if (xmlValueHandler == null)
-					xmlValueHandler = new XMLValueHandler(this);
+					skipElement(reader);
+			} else if (ENDPOINT_PROPERTY_XML.equals(element)) {
+				if (xml == null)
+					xml = parseXml(reader);
 				else
-					duplicateElement(this, name, attributes);
-
+					skipElement(reader);
 			} else
-				invalidElement(name, attributes);
-		}
-
-		public void endElement(String namespaceURI, String localName,
-				String qName) {
-			if (elementHandled.equals(localName)) {
-				if (multiValueHandler != null) {
-					properties.put(name, multiValueHandler.getValues());
-					multiValueHandler = null;
-				} else if (xmlValueHandler != null) {
-					properties.put(name, xmlValueHandler.getXML());
-					xmlValueHandler = null;
-				}
-				super.endElement(namespaceURI, localName, qName);
-			}
-		}
-
-		private boolean isValidProperty(String name, Object value) {
-			return (name != null && value != null);
+				skipElement(reader);
 		}
+		if (values != null)
+			properties.put(name, values);
+		else if (xml != null)
+			properties.put(name, xml);
 	}
 
-	public class EndpointDescription {
-		private Map<String, Object> properties;
-
-		public EndpointDescription(Map<String, Object> properties) {
-			this.properties = properties;
-		}
-
-		public Map<String, Object> getProperties() {
-			return properties;
-		}
-
-		public String toString() {
-			StringBuilder builder = new StringBuilder();
-			builder.append("EndpointDescription [properties="); //$NON-NLS-1$
-			builder.append(properties);
-			builder.append("]"); //$NON-NLS-1$
-			return builder.toString();
-		}
-
+	private Object parseValues(XMLStreamReader reader, String element, String valueType) throws XMLStreamException {
+		Collection<Object> values = ENDPOINT_PROPERTY_SET.equals(element) ? new HashSet<Object>()
+				: new ArrayList<Object>();
+		int depth = 0;
+		while (true) {
+			int event = nextTag(reader);
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				if (ENDPOINT_PROPERTY_VALUE.equals(reader.getLocalName())) {
+					String text = readText(reader);
+					if (text.length() > 0) {
+						Object value = createValue(valueType, valueType.equals("String") ? text : text.trim()); //$NON-NLS-1$
+						if (value != null)
+							values.add(value);
+					}
+				} else
+					depth++;
+			} else if (depth-- == 0)
+				break;
+		}
+		if (ENDPOINT_PROPERTY_ARRAY.equals(element))
+			return values.toArray(createEmptyArrayOfType(valueType));
+		return values;
 	}
 
-	public synchronized void parse(InputStream input) throws IOException {
-		try {
-			getParser();
-			EndpointDescriptionsHandler endpointDescriptionsHandler = new EndpointDescriptionsHandler();
-			xmlReader.setContentHandler(new EndpointDescriptionDocHandler(
-					ENDPOINT_DESCRIPTIONS, endpointDescriptionsHandler));
-			xmlReader.parse(new InputSource(input));
-			endpointDescriptions = endpointDescriptionsHandler
-					.getEndpointDescriptions();
-		} catch (SAXException e) {
-			throw new IOException(e.getMessage());
-		} catch (ParserConfigurationException e) {
-			throw new IOException(e.getMessage());
-		} finally {
-			input.close();
+	/**
+	 * Read the elements within an xml element back into a string. Text
+	 * outside of these elements is ignored.
+	 */
+	private String parseXml(XMLStreamReader reader) throws XMLStreamException {
+		StringBuilder buf = new StringBuilder();
+		int depth = 0;
+		while (true) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				buf.append('<');
+				appendName(buf, reader.getPrefix(), reader.getLocalName());
+				for (int i = 0; i < reader.getNamespaceCount(); i++) {
+					buf.append(" xmlns"); //$NON-NLS-1$
+					String prefix = reader.getNamespacePrefix(i);
+					if (prefix != null && prefix.length() > 0)
+						buf.append(':').append(prefix);
+					buf.append("=\""); //$NON-NLS-1$
+					appendEscaped(buf, reader.getNamespaceURI(i), true);
+					buf.append('"');
+				}
+				for (int i = 0; i < reader.getAttributeCount(); i++) {
+					buf.append(' ');
+					appendName(buf, reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+					buf.append("=\""); //$NON-NLS-1$
+					appendEscaped(buf, reader.getAttributeValue(i), true);
+					buf.append('"');
+				}
+				buf.append('>');
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				if (depth-- == 0)
+					return buf.toString();
+				buf.append("</"); //$NON-NLS-1$
+				appendName(buf, reader.getPrefix(), reader.getLocalName());
+				buf.append('>');
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				if (depth > 0)
+					appendEscaped(buf, reader.getText(), false);
+				break;
+			default:
+				break;
+			}
 		}
-
 	}
 
-	public static String makeSimpleName(String localName, String qualifiedName) {
-		if (localName != null && localName.length() > 0)
-			return localName;
-		int nameSpaceIndex = qualifiedName.indexOf(":"); //$NON-NLS-1$
-		return (nameSpaceIndex == -1 ? qualifiedName : qualifiedName
-				.substring(nameSpaceIndex + 1));
+	private static void appendName(StringBuilder buf, String prefix, String localName) {
+		if (prefix != null && prefix.length() > 0)
+			buf.append(prefix).append(':');
+		buf.append(localName);
 	}
 
-	public void unexpectedElement(AbstractHandler handler, String element,
-			Attributes attributes) {
-	}
-
-	public void unexpectedCharacterData(AbstractHandler handler, String cdata) {
-	}
-
-	public void unexpectedAttribute(String element, String attribute,
-			String value) {
+	private static void appendEscaped(StringBuilder buf, String text, boolean attribute) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '&')
+				buf.append("&amp;"); //$NON-NLS-1$
+			else if (c == '<')
+				buf.append("&lt;"); //$NON-NLS-1$
+			else if (c == '>')
+				buf.append("&gt;"); //$NON-NLS-1$
+			else if (c == '"' && attribute)
+				buf.append("&quot;"); //$NON-NLS-1$
+			else
+				buf.append(c);
+		}
 	}
 
-	static int indexOf(String[] array, String value) {
-		for (int i = 0; i < array.length; i += 1) {
-			if (value == null ? array[i] == null : value.equals(array[i])) {
-				return i;
+	/**
+	 * Read the text of the current element, including that of any nested
+	 * elements, and position the reader at its end element.
+	 */
+	private static String readText(XMLStreamReader reader) throws XMLStreamException {
+		StringBuilder buf = null;
+		String text = ""; //$NON-NLS-1$
+		int depth = 0;
+		while (true) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				if (depth-- == 0)
+					return (buf == null) ? text : buf.toString();
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+			case XMLStreamConstants.ENTITY_REFERENCE:
+				// Usually there is a single text event, as the reader
+				// coalesces adjacent text
+				if (buf == null && text.length() == 0)
+					text = reader.getText();
+				else {
+					if (buf == null)
+						buf = new StringBuilder(text);
+					buf.append(reader.getText());
+				}
+				break;
+			default:
+				break;
 			}
 		}
-		return -1;
 	}
 
-	public void checkRequiredAttribute(String element, String name, Object value) {
+	/**
+	 * Advance to the next start or end element, ignoring any text, comments
+	 * and processing instructions.
+	 */
+	private static int nextTag(XMLStreamReader reader) throws XMLStreamException {
+		while (true) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT)
+				return event;
+			if (event == XMLStreamConstants.END_DOCUMENT)
+				throw new XMLStreamException("Unexpected end of document"); //$NON-NLS-1$
+		}
 	}
 
-	public void duplicateElement(AbstractHandler handler, String element,
-			Attributes attributes) {
-		// ignore the duplicate element entirely because we have already logged
-		// it
-		new IgnoringHandler(handler);
+	/**
+	 * Skip the current element and all elements nested into it.
+	 */
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 0;
+		while (true) {
+			if (nextTag(reader) == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (depth-- == 0)
+				return;
+		}
 	}
 
 	private List<EndpointDescription> endpointDescriptions;
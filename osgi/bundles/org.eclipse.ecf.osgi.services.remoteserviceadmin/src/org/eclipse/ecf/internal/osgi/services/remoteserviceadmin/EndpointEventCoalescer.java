@@ -0,0 +1,291 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *   Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.internal.osgi.services.remoteserviceadmin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.osgi.service.remoteserviceadmin.EndpointDescription;
+import org.osgi.service.remoteserviceadmin.EndpointEvent;
+
+/**
+ * Coalesces the endpoint events queued for endpoint listeners within a short
+ * window, and passes them on in batches, one per listener. Events for the
+ * same listener and endpoint id are merged: an added or modified endpoint that
+ * is modified again is only delivered once, with its latest description, and
+ * an endpoint that is added and removed again before the listener was notified
+ * of it is not delivered at all.
+ */
+public class EndpointEventCoalescer {
+
+	/**
+	 * Receives the batches of coalesced events.
+	 */
+	public interface Dispatcher {
+		/**
+		 * @param listener
+		 *            the listener the events are for
+		 * @param legacy
+		 *            <code>true</code> if the listener is to be notified as an
+		 *            EndpointListener, <code>false</code> if as an
+		 *            EndpointEventListener
+		 * @param events
+		 *            the events, in the order they occurred for each endpoint
+		 */
+		void dispatch(Object listener, boolean legacy, List<Event> events);
+	}
+
+	public static final class Event {
+		private final int type;
+		private final EndpointDescription endpoint;
+		private final String matchingFilter;
+		private final long queued;
+
+		Event(int type, EndpointDescription endpoint, String matchingFilter, long queued) {
+			this.type = type;
+			this.endpoint = endpoint;
+			this.matchingFilter = matchingFilter;
+			this.queued = queued;
+		}
+
+		/**
+		 * @return one of the {@link EndpointEvent} types
+		 */
+		public int getType() {
+			return type;
+		}
+
+		public EndpointDescription getEndpoint() {
+			return endpoint;
+		}
+
+		public String getMatchingFilter() {
+			return matchingFilter;
+		}
+
+		/**
+		 * @return the {@link System#nanoTime()} when the first of the events
+		 *         this event was merged from was queued
+		 */
+		public long getQueued() {
+			return queued;
+		}
+	}
+
+	private static final class Key {
+		private final Object listener;
+		private final boolean legacy;
+		private final String endpointId;
+
+		Key(Object listener, boolean legacy, String endpointId) {
+			this.listener = listener;
+			this.legacy = legacy;
+			this.endpointId = endpointId;
+		}
+
+		public int hashCode() {
+			return System.identityHashCode(listener) * 31 + endpointId.hashCode() + (legacy ? 1 : 0);
+		}
+
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return listener == other.listener && legacy == other.legacy && endpointId.equals(other.endpointId);
+		}
+	}
+
+	private final long window;
+	private final int batchSize;
+	private final EndpointEventCounters statistics;
+	private final Dispatcher dispatcher;
+	private final ScheduledExecutorService timer;
+
+	// Held while the pending events are taken and dispatched, so that the
+	// batches of two flushes are not dispatched interleaved or out of order
+	private final Object flushLock = new Object();
+
+	// Guarded by this
+	private Map<Key, List<Event>> pending = new LinkedHashMap<Key, List<Event>>();
+	private int pendingCount;
+	private boolean flushScheduled;
+
+	/**
+	 * @param window
+	 *            how long events are held back to be coalesced with later
+	 *            events, in milliseconds. With <code>0</code> events are
+	 *            passed on immediately and not coalesced.
+	 * @param batchSize
+	 *            the number of held back events at which they are passed on
+	 *            before the end of the window
+	 */
+	public EndpointEventCoalescer(long window, int batchSize, EndpointEventCounters statistics, Dispatcher dispatcher) {
+		this.window = window;
+		this.batchSize = Math.max(1, batchSize);
+		this.statistics = statistics;
+		this.dispatcher = dispatcher;
+		if (window > 0) {
+			ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "RSA EndpointDescriptionLocator Coalescer"); //$NON-NLS-1$
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+			this.timer = executor;
+		} else
+			this.timer = null;
+	}
+
+	/**
+	 * Queue an event for a listener.
+	 *
+	 * @param type
+	 *            one of the {@link EndpointEvent} types
+	 */
+	public void add(Object listener, boolean legacy, int type, EndpointDescription endpoint, String matchingFilter) {
+		Event event = new Event(type, endpoint, matchingFilter, System.nanoTime());
+		statistics.queued();
+		if (timer == null) {
+			dispatch(listener, legacy, Collections.singletonList(event));
+			return;
+		}
+		boolean flush = false;
+		synchronized (this) {
+			Key key = new Key(listener, legacy, endpoint.getId());
+			List<Event> events = pending.get(key);
+			if (events == null) {
+				events = new ArrayList<Event>(2);
+				pending.put(key, events);
+			}
+			int before = events.size();
+			merge(events, event);
+			pendingCount += events.size() - before;
+			if (events.isEmpty())
+				pending.remove(key);
+			if (pendingCount >= batchSize)
+				flush = true;
+			else if (!flushScheduled && pendingCount > 0) {
+				try {
+					timer.schedule(new Runnable() {
+						public void run() {
+							flush();
+						}
+					}, window, TimeUnit.MILLISECONDS);
+					flushScheduled = true;
+				} catch (RejectedExecutionException e) {
+					// closed
+					flush = true;
+				}
+			}
+		}
+		if (flush)
+			flush();
+	}
+
+	private void merge(List<Event> events, Event event) {
+		if (events.isEmpty()) {
+			events.add(event);
+			return;
+		}
+		int last = events.size() - 1;
+		Event previous = events.get(last);
+		boolean removal = isRemoval(event.type);
+		if (previous.type == EndpointEvent.ADDED) {
+			if (removal) {
+				// The listener was never notified of the endpoint
+				events.remove(last);
+				statistics.coalesced(2);
+			} else {
+				// Still added, with the latest description
+				events.set(last,
+						new Event(EndpointEvent.ADDED, event.endpoint, event.matchingFilter, previous.queued));
+				statistics.coalesced(1);
+			}
+		} else if (previous.type == EndpointEvent.MODIFIED) {
+			if (event.type == EndpointEvent.MODIFIED || removal) {
+				events.set(last, new Event(event.type, event.endpoint, event.matchingFilter, previous.queued));
+				statistics.coalesced(1);
+			} else
+				events.add(event);
+		} else if (removal) {
+			// removed twice
+			events.set(last, new Event(event.type, event.endpoint, event.matchingFilter, previous.queued));
+			statistics.coalesced(1);
+		} else
+			// A removal followed by an addition is delivered as such, since
+			// the endpoint may not be the same service as before
+			events.add(event);
+	}
+
+	private static boolean isRemoval(int type) {
+		return type == EndpointEvent.REMOVED || type == EndpointEvent.MODIFIED_ENDMATCH;
+	}
+
+	/**
+	 * Pass on all held back events.
+	 */
+	public void flush() {
+		synchronized (flushLock) {
+			Map<Key, List<Event>> events;
+			synchronized (this) {
+				flushScheduled = false;
+				if (pending.isEmpty())
+					return;
+				events = pending;
+				pending = new LinkedHashMap<Key, List<Event>>();
+				pendingCount = 0;
+			}
+			// Group by listener, keeping the order of the endpoints
+			Map<Key, List<Event>> batches = new LinkedHashMap<Key, List<Event>>();
+			for (Iterator<Map.Entry<Key, List<Event>>> i = events.entrySet().iterator(); i.hasNext();) {
+				Map.Entry<Key, List<Event>> e = i.next();
+				Key batchKey = new Key(e.getKey().listener, e.getKey().legacy, ""); //$NON-NLS-1$
+				List<Event> batch = batches.get(batchKey);
+				if (batch == null) {
+					batch = new ArrayList<Event>();
+					batches.put(batchKey, batch);
+				}
+				batch.addAll(e.getValue());
+			}
+			for (Iterator<Map.Entry<Key, List<Event>>> i = batches.entrySet().iterator(); i.hasNext();) {
+				Map.Entry<Key, List<Event>> e = i.next();
+				dispatch(e.getKey().listener, e.getKey().legacy, e.getValue());
+			}
+		}
+	}
+
+	private void dispatch(Object listener, boolean legacy, List<Event> events) {
+		dispatcher.dispatch(listener, legacy, events);
+	}
+
+	public void close() {
+		if (timer != null)
+			timer.shutdownNow();
+		synchronized (this) {
+			statistics.discarded(pendingCount);
+			pending.clear();
+			pendingCount = 0;
+		}
+	}
+}
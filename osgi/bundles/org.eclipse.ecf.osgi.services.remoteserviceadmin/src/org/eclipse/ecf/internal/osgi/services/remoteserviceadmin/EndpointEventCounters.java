@@ -0,0 +1,125 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *   Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.internal.osgi.services.remoteserviceadmin;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the endpoint events queued for endpoint listeners and endpoint event
+ * listeners by the {@link EndpointEventCoalescer}, and their delivery. Read
+ * through
+ * {@link org.eclipse.ecf.osgi.services.remoteserviceadmin.EndpointEventStatistics}.
+ */
+public final class EndpointEventCounters {
+
+	private final AtomicLong queued = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong delivered = new AtomicLong();
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong depth = new AtomicLong();
+	private final AtomicLong maxDepth = new AtomicLong();
+	private final AtomicLong totalLatency = new AtomicLong();
+	private final AtomicLong maxLatency = new AtomicLong();
+
+	/**
+	 * An event was queued.
+	 */
+	public void queued() {
+		queued.incrementAndGet();
+		max(maxDepth, depth.incrementAndGet());
+	}
+
+	/**
+	 * @param count
+	 *            the number of queued events that were merged away
+	 */
+	public void coalesced(int count) {
+		coalesced.addAndGet(count);
+		depth.addAndGet(-count);
+	}
+
+	/**
+	 * @param count
+	 *            the number of queued events that were dropped undelivered,
+	 *            because the queue was closed
+	 */
+	public void discarded(int count) {
+		depth.addAndGet(-count);
+	}
+
+	/**
+	 * @param latencyNanos
+	 *            the time from when the delivered event was queued, in
+	 *            nanoseconds
+	 */
+	public void delivered(long latencyNanos) {
+		delivered.incrementAndGet();
+		depth.decrementAndGet();
+		totalLatency.addAndGet(latencyNanos);
+		max(maxLatency, latencyNanos);
+	}
+
+	/**
+	 * A batch of events was delivered.
+	 */
+	public void batch() {
+		batches.incrementAndGet();
+	}
+
+	private static void max(AtomicLong max, long value) {
+		long current;
+		while ((current = max.get()) < value && !max.compareAndSet(current, value)) {
+			// retry
+		}
+	}
+
+	public long getQueued() {
+		return queued.get();
+	}
+
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+	public long getDelivered() {
+		return delivered.get();
+	}
+
+	public long getBatches() {
+		return batches.get();
+	}
+
+	public long getQueueDepth() {
+		return depth.get();
+	}
+
+	public long getMaxQueueDepth() {
+		return maxDepth.get();
+	}
+
+	/**
+	 * @return the average latency of the delivered events in milliseconds
+	 */
+	public double getAverageLatency() {
+		final long d = delivered.get();
+		return (d == 0) ? 0 : (double) totalLatency.get() / d / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * @return the highest latency of the delivered events in milliseconds
+	 */
+	public long getMaxLatency() {
+		return TimeUnit.NANOSECONDS.toMillis(maxLatency.get());
+	}
+}
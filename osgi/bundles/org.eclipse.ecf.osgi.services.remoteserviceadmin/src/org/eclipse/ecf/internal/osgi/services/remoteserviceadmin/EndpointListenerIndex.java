@@ -0,0 +1,377 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *   Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.internal.osgi.services.remoteserviceadmin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.osgi.framework.Constants;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.remoteserviceadmin.EndpointDescription;
+import org.osgi.service.remoteserviceadmin.RemoteConstants;
+
+/**
+ * Immutable snapshot of the scopes of the endpoint listeners or endpoint event
+ * listeners of an endpoint description locator. The filters of the scopes are
+ * compiled once, and the listeners are indexed by the objectClass and
+ * endpoint.framework.uuid values their filters require, so that for an
+ * endpoint only the listeners that may match are evaluated.
+ */
+public final class EndpointListenerIndex {
+
+	/**
+	 * The maximum number of compiled filters cached, so that filters that keep
+	 * changing do not grow the cache without bound.
+	 */
+	private static final int MAX_CACHED_FILTERS = 1024;
+
+	private static final Map<String, CompiledFilter> filters = new ConcurrentHashMap<String, CompiledFilter>();
+
+	private static final int[] NONE = new int[0];
+
+	/**
+	 * A compiled endpoint listener filter, along with the objectClass and
+	 * endpoint.framework.uuid values it requires, if any.
+	 */
+	public static final class CompiledFilter {
+		private final String filter;
+		private final Filter compiled;
+		private final String objectClass;
+		private final String frameworkUUID;
+
+		CompiledFilter(String filter) throws InvalidSyntaxException {
+			this.filter = filter;
+			this.compiled = FrameworkUtil.createFilter(filter);
+			String[] required = getRequiredValues(filter);
+			this.objectClass = required[0];
+			this.frameworkUUID = required[1];
+		}
+
+		public String getFilter() {
+			return filter;
+		}
+
+		/**
+		 * Same as {@link EndpointDescription#matches(String)}, but without
+		 * parsing the filter, and without evaluating it for endpoints that do
+		 * not have the required objectClass or endpoint.framework.uuid.
+		 */
+		public boolean matches(EndpointDescription ed) {
+			if (objectClass != null && !ed.getInterfaces().contains(objectClass))
+				return false;
+			if (frameworkUUID != null && !frameworkUUID.equals(ed.getFrameworkUUID()))
+				return false;
+			// The properties support case insensitive key lookup, so matchCase
+			// can be used, as in EndpointDescription.matches
+			return compiled.matchCase(new PropertiesDictionary(ed.getProperties()));
+		}
+	}
+
+	/**
+	 * Compile the given filter, or get it from the cache of compiled filters.
+	 *
+	 * @param filter
+	 *            the filter. Must not be <code>null</code>.
+	 * @return the compiled filter
+	 * @throws InvalidSyntaxException
+	 *             if the filter is not valid
+	 */
+	public static CompiledFilter compile(String filter) throws InvalidSyntaxException {
+		CompiledFilter result = filters.get(filter);
+		if (result == null) {
+			result = new CompiledFilter(filter);
+			if (filters.size() < MAX_CACHED_FILTERS)
+				filters.put(filter, result);
+		}
+		return result;
+	}
+
+	/**
+	 * The compiled scope of one listener.
+	 */
+	public static final class Scope {
+		private final List<String> scope;
+		private final CompiledFilter[] compiledFilters;
+
+		/**
+		 * @param scope
+		 *            the filters of the listener's scope
+		 * @param compiledFilters
+		 *            the valid filters of the scope, compiled, in the order of
+		 *            the scope
+		 */
+		public Scope(List<String> scope, CompiledFilter[] compiledFilters) {
+			this.scope = scope;
+			this.compiledFilters = compiledFilters;
+		}
+
+		/**
+		 * @return the filters of the listener's scope, as read from its service
+		 *         properties
+		 */
+		public List<String> getScope() {
+			return scope;
+		}
+
+		/**
+		 * @param ed
+		 *            the endpoint description
+		 * @return the first filter of the scope that matches the given
+		 *         endpoint, or <code>null</code> if none does
+		 */
+		public String match(EndpointDescription ed) {
+			for (int i = 0; i < compiledFilters.length; i++)
+				if (compiledFilters[i].matches(ed))
+					return compiledFilters[i].getFilter();
+			return null;
+		}
+	}
+
+	private final int trackingCount;
+	private final ServiceReference[] references;
+	private final Scope[] scopes;
+
+	// The listeners by the values their filters require. A listener with a
+	// filter that requires neither value is in unindexed.
+	private final Map<String, int[]> byObjectClass;
+	private final Map<String, int[]> byFrameworkUUID;
+	private final int[] unindexed;
+
+	/**
+	 * @param trackingCount
+	 *            the tracking count of the service tracker the snapshot is
+	 *            taken of
+	 * @param references
+	 *            the service references of the listeners. May be
+	 *            <code>null</code> if there are none.
+	 * @param scopes
+	 *            the scopes of the listeners, in the order of the references
+	 */
+	public EndpointListenerIndex(int trackingCount, ServiceReference[] references, Scope[] scopes) {
+		this.trackingCount = trackingCount;
+		this.references = (references == null) ? new ServiceReference[0] : references;
+		this.scopes = scopes;
+		Map<String, List<Integer>> objectClasses = new HashMap<String, List<Integer>>();
+		Map<String, List<Integer>> frameworkUUIDs = new HashMap<String, List<Integer>>();
+		List<Integer> others = new ArrayList<Integer>();
+		for (int i = 0; i < scopes.length; i++) {
+			CompiledFilter[] compiledFilters = scopes[i].compiledFilters;
+			for (int j = 0; j < compiledFilters.length; j++) {
+				CompiledFilter f = compiledFilters[j];
+				if (f.objectClass != null)
+					add(objectClasses, f.objectClass, i);
+				else if (f.frameworkUUID != null)
+					add(frameworkUUIDs, f.frameworkUUID, i);
+				else if (others.isEmpty() || others.get(others.size() - 1).intValue() != i)
+					others.add(Integer.valueOf(i));
+			}
+		}
+		this.byObjectClass = toArrays(objectClasses);
+		this.byFrameworkUUID = toArrays(frameworkUUIDs);
+		this.unindexed = toArray(others);
+	}
+
+	private static void add(Map<String, List<Integer>> map, String key, int i) {
+		List<Integer> list = map.get(key);
+		if (list == null) {
+			list = new ArrayList<Integer>();
+			map.put(key, list);
+		}
+		// Listeners are added in order, so duplicates are adjacent
+		if (list.isEmpty() || list.get(list.size() - 1).intValue() != i)
+			list.add(Integer.valueOf(i));
+	}
+
+	private static Map<String, int[]> toArrays(Map<String, List<Integer>> map) {
+		Map<String, int[]> result = new HashMap<String, int[]>(map.size());
+		for (Iterator<Map.Entry<String, List<Integer>>> i = map.entrySet().iterator(); i.hasNext();) {
+			Map.Entry<String, List<Integer>> e = i.next();
+			result.put(e.getKey(), toArray(e.getValue()));
+		}
+		return result;
+	}
+
+	private static int[] toArray(List<Integer> list) {
+		int[] result = new int[list.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = list.get(i).intValue();
+		return result;
+	}
+
+	/**
+	 * @return the tracking count of the service tracker the snapshot is taken
+	 *         of
+	 */
+	public int getTrackingCount() {
+		return trackingCount;
+	}
+
+	public ServiceReference getReference(int i) {
+		return references[i];
+	}
+
+	public Scope getScope(int i) {
+		return scopes[i];
+	}
+
+	/**
+	 * @param ed
+	 *            the endpoint description
+	 * @return the indexes of the listeners that may match the given endpoint,
+	 *         in ascending order
+	 */
+	public int[] getCandidates(EndpointDescription ed) {
+		if (scopes.length == 0)
+			return NONE;
+		List<int[]> parts = new ArrayList<int[]>();
+		int size = unindexed.length;
+		if (size > 0)
+			parts.add(unindexed);
+		List<String> interfaces = ed.getInterfaces();
+		for (int i = 0; i < interfaces.size(); i++) {
+			int[] part = byObjectClass.get(interfaces.get(i));
+			if (part != null) {
+				parts.add(part);
+				size += part.length;
+			}
+		}
+		String frameworkUUID = ed.getFrameworkUUID();
+		int[] part = (frameworkUUID == null) ? null : byFrameworkUUID.get(frameworkUUID);
+		if (part != null) {
+			parts.add(part);
+			size += part.length;
+		}
+		if (parts.size() == 1)
+			return parts.get(0);
+		int[] result = new int[size];
+		int count = 0;
+		for (int i = 0; i < parts.size(); i++) {
+			int[] p = parts.get(i);
+			System.arraycopy(p, 0, result, count, p.length);
+			count += p.length;
+		}
+		Arrays.sort(result);
+		// remove the listeners found by more than one value
+		count = 0;
+		for (int i = 0; i < result.length; i++)
+			if (i == 0 || result[i] != result[i - 1])
+				result[count++] = result[i];
+		return (count == result.length) ? result : Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Find the objectClass and endpoint.framework.uuid values that the given
+	 * filter requires for a match. These are the values of equality
+	 * comparisons, without wildcards or escapes, that are the filter itself or
+	 * are directly within its top level AND.
+	 *
+	 * @param filter
+	 *            the filter. Must not be <code>null</code>.
+	 * @return the required objectClass and endpoint.framework.uuid, each of
+	 *         them <code>null</code> if not required
+	 */
+	public static String[] getRequiredValues(String filter) {
+		String[] required = new String[2];
+		String f = filter.trim();
+		if (f.startsWith("(&") && f.endsWith(")")) { //$NON-NLS-1$ //$NON-NLS-2$
+			int depth = 0;
+			int start = -1;
+			for (int i = 2; i < f.length() - 1; i++) {
+				char c = f.charAt(i);
+				if (c == '\\') {
+					i++;
+				} else if (c == '(') {
+					if (depth++ == 0)
+						start = i;
+				} else if (c == ')') {
+					if (--depth == 0)
+						addRequiredValue(f.substring(start, i + 1), required);
+					else if (depth < 0)
+						return new String[2];
+				} else if (depth == 0 && !Character.isWhitespace(c)) {
+					return new String[2];
+				}
+			}
+		} else
+			addRequiredValue(f, required);
+		return required;
+	}
+
+	private static void addRequiredValue(String item, String[] required) {
+		if (!item.startsWith("(") || !item.endsWith(")")) //$NON-NLS-1$ //$NON-NLS-2$
+			return;
+		String comparison = item.substring(1, item.length() - 1);
+		int eq = comparison.indexOf('=');
+		if (eq < 0 || comparison.indexOf('(') >= 0 || comparison.indexOf(')') >= 0)
+			return;
+		String attr = comparison.substring(0, eq).trim();
+		String value = comparison.substring(eq + 1);
+		if (value.length() == 0 || value.indexOf('*') >= 0 || value.indexOf('\\') >= 0
+				|| !value.equals(value.trim()))
+			return;
+		if (required[0] == null && Constants.OBJECTCLASS.equalsIgnoreCase(attr))
+			required[0] = value;
+		else if (required[1] == null && RemoteConstants.ENDPOINT_FRAMEWORK_UUID.equalsIgnoreCase(attr))
+			required[1] = value;
+	}
+
+	/**
+	 * Read-only dictionary view of endpoint properties, for matching filters.
+	 */
+	private static final class PropertiesDictionary extends Dictionary<String, Object> {
+		private final Map<String, Object> properties;
+
+		PropertiesDictionary(Map<String, Object> properties) {
+			this.properties = properties;
+		}
+
+		public int size() {
+			return properties.size();
+		}
+
+		public boolean isEmpty() {
+			return properties.isEmpty();
+		}
+
+		public Enumeration<String> keys() {
+			return Collections.enumeration(properties.keySet());
+		}
+
+		public Enumeration<Object> elements() {
+			return Collections.enumeration(properties.values());
+		}
+
+		public Object get(Object key) {
+			return properties.get(key);
+		}
+
+		public Object put(String key, Object value) {
+			throw new UnsupportedOperationException();
+		}
+
+		public Object remove(Object key) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
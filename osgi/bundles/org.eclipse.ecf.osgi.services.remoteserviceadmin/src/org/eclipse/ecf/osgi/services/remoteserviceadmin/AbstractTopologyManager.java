@@ -333,6 +333,28 @@ public abstract class AbstractTopologyManager {
 			rsa.importService(endpointDescription);
 	}
 
+	/**
+	 * Import the given endpoints concurrently with
+	 * {@link RemoteServiceAdmin#importServices(java.util.Collection)}. A single
+	 * endpoint is imported with {@link #handleECFEndpointAdded(EndpointDescription)}.
+	 * Subclasses that override {@link #handleECFEndpointAdded(EndpointDescription)}
+	 * should override this method as well.
+	 * 
+	 * @param endpointDescriptions endpoint descriptions
+	 * @since 4.10
+	 */
+	protected void handleECFEndpointsAdded(List<EndpointDescription> endpointDescriptions) {
+		if (endpointDescriptions.size() == 1) {
+			handleECFEndpointAdded(endpointDescriptions.get(0));
+			return;
+		}
+		trace("handleECFEndpointsAdded", "endpointDescriptions=" //$NON-NLS-1$ //$NON-NLS-2$
+				+ endpointDescriptions);
+		RemoteServiceAdmin rsa = (RemoteServiceAdmin) getRemoteServiceAdmin();
+		if (rsa != null)
+			rsa.importServices(endpointDescriptions);
+	}
+
 	/**
 	 * @param endpointDescription endpoint description
 	 * @since 3.0
@@ -35,6 +35,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -48,6 +49,9 @@ import org.eclipse.ecf.discovery.IServiceListener;
 import org.eclipse.ecf.discovery.identity.IServiceID;
 import org.eclipse.ecf.internal.osgi.services.remoteserviceadmin.Activator;
 import org.eclipse.ecf.internal.osgi.services.remoteserviceadmin.DebugOptions;
+import org.eclipse.ecf.internal.osgi.services.remoteserviceadmin.EndpointEventCoalescer;
+import org.eclipse.ecf.internal.osgi.services.remoteserviceadmin.EndpointEventCounters;
+import org.eclipse.ecf.internal.osgi.services.remoteserviceadmin.EndpointListenerIndex;
 import org.eclipse.ecf.internal.osgi.services.remoteserviceadmin.LogUtility;
 import org.eclipse.ecf.internal.osgi.services.remoteserviceadmin.PropertiesUtil;
 import org.eclipse.equinox.concurrent.future.IExecutor;
@@ -61,6 +65,7 @@ import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleEvent;
 import org.osgi.framework.Constants;
+import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.remoteserviceadmin.EndpointDescription;
@@ -90,6 +95,16 @@ public class EndpointDescriptionLocator implements IEndpointDescriptionLocator {
 	private static final String DEFAULT_PROPERTIES_FILE_SUFFIX = System
 			.getProperty(EndpointDescriptionLocator.class.getName() + ".defaultPropertiesFileSuffix", ".properties"); //$NON-NLS-1$ //$NON-NLS-2$
 
+	// How long endpoint events are held back to be coalesced with later events
+	// for the same endpoint, in milliseconds. 0 disables coalescing.
+	private static final long BATCH_WINDOW = Long
+			.getLong(EndpointDescriptionLocator.class.getName() + ".batchWindow", 50).longValue(); //$NON-NLS-1$
+
+	// The number of held back endpoint events at which they are delivered
+	// before the end of the window
+	private static final int BATCH_SIZE = Integer
+			.getInteger(EndpointDescriptionLocator.class.getName() + ".batchSize", 1000).intValue(); //$NON-NLS-1$
+
 	private BundleContext context;
 	private IExecutor executor;
 
@@ -112,6 +127,10 @@ public class EndpointDescriptionLocator implements IEndpointDescriptionLocator {
 	// For processing synchronous notifications asynchronously
 	private EventManager eventManager;
 	private ListenerQueue eventQueue;
+	// For coalescing the notifications before they are queued
+	private EndpointEventCoalescer eventCoalescer;
+	private final EndpointEventCounters eventCounters = new EndpointEventCounters();
+	private final EndpointEventStatistics eventStatistics = new EndpointEventStatistics(eventCounters);
 
 	// ECF IDiscoveryLocator tracker
 	private ServiceTracker locatorServiceTracker;
@@ -241,9 +260,61 @@ public class EndpointDescriptionLocator implements IEndpointDescriptionLocator {
 						logError(logMethodName, message, e);
 
 					}
+				} else if (eventObject instanceof EndpointEventBatch) {
+					final EndpointEventBatch batch = (EndpointEventBatch) eventObject;
+					eventCounters.batch();
+					if (!batch.isLegacy() && batch.getListener() instanceof IEndpointEventBatchListener) {
+						final IEndpointEventBatchListener batchListener = (IEndpointEventBatchListener) batch
+								.getListener();
+						final EndpointEvent[] endpointEvents = batch.getEndpointEvents();
+						final String[] matchingFilters = batch.getMatchingFilters();
+						try {
+							trace("endpointEventBatchListener.endpointsChanged", //$NON-NLS-1$
+									"fwk=" + getFrameworkUUID() + ", endpointEventBatchListener=" //$NON-NLS-1$ //$NON-NLS-2$
+											+ batchListener + ", events=" + endpointEvents.length); //$NON-NLS-1$
+							batchListener.endpointsChanged(endpointEvents, matchingFilters);
+						} catch (Exception e) {
+							logError(logMethodName, "Exception in IEndpointEventBatchListener listener=" //$NON-NLS-1$
+									+ batchListener, e);
+						} catch (LinkageError e) {
+							logError(logMethodName, "LinkageError in IEndpointEventBatchListener listener=" //$NON-NLS-1$
+									+ batchListener, e);
+						} catch (AssertionError e) {
+							logError(logMethodName, "AssertionError in IEndpointEventBatchListener listener=" //$NON-NLS-1$
+									+ batchListener, e);
+						}
+						batch.delivered();
+					} else {
+						for (EndpointEventCoalescer.Event event : batch.getEvents()) {
+							if (batch.isLegacy())
+								dispatchEvent(eventListener, listenerObject, eventAction,
+										new EndpointListenerEvent((EndpointListener) batch.getListener(),
+												event.getEndpoint(), event.getMatchingFilter(),
+												event.getType() == EndpointEvent.ADDED));
+							else
+								dispatchEvent(eventListener, listenerObject, eventAction,
+										new EndpointEventListenerEvent((EndpointEventListener) batch.getListener(),
+												new EndpointEvent(event.getType(), event.getEndpoint()),
+												event.getMatchingFilter()));
+							eventCounters.delivered(System.nanoTime() - event.getQueued());
+						}
+					}
 				}
 			}
 		});
+		eventCoalescer = new EndpointEventCoalescer(BATCH_WINDOW, BATCH_SIZE, eventCounters,
+				new EndpointEventCoalescer.Dispatcher() {
+					public void dispatch(Object listener, boolean legacy, List<EndpointEventCoalescer.Event> events) {
+						ListenerQueue queue = eventQueue;
+						if (queue == null) {
+							eventCounters.discarded(events.size());
+							return;
+						}
+						synchronized (queue) {
+							queue.dispatchEventAsynchronous(0, new EndpointEventBatch(listener, legacy, events));
+						}
+					}
+				});
 		// Register the endpoint listener tracker, so that endpoint listeners
 		// that are subsequently added
 		// will then be notified of discovered endpoints
@@ -274,6 +345,7 @@ public class EndpointDescriptionLocator implements IEndpointDescriptionLocator {
 					}
 
 					public void removedService(ServiceReference reference, Object service) {
+						endpointListenerScopes.remove(reference);
 					}
 				});
 
@@ -311,6 +383,7 @@ public class EndpointDescriptionLocator implements IEndpointDescriptionLocator {
 					}
 
 					public void removedService(ServiceReference reference, Object service) {
+						endpointEventListenerScopes.remove(reference);
 					}
 				});
 
@@ -384,6 +457,11 @@ public class EndpointDescriptionLocator implements IEndpointDescriptionLocator {
 			endpointEventListenerTracker = null;
 		}
 
+		if (eventCoalescer != null) {
+			eventCoalescer.close();
+			eventCoalescer = null;
+		}
+
 		// Shutdown asynchronous event manager
 		if (eventManager != null) {
 			eventManager.close();
@@ -485,23 +563,29 @@ public class EndpointDescriptionLocator implements IEndpointDescriptionLocator {
 	void queueEndpointDescription(EndpointEventListener listener,
 			org.osgi.service.remoteserviceadmin.EndpointDescription endpointDescription, String matchingFilter,
 			int eventType) {
-		if (eventQueue == null)
+		EndpointEventCoalescer coalescer = eventCoalescer;
+		if (eventQueue == null || coalescer == null)
 			return;
-		synchronized (eventQueue) {
-			eventQueue.dispatchEventAsynchronous(0, new EndpointEventListenerEvent(listener,
-					new EndpointEvent(eventType, endpointDescription), matchingFilter));
-		}
+		coalescer.add(listener, false, eventType, endpointDescription, matchingFilter);
 	}
 
 	void queueEndpointDescription(EndpointListener listener,
 			org.osgi.service.remoteserviceadmin.EndpointDescription endpointDescription, String matchingFilters,
 			boolean discovered) {
-		if (eventQueue == null)
+		EndpointEventCoalescer coalescer = eventCoalescer;
+		if (eventQueue == null || coalescer == null)
 			return;
-		synchronized (eventQueue) {
-			eventQueue.dispatchEventAsynchronous(0,
-					new EndpointListenerEvent(listener, endpointDescription, matchingFilters, discovered));
-		}
+		coalescer.add(listener, true, discovered ? EndpointEvent.ADDED : EndpointEvent.REMOVED, endpointDescription,
+				matchingFilters);
+	}
+
+	/**
+	 * @return the statistics of the endpoint events queued for the endpoint
+	 *         listeners and endpoint event listeners
+	 * @since 4.10
+	 */
+	public EndpointEventStatistics getEndpointEventStatistics() {
+		return eventStatistics;
 	}
 
 	void queueEndpointEvent(org.osgi.service.remoteserviceadmin.EndpointDescription endpointDescription, int type) {
@@ -608,6 +692,54 @@ public class EndpointDescriptionLocator implements IEndpointDescriptionLocator {
 
 	}
 
+	/**
+	 * The coalesced endpoint events for one listener
+	 */
+	private class EndpointEventBatch {
+
+		private Object listener;
+		private boolean legacy;
+		private List<EndpointEventCoalescer.Event> events;
+
+		public EndpointEventBatch(Object listener, boolean legacy, List<EndpointEventCoalescer.Event> events) {
+			this.listener = listener;
+			this.legacy = legacy;
+			this.events = events;
+		}
+
+		public Object getListener() {
+			return listener;
+		}
+
+		public boolean isLegacy() {
+			return legacy;
+		}
+
+		public List<EndpointEventCoalescer.Event> getEvents() {
+			return events;
+		}
+
+		public EndpointEvent[] getEndpointEvents() {
+			EndpointEvent[] result = new EndpointEvent[events.size()];
+			for (int i = 0; i < result.length; i++)
+				result[i] = new EndpointEvent(events.get(i).getType(), events.get(i).getEndpoint());
+			return result;
+		}
+
+		public String[] getMatchingFilters() {
+			String[] result = new String[events.size()];
+			for (int i = 0; i < result.length; i++)
+				result[i] = events.get(i).getMatchingFilter();
+			return result;
+		}
+
+		void delivered() {
+			long now = System.nanoTime();
+			for (EndpointEventCoalescer.Event event : events)
+				eventCounters.delivered(now - event.getQueued());
+		}
+	}
+
 	private class EndpointListenerEvent {
 
 		private EndpointListener endpointListener;
@@ -696,12 +828,35 @@ public class EndpointDescriptionLocator implements IEndpointDescriptionLocator {
 
 	private Object endpointEventListenerServiceTrackerLock = new Object();
 
+	// Compiled scopes of the listeners, by service reference
+	private final Map<ServiceReference, EndpointListenerIndex.Scope> endpointListenerScopes = new ConcurrentHashMap<ServiceReference, EndpointListenerIndex.Scope>();
+	private final Map<ServiceReference, EndpointListenerIndex.Scope> endpointEventListenerScopes = new ConcurrentHashMap<ServiceReference, EndpointListenerIndex.Scope>();
+
+	// Indexes of the tracked listeners. Guarded by the service tracker locks.
+	private EndpointListenerIndex endpointListenerIndex;
+	private EndpointListenerIndex endpointEventListenerIndex;
+
 	protected EndpointListenerHolder[] getMatchingEndpointListenerHolders(final EndpointDescription description) {
 		return AccessController.doPrivileged(new PrivilegedAction<EndpointListenerHolder[]>() {
 			public EndpointListenerHolder[] run() {
 				synchronized (endpointListenerServiceTrackerLock) {
-					return getMatchingEndpointListenerHolders(endpointListenerTracker.getServiceReferences(),
-							description);
+					endpointListenerIndex = getIndex(endpointListenerIndex, endpointListenerTracker,
+							EndpointListener.ENDPOINT_LISTENER_SCOPE, endpointListenerScopes);
+					EndpointListenerIndex index = endpointListenerIndex;
+					if (index == null)
+						return null;
+					List<EndpointListenerHolder> results = new ArrayList<EndpointListenerHolder>();
+					int[] candidates = index.getCandidates(description);
+					for (int i = 0; i < candidates.length; i++) {
+						String matchingFilter = index.getScope(candidates[i]).match(description);
+						if (matchingFilter == null)
+							continue;
+						EndpointListener listener = (EndpointListener) context
+								.getService(index.getReference(candidates[i]));
+						if (listener != null)
+							results.add(new EndpointListenerHolder(listener, description, matchingFilter));
+					}
+					return results.toArray(new EndpointListenerHolder[results.size()]);
 				}
 			}
 		});
@@ -719,8 +874,23 @@ public class EndpointDescriptionLocator implements IEndpointDescriptionLocator {
 		return AccessController.doPrivileged(new PrivilegedAction<EndpointEventListenerHolder[]>() {
 			public EndpointEventListenerHolder[] run() {
 				synchronized (endpointEventListenerServiceTrackerLock) {
-					return getMatchingEndpointEventListenerHolders(endpointEventListenerTracker.getServiceReferences(),
-							description, type);
+					endpointEventListenerIndex = getIndex(endpointEventListenerIndex, endpointEventListenerTracker,
+							EndpointEventListener.ENDPOINT_LISTENER_SCOPE, endpointEventListenerScopes);
+					EndpointListenerIndex index = endpointEventListenerIndex;
+					if (index == null)
+						return null;
+					List<EndpointEventListenerHolder> results = new ArrayList<EndpointEventListenerHolder>();
+					int[] candidates = index.getCandidates(description);
+					for (int i = 0; i < candidates.length; i++) {
+						String matchingFilter = index.getScope(candidates[i]).match(description);
+						if (matchingFilter == null)
+							continue;
+						EndpointEventListener listener = (EndpointEventListener) context
+								.getService(index.getReference(candidates[i]));
+						if (listener != null)
+							results.add(new EndpointEventListenerHolder(listener, description, matchingFilter, type));
+					}
+					return results.toArray(new EndpointEventListenerHolder[results.size()]);
 				}
 			}
 		});
@@ -798,17 +968,13 @@ public class EndpointDescriptionLocator implements IEndpointDescriptionLocator {
 			return null;
 		List results = new ArrayList();
 		for (int i = 0; i < refs.length; i++) {
-			EndpointEventListener listener = (EndpointEventListener) context.getService(refs[i]);
-			if (listener == null)
+			String matchingFilter = getScope(refs[i], EndpointEventListener.ENDPOINT_LISTENER_SCOPE,
+					endpointEventListenerScopes).match(description);
+			if (matchingFilter == null)
 				continue;
-			List<String> filters = PropertiesUtil.getStringPlusProperty(getMapFromProperties(refs[i]),
-					EndpointEventListener.ENDPOINT_LISTENER_SCOPE);
-			// Only proceed if there is a filter present
-			if (filters.size() > 0) {
-				String matchingFilter = isMatch(description, filters);
-				if (matchingFilter != null)
-					results.add(new EndpointEventListenerHolder(listener, description, matchingFilter, type));
-			}
+			EndpointEventListener listener = (EndpointEventListener) context.getService(refs[i]);
+			if (listener != null)
+				results.add(new EndpointEventListenerHolder(listener, description, matchingFilter, type));
 		}
 		return (EndpointEventListenerHolder[]) results.toArray(new EndpointEventListenerHolder[results.size()]);
 	}
@@ -819,44 +985,65 @@ public class EndpointDescriptionLocator implements IEndpointDescriptionLocator {
 			return null;
 		List results = new ArrayList();
 		for (int i = 0; i < refs.length; i++) {
-			EndpointListener listener = (EndpointListener) context.getService(refs[i]);
-			if (listener == null)
+			String matchingFilter = getScope(refs[i], EndpointListener.ENDPOINT_LISTENER_SCOPE, endpointListenerScopes)
+					.match(description);
+			if (matchingFilter == null)
 				continue;
-			List<String> filters = PropertiesUtil.getStringPlusProperty(getMapFromProperties(refs[i]),
-					EndpointListener.ENDPOINT_LISTENER_SCOPE);
-			if (filters.size() > 0) {
-				String matchingFilter = isMatch(description, filters);
-				if (matchingFilter != null)
-					results.add(new EndpointListenerHolder(listener, description, matchingFilter));
-			}
+			EndpointListener listener = (EndpointListener) context.getService(refs[i]);
+			if (listener != null)
+				results.add(new EndpointListenerHolder(listener, description, matchingFilter));
 		}
 		return (EndpointListenerHolder[]) results.toArray(new EndpointListenerHolder[results.size()]);
 	}
 
-	private String isMatch(EndpointDescription description, List<String> filters) {
+	/**
+	 * Get the index of the listeners of the given tracker, rebuilding it if the
+	 * tracked listeners have changed since it was built.
+	 */
+	private EndpointListenerIndex getIndex(EndpointListenerIndex index, ServiceTracker tracker, String scopeProperty,
+			Map<ServiceReference, EndpointListenerIndex.Scope> scopes) {
+		if (tracker == null)
+			return null;
+		int trackingCount = tracker.getTrackingCount();
+		if (index != null && index.getTrackingCount() == trackingCount)
+			return index;
+		ServiceReference[] refs = tracker.getServiceReferences();
+		EndpointListenerIndex.Scope[] refScopes = new EndpointListenerIndex.Scope[(refs == null) ? 0 : refs.length];
+		for (int i = 0; i < refScopes.length; i++)
+			refScopes[i] = getScope(refs[i], scopeProperty, scopes);
+		return new EndpointListenerIndex(trackingCount, refs, refScopes);
+	}
+
+	/**
+	 * Get the compiled scope of the given listener, compiling it if the
+	 * listener's scope has changed since it was compiled.
+	 */
+	private EndpointListenerIndex.Scope getScope(ServiceReference ref, String scopeProperty,
+			Map<ServiceReference, EndpointListenerIndex.Scope> scopes) {
+		List<String> filters = PropertiesUtil.getStringPlusProperty(
+				Collections.singletonMap(scopeProperty, ref.getProperty(scopeProperty)), scopeProperty);
+		EndpointListenerIndex.Scope scope = scopes.get(ref);
+		if (scope != null && scope.getScope().equals(filters))
+			return scope;
+		List<EndpointListenerIndex.CompiledFilter> compiledFilters = new ArrayList<EndpointListenerIndex.CompiledFilter>(
+				filters.size());
 		for (String filter : filters) {
 			if (filter == null || "".equals(filter)) //$NON-NLS-1$
 				continue;
 			try {
-				if (description.matches(filter))
-					return filter;
-			} catch (IllegalArgumentException e) {
-				logError("isMatch", "invalid endpoint listener filter=" //$NON-NLS-1$ //$NON-NLS-2$
+				compiledFilters.add(EndpointListenerIndex.compile(filter));
+			} catch (InvalidSyntaxException e) {
+				logError("getScope", "invalid endpoint listener filter=" //$NON-NLS-1$ //$NON-NLS-2$
 						+ filters, e);
 			}
 		}
-		return null;
-	}
-
-	private Map getMapFromProperties(ServiceReference ref) {
-		Map<String, Object> results = new TreeMap<String, Object>(String.CASE_INSENSITIVE_ORDER);
-		String[] keys = ref.getPropertyKeys();
-		if (keys != null) {
-			for (int i = 0; i < keys.length; i++) {
-				results.put(keys[i], ref.getProperty(keys[i]));
-			}
-		}
-		return results;
+		scope = new EndpointListenerIndex.Scope(filters, compiledFilters
+				.toArray(new EndpointListenerIndex.CompiledFilter[compiledFilters.size()]));
+		// Only cache the scopes of tracked listeners, which are removed from
+		// the cache when they are unregistered
+		if (ref.getBundle() != null)
+			scopes.put(ref, scope);
+		return scope;
 	}
 
 	class EndpointDescriptionBundleTrackerCustomizer implements BundleTrackerCustomizer {
@@ -12,7 +12,10 @@
  *****************************************************************************/
 package org.eclipse.ecf.osgi.services.remoteserviceadmin;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Iterator;
@@ -83,7 +86,7 @@ public class EndpointDescriptionWriter {
 		public void writeProperty(int indentLevel, Writer writer)
 				throws IOException {
 			indent(indentLevel, writer);
-			writer.append("<property name=\"").append(getName()).append("\">"); //$NON-NLS-1$ //$NON-NLS-2$
+			writer.append("<property name=\"").append(escape(getName())).append("\">"); //$NON-NLS-1$ //$NON-NLS-2$
 			newLine(writer);
 			writeXml(indentLevel + 1, writer);
 			writer.append("</property>"); //$NON-NLS-1$
@@ -104,7 +107,7 @@ public class EndpointDescriptionWriter {
 		public void writeProperty(int indentLevel, Writer writer)
 				throws IOException {
 			indent(indentLevel, writer);
-			writer.append("<property name=\"").append(getName()) //$NON-NLS-1$
+			writer.append("<property name=\"").append(escape(getName())) //$NON-NLS-1$
 					.append("\" value-type=\"").append(getValueType()) //$NON-NLS-1$
 					.append("\">"); //$NON-NLS-1$
 			newLine(writer);
@@ -117,7 +120,7 @@ public class EndpointDescriptionWriter {
 		void writePropertyValue(int indentLevel, Object value, Writer writer)
 				throws IOException {
 			indent(indentLevel, writer);
-			writer.append("<value>").append(value.toString()) //$NON-NLS-1$
+			writer.append("<value>").append(escape(value.toString())) //$NON-NLS-1$
 					.append("</value>"); //$NON-NLS-1$
 			newLine(writer);
 		}
@@ -241,6 +244,30 @@ public class EndpointDescriptionWriter {
 					new org.osgi.service.remoteserviceadmin.EndpointDescription[] { endpointDescription });
 	}
 
+	/**
+	 * Write the given endpoint descriptions as an EDEF document, encoded in
+	 * UTF-8, directly to the given output stream. The output stream is flushed
+	 * but not closed.
+	 * 
+	 * @param out
+	 *            the output stream to write to
+	 * @param endpointDescriptions
+	 *            the endpoint descriptions to write
+	 * @throws IOException
+	 *             if some problem writing
+	 * @since 4.10
+	 */
+	public void writeEndpointDescriptions(
+			OutputStream out,
+			org.osgi.service.remoteserviceadmin.EndpointDescription[] endpointDescriptions)
+			throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8")); //$NON-NLS-1$
+		writer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"); //$NON-NLS-1$
+		newLine(writer);
+		writeEndpointDescriptions(writer, endpointDescriptions);
+		writer.flush();
+	}
+
 	public void writeEndpointDescriptions(
 			Writer writer,
 			org.osgi.service.remoteserviceadmin.EndpointDescription[] endpointDescriptions)
@@ -320,9 +347,9 @@ public class EndpointDescriptionWriter {
 	protected void writeValueProperty(int indentLevel, String name,
 			String valueType, Object value, Writer writer) throws IOException {
 		indent(indentLevel, writer);
-		writer.append("<property name=\"").append(name) //$NON-NLS-1$
+		writer.append("<property name=\"").append(escape(name)) //$NON-NLS-1$
 				.append("\" value-type=\"").append(valueType) //$NON-NLS-1$
-				.append("\" value=\"").append(value.toString()).append("\"/>"); //$NON-NLS-1$ //$NON-NLS-2$
+				.append("\" value=\"").append(escape(value.toString())).append("\"/>"); //$NON-NLS-1$ //$NON-NLS-2$
 		newLine(writer);
 	}
 
@@ -371,6 +398,49 @@ public class EndpointDescriptionWriter {
 		return null;
 	}
 
+	/**
+	 * Escape the characters of the given property name or value that may not
+	 * appear as such in element content or in attribute values.
+	 * 
+	 * @param value
+	 *            the name or value
+	 * @return the escaped name or value
+	 * @since 4.10
+	 */
+	protected String escape(String value) {
+		int length = value.length();
+		int i = 0;
+		while (i < length && "&<>\"'".indexOf(value.charAt(i)) < 0) //$NON-NLS-1$
+			i++;
+		// Common case: nothing to escape
+		if (i == length)
+			return value;
+		StringBuilder sb = new StringBuilder(length + 16).append(value, 0, i);
+		for (; i < length; i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '&':
+				sb.append("&amp;"); //$NON-NLS-1$
+				break;
+			case '<':
+				sb.append("&lt;"); //$NON-NLS-1$
+				break;
+			case '>':
+				sb.append("&gt;"); //$NON-NLS-1$
+				break;
+			case '"':
+				sb.append("&quot;"); //$NON-NLS-1$
+				break;
+			case '\'':
+				sb.append("&apos;"); //$NON-NLS-1$
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
 	protected Writer newLine(Writer writer) throws IOException {
 		return writer.append("\n"); //$NON-NLS-1$
 	}
@@ -0,0 +1,100 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *   Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.osgi.services.remoteserviceadmin;
+
+import org.eclipse.ecf.internal.osgi.services.remoteserviceadmin.EndpointEventCounters;
+
+/**
+ * Statistics of the endpoint events that an {@link EndpointDescriptionLocator}
+ * has queued for endpoint listeners and endpoint event listeners. The latency
+ * of an event is the time from when it was queued until it was delivered.
+ *
+ * @since 4.10
+ */
+public class EndpointEventStatistics {
+
+	private final EndpointEventCounters counters;
+
+	// created by EndpointDescriptionLocator
+	EndpointEventStatistics(EndpointEventCounters counters) {
+		this.counters = counters;
+	}
+
+	/**
+	 * @return the number of events queued
+	 */
+	public long getQueued() {
+		return counters.getQueued();
+	}
+
+	/**
+	 * @return the number of queued events that were not delivered because they
+	 *         were coalesced with other events for the same endpoint
+	 */
+	public long getCoalesced() {
+		return counters.getCoalesced();
+	}
+
+	/**
+	 * @return the number of events delivered
+	 */
+	public long getDelivered() {
+		return counters.getDelivered();
+	}
+
+	/**
+	 * @return the number of batches in which the events were delivered
+	 */
+	public long getBatches() {
+		return counters.getBatches();
+	}
+
+	/**
+	 * @return the number of events queued but not yet delivered
+	 */
+	public long getQueueDepth() {
+		return counters.getQueueDepth();
+	}
+
+	/**
+	 * @return the highest number of events that were queued but not yet
+	 *         delivered
+	 */
+	public long getMaxQueueDepth() {
+		return counters.getMaxQueueDepth();
+	}
+
+	/**
+	 * @return the average latency of the delivered events in milliseconds
+	 */
+	public double getAverageLatency() {
+		return counters.getAverageLatency();
+	}
+
+	/**
+	 * @return the highest latency of the delivered events in milliseconds
+	 */
+	public long getMaxLatency() {
+		return counters.getMaxLatency();
+	}
+
+	public String toString() {
+		final StringBuffer sb = new StringBuffer("EndpointEventStatistics["); //$NON-NLS-1$
+		sb.append("queued=").append(getQueued()).append(";coalesced=").append(getCoalesced()); //$NON-NLS-1$ //$NON-NLS-2$
+		sb.append(";delivered=").append(getDelivered()).append(";batches=").append(getBatches()); //$NON-NLS-1$ //$NON-NLS-2$
+		sb.append(";queueDepth=").append(getQueueDepth()).append(";maxQueueDepth=").append(getMaxQueueDepth()); //$NON-NLS-1$ //$NON-NLS-2$
+		sb.append(";averageLatency=").append(getAverageLatency()).append(";maxLatency=").append(getMaxLatency()) //$NON-NLS-1$ //$NON-NLS-2$
+				.append("]"); //$NON-NLS-1$
+		return sb.toString();
+	}
+}
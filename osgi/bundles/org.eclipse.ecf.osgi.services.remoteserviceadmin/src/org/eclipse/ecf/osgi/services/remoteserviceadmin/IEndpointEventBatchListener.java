@@ -0,0 +1,45 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *   Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.osgi.services.remoteserviceadmin;
+
+import org.osgi.service.remoteserviceadmin.EndpointEvent;
+import org.osgi.service.remoteserviceadmin.EndpointEventListener;
+
+/**
+ * An {@link EndpointEventListener} that is notified of several endpoint events
+ * at once. The {@link EndpointDescriptionLocator} coalesces the endpoint
+ * events that occur within a short window, and notifies listeners that
+ * implement this interface of them with a single call to
+ * {@link #endpointsChanged(EndpointEvent[], String[])} rather than a call to
+ * {@link #endpointChanged(EndpointEvent, String)} for each of them.
+ *
+ * @since 4.10
+ */
+public interface IEndpointEventBatchListener extends EndpointEventListener {
+
+	/**
+	 * Notification that endpoints have been added, removed or modified.
+	 *
+	 * @param events
+	 *            the endpoint events, in the order in which they occurred for
+	 *            each endpoint. Events for the same endpoint have been
+	 *            coalesced, so that an endpoint that was added and modified
+	 *            only has an added event, and an endpoint that was added and
+	 *            removed has none.
+	 * @param matchedFilters
+	 *            the filter of this listener's scope that matched the
+	 *            endpoint of each event
+	 */
+	public void endpointsChanged(EndpointEvent[] events, String[] matchedFilters);
+
+}
@@ -31,6 +31,19 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.ISafeRunnable;
@@ -102,6 +115,9 @@ public class RemoteServiceAdmin implements org.osgi.service.remoteserviceadmin.R
 
 	private static final String[] DEFAULT_SERVICE_EXPORTED_CONFIGS = System.getProperty("org.eclipse.ecf.osgi.services.remoteserviceadmin.defaultServiceExportedConfigs","ecf.generic.server").split(","); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 
+	private static final int IMPORT_THREADS = Math.max(1, Integer
+			.getInteger("org.eclipse.ecf.osgi.services.remoteserviceadmin.importThreads", 8).intValue()); //$NON-NLS-1$
+
 	private Bundle clientBundle;
 
 	private boolean hostAutoCreateContainer = new Boolean(
@@ -135,6 +151,12 @@ public class RemoteServiceAdmin implements org.osgi.service.remoteserviceadmin.R
 
 	private ServiceRegistration eventListenerHookRegistration;
 
+	// Imports in progress, by the key of the service imported
+	private final ConcurrentMap<String, PendingImport> pendingImports = new ConcurrentHashMap<String, PendingImport>();
+
+	private final Object importExecutorLock = new Object();
+	private ExecutorService importExecutor;
+
 	/**
 	 * @return List of exported registrations
 	 * @since 4.2
@@ -399,6 +421,100 @@ public class RemoteServiceAdmin implements org.osgi.service.remoteserviceadmin.R
 		// First, make sure that the client bundle has the IMPORT endpoint
 		// permission
 		checkEndpointPermission(endpointDescription, EndpointPermission.IMPORT);
+		return doImportService(endpointDescription);
+	}
+
+	/**
+	 * Import the given endpoints concurrently. Each endpoint is imported as by
+	 * {@link #importService(org.osgi.service.remoteserviceadmin.EndpointDescription)},
+	 * but the connection to the remote containers and the lookup of the remote
+	 * services are done by up to
+	 * <code>org.eclipse.ecf.osgi.services.remoteserviceadmin.importThreads</code>
+	 * (default 8) threads at once, so that a slow remote host does not delay the
+	 * import of the other endpoints.
+	 * 
+	 * @param endpointDescriptions
+	 *            the endpoints to import. Must not be <code>null</code>.
+	 * @return the import registrations, in the order of the given endpoints. An
+	 *         entry is <code>null</code> if its endpoint could not be imported.
+	 * @throws SecurityException
+	 *             if the caller does not have the IMPORT endpoint permission for
+	 *             all of the endpoints. None of them are imported then.
+	 * @since 4.10
+	 */
+	public List<org.osgi.service.remoteserviceadmin.ImportRegistration> importServices(
+			Collection<? extends org.osgi.service.remoteserviceadmin.EndpointDescription> endpointDescriptions) {
+		trace("importServices", "endpointDescriptions=" + endpointDescriptions); //$NON-NLS-1$ //$NON-NLS-2$
+		final List<org.osgi.service.remoteserviceadmin.EndpointDescription> eds = new ArrayList<org.osgi.service.remoteserviceadmin.EndpointDescription>(
+				endpointDescriptions);
+		// Check the permissions on the calling thread, before importing any
+		for (org.osgi.service.remoteserviceadmin.EndpointDescription ed : eds)
+			checkEndpointPermission(ed, EndpointPermission.IMPORT);
+		final ExecutorService executor = getImportExecutor();
+		final List<FutureTask<ImportRegistration>> tasks = new ArrayList<FutureTask<ImportRegistration>>(eds.size());
+		for (final org.osgi.service.remoteserviceadmin.EndpointDescription ed : eds) {
+			FutureTask<ImportRegistration> task = new FutureTask<ImportRegistration>(
+					new Callable<ImportRegistration>() {
+						public ImportRegistration call() throws Exception {
+							return doImportService(ed);
+						}
+					});
+			try {
+				executor.execute(task);
+			} catch (RejectedExecutionException e) {
+				// closed, so import on this thread
+				task.run();
+			}
+			tasks.add(task);
+		}
+		final List<org.osgi.service.remoteserviceadmin.ImportRegistration> results = new ArrayList<org.osgi.service.remoteserviceadmin.ImportRegistration>(
+				tasks.size());
+		boolean interrupted = false;
+		for (int i = 0; i < tasks.size(); i++) {
+			ImportRegistration result = null;
+			for (;;) {
+				try {
+					result = tasks.get(i).get();
+					break;
+				} catch (InterruptedException e) {
+					// The import continues regardless, so wait for its result
+					interrupted = true;
+				} catch (ExecutionException e) {
+					logError("importServices", "Unexpected exception importing endpointDescription=" + eds.get(i), //$NON-NLS-1$ //$NON-NLS-2$
+							e.getCause());
+					break;
+				}
+			}
+			results.add(result);
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		trace("importServices", "importRegistrations=" + results); //$NON-NLS-1$ //$NON-NLS-2$
+		return results;
+	}
+
+	private ExecutorService getImportExecutor() {
+		synchronized (importExecutorLock) {
+			if (importExecutor == null) {
+				ThreadPoolExecutor executor = new ThreadPoolExecutor(IMPORT_THREADS, IMPORT_THREADS, 60L,
+						TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+							private final AtomicInteger count = new AtomicInteger();
+
+							public Thread newThread(Runnable r) {
+								Thread t = new Thread(r, "RSA Import-" + count.incrementAndGet()); //$NON-NLS-1$
+								t.setDaemon(true);
+								return t;
+							}
+						});
+				executor.allowCoreThreadTimeOut(true);
+				importExecutor = executor;
+			}
+			return importExecutor;
+		}
+	}
+
+	private ImportRegistration doImportService(
+			org.osgi.service.remoteserviceadmin.EndpointDescription endpointDescription) {
 		final EndpointDescription ed = (endpointDescription instanceof EndpointDescription)
 				? (EndpointDescription) endpointDescription
 				: new EndpointDescription(endpointDescription.getProperties());
@@ -439,14 +555,10 @@ public class RemoteServiceAdmin implements org.osgi.service.remoteserviceadmin.R
 
 		// If one selected then import the service to create an import
 		// registration
-		synchronized (importedRegistrations) {
-			if (importRegistration == null) {
-				ImportEndpoint importEndpoint = findImportEndpoint(ed);
-				importRegistration = ((importEndpoint != null) ? new ImportRegistration(importEndpoint)
-						: importService(ed, rsContainer));
-			}
+		if (importRegistration == null)
+			importRegistration = importServiceOnce(ed, rsContainer);
+		else
 			addImportRegistration(importRegistration);
-		}
 		// publish import event
 		publishImportEvent(importRegistration);
 		trace("importService", "importRegistration=" + importRegistration); //$NON-NLS-1$ //$NON-NLS-2$
@@ -1110,6 +1222,18 @@ public class RemoteServiceAdmin implements org.osgi.service.remoteserviceadmin.R
 
 		}
 
+		/**
+		 * Close a registration that has not been added or published, without
+		 * publishing an event.
+		 */
+		synchronized void discard() {
+			if (!closed) {
+				importReference.close(this);
+				closed = true;
+				this.importReference = null;
+			}
+		}
+
 		public Throwable getException() {
 			return (closed) ? updateException : importReference.getException();
 		}
@@ -2324,6 +2448,13 @@ public class RemoteServiceAdmin implements org.osgi.service.remoteserviceadmin.R
 		this.localExportedRegistrations.clear();
 		this.localImportedRegistrations.clear();
 
+		synchronized (importExecutorLock) {
+			if (importExecutor != null) {
+				importExecutor.shutdown();
+				importExecutor = null;
+			}
+		}
+
 		synchronized (remoteServiceAdminListenerTrackerLock) {
 			if (remoteServiceAdminListenerTracker != null) {
 				remoteServiceAdminListenerTracker.close();
@@ -2381,6 +2512,91 @@ public class RemoteServiceAdmin implements org.osgi.service.remoteserviceadmin.R
 		}
 	}
 
+	/**
+	 * Import the given endpoint, or reuse the import endpoint of the same
+	 * service, and add the resulting import registration. The remote service is
+	 * looked up without holding the lock of the imported registrations, and
+	 * concurrent imports of the same service wait for the first of them rather
+	 * than looking it up again.
+	 */
+	private ImportRegistration importServiceOnce(EndpointDescription ed, IRemoteServiceContainer rsContainer) {
+		final String key = getImportKey(ed);
+		for (;;) {
+			synchronized (importedRegistrations) {
+				ImportEndpoint importEndpoint = findImportEndpoint(ed);
+				if (importEndpoint != null) {
+					ImportRegistration importRegistration = new ImportRegistration(importEndpoint);
+					addImportRegistration(importRegistration);
+					return importRegistration;
+				}
+			}
+			PendingImport pendingImport = new PendingImport();
+			PendingImport inProgress = pendingImports.putIfAbsent(key, pendingImport);
+			if (inProgress == null) {
+				try {
+					ImportRegistration importRegistration = importService(ed, rsContainer);
+					synchronized (importedRegistrations) {
+						// The service may have been imported by a caller
+						// that started before the pending import was added
+						ImportEndpoint importEndpoint = (importRegistration.getException() == null)
+								? findImportEndpoint(ed)
+								: null;
+						if (importEndpoint != null) {
+							importRegistration.discard();
+							importRegistration = new ImportRegistration(importEndpoint);
+						}
+						addImportRegistration(importRegistration);
+					}
+					pendingImport.exception = importRegistration.getException();
+					return importRegistration;
+				} finally {
+					pendingImports.remove(key, pendingImport);
+					pendingImport.done.countDown();
+				}
+			}
+			trace("importServiceOnce", "waiting for import in progress of endpointDescription=" + ed); //$NON-NLS-1$ //$NON-NLS-2$
+			Throwable exception;
+			try {
+				inProgress.done.await();
+				exception = inProgress.exception;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				exception = e;
+			}
+			// If the import in progress failed, then fail the same way rather
+			// than trying again. Otherwise its import endpoint is found above,
+			// unless it has been closed since.
+			if (exception != null) {
+				ImportRegistration importRegistration = new ImportRegistration(ed, exception);
+				addImportRegistration(importRegistration);
+				return importRegistration;
+			}
+		}
+	}
+
+	/**
+	 * @return the key of the service of the given endpoint, such that
+	 *         endpoints with the same key are the same service as defined by
+	 *         {@link EndpointDescription#isSameService(org.osgi.service.remoteserviceadmin.EndpointDescription)}.
+	 *         Without a framework UUID, that is only the endpoint with the same
+	 *         id.
+	 */
+	private String getImportKey(EndpointDescription ed) {
+		String frameworkUUID = ed.getFrameworkUUID();
+		if (frameworkUUID == null)
+			return ed.getId();
+		return new StringBuffer(frameworkUUID).append(':').append(ed.getServiceId()).toString();
+	}
+
+	/**
+	 * An import of a service in progress, which other imports of the same
+	 * service wait for.
+	 */
+	static class PendingImport {
+		final CountDownLatch done = new CountDownLatch(1);
+		volatile Throwable exception;
+	}
+
 	private ImportEndpoint findImportEndpoint(EndpointDescription ed) {
 		for (org.osgi.service.remoteserviceadmin.ImportRegistration reg : importedRegistrations) {
 			if (reg instanceof ImportRegistration) {
@@ -62,7 +62,7 @@ public class TopologyManager implements EventListenerHook, RemoteServiceAdminLis
 		}
 	}
 
-	class ProxyEndpointEventListener implements EndpointEventListener {
+	class ProxyEndpointEventListener implements IEndpointEventBatchListener {
 
 		private final Bundle bundle;
 
@@ -71,6 +71,31 @@ public class TopologyManager implements EventListenerHook, RemoteServiceAdminLis
 		}
 
 		public void endpointChanged(EndpointEvent event, String filter) {
+			track(event, filter);
+			deliverSafe(event, filter);
+		}
+
+		public void endpointsChanged(final EndpointEvent[] events, final String[] filters) {
+			for (int i = 0; i < events.length; i++)
+				track(events[i], filters[i]);
+			final EndpointEventListener listener = topologyManagerImpl;
+			SafeRunner.run(new ISafeRunnable() {
+				public void run() throws Exception {
+					if (listener instanceof IEndpointEventBatchListener)
+						((IEndpointEventBatchListener) listener).endpointsChanged(events, filters);
+					else if (listener != null)
+						for (int i = 0; i < events.length; i++)
+							listener.endpointChanged(events[i], filters[i]);
+				}
+
+				public void handleException(Throwable exception) {
+					logError("endpointsChanged", "Exception in IEndpointEventBatchListener listener=" //$NON-NLS-1$ //$NON-NLS-2$
+							+ listener, exception);
+				};
+			});
+		}
+
+		private void track(EndpointEvent event, String filter) {
 			int type = event.getType();
 			if (type == EndpointEvent.ADDED) {
 				synchronized (bundleEndpointEventListenerMap) {
@@ -97,7 +122,6 @@ public class TopologyManager implements EventListenerHook, RemoteServiceAdminLis
 
 				}
 			}
-			deliverSafe(event, filter);
 		}
 
 		private void logError(String methodName, String message, Throwable e) {
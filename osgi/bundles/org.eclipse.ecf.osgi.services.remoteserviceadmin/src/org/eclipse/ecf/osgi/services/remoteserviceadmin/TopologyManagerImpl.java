@@ -38,7 +38,8 @@ import org.osgi.util.tracker.BundleTrackerCustomizer;
 /**
  * @since 4.6
  */
-public class TopologyManagerImpl extends AbstractTopologyManager implements EndpointListener, EndpointEventListener {
+public class TopologyManagerImpl extends AbstractTopologyManager
+		implements EndpointListener, EndpointEventListener, IEndpointEventBatchListener {
 
 	public static final int STARTUP_WAIT_TIME = Integer
 			.getInteger("org.eclipse.ecf.osgi.services.remoteserviceadmin.startupWaitTime", 20000); //$NON-NLS-1$
@@ -64,6 +65,9 @@ public class TopologyManagerImpl extends AbstractTopologyManager implements Endp
 	
 	private boolean allowLocalHost;
 	private List<String> otherFilters;
+	// Whether added ECF endpoints can be imported together, without
+	// bypassing per-endpoint hooks that a subclass overrides
+	private final boolean importAddedTogether;
 	
 	boolean isNonECFTopologyManager() {
 		return nonECFTopologyManager;
@@ -107,6 +111,26 @@ public class TopologyManagerImpl extends AbstractTopologyManager implements Endp
 				this.nonECFNonLocalEndpointListenerScope = processFrameworkLocal(this.nonECFNonLocalEndpointListenerScope);
 			}
 		this.otherFilters = otherFilters == null?new ArrayList<String>():Arrays.asList(otherFilters);
+		this.importAddedTogether = overrides("handleECFEndpointsAdded", List.class) //$NON-NLS-1$
+				|| !(overrides("endpointChanged", EndpointEvent.class, String.class) //$NON-NLS-1$
+						|| overrides("handleEndpointAdded", //$NON-NLS-1$
+								org.osgi.service.remoteserviceadmin.EndpointDescription.class, String.class)
+						|| overrides("handleECFEndpointAdded", EndpointDescription.class)); //$NON-NLS-1$
+	}
+
+	private boolean overrides(String methodName, Class<?>... parameterTypes) {
+		for (Class<?> c = getClass(); c != TopologyManagerImpl.class; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod(methodName, parameterTypes);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// not declared by this class
+			} catch (SecurityException e) {
+				// assume it is overridden
+				return true;
+			}
+		}
+		return false;
 	}
 
 	protected String getFrameworkUUID() {
@@ -217,6 +241,38 @@ public class TopologyManagerImpl extends AbstractTopologyManager implements Endp
 		}
 	}
 
+	/**
+	 * The ECF endpoints that are added are imported together, with
+	 * {@link #handleECFEndpointsAdded(List)}. All other events are handled as by
+	 * {@link #endpointChanged(EndpointEvent, String)}, before the imports.
+	 * <p>
+	 * If a subclass overrides {@link #endpointChanged(EndpointEvent, String)},
+	 * {@link #handleEndpointAdded(org.osgi.service.remoteserviceadmin.EndpointDescription, String)}
+	 * or {@link #handleECFEndpointAdded(EndpointDescription)}, but not
+	 * {@link #handleECFEndpointsAdded(List)}, every event is handled by
+	 * {@link #endpointChanged(EndpointEvent, String)} instead, in order.
+	 * 
+	 * @since 4.10
+	 */
+	public void endpointsChanged(EndpointEvent[] events, String[] matchedFilters) {
+		if (!importAddedTogether) {
+			for (int i = 0; i < events.length; i++)
+				endpointChanged(events[i], matchedFilters[i]);
+			return;
+		}
+		List<EndpointDescription> added = new ArrayList<EndpointDescription>();
+		for (int i = 0; i < events.length; i++) {
+			String matchedFilter = matchedFilters[i];
+			if (events[i].getType() == EndpointEvent.ADDED && (matchedFilter.equals(ecfNonLocalEndpointListenerScope)
+					|| matchedFilter.equals(ecfLocalEndpointListenerScope)))
+				added.add((EndpointDescription) events[i].getEndpoint());
+			else
+				endpointChanged(events[i], matchedFilter);
+		}
+		if (added.size() > 0)
+			handleECFEndpointsAdded(added);
+	}
+
 	protected void handleEndpointAdded(org.osgi.service.remoteserviceadmin.EndpointDescription endpoint,
 			String matchedFilter) {
 		if (matchedFilter.equals(nonECFLocalEndpointListenerScope)) {
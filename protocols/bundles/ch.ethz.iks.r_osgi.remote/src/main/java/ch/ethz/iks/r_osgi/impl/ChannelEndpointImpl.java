@@ -43,6 +43,7 @@ import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -179,6 +180,33 @@ public final class ChannelEndpointImpl implements ChannelEndpoint {
 	 */
 	private short nextStreamID = 0;
 
+	/**
+	 * map of stream id -&gt; list of the stream requests received but not yet
+	 * handled. A stream has an entry while a worker thread handles its
+	 * requests, so that they are handled one at a time, in the order in which
+	 * they were received.
+	 */
+	private final HashMap streamRequests = new HashMap(0);
+
+	/**
+	 * the protocol version of the remote peer.
+	 */
+	private volatile byte peerVersion = 1;
+
+	/**
+	 * the size of the chunks in which stream proxies read and write data.
+	 */
+	public static final int STREAM_CHUNK_SIZE = Math.max(1, Integer.getInteger(
+			"ch.ethz.iks.r_osgi.streams.chunkSize", 65536).intValue()); //$NON-NLS-1$
+
+	/**
+	 * the maximum number of stream requests a stream proxy sends without
+	 * waiting for their results, if the remote peer supports it. With 1, each
+	 * request waits for the result of the previous one.
+	 */
+	public static final int STREAM_WINDOW = Math.max(1, Integer.getInteger(
+			"ch.ethz.iks.r_osgi.streams.window", 8).intValue()); //$NON-NLS-1$
+
 	/**
 	 * the handler registration, if the remote topic space is not empty.
 	 */
@@ -302,6 +330,7 @@ public final class ChannelEndpointImpl implements ChannelEndpoint {
 			dispose();
 			return;
 		}
+		peerVersion = msg.getVersion();
 		final Integer xid = Integer.valueOf(msg.getXID());
 		final WaitingCallback callback;
 		synchronized (callbacks) {
@@ -310,31 +339,101 @@ public final class ChannelEndpointImpl implements ChannelEndpoint {
 		if (callback != null) {
 			callback.result(msg);
 			return;
+		} else if (msg.getFuncID() == RemoteOSGiMessage.STREAM_REQUEST) {
+			queueStreamRequest((StreamRequestMessage) msg);
 		} else {
-			final Runnable r = new Runnable() {
+			execute(new Runnable() {
 				public void run() {
-					final RemoteOSGiMessage reply = handleMessage(msg);
-					if (reply != null) {
-
-						try {
-							trace("reply(msg="+reply+";remoteAddress="+networkChannel.getRemoteAddress()+")");
-							networkChannel.sendMessage(reply);
-						} catch (final NotSerializableException nse) {
-							throw new RemoteOSGiException("Error sending " //$NON-NLS-1$
-									+ reply, nse);
-						} catch (NullPointerException npe) {
-							// channel got closed							
-						} catch (final IOException e) {
-							dispose();
-						}
-					}
+					handleAndReply(msg);
 				}
-			};
-			synchronized (workQueue) {
-				workQueue.add(r);
-				workQueue.notify();
+			});
+		}
+	}
+
+	/**
+	 * hand a task to the worker threads.
+	 * 
+	 * @param r
+	 *            the task.
+	 */
+	private void execute(final Runnable r) {
+		synchronized (workQueue) {
+			workQueue.add(r);
+			workQueue.notify();
+		}
+	}
+
+	/**
+	 * handle a received message and send the reply, if any.
+	 * 
+	 * @param msg
+	 *            the received message.
+	 */
+	private void handleAndReply(final RemoteOSGiMessage msg) {
+		final RemoteOSGiMessage reply = handleMessage(msg);
+		if (reply != null) {
+
+			try {
+				trace("reply(msg="+reply+";remoteAddress="+networkChannel.getRemoteAddress()+")");
+				networkChannel.sendMessage(reply);
+			} catch (final NotSerializableException nse) {
+				throw new RemoteOSGiException("Error sending " //$NON-NLS-1$
+						+ reply, nse);
+			} catch (NullPointerException npe) {
+				// channel got closed							
+			} catch (final IOException e) {
+				dispose();
+			}
+		}
+	}
+
+	/**
+	 * queue a received stream request. The requests for the same stream are
+	 * handled by one worker thread at a time, in the order in which they were
+	 * received, so that the remote peer can send several of them without
+	 * waiting for the results. A worker thread handles one request of the
+	 * stream at a time and then queues the next one behind the other work, so
+	 * that a busy stream does not hold a worker thread for longer than one
+	 * request.
+	 * 
+	 * @param msg
+	 *            the stream request.
+	 */
+	private void queueStreamRequest(final StreamRequestMessage msg) {
+		final Integer streamID = Integer.valueOf(msg.getStreamID());
+		synchronized (streamRequests) {
+			List queue = (List) streamRequests.get(streamID);
+			if (queue != null) {
+				// the stream already has a task in the work queue
+				queue.add(msg);
+				return;
 			}
+			queue = new LinkedList();
+			queue.add(msg);
+			streamRequests.put(streamID, queue);
 		}
+		execute(new Runnable() {
+			public void run() {
+				final RemoteOSGiMessage next;
+				synchronized (streamRequests) {
+					next = (RemoteOSGiMessage) ((List) streamRequests
+							.get(streamID)).remove(0);
+				}
+				try {
+					handleAndReply(next);
+				} catch (final RuntimeException e) {
+					// continue with the next request of the stream
+					trace("handleAndReply(msg=" + next + ")", e); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				synchronized (streamRequests) {
+					if (((List) streamRequests.get(streamID)).isEmpty()) {
+						streamRequests.remove(streamID);
+						return;
+					}
+				}
+				execute(this);
+			}
+		});
 	}
 
 	/**
@@ -1348,9 +1447,18 @@ public final class ChannelEndpointImpl implements ChannelEndpoint {
 					return m;
 				}
 				case StreamRequestMessage.READ_ARRAY: {
+					final InputStream in = (InputStream) stream;
 					final byte[] b = new byte[reqMsg.getLenOrVal()];
-					final int len = ((InputStream) stream).read(b, 0, reqMsg
-							.getLenOrVal());
+					int len = in.read(b, 0, b.length);
+					// read ahead what is available without blocking, to
+					// answer with as much data as requested
+					if (len > 0) {
+						int read;
+						while (len < b.length && in.available() > 0
+								&& (read = in.read(b, len, b.length - len)) > 0) {
+							len += read;
+						}
+					}
 					final StreamResultMessage m = new StreamResultMessage();
 					m.setXID(reqMsg.getXID());
 					m.setResult(StreamResultMessage.RESULT_ARRAY);
@@ -1432,6 +1540,17 @@ public final class ChannelEndpointImpl implements ChannelEndpoint {
 	 * @return the result message.
 	 */
 	private RemoteOSGiMessage sendAndWait(final RemoteOSGiMessage msg) {
+		return waitForResult(sendAsync(msg));
+	}
+
+	/**
+	 * send a message without waiting for the result.
+	 * 
+	 * @param msg
+	 *            the message.
+	 * @return the callback that receives the result.
+	 */
+	private WaitingCallback sendAsync(final RemoteOSGiMessage msg) {
 		if (msg.getXID() == 0) {
 			msg.setXID(RemoteOSGiServiceImpl.nextXid());
 		}
@@ -1443,7 +1562,17 @@ public final class ChannelEndpointImpl implements ChannelEndpoint {
 		}
 
 		send(msg);
+		return blocking;
+	}
 
+	/**
+	 * wait for the result of a message.
+	 * 
+	 * @param blocking
+	 *            the callback that receives the result.
+	 * @return the result message.
+	 */
+	private RemoteOSGiMessage waitForResult(final WaitingCallback blocking) {
 		// wait for the reply
 		synchronized (blocking) {
 			final long timeout = System.currentTimeMillis() + TIMEOUT;
@@ -1566,18 +1695,67 @@ public final class ChannelEndpointImpl implements ChannelEndpoint {
 	 */
 	private StreamResultMessage doStreamOp(final StreamRequestMessage requestMsg)
 			throws IOException {
-		try {
-			// send the message and get a StreamResultMessage in return
-			final StreamResultMessage result = (StreamResultMessage) sendAndWait(requestMsg);
-			if (result.causedException()) {
-				throw result.getException();
-			}
-			return result;
-		} catch (final RemoteOSGiException e) {
-			throw new RemoteOSGiException("Invocation of operation " //$NON-NLS-1$
-					+ requestMsg.getOp() + " on stream " //$NON-NLS-1$
-					+ requestMsg.getStreamID() + " failed.", e); //$NON-NLS-1$
-		}
+		// send the message and get a StreamResultMessage in return
+		return new PendingStreamOp(requestMsg).getResult();
+	}
+
+	/**
+	 * send a request for reading from the input stream on the peer identified
+	 * by id, without waiting for the result.
+	 * 
+	 * @param streamID
+	 *            the ID of the stream.
+	 * @param len
+	 *            the number of bytes to read.
+	 * @return the pending read operation. The result has the number of bytes
+	 *         read as length, -1 at the end of the stream, and the bytes read
+	 *         as data.
+	 */
+	public PendingStreamOp sendReadStream(final short streamID, final int len) {
+		final StreamRequestMessage requestMsg = new StreamRequestMessage();
+		requestMsg.setOp(StreamRequestMessage.READ_ARRAY);
+		requestMsg.setStreamID(streamID);
+		requestMsg.setLenOrVal(len);
+		return new PendingStreamOp(requestMsg);
+	}
+
+	/**
+	 * send a request for writing to the output stream on the peer identified
+	 * by id, without waiting for the result.
+	 * 
+	 * @param streamID
+	 *            the ID of the stream.
+	 * @param b
+	 *            the source array.
+	 * @param off
+	 *            offset into the source array.
+	 * @param len
+	 *            number of bytes to copy.
+	 * @return the pending write operation.
+	 */
+	public PendingStreamOp sendWriteStream(final short streamID,
+			final byte[] b, final int off, final int len) {
+		final byte[] data = new byte[len];
+		System.arraycopy(b, off, data, 0, len);
+
+		final StreamRequestMessage requestMsg = new StreamRequestMessage();
+		requestMsg.setOp(StreamRequestMessage.WRITE_ARRAY);
+		requestMsg.setStreamID(streamID);
+		requestMsg.setData(data);
+		requestMsg.setLenOrVal(len);
+		return new PendingStreamOp(requestMsg);
+	}
+
+	/**
+	 * can stream proxies send several requests for the same stream without
+	 * waiting for the results?
+	 * 
+	 * @return <code>true</code> if the remote peer handles the requests for a
+	 *         stream in the order they are sent, and the window allows more
+	 *         than one request.
+	 */
+	public boolean isStreamPipelined() {
+		return STREAM_WINDOW > 1 && peerVersion >= 2;
 	}
 
 	/**
@@ -1767,6 +1945,52 @@ public final class ChannelEndpointImpl implements ChannelEndpoint {
 		}
 	}
 
+	/**
+	 * a stream operation that has been sent to the remote peer.
+	 */
+	public final class PendingStreamOp {
+
+		private final StreamRequestMessage requestMsg;
+
+		private final WaitingCallback callback;
+
+		PendingStreamOp(final StreamRequestMessage requestMsg) {
+			this.requestMsg = requestMsg;
+			try {
+				callback = sendAsync(requestMsg);
+			} catch (final RemoteOSGiException e) {
+				throw failed(e);
+			}
+		}
+
+		/**
+		 * wait for the result of the operation.
+		 * 
+		 * @return the result message.
+		 * @throws IOException
+		 *             the exception thrown by the operation on the remote
+		 *             stream.
+		 */
+		public StreamResultMessage getResult() throws IOException {
+			final StreamResultMessage result;
+			try {
+				result = (StreamResultMessage) waitForResult(callback);
+			} catch (final RemoteOSGiException e) {
+				throw failed(e);
+			}
+			if (result.causedException()) {
+				throw result.getException();
+			}
+			return result;
+		}
+
+		private RemoteOSGiException failed(final RemoteOSGiException e) {
+			return new RemoteOSGiException("Invocation of operation " //$NON-NLS-1$
+					+ requestMsg.getOp() + " on stream " //$NON-NLS-1$
+					+ requestMsg.getStreamID() + " failed.", e); //$NON-NLS-1$
+		}
+	}
+
 	/**
 	 * callback that signals when the result has become available.
 	 * 
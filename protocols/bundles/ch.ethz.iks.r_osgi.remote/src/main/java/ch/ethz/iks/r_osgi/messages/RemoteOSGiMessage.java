@@ -117,12 +117,27 @@ public abstract class RemoteOSGiMessage {
 	 */
 	public static final short DELIVER_BUNDLES = 14;
 
-	
+	/**
+	 * the protocol version written into the header of the messages sent. Peers
+	 * with version 1 handle the stream requests for the same stream
+	 * concurrently, peers with version 2 or higher handle them in the order in
+	 * which they were received, so that they can be sent without waiting for
+	 * the result of the previous one.
+	 * 
+	 * @since 1.4
+	 */
+	public static final byte VERSION = 2;
+
 	/**
 	 * the type code or functionID in SLP notation.
 	 */
 	private short funcID;
 
+	/**
+	 * the protocol version of the peer that sent the message.
+	 */
+	private byte version = VERSION;
+
 	/**
 	 * the transaction id.
 	 */
@@ -155,6 +170,17 @@ public abstract class RemoteOSGiMessage {
 		this.xid = xid;
 	}
 
+	/**
+	 * Get the protocol version of the peer that sent the message.
+	 * 
+	 * @return the version, or {@link #VERSION} if the message was created
+	 *         locally.
+	 * @since 1.4
+	 */
+	public final byte getVersion() {
+		return version;
+	}
+
 	/**
 	 * Get the function ID (type code) of the message.
 	 * 
@@ -191,7 +217,7 @@ public abstract class RemoteOSGiMessage {
 	 */
 	public static RemoteOSGiMessage parse(final ObjectInputStream input)
 			throws IOException, ClassNotFoundException {
-		input.readByte(); // version, currently unused
+		final byte version = input.readByte();
 		final short funcID = input.readByte();
 		final int xid = input.readInt();
 		RemoteOSGiMessage msg;
@@ -241,6 +267,7 @@ public abstract class RemoteOSGiMessage {
 		}
 		msg.funcID = funcID;
 		msg.xid = xid;
+		msg.version = version;
 		return msg;
 	}
 
@@ -254,7 +281,7 @@ public abstract class RemoteOSGiMessage {
 	 */
 	public final void send(final ObjectOutputStream out) throws IOException {
 		synchronized (out) {
-			out.write(1);
+			out.write(VERSION);
 			out.write(funcID);
 			out.writeInt(xid);
 			writeBody(out);
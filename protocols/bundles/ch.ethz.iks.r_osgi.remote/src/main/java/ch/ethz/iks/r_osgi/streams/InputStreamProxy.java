@@ -30,11 +30,20 @@ package ch.ethz.iks.r_osgi.streams;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.LinkedList;
 
 import ch.ethz.iks.r_osgi.impl.ChannelEndpointImpl;
+import ch.ethz.iks.r_osgi.messages.StreamResultMessage;
 
 /**
- * Proxy object for input streams.
+ * Proxy object for input streams. The data is fetched from the remote stream
+ * in chunks, so that small reads are served from a local buffer. If the remote
+ * peer supports it, the proxy reads ahead by keeping a window of chunk
+ * requests outstanding, so that reading the stream is not slowed down by
+ * waiting for each chunk in turn. Since a request for data that the remote
+ * stream does not have yet blocks a worker thread of the peer, the proxy only
+ * reads ahead that far while the remote stream returns full chunks, and keeps
+ * a single request outstanding otherwise.
  * 
  * @author Michael Duller, ETH Zurich
  */
@@ -50,6 +59,36 @@ public class InputStreamProxy extends InputStream {
 	 */
 	private final ChannelEndpointImpl endpoint;
 
+	/**
+	 * the data fetched from the remote stream.
+	 */
+	private byte[] buffer;
+
+	/**
+	 * the position of the next byte to read in the buffer.
+	 */
+	private int pos;
+
+	/**
+	 * the number of valid bytes in the buffer.
+	 */
+	private int count;
+
+	/**
+	 * the read requests sent but not yet consumed, oldest first.
+	 */
+	private final LinkedList pending = new LinkedList();
+
+	/**
+	 * has the end of the remote stream been reached?
+	 */
+	private boolean eof;
+
+	/**
+	 * did the last chunk received have the full chunk size?
+	 */
+	private boolean full;
+
 	/**
 	 * Create a new input stream proxy.
 	 * 
@@ -69,8 +108,11 @@ public class InputStreamProxy extends InputStream {
 	 * 
 	 * @see java.io.InputStream#read()
 	 */
-	public int read() throws IOException {
-		return endpoint.readStream(streamID);
+	public synchronized int read() throws IOException {
+		if (pos >= count && !fill(1)) {
+			return -1;
+		}
+		return buffer[pos++] & 0xff;
 	}
 
 	/**
@@ -78,9 +120,103 @@ public class InputStreamProxy extends InputStream {
 	 * 
 	 * @see java.io.InputStream#read(byte[], int, int)
 	 */
-	public int read(final byte[] b, final int off, final int len)
+	public synchronized int read(final byte[] b, final int off, final int len)
 			throws IOException {
-		return endpoint.readStream(streamID, b, off, len);
+		// handle special cases as defined in InputStream
+		if (b == null) {
+			throw new NullPointerException();
+		}
+		if ((off < 0) || (len < 0) || (len + off > b.length)) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0) {
+			return 0;
+		}
+		if (pos >= count && !fill(len)) {
+			return -1;
+		}
+		final int n = Math.min(len, count - pos);
+		System.arraycopy(buffer, pos, b, off, n);
+		pos += n;
+		return n;
+	}
+
+	/**
+	 * Get the number of bytes that can be read without fetching data from the
+	 * remote stream.
+	 * 
+	 * @see java.io.InputStream#available()
+	 */
+	public synchronized int available() {
+		return count - pos;
+	}
+
+	/**
+	 * Fetch data from the remote stream into the buffer.
+	 * 
+	 * @param len
+	 *            the number of bytes the caller wants to read.
+	 * @return <code>false</code> at the end of the stream.
+	 * @throws IOException
+	 *             in case of IO failures on the remote stream.
+	 */
+	private boolean fill(final int len) throws IOException {
+		pos = 0;
+		count = 0;
+		while (count == 0) {
+			if (eof) {
+				return false;
+			}
+			final int n;
+			if (pending.isEmpty() && !endpoint.isStreamPipelined()) {
+				// one request at a time, for at least a chunk
+				final int size = Math.max(len,
+						ChannelEndpointImpl.STREAM_CHUNK_SIZE);
+				if (buffer == null || buffer.length < size) {
+					buffer = new byte[size];
+				}
+				n = endpoint.readStream(streamID, buffer, 0, size);
+			} else {
+				requestChunks();
+				final StreamResultMessage result;
+				try {
+					result = ((ChannelEndpointImpl.PendingStreamOp) pending
+							.removeFirst()).getResult();
+				} catch (final IOException e) {
+					// the results of the later requests are dropped
+					pending.clear();
+					throw e;
+				}
+				n = result.getLen();
+				if (n > 0) {
+					buffer = result.getData();
+				}
+			}
+			if (n < 0) {
+				eof = true;
+				pending.clear();
+				return false;
+			}
+			count = n;
+			full = n >= ChannelEndpointImpl.STREAM_CHUNK_SIZE;
+			if (n > 0 && endpoint.isStreamPipelined()) {
+				// request the next chunks while this one is read
+				requestChunks();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Send read requests until the window is full. While the last chunk
+	 * received was short, the window is one request.
+	 */
+	private void requestChunks() {
+		final int window = full ? ChannelEndpointImpl.STREAM_WINDOW : 1;
+		while (pending.size() < window) {
+			pending.add(endpoint.sendReadStream(streamID,
+					ChannelEndpointImpl.STREAM_CHUNK_SIZE));
+		}
 	}
 
 }
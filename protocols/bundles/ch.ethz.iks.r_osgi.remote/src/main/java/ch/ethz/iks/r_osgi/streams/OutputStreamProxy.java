@@ -30,11 +30,15 @@ package ch.ethz.iks.r_osgi.streams;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.LinkedList;
 
 import ch.ethz.iks.r_osgi.impl.ChannelEndpointImpl;
 
 /**
- * Output stream proxy.
+ * Output stream proxy. If the remote peer supports it, large writes are sent
+ * in chunks, without waiting for each chunk to be written before sending the
+ * next one. At most a window of chunks is outstanding at any time, and a write
+ * returns once all of its chunks have been written to the remote stream.
  * 
  * @author Michael Duller, ETH Zurich.
  */
@@ -88,7 +92,36 @@ public class OutputStreamProxy extends OutputStream {
 	 */
 	public void write(final byte[] b, final int off, final int len)
 			throws IOException {
-		endpoint.writeStream(streamID, b, off, len);
+		if (len <= ChannelEndpointImpl.STREAM_CHUNK_SIZE
+				|| !endpoint.isStreamPipelined()) {
+			endpoint.writeStream(streamID, b, off, len);
+			return;
+		}
+		// handle special cases as defined in OutputStream
+		if (b == null) {
+			throw new NullPointerException();
+		}
+		if ((off < 0) || (len < 0) || (len + off > b.length)) {
+			throw new IndexOutOfBoundsException();
+		}
+		final LinkedList pending = new LinkedList();
+		int written = 0;
+		while (written < len) {
+			if (pending.size() >= ChannelEndpointImpl.STREAM_WINDOW) {
+				// wait for the oldest chunk before sending more
+				((ChannelEndpointImpl.PendingStreamOp) pending.removeFirst())
+						.getResult();
+			}
+			final int n = Math.min(ChannelEndpointImpl.STREAM_CHUNK_SIZE, len
+					- written);
+			pending.add(endpoint.sendWriteStream(streamID, b, off + written,
+					n));
+			written += n;
+		}
+		while (!pending.isEmpty()) {
+			((ChannelEndpointImpl.PendingStreamOp) pending.removeFirst())
+					.getResult();
+		}
 	}
 
 }
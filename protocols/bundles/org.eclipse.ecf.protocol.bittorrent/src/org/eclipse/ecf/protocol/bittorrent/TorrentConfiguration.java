@@ -31,6 +31,23 @@ public final class TorrentConfiguration {
 	 */
 	public static boolean DEBUG = false;
 
+	/**
+	 * The number of threads that verify the pieces of a torrent in parallel
+	 * during a hash check. The default is the number of processors that are
+	 * available to the virtual machine.
+	 */
+	public static int HASH_CHECK_THREADS = Runtime.getRuntime()
+			.availableProcessors();
+
+	/**
+	 * A boolean flag to specify whether the pieces that have passed a hash
+	 * check should be recorded along with the size and modification time of
+	 * each file. A torrent that is opened again then only checks the pieces
+	 * within files that have changed since instead of performing a full hash
+	 * check. The default is <code>true</code>.
+	 */
+	public static boolean RESUME_HASH_CHECK = true;
+
 	/**
 	 * The folder in which all state and configuration information should be
 	 * saved.
@@ -97,10 +97,11 @@ class PeerConnection extends Thread {
 	private InetSocketAddress address;
 
 	/**
-	 * An array of <code>boolean</code>s that keeps track of what pieces this
-	 * peer has.
+	 * Keeps track of what pieces this peer has.
 	 */
-	private boolean[] peerPieces;
+	private final PiecePicker.PeerPieces peerPieces;
+
+	private final PiecePicker picker;
 
 	/**
 	 * The name and version of the BitTorrent client that this peer is currently
@@ -190,9 +191,9 @@ class PeerConnection extends Thread {
 			buffer.append(manager.getPeerID());
 		}
 		handshake = buffer.toString().getBytes("ISO-8859-1"); //$NON-NLS-1$
-		peerPieces = new boolean[torrent.getNumPieces()];
-		haveMessages = new boolean[peerPieces.length];
-		Arrays.fill(peerPieces, false);
+		picker = manager.getPiecePicker();
+		peerPieces = picker.createPeer();
+		haveMessages = new boolean[peerPieces.length()];
 		Arrays.fill(haveMessages, false);
 	}
 
@@ -749,34 +750,19 @@ class PeerConnection extends Thread {
 			hasPiece[count++] = (bit & 64) != 0;
 			hasPiece[count++] = (bit & 128) != 0;
 		}
-		System.arraycopy(hasPiece, 0, peerPieces, 0, peerPieces.length);
 		TorrentConfiguration.debug("Received [BT_BITFIELD] message from " + ip //$NON-NLS-1$
 				+ ":" + port); //$NON-NLS-1$
-		manager.addPieceAvailability(peerPieces);
-
-		for (int i = 0; i < peerPieces.length; i++) {
-			if (!peerPieces[i]) {
-				return;
-			}
-		}
-		peerIsSeed = true;
+		picker.setPieces(peerPieces, hasPiece);
+		peerIsSeed = peerPieces.isComplete();
 	}
 
 	private void processHaveMessage(byte[] array) {
 		int piece = Decode.decodeFourByteNumber(array, 5);
-		if (!peerPieces[piece]) {
-			peerPieces[piece] = true;
-			manager.updatePieceAvailability(piece);
+		if (picker.addPiece(peerPieces, piece)) {
+			peerIsSeed = peerPieces.isComplete();
 		}
 		TorrentConfiguration.debug("Received [BT_HAVE piece #" + piece //$NON-NLS-1$
 				+ "] message from " + ip + ":" + port); //$NON-NLS-1$ //$NON-NLS-2$
-
-		for (int i = 0; i < peerPieces.length; i++) {
-			if (!peerPieces[i]) {
-				return;
-			}
-		}
-		peerIsSeed = true;
 	}
 
 	private void processPiece(byte[] array) throws IOException {
@@ -813,58 +799,42 @@ class PeerConnection extends Thread {
 			return false;
 		}
 
-		byte[] block = manager.getPieceData(piece, index, length);
-		if (block == null) {
-			return false;
-		}
+		// check the range of the block before anything is sent to the peer
+		manager.checkPieceData(piece, index, length);
 
 		Encode.putIntegerAsFourBytes(blockInfo, length + 9, 0);
 		Encode.putIntegerAsFourBytes(blockInfo, piece, 5);
 		Encode.putIntegerAsFourBytes(blockInfo, index, 9);
 		sendBuffer.put(blockInfo);
+		sendBuffer.flip();
+		channel.write(sendBuffer);
+		sendBuffer.clear();
 
-		int blockLength = block.length;
+		// the block goes from the files straight to the socket, in portions no
+		// larger than what the upload limit currently allows
 		int offset = 0;
-		int remaining = sendBuffer.remaining();
-		long write = manager.getUploadRequestSpeed();
-		if (write != 0) {
-			if (write == -1) {
-				// since no limit has been set, simply set the amount to write
-				// as the length of the block
-				write = blockLength;
-			} else {
-				write = write < blockLength ? write : blockLength;
-			}
-			write = remaining < write ? remaining : write;
-		}
-		while (offset < blockLength) {
+		while (offset < length) {
+			long write = manager.getUploadRequestSpeed();
 			if (write == 0) {
 				try {
 					Thread.sleep(500);
 				} catch (InterruptedException e) {
 					// ignored
 				}
-			} else {
-				sendBuffer.put(block, offset, (int) write);
-				sendBuffer.flip();
-				channel.write(sendBuffer);
-				sendBuffer.clear();
-				offset += write;
-				manager.updateUploadRequestSpeed((int) write);
-				uploaded += write;
-				manager.addToUploaded(write);
+				continue;
 			}
-			write = manager.getUploadRequestSpeed();
-			if (write != 0) {
-				remaining = blockLength - offset;
-				if (write == -1) {
-					write = remaining;
-				} else {
-					write = write < remaining ? write : remaining;
-				}
-				remaining = sendBuffer.remaining();
-				write = remaining < write ? remaining : write;
+			int remaining = length - offset;
+			if (write == -1 || write > remaining) {
+				// since no limit has been set, or the limit is higher than
+				// what is left, simply send the rest of the block
+				write = remaining;
 			}
+			manager.transferPieceData(piece, index + offset, (int) write,
+					channel);
+			offset += write;
+			manager.updateUploadRequestSpeed((int) write);
+			uploaded += write;
+			manager.addToUploaded(write);
 		}
 
 		TorrentConfiguration.debug("Sent [BT_PIECE data for #" + piece + ": " //$NON-NLS-1$ //$NON-NLS-2$
@@ -1061,7 +1031,8 @@ class PeerConnection extends Thread {
 		peerIsInterested = false;
 		peerIsChoking = true;
 		peerIsSeed = false;
-		Arrays.fill(peerPieces, false);
+		// also removes the peer's pieces from their availability
+		picker.clear(peerPieces);
 
 		sendChoke = false;
 		sendUnchoke = false;
@@ -1091,7 +1062,6 @@ class PeerConnection extends Thread {
 				// ignored
 			}
 			channel = null;
-			manager.removePieceAvailability(peerPieces);
 		}
 	}
 
@@ -1129,7 +1099,7 @@ class PeerConnection extends Thread {
 	void queueHaveMessage(int number) throws IllegalArgumentException {
 		if (number < 0) {
 			throw new IllegalArgumentException("The piece number cannot be negative"); //$NON-NLS-1$
-		} else if (number >= peerPieces.length) {
+		} else if (number >= peerPieces.length()) {
 			throw new IllegalArgumentException("The piece number is greater than the number of pieces"); //$NON-NLS-1$
 		}
 		haveMessages[number] = true;
@@ -0,0 +1,446 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.protocol.bittorrent.internal.net;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The <code>PiecePicker</code> chooses which piece to request from a peer. It
+ * keeps the pieces that are still wanted in buckets by how many connected
+ * peers have them, so that the rarest piece that a peer has can usually be
+ * found by looking at a handful of pieces instead of all of them. Pieces that
+ * have already been started are preferred so that they are completed first.
+ * <p>
+ * The picker has its own lock so that connections choosing pieces do not
+ * contend with the writing of data through the {@link TorrentManager}.
+ * </p>
+ */
+final class PiecePicker {
+
+	/**
+	 * The priority of pieces that belong to files that should be downloaded
+	 * before all others.
+	 */
+	static final int HIGH = 0;
+
+	/**
+	 * The priority of all other pieces that should be downloaded.
+	 */
+	static final int NORMAL = 1;
+
+	/**
+	 * Indicates that a piece should not be requested.
+	 */
+	static final int UNWANTED = -1;
+
+	/**
+	 * The number of pieces to look at within the buckets before falling back
+	 * to comparing the peer's pieces with the wanted pieces as a whole. The
+	 * value is 256.
+	 */
+	private static final int SCAN_LIMIT = 256;
+
+	/**
+	 * The pieces that a peer has, along with how many of them are currently
+	 * wanted. Instances are created by {@link PiecePicker#createPeer()} and
+	 * updated through the picker.
+	 */
+	static final class PeerPieces {
+
+		private final long[] bits;
+
+		private final int numPieces;
+
+		private int count;
+
+		private int wanted;
+
+		private boolean registered;
+
+		private PeerPieces(int numPieces) {
+			this.numPieces = numPieces;
+			bits = new long[(numPieces + 63) >>> 6];
+		}
+
+		/**
+		 * Checks whether the peer has the specified piece.
+		 *
+		 * @param piece
+		 *            the piece's number
+		 * @return <code>true</code> if the peer has the piece,
+		 *         <code>false</code> otherwise
+		 */
+		boolean has(int piece) {
+			return (bits[piece >>> 6] & (1L << piece)) != 0;
+		}
+
+		/**
+		 * Checks whether the peer has all of the pieces.
+		 *
+		 * @return <code>true</code> if the peer is a seed
+		 */
+		boolean isComplete() {
+			return count == numPieces;
+		}
+
+		int length() {
+			return numPieces;
+		}
+	}
+
+	/**
+	 * A set of piece numbers with constant time insertion and removal. The
+	 * position of each piece within the set is recorded in a shared array
+	 * since a piece is in at most one set that uses that array.
+	 */
+	private static final class Bucket {
+
+		private final int[] positions;
+
+		private int[] pieces = new int[16];
+
+		private int size;
+
+		private Bucket(int[] positions) {
+			this.positions = positions;
+		}
+
+		private void add(int piece) {
+			if (size == pieces.length) {
+				pieces = Arrays.copyOf(pieces, size * 2);
+			}
+			positions[piece] = size;
+			pieces[size++] = piece;
+		}
+
+		private void remove(int piece) {
+			int position = positions[piece];
+			int last = pieces[--size];
+			pieces[position] = last;
+			positions[last] = position;
+		}
+	}
+
+	private final int numPieces;
+
+	/**
+	 * The number of connected peers that have each piece.
+	 */
+	private final int[] availability;
+
+	/**
+	 * The priority of each piece, or {@link #UNWANTED}.
+	 */
+	private final int[] priorities;
+
+	/**
+	 * A bitset of the pieces whose priority is not {@link #UNWANTED}.
+	 */
+	private final long[] wanted;
+
+	/**
+	 * The wanted pieces by priority and availability.
+	 */
+	private final ArrayList[] buckets = { new ArrayList(), new ArrayList() };
+
+	private final int[] bucketPositions;
+
+	/**
+	 * The pieces for which some data has been written.
+	 */
+	private final Bucket started;
+
+	private final boolean[] isStarted;
+
+	/**
+	 * The peers that have at least one piece.
+	 */
+	private final ArrayList peers = new ArrayList();
+
+	PiecePicker(int numPieces) {
+		this.numPieces = numPieces;
+		availability = new int[numPieces];
+		priorities = new int[numPieces];
+		Arrays.fill(priorities, UNWANTED);
+		wanted = new long[(numPieces + 63) >>> 6];
+		bucketPositions = new int[numPieces];
+		started = new Bucket(new int[numPieces]);
+		isStarted = new boolean[numPieces];
+	}
+
+	PeerPieces createPeer() {
+		return new PeerPieces(numPieces);
+	}
+
+	private Bucket getBucket(int priority, int count) {
+		ArrayList list = buckets[priority];
+		while (list.size() <= count) {
+			list.add(new Bucket(bucketPositions));
+		}
+		return (Bucket) list.get(count);
+	}
+
+	/**
+	 * Sets the priority with which a piece should be requested from peers.
+	 *
+	 * @param piece
+	 *            the piece's number
+	 * @param priority
+	 *            {@link #HIGH}, {@link #NORMAL}, or {@link #UNWANTED} if the
+	 *            piece should not be requested
+	 */
+	synchronized void setPriority(int piece, int priority) {
+		int previous = priorities[piece];
+		if (previous == priority) {
+			return;
+		}
+		if (previous != UNWANTED) {
+			getBucket(previous, availability[piece]).remove(piece);
+		}
+		priorities[piece] = priority;
+		if (priority != UNWANTED) {
+			getBucket(priority, availability[piece]).add(piece);
+		}
+
+		if ((previous == UNWANTED) != (priority == UNWANTED)) {
+			int change = priority == UNWANTED ? -1 : 1;
+			wanted[piece >>> 6] ^= 1L << piece;
+			for (int i = 0; i < peers.size(); i++) {
+				PeerPieces peer = (PeerPieces) peers.get(i);
+				if (peer.has(piece)) {
+					peer.wanted += change;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets whether data has been written for a piece so that the piece is
+	 * preferred over others.
+	 *
+	 * @param piece
+	 *            the piece's number
+	 * @param isStarted
+	 *            <code>true</code> if the piece has been started but not
+	 *            completed, <code>false</code> otherwise
+	 */
+	synchronized void setStarted(int piece, boolean isStarted) {
+		if (this.isStarted[piece] != isStarted) {
+			this.isStarted[piece] = isStarted;
+			if (isStarted) {
+				started.add(piece);
+			} else {
+				started.remove(piece);
+			}
+		}
+	}
+
+	private void changeAvailability(int piece, int change) {
+		int priority = priorities[piece];
+		if (priority != UNWANTED) {
+			getBucket(priority, availability[piece]).remove(piece);
+		}
+		availability[piece] += change;
+		if (priority != UNWANTED) {
+			getBucket(priority, availability[piece]).add(piece);
+		}
+	}
+
+	private void register(PeerPieces peer) {
+		if (!peer.registered) {
+			peer.registered = true;
+			peers.add(peer);
+		}
+	}
+
+	/**
+	 * Records that a peer has a piece.
+	 *
+	 * @param peer
+	 *            the peer's pieces
+	 * @param piece
+	 *            the piece's number
+	 * @return <code>true</code> if the peer did not have the piece before
+	 */
+	synchronized boolean addPiece(PeerPieces peer, int piece) {
+		if (peer.has(piece)) {
+			return false;
+		}
+		register(peer);
+		peer.bits[piece >>> 6] |= 1L << piece;
+		peer.count++;
+		if (priorities[piece] != UNWANTED) {
+			peer.wanted++;
+		}
+		changeAvailability(piece, 1);
+		return true;
+	}
+
+	/**
+	 * Sets all of the pieces that a peer has, replacing any that were set
+	 * before.
+	 *
+	 * @param peer
+	 *            the peer's pieces
+	 * @param pieces
+	 *            whether the peer has each piece, this array may be longer
+	 *            than the number of pieces
+	 */
+	synchronized void setPieces(PeerPieces peer, boolean[] pieces) {
+		clear(peer);
+		for (int i = 0; i < numPieces; i++) {
+			if (pieces[i]) {
+				peer.bits[i >>> 6] |= 1L << i;
+				peer.count++;
+				if (priorities[i] != UNWANTED) {
+					peer.wanted++;
+				}
+				changeAvailability(i, 1);
+			}
+		}
+		if (peer.count != 0) {
+			register(peer);
+		}
+	}
+
+	/**
+	 * Removes all of the pieces of a peer, such as when the connection with
+	 * the peer has been closed.
+	 *
+	 * @param peer
+	 *            the peer's pieces
+	 */
+	synchronized void clear(PeerPieces peer) {
+		if (!peer.registered) {
+			return;
+		}
+		for (int i = 0; i < peer.bits.length; i++) {
+			long word = peer.bits[i];
+			while (word != 0) {
+				changeAvailability((i << 6) + Long.numberOfTrailingZeros(word),
+						-1);
+				word &= word - 1;
+			}
+		}
+		Arrays.fill(peer.bits, 0);
+		peer.count = 0;
+		peer.wanted = 0;
+		peer.registered = false;
+		peers.remove(peer);
+	}
+
+	/**
+	 * Retrieves the number of connected peers that have a piece.
+	 *
+	 * @param piece
+	 *            the piece's number
+	 * @return the piece's availability
+	 */
+	synchronized int getAvailability(int piece) {
+		return availability[piece];
+	}
+
+	/**
+	 * Chooses the next piece to request from a peer. A started piece that the
+	 * peer has is chosen first. Otherwise, the rarest of the wanted pieces
+	 * that the peer has is chosen, with pieces of a higher priority going
+	 * before all others. Ties are broken randomly.
+	 *
+	 * @param peer
+	 *            the peer's pieces
+	 * @return the number of the piece to request, or <code>-1</code> if the
+	 *         peer has no pieces that are wanted
+	 */
+	synchronized int pick(PeerPieces peer) {
+		if (peer.wanted == 0) {
+			return -1;
+		}
+
+		int piece = scan(started, peer, started.size);
+		if (piece != -1) {
+			return piece;
+		}
+
+		int budget = SCAN_LIMIT;
+		for (int priority = HIGH; priority <= NORMAL; priority++) {
+			ArrayList list = buckets[priority];
+			// no peer has the pieces with an availability of zero
+			for (int count = 1; count < list.size(); count++) {
+				Bucket bucket = (Bucket) list.get(count);
+				int limit = Math.min(bucket.size, budget);
+				piece = scan(bucket, peer, limit);
+				if (piece != -1) {
+					return piece;
+				}
+				budget -= limit;
+				if (budget == 0) {
+					return pickFromBitset(peer);
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Looks for a wanted piece of a peer within a bucket, starting at a
+	 * random position.
+	 */
+	private int scan(Bucket bucket, PeerPieces peer, int limit) {
+		int size = bucket.size;
+		if (size == 0) {
+			return -1;
+		}
+		int start = ConnectionPool.RANDOM.nextInt(size);
+		for (int i = 0; i < limit; i++) {
+			int piece = bucket.pieces[(start + i) % size];
+			if (priorities[piece] != UNWANTED && peer.has(piece)) {
+				return piece;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Chooses the rarest of the wanted pieces that a peer has by comparing
+	 * the peer's pieces with the wanted pieces 64 at a time. This is used
+	 * when the peer has none of the pieces that were looked at within the
+	 * buckets.
+	 */
+	private int pickFromBitset(PeerPieces peer) {
+		int best = -1;
+		int bestPriority = Integer.MAX_VALUE;
+		int bestCount = Integer.MAX_VALUE;
+		int ties = 0;
+		for (int i = 0; i < wanted.length; i++) {
+			long word = peer.bits[i] & wanted[i];
+			while (word != 0) {
+				int piece = (i << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+				int priority = priorities[piece];
+				int count = availability[piece];
+				if (priority < bestPriority
+						|| (priority == bestPriority && count < bestCount)) {
+					best = piece;
+					bestPriority = priority;
+					bestCount = count;
+					ties = 1;
+				} else if (priority == bestPriority && count == bestCount
+						&& ConnectionPool.RANDOM.nextInt(++ties) == 0) {
+					best = piece;
+				}
+			}
+		}
+		return best;
+	}
+}
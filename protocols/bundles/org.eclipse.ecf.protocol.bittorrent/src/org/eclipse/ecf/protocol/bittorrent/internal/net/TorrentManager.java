@@ -14,6 +14,7 @@ package org.eclipse.ecf.protocol.bittorrent.internal.net;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -24,15 +25,17 @@ import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.ByteBuffer;
-import java.nio.channels.ClosedByInterruptException;
-import java.nio.channels.FileChannel;
 import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.ecf.protocol.bittorrent.IHashCheckListener;
 import org.eclipse.ecf.protocol.bittorrent.IPieceProgressListener;
@@ -60,8 +63,6 @@ public class TorrentManager {
 
 	private static final String UP_SPEED_KEY = "up.speed"; //$NON-NLS-1$
 
-	private static MessageDigest shaDigest;
-
 	private static File statePath;
 
 	private final ConnectionPool connectionPool;
@@ -97,19 +98,23 @@ public class TorrentManager {
 	 */
 	private final File torrentState;
 
-	private final Vector pieces;
-
 	/**
-	 * A collection of {@link Piece}s that has had a portion of its bytes
-	 * completed.
+	 * The file in which the pieces that have passed a hash check are recorded
+	 * along with the size and modification time of each of the torrent's
+	 * files. This allows a hash check to skip the pieces of files that have not
+	 * changed since.
+	 * 
+	 * @see TorrentConfiguration#RESUME_HASH_CHECK
 	 */
-	private final Vector incompletePieces;
+	private final File verifiedState;
+
+	private final Vector pieces;
 
 	/**
-	 * An integer array that stores the number of peers that possesses a
-	 * specific piece. This is used to determine which piece is a rare piece.
+	 * Chooses the pieces to request from peers according to how many peers
+	 * have them and which files should be downloaded.
 	 */
-	private final int[] pieceAvailability;
+	private final PiecePicker picker;
 
 	private final byte[] bitfield;
 
@@ -269,9 +274,17 @@ public class TorrentManager {
 
 	private boolean isHashChecking = false;
 
-	static {
+	/**
+	 * The amount of data that a hash check worker verifies at a time. Each
+	 * worker reads the pieces within such a range in order, so the files are
+	 * read sequentially in large sections even while multiple workers are
+	 * running.
+	 */
+	private static final int HASH_CHECK_RANGE = 16777216;
+
+	private static MessageDigest createDigest() {
 		try {
-			shaDigest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+			return MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
 		} catch (NoSuchAlgorithmException e) {
 			throw new RuntimeException(e);
 		}
@@ -321,6 +334,7 @@ public class TorrentManager {
 		infoHash = torrent.getInfoHash();
 		hexHash = torrent.getHexHash();
 		torrentState = new File(statePath, hexHash);
+		verifiedState = new File(statePath, hexHash + ".verified"); //$NON-NLS-1$
 		total = torrent.getTotalLength();
 		torrent.save(new File(statePath, hexHash + ".torrent")); //$NON-NLS-1$
 
@@ -334,11 +348,10 @@ public class TorrentManager {
 		bitfield = new byte[numPieces % 8 != 0 ? (numPieces / 8) + 1
 				: (numPieces / 8)];
 		hasPiece = new boolean[numPieces];
-		pieceAvailability = new int[numPieces];
 		priorityPieces = new boolean[numPieces];
 		interestedPieces = new boolean[numPieces];
 		uninterestedPieces = new boolean[numPieces];
-		incompletePieces = new Vector();
+		picker = new PiecePicker(numPieces);
 		stateListeners = new Vector();
 		errorListeners = new Vector();
 		pieceListeners = new Vector();
@@ -370,9 +383,13 @@ public class TorrentManager {
 			Piece piece = (Piece) pieces.get(i);
 			piece.setLength(pieceLength);
 		}
+		// the final piece is shorter unless the total length is a multiple of
+		// the piece length
+		int lastLength = (int) (total % pieceLength);
 		((Piece) pieces.get(numPieces - 1))
-				.setLength((int) (total % pieceLength));
+				.setLength(lastLength == 0 ? pieceLength : lastLength);
 
+		updatePriorities();
 		checkFile();
 		setPieces();
 	}
@@ -394,25 +411,25 @@ public class TorrentManager {
 						input = reader.readLine();
 					}
 					if (count != states.length) {
-						startHashCheck();
+						startHashCheck(true);
 					} else {
 						setPieces(states);
 					}
 				} else {
-					startHashCheck();
+					startHashCheck(true);
 				}
 			} catch (IOException e) {
-				startHashCheck();
+				startHashCheck(true);
 			}
 		} else {
-			startHashCheck();
+			startHashCheck(true);
 		}
 	}
 
 	public boolean performHashCheck() {
 		switch (state) {
 		case ITorrentStateListener.STOPPED:
-			startHashCheck();
+			startHashCheck(false);
 			return true;
 		case ITorrentStateListener.HASH_CHECKING:
 			return true;
@@ -421,9 +438,19 @@ public class TorrentManager {
 		}
 	}
 
-	private void startHashCheck() {
+	/**
+	 * Starts a hash check of the torrent's pieces on a separate thread if one
+	 * is not already running.
+	 * 
+	 * @param resume
+	 *            <code>true</code> if the pieces that passed an earlier hash
+	 *            check and whose files have not changed since should not be
+	 *            checked again, <code>false</code> to check all pieces
+	 */
+	private void startHashCheck(boolean resume) {
 		if (hashCheckThread == null || !hashCheckThread.isAlive()) {
-			hashCheckThread = new HashCheckThread();
+			hashCheckThread = new HashCheckThread(resume
+					&& TorrentConfiguration.RESUME_HASH_CHECK);
 			hashCheckThread.start();
 			isHashChecking = true;
 			fireStateChangedEvent(ITorrentStateListener.HASH_CHECKING);
@@ -578,7 +605,7 @@ public class TorrentManager {
 			isWaitingToStart = true;
 			return;
 		} else if (!torrentState.exists()) {
-			startHashCheck();
+			startHashCheck(true);
 			isWaitingToStart = true;
 			return;
 		} else if (running) {
@@ -620,6 +647,7 @@ public class TorrentManager {
 		speedMonitoringThread = null;
 		running = false;
 		connectionPool.close();
+		saveVerifiedState();
 		queryTracker("stopped"); //$NON-NLS-1$
 		fireStateChangedEvent(ITorrentStateListener.STOPPED);
 		store();
@@ -652,7 +680,9 @@ public class TorrentManager {
 		Arrays.fill(uninterestedPieces, false);
 		for (int i = 0; i < pieces.size(); i++) {
 			((Piece) pieces.get(i)).reset();
+			picker.setStarted(i, false);
 		}
+		updatePriorities();
 	}
 
 	public boolean delete() {
@@ -735,56 +765,116 @@ public class TorrentManager {
 	 *             files
 	 */
 	private byte[] getPiece(int piece) throws IOException {
+		checkPiece(piece);
+
+		byte[] bytes = new byte[((Piece) pieces.get(piece)).getLength()];
+		return readPiece(piece, ByteBuffer.wrap(bytes)) == 0 ? null : bytes;
+	}
+
+	/**
+	 * Reads the data of the specified piece from the local files into a
+	 * buffer, up to the piece's length or the remaining capacity of the buffer.
+	 * 
+	 * @param piece
+	 *            the interested piece's number
+	 * @param buffer
+	 *            the buffer to read the data into
+	 * @return the amount of bytes that have been read
+	 * @throws IOException
+	 *             If an I/O/ error occurs while reading the data from the local
+	 *             files
+	 */
+	private int readPiece(int piece, ByteBuffer buffer) throws IOException {
+		int read = 0;
+		for (int i = 0; i < files.length && buffer.hasRemaining(); i++) {
+			if (files[i].containsPiece(piece)) {
+				read += Math.max(files[i].read(piece, 0, buffer), 0);
+			}
+		}
+		return read;
+	}
+
+	private void checkPiece(int piece) throws IllegalArgumentException {
 		if (piece < 0) {
 			throw new IllegalArgumentException("The piece number cannot be negative"); //$NON-NLS-1$
 		} else if (piece >= hasPiece.length) {
 			throw new IllegalArgumentException("The piece number " + piece //$NON-NLS-1$
 					+ " does not exist"); //$NON-NLS-1$
 		}
+	}
 
-		byte[][] data = new byte[files.length][0];
-		Arrays.fill(data, null);
-		for (int i = 0; i < files.length; i++) {
-			if (files[i].containsPiece(piece)) {
-				data[i] = files[i].getData(piece);
-			}
+	/**
+	 * Checks that a block of data lies within the specified piece.
+	 * 
+	 * @param number
+	 *            the piece's number
+	 * @param offset
+	 *            the position within the piece that the block starts at
+	 * @param length
+	 *            the length of the block
+	 * @throws IllegalArgumentException
+	 *             If the piece does not exist or if the block goes beyond the
+	 *             range of the piece
+	 */
+	void checkPieceData(int number, int offset, int length)
+			throws IllegalArgumentException {
+		checkPiece(number);
+		if (offset < 0 || length < 0
+				|| (long) offset + length > ((Piece) pieces.get(number))
+						.getLength()) {
+			throw new IllegalArgumentException("The block of data that is being requested goes beyond the range of the requested piece"); //$NON-NLS-1$
 		}
+	}
 
-		boolean empty = true;
-		for (int i = 0; i < data.length; i++) {
-			if (data[i] != null && data[i].length != 0) {
-				empty = false;
-				break;
+	/**
+	 * Transfers a block of data of the specified piece from the local files
+	 * directly to a channel. Only the requested block is read, and it is not
+	 * copied into an intermediate array.
+	 * 
+	 * @param number
+	 *            the piece's number
+	 * @param offset
+	 *            the position within the piece that the block starts at
+	 * @param length
+	 *            the length of the block
+	 * @param target
+	 *            the channel to write the block to
+	 * @throws IllegalArgumentException
+	 *             If the piece does not exist or if the block goes beyond the
+	 *             range of the piece
+	 * @throws IOException
+	 *             If an I/O error occurs while reading the data from the local
+	 *             files or writing it to the channel, or if the local files do
+	 *             not hold the whole block
+	 */
+	void transferPieceData(int number, int offset, int length,
+			WritableByteChannel target) throws IllegalArgumentException,
+			IOException {
+		checkPieceData(number, offset, length);
+		int transferred = 0;
+		// a piece may be split between multiple files, so skip over the files
+		// that hold the data before the block
+		for (int i = 0; i < files.length && transferred < length; i++) {
+			int fileLength = files[i].getPieceLength(number);
+			if (fileLength == -1) {
+				continue;
+			} else if (offset >= fileLength) {
+				offset -= fileLength;
+				continue;
 			}
-		}
-
-		if (empty) {
-			return null;
-		}
-
-		byte[] bytes = new byte[((Piece) pieces.get(piece)).getLength()];
-		int offset = 0;
-		for (int i = 0; i < data.length; i++) {
-			if (data[i] != null) {
-				System.arraycopy(data[i], 0, bytes, offset, data[i].length);
-				offset += data[i].length;
+			int expected = Math.min(fileLength - offset, length - transferred);
+			long sent = files[i].transferTo(number, offset, expected, target);
+			transferred += sent;
+			if (sent < expected) {
+				// the file is shorter than it should be
+				break;
 			}
+			offset = 0;
 		}
-		return bytes;
-	}
-
-	byte[] getPieceData(int number, int offset, int length)
-			throws IllegalArgumentException, IOException {
-		byte[] piece = getPiece(number);
-		if (piece == null) {
-			return null;
-		}
-		if (offset + length > piece.length) {
-			throw new IllegalArgumentException("The block of data that is being requested goes beyond the range of the requested piece"); //$NON-NLS-1$
+		if (transferred != length) {
+			throw new EOFException("Only " + transferred + " of " + length //$NON-NLS-1$ //$NON-NLS-2$
+					+ " bytes of piece " + number + " could be read"); //$NON-NLS-1$ //$NON-NLS-2$
 		}
-		byte[] block = new byte[length];
-		System.arraycopy(piece, offset, block, 0, length);
-		return block;
 	}
 
 	/**
@@ -806,7 +896,113 @@ public class TorrentManager {
 			IOException {
 		byte[] data = getPiece(piece);
 		return data == null ? false : torrent.getPieces()[piece]
-				.equals(new String(shaDigest.digest(data), "ISO-8859-1")); //$NON-NLS-1$
+				.equals(new String(createDigest().digest(data), "ISO-8859-1")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Records the pieces that have passed a hash check along with the size and
+	 * modification time of each file, unless this has been disabled with
+	 * {@link TorrentConfiguration#RESUME_HASH_CHECK}. The record only spares
+	 * a later hash check some work, so a failure to write it is logged and
+	 * the record is removed, which makes the next hash check verify every
+	 * piece.
+	 */
+	private synchronized void saveVerifiedState() {
+		if (!TorrentConfiguration.RESUME_HASH_CHECK) {
+			return;
+		}
+		try {
+			writeVerifiedState();
+		} catch (IOException e) {
+			TorrentConfiguration.debug("The verified pieces could not be recorded - " //$NON-NLS-1$
+					+ e.getMessage());
+			verifiedState.delete();
+		}
+	}
+
+	private void writeVerifiedState() throws IOException {
+		char[] bits = new char[hasPiece.length];
+		for (int i = 0; i < bits.length; i++) {
+			bits[i] = hasPiece[i] ? '1' : '0';
+		}
+		BufferedWriter writer = new BufferedWriter(new FileWriter(
+				verifiedState, false));
+		try {
+			writer.write(Integer.toString(bits.length));
+			writer.newLine();
+			for (int i = 0; i < files.length; i++) {
+				File file = files[i].getFile();
+				writer.write(file.length() + ":" + file.lastModified()); //$NON-NLS-1$
+				writer.newLine();
+			}
+			writer.write(bits);
+			writer.newLine();
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Determines which pieces need to be checked based on the pieces that were
+	 * recorded as having passed a hash check with
+	 * {@link #saveVerifiedState()}. A piece needs to be checked if any of the
+	 * files that it is a part of has changed since. Otherwise, the piece is
+	 * valid if and only if it was recorded as having passed its hash check.
+	 * 
+	 * @param check
+	 *            an array that is set to indicate which pieces need to be
+	 *            checked
+	 * @param valid
+	 *            an array that is set to indicate which of the pieces that do
+	 *            not need to be checked are valid
+	 */
+	private void loadVerifiedState(boolean[] check, boolean[] valid) {
+		Arrays.fill(check, true);
+		if (!verifiedState.exists()) {
+			return;
+		}
+		boolean[] changed = new boolean[files.length];
+		String bits;
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(
+					verifiedState));
+			try {
+				String input = reader.readLine();
+				if (input == null
+						|| Integer.parseInt(input) != check.length) {
+					return;
+				}
+				for (int i = 0; i < files.length; i++) {
+					input = reader.readLine();
+					File file = files[i].getFile();
+					changed[i] = !(file.length() + ":" + file.lastModified()) //$NON-NLS-1$
+							.equals(input);
+				}
+				bits = reader.readLine();
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			return;
+		} catch (NumberFormatException e) {
+			return;
+		}
+		if (bits == null || bits.length() != check.length) {
+			return;
+		}
+
+		for (int i = 0; i < check.length; i++) {
+			check[i] = false;
+			valid[i] = bits.charAt(i) == '1';
+		}
+		for (int i = 0; i < files.length; i++) {
+			if (changed[i]) {
+				int[] filePieces = files[i].getPieces();
+				for (int j = 0; j < filePieces.length; j++) {
+					check[filePieces[j]] = true;
+				}
+			}
+		}
 	}
 
 	private void saveState() throws IOException {
@@ -849,13 +1045,12 @@ public class TorrentManager {
 			downloaded += length;
 			saveState();
 			fireBlockDownloadedEvent(number, index, length);
-			if (!incompletePieces.contains(piece)) {
-				incompletePieces.add(piece);
-			}
-
 			if (piece.isComplete()) {
-				incompletePieces.remove(piece);
+				picker.setStarted(number, false);
+				updatePriority(number);
 				checkCompletedPiece(piece, number);
+			} else {
+				picker.setStarted(number, true);
 			}
 		}
 	}
@@ -876,6 +1071,7 @@ public class TorrentManager {
 			}
 
 			isCompleted = true;
+			saveVerifiedState();
 			fireStateChangedEvent(ITorrentStateListener.FINISHED);
 			connectionPool.disconnectSeeds();
 			// let the tracker know that the download has completed
@@ -884,6 +1080,7 @@ public class TorrentManager {
 			TorrentConfiguration.debug("Piece " + number //$NON-NLS-1$
 					+ " has failed the hash check"); //$NON-NLS-1$
 			piece.reset();
+			updatePriority(number);
 			int pieceLength = piece.getLength();
 			discarded += pieceLength;
 			remaining += (remaining == total) ? 0 : pieceLength;
@@ -891,119 +1088,50 @@ public class TorrentManager {
 		}
 	}
 
-	synchronized Piece request(boolean[] peerPieces) {
+	/**
+	 * Retrieves the next piece that should be requested from a peer.
+	 * 
+	 * @param peerPieces
+	 *            the pieces that the peer has
+	 * @return the piece to request, or <code>null</code> if the peer has no
+	 *         pieces that are needed
+	 */
+	Piece request(PiecePicker.PeerPieces peerPieces) {
 		if (isCompleted) {
 			return null;
 		}
-
-		Piece request = null;
-		if (!isSelective) {
-			request = request(hasPiece, peerPieces);
-		} else if (isPrioritizing) {
-			request = request(priorityPieces, peerPieces);
-			if (request == null) {
-				request = request(interestedPieces, peerPieces);
-			}
-		} else {
-			request = request(interestedPieces, peerPieces);
-		}
-		return request;
+		int number = picker.pick(peerPieces);
+		return number == -1 ? null : (Piece) pieces.get(number);
 	}
 
-	private Piece request(boolean[] compare, boolean[] peerPieces) {
-		boolean isInterested = false;
-		if (compare == hasPiece) {
-			for (int i = 0; i < peerPieces.length; i++) {
-				if (!hasPiece[i] && peerPieces[i]) {
-					isInterested = true;
-					break;
-				}
-			}
-		} else {
-			for (int i = 0; i < peerPieces.length; i++) {
-				if (compare[i] && peerPieces[i]) {
-					isInterested = true;
-					break;
-				}
-			}
-		}
-
-		if (!isInterested) {
-			return null;
-		}
-
-		boolean hasIncompletePiece = false;
-		for (int i = 0; i < incompletePieces.size(); i++) {
-			Piece piece = (Piece) incompletePieces.get(i);
-			if (peerPieces[piece.getNumber()]) {
-				hasIncompletePiece = true;
-				break;
-			}
-		}
-
-		if (hasIncompletePiece) {
-			if (incompletePieces.size() == 0) {
-				return hasPiece == compare ? getRarePiece(peerPieces)
-						: getRarePiece(compare, peerPieces);
-			}
-			Piece piece = (Piece) incompletePieces.get(ConnectionPool.RANDOM
-					.nextInt(incompletePieces.size()));
-			while (!peerPieces[piece.getNumber()]) {
-				if (isCompleted) {
-					return null;
-				} else if (incompletePieces.size() == 0) {
-					return hasPiece == compare ? getRarePiece(peerPieces)
-							: getRarePiece(compare, peerPieces);
-				}
-				piece = (Piece) incompletePieces.get(ConnectionPool.RANDOM
-						.nextInt(incompletePieces.size()));
-			}
-			return piece;
+	/**
+	 * Updates the priority with which the specified piece should be requested
+	 * from peers. A piece that has been completed is not requested at all, nor
+	 * are the pieces of files that should not be downloaded.
+	 * 
+	 * @param number
+	 *            the piece's number
+	 */
+	private void updatePriority(int number) {
+		int priority;
+		if (hasPiece[number] || ((Piece) pieces.get(number)).isComplete()) {
+			priority = PiecePicker.UNWANTED;
+		} else if (!isSelective) {
+			priority = PiecePicker.NORMAL;
+		} else if (isPrioritizing && priorityPieces[number]) {
+			priority = PiecePicker.HIGH;
+		} else if (interestedPieces[number]) {
+			priority = PiecePicker.NORMAL;
 		} else {
-			return hasPiece == compare ? getRarePiece(peerPieces)
-					: getRarePiece(compare, peerPieces);
-		}
-	}
-
-	private Piece getRarePiece(boolean[] peerPieces) {
-		int min = pieceAvailability[0];
-		for (int i = 1; i < peerPieces.length; i++) {
-			if (!hasPiece[i] && peerPieces[i] && min > pieceAvailability[i]) {
-				min = pieceAvailability[i];
-			}
-		}
-
-		int size = pieces.size();
-		int pieceNumber = ConnectionPool.RANDOM.nextInt(size);
-		while (hasPiece[pieceNumber] || pieceAvailability[pieceNumber] != min
-				|| !peerPieces[pieceNumber]) {
-			if (isCompleted) {
-				return null;
-			}
-			pieceNumber = ConnectionPool.RANDOM.nextInt(size);
+			priority = PiecePicker.UNWANTED;
 		}
-		return (Piece) pieces.get(pieceNumber);
+		picker.setPriority(number, priority);
 	}
 
-	private Piece getRarePiece(boolean[] compare, boolean[] peerPieces) {
-		int min = pieceAvailability[0];
-		for (int i = 1; i < peerPieces.length; i++) {
-			if (!hasPiece[i] && compare[i] && peerPieces[i]
-					&& min > pieceAvailability[i]) {
-				min = pieceAvailability[i];
-			}
-		}
-
-		int size = pieces.size();
-		int pieceNumber = ConnectionPool.RANDOM.nextInt(size);
-		while (hasPiece[pieceNumber] || pieceAvailability[pieceNumber] != min
-				|| !compare[pieceNumber] || !peerPieces[pieceNumber]) {
-			if (isCompleted) {
-				return null;
-			}
-			pieceNumber = ConnectionPool.RANDOM.nextInt(size);
+	private void updatePriorities() {
+		for (int i = 0; i < hasPiece.length; i++) {
+			updatePriority(i);
 		}
-		return (Piece) pieces.get(pieceNumber);
 	}
 
 	String getPeerID() {
@@ -1014,38 +1142,8 @@ public class TorrentManager {
 		return bitfield;
 	}
 
-	/**
-	 * Used to indicate that the specified piece now has another user that has
-	 * it. This information is for identifying which pieces are rare amongst the
-	 * list of connected peers.
-	 * 
-	 * @param piece
-	 *            the number of the piece
-	 */
-	void updatePieceAvailability(int piece) {
-		pieceAvailability[piece]++;
-	}
-
-	void addPieceAvailability(boolean[] peerPieces) {
-		if (peerPieces.length != pieceAvailability.length) {
-			throw new IllegalArgumentException("The length of the array is not " + pieceAvailability.length); //$NON-NLS-1$
-		}
-		for (int i = 0; i < pieceAvailability.length; i++) {
-			if (peerPieces[i]) {
-				pieceAvailability[i]++;
-			}
-		}
-	}
-
-	void removePieceAvailability(boolean[] peerPieces) {
-		if (peerPieces.length != pieceAvailability.length) {
-			throw new IllegalArgumentException("The length of the array is not " + pieceAvailability.length); //$NON-NLS-1$
-		}
-		for (int i = 0; i < pieceAvailability.length; i++) {
-			if (peerPieces[i]) {
-				pieceAvailability[i]--;
-			}
-		}
+	PiecePicker getPiecePicker() {
+		return picker;
 	}
 
 	void addToUploaded(long length) {
@@ -1086,35 +1184,33 @@ public class TorrentManager {
 			int[] pieces = files[i].getPieces();
 			for (int j = 0; j < pieces.length; j++) {
 				if (downloadChoices[i] > 0) {
-					priorityPieces[j] = true;
+					priorityPieces[pieces[j]] = true;
 				} else if (downloadChoices[i] == 0) {
-					interestedPieces[j] = true;
+					interestedPieces[pieces[j]] = true;
 				} else {
-					uninterestedPieces[j] = uninterestedPieces[j] || false;
+					uninterestedPieces[pieces[j]] = uninterestedPieces[pieces[j]] || false;
 				}
 			}
 		}
 
-		if (isSelective) {
-			return;
-		}
-
-		for (int i = 0; i < downloadChoices.length; i++) {
-			if (downloadChoices[i] > 0) {
-				isPrioritizing = true;
-				break;
+		if (!isSelective) {
+			for (int i = 0; i < downloadChoices.length; i++) {
+				if (downloadChoices[i] > 0) {
+					isPrioritizing = true;
+					break;
+				}
 			}
-		}
 
-		for (int i = 0; i < downloadChoices.length; i++) {
-			for (int j = i + 1; j < downloadChoices.length; j++) {
-				if (downloadChoices[i] != downloadChoices[j]) {
-					isSelective = true;
-					return;
+			for (int i = 0; i < downloadChoices.length && !isSelective; i++) {
+				for (int j = i + 1; j < downloadChoices.length; j++) {
+					if (downloadChoices[i] != downloadChoices[j]) {
+						isSelective = true;
+						break;
+					}
 				}
 			}
 		}
-		isSelective = false;
+		updatePriorities();
 	}
 
 	public void setMaxDownloadSpeed(long maximum) {
@@ -1489,12 +1585,11 @@ public class TorrentManager {
 			if (written == piece.getLength()) {
 				completedPieces++;
 				hasPiece[i] = true;
-				incompletePieces.remove(piece);
-			} else if (written != 0 && !incompletePieces.contains(piece)) {
-				incompletePieces.add(piece);
 			}
+			picker.setStarted(i, written != 0 && written != piece.getLength());
 		}
 		updateBitfield();
+		updatePriorities();
 
 		for (int i = 0; i < hasPiece.length; i++) {
 			if (!hasPiece[i]) {
@@ -1504,10 +1599,54 @@ public class TorrentManager {
 		isCompleted = true;
 	}
 
+	/**
+	 * Coordinates a hash check of the torrent's pieces. The pieces that need
+	 * to be checked are split into ranges that {@link HashCheckWorker}s verify
+	 * in parallel, and this thread applies their results and notifies the
+	 * {@link IHashCheckListener}s of them one at a time.
+	 */
 	private class HashCheckThread extends Thread {
 
-		private HashCheckThread() {
+		/**
+		 * Whether the results of an earlier hash check may be used.
+		 */
+		private final boolean resume;
+
+		/**
+		 * The numbers of the pieces that are being checked, in order.
+		 */
+		private int[] toCheck;
+
+		/**
+		 * The index of the next range of {@link #toCheck} that a worker should
+		 * verify.
+		 */
+		private final AtomicInteger nextRange = new AtomicInteger();
+
+		/**
+		 * The number of pieces within each range of {@link #toCheck}.
+		 */
+		private int rangeLength;
+
+		/**
+		 * Whether each piece has passed its hash check. This is set by the
+		 * workers before they queue the piece's number in {@link #results}.
+		 */
+		private boolean[] valid;
+
+		/**
+		 * The numbers of the pieces that the workers have finished checking,
+		 * or <code>-1</code> if a worker has failed with {@link #failure}.
+		 */
+		private final BlockingQueue results = new LinkedBlockingQueue();
+
+		private volatile IOException failure;
+
+		private volatile boolean cancelled = false;
+
+		private HashCheckThread(boolean resume) {
 			super("Hash Check Thread - " + torrent.getName()); //$NON-NLS-1$
+			this.resume = resume;
 		}
 
 		private void cleanup() {
@@ -1515,66 +1654,81 @@ public class TorrentManager {
 			fireStateChangedEvent(ITorrentStateListener.STOPPED);
 		}
 
+		/**
+		 * Updates the state of a piece according to the result of its hash
+		 * check.
+		 * 
+		 * @param number
+		 *            the piece's number
+		 * @param passed
+		 *            <code>true</code> if the piece's data is valid
+		 */
+		private void hashChecked(int number, boolean passed) {
+			Piece piece = (Piece) pieces.get(number);
+			if (piece.isComplete()) {
+				completedPieces--;
+				hasPiece[number] = false;
+			}
+			remaining += piece.getWritten();
+			if (passed) {
+				piece.setAsCompleted();
+				hasPiece[number] = true;
+				completedPieces++;
+				remaining -= piece.getLength();
+			} else {
+				piece.reset();
+			}
+			picker.setStarted(number, false);
+			updatePriority(number);
+			fireHashCheckedEvent(number);
+		}
+
 		public void run() {
 			try {
-				int read = 0;
+				int numPieces = pieces.size();
+				boolean[] check = new boolean[numPieces];
+				valid = new boolean[numPieces];
+				if (resume) {
+					loadVerifiedState(check, valid);
+				} else {
+					Arrays.fill(check, true);
+				}
+
 				int count = 0;
-				ByteBuffer buffer = ByteBuffer.allocate(pieceLength);
-				for (int i = 0; i < files.length; i++) {
-					FileChannel channel = files[i].getChannel();
-					while ((read += channel.read(buffer)) == pieceLength) {
-						if (isInterrupted()) {
-							cleanup();
-							return;
-						}
-						Piece piece = (Piece) pieces.get(count);
-						if (piece.isComplete()) {
-							completedPieces--;
-							hasPiece[i] = false;
-						}
-						remaining += piece.getWritten();
-						buffer.rewind();
-						if (torrent.getPieces()[count]
-								.equals(new String(shaDigest.digest(buffer
-										.array()), "ISO-8859-1"))) { //$NON-NLS-1$
-							piece.setAsCompleted();
-							hasPiece[count] = true;
-							completedPieces++;
-							remaining -= piece.getLength();
-						} else {
-							piece.reset();
-						}
-						incompletePieces.remove(piece);
-						fireHashCheckedEvent(count);
+				for (int i = 0; i < numPieces; i++) {
+					if (check[i]) {
 						count++;
-						read = 0;
+					} else {
+						hashChecked(i, valid[i]);
 					}
 				}
-
-				if (read > 0) {
-					if (isInterrupted()) {
-						cleanup();
-						return;
+				toCheck = new int[count];
+				count = 0;
+				for (int i = 0; i < numPieces; i++) {
+					if (check[i]) {
+						toCheck[count++] = i;
 					}
-					Piece piece = (Piece) pieces.get(count);
-					if (piece.isComplete()) {
-						completedPieces--;
-						hasPiece[count] = false;
+				}
+
+				if (count > 0) {
+					rangeLength = Math.max(1, HASH_CHECK_RANGE / pieceLength);
+					int ranges = (count + rangeLength - 1) / rangeLength;
+					int workers = Math.min(Math.max(1,
+							TorrentConfiguration.HASH_CHECK_THREADS), ranges);
+					for (int i = 0; i < workers; i++) {
+						new HashCheckWorker(this, i).start();
 					}
-					remaining += piece.getWritten();
-					buffer.rewind();
-					shaDigest.update(buffer.array(), 0, read);
-					if (torrent.getPieces()[count].equals(new String(shaDigest
-							.digest(), "ISO-8859-1"))) { //$NON-NLS-1$
-						hasPiece[count] = true;
-						piece.setAsCompleted();
-						completedPieces++;
-						remaining -= piece.getLength();
-					} else {
-						piece.reset();
+					try {
+						for (int i = 0; i < count; i++) {
+							int number = ((Integer) results.take()).intValue();
+							if (number == -1) {
+								throw failure;
+							}
+							hashChecked(number, valid[number]);
+						}
+					} finally {
+						cancelled = true;
 					}
-					incompletePieces.remove(piece);
-					fireHashCheckedEvent(count);
 				}
 
 				updateBitfield();
@@ -1583,6 +1737,7 @@ public class TorrentManager {
 					cleanup();
 					return;
 				}
+				saveVerifiedState();
 				isHashChecking = false;
 				if (isWaitingToStart) {
 					try {
@@ -1591,7 +1746,7 @@ public class TorrentManager {
 						throw new RuntimeException(e);
 					}
 				}
-			} catch (ClosedByInterruptException e) {
+			} catch (InterruptedException e) {
 				cleanup();
 				try {
 					saveState();
@@ -1605,6 +1760,61 @@ public class TorrentManager {
 		}
 	}
 
+	/**
+	 * Verifies ranges of pieces for a {@link HashCheckThread} until none are
+	 * left or the hash check has been stopped. Each worker has its own digest
+	 * and buffer, and reads the data at absolute positions, so workers never
+	 * wait for one another. Workers are not interrupted when the hash check
+	 * is stopped since that would close the files' channels.
+	 */
+	private class HashCheckWorker extends Thread {
+
+		private final HashCheckThread check;
+
+		private HashCheckWorker(HashCheckThread check, int number) {
+			super("Hash Check Worker " + number + " - " + torrent.getName()); //$NON-NLS-1$ //$NON-NLS-2$
+			this.check = check;
+			setDaemon(true);
+		}
+
+		public void run() {
+			MessageDigest digest = createDigest();
+			ByteBuffer buffer = ByteBuffer.allocate(pieceLength);
+			String[] hashes = torrent.getPieces();
+			int[] toCheck = check.toCheck;
+			try {
+				int range;
+				while (!check.cancelled
+						&& (range = check.nextRange.getAndIncrement())
+								* check.rangeLength < toCheck.length) {
+					int end = Math.min(toCheck.length, (range + 1)
+							* check.rangeLength);
+					for (int i = range * check.rangeLength; i < end
+							&& !check.cancelled; i++) {
+						int number = toCheck[i];
+						int length = ((Piece) pieces.get(number)).getLength();
+						buffer.clear();
+						buffer.limit(length);
+						boolean passed = false;
+						if (readPiece(number, buffer) == length) {
+							digest.update(buffer.array(), 0, length);
+							passed = hashes[number].equals(new String(digest
+									.digest(), "ISO-8859-1")); //$NON-NLS-1$
+						}
+						check.valid[number] = passed;
+						check.results.add(Integer.valueOf(number));
+					}
+				}
+			} catch (IOException e) {
+				check.failure = e;
+				check.results.add(Integer.valueOf(-1));
+			} catch (RuntimeException e) {
+				check.failure = new IOException(e);
+				check.results.add(Integer.valueOf(-1));
+			}
+		}
+	}
+
 	private class TrackerThread extends Thread {
 
 		private TrackerThread() {
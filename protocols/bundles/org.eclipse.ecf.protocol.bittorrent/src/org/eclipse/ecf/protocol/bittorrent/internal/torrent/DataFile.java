@@ -15,7 +15,9 @@ package org.eclipse.ecf.protocol.bittorrent.internal.torrent;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * A <code>DataFile</code> is a representation of a file that will be
@@ -28,6 +30,11 @@ public class DataFile {
 	 */
 	private RandomAccessFile file;
 
+	/**
+	 * The location of the file on the local file system.
+	 */
+	private final File path;
+
 	/**
 	 * An array of integers that indicates the pieces of a torrent file that
 	 * this file represents.
@@ -58,6 +65,7 @@ public class DataFile {
 	 *             file and specifying its length
 	 */
 	public DataFile(File aFile, long length) throws IOException {
+		path = aFile;
 		file = new RandomAccessFile(aFile, "rw"); //$NON-NLS-1$
 		if (aFile.length() > length) {
 			aFile.delete();
@@ -190,23 +198,163 @@ public class DataFile {
 			return null;
 		}
 
-		int dataLength = -1;
+		// create a new byte array to store the data so that it can be returned
+		byte[] data = new byte[getLength(index)];
+		read(piece, 0, ByteBuffer.wrap(data));
+		return data;
+	}
+
+	/**
+	 * Retrieves the amount of data of a particular piece that is stored within
+	 * this file.
+	 * 
+	 * @param piece
+	 *            the number of the interested piece
+	 * @return the number of bytes of the piece that this file holds, or
+	 *         <code>-1</code> if this file does not contain the specified
+	 *         piece
+	 */
+	public int getPieceLength(int piece) {
+		int index = indexOf(piece);
+		return index == -1 ? -1 : getLength(index);
+	}
+
+	/**
+	 * Reads a part of the data that a particular piece represents within this
+	 * file into a buffer. The data is read at an absolute position within the
+	 * file so the reading neither uses nor waits for the file pointer that is
+	 * used for writing.
+	 * 
+	 * @param piece
+	 *            the number of the interested piece
+	 * @param offset
+	 *            the offset within the data of the piece that is stored in
+	 *            this file to start reading from
+	 * @param buffer
+	 *            the buffer to read into, up to its remaining capacity or the
+	 *            end of the piece's data within this file, whichever comes
+	 *            first
+	 * @return the number of bytes read, or <code>-1</code> if this file does
+	 *         not contain the specified piece
+	 * @throws IllegalArgumentException
+	 *             If <code>offset</code> is negative or greater than the
+	 *             amount of data of the piece that this file holds
+	 * @throws IOException
+	 *             If an I/O error occurs while attempting to read the data from
+	 *             this file
+	 */
+	public int read(int piece, int offset, ByteBuffer buffer)
+			throws IllegalArgumentException, IOException {
+		int index = indexOf(piece);
+		if (index == -1) {
+			return -1;
+		}
+		int available = checkOffset(index, offset);
+		int limit = buffer.limit();
+		if (buffer.remaining() > available) {
+			buffer.limit(buffer.position() + available);
+		}
+		FileChannel channel = file.getChannel();
+		long position = (long) pieceLengths[index] + offset;
+		int read = 0;
+		try {
+			while (buffer.hasRemaining()) {
+				int count = channel.read(buffer, position + read);
+				if (count == -1) {
+					break;
+				}
+				read += count;
+			}
+		} finally {
+			buffer.limit(limit);
+		}
+		return read;
+	}
+
+	/**
+	 * Transfers a part of the data that a particular piece represents within
+	 * this file directly to a channel, such as the socket of a peer, without
+	 * copying it into an intermediate array.
+	 * 
+	 * @param piece
+	 *            the number of the interested piece
+	 * @param offset
+	 *            the offset within the data of the piece that is stored in
+	 *            this file to start transferring from
+	 * @param length
+	 *            the maximum number of bytes to transfer
+	 * @param target
+	 *            the channel to transfer the data to
+	 * @return the number of bytes transferred, which is less than
+	 *         <code>length</code> if the piece's data within this file ends
+	 *         first, or <code>-1</code> if this file does not contain the
+	 *         specified piece
+	 * @throws IllegalArgumentException
+	 *             If <code>offset</code> is negative or greater than the
+	 *             amount of data of the piece that this file holds
+	 * @throws IOException
+	 *             If an I/O error occurs while reading from this file or
+	 *             writing to the channel
+	 */
+	public long transferTo(int piece, int offset, int length,
+			WritableByteChannel target) throws IllegalArgumentException,
+			IOException {
+		int index = indexOf(piece);
+		if (index == -1) {
+			return -1;
+		}
+		long count = Math.min(length, checkOffset(index, offset));
+		FileChannel channel = file.getChannel();
+		long position = (long) pieceLengths[index] + offset;
+		long transferred = 0;
+		while (transferred < count) {
+			long sent = channel.transferTo(position + transferred, count
+					- transferred, target);
+			if (sent <= 0) {
+				// the file is shorter than it should be
+				break;
+			}
+			transferred += sent;
+		}
+		return transferred;
+	}
+
+	/**
+	 * Retrieves the amount of data of the piece at the specified position
+	 * within {@link #pieces} that is stored within this file.
+	 * 
+	 * @param index
+	 *            the position of the piece within <code>pieces</code>
+	 * @return the number of bytes of the piece that this file holds
+	 */
+	private int getLength(int index) {
 		// if this is the last piece, retrieve the length by decrementing the
 		// length of this file and the starting length of the last piece
 		if (pieceLengths.length - 1 == index) {
-			dataLength = (int) (length - pieceLengths[index]);
-		} else {
-			// get the length by decrementing the length of the piece after it
-			// with the current piece
-			dataLength = pieceLengths[index + 1] - pieceLengths[index];
+			return (int) (length - pieceLengths[index]);
 		}
-		// create a new byte array to store the data so that it can be returned
-		byte[] data = new byte[dataLength];
-		synchronized (file) {
-			file.seek(pieceLengths[index]);
-			file.read(data, 0, dataLength);
+		// get the length by decrementing the length of the piece after it
+		// with the current piece
+		return pieceLengths[index + 1] - pieceLengths[index];
+	}
+
+	private int checkOffset(int index, int offset)
+			throws IllegalArgumentException {
+		int available = getLength(index) - offset;
+		if (offset < 0 || available < 0) {
+			throw new IllegalArgumentException("The offset " + offset //$NON-NLS-1$
+					+ " is outside of the piece's data within this file"); //$NON-NLS-1$
 		}
-		return data;
+		return available;
+	}
+
+	/**
+	 * Retrieves the location of this file on the local file system.
+	 * 
+	 * @return the file that is being wrapped
+	 */
+	public File getFile() {
+		return path;
 	}
 
 	/**
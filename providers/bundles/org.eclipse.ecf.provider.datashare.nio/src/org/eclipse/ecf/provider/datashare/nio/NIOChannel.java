@@ -13,23 +13,32 @@
 package org.eclipse.ecf.provider.datashare.nio;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.ISafeRunnable;
@@ -40,15 +49,31 @@ import org.eclipse.ecf.core.identity.ID;
 import org.eclipse.ecf.core.util.ECFException;
 import org.eclipse.ecf.datashare.IChannel;
 import org.eclipse.ecf.datashare.IChannelListener;
+import org.eclipse.ecf.datashare.IStreamChannel;
 import org.eclipse.ecf.datashare.events.IChannelConnectEvent;
 import org.eclipse.ecf.datashare.events.IChannelDisconnectEvent;
 import org.eclipse.ecf.datashare.events.IChannelEvent;
 import org.eclipse.ecf.datashare.events.IChannelMessageEvent;
+import org.eclipse.ecf.datashare.events.IChannelStreamEvent;
+import org.eclipse.ecf.internal.datashare.ChannelInputStream;
+import org.eclipse.ecf.internal.datashare.ChannelStreamWindow;
 
 /**
  * An abstract implementation of <code>IChannel</code> that uses Java 1.4 NIO
  * APIs for sending and retrieving data.
  * <p>
+ * All of the channel's sockets are multiplexed by a single
+ * <code>Selector</code>, so incoming connections and messages are handled as
+ * soon as they arrive and messages are written out as soon as they have been
+ * sent with {@link #sendMessage(ID, byte[])}.
+ * </p>
+ * <p>
+ * Data of any size can be streamed to a remote peer with
+ * {@link #sendStream(ID)} and {@link #sendFile(ID, File)}. Streams are sent in
+ * chunks over the same sockets as messages, and files are written to the
+ * sockets directly with <code>FileChannel.transferTo</code>.
+ * </p>
+ * <p>
  * This channel will inherently spawn multiple socket connections as messages
  * are sent to different remote clients via {@link #sendMessage(ID, byte[])}.
  * Please note that the current implementation does not handle repeated
@@ -78,7 +103,7 @@ import org.eclipse.ecf.datashare.events.IChannelMessageEvent;
  * API will almost certainly be broken (repeatedly) as the API evolves.
  * </p>
  */
-public abstract class NIOChannel implements IChannel {
+public abstract class NIOChannel implements IChannel, IStreamChannel {
 
 	private NIODatashareContainer datashareContainer;
 
@@ -107,6 +132,33 @@ public abstract class NIOChannel implements IChannel {
 	 */
 	private final int localPort;
 
+	/**
+	 * The initial size of the buffer that sockets are read into.
+	 */
+	private static final int MIN_BUFFER_SIZE = 8192;
+
+	/**
+	 * The size that the buffer that sockets are read into may grow to.
+	 */
+	private static final int MAX_BUFFER_SIZE = 262144;
+
+	/**
+	 * The size of the chunks that streams are sent in.
+	 */
+	private static final int STREAM_CHUNK_SIZE = 65536;
+
+	/**
+	 * The number of bytes of a stream that may be sent before the receiver has
+	 * read them.
+	 */
+	private static final int STREAM_WINDOW_SIZE = 1048576;
+
+	/**
+	 * The selector that multiplexes the server socket and the sockets
+	 * connected to remote peers.
+	 */
+	private Selector selector;
+
 	/**
 	 * A map of <code>ID</code>s to their corresponding
 	 * <code>SocketChannel</code>s.
@@ -114,15 +166,43 @@ public abstract class NIOChannel implements IChannel {
 	private Map connectedSockets;
 
 	/**
-	 * A list of sockets that is waiting to handshake with remote peers.
+	 * A map of <code>ID</code>s to the connections of the processing thread.
+	 * Only used by the processing thread.
 	 */
-	private List pendingSockets;
+	private Map connections;
+
+	/**
+	 * A queue of connections that have been handshaken by the datashare
+	 * container and need to be registered with the selector.
+	 */
+	private LinkedList registrations;
 
 	/**
 	 * A queue of messages that needs to be sent to remote clients.
 	 */
 	private LinkedList messages;
 
+	/**
+	 * The buffer that sockets are read into. Only used by the processing
+	 * thread, and grown when the traffic fills it.
+	 */
+	private ByteBuffer readBuffer;
+
+	private final AtomicInteger nextStreamId = new AtomicInteger();
+
+	/**
+	 * A map of stream ids to the streams that are being sent to remote peers.
+	 */
+	private final Map outgoingStreams = Collections
+			.synchronizedMap(new HashMap());
+
+	/**
+	 * A map of the ids of remote peers and their streams to the streams that
+	 * are being received.
+	 */
+	private final Map incomingStreams = Collections
+			.synchronizedMap(new HashMap());
+
 	/**
 	 * This channel's listener. May be <code>null</code>.
 	 */
@@ -170,7 +250,11 @@ public abstract class NIOChannel implements IChannel {
 			// open a server socket
 			serverSocketChannel = ServerSocketChannel.open();
 			serverSocketChannel.configureBlocking(false);
+			selector = Selector.open();
 		} catch (IOException e) {
+			if (serverSocketChannel != null) {
+				Util.closeChannel(serverSocketChannel);
+			}
 			throw new ECFException(new Status(IStatus.ERROR, Util.PLUGIN_ID,
 					"Could not create server socket", e)); //$NON-NLS-1$
 		}
@@ -179,16 +263,25 @@ public abstract class NIOChannel implements IChannel {
 			// bind to a local port
 			ServerSocket socket = serverSocketChannel.socket();
 			socket.bind(getBindAddress(), getBackLog());
+			serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
 		} catch (IOException e) {
+			Util.closeChannel(serverSocketChannel);
+			try {
+				selector.close();
+			} catch (IOException ex) {
+				// ignored
+			}
 			throw new ECFException(new Status(IStatus.ERROR, Util.PLUGIN_ID,
 					"Could not bind server socket", e)); //$NON-NLS-1$
 		}
 
 		localPort = serverSocketChannel.socket().getLocalPort();
 
-		connectedSockets = new HashMap();
-		pendingSockets = new ArrayList();
+		connectedSockets = Collections.synchronizedMap(new HashMap());
+		connections = new HashMap();
+		registrations = new LinkedList();
 		messages = new LinkedList();
+		readBuffer = ByteBuffer.allocateDirect(MIN_BUFFER_SIZE);
 
 		processingThread = new Thread(new ProcessingRunnable(), getClass()
 				.getName()
@@ -280,208 +373,452 @@ public abstract class NIOChannel implements IChannel {
 	}
 
 	/**
-	 * Sends any pending messages we may have queued up.
+	 * Registers the connections that have been handshaken by the datashare
+	 * container with the selector.
 	 */
-	private void sendPendingMessages() {
-		Collection deadSockets = null;
-		Collection processedMessages = null;
-
-		for (Iterator it = messages.iterator(); it.hasNext();) {
-			ChannelMessage message = (ChannelMessage) it.next();
-			ID id = message.getId();
-			SocketChannel channel = (SocketChannel) connectedSockets.get(id);
-			// check if we have a socket for the target of this message
-			if (channel != null) {
-				byte[] data = message.getData();
-
+	private void registerConnections() {
+		synchronized (registrations) {
+			while (!registrations.isEmpty()) {
+				Connection connection = (Connection) registrations
+						.removeFirst();
 				try {
-					// flush the data directly with regular IO, this method
-					// saves us the extra work of having to constantly flip and
-					// clear a ByteBuffer and in a way ensures the message is
-					// sent in one piece instead of chunks
-					channel.configureBlocking(true);
-					channel.socket().getOutputStream().write(data);
-					channel.socket().getOutputStream().flush();
-					// turn off blocking
-					channel.configureBlocking(false);
+					connection.socketChannel.configureBlocking(false);
+					connection.socketChannel.register(selector,
+							SelectionKey.OP_READ, connection);
 				} catch (IOException e) {
 					log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
-							"Error occurred while sending message", e)); //$NON-NLS-1$
-					if (deadSockets == null) {
-						deadSockets = new HashSet();
+							"Could not register socket", e)); //$NON-NLS-1$
+					connectedSockets.remove(connection.peerId);
+					Util.closeChannel(connection.socketChannel);
+					continue;
+				}
+				connections.put(connection.peerId, connection);
+				// process the messages that came with the handshake
+				processIncomingMessages(connection);
+			}
+		}
+	}
+
+	/**
+	 * Moves the queued messages to the connections of their targets and writes
+	 * them out.
+	 */
+	private void sendPendingMessages() {
+		List targets = null;
+
+		synchronized (messages) {
+			for (Iterator it = messages.iterator(); it.hasNext();) {
+				ChannelMessage message = (ChannelMessage) it.next();
+				// check if we have a socket for the target of this message
+				Connection connection = (Connection) connections.get(message
+						.getId());
+				if (connection != null) {
+					connection.outbound.addAll(Arrays.asList(message.getParts()));
+					it.remove();
+
+					if (targets == null) {
+						targets = new ArrayList();
+					}
+					if (!targets.contains(connection)) {
+						targets.add(connection);
 					}
-					deadSockets.add(id);
 				}
+			}
+		}
 
-				if (processedMessages == null) {
-					processedMessages = new LinkedList();
+		if (targets != null) {
+			for (int i = 0; i < targets.size(); i++) {
+				Connection connection = (Connection) targets.get(i);
+				SelectionKey key = connection.socketChannel.keyFor(selector);
+				if (key != null && key.isValid()) {
+					try {
+						write(key, connection);
+					} catch (IOException e) {
+						log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
+								"Error occurred while sending message", e)); //$NON-NLS-1$
+						close(key);
+					}
 				}
-				// store the processed message
-				processedMessages.add(message);
 			}
 		}
+	}
 
-		// remove all messages that have been processed
-		if (processedMessages != null) {
-			messages.removeAll(processedMessages);
+	/**
+	 * Writes as much of the queued data of the connection as the socket
+	 * accepts, and registers interest in writing the rest once the socket can
+	 * take more. Queued buffers are written with a single gathering write, and
+	 * regions of files are transferred to the socket by the file system.
+	 * 
+	 * @param key
+	 *            the selection key of the connection's socket
+	 * @param connection
+	 *            the connection to write
+	 * @throws IOException
+	 *             if an error occurs while writing to the socket
+	 */
+	private void write(SelectionKey key, Connection connection)
+			throws IOException {
+		LinkedList outbound = connection.outbound;
+		while (!outbound.isEmpty()) {
+			Object head = outbound.getFirst();
+			if (head instanceof FileRegion) {
+				if (!((FileRegion) head).transferTo(connection.socketChannel)) {
+					// the socket is full
+					break;
+				}
+				outbound.removeFirst();
+				continue;
+			}
+
+			// write the buffers up to the next file region at once
+			List buffers = new ArrayList();
+			for (Iterator it = outbound.iterator(); it.hasNext();) {
+				Object part = it.next();
+				if (part instanceof FileRegion) {
+					break;
+				}
+				buffers.add(part);
+			}
+			connection.socketChannel.write((ByteBuffer[]) buffers
+					.toArray(new ByteBuffer[buffers.size()]));
+
+			while (!outbound.isEmpty()
+					&& outbound.getFirst() instanceof ByteBuffer
+					&& !((ByteBuffer) outbound.getFirst()).hasRemaining()) {
+				outbound.removeFirst();
+			}
+			if (!outbound.isEmpty() && outbound.getFirst() instanceof ByteBuffer) {
+				// the socket is full
+				break;
+			}
 		}
 
-		if (deadSockets != null) {
-			for (Iterator it = deadSockets.iterator(); it.hasNext();) {
-				ID id = (ID) it.next();
-				SocketChannel channel = (SocketChannel) connectedSockets
-						.remove(id);
-				Util.closeChannel(channel);
+		key.interestOps(outbound.isEmpty() ? SelectionKey.OP_READ
+				: SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+	}
+
+	/**
+	 * Reads everything that is available from the connection's socket and
+	 * returns whether the socket has reached end-of-stream.
+	 * 
+	 * @param connection
+	 *            the connection to read from
+	 * @return <code>true</code> if the socket is still active,
+	 *         <code>false</code> has reached end-of-stream
+	 * @throws IOException
+	 *             if an error occurred while trying to read from the socket
+	 */
+	private boolean read(Connection connection) throws IOException {
+		while (true) {
+			int read = connection.socketChannel.read(readBuffer);
+			if (read == -1) {
+				return false;
+			} else if (read == 0) {
+				return true;
+			}
+
+			readBuffer.flip();
+			connection.append(readBuffer);
+			readBuffer.clear();
+
+			if (read == readBuffer.capacity()
+					&& readBuffer.capacity() < MAX_BUFFER_SIZE) {
+				// the traffic fills the buffer, use a larger one
+				readBuffer = ByteBuffer
+						.allocateDirect(readBuffer.capacity() * 2);
 			}
 		}
 	}
 
 	/**
-	 * Reads in any incoming messages from remote clients.
+	 * Accepts an incoming connection from a remote peer. The connection must
+	 * be handshaken before any messages can be exchanged over it.
 	 * 
-	 * @param buffer
-	 *            the buffer to use for reading the socket
+	 * @param key
+	 *            the selection key of the server socket
 	 * @throws IOException
-	 *             if an error occurs while reading from the socket
+	 *             if an error occurs while accepting the connection
 	 */
-	private void processIncomingMessages(ByteBuffer buffer) throws IOException {
-		Collection deadSockets = null;
+	private void accept(SelectionKey key) throws IOException {
+		SocketChannel socketChannel = ((ServerSocketChannel) key.channel())
+				.accept();
+		if (socketChannel != null) {
+			socketChannel.configureBlocking(false);
+			socketChannel.register(selector, SelectionKey.OP_READ,
+					new Connection(socketChannel, null));
+		}
+	}
 
-		for (Iterator it = connectedSockets.entrySet().iterator(); it.hasNext();) {
-			Map.Entry entry = (Map.Entry) it.next();
-			SocketChannel socketChannel = (SocketChannel) entry.getValue();
+	/**
+	 * Handles the socket of the selection key being ready for reading or
+	 * writing.
+	 * 
+	 * @param key
+	 *            the selected key
+	 * @throws ClassNotFoundException
+	 *             if deserialization failed
+	 * @throws IOException
+	 *             if an IO error occurred on the socket
+	 */
+	private void process(SelectionKey key) throws ClassNotFoundException,
+			IOException {
+		Connection connection = (Connection) key.attachment();
+		if (key.isReadable()) {
+			if (!read(connection)) {
+				// this channel is dead, close it
+				close(key);
+				return;
+			}
 
-			try {
-				if (!processIncomingMessages(socketChannel, buffer)) {
-					if (deadSockets == null) {
-						deadSockets = new HashSet();
-					}
-					deadSockets.add(entry.getKey());
-				}
-			} catch (IOException e) {
-				log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
-						"Error occurred while sending message", e)); //$NON-NLS-1$
-				if (deadSockets == null) {
-					deadSockets = new HashSet();
-				}
-				deadSockets.add(entry.getKey());
+			if (connection.peerId == null) {
+				handshake(key, connection);
+			}
+			if (connection.peerId != null) {
+				processIncomingMessages(connection);
 			}
 		}
 
-		if (deadSockets != null) {
-			for (Iterator it = deadSockets.iterator(); it.hasNext();) {
-				ID id = (ID) it.next();
-				SocketChannel channel = (SocketChannel) connectedSockets
-						.remove(id);
-				Util.closeChannel(channel);
+		if (key.isValid() && key.isWritable()) {
+			write(key, connection);
+		}
+	}
+
+	/**
+	 * Closes the socket of the selection key and forgets its connection.
+	 * 
+	 * @param key
+	 *            the key of the socket to close
+	 */
+	private void close(SelectionKey key) {
+		key.cancel();
+		Connection connection = (Connection) key.attachment();
+		Util.closeChannel(connection.socketChannel);
+		closeFileRegions(connection.outbound);
+
+		ID peerId = connection.peerId;
+		if (peerId != null) {
+			if (connections.get(peerId) == connection) {
+				connections.remove(peerId);
+			}
+			synchronized (connectedSockets) {
+				if (connectedSockets.get(peerId) == connection.socketChannel) {
+					connectedSockets.remove(peerId);
+				}
 			}
+			failStreams(peerId);
 		}
 	}
 
 	/**
-	 * Processes any incoming messages from the specified channel by reading it
-	 * into the specified buffer and returns whether the channel has reached
-	 * end-of-stream.
+	 * Closes the files of the regions among the given parts of messages.
 	 * 
-	 * @param socketChannel
-	 *            the channel to read messages from
-	 * @param buffer
-	 *            the buffer to use to read the messages into
-	 * @return <code>true</code> if the channel is still active,
-	 *         <code>false</code> has reached end-of-stream
-	 * @throws IOException
-	 *             if an error occurred while trying to read from the channel
+	 * @param parts
+	 *            the parts of messages that will not be sent
 	 */
-	private boolean processIncomingMessages(SocketChannel socketChannel,
-			ByteBuffer buffer) throws IOException {
-		ChannelData channelData = Util.read(socketChannel, buffer);
-		byte[] message = channelData.getData();
+	private static void closeFileRegions(Collection parts) {
+		for (Iterator it = parts.iterator(); it.hasNext();) {
+			Object part = it.next();
+			if (part instanceof FileRegion) {
+				((FileRegion) part).close();
+			}
+		}
+	}
 
-		if (message != null) {
-			processIncomingMessage(socketChannel, message);
+	/**
+	 * Fails the streams from and to the given peer.
+	 * 
+	 * @param peerId
+	 *            the id of the peer, or <code>null</code> to fail all streams
+	 */
+	private void failStreams(ID peerId) {
+		IOException exception = new IOException(
+				"Connection closed to " + peerId); //$NON-NLS-1$
+		synchronized (incomingStreams) {
+			for (Iterator it = incomingStreams.entrySet().iterator(); it
+					.hasNext();) {
+				Map.Entry entry = (Map.Entry) it.next();
+				if (peerId == null
+						|| peerId.equals(((List) entry.getKey()).get(0))) {
+					((ChannelInputStream) entry.getValue()).fail(exception);
+					it.remove();
+				}
+			}
+		}
+		synchronized (outgoingStreams) {
+			for (Iterator it = outgoingStreams.values().iterator(); it
+					.hasNext();) {
+				ChannelOutputStream stream = (ChannelOutputStream) it.next();
+				if (peerId == null || peerId.equals(stream.receiver)) {
+					stream.window.fail(exception);
+					it.remove();
+				}
+			}
 		}
-		return channelData.isOpen();
 	}
 
 	/**
-	 * Processes the message that has been received from the specified channel.
+	 * Processes the messages that have been received in full from the
+	 * connection.
 	 * 
-	 * @param socketChannel
-	 *            the channel that the message was from
-	 * @param message
-	 *            the message that was received
+	 * @param connection
+	 *            the connection that the messages were from
 	 */
-	void processIncomingMessage(SocketChannel socketChannel, byte[] message) {
+	private void processIncomingMessages(Connection connection) {
+		if (connection.inboundLength == 0) {
+			return;
+		}
+
+		List received = new ArrayList();
+		try {
+			int read = Util.readMessages(connection.inbound, 0,
+					connection.inboundLength, received);
+			connection.consume(read);
+		} catch (ClassNotFoundException e) {
+			log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
+					"Could not deserialize", e)); //$NON-NLS-1$
+			// the rest of the data cannot be made sense of
+			connection.consume(connection.inboundLength);
+		} catch (IOException e) {
+			log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
+					"Could not deserialize", e)); //$NON-NLS-1$
+			connection.consume(connection.inboundLength);
+		}
+
 		// we read something, need to notify
 		IChannelListener listener = getListener();
-		if (listener != null) {
-			// we have a listener, convert our data and then notify
-			byte[][] messages = convert(message);
-			if (messages != null) {
-				fireMessageEvents(listener, socketChannel, messages);
+		for (int i = 0; i < received.size(); i++) {
+			Object message = received.get(i);
+			if (message instanceof StreamFrame) {
+				processStreamFrame(connection.peerId, (StreamFrame) message,
+						listener);
+			} else if (listener != null) {
+				fireChannelEvent(listener, createMessageEvent(
+						connection.peerId, (byte[]) message));
 			}
 		}
 	}
 
 	/**
-	 * Converts the data that has been read from the socket into separate byte[]
-	 * instances.
+	 * Processes a frame of a stream that has been received from a remote peer.
 	 * 
-	 * @param message
-	 *            the data read from the socket
-	 * @return a byte[][] containing the individual messages
+	 * @param peerId
+	 *            the id of the peer that the frame was from
+	 * @param frame
+	 *            the frame that was received
+	 * @param listener
+	 *            the listener to notify of new streams, may be
+	 *            <code>null</code>
 	 */
-	private byte[][] convert(byte[] message) {
-		try {
-			// back the read in data with a ByteArrayInputStream
-			ByteArrayInputStream bais = new ByteArrayInputStream(message);
-			// instantiate an ObjectInputStream and read the individual
-			// byte[]
-			byte[] bytes = (byte[]) new ObjectInputStream(bais).readObject();
-
-			if (bais.available() == 0) {
-				return new byte[][] { bytes };
+	private void processStreamFrame(final ID peerId, StreamFrame frame,
+			IChannelListener listener) {
+		final int streamId = frame.getStreamId();
+		byte type = frame.getType();
+		if (type == StreamFrame.CREDIT || type == StreamFrame.CANCEL) {
+			// the frame is about a stream that we are sending
+			ChannelOutputStream stream = (ChannelOutputStream) outgoingStreams
+					.get(Integer.valueOf(streamId));
+			if (stream == null || !stream.receiver.equals(peerId)) {
+				return;
+			}
+			if (type == StreamFrame.CREDIT) {
+				stream.window.release(frame.getCredit());
+			} else {
+				outgoingStreams.remove(Integer.valueOf(streamId));
+				stream.window.fail(new IOException(
+						"Stream cancelled by receiver " + peerId)); //$NON-NLS-1$
 			}
+			return;
+		}
 
-			Collection c = new ArrayList();
-			c.add(bytes);
+		final List key = Arrays.asList(new Object[] { peerId,
+				Integer.valueOf(streamId) });
+		ChannelInputStream stream = (ChannelInputStream) incomingStreams
+				.get(key);
+		if (stream == null) {
+			if (type != StreamFrame.START) {
+				// frames that were in flight when the stream was cancelled,
+				// or when it failed
+				return;
+			}
+			stream = new ChannelInputStream(STREAM_WINDOW_SIZE / 4) {
+				protected void consumed(int count) {
+					send(peerId, Util.putStreamHeader(
+							new byte[Util.STREAM_HEADER_LENGTH],
+							StreamFrame.CREDIT, streamId, count));
+				}
 
-			while (bais.available() != 0) {
-				// instantiate an ObjectInputStream and read the individual
-				// byte[]
-				bytes = (byte[]) new ObjectInputStream(bais).readObject();
-				// store it
-				c.add(bytes);
+				protected void cancelled() {
+					// the sender stops sending, so no end of the stream will
+					// remove it
+					incomingStreams.remove(key);
+					send(peerId, Util.putStreamHeader(
+							new byte[Util.STREAM_HEADER_LENGTH],
+							StreamFrame.CANCEL, streamId, 0));
+				}
+			};
+			incomingStreams.put(key, stream);
+			if (listener == null) {
+				// nobody to read it
+				stream.close();
+			} else {
+				fireStreamEvent(listener, peerId, stream);
 			}
+			return;
+		}
 
-			// return all the individual byte[]s
-			return (byte[][]) c.toArray(new byte[c.size()][]);
-		} catch (IOException e) {
-			return null;
-		} catch (ClassNotFoundException e) {
-			return null;
+		if (type == StreamFrame.DATA) {
+			stream.receive(frame.getData());
+		} else if (type == StreamFrame.END) {
+			incomingStreams.remove(key);
+			stream.end();
+		} else if (type == StreamFrame.ABORT) {
+			incomingStreams.remove(key);
+			stream.fail(new IOException("Stream aborted by sender " + peerId)); //$NON-NLS-1$
 		}
 	}
 
 	/**
-	 * Fires message events to the specified listener for each of the message
-	 * that was received.
+	 * Notifies the specified listener of a stream that has begun on a thread
+	 * of its own, so that the listener may read the stream while its chunks
+	 * are being received.
 	 * 
 	 * @param listener
 	 *            the listener to notify
-	 * @param socketChannel
-	 *            the socket that the message was read from
-	 * @param messages
-	 *            the messages that have been received
-	 */
-	private void fireMessageEvents(IChannelListener listener,
-			SocketChannel socketChannel, byte[][] messages) {
-		for (int i = 0; i < messages.length; i++) {
-			IChannelEvent event = createMessageEvent(socketChannel, messages[i]);
-			if (event != null) {
+	 * @param fromId
+	 *            the id of the peer that is sending the stream
+	 * @param stream
+	 *            the stream that is being received
+	 */
+	private void fireStreamEvent(final IChannelListener listener,
+			final ID fromId, final InputStream stream) {
+		final IChannelStreamEvent event = new IChannelStreamEvent() {
+			public ID getFromContainerID() {
+				return fromId;
+			}
+
+			public InputStream getInputStream() {
+				return stream;
+			}
+
+			public ID getChannelID() {
+				return id;
+			}
+
+			public String toString() {
+				StringBuffer buffer = new StringBuffer();
+				buffer.append("IChannelStreamEvent["); //$NON-NLS-1$
+				buffer.append("container=").append(fromId); //$NON-NLS-1$
+				buffer.append(",channel=").append(id).append(']'); //$NON-NLS-1$
+				return buffer.toString();
+			}
+		};
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
 				fireChannelEvent(listener, event);
 			}
-		}
+		}, getClass().getName() + "Stream-" + id.toString()); //$NON-NLS-1$
+		thread.setDaemon(true);
+		thread.start();
 	}
 
 	/**
@@ -512,48 +849,38 @@ public abstract class NIOChannel implements IChannel {
 
 	/**
 	 * Creates and returns a message event corresponding to the specified
-	 * channel and the data that was read.
+	 * peer and the data that was read.
 	 * 
-	 * @param channel
-	 *            the socket channel that the message was from
+	 * @param fromId
+	 *            the id of the peer that the message was from
 	 * @param data
 	 *            the message from the remote peer
-	 * @return a message event describing the received message, may be
-	 *         <code>null</code> if the channel could not be identified
+	 * @return a message event describing the received message
 	 */
-	private IChannelEvent createMessageEvent(SocketChannel channel,
+	private IChannelEvent createMessageEvent(final ID fromId,
 			final byte[] data) {
-		// search for the id of the corresponding channel
-		for (Iterator it = connectedSockets.entrySet().iterator(); it.hasNext();) {
-			Map.Entry entry = (Map.Entry) it.next();
-			if (channel == entry.getValue()) {
-				final ID fromId = (ID) entry.getKey();
-
-				return new IChannelMessageEvent() {
-					public byte[] getData() {
-						return data;
-					}
+		return new IChannelMessageEvent() {
+			public byte[] getData() {
+				return data;
+			}
 
-					public ID getFromContainerID() {
-						return fromId;
-					}
+			public ID getFromContainerID() {
+				return fromId;
+			}
 
-					public ID getChannelID() {
-						return id;
-					}
+			public ID getChannelID() {
+				return id;
+			}
 
-					public String toString() {
-						StringBuffer buffer = new StringBuffer();
-						buffer.append("IChannelMessageEvent["); //$NON-NLS-1$
-						buffer.append("container=").append(fromId); //$NON-NLS-1$
-						buffer.append(",channel=").append(id); //$NON-NLS-1$
-						buffer.append(",data=").append(data).append(']'); //$NON-NLS-1$
-						return buffer.toString();
-					}
-				};
+			public String toString() {
+				StringBuffer buffer = new StringBuffer();
+				buffer.append("IChannelMessageEvent["); //$NON-NLS-1$
+				buffer.append("container=").append(fromId); //$NON-NLS-1$
+				buffer.append(",channel=").append(id); //$NON-NLS-1$
+				buffer.append(",data=").append(data).append(']'); //$NON-NLS-1$
+				return buffer.toString();
 			}
-		}
-		return null;
+		};
 	}
 
 	/**
@@ -564,105 +891,57 @@ public abstract class NIOChannel implements IChannel {
 	 *            the target that the socket is connected with
 	 * @param socketChannel
 	 *            the socket channel to be stored
+	 * @param received
+	 *            the data that has been received from the socket after the
+	 *            handshake, may be <code>null</code>
 	 */
-	void put(ID id, SocketChannel socketChannel) {
+	void put(ID id, SocketChannel socketChannel, byte[] received) {
+		Connection connection = new Connection(socketChannel, id);
+		if (received != null) {
+			connection.append(ByteBuffer.wrap(received));
+		}
+
 		connectedSockets.put(id, socketChannel);
+		synchronized (registrations) {
+			registrations.add(connection);
+		}
+		selector.wakeup();
 	}
 
 	/**
-	 * Accept the socket as a potential client and attempt to handshake with it.
+	 * Performs a handshake with a remote peer that has connected to this
+	 * channel once the peer's id has been received in full. This channel's id
+	 * and the id of the owner container are queued to be sent back to the
+	 * peer.
 	 * 
-	 * @param socketChannel
-	 *            the socket to establish a connection with
-	 * @throws ClassNotFoundException
-	 *             if the class of an object being deserialized could not be
-	 *             found
-	 * @throws IOException
-	 *             if a networking error occurs with the socket while
-	 *             reading/sending messages
-	 */
-	// private boolean accept2(SocketChannel socketChannel, ByteBuffer buffer)
-	// throws ClassNotFoundException, IOException {
-	// int read = socketChannel.read(buffer);
-	// buffer.flip();
-	// byte[] bytes = new byte[read];
-	// buffer.get(bytes);
-	// buffer.clear();
-	//
-	// ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(
-	// bytes));
-	// Object object = ois.readObject();
-	//
-	// if (object instanceof ID) {
-	// bytes = serialize(id);
-	// socketChannel.socket().getOutputStream().write(bytes);
-	//
-	// bytes = serialize(containerId);
-	// socketChannel.socket().getOutputStream().write(bytes);
-	// socketChannel.socket().getOutputStream().flush();
-	//
-	// socketChannel.configureBlocking(false);
-	// put((ID) object, socketChannel);
-	// }
-	// return true;
-	// }
-
-	/**
-	 * Performs a handshake with a remote peer via the provided socket channel
-	 * and returns whether <code>true</code> if no further attempts are
-	 * required. Note that <code>true</code> does not indicate that the
-	 * handshake has been successful.
-	 * <p>
-	 * For example, if the remote peer has closed this channel then
-	 * <code>true</code> would be returned as no further attempts should be
-	 * attempted.
-	 * </p>
-	 * 
-	 * @param socketChannel
-	 *            the channel to use to handshake with the remote peer
-	 * @param buffer
-	 *            the buffer to use for reading and writing data from the
-	 *            channel
-	 * @return <code>true</code> if no further handshake attempts are required,
-	 *         <code>false</code> otherwise
+	 * @param key
+	 *            the selection key of the peer's socket
+	 * @param connection
+	 *            the connection to handshake
 	 * @throws ClassNotFoundException
 	 *             if deserialization failed during the handshake
 	 * @throws IOException
 	 *             if an IO error occurred while performing the handshake
 	 */
-	private boolean handshake(SocketChannel socketChannel, ByteBuffer buffer)
+	private void handshake(SelectionKey key, Connection connection)
 			throws ClassNotFoundException, IOException {
-		ChannelData data = Util.read(socketChannel, buffer);
-		if (!data.isOpen()) {
-			// this channel is dead, close it
-			Util.closeChannel(socketChannel);
-			return true;
+		ByteArrayInputStream bais = new ByteArrayInputStream(
+				connection.inbound, 0, connection.inboundLength);
+		ID peerId = Util.readID(bais);
+		if (peerId == null) {
+			// wait for the rest of the id
+			return;
 		}
+		connection.consume(connection.inboundLength - bais.available());
 
-		byte[] bytes = data.getData();
-		if (bytes == null) {
-			return false;
-		}
-
-		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(
-				bytes));
-		Object object = ois.readObject();
-
-		if (object instanceof ID) {
-			socketChannel.configureBlocking(true);
-			byte[] one = Util.serialize(id);
-			byte[] two = Util.serialize(containerId);
-			bytes = new byte[one.length + two.length];
-			System.arraycopy(one, 0, bytes, 0, one.length);
-			System.arraycopy(two, 0, bytes, one.length, two.length);
+		connection.outbound.add(ByteBuffer.wrap(Util.serialize(id)));
+		connection.outbound.add(ByteBuffer.wrap(Util.serialize(containerId)));
 
-			socketChannel.socket().getOutputStream().write(bytes);
-			socketChannel.socket().getOutputStream().flush();
+		connection.peerId = peerId;
+		connectedSockets.put(peerId, connection.socketChannel);
+		connections.put(peerId, connection);
 
-			socketChannel.configureBlocking(false);
-			put((ID) object, socketChannel);
-		}
-		return true;
+		write(key, connection);
 	}
 
 	/**
@@ -696,6 +975,68 @@ public abstract class NIOChannel implements IChannel {
 	 */
 	protected abstract void sendRequest(ID receiver) throws ECFException;
 
+	/**
+	 * Queues the parts of a message to be sent to the receiver once there is
+	 * a socket for it, and has the processing thread send it right away.
+	 * 
+	 * @param receiver
+	 *            the receiver of the message
+	 * @param parts
+	 *            the parts of the message, which are <code>ByteBuffer</code>s
+	 *            and <code>FileRegion</code>s
+	 */
+	private void send(ID receiver, Object[] parts) {
+		synchronized (messages) {
+			messages.add(new ChannelMessage(receiver, parts));
+		}
+		selector.wakeup();
+	}
+
+	private void send(ID receiver, byte[] frame) {
+		send(receiver, new Object[] { ByteBuffer.wrap(frame) });
+	}
+
+	public OutputStream sendStream(ID receiver) throws ECFException {
+		Assert.isNotNull(receiver, "A receiver must be specified"); //$NON-NLS-1$
+
+		// check if we already have a socket for this receiver
+		if (!connectedSockets.containsKey(receiver)) {
+			sendRequest(receiver);
+		}
+
+		int streamId = nextStreamId.incrementAndGet();
+		ChannelOutputStream stream = new ChannelOutputStream(receiver,
+				streamId);
+		outgoingStreams.put(Integer.valueOf(streamId), stream);
+		return stream;
+	}
+
+	/**
+	 * Sends the contents of a file to a remote instance of this channel of the
+	 * target peer as a stream. The file is written to the socket of the peer
+	 * with <code>FileChannel.transferTo</code>, without being copied into
+	 * memory.
+	 * 
+	 * @param receiver
+	 *            the receiver to send the file to, must not be
+	 *            <code>null</code>
+	 * @param file
+	 *            the file to send, must not be <code>null</code>
+	 */
+	public void sendFile(ID receiver, File file) throws ECFException {
+		Assert.isNotNull(file, "File cannot be null"); //$NON-NLS-1$
+
+		ChannelOutputStream stream = (ChannelOutputStream) sendStream(receiver);
+		try {
+			stream.transferFrom(new FileInputStream(file).getChannel());
+			stream.close();
+		} catch (IOException e) {
+			stream.abort();
+			throw new ECFException(new Status(IStatus.ERROR, Util.PLUGIN_ID,
+					"Could not send file " + file, e)); //$NON-NLS-1$
+		}
+	}
+
 	public void sendMessage(byte[] message) throws ECFException {
 		throw new ECFException(new Status(IStatus.ERROR, Util.PLUGIN_ID,"A receiver must be specified, see sendMessage(ID, byte[])"));
 	}
@@ -731,10 +1072,8 @@ public abstract class NIOChannel implements IChannel {
 			sendRequest(receiver);
 		}
 
-		synchronized (messages) {
-			// enqueue the message for processing
-			messages.add(new ChannelMessage(receiver, message));
-		}
+		// enqueue the message for processing
+		send(receiver, Util.frame(message));
 	}
 
 	/**
@@ -743,7 +1082,9 @@ public abstract class NIOChannel implements IChannel {
 	 * method returns.
 	 */
 	public void dispose() {
+		// the processing thread closes the selector when it stops
 		processingThread.interrupt();
+		failStreams(null);
 
 		try {
 			// turn off the server to prevent and deny incoming connections
@@ -794,84 +1135,377 @@ public abstract class NIOChannel implements IChannel {
 	private final class ProcessingRunnable implements Runnable {
 
 		public void run() {
-			ByteBuffer buffer = ByteBuffer.allocate(1024);
-			while (true) {
-				try {
-					Thread.sleep(50);
-
-					if (Thread.currentThread().isInterrupted()) {
-						return;
-					}
-
-					// perform handshaking for any pending sockets
-					for (int i = 0; i < pendingSockets.size(); i++) {
-						SocketChannel channel = (SocketChannel) pendingSockets
-								.get(i);
-						if (handshake(channel, buffer)) {
-							// remove if handled
-							pendingSockets.remove(i);
-							i--;
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					try {
+						selector.select();
+
+						registerConnections();
+
+						for (Iterator it = selector.selectedKeys().iterator(); it
+								.hasNext();) {
+							SelectionKey key = (SelectionKey) it.next();
+							it.remove();
+							if (!key.isValid()) {
+								continue;
+							}
+
+							if (key.isAcceptable()) {
+								accept(key);
+								continue;
+							}
+
+							try {
+								process(key);
+							} catch (ClassNotFoundException e) {
+								log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
+										"Could not deserialize", e)); //$NON-NLS-1$
+								close(key);
+							} catch (IOException e) {
+								// sockets are closed when the channel is
+								// disposed
+								if (!Thread.currentThread().isInterrupted()) {
+									log(new Status(IStatus.ERROR,
+											Util.PLUGIN_ID,
+											"An IO error occurred", e)); //$NON-NLS-1$
+								}
+								close(key);
+							}
 						}
-					}
-
-					processIncomingMessages(buffer);
 
-					// check if we have pending messages to send
-					synchronized (messages) {
-						if (!messages.isEmpty()) {
-							sendPendingMessages();
+						// check if we have pending messages to send
+						sendPendingMessages();
+					} catch (IOException e) {
+						if (Thread.currentThread().isInterrupted()) {
+							// the channel has been disposed
+							return;
 						}
+						log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
+								"An IO error occurred", e)); //$NON-NLS-1$
+					} catch (RuntimeException e) {
+						log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
+								"A runtime error occurred", e)); //$NON-NLS-1$
 					}
-
-					SocketChannel socketChannel = serverSocketChannel.accept();
-					if (socketChannel != null) {
-						socketChannel.configureBlocking(false);
-						pendingSockets.add(socketChannel);
+				}
+			} catch (ClosedSelectorException e) {
+				// the channel has been disposed
+			} finally {
+				// close the files that will not be sent
+				for (Iterator it = connections.values().iterator(); it
+						.hasNext();) {
+					closeFileRegions(((Connection) it.next()).outbound);
+				}
+				synchronized (messages) {
+					for (Iterator it = messages.iterator(); it.hasNext();) {
+						closeFileRegions(Arrays.asList(((ChannelMessage) it
+								.next()).getParts()));
 					}
-				} catch (InterruptedException e) {
-					Thread.interrupted();
-					return;
-				} catch (ClassNotFoundException e) {
-					log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
-							"Could not deserialize", e)); //$NON-NLS-1$
+				}
+
+				try {
+					selector.close();
 				} catch (IOException e) {
-					log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
-							"An IO error occurred", e)); //$NON-NLS-1$
-				} catch (RuntimeException e) {
-					log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
-							"A runtime error occurred", e)); //$NON-NLS-1$
+					// ignored
 				}
 			}
 		}
 	}
 
-	private final class ChannelMessage {
+	/**
+	 * A socket connection with a remote peer, along with the data that has
+	 * been received but not processed yet and the data that is waiting to be
+	 * written out.
+	 */
+	private static final class Connection {
+
+		private final SocketChannel socketChannel;
+
+		/**
+		 * The id of the remote peer, <code>null</code> until the connection
+		 * has been handshaken.
+		 */
+		private ID peerId;
+
+		private byte[] inbound = new byte[0];
+
+		private int inboundLength;
+
+		private final LinkedList outbound = new LinkedList();
+
+		Connection(SocketChannel socketChannel, ID peerId) {
+			this.socketChannel = socketChannel;
+			this.peerId = peerId;
+		}
+
+		void append(ByteBuffer buffer) {
+			int length = buffer.remaining();
+			if (inboundLength + length > inbound.length) {
+				byte[] temp = new byte[Math.max(inboundLength + length,
+						inbound.length * 2)];
+				System.arraycopy(inbound, 0, temp, 0, inboundLength);
+				inbound = temp;
+			}
+			buffer.get(inbound, inboundLength, length);
+			inboundLength += length;
+		}
+
+		void consume(int length) {
+			inboundLength -= length;
+			System.arraycopy(inbound, length, inbound, 0, inboundLength);
+		}
+
+	}
+
+	private static final class ChannelMessage {
 
-		private ID fromId;
-		private byte[] data;
+		private final ID fromId;
+		private final Object[] parts;
 
-		ChannelMessage(ID fromId, byte[] data) throws ECFException {
+		ChannelMessage(ID fromId, Object[] parts) {
 			this.fromId = fromId;
-			this.data = convert(data);
+			this.parts = parts;
+		}
+
+		public ID getId() {
+			return fromId;
 		}
 
-		private byte[] convert(byte[] data) throws ECFException {
+		public Object[] getParts() {
+			return parts;
+		}
+
+	}
+
+	/**
+	 * A region of a file that is transferred to a socket without being copied
+	 * into memory.
+	 */
+	private static final class FileRegion {
+
+		private final FileChannel fileChannel;
+		private long position;
+		private long remaining;
+
+		/**
+		 * Whether the file is to be closed once the region has been
+		 * transferred.
+		 */
+		private final boolean last;
+
+		FileRegion(FileChannel fileChannel, long position, long count,
+				boolean last) {
+			this.fileChannel = fileChannel;
+			this.position = position;
+			this.remaining = count;
+			this.last = last;
+		}
+
+		/**
+		 * Transfers as much of the region as the target accepts.
+		 * 
+		 * @param target
+		 *            the channel to transfer the region to
+		 * @return <code>true</code> if the region has been transferred in
+		 *         full, <code>false</code> if the target is full
+		 * @throws IOException
+		 *             if an IO error occurs with the file or the target
+		 */
+		boolean transferTo(WritableByteChannel target) throws IOException {
+			while (remaining > 0) {
+				long transferred = fileChannel.transferTo(position, remaining,
+						target);
+				if (transferred == 0) {
+					if (position >= fileChannel.size()) {
+						throw new EOFException("File truncated"); //$NON-NLS-1$
+					}
+					return false;
+				}
+				position += transferred;
+				remaining -= transferred;
+			}
+			if (last) {
+				close();
+			}
+			return true;
+		}
+
+		void close() {
+			Util.closeChannel(fileChannel);
+		}
+
+	}
+
+	/**
+	 * A stream to a remote instance of this channel, which is sent in chunks
+	 * within a window of bytes that the receiver has not read yet.
+	 */
+	private final class ChannelOutputStream extends OutputStream {
+
+		private final ID receiver;
+		private final int streamId;
+		private final ChannelStreamWindow window = new ChannelStreamWindow(
+				STREAM_WINDOW_SIZE);
+
+		/**
+		 * The frame of the next chunk, which the data is written into after
+		 * the header.
+		 */
+		private byte[] frame = new byte[Util.STREAM_HEADER_LENGTH
+				+ STREAM_CHUNK_SIZE];
+		private int count;
+		private boolean started;
+		private boolean closed;
+
+		ChannelOutputStream(ID receiver, int streamId) {
+			this.receiver = receiver;
+			this.streamId = streamId;
+		}
+
+		private void ensureOpen() throws IOException {
+			if (closed) {
+				throw new IOException("Stream closed"); //$NON-NLS-1$
+			}
+		}
+
+		private void sendChunk() throws IOException {
+			if (count == 0) {
+				return;
+			}
+			window.acquire(count);
+			start();
+			Util.putStreamHeader(frame, StreamFrame.DATA, streamId, count);
+			send(receiver, new Object[] { ByteBuffer.wrap(frame, 0,
+					Util.STREAM_HEADER_LENGTH + count) });
+			// the frame is now owned by the processing thread
+			frame = new byte[Util.STREAM_HEADER_LENGTH + STREAM_CHUNK_SIZE];
+			count = 0;
+		}
+
+		private void sendFrame(byte type) {
+			send(receiver, Util.putStreamHeader(
+					new byte[Util.STREAM_HEADER_LENGTH], type, streamId, 0));
+		}
+
+		/**
+		 * Sends the frame that begins the stream, unless it has been sent.
+		 */
+		private void start() {
+			if (!started) {
+				started = true;
+				sendFrame(StreamFrame.START);
+			}
+		}
+
+		private void sendAbort() {
+			// the receiver does not know of a stream that has not begun
+			if (started) {
+				sendFrame(StreamFrame.ABORT);
+			}
+		}
+
+		public synchronized void write(int b) throws IOException {
+			ensureOpen();
+			frame[Util.STREAM_HEADER_LENGTH + count++] = (byte) b;
+			if (count == STREAM_CHUNK_SIZE) {
+				sendChunk();
+			}
+		}
+
+		public synchronized void write(byte[] b, int off, int len)
+				throws IOException {
+			ensureOpen();
+			while (len > 0) {
+				int n = Math.min(len, STREAM_CHUNK_SIZE - count);
+				System.arraycopy(b, off, frame, Util.STREAM_HEADER_LENGTH
+						+ count, n);
+				count += n;
+				off += n;
+				len -= n;
+				if (count == STREAM_CHUNK_SIZE) {
+					sendChunk();
+				}
+			}
+		}
+
+		/**
+		 * Sends the rest of the file in chunks that are transferred from the
+		 * file to the socket directly. The file channel is closed once it has
+		 * been sent, or if it cannot be.
+		 * 
+		 * @param fileChannel
+		 *            the file to send
+		 * @throws IOException
+		 *             if the stream fails
+		 */
+		synchronized void transferFrom(FileChannel fileChannel)
+				throws IOException {
+			boolean handedOver = false;
+			boolean last = false;
 			try {
-				ByteArrayOutputStream baos = new ByteArrayOutputStream();
-				ObjectOutputStream oos = new ObjectOutputStream(baos);
-				oos.writeObject(data);
-				return baos.toByteArray();
-			} catch (IOException e) {
-				throw new ECFException(e);
+				ensureOpen();
+				sendChunk();
+
+				long position = fileChannel.position();
+				long size = fileChannel.size();
+				while (position < size) {
+					int n = (int) Math.min(STREAM_CHUNK_SIZE, size - position);
+					window.acquire(n);
+					start();
+					last = position + n == size;
+					send(receiver, new Object[] {
+							ByteBuffer.wrap(Util.putStreamHeader(
+									new byte[Util.STREAM_HEADER_LENGTH],
+									StreamFrame.DATA, streamId, n)),
+							new FileRegion(fileChannel, position, n, last) });
+					// the processing thread closes the file after the last
+					// region
+					handedOver = true;
+					position += n;
+				}
+			} finally {
+				if (!handedOver) {
+					Util.closeChannel(fileChannel);
+				} else if (!last) {
+					// have the file closed after the regions that were sent
+					send(receiver, new Object[] { new FileRegion(fileChannel,
+							0, 0, true) });
+				}
 			}
 		}
 
-		public ID getId() {
-			return fromId;
+		public synchronized void flush() throws IOException {
+			ensureOpen();
+			sendChunk();
 		}
 
-		public byte[] getData() {
-			return data;
+		public synchronized void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				sendChunk();
+				start();
+				sendFrame(StreamFrame.END);
+			} catch (IOException e) {
+				sendAbort();
+				throw e;
+			} finally {
+				outgoingStreams.remove(Integer.valueOf(streamId));
+			}
+		}
+
+		/**
+		 * Closes this stream without ending it, so that the receiver fails to
+		 * read the rest of it.
+		 */
+		synchronized void abort() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			outgoingStreams.remove(Integer.valueOf(streamId));
+			sendAbort();
 		}
 
 	}
@@ -13,16 +13,17 @@
 package org.eclipse.ecf.provider.datashare.nio;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.runtime.Assert;
@@ -97,10 +98,10 @@ public abstract class NIODatashareContainer implements IChannelContainerAdapter
 	private LinkedList pendingConnections;
 
 	/**
-	 * A list of socket channels that needs to be processed for handshaking with
-	 * the remote peer.
+	 * The selector of the connection thread, which multiplexes the sockets
+	 * that are connecting to and handshaking with remote peers.
 	 */
-	private List pendingSockets;
+	private Selector selector;
 
 	/**
 	 * A map of datashare channels owned by this container mapped by their ids.
@@ -149,7 +150,6 @@ public abstract class NIODatashareContainer implements IChannelContainerAdapter
 
 		channels = new HashMap();
 		pendingConnections = new LinkedList();
-		pendingSockets = new ArrayList();
 		listenerList = new ListenerList();
 	}
 
@@ -281,22 +281,16 @@ public abstract class NIODatashareContainer implements IChannelContainerAdapter
 	}
 
 	private void disconnect() {
-		if (connectionThread != null) {
-			connectionThread.interrupt();
-			connectionThread = null;
-		}
-		
 		synchronized (pendingConnections) {
-			pendingConnections.clear();
-		}
-		
-		synchronized (pendingSockets) {
-			for (int i = 0; i < pendingSockets.size(); i++) {
-				SocketChannel channel = (SocketChannel) pendingSockets.get(i);
-				Util.closeChannel(channel);
+			if (connectionThread != null) {
+				// the connection thread closes the sockets that are still
+				// pending when it stops
+				connectionThread.interrupt();
+				connectionThread = null;
+				selector = null;
 			}
-			
-			pendingSockets.clear();
+
+			pendingConnections.clear();
 		}
 
 		synchronized (channels) {
@@ -321,35 +315,43 @@ public abstract class NIODatashareContainer implements IChannelContainerAdapter
 	}
 
 	/**
-	 * Attempts to connect to a remote address that has been enqueued to this
+	 * Starts connecting to the remote addresses that have been enqueued to this
 	 * channel container for processing via the {@link #enqueue(SocketAddress)}
 	 * method.
 	 * 
-	 * @param buffer
-	 *            the buffer to use for reading and writing data
-	 * @throws IOException
-	 *             if an IO error occurs while attempting to contact the peer
+	 * @param selector
+	 *            the selector to register the sockets with
 	 */
-	private void connect(ByteBuffer buffer) throws IOException {
-		while (!pendingConnections.isEmpty()) {
-			// retrieve an IP address to connect to
-			SocketAddress remote = (SocketAddress) pendingConnections
-					.removeFirst();
-
-			// open a socket channel to the remote address
-			SocketChannel socketChannel = SocketChannel.open(remote);
-
-			byte[] bytes = Util.serialize(container.getConnectedID());
-			if (bytes == null) {
-				// serialization failed, close the socket
-				Util.closeChannel(socketChannel);
-				return;
-			}
-
-			socketChannel.configureBlocking(false);
-			Util.write(socketChannel, buffer, bytes);
+	private void connect(Selector selector) {
+		synchronized (pendingConnections) {
+			while (!pendingConnections.isEmpty()) {
+				// retrieve an IP address to connect to
+				SocketAddress remote = (SocketAddress) pendingConnections
+						.removeFirst();
 
-			pendingSockets.add(socketChannel);
+				SocketChannel socketChannel = null;
+				try {
+					// open a socket channel to the remote address
+					socketChannel = SocketChannel.open();
+					socketChannel.configureBlocking(false);
+
+					PendingSocket pendingSocket = new PendingSocket(
+							Util.serialize(container.getConnectedID()));
+					if (socketChannel.connect(remote)) {
+						send(socketChannel.register(selector,
+								SelectionKey.OP_WRITE, pendingSocket));
+					} else {
+						socketChannel.register(selector,
+								SelectionKey.OP_CONNECT, pendingSocket);
+					}
+				} catch (IOException e) {
+					log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
+							"Could not connect to " + remote, e)); //$NON-NLS-1$
+					if (socketChannel != null) {
+						Util.closeChannel(socketChannel);
+					}
+				}
+			}
 		}
 	}
 
@@ -364,39 +366,79 @@ public abstract class NIODatashareContainer implements IChannelContainerAdapter
 	public void enqueue(SocketAddress address) {
 		Assert.isNotNull(address, "Socket address cannot be null"); //$NON-NLS-1$
 
-		if (connectionThread == null) {
-			connectionThread = new Thread(new ConnectionRunnable(), getClass()
-					.getName()
-					+ "Thread-" + container.getID().toString()); //$NON-NLS-1$
-			connectionThread.start();
+		synchronized (pendingConnections) {
+			pendingConnections.add(address);
+
+			if (connectionThread == null) {
+				try {
+					selector = Selector.open();
+				} catch (IOException e) {
+					log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
+							"Could not open selector", e)); //$NON-NLS-1$
+					pendingConnections.clear();
+					return;
+				}
+
+				connectionThread = new Thread(
+						new ConnectionRunnable(selector), getClass().getName()
+								+ "Thread-" + container.getID().toString()); //$NON-NLS-1$
+				connectionThread.start();
+			} else {
+				selector.wakeup();
+			}
 		}
+	}
 
-		pendingConnections.add(address);
+	/**
+	 * Sends this container's id to the remote peer. Once it has been sent in
+	 * full, the peer's response is waited for.
+	 * 
+	 * @param key
+	 *            the selection key of the socket to the peer
+	 * @throws IOException
+	 *             if an IO error occurs while writing to the socket
+	 */
+	private void send(SelectionKey key) throws IOException {
+		PendingSocket pendingSocket = (PendingSocket) key.attachment();
+		((SocketChannel) key.channel()).write(pendingSocket.request);
+		key.interestOps(pendingSocket.request.hasRemaining() ? SelectionKey.OP_WRITE
+				: SelectionKey.OP_READ);
 	}
 
 	/**
-	 * Performs a handshake operation with the remote peer.
+	 * Performs a handshake operation with the remote peer once its response
+	 * has been received in full, and hands the socket over to the channel
+	 * that the peer responded for.
 	 * 
-	 * @param socketChannel
-	 *            the socket channel to handshake with
-	 * @param data
-	 *            the data sent from the channel thus far
+	 * @param key
+	 *            the selection key of the socket to handshake with
+	 * @return <code>true</code> if the handshake is complete,
+	 *         <code>false</code> if more of the response is to be received
 	 * @throws ClassNotFoundException
 	 *             if a deserialization error occurs
 	 * @throws IOException
 	 *             if an IO error occurs while reading or writing data
 	 */
-	private void handshake(SocketChannel socketChannel, ChannelData data)
+	private boolean handshake(SelectionKey key)
 			throws ClassNotFoundException, IOException {
-		// retrieve the data that was sent
-		byte[] message = data.getData();
+		SocketChannel socketChannel = (SocketChannel) key.channel();
+		PendingSocket pendingSocket = (PendingSocket) key.attachment();
 
-		// read in the response
-		ByteArrayInputStream bais = new ByteArrayInputStream(message);
-		ObjectInputStream ois = new ObjectInputStream(bais);
+		// retrieve the data that was sent thus far
+		byte[] message = pendingSocket.response.toByteArray();
 
+		// read in the response, each object is serialized separately
+		ByteArrayInputStream bais = new ByteArrayInputStream(message);
 		// first response should be the channel id
-		ID channelId = (ID) ois.readObject();
+		ID channelId = Util.readID(bais);
+		// next id is the id of the remote user
+		ID peerId = channelId == null ? null : Util.readID(bais);
+		if (peerId == null) {
+			return false;
+		}
+
+		// the socket is no longer ours to select
+		key.cancel();
 
 		synchronized (channels) {
 			// retrieve the channel that corresponds to that id
@@ -406,69 +448,60 @@ public abstract class NIODatashareContainer implements IChannelContainerAdapter
 				// socket
 				Util.closeChannel(socketChannel);
 			} else {
-				// open another ObjectInputStream because each object is
-				// serialized separately
-				ois = new ObjectInputStream(bais);
-
-				// next id is the id of the remote user
-				ID peerId = (ID) ois.readObject();
-
-				// store the peer id and the corresponding socket in the
-				// retrieved NIO channel
-				NIOChannel datashare = (NIOChannel) channel;
-				datashare.put(peerId, socketChannel);
-
-				// check if we have any bytes left to read
+				// if there are extra bytes that means this is data that the
+				// sender has sent to us, the channel must process these
+				// messages
+				byte[] received = null;
 				int available = bais.available();
 				if (available != 0) {
-					// if there are extra bytes that means this is data that
-					// the sender has sent to us, we must process these messages
-					byte[] received = new byte[available];
+					received = new byte[available];
 					// copy the remaining information
 					System.arraycopy(message, message.length - available,
 							received, 0, available);
-					// process the received data
-					datashare.processIncomingMessage(socketChannel, received);
 				}
+
+				// store the peer id and the corresponding socket in the
+				// retrieved NIO channel
+				NIOChannel datashare = (NIOChannel) channel;
+				datashare.put(peerId, socketChannel, received);
 			}
 		}
+		return true;
 	}
 
 	/**
-	 * Processes any pending sockets that are currently queued up in this
-	 * channel container and is waiting to initiate the handshake process with
-	 * the remote peer.
+	 * Processes a socket that is connecting to or handshaking with a remote
+	 * peer and is ready for the next step.
 	 * 
+	 * @param key
+	 *            the selection key of the socket
 	 * @param buffer
-	 *            the buffer to use for reading and writing data
+	 *            the buffer to use for reading data
 	 * @throws ClassNotFoundException
-	 *             if a serialization or deserialization operation encountered
-	 *             errors
+	 *             if a deserialization error occurs
 	 * @throws IOException
 	 *             if an IO error occurs while reading or writing data
 	 */
-	private void processPendingSockets(ByteBuffer buffer)
+	private void processPendingSocket(SelectionKey key, ByteBuffer buffer)
 			throws ClassNotFoundException, IOException {
-		for (int i = 0; i < pendingSockets.size(); i++) {
-			SocketChannel socketChannel = (SocketChannel) pendingSockets.get(i);
+		SocketChannel socketChannel = (SocketChannel) key.channel();
+		if (key.isConnectable()) {
+			socketChannel.finishConnect();
+			send(key);
+		} else if (key.isWritable()) {
+			send(key);
+		} else if (key.isReadable()) {
+			PendingSocket pendingSocket = (PendingSocket) key.attachment();
+			int read;
+			while ((read = socketChannel.read(buffer)) > 0) {
+				pendingSocket.response.write(buffer.array(), 0, read);
+				buffer.clear();
+			}
 
-			buffer.clear();
-			// read in the response
-			ChannelData data = Util.read(socketChannel, buffer);
-			if (!data.isOpen()) {
+			if (!handshake(key) && read == -1) {
 				// the channel isn't open, we should close it on our end also
+				key.cancel();
 				Util.closeChannel(socketChannel);
-				// remove this channel
-				pendingSockets.remove(i);
-				i--;
-			} else if (data.getData() != null) {
-				try {
-					handshake(socketChannel, data);
-				} finally {
-					// this socket has been processed, remove it
-					pendingSockets.remove(i);
-					i--;
-				}
 			}
 		}
 	}
@@ -577,40 +610,92 @@ public abstract class NIODatashareContainer implements IChannelContainerAdapter
 
 	private class ConnectionRunnable implements Runnable {
 
+		private final Selector selector;
+
+		ConnectionRunnable(Selector selector) {
+			this.selector = selector;
+		}
+
 		public void run() {
 			ByteBuffer buffer = ByteBuffer.allocate(1024);
-			while (true) {
-				try {
-					buffer.clear();
-
-					if (Thread.currentThread().isInterrupted()) {
-						return;
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					try {
+						connect(selector);
+
+						selector.select();
+
+						for (Iterator it = selector.selectedKeys().iterator(); it
+								.hasNext();) {
+							SelectionKey key = (SelectionKey) it.next();
+							it.remove();
+							if (!key.isValid()) {
+								continue;
+							}
+
+							try {
+								processPendingSocket(key, buffer);
+							} catch (ClassNotFoundException e) {
+								log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
+										"Could not deserialize", e)); //$NON-NLS-1$
+								key.cancel();
+								Util.closeChannel(key.channel());
+							} catch (IOException e) {
+								log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
+										"An IO error occurred", e)); //$NON-NLS-1$
+								key.cancel();
+								Util.closeChannel(key.channel());
+							} finally {
+								buffer.clear();
+							}
+						}
+					} catch (IOException e) {
+						log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
+								"An IO error occurred", e)); //$NON-NLS-1$
+					} catch (RuntimeException e) {
+						log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
+								"A runtime error occurred", e)); //$NON-NLS-1$
 					}
-
-					synchronized (pendingConnections) {
-						if (!pendingConnections.isEmpty()) {
-							connect(buffer);
-						}	
+				}
+			} catch (ClosedSelectorException e) {
+				// ignored
+			} finally {
+				// close the sockets that have not been handed over to a channel
+				for (Iterator it = selector.keys().iterator(); it.hasNext();) {
+					SelectionKey key = (SelectionKey) it.next();
+					if (key.isValid()) {
+						Util.closeChannel(key.channel());
 					}
+				}
 
-					processPendingSockets(buffer);
-
-					Thread.sleep(50);
-				} catch (InterruptedException e) {
-					Thread.interrupted();
-					return;
-				} catch (ClassNotFoundException e) {
-					log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
-							"Could not deserialize", e)); //$NON-NLS-1$
+				try {
+					selector.close();
 				} catch (IOException e) {
-					log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
-							"An IO error occurred", e)); //$NON-NLS-1$
-				} catch (RuntimeException e) {
-					log(new Status(IStatus.ERROR, Util.PLUGIN_ID,
-							"A runtime error occurred", e)); //$NON-NLS-1$
+					// ignored
 				}
 			}
 		}
 	}
 
+	/**
+	 * A socket that is connecting to or handshaking with a remote peer.
+	 */
+	private static final class PendingSocket {
+
+		/**
+		 * The serialized id of this container that is sent to the peer.
+		 */
+		private final ByteBuffer request;
+
+		/**
+		 * The response that has been received from the peer so far.
+		 */
+		private final ByteArrayOutputStream response = new ByteArrayOutputStream();
+
+		PendingSocket(byte[] request) {
+			this.request = ByteBuffer.wrap(request);
+		}
+
+	}
+
 }
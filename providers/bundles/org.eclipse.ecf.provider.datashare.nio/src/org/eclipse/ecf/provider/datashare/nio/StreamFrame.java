@@ -0,0 +1,97 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.datashare.nio;
+
+/**
+ * A frame of a stream sent through an {@link NIOChannel}. Stream frames are
+ * interleaved with the messages of the channel, and are told apart from them
+ * by their first byte, which is never the first byte of a serialized message.
+ */
+final class StreamFrame {
+
+	/**
+	 * A chunk of the data of a stream, sent by the sender.
+	 */
+	static final byte DATA = 1;
+
+	/**
+	 * The end of a stream, sent by the sender.
+	 */
+	static final byte END = 2;
+
+	/**
+	 * The number of bytes of a stream that the receiver has read, sent by the
+	 * receiver.
+	 */
+	static final byte CREDIT = 3;
+
+	/**
+	 * The cancellation of a stream, sent by the receiver.
+	 */
+	static final byte CANCEL = 4;
+
+	/**
+	 * The failure of a stream before its end, sent by the sender.
+	 */
+	static final byte ABORT = 5;
+
+	/**
+	 * The beginning of a stream, sent by the sender before any other frame of
+	 * it. Frames of streams that the receiver does not know of, because they
+	 * have been cancelled or have failed, are dropped.
+	 */
+	static final byte START = 6;
+
+	private final byte type;
+	private final int streamId;
+	private final int value;
+	private final byte[] data;
+
+	StreamFrame(byte type, int streamId, int value, byte[] data) {
+		this.type = type;
+		this.streamId = streamId;
+		this.value = value;
+		this.data = data;
+	}
+
+	static boolean isStreamFrame(byte type) {
+		return type >= DATA && type <= START;
+	}
+
+	public byte getType() {
+		return type;
+	}
+
+	public int getStreamId() {
+		return streamId;
+	}
+
+	/**
+	 * Returns the credit of a CREDIT frame.
+	 * 
+	 * @return the number of bytes read
+	 */
+	public int getCredit() {
+		return value;
+	}
+
+	/**
+	 * Returns the data of a DATA frame.
+	 * 
+	 * @return the data, <code>null</code> for other frames
+	 */
+	public byte[] getData() {
+		return data;
+	}
+
+}
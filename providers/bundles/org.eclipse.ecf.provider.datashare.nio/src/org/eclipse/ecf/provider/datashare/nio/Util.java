@@ -12,13 +12,15 @@
  *****************************************************************************/
 package org.eclipse.ecf.provider.datashare.nio;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.nio.ByteBuffer;
+import java.io.StreamCorruptedException;
 import java.nio.channels.Channel;
-import java.nio.channels.ReadableByteChannel;
-import java.nio.channels.WritableByteChannel;
+import java.util.List;
 
 import org.eclipse.ecf.core.identity.ID;
 
@@ -43,86 +45,212 @@ final class Util {
 	}
 
 	/**
-	 * Reads messages from the channel and returns the data, if any.
-	 * 
-	 * @param channel
-	 *            the channel to read the messages from
-	 * @param buffer
-	 *            the buffer to use for reading the data into
-	 * @return the data from the channel and information about the channel, will
-	 *         not be <code>null</code>
-	 * @throws IOException
+	 * The length of the header of a stream frame: its type, the id of the
+	 * stream, and the length of the data or the credit of the frame.
 	 */
-	static ChannelData read(ReadableByteChannel channel, ByteBuffer buffer)
-			throws IOException {
-		// check how much data has been read
-		int read = channel.read(buffer);
-		if (read == -1) {
-			return new ChannelData(null, false);
-		} else if (read == 0) {
-			return new ChannelData(null, true);
-		}
+	static final int STREAM_HEADER_LENGTH = 9;
 
-		// the read data
-		byte[] message = new byte[read];
-
-		// retrieve the contents from the buffer
-		buffer.flip();
-		buffer.get(message, 0, read);
-		buffer.clear();
+	/**
+	 * The bytes that an <code>ObjectOutputStream</code> writes ahead of the
+	 * length of a serialized byte[] when it is the first object of the stream.
+	 * Every message on the wire is a byte[] serialized in this way.
+	 */
+	private static final byte[] MESSAGE_HEADER = createMessageHeader();
 
-		// try reading more data
-		read = channel.read(buffer);
+	private static byte[] createMessageHeader() {
+		try {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(baos);
+			oos.writeObject(new byte[0]);
+			oos.flush();
+			byte[] bytes = baos.toByteArray();
+			// drop the length of the array
+			byte[] header = new byte[bytes.length - 4];
+			System.arraycopy(bytes, 0, header, 0, header.length);
+			return header;
+		} catch (IOException e) {
+			// cannot happen with a ByteArrayOutputStream
+			throw new IllegalStateException(e.getMessage());
+		}
+	}
 
-		while (read > 0) {
-			// create a temporary array, copy what's been read so far
-			byte[] temp = new byte[read + message.length];
-			System.arraycopy(message, 0, temp, 0, message.length);
+	/**
+	 * Frames the data into the bytes that are to be sent to a remote peer.
+	 * The result is the same as serializing the data with a new
+	 * <code>ObjectOutputStream</code>, without the cost of one.
+	 * 
+	 * @param data
+	 *            the data to frame
+	 * @return the framed data
+	 */
+	static byte[] frame(byte[] data) {
+		byte[] bytes = new byte[MESSAGE_HEADER.length + 4 + data.length];
+		System.arraycopy(MESSAGE_HEADER, 0, bytes, 0, MESSAGE_HEADER.length);
+		int offset = MESSAGE_HEADER.length;
+		putInt(bytes, offset, data.length);
+		System.arraycopy(data, 0, bytes, offset + 4, data.length);
+		return bytes;
+	}
 
-			// retrieve the contents from the buffer
-			buffer.flip();
-			buffer.get(temp, message.length, read);
-			buffer.clear();
+	/**
+	 * Writes the header of a stream frame into the given array.
+	 * 
+	 * @param bytes
+	 *            the array to write the header to, at offset zero
+	 * @param type
+	 *            the type of the frame
+	 * @param streamId
+	 *            the id of the stream
+	 * @param value
+	 *            the length of the data of the frame, or its credit
+	 * @return the array
+	 */
+	static byte[] putStreamHeader(byte[] bytes, byte type, int streamId,
+			int value) {
+		bytes[0] = type;
+		putInt(bytes, 1, streamId);
+		putInt(bytes, 5, value);
+		return bytes;
+	}
 
-			// assign the temporary array back to the primary
-			message = temp;
+	private static void putInt(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
 
-			// try reading more data
-			read = channel.read(buffer);
-		}
-		// if we didn't read zero bytes that'd imply we've reached end-of-stream
-		return new ChannelData(message, read == 0);
+	private static int getInt(byte[] bytes, int offset) {
+		return ((bytes[offset] & 0xff) << 24)
+				| ((bytes[offset + 1] & 0xff) << 16)
+				| ((bytes[offset + 2] & 0xff) << 8)
+				| (bytes[offset + 3] & 0xff);
 	}
 
-	static void write(WritableByteChannel channel, ByteBuffer buffer,
-			byte[] data) throws IOException {
-		buffer.clear();
-
-		int remaining = data.length;
-		int limit = buffer.limit();
-		if (remaining < limit) {
-			buffer.put(data);
-			buffer.flip();
-			channel.write(buffer);
-			buffer.clear();
-			return;
-		}
+	/**
+	 * Reads the framed messages and stream frames out of the data that has
+	 * been received from a remote peer so far. A message or frame that has not
+	 * been received in full is left for the next call.
+	 * 
+	 * @param bytes
+	 *            the data received so far
+	 * @param offset
+	 *            the offset of the first message in the data
+	 * @param count
+	 *            the number of bytes that have been received
+	 * @param messages
+	 *            the list to add the messages, as byte[]s, and the
+	 *            {@link StreamFrame}s to
+	 * @return the number of bytes of the complete messages that were read
+	 * @throws ClassNotFoundException
+	 *             if a message could not be deserialized
+	 * @throws IOException
+	 *             if the data is corrupt
+	 */
+	static int readMessages(byte[] bytes, int offset, int count, List messages)
+			throws ClassNotFoundException, IOException {
+		int consumed = 0;
+		while (consumed < count) {
+			int start = offset + consumed;
+			int available = count - consumed;
 
-		int offset = 0;
-		while (remaining > limit) {
-			buffer.put(data, offset, limit);
-			buffer.flip();
-			channel.write(buffer);
-			buffer.clear();
+			if (StreamFrame.isStreamFrame(bytes[start])) {
+				if (available < STREAM_HEADER_LENGTH) {
+					return consumed;
+				}
+				byte type = bytes[start];
+				int streamId = getInt(bytes, start + 1);
+				int value = getInt(bytes, start + 5);
+				byte[] data = null;
+				int size = STREAM_HEADER_LENGTH;
+				if (type == StreamFrame.DATA) {
+					if (value < 0) {
+						throw new StreamCorruptedException(
+								"Invalid frame length: " + value); //$NON-NLS-1$
+					}
+					size += value;
+					if (available < size) {
+						return consumed;
+					}
+					data = new byte[value];
+					System.arraycopy(bytes, start + STREAM_HEADER_LENGTH, data,
+							0, value);
+				}
+				messages.add(new StreamFrame(type, streamId, value, data));
+				consumed += size;
+				continue;
+			}
 
-			offset += limit;
-			remaining -= limit;
+			int header = Math.min(available, MESSAGE_HEADER.length);
+			boolean framed = true;
+			for (int i = 0; i < header; i++) {
+				if (bytes[start + i] != MESSAGE_HEADER[i]) {
+					framed = false;
+					break;
+				}
+			}
+
+			if (framed) {
+				if (available < MESSAGE_HEADER.length + 4) {
+					return consumed;
+				}
+				int position = start + MESSAGE_HEADER.length;
+				int length = getInt(bytes, position);
+				if (length < 0) {
+					throw new StreamCorruptedException(
+							"Invalid message length: " + length); //$NON-NLS-1$
+				}
+				int size = MESSAGE_HEADER.length + 4 + length;
+				if (available < size) {
+					return consumed;
+				}
+				byte[] message = new byte[length];
+				System.arraycopy(bytes, position + 4, message, 0, length);
+				messages.add(message);
+				consumed += size;
+			} else {
+				// not serialized as expected, so deserialize it to find out
+				// where it ends
+				ByteArrayInputStream bais = new ByteArrayInputStream(bytes,
+						start, available);
+				try {
+					messages.add((byte[]) new ObjectInputStream(bais)
+							.readObject());
+				} catch (EOFException e) {
+					return consumed;
+				} catch (ClassCastException e) {
+					throw new StreamCorruptedException(e.getMessage());
+				}
+				consumed += available - bais.available();
+			}
 		}
+		return consumed;
+	}
 
-		buffer.put(data, offset, remaining);
-		buffer.flip();
-		channel.write(buffer);
-		buffer.clear();
+	/**
+	 * Deserializes an ID from the data that has been received from a remote
+	 * peer so far.
+	 * 
+	 * @param bais
+	 *            the data received so far, positioned at the start of the ID
+	 * @return the deserialized ID, or <code>null</code> if it has not been
+	 *         received in full
+	 * @throws ClassNotFoundException
+	 *             if the ID could not be deserialized
+	 * @throws IOException
+	 *             if the data is corrupt or not an ID
+	 */
+	static ID readID(ByteArrayInputStream bais)
+			throws ClassNotFoundException, IOException {
+		try {
+			Object object = new ObjectInputStream(bais).readObject();
+			if (object instanceof ID) {
+				return (ID) object;
+			}
+			throw new StreamCorruptedException("Expected an ID: " + object); //$NON-NLS-1$
+		} catch (EOFException e) {
+			return null;
+		}
 	}
 
 }
@@ -12,8 +12,11 @@
  *****************************************************************************/
 package org.eclipse.ecf.provider.datashare;
 
-import java.io.Serializable;
-import java.util.Map;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.eclipse.ecf.core.events.IContainerConnectedEvent;
 import org.eclipse.ecf.core.events.IContainerDisconnectedEvent;
 import org.eclipse.ecf.core.identity.ID;
@@ -22,12 +25,20 @@ import org.eclipse.ecf.core.sharedobject.events.ISharedObjectMessageEvent;
 import org.eclipse.ecf.core.util.*;
 import org.eclipse.ecf.datashare.*;
 import org.eclipse.ecf.datashare.events.*;
+import org.eclipse.ecf.internal.datashare.ChannelInputStream;
+import org.eclipse.ecf.internal.datashare.ChannelStreamWindow;
 import org.eclipse.ecf.internal.provider.datashare.Activator;
 
-public class BaseChannel extends TransactionSharedObject implements IChannel {
+public class BaseChannel extends TransactionSharedObject implements IChannel, IStreamChannel {
 
 	public static final String RECEIVER_ID_PROPERTY = BaseChannel.class.getName();
 
+	// The size of the chunks that streams are sent in
+	private static final int STREAM_CHUNK_SIZE = Integer.getInteger("org.eclipse.ecf.provider.datashare.streamChunkSize", 64 * 1024).intValue(); //$NON-NLS-1$
+
+	// The number of bytes of a stream that may be sent before the receiver has read them
+	private static final int STREAM_WINDOW_SIZE = Math.max(STREAM_CHUNK_SIZE, Integer.getInteger("org.eclipse.ecf.provider.datashare.streamWindowSize", 1024 * 1024).intValue()); //$NON-NLS-1$
+
 	static class ChannelMsg implements Serializable {
 		private static final long serialVersionUID = 9065358269778864152L;
 		byte[] channelData = null;
@@ -51,8 +62,170 @@ public class BaseChannel extends TransactionSharedObject implements IChannel {
 		}
 	}
 
+	static class ChannelStreamMsg implements Serializable {
+		private static final long serialVersionUID = -2440390434542964391L;
+		int streamId;
+		// null if the sender aborted the stream
+		byte[] data;
+		// true for the message that begins the stream
+		boolean first;
+		boolean last;
+
+		ChannelStreamMsg(int streamId, byte[] data, boolean first, boolean last) {
+			this.streamId = streamId;
+			this.data = data;
+			this.first = first;
+			this.last = last;
+		}
+
+		public String toString() {
+			StringBuffer buf = new StringBuffer("BaseChannel.ChannelStreamMsg["); //$NON-NLS-1$
+			buf.append("streamId=").append(streamId).append(";length=").append(data == null ? -1 : data.length).append(";first=").append(first).append(";last=").append(last).append("]"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+			return buf.toString();
+		}
+	}
+
+	static class ChannelStreamCreditMsg implements Serializable {
+		private static final long serialVersionUID = 3962146125541203722L;
+		int streamId;
+		// Bytes read by the receiver, or -1 if the receiver cancelled the stream
+		int credit;
+
+		ChannelStreamCreditMsg(int streamId, int credit) {
+			this.streamId = streamId;
+			this.credit = credit;
+		}
+
+		public String toString() {
+			StringBuffer buf = new StringBuffer("BaseChannel.ChannelStreamCreditMsg["); //$NON-NLS-1$
+			buf.append("streamId=").append(streamId).append(";credit=").append(credit).append("]"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			return buf.toString();
+		}
+	}
+
+	/**
+	 * Stream to a remote instance of this channel, sent in chunks of
+	 * STREAM_CHUNK_SIZE within a window of STREAM_WINDOW_SIZE.
+	 */
+	class ChannelOutputStream extends OutputStream {
+		final ID receiver;
+		final int streamId;
+		final ChannelStreamWindow window = new ChannelStreamWindow(STREAM_WINDOW_SIZE);
+		private final byte[] buffer = new byte[STREAM_CHUNK_SIZE];
+		private int count;
+		private boolean started;
+		private boolean closed;
+
+		ChannelOutputStream(ID receiver, int streamId) {
+			this.receiver = receiver;
+			this.streamId = streamId;
+		}
+
+		private void ensureOpen() throws IOException {
+			if (closed)
+				throw new IOException("Stream closed"); //$NON-NLS-1$
+		}
+
+		private void sendChunk(boolean last) throws IOException {
+			window.acquire(count);
+			final byte[] data = new byte[count];
+			System.arraycopy(buffer, 0, data, 0, count);
+			count = 0;
+			final boolean first = !started;
+			started = true;
+			getContext().sendMessage(receiver, new ChannelStreamMsg(streamId, data, first, last));
+		}
+
+		public synchronized void write(int b) throws IOException {
+			ensureOpen();
+			buffer[count++] = (byte) b;
+			if (count == buffer.length)
+				sendChunk(false);
+		}
+
+		public synchronized void write(byte[] b, int off, int len) throws IOException {
+			ensureOpen();
+			while (len > 0) {
+				final int n = Math.min(len, buffer.length - count);
+				System.arraycopy(b, off, buffer, count, n);
+				count += n;
+				off += n;
+				len -= n;
+				if (count == buffer.length)
+					sendChunk(false);
+			}
+		}
+
+		/**
+		 * Read the rest of the given file channel directly into the chunks of
+		 * this stream.
+		 */
+		synchronized void transferFrom(FileChannel fileChannel) throws IOException {
+			ensureOpen();
+			while (true) {
+				final int read = fileChannel.read(ByteBuffer.wrap(buffer, count, buffer.length - count));
+				if (read == -1)
+					return;
+				count += read;
+				if (count == buffer.length)
+					sendChunk(false);
+			}
+		}
+
+		public synchronized void flush() throws IOException {
+			ensureOpen();
+			if (count > 0)
+				sendChunk(false);
+		}
+
+		public synchronized void close() throws IOException {
+			if (closed)
+				return;
+			closed = true;
+			try {
+				sendChunk(true);
+			} catch (IOException e) {
+				sendAbort();
+				throw e;
+			} finally {
+				outgoingStreams.remove(Integer.valueOf(streamId));
+			}
+		}
+
+		/**
+		 * Close this stream without ending it, so that the receiver fails to
+		 * read the rest of it.
+		 */
+		synchronized void abort() {
+			if (closed)
+				return;
+			closed = true;
+			outgoingStreams.remove(Integer.valueOf(streamId));
+			sendAbort();
+		}
+
+		private void sendAbort() {
+			// The receiver does not know of a stream that has not begun
+			if (!started)
+				return;
+			try {
+				getContext().sendMessage(receiver, new ChannelStreamMsg(streamId, null, false, true));
+			} catch (IOException e) {
+				// the receiver fails when it is disconnected
+			}
+		}
+	}
+
 	protected IChannelListener listener;
 
+	private final AtomicInteger nextStreamId = new AtomicInteger();
+
+	// key: Integer stream id, value: ChannelOutputStream
+	private final Map outgoingStreams = Collections.synchronizedMap(new HashMap());
+
+	// key: List of sender ID and Integer stream id, value: ChannelInputStream
+	private final Map incomingStreams = Collections.synchronizedMap(new HashMap());
+
 	/**
 	 * Primary copy implementation of channel class constructor
 	 * 
@@ -107,6 +280,7 @@ public class BaseChannel extends TransactionSharedObject implements IChannel {
 					if (l != null)
 						l.handleChannelEvent(createChannelGroupJoinEvent(true, ((IContainerConnectedEvent) event).getTargetID()));
 				} else if (event instanceof IContainerDisconnectedEvent) {
+					failStreams(((IContainerDisconnectedEvent) event).getTargetID());
 					if (l != null)
 						l.handleChannelEvent(createChannelGroupDepartEvent(true, ((IContainerDisconnectedEvent) event).getTargetID()));
 				} else if (event instanceof ISharedObjectMessageEvent) {
@@ -123,7 +297,7 @@ public class BaseChannel extends TransactionSharedObject implements IChannel {
 	 * Override of TransactionSharedObject.getAdapter()
 	 */
 	public Object getAdapter(Class clazz) {
-		if (clazz.equals(IChannel.class)) {
+		if (clazz.equals(IChannel.class) || clazz.equals(IStreamChannel.class)) {
 			return this;
 		}
 		return super.getAdapter(clazz);
@@ -169,7 +343,13 @@ public class BaseChannel extends TransactionSharedObject implements IChannel {
 		Object eventData = event.getData();
 		ChannelMsg channelMsg = null;
 		IChannelListener l = getListener();
-		if (eventData instanceof ChannelMsg) {
+		if (eventData instanceof ChannelStreamMsg) {
+			handleStreamMsg(event.getRemoteContainerID(), (ChannelStreamMsg) eventData, l);
+			return null;
+		} else if (eventData instanceof ChannelStreamCreditMsg) {
+			handleStreamCreditMsg(event.getRemoteContainerID(), (ChannelStreamCreditMsg) eventData);
+			return null;
+		} else if (eventData instanceof ChannelMsg) {
 			channelMsg = (ChannelMsg) eventData;
 			final byte[] channelData = channelMsg.getData();
 			if (channelData != null) {
@@ -201,6 +381,170 @@ public class BaseChannel extends TransactionSharedObject implements IChannel {
 		return event;
 	}
 
+	void handleStreamMsg(final ID fromID, ChannelStreamMsg msg, IChannelListener l) {
+		final int streamId = msg.streamId;
+		final List key = Arrays.asList(new Object[] {fromID, Integer.valueOf(streamId)});
+		ChannelInputStream stream = (ChannelInputStream) incomingStreams.get(key);
+		if (stream == null) {
+			// Chunks that were in flight when the stream was cancelled, or when it failed
+			if (!msg.first)
+				return;
+			stream = new ChannelInputStream(STREAM_WINDOW_SIZE / 4) {
+				protected void consumed(int count) {
+					sendStreamCredit(fromID, streamId, count);
+				}
+
+				protected void cancelled() {
+					// The sender stops sending, so no end of the stream will remove it
+					incomingStreams.remove(key);
+					sendStreamCredit(fromID, streamId, -1);
+				}
+			};
+			incomingStreams.put(key, stream);
+			if (l == null)
+				// Nobody to read it
+				stream.close();
+			else
+				fireStreamEvent(l, fromID, stream);
+		}
+		if (msg.data == null) {
+			incomingStreams.remove(key);
+			stream.fail(new IOException("Stream aborted by sender " + fromID)); //$NON-NLS-1$
+			return;
+		}
+		if (msg.last)
+			incomingStreams.remove(key);
+		stream.receive(msg.data);
+		if (msg.last)
+			stream.end();
+	}
+
+	void handleStreamCreditMsg(ID fromID, ChannelStreamCreditMsg msg) {
+		final ChannelOutputStream stream = (ChannelOutputStream) outgoingStreams.get(Integer.valueOf(msg.streamId));
+		if (stream == null || !stream.receiver.equals(fromID))
+			return;
+		if (msg.credit < 0) {
+			outgoingStreams.remove(Integer.valueOf(msg.streamId));
+			stream.window.fail(new IOException("Stream cancelled by receiver " + fromID)); //$NON-NLS-1$
+		} else
+			stream.window.release(msg.credit);
+	}
+
+	void sendStreamCredit(ID toID, int streamId, int credit) {
+		try {
+			getContext().sendMessage(toID, new ChannelStreamCreditMsg(streamId, credit));
+		} catch (IOException e) {
+			trace("sendStreamCredit(" + toID + "," + streamId + ") failed: " + e); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
+	void fireStreamEvent(final IChannelListener l, final ID fromID, final ChannelInputStream stream) {
+		final IChannelStreamEvent streamEvent = new IChannelStreamEvent() {
+			public ID getFromContainerID() {
+				return fromID;
+			}
+
+			public InputStream getInputStream() {
+				return stream;
+			}
+
+			public ID getChannelID() {
+				return getID();
+			}
+
+			public String toString() {
+				StringBuffer buf = new StringBuffer("ChannelStreamEvent["); //$NON-NLS-1$
+				buf.append("channelid=").append(getChannelID()).append(";fromid=").append(getFromContainerID()).append("]"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				return buf.toString();
+			}
+		};
+		// The listener may read the stream to its end, while the chunks are
+		// received on the thread of this shared object
+		final Thread thread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					l.handleChannelEvent(streamEvent);
+				} catch (RuntimeException e) {
+					trace("handleChannelEvent(" + streamEvent + ") failed: " + e); //$NON-NLS-1$ //$NON-NLS-2$
+					stream.close();
+				}
+			}
+		}, "BaseChannel stream " + getID()); //$NON-NLS-1$
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Fail the streams from and to the given container, or all streams if it
+	 * is the local container.
+	 */
+	void failStreams(ID containerID) {
+		final boolean all = containerID == null || containerID.equals(getLocalContainerID());
+		final IOException exception = new IOException("Disconnected from " + containerID); //$NON-NLS-1$
+		synchronized (incomingStreams) {
+			for (final Iterator i = incomingStreams.entrySet().iterator(); i.hasNext();) {
+				final Map.Entry entry = (Map.Entry) i.next();
+				if (all || containerID.equals(((List) entry.getKey()).get(0))) {
+					((ChannelInputStream) entry.getValue()).fail(exception);
+					i.remove();
+				}
+			}
+		}
+		synchronized (outgoingStreams) {
+			for (final Iterator i = outgoingStreams.values().iterator(); i.hasNext();) {
+				final ChannelOutputStream stream = (ChannelOutputStream) i.next();
+				if (all || containerID.equals(stream.receiver)) {
+					stream.window.fail(exception);
+					i.remove();
+				}
+			}
+		}
+	}
+
+	// Implementation of org.eclipse.ecf.datashare.IStreamChannel
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.ecf.datashare.IStreamChannel#sendStream(org.eclipse.ecf.core.identity.ID)
+	 */
+	public OutputStream sendStream(ID receiver) throws ECFException {
+		if (receiver == null)
+			throw new ECFException("A receiver must be specified for a stream"); //$NON-NLS-1$
+		final int streamId = nextStreamId.incrementAndGet();
+		final ChannelOutputStream stream = new ChannelOutputStream(receiver, streamId);
+		outgoingStreams.put(Integer.valueOf(streamId), stream);
+		return stream;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.ecf.datashare.IStreamChannel#sendFile(org.eclipse.ecf.core.identity.ID,
+	 *      java.io.File)
+	 */
+	public void sendFile(ID receiver, File file) throws ECFException {
+		if (file == null)
+			throw new ECFException("A file must be specified"); //$NON-NLS-1$
+		final ChannelOutputStream stream = (ChannelOutputStream) sendStream(receiver);
+		FileInputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			stream.transferFrom(in.getChannel());
+			stream.close();
+		} catch (IOException e) {
+			stream.abort();
+			throw new ECFException("send file exception", e); //$NON-NLS-1$
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
 	// Implementation of org.eclipse.ecf.datashare.IChannel
 	/*
 	 * (non-Javadoc)
@@ -327,6 +671,7 @@ public class BaseChannel extends TransactionSharedObject implements IChannel {
 	 * @see org.eclipse.ecf.datashare.IAbstractChannel#dispose()
 	 */
 	public void dispose() {
+		failStreams(null);
 		destroySelfLocal();
 	}
 }
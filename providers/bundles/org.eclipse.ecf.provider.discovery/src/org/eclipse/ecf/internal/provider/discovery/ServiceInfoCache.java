@@ -0,0 +1,182 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.internal.provider.discovery;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.discovery.IServiceInfo;
+import org.eclipse.ecf.discovery.identity.IServiceID;
+
+/**
+ * The services discovered by the providers of a composite discovery
+ * container, by provider. The cache is kept up to date with the discovery
+ * events of the providers. It is only used to answer queries once it has
+ * been primed with the services of all providers, and for at most the cache
+ * timeout after that, so that services a provider did not send events for
+ * are not missed for long.
+ */
+public class ServiceInfoCache {
+
+	// key: container ID, value: map of IServiceID to IServiceInfo
+	private final ConcurrentHashMap services = new ConcurrentHashMap();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private volatile long timeout;
+	private volatile boolean primed;
+	private volatile long primedAt;
+	// Incremented on invalidate(), so that a priming that overlapped it is
+	// ignored. Guarded by this.
+	private volatile int generation;
+
+	/**
+	 * @param timeout
+	 *            how long the cache answers queries after it has been
+	 *            primed, in milliseconds. <code>0</code> disables the cache.
+	 */
+	public ServiceInfoCache(long timeout) {
+		this.timeout = timeout;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+		if (timeout <= 0) {
+			invalidate();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if queries can be answered from the cache
+	 */
+	public boolean isValid() {
+		final long t = timeout;
+		return t > 0 && primed && System.nanoTime() - primedAt < TimeUnit.MILLISECONDS.toNanos(t);
+	}
+
+	public void hit() {
+		hits.incrementAndGet();
+	}
+
+	public void miss() {
+		misses.incrementAndGet();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the generation to pass to {@link #prime(int)} once all
+	 *         providers have answered
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Marks the cache as holding the services of all providers, unless it has
+	 * been invalidated since the given generation.
+	 */
+	public synchronized void prime(int gen) {
+		if (timeout > 0 && gen == generation) {
+			primedAt = System.nanoTime();
+			primed = true;
+		}
+	}
+
+	/**
+	 * Stops answering queries from the cache until it is primed again, such
+	 * as when providers are added or removed.
+	 */
+	public synchronized void invalidate() {
+		generation++;
+		primed = false;
+	}
+
+	public void clear() {
+		invalidate();
+		services.clear();
+	}
+
+	private Map getServices(ID containerID, boolean create) {
+		Map map = (Map) services.get(containerID);
+		if (map == null && create) {
+			map = new ConcurrentHashMap();
+			final Map existing = (Map) services.putIfAbsent(containerID, map);
+			if (existing != null) {
+				map = existing;
+			}
+		}
+		return map;
+	}
+
+	public void put(ID containerID, IServiceInfo serviceInfo) {
+		if (timeout > 0) {
+			getServices(containerID, true).put(serviceInfo.getServiceID(), serviceInfo);
+		}
+	}
+
+	public void remove(ID containerID, IServiceInfo serviceInfo) {
+		final Map map = getServices(containerID, false);
+		if (map != null) {
+			map.remove(serviceInfo.getServiceID());
+		}
+	}
+
+	/**
+	 * Replaces the services of a provider with those it answered to a query
+	 * for all services.
+	 */
+	public void replace(ID containerID, IServiceInfo[] serviceInfos) {
+		if (timeout <= 0) {
+			return;
+		}
+		final Map map = new ConcurrentHashMap();
+		for (int i = 0; i < serviceInfos.length; i++) {
+			map.put(serviceInfos[i].getServiceID(), serviceInfos[i]);
+		}
+		services.put(containerID, map);
+	}
+
+	public void removeContainer(ID containerID) {
+		services.remove(containerID);
+	}
+
+	/**
+	 * @return the services of the given provider
+	 */
+	public Collection get(ID containerID) {
+		final Map map = getServices(containerID, false);
+		return (map == null) ? Collections.EMPTY_LIST : map.values();
+	}
+
+	/**
+	 * @return the given service of the given provider, or <code>null</code>
+	 */
+	public IServiceInfo get(ID containerID, IServiceID serviceID) {
+		final Map map = getServices(containerID, false);
+		return (map == null) ? null : (IServiceInfo) map.get(serviceID);
+	}
+}
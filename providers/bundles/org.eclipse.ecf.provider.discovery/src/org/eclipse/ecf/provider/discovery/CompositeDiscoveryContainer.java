@@ -14,6 +14,7 @@ package org.eclipse.ecf.provider.discovery;
 
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.*;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.ecf.core.ContainerConnectException;
 import org.eclipse.ecf.core.IContainer;
@@ -25,8 +26,10 @@ import org.eclipse.ecf.core.util.Trace;
 import org.eclipse.ecf.discovery.*;
 import org.eclipse.ecf.discovery.identity.*;
 import org.eclipse.ecf.discovery.service.IDiscoveryService;
+import org.eclipse.ecf.internal.discovery.ServiceTypeComparator;
 import org.eclipse.ecf.internal.provider.discovery.Activator;
 import org.eclipse.ecf.internal.provider.discovery.CompositeNamespace;
+import org.eclipse.ecf.internal.provider.discovery.ServiceInfoCache;
 
 public class CompositeDiscoveryContainer extends AbstractDiscoveryContainerAdapter implements IDiscoveryService {
 
@@ -38,6 +41,7 @@ public class CompositeDiscoveryContainer extends AbstractDiscoveryContainerAdapt
 		 * @see org.eclipse.ecf.discovery.IServiceListener#serviceDiscovered(org.eclipse.ecf.discovery.IServiceEvent)
 		 */
 		public void serviceDiscovered(final IServiceEvent event) {
+			cache.put(event.getLocalContainerID(), event.getServiceInfo());
 			final Collection col = getListeners(event.getServiceInfo().getServiceID().getServiceTypeID());
 			if (!col.isEmpty()) {
 				for (final Iterator itr = col.iterator(); itr.hasNext();) {
@@ -58,6 +62,7 @@ public class CompositeDiscoveryContainer extends AbstractDiscoveryContainerAdapt
 		 * @see org.eclipse.ecf.discovery.IServiceListener#serviceUndiscovered(org.eclipse.ecf.discovery.IServiceEvent)
 		 */
 		public void serviceUndiscovered(final IServiceEvent event) {
+			cache.remove(event.getLocalContainerID(), event.getServiceInfo());
 			final Collection col = getListeners(event.getServiceInfo().getServiceID().getServiceTypeID());
 			if (!col.isEmpty()) {
 				for (final Iterator itr = col.iterator(); itr.hasNext();) {
@@ -133,6 +138,98 @@ public class CompositeDiscoveryContainer extends AbstractDiscoveryContainerAdapt
 
 	private ID targetID;
 
+	/**
+	 * System property for how long queries wait for each provider, in
+	 * milliseconds. Providers that have not answered by then are left out of
+	 * the result. The default is 5000.
+	 * 
+	 * @since 3.2
+	 */
+	public static final String PROVIDER_TIMEOUT_PROP = "org.eclipse.ecf.provider.discovery.providerTimeout"; //$NON-NLS-1$
+
+	/**
+	 * System property for how long queries are answered from the cache of
+	 * discovered services once all providers have answered a query for all
+	 * services, in milliseconds. <code>0</code> disables the cache. The
+	 * default is 30000.
+	 * 
+	 * @since 3.2
+	 */
+	public static final String CACHE_TIMEOUT_PROP = "org.eclipse.ecf.provider.discovery.cacheTimeout"; //$NON-NLS-1$
+
+	private volatile long providerTimeout = Long.getLong(PROVIDER_TIMEOUT_PROP, 5000).longValue();
+
+	private final ServiceInfoCache cache = new ServiceInfoCache(Long.getLong(CACHE_TIMEOUT_PROP, 30000).longValue());
+
+	// key: container ID, value: DiscoveryProviderStatistics
+	private final ConcurrentHashMap providerStatistics = new ConcurrentHashMap();
+
+	// Created with the first query, so that providers are queried in parallel
+	private ExecutorService queryExecutor;
+
+	private boolean disposed;
+
+	// key: container ID, value: ProviderCall that timed out and still runs
+	private final ConcurrentHashMap stalledCalls = new ConcurrentHashMap();
+
+	/**
+	 * A query of one provider.
+	 */
+	private interface ProviderQuery {
+		Object query(IDiscoveryLocator locator);
+	}
+
+	/**
+	 * Runs a query on one provider and records it in the provider's
+	 * statistics.
+	 */
+	private static class ProviderCall implements Callable {
+		private final IDiscoveryLocator locator;
+		private final ProviderQuery query;
+		private final DiscoveryProviderStatistics stats;
+		private Thread runner;
+		private boolean finished;
+
+		ProviderCall(IDiscoveryLocator locator, ProviderQuery query, DiscoveryProviderStatistics stats) {
+			this.locator = locator;
+			this.query = query;
+			this.stats = stats;
+		}
+
+		public Object call() throws Exception {
+			synchronized (this) {
+				runner = Thread.currentThread();
+			}
+			final long start = System.nanoTime();
+			boolean failed = true;
+			try {
+				final Object result = query.query(locator);
+				failed = false;
+				return result;
+			} finally {
+				stats.record(System.nanoTime() - start, failed);
+				synchronized (this) {
+					runner = null;
+					finished = true;
+				}
+			}
+		}
+
+		/**
+		 * Interrupts the query if it is running. Unlike cancelling its future,
+		 * this leaves the call unfinished until the provider has returned.
+		 */
+		synchronized void cancel() {
+			if (runner != null) {
+				runner.interrupt();
+			}
+		}
+
+		synchronized boolean isFinished() {
+			return finished;
+		}
+	}
+
 	/**
 	 * @param containers
 	 */
@@ -191,6 +288,7 @@ public class CompositeDiscoveryContainer extends AbstractDiscoveryContainerAdapt
 		synchronized (registeredServices) {
 			registeredServices.clear();
 		}
+		cache.clear();
 		synchronized (allServiceListeners) {
 			allServiceListeners.clear();
 		}
@@ -200,6 +298,7 @@ public class CompositeDiscoveryContainer extends AbstractDiscoveryContainerAdapt
 		synchronized (serviceTypeListeners) {
 			serviceTypeListeners.clear();
 		}
+		listenersChanged();
 		fireContainerEvent(new ContainerDisconnectedEvent(this.getID(), getConnectedID()));
 	}
 
@@ -267,6 +366,14 @@ public class CompositeDiscoveryContainer extends AbstractDiscoveryContainerAdapt
 			containers.clear();
 		}
 		targetID = null;
+		synchronized (this) {
+			disposed = true;
+			if (queryExecutor != null) {
+				queryExecutor.shutdownNow();
+				queryExecutor = null;
+			}
+		}
+		stalledCalls.clear();
 		super.dispose();
 	}
 
@@ -290,15 +397,29 @@ public class CompositeDiscoveryContainer extends AbstractDiscoveryContainerAdapt
 	 */
 	public IServiceInfo getServiceInfo(final IServiceID aService) {
 		Assert.isNotNull(aService);
-		synchronized (containers) {
-			for (final Iterator itr = containers.iterator(); itr.hasNext();) {
-				final IDiscoveryLocator idca = (IDiscoveryLocator) itr.next();
-				final IServiceID isi = getServiceIDForDiscoveryContainer(aService, idca);
-				final IServiceInfo service = idca.getServiceInfo(isi);
+		final IDiscoveryLocator[] locators = getLocators();
+		if (cache.isValid()) {
+			for (int i = 0; i < locators.length; i++) {
+				final IServiceInfo service = cache.get(((IContainer) locators[i]).getID(), getServiceIDForDiscoveryContainer(aService, locators[i]));
 				if (service != null) {
+					cache.hit();
 					return service;
 				}
 			}
+			// not discovered yet, so ask the providers
+		}
+		cache.miss();
+		final Object[] results = queryProviders("getServiceInfo", locators, new ProviderQuery() { //$NON-NLS-1$
+			public Object query(IDiscoveryLocator locator) {
+				return locator.getServiceInfo(getServiceIDForDiscoveryContainer(aService, locator));
+			}
+		}, true);
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] != null) {
+				final IServiceInfo service = (IServiceInfo) results[i];
+				cache.put(((IContainer) locators[i]).getID(), service);
+				return service;
+			}
 		}
 		return null;
 	}
@@ -315,17 +436,39 @@ public class CompositeDiscoveryContainer extends AbstractDiscoveryContainerAdapt
 	 */
 	public IServiceInfo[] getServices() {
 		final Set set = new HashSet();
-		synchronized (containers) {
-			for (final Iterator itr = containers.iterator(); itr.hasNext();) {
-				final IDiscoveryLocator idca = (IDiscoveryLocator) itr.next();
-				final ID containerId = ((IContainer) idca).getID();
-				final IServiceInfo[] services = idca.getServices();
-				for (int i = 0; i < services.length; i++) {
-					IServiceInfo iServiceInfo = services[i];
-					services[i] = new CompositeServiceInfoWrapper(iServiceInfo, containerId);
+		final IDiscoveryLocator[] locators = getLocators();
+		if (cache.isValid()) {
+			cache.hit();
+			for (int i = 0; i < locators.length; i++) {
+				final ID containerId = ((IContainer) locators[i]).getID();
+				for (final Iterator itr = cache.get(containerId).iterator(); itr.hasNext();) {
+					set.add(new CompositeServiceInfoWrapper((IServiceInfo) itr.next(), containerId));
 				}
-				set.addAll(Arrays.asList(services));
 			}
+			return (IServiceInfo[]) set.toArray(new IServiceInfo[set.size()]);
+		}
+		cache.miss();
+		final int generation = cache.getGeneration();
+		final Object[] results = queryProviders("getServices", locators, new ProviderQuery() { //$NON-NLS-1$
+			public Object query(IDiscoveryLocator locator) {
+				return locator.getServices();
+			}
+		}, false);
+		boolean complete = true;
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] == null) {
+				complete = false;
+				continue;
+			}
+			final ID containerId = ((IContainer) locators[i]).getID();
+			final IServiceInfo[] services = (IServiceInfo[]) results[i];
+			cache.replace(containerId, services);
+			for (int j = 0; j < services.length; j++) {
+				set.add(new CompositeServiceInfoWrapper(services[j], containerId));
+			}
+		}
+		if (complete) {
+			cache.prime(generation);
 		}
 		return (IServiceInfo[]) set.toArray(new IServiceInfo[set.size()]);
 	}
@@ -336,11 +479,32 @@ public class CompositeDiscoveryContainer extends AbstractDiscoveryContainerAdapt
 	public IServiceInfo[] getServices(final IServiceTypeID type) {
 		Assert.isNotNull(type);
 		final Set set = new HashSet();
-		synchronized (containers) {
-			for (final Iterator itr = containers.iterator(); itr.hasNext();) {
-				final IDiscoveryLocator idca = (IDiscoveryLocator) itr.next();
-				final IServiceTypeID isti = getServiceTypeIDForDiscoveryContainer(type, idca);
-				final IServiceInfo[] services = idca.getServices(isti);
+		final IDiscoveryLocator[] locators = getLocators();
+		if (cache.isValid()) {
+			cache.hit();
+			final ServiceTypeComparator comparator = new ServiceTypeComparator();
+			for (int i = 0; i < locators.length; i++) {
+				for (final Iterator itr = cache.get(((IContainer) locators[i]).getID()).iterator(); itr.hasNext();) {
+					final IServiceInfo service = (IServiceInfo) itr.next();
+					if (comparator.compare(type, service.getServiceID().getServiceTypeID()) == 0) {
+						set.add(service);
+					}
+				}
+			}
+			return (IServiceInfo[]) set.toArray(new IServiceInfo[set.size()]);
+		}
+		cache.miss();
+		final Object[] results = queryProviders("getServices(IServiceTypeID)", locators, new ProviderQuery() { //$NON-NLS-1$
+			public Object query(IDiscoveryLocator locator) {
+				return locator.getServices(getServiceTypeIDForDiscoveryContainer(type, locator));
+			}
+		}, false);
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] != null) {
+				final IServiceInfo[] services = (IServiceInfo[]) results[i];
+				for (int j = 0; j < services.length; j++) {
+					cache.put(((IContainer) locators[i]).getID(), services[j]);
+				}
 				set.addAll(Arrays.asList(services));
 			}
 		}
@@ -360,16 +524,205 @@ public class CompositeDiscoveryContainer extends AbstractDiscoveryContainerAdapt
 	 */
 	public IServiceTypeID[] getServiceTypes() {
 		final Set set = new HashSet();
-		synchronized (containers) {
-			for (final Iterator itr = containers.iterator(); itr.hasNext();) {
-				final IDiscoveryLocator idca = (IDiscoveryLocator) itr.next();
-				final IServiceTypeID[] services = idca.getServiceTypes();
-				set.addAll(Arrays.asList(services));
+		final Object[] results = queryProviders("getServiceTypes", getLocators(), new ProviderQuery() { //$NON-NLS-1$
+			public Object query(IDiscoveryLocator locator) {
+				return locator.getServiceTypes();
+			}
+		}, false);
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] != null) {
+				set.addAll(Arrays.asList((IServiceTypeID[]) results[i]));
 			}
 		}
 		return (IServiceTypeID[]) set.toArray(new IServiceTypeID[set.size()]);
 	}
 
+	private IDiscoveryLocator[] getLocators() {
+		synchronized (containers) {
+			return (IDiscoveryLocator[]) containers.toArray(new IDiscoveryLocator[containers.size()]);
+		}
+	}
+
+	/**
+	 * @return the executor of provider queries, or <code>null</code> once
+	 *         disposed
+	 */
+	private synchronized ExecutorService getQueryExecutor() {
+		if (queryExecutor == null && !disposed) {
+			queryExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue(), new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					final Thread t = new Thread(r, "CompositeDiscoveryContainer query"); //$NON-NLS-1$
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return queryExecutor;
+	}
+
+	private DiscoveryProviderStatistics getStatistics(IDiscoveryLocator locator) {
+		final ID id = ((IContainer) locator).getID();
+		DiscoveryProviderStatistics stats = (DiscoveryProviderStatistics) providerStatistics.get(id);
+		if (stats == null) {
+			stats = new DiscoveryProviderStatistics();
+			final Object existing = providerStatistics.putIfAbsent(id, stats);
+			if (existing != null) {
+				stats = (DiscoveryProviderStatistics) existing;
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * Runs a query on all given providers in parallel, and waits for their
+	 * answers until the provider timeout. A slow provider thus delays the
+	 * result by at most the provider timeout, and does not block other
+	 * callers. Queries that time out are interrupted, and the provider is
+	 * skipped until it has returned from such a query, so that a hanging
+	 * provider holds at most one query thread.
+	 * 
+	 * @param methodName
+	 *            the name of the calling method, for tracing
+	 * @param locators
+	 *            the providers to query
+	 * @param query
+	 *            the query
+	 * @param firstAnswer
+	 *            <code>true</code> to stop waiting at the first provider, in
+	 *            order, that answers something other than <code>null</code>
+	 * @return the answers of the providers, <code>null</code> for providers
+	 *         that failed, timed out, were skipped or were not waited for
+	 */
+	private Object[] queryProviders(final String methodName, final IDiscoveryLocator[] locators, final ProviderQuery query, boolean firstAnswer) {
+		final Object[] results = new Object[locators.length];
+		if (locators.length == 0) {
+			return results;
+		}
+		final ExecutorService executor = getQueryExecutor();
+		if (executor == null) {
+			// disposed
+			return results;
+		}
+		final ProviderCall[] calls = new ProviderCall[locators.length];
+		final Future[] futures = new Future[locators.length];
+		for (int i = 0; i < locators.length; i++) {
+			final ID id = ((IContainer) locators[i]).getID();
+			final ProviderCall stalled = (ProviderCall) stalledCalls.get(id);
+			if (stalled != null) {
+				if (!stalled.isFinished()) {
+					getStatistics(locators[i]).timedOut();
+					Trace.trace(Activator.PLUGIN_ID, METHODS_TRACING, this.getClass(), methodName, "skipping " //$NON-NLS-1$
+							+ locators[i] + " which has not returned from an earlier query"); //$NON-NLS-1$
+					continue;
+				}
+				stalledCalls.remove(id, stalled);
+			}
+			calls[i] = new ProviderCall(locators[i], query, getStatistics(locators[i]));
+			try {
+				futures[i] = executor.submit(calls[i]);
+			} catch (final RejectedExecutionException e) {
+				// disposed
+				Trace.catching(Activator.PLUGIN_ID, METHODS_CATCHING, this.getClass(), methodName, e);
+				return new Object[locators.length];
+			}
+		}
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(providerTimeout);
+		for (int i = 0; i < futures.length; i++) {
+			if (futures[i] == null) {
+				continue;
+			}
+			try {
+				results[i] = futures[i].get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				if (firstAnswer && results[i] != null) {
+					break;
+				}
+			} catch (final TimeoutException e) {
+				// the answer is dropped, and the provider skipped until it
+				// returns
+				calls[i].cancel();
+				stalledCalls.put(((IContainer) locators[i]).getID(), calls[i]);
+				getStatistics(locators[i]).timedOut();
+				Trace.trace(Activator.PLUGIN_ID, METHODS_TRACING, this.getClass(), methodName, "timed out waiting for " //$NON-NLS-1$
+						+ locators[i]);
+			} catch (final ExecutionException e) {
+				Trace.catching(Activator.PLUGIN_ID, METHODS_CATCHING, this.getClass(), methodName, e.getCause());
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * @return how long queries wait for each provider, in milliseconds
+	 * @since 3.2
+	 */
+	public long getProviderTimeout() {
+		return providerTimeout;
+	}
+
+	/**
+	 * @param timeout
+	 *            how long queries wait for each provider, in milliseconds
+	 * @see #PROVIDER_TIMEOUT_PROP
+	 * @since 3.2
+	 */
+	public void setProviderTimeout(long timeout) {
+		Assert.isTrue(timeout >= 0);
+		this.providerTimeout = timeout;
+	}
+
+	/**
+	 * @return how long queries are answered from the cache of discovered
+	 *         services, in milliseconds. <code>0</code> if the cache is
+	 *         disabled.
+	 * @since 3.2
+	 */
+	public long getCacheTimeout() {
+		return cache.getTimeout();
+	}
+
+	/**
+	 * @param timeout
+	 *            how long queries are answered from the cache of discovered
+	 *            services once all providers have answered a query for all
+	 *            services, in milliseconds. <code>0</code> disables the
+	 *            cache.
+	 * @see #CACHE_TIMEOUT_PROP
+	 * @since 3.2
+	 */
+	public void setCacheTimeout(long timeout) {
+		Assert.isTrue(timeout >= 0);
+		cache.setTimeout(timeout);
+	}
+
+	/**
+	 * @return the number of queries answered from the cache of discovered
+	 *         services
+	 * @since 3.2
+	 */
+	public long getCacheHits() {
+		return cache.getHits();
+	}
+
+	/**
+	 * @return the number of queries that had to ask the providers
+	 * @since 3.2
+	 */
+	public long getCacheMisses() {
+		return cache.getMisses();
+	}
+
+	/**
+	 * @return map of the {@link ID} of each provider that has been queried to
+	 *         its {@link DiscoveryProviderStatistics}
+	 * @since 3.2
+	 */
+	public Map getProviderStatistics() {
+		return Collections.unmodifiableMap(new HashMap(providerStatistics));
+	}
+
 	/* (non-Javadoc)
 	 * @see org.eclipse.ecf.discovery.IDiscoveryContainerAdapter#registerService(org.eclipse.ecf.discovery.IServiceInfo)
 	 */
@@ -430,11 +783,15 @@ public class CompositeDiscoveryContainer extends AbstractDiscoveryContainerAdapt
 	 */
 	public IServiceInfo[] purgeCache() {
 		final Set set = new HashSet();
-		synchronized (containers) {
-			for (final Iterator itr = containers.iterator(); itr.hasNext();) {
-				final IDiscoveryLocator idca = (IDiscoveryLocator) itr.next();
-				final IServiceInfo[] services = idca.purgeCache();
-				set.addAll(Arrays.asList(services));
+		cache.clear();
+		final Object[] results = queryProviders("purgeCache", getLocators(), new ProviderQuery() { //$NON-NLS-1$
+			public Object query(IDiscoveryLocator locator) {
+				return locator.purgeCache();
+			}
+		}, false);
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] != null) {
+				set.addAll(Arrays.asList((IServiceInfo[]) results[i]));
 			}
 		}
 		return (IServiceInfo[]) set.toArray(new IServiceInfo[set.size()]);
@@ -473,6 +830,8 @@ public class CompositeDiscoveryContainer extends AbstractDiscoveryContainerAdapt
 				}
 			}
 		}
+		// the new container's services are not cached yet
+		cache.invalidate();
 		synchronized (containers) {
 			Trace.trace(Activator.PLUGIN_ID, METHODS_TRACING, this.getClass(), "addContainer(Object)", "addContainer " //$NON-NLS-1$ //$NON-NLS-2$
 					+ object.toString());
@@ -489,6 +848,10 @@ public class CompositeDiscoveryContainer extends AbstractDiscoveryContainerAdapt
 		final IDiscoveryLocator idca = (IDiscoveryLocator) object;
 		idca.removeServiceListener(ccsl);
 		idca.removeServiceTypeListener(ccstl);
+		final ID containerId = ((IContainer) object).getID();
+		cache.removeContainer(containerId);
+		providerStatistics.remove(containerId);
+		stalledCalls.remove(containerId);
 		synchronized (containers) {
 			Trace.trace(Activator.PLUGIN_ID, METHODS_TRACING, this.getClass(), "removeContainer(Object)", "removeContainer " //$NON-NLS-1$ //$NON-NLS-2$
 					+ object.toString());
@@ -0,0 +1,100 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.discovery;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of the queries a {@link CompositeDiscoveryContainer} has made
+ * to one of its discovery providers. A query that does not answer before the
+ * provider timeout counts as timed out, and its latency is recorded once it
+ * does answer.
+ *
+ * @since 3.2
+ */
+public class DiscoveryProviderStatistics {
+
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong totalLatency = new AtomicLong();
+	private final AtomicLong maxLatency = new AtomicLong();
+
+	DiscoveryProviderStatistics() {
+		// created by CompositeDiscoveryContainer
+	}
+
+	void record(long latencyNanos, boolean failed) {
+		calls.incrementAndGet();
+		if (failed) {
+			failures.incrementAndGet();
+		}
+		totalLatency.addAndGet(latencyNanos);
+		long max;
+		while ((max = maxLatency.get()) < latencyNanos && !maxLatency.compareAndSet(max, latencyNanos)) {
+			// retry
+		}
+	}
+
+	void timedOut() {
+		timeouts.incrementAndGet();
+	}
+
+	/**
+	 * @return the number of queries the provider has answered, including
+	 *         those that failed
+	 */
+	public long getCalls() {
+		return calls.get();
+	}
+
+	/**
+	 * @return the number of queries that failed with an exception
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * @return the number of queries that were not answered before the
+	 *         provider timeout, or that skipped the provider because it had
+	 *         not returned from such a query yet
+	 */
+	public long getTimeouts() {
+		return timeouts.get();
+	}
+
+	/**
+	 * @return the average latency of the answered queries in milliseconds
+	 */
+	public double getAverageLatency() {
+		final long c = calls.get();
+		return (c == 0) ? 0 : (double) totalLatency.get() / c / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * @return the highest latency of the answered queries in milliseconds
+	 */
+	public long getMaxLatency() {
+		return TimeUnit.NANOSECONDS.toMillis(maxLatency.get());
+	}
+
+	public String toString() {
+		final StringBuffer sb = new StringBuffer("DiscoveryProviderStatistics["); //$NON-NLS-1$
+		sb.append("calls=").append(getCalls()).append(";failures=").append(getFailures()); //$NON-NLS-1$ //$NON-NLS-2$
+		sb.append(";timeouts=").append(getTimeouts()).append(";averageLatency=").append(getAverageLatency()); //$NON-NLS-1$ //$NON-NLS-2$
+		sb.append(";maxLatency=").append(getMaxLatency()).append("]"); //$NON-NLS-1$ //$NON-NLS-2$
+		return sb.toString();
+	}
+}
@@ -17,6 +17,7 @@ import org.eclipse.ecf.core.identity.Namespace;
 import org.eclipse.ecf.core.util.*;
 import org.eclipse.ecf.provider.remoteservice.generic.RemoteServiceContainerAdapterFactory;
 import org.eclipse.ecf.provider.remoteservice.generic.RemoteServiceNamespace;
+import org.eclipse.ecf.provider.remoteservice.generic.RemoteServiceTypeCodecs;
 import org.osgi.framework.*;
 import org.osgi.service.log.LogService;
 import org.osgi.util.tracker.ServiceTracker;
@@ -58,6 +59,7 @@ public class Activator implements BundleActivator {
 	public void start(final BundleContext ctxt) throws Exception {
 		this.context = ctxt;
 		BundleStarter.startDependents(this.context, new String[] {"org.eclipse.ecf.provider", "org.eclipse.ecf.sharedobject"}, Bundle.RESOLVED | Bundle.STARTING); //$NON-NLS-1$ //$NON-NLS-2$
+		RemoteServiceTypeCodecs.register();
 		SafeRunner.run(new ExtensionRegistryRunnable(this.context) {
 			protected void runWithoutRegistry() throws Exception {
 				ctxt.registerService(Namespace.class, new RemoteServiceNamespace(org.eclipse.ecf.provider.remoteservice.generic.RemoteServiceNamespace.NAME, "Generic remote service namespace"), null); //$NON-NLS-1$
@@ -82,6 +84,7 @@ public class Activator implements BundleActivator {
 	}
 
 	public void stop(BundleContext ctxt) throws Exception {
+		RemoteServiceTypeCodecs.unregister();
 		if (logServiceTracker != null) {
 			logServiceTracker.close();
 			logServiceTracker = null;
@@ -0,0 +1,189 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.remoteservice.generic;
+
+import java.lang.invoke.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.ecf.core.sharedobject.SharedObjectMsg;
+import org.eclipse.ecf.core.util.reflection.ClassUtil;
+
+/**
+ * Table of the public methods of a remote service, by name and number of parameters, that is built
+ * when the service is registered.  A call to a method that is not overloaded for its number of
+ * arguments is dispatched without any lookup.  Overloaded methods are resolved with {@link ClassUtil}
+ * as before, and the result is cached for the argument types of the call.
+ */
+final class MethodDispatchTable {
+
+	private static final int MAX_CACHED_SIGNATURES = 64;
+
+	private static final Map<Class<?>, Class<?>> wrappers = new HashMap<Class<?>, Class<?>>();
+
+	static {
+		wrappers.put(boolean.class, Boolean.class);
+		wrappers.put(byte.class, Byte.class);
+		wrappers.put(char.class, Character.class);
+		wrappers.put(double.class, Double.class);
+		wrappers.put(float.class, Float.class);
+		wrappers.put(int.class, Integer.class);
+		wrappers.put(long.class, Long.class);
+		wrappers.put(short.class, Short.class);
+	}
+
+	/**
+	 * A resolved method, invoked through a method handle where the method is accessible to one.
+	 */
+	static final class Invoker {
+		final Method method;
+		private final MethodHandle handle;
+		private final Class<?>[] parameterTypes;
+		// Types that arguments must be instances of.  Primitive types are replaced by their wrappers.
+		private final Class<?>[] argumentTypes;
+
+		Invoker(Method method) {
+			this.method = method;
+			this.parameterTypes = method.getParameterTypes();
+			this.argumentTypes = new Class<?>[parameterTypes.length];
+			for (int i = 0; i < parameterTypes.length; i++)
+				argumentTypes[i] = parameterTypes[i].isPrimitive() ? wrappers.get(parameterTypes[i]) : parameterTypes[i];
+			this.handle = createHandle(method);
+		}
+
+		private static MethodHandle createHandle(final Method method) {
+			try {
+				return MethodHandles.publicLookup().unreflect(method).asFixedArity().asSpreader(Object[].class, method.getParameterCount()).asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+			} catch (final IllegalAccessException e) {
+				// Declaring class is not public, such as an anonymous class, so use reflection
+				AccessController.doPrivileged(new PrivilegedAction<Object>() {
+					public Object run() {
+						method.setAccessible(true);
+						return null;
+					}
+				});
+				return null;
+			}
+		}
+
+		/**
+		 * @return true if the arguments can be passed to the method handle as they are
+		 */
+		boolean accepts(Object[] args) {
+			for (int i = 0; i < args.length; i++) {
+				final Object arg = args[i];
+				if (arg == null ? parameterTypes[i].isPrimitive() : !argumentTypes[i].isInstance(arg))
+					return false;
+			}
+			return true;
+		}
+
+		Object invoke(Object service, Object[] args) throws Exception {
+			// Reflection reports invalid arguments, such as null for a primitive parameter
+			if (handle == null || !accepts(args))
+				return method.invoke(service, args);
+			try {
+				return handle.invokeExact(service, args);
+			} catch (final Throwable t) {
+				// As for reflection, anything thrown by the method is the target exception
+				throw new InvocationTargetException(t);
+			}
+		}
+	}
+
+	/**
+	 * The methods with the same name and number of parameters.
+	 */
+	private static final class Entry {
+		// The only method, or null if the method is overloaded
+		final Invoker invoker;
+		// Overloaded methods resolved for the argument types of calls
+		final Map<List<Class<?>>, Invoker> resolved;
+
+		Entry(Invoker invoker) {
+			this.invoker = invoker;
+			this.resolved = (invoker == null) ? new ConcurrentHashMap<List<Class<?>>, Invoker>() : null;
+		}
+	}
+
+	private final Class<?> serviceClass;
+	// key: method name, value: entries by number of parameters
+	private final Map<String, Entry[]> entries = new HashMap<String, Entry[]>();
+
+	MethodDispatchTable(Class<?> serviceClass) {
+		this.serviceClass = serviceClass;
+		final Map<String, Map<Integer, List<Method>>> methods = new HashMap<String, Map<Integer, List<Method>>>();
+		final Method[] publicMethods = serviceClass.getMethods();
+		for (int i = 0; i < publicMethods.length; i++) {
+			final Method method = publicMethods[i];
+			Map<Integer, List<Method>> byCount = methods.get(method.getName());
+			if (byCount == null) {
+				byCount = new HashMap<Integer, List<Method>>();
+				methods.put(method.getName(), byCount);
+			}
+			final Integer count = Integer.valueOf(method.getParameterCount());
+			List<Method> overloads = byCount.get(count);
+			if (overloads == null) {
+				overloads = new ArrayList<Method>(1);
+				byCount.put(count, overloads);
+			}
+			overloads.add(method);
+		}
+		for (final Map.Entry<String, Map<Integer, List<Method>>> e : methods.entrySet()) {
+			int max = 0;
+			for (final Integer count : e.getValue().keySet())
+				max = Math.max(max, count.intValue());
+			final Entry[] byCount = new Entry[max + 1];
+			for (final Map.Entry<Integer, List<Method>> overloads : e.getValue().entrySet()) {
+				final List<Method> ms = overloads.getValue();
+				byCount[overloads.getKey().intValue()] = new Entry(ms.size() == 1 ? new Invoker(ms.get(0)) : null);
+			}
+			entries.put(e.getKey(), byCount);
+		}
+	}
+
+	/**
+	 * Find the method to call for the given method name and arguments.
+	 *
+	 * @param methodName the name of the method
+	 * @param args the arguments of the call.  Must not be <code>null</code>.
+	 * @return the invoker for the method
+	 * @throws NoSuchMethodException if there is no method for the arguments
+	 */
+	Invoker lookup(String methodName, Object[] args) throws NoSuchMethodException {
+		final Entry[] byCount = entries.get(methodName);
+		final Entry entry = (byCount == null || args.length >= byCount.length) ? null : byCount[args.length];
+		if (entry != null && entry.invoker != null && entry.invoker.accepts(args))
+			return entry.invoker;
+		final Class<?>[] types = SharedObjectMsg.getTypesForParameters(args);
+		if (entry == null)
+			// Let ClassUtil report the missing method
+			return new Invoker(ClassUtil.getMethod(serviceClass, methodName, types));
+		if (entry.invoker != null) {
+			// The method is the only candidate, unless the arguments do not match it at all
+			ClassUtil.getMethod(serviceClass, methodName, types);
+			return entry.invoker;
+		}
+		final List<Class<?>> signature = Arrays.asList(types);
+		Invoker invoker = entry.resolved.get(signature);
+		if (invoker == null) {
+			invoker = new Invoker(ClassUtil.getMethod(serviceClass, methodName, types));
+			if (entry.resolved.size() < MAX_CACHED_SIGNATURES)
+				entry.resolved.put(signature, invoker);
+		}
+		return invoker;
+	}
+}
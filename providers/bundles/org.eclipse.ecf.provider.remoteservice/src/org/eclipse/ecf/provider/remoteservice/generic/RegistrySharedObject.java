@@ -13,9 +13,13 @@ package org.eclipse.ecf.provider.remoteservice.generic;
 
 import java.io.*;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.security.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import org.eclipse.core.runtime.*;
 import org.eclipse.ecf.core.ContainerConnectException;
 import org.eclipse.ecf.core.events.*;
@@ -26,7 +30,6 @@ import org.eclipse.ecf.core.sharedobject.*;
 import org.eclipse.ecf.core.sharedobject.events.ISharedObjectActivatedEvent;
 import org.eclipse.ecf.core.status.SerializableStatus;
 import org.eclipse.ecf.core.util.*;
-import org.eclipse.ecf.core.util.reflection.ClassUtil;
 import org.eclipse.ecf.internal.provider.remoteservice.Activator;
 import org.eclipse.ecf.internal.provider.remoteservice.IRemoteServiceProviderDebugOptions;
 import org.eclipse.ecf.remoteservice.*;
@@ -81,9 +84,22 @@ public class RegistrySharedObject extends BaseSharedObject implements IRemoteSer
 	protected int addRegistrationRequestTimeout = ADD_REGISTRATION_REQUEST_TIMEOUT;
 	/**
 	 * List of invocation requests...instances of Request
+	 * @deprecated As of 4.7 outstanding requests are kept in a table indexed by request id,
+	 * and this list is no longer populated:  it is always empty.  Subclasses that read it
+	 * must use {@link #getRequest(long)} instead, and subclasses that override
+	 * {@link #addRequest(Request)}, {@link #getRequest(long)} and {@link #removeRequest(Request)}
+	 * must call the super implementations.
 	 */
 	@SuppressWarnings("unchecked")
 	protected List requests = Collections.synchronizedList(new ArrayList());
+	/**
+	 * Outstanding requests.  key:  Long (request id), value: Request
+	 */
+	private final ConcurrentMap<Long, Request> requestTable = new ConcurrentHashMap<Long, Request>();
+	/**
+	 * Timer wheel for the timeouts of requests with listeners.  Lazily created.
+	 */
+	private RequestTimeoutWheel requestTimeoutWheel;
 
 	/**
 	 * Connect context to be used for connect.
@@ -115,6 +131,10 @@ public class RegistrySharedObject extends BaseSharedObject implements IRemoteSer
 	 * @since 3.3
 	 */
 	private final Object rsQueueLock = new Object();
+	/**
+	 * Lock for the lazily created requestTimeoutWheel
+	 */
+	private final Object requestLock = new Object();
 
 	/**
 	 * EventManager for the rsListenerDispatchEventManager
@@ -130,10 +150,11 @@ public class RegistrySharedObject extends BaseSharedObject implements IRemoteSer
 	private Hashtable pendingUpdateContainers = new Hashtable();
 	private List registryUpdateRequests = new ArrayList();
 
-	// system property allowing the executorType to be configured.  Currently types are:  jobs, threads, immediate.
+	// system property allowing the executorType to be configured.  Currently types are:  jobs, threads, immediate, virtual, pooled.
 	private static final String DEFAULT_EXECUTOR_TYPE = System.getProperty("org.eclipse.ecf.provider.remoteservice.executorType", "jobs"); //$NON-NLS-1$ //$NON-NLS-2$
 
 	private IExecutor requestExecutor;
+	private final Object requestExecutorLock = new Object();
 
 	private Object remoteServiceCallPolicyLock = new Object();
 	private IRemoteServiceCallPolicy remoteServiceCallPolicy;
@@ -489,8 +510,17 @@ public class RegistrySharedObject extends BaseSharedObject implements IRemoteSer
 		synchronized (addRegistrationRequests) {
 			addRegistrationRequests.clear();
 		}
-		synchronized (requests) {
-			requests.clear();
+		synchronized (requestLock) {
+			if (requestTimeoutWheel != null) {
+				requestTimeoutWheel.stop();
+				requestTimeoutWheel = null;
+			}
+		}
+		requestTable.clear();
+		synchronized (requestExecutorLock) {
+			if (requestExecutor instanceof RequestExecutor)
+				((RequestExecutor) requestExecutor).shutdown();
+			requestExecutor = null;
 		}
 		synchronized (pendingUpdateContainers) {
 			pendingUpdateContainers.clear();
@@ -939,36 +969,28 @@ public class RegistrySharedObject extends BaseSharedObject implements IRemoteSer
 	}
 
 	protected Object callSynch(RemoteServiceRegistrationImpl registration, IRemoteCall call) throws ECFException {
-		boolean doneWaiting = false;
 		Response response = null;
+		Request request = null;
 		try {
 			// First send request
-			final Request request = sendCallRequest(registration, call);
-			long requestId = request.getRequestId();
-			// Then get the specified timeout and calculate when we should
-			// timeout in real time
-			final long timeout = call.getTimeout() + System.currentTimeMillis();
-			// Now loop until timeout time has elapsed
-			while ((timeout - System.currentTimeMillis()) > 0 && !doneWaiting) {
-				synchronized (request) {
-					if (request.isDone()) {
-						doneWaiting = true;
-						response = request.getResponse();
-						if (response == null)
-							throw new ECFException("Invalid response for requestId=" + requestId); //$NON-NLS-1$
-					} else {
-						request.wait(RESPONSE_WAIT_INTERVAL);
-					}
-				}
-			}
-			if (!doneWaiting)
-				throw new ServiceException("Request timed out after " + Long.toString(call.getTimeout()) + "ms", ServiceException.REMOTE, new TimeoutException(call.getTimeout())); //$NON-NLS-1$ //$NON-NLS-2$
+			request = sendCallRequest(registration, call);
+			// Then wait for the response to complete the request, or the timeout
+			response = request.getCompletion().get(call.getTimeout(), TimeUnit.MILLISECONDS);
+			if (response == null)
+				throw new ECFException("Invalid response for requestId=" + request.getRequestId()); //$NON-NLS-1$
 		} catch (final IOException e) {
 			log(CALL_REQUEST_ERROR_CODE, CALL_REQUEST_ERROR_MESSAGE, e);
 			throw new ECFException("Error sending request", e); //$NON-NLS-1$
+		} catch (final java.util.concurrent.TimeoutException e) {
+			removeRequest(request);
+			throw new ServiceException("Request timed out after " + Long.toString(call.getTimeout()) + "ms", ServiceException.REMOTE, new TimeoutException(call.getTimeout())); //$NON-NLS-1$ //$NON-NLS-2$
 		} catch (final InterruptedException e) {
+			removeRequest(request);
 			log(CALL_REQUEST_TIMEOUT_ERROR_CODE, CALL_REQUEST_TIMEOUT_ERROR_MESSAGE, e);
 			throw new ECFException("Wait for response interrupted", e); //$NON-NLS-1$
+		} catch (final ExecutionException e) {
+			// Requests are never completed exceptionally
+			throw new ECFException("Invalid response for requestId=" + request.getRequestId(), e.getCause()); //$NON-NLS-1$
 		}
 		// Success...now get values and return
 		if (response.hadException())
@@ -1106,8 +1128,6 @@ public class RegistrySharedObject extends BaseSharedObject implements IRemoteSer
 
 	private static final int REQUEST_NOT_FOUND_ERROR_CODE = 211;
 
-	private static final long RESPONSE_WAIT_INTERVAL = 500;
-
 	private static final String ADD_REGISTRATION = "handleAddRegistration"; //$NON-NLS-1$
 
 	private static final String ADD_REGISTRATIONS = "handleAddRegistrations"; //$NON-NLS-1$
@@ -1564,10 +1584,12 @@ public class RegistrySharedObject extends BaseSharedObject implements IRemoteSer
 	}
 
 	private IExecutor getRequestExecutor(Request request) {
-		if (requestExecutor == null) {
-			requestExecutor = createRequestExecutor(request);
+		synchronized (requestExecutorLock) {
+			if (requestExecutor == null) {
+				requestExecutor = createRequestExecutor(request);
+			}
+			return requestExecutor;
 		}
-		return requestExecutor;
 	}
 
 	/**
@@ -1591,6 +1613,8 @@ public class RegistrySharedObject extends BaseSharedObject implements IRemoteSer
 					return "Remote Request Handler - " + request.getCall().getMethod() + ":" + request.getRequestId(); //$NON-NLS-1$ //$NON-NLS-2$
 				}
 			};
+		} else if (DEFAULT_EXECUTOR_TYPE.equals(RequestExecutor.VIRTUAL) || DEFAULT_EXECUTOR_TYPE.equals(RequestExecutor.POOLED)) {
+			executor = RequestExecutor.create(DEFAULT_EXECUTOR_TYPE, "Remote Request Handler"); //$NON-NLS-1$
 		}
 		return executor;
 	}
@@ -1602,12 +1626,12 @@ public class RegistrySharedObject extends BaseSharedObject implements IRemoteSer
 		Object[] callArgs = call.getParameters();
 		Object[] args = (callArgs == null) ? SharedObjectMsg.nullArgs : callArgs;
 		Object service = reg.getService();
-		// Find appropriate method on service
-		final Method method = ClassUtil.getMethod(service.getClass(), call.getMethod(), SharedObjectMsg.getTypesForParameters(args));
+		// Find appropriate method on service in the dispatch table of the registration
+		final MethodDispatchTable.Invoker invoker = reg.getInvoker(call.getMethod(), args);
 		// Actually invoke method on service object
-		Object result = method.invoke(service, args);
+		Object result = invoker.invoke(service, args);
 		if (result != null) {
-			Class returnType = method.getReturnType();
+			Class returnType = invoker.method.getReturnType();
 			// provider must expose osgi.async property and must be async return type
 			if (AsyncUtil.isOSGIAsync(reg.getReference()) && AsyncReturnUtil.isAsyncType(returnType))
 				return AsyncReturnUtil.convertAsyncToReturn(result, returnType, call.getTimeout());
@@ -1659,7 +1683,15 @@ public class RegistrySharedObject extends BaseSharedObject implements IRemoteSer
 			}
 		};
 		// Now actually execute the runnable asynchronously using the executor
-		executor.execute(runnable, new NullProgressMonitor());
+		try {
+			executor.execute(runnable, new NullProgressMonitor());
+		} catch (RejectedExecutionException e) {
+			// Bounded executor is full or shut down, so tell the caller rather than leaving it to time out
+			if (respond)
+				sendErrorResponse(responseTarget, request.getRequestId(), "Remote request rejected by request executor.  Remote request=" + request, e); //$NON-NLS-1$
+			else
+				logRemoteCallException("Remote request rejected by request executor.  Remote request=" + request, e); //$NON-NLS-1$
+		}
 	}
 
 	private void sendErrorResponse(ID responseTarget, long requestId, String message, Throwable e) {
@@ -1763,14 +1795,42 @@ public class RegistrySharedObject extends BaseSharedObject implements IRemoteSer
 		fireCallStartEvent(listener, request.getRequestId(), remoteRegistration.getReference(), call);
 		try {
 			addRequest(request);
+			if (call.getTimeout() > 0)
+				getRequestTimeoutWheel().schedule(request, call.getTimeout());
 			sendSharedObjectMsgTo(remoteRegistration.getContainerID(), SharedObjectMsg.createMsg(CALL_REQUEST_BYTES, serializeCallRequest(request)));
 		} catch (final IOException e) {
 			log(CALL_REQUEST_ERROR_CODE, CALL_REQUEST_ERROR_MESSAGE, e);
-			removeRequest(request);
-			fireCallCompleteEvent(listener, request.getRequestId(), null, true, e);
+			if (removeRequest(request) && request.complete(null))
+				fireCallCompleteEvent(listener, request.getRequestId(), null, true, e);
+		}
+	}
+
+	private RequestTimeoutWheel getRequestTimeoutWheel() {
+		synchronized (requestLock) {
+			if (requestTimeoutWheel == null)
+				requestTimeoutWheel = new RequestTimeoutWheel("RSRegistry Request Timeouts for containerID=" + getLocalContainerID(), new RequestTimeoutWheel.Expiry() { //$NON-NLS-1$
+					public void expire(Request request) {
+						handleCallTimeout(request);
+					}
+				});
+			return requestTimeoutWheel;
 		}
 	}
 
+	/**
+	 * Complete a request with a listener that did not get a response within the timeout of its call.
+	 * The listener gets a call complete event with a {@link java.util.concurrent.TimeoutException}.
+	 * 
+	 * @param request the request that timed out
+	 * @since 4.7
+	 */
+	protected void handleCallTimeout(Request request) {
+		if (!removeRequest(request) || !request.complete(null))
+			return;
+		final IRemoteCall call = request.getCall();
+		fireCallCompleteEvent(request.getListener(), request.getRequestId(), null, true, new java.util.concurrent.TimeoutException("Timeout calling remote service method=" + call.getMethod() + " timeout=" + call.getTimeout())); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
 	protected void log(int code, String method, Throwable e) {
 		Activator.getDefault().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, code, method, e));
 	}
@@ -1795,21 +1855,16 @@ public class RegistrySharedObject extends BaseSharedObject implements IRemoteSer
 
 	protected void handleCallResponse(Response response) {
 		final Request request = getRequest(response.getRequestId());
-		if (request == null) {
+		// The request may have timed out, or been completed already
+		if (request == null || !removeRequest(request)) {
 			log(REQUEST_NOT_FOUND_ERROR_CODE, REQUEST_NOT_FOUND_ERROR_MESSAGE, new NullPointerException());
 			return;
 		}
-		removeRequest(request);
+		if (!request.complete(response))
+			return;
 		final IRemoteCallListener listener = request.getListener();
-		if (listener != null) {
+		if (listener != null)
 			fireCallCompleteEvent(listener, request.getRequestId(), response.getResponse(), response.hadException(), response.getException());
-			return;
-		}
-		synchronized (request) {
-			request.setResponse(response);
-			request.setDone(true);
-			request.notify();
-		}
 	}
 
 	/**
@@ -1824,23 +1879,21 @@ public class RegistrySharedObject extends BaseSharedObject implements IRemoteSer
 			log(REQUEST_NOT_FOUND_ERROR_CODE, REQUEST_NOT_FOUND_ERROR_MESSAGE, e);
 			return;
 		}
+		// No request for the response, because it timed out.  Already logged
+		if (response == null)
+			return;
 
 		final Request request = getRequest(response.getRequestId());
-		if (request == null) {
+		// The request may have timed out, or been completed already
+		if (request == null || !removeRequest(request)) {
 			log(REQUEST_NOT_FOUND_ERROR_CODE, REQUEST_NOT_FOUND_ERROR_MESSAGE, new NullPointerException());
 			return;
 		}
-		removeRequest(request);
+		if (!request.complete(response))
+			return;
 		final IRemoteCallListener listener = request.getListener();
-		if (listener != null) {
+		if (listener != null)
 			fireCallCompleteEvent(listener, request.getRequestId(), response.getResponse(), response.hadException(), response.getException());
-			return;
-		}
-		synchronized (request) {
-			request.setResponse(response);
-			request.setDone(true);
-			request.notify();
-		}
 	}
 
 	protected Request sendFireRequest(RemoteServiceRegistrationImpl remoteRegistration, IRemoteCall call) throws ECFException {
@@ -2071,11 +2124,8 @@ public class RegistrySharedObject extends BaseSharedObject implements IRemoteSer
 	 * @return true if added, false if not added
 	 * @since 3.2
 	 */
-	@SuppressWarnings("unchecked")
 	protected boolean addRequest(Request request) {
-		synchronized (requests) {
-			return requests.add(request);
-		}
+		return requestTable.putIfAbsent(Long.valueOf(request.getRequestId()), request) == null;
 	}
 
 	/**
@@ -2084,16 +2134,7 @@ public class RegistrySharedObject extends BaseSharedObject implements IRemoteSer
 	 * @since 3.2
 	 */
 	protected Request getRequest(long requestId) {
-		synchronized (requests) {
-			for (final Iterator i = requests.iterator(); i.hasNext();) {
-				final Request req = (Request) i.next();
-				final long reqId = req.getRequestId();
-				if (reqId == requestId) {
-					return req;
-				}
-			}
-		}
-		return null;
+		return requestTable.get(Long.valueOf(requestId));
 	}
 
 	/**
@@ -2102,9 +2143,7 @@ public class RegistrySharedObject extends BaseSharedObject implements IRemoteSer
 	 * @since 3.2
 	 */
 	protected boolean removeRequest(Request request) {
-		synchronized (requests) {
-			return requests.remove(request);
-		}
+		return requestTable.remove(Long.valueOf(request.getRequestId()), request);
 	}
 
 	protected void logException(int code, String message, Throwable e) {
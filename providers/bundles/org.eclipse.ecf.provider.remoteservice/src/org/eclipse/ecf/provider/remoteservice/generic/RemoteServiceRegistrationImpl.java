@@ -56,6 +56,8 @@ public class RemoteServiceRegistrationImpl implements IRemoteServiceRegistration
 
 	protected transient RegistrySharedObject sharedObject = null;
 
+	private transient MethodDispatchTable dispatchTable;
+
 	/**
 	 * @since 3.0
 	 */
@@ -86,6 +88,7 @@ public class RemoteServiceRegistrationImpl implements IRemoteServiceRegistration
 		this.clazzes = clzzes;
 		this.reference = new RemoteServiceReferenceImpl(this);
 		setClassLoader(svc.getClass().getClassLoader());
+		this.dispatchTable = new MethodDispatchTable(svc.getClass());
 		synchronized (registry) {
 			ID containerID = registry.getContainerID();
 			if (containerID == null)
@@ -100,6 +103,13 @@ public class RemoteServiceRegistrationImpl implements IRemoteServiceRegistration
 		return service;
 	}
 
+	MethodDispatchTable.Invoker getInvoker(String methodName, Object[] args) throws NoSuchMethodException {
+		MethodDispatchTable table = dispatchTable;
+		if (table == null)
+			dispatchTable = table = new MethodDispatchTable(service.getClass());
+		return table.lookup(methodName, args);
+	}
+
 	public ID getContainerID() {
 		return (remoteServiceID == null) ? null : remoteServiceID.getContainerID();
 	}
@@ -0,0 +1,130 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.remoteservice.generic;
+
+import java.io.IOException;
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.provider.generic.codec.*;
+
+/**
+ * {@link ITypeCodec}s for the requests, responses and calls exchanged by {@link RegistrySharedObject}s,
+ * so that they are written by the {@link CompactMessageCodec} rather than Java serialized.
+ *
+ * @since 4.7
+ */
+public final class RemoteServiceTypeCodecs {
+
+	private static final ITypeCodec[] typeCodecs = new ITypeCodec[] {new RequestCodec(), new ResponseCodec(), new RemoteCallCodec()};
+
+	private RemoteServiceTypeCodecs() {
+		// no instances
+	}
+
+	/**
+	 * Add the type codecs to the default {@link CompactMessageCodec}.
+	 */
+	public static void register() {
+		for (int i = 0; i < typeCodecs.length; i++)
+			CompactMessageCodec.getDefault().addTypeCodec(typeCodecs[i]);
+	}
+
+	/**
+	 * Remove the type codecs from the default {@link CompactMessageCodec}.
+	 */
+	public static void unregister() {
+		for (int i = 0; i < typeCodecs.length; i++)
+			CompactMessageCodec.getDefault().removeTypeCodec(typeCodecs[i]);
+	}
+
+	static final class RequestCodec implements ITypeCodec {
+		public Class<?> getType() {
+			return Request.class;
+		}
+
+		public String getTypeName() {
+			return Request.class.getName();
+		}
+
+		public void write(CompactOutput out, Object value) throws IOException {
+			final Request request = (Request) value;
+			out.writeVarLong(request.requestId);
+			out.writeValue(request.requestContainerID);
+			out.writeVarLong(request.serviceId);
+			out.writeValue(request.call);
+			out.writeValue(request.response);
+			out.writeBoolean(request.done);
+		}
+
+		public Object read(CompactInput in) throws IOException, ClassNotFoundException {
+			final long requestId = in.readVarLong();
+			final ID requestContainerID = (ID) in.readValue();
+			final long serviceId = in.readVarLong();
+			final Request request = new Request(requestContainerID, serviceId, (RemoteCallImpl) in.readValue());
+			request.requestId = requestId;
+			request.response = (Response) in.readValue();
+			request.done = in.readBoolean();
+			return request;
+		}
+	}
+
+	static final class ResponseCodec implements ITypeCodec {
+		public Class<?> getType() {
+			return Response.class;
+		}
+
+		public String getTypeName() {
+			return Response.class.getName();
+		}
+
+		public void write(CompactOutput out, Object value) throws IOException {
+			final Response response = (Response) value;
+			out.writeVarLong(response.requestId);
+			out.writeValue(response.response);
+			out.writeValue(response.exception);
+		}
+
+		public Object read(CompactInput in) throws IOException, ClassNotFoundException {
+			final long requestId = in.readVarLong();
+			final Object result = in.readValue();
+			final Throwable exception = (Throwable) in.readValue();
+			final Response response = new Response(requestId, result);
+			response.exception = exception;
+			return response;
+		}
+	}
+
+	static final class RemoteCallCodec implements ITypeCodec {
+		public Class<?> getType() {
+			return RemoteCallImpl.class;
+		}
+
+		public String getTypeName() {
+			return RemoteCallImpl.class.getName();
+		}
+
+		public void write(CompactOutput out, Object value) throws IOException {
+			final RemoteCallImpl call = (RemoteCallImpl) value;
+			out.writeValue(call.getClassName());
+			out.writeValue(call.getMethod());
+			out.writeValue(call.getParameters());
+			out.writeVarLong(call.getTimeout());
+		}
+
+		public Object read(CompactInput in) throws IOException, ClassNotFoundException {
+			final String className = (String) in.readValue();
+			final String method = (String) in.readValue();
+			final Object[] parameters = (Object[]) in.readValue();
+			return RemoteCallImpl.createRemoteCall(className, method, parameters, in.readVarLong());
+		}
+	}
+}
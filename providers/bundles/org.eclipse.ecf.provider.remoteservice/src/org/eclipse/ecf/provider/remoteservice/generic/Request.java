@@ -12,6 +12,7 @@
 package org.eclipse.ecf.provider.remoteservice.generic;
 
 import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
 import org.eclipse.ecf.core.identity.ID;
 import org.eclipse.ecf.remoteservice.IRemoteCallListener;
 
@@ -35,6 +36,8 @@ public class Request implements Serializable {
 
 	transient IRemoteCallListener listener = null;
 
+	private transient CompletableFuture<Response> completion;
+
 	private synchronized static long getNextRequestId() {
 		long result = nextRequestId;
 		nextRequestId = (nextRequestId == Long.MAX_VALUE) ? 0L : nextRequestId + 1;
@@ -89,6 +92,37 @@ public class Request implements Serializable {
 		return listener;
 	}
 
+	/**
+	 * Set the response and mark this request as done, unless it is done already.
+	 * 
+	 * @param response the response.  May be <code>null</code> if the request timed out.
+	 * @return true if this request was completed, false if it was already done
+	 * @since 4.7
+	 */
+	protected boolean complete(Response response) {
+		final CompletableFuture<Response> future;
+		synchronized (this) {
+			if (done)
+				return false;
+			this.response = response;
+			this.done = true;
+			notifyAll();
+			future = completion;
+		}
+		if (future != null)
+			future.complete(response);
+		return true;
+	}
+
+	synchronized CompletableFuture<Response> getCompletion() {
+		if (completion == null) {
+			completion = new CompletableFuture<Response>();
+			if (done)
+				completion.complete(response);
+		}
+		return completion;
+	}
+
 	public String toString() {
 		final StringBuffer buf = new StringBuffer("Request["); //$NON-NLS-1$
 		buf.append("requestId=").append(requestId).append(";cont=").append( //$NON-NLS-1$ //$NON-NLS-2$
@@ -0,0 +1,138 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.remoteservice.generic;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.equinox.concurrent.future.*;
+
+/**
+ * Executor of remote call requests on a {@link ExecutorService}, for the <code>virtual</code> and
+ * <code>pooled</code> executor types of {@link RegistrySharedObject}.
+ * <p>
+ * The <code>virtual</code> type runs every request on a virtual thread of its own, so that a host can
+ * serve a great many concurrent calls that block.  Virtual threads need Java 21, and the
+ * <code>pooled</code> type is used instead on older runtimes.  The <code>pooled</code> type runs requests
+ * on a bounded pool of threads, with a bounded queue of waiting requests.  Requests beyond that are
+ * rejected with a {@link RejectedExecutionException}, which is sent back as the response.
+ * <p>
+ * Subclasses of {@link RegistrySharedObject} may return a pool with other sizes from
+ * {@link RegistrySharedObject#createRequestExecutor(Request)}, created with
+ * {@link #createPool(String, int, int)}.
+ *
+ * @since 4.7
+ */
+public final class RequestExecutor extends AbstractExecutor {
+
+	static final String VIRTUAL = "virtual"; //$NON-NLS-1$
+	static final String POOLED = "pooled"; //$NON-NLS-1$
+
+	private static final int DEFAULT_THREADS = Integer.parseInt(System.getProperty("org.eclipse.ecf.provider.remoteservice.executorThreads", "32")); //$NON-NLS-1$ //$NON-NLS-2$
+	private static final int DEFAULT_QUEUE_SIZE = Integer.parseInt(System.getProperty("org.eclipse.ecf.provider.remoteservice.executorQueueSize", "1000")); //$NON-NLS-1$ //$NON-NLS-2$
+
+	private final ExecutorService executorService;
+	private final String type;
+
+	private RequestExecutor(ExecutorService executorService, String type) {
+		this.executorService = executorService;
+		this.type = type;
+	}
+
+	/**
+	 * @param type {@link #VIRTUAL} or {@link #POOLED}
+	 * @param name prefix of the names of the threads
+	 * @return the executor for the given type
+	 */
+	static RequestExecutor create(String type, String name) {
+		if (VIRTUAL.equals(type)) {
+			final ExecutorService virtual = createVirtualThreadExecutor();
+			if (virtual != null)
+				return new RequestExecutor(virtual, VIRTUAL);
+		}
+		return createPool(name, DEFAULT_THREADS, DEFAULT_QUEUE_SIZE);
+	}
+
+	/**
+	 * Create an executor that runs requests on a bounded pool of threads.
+	 *
+	 * @param name prefix of the names of the threads
+	 * @param threads the maximum number of threads.  At least one thread is used.
+	 * @param queueSize the maximum number of requests waiting for a thread.  With 0 or less
+	 * no request waits, and requests are rejected while all threads are busy.
+	 * @return the executor
+	 */
+	public static RequestExecutor createPool(String name, int threads, int queueSize) {
+		return new RequestExecutor(createPoolService(name, threads, queueSize), POOLED);
+	}
+
+	private static ExecutorService createVirtualThreadExecutor() {
+		try {
+			final Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor"); //$NON-NLS-1$
+			return (ExecutorService) m.invoke(null);
+		} catch (final Exception e) {
+			// Virtual threads are not available before Java 21
+			return null;
+		}
+	}
+
+	private static ExecutorService createPoolService(final String name, int threads, int queueSize) {
+		final int max = Math.max(1, threads);
+		final BlockingQueue<Runnable> queue = (queueSize > 0) ? new ArrayBlockingQueue<Runnable>(queueSize) : new SynchronousQueue<Runnable>();
+		final ThreadPoolExecutor pool = new ThreadPoolExecutor(max, max, 60L, TimeUnit.SECONDS, queue, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				final Thread t = new Thread(r, name + ":" + count.incrementAndGet()); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	/**
+	 * @return {@link #VIRTUAL} or {@link #POOLED}
+	 */
+	String getType() {
+		return type;
+	}
+
+	protected AbstractFuture<?> createFuture(IProgressMonitor monitor) {
+		return new SingleOperationFuture(monitor);
+	}
+
+	/**
+	 * @throws RejectedExecutionException if the request cannot be queued, or the executor is shut down
+	 */
+	@SuppressWarnings("unchecked")
+	public <ResultType> IFuture<ResultType> execute(final IProgressRunnable<? extends ResultType> runnable, IProgressMonitor monitor) {
+		final SingleOperationFuture<ResultType> sof = (SingleOperationFuture<ResultType>) createFuture(monitor);
+		executorService.execute(new Runnable() {
+			public void run() {
+				sof.runWithProgress(runnable);
+			}
+		});
+		return sof;
+	}
+
+	/**
+	 * Shut down the executor.  Requests already executing or waiting are run, and later ones
+	 * are rejected.
+	 */
+	public void shutdown() {
+		executorService.shutdown();
+	}
+}
@@ -0,0 +1,165 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.remoteservice.generic;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.ecf.internal.provider.remoteservice.Activator;
+
+/**
+ * Hashed timer wheel that expires the outstanding requests of a {@link RegistrySharedObject}.
+ * Scheduling and expiring a request are constant time, and a request that is done before
+ * its deadline is dropped when its slot comes around, so it never has to be cancelled.
+ * The wheel thread is started with the first request, and waits without ticking while no
+ * requests are scheduled.
+ */
+final class RequestTimeoutWheel implements Runnable {
+
+	interface Expiry {
+		void expire(Request request);
+	}
+
+	private static final int WHEEL_SIZE = 512;
+
+	private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("org.eclipse.ecf.provider.remoteservice.timeoutTick", 50).longValue()); //$NON-NLS-1$
+
+	private static final class Timeout {
+		final Request request;
+		final long deadline;
+		long rounds;
+		Timeout next;
+
+		Timeout(Request request, long deadline) {
+			this.request = request;
+			this.deadline = deadline;
+		}
+	}
+
+	private final String name;
+	private final Expiry expiry;
+	private final ConcurrentLinkedQueue<Timeout> incoming = new ConcurrentLinkedQueue<Timeout>();
+	// Only used by the wheel thread
+	private final Timeout[] wheel = new Timeout[WHEEL_SIZE];
+	private int scheduled;
+	private long startTime;
+	private long tick;
+	// Guarded by this
+	private Thread thread;
+	private boolean idle;
+	private boolean stopped;
+
+	RequestTimeoutWheel(String name, Expiry expiry) {
+		this.name = name;
+		this.expiry = expiry;
+	}
+
+	/**
+	 * Expire the given request after timeout milliseconds, unless it is done by then.
+	 *
+	 * @param request the request
+	 * @param timeout the timeout in milliseconds
+	 */
+	void schedule(Request request, long timeout) {
+		incoming.add(new Timeout(request, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout)));
+		synchronized (this) {
+			if (stopped)
+				return;
+			if (thread == null) {
+				thread = new Thread(this, name);
+				thread.setDaemon(true);
+				thread.start();
+			} else if (idle)
+				notify();
+		}
+	}
+
+	void stop() {
+		synchronized (this) {
+			stopped = true;
+			notify();
+		}
+		incoming.clear();
+	}
+
+	public void run() {
+		startTime = System.nanoTime();
+		while (true) {
+			synchronized (this) {
+				try {
+					while (!stopped && scheduled == 0 && incoming.isEmpty()) {
+						idle = true;
+						wait();
+						idle = false;
+						// Carry on from the current tick
+						startTime = System.nanoTime() - tick * TICK_NANOS;
+					}
+					long sleep;
+					while (!stopped && (sleep = startTime + (tick + 1) * TICK_NANOS - System.nanoTime()) > 0)
+						TimeUnit.NANOSECONDS.timedWait(this, sleep);
+				} catch (final InterruptedException e) {
+					stopped = true;
+				}
+				if (stopped) {
+					thread = null;
+					return;
+				}
+			}
+			transferIncoming();
+			expireTimeouts(System.nanoTime());
+			tick++;
+		}
+	}
+
+	private void transferIncoming() {
+		Timeout timeout;
+		while ((timeout = incoming.poll()) != null) {
+			long ticks = (timeout.deadline - startTime + TICK_NANOS - 1) / TICK_NANOS;
+			if (ticks < tick)
+				ticks = tick;
+			timeout.rounds = (ticks - tick) / WHEEL_SIZE;
+			final int index = (int) (ticks & (WHEEL_SIZE - 1));
+			timeout.next = wheel[index];
+			wheel[index] = timeout;
+			scheduled++;
+		}
+	}
+
+	private void expireTimeouts(long now) {
+		final int index = (int) (tick & (WHEEL_SIZE - 1));
+		Timeout timeout = wheel[index];
+		Timeout kept = null;
+		while (timeout != null) {
+			final Timeout next = timeout.next;
+			if (timeout.request.isDone()) {
+				scheduled--;
+			} else if (timeout.rounds > 0 || timeout.deadline - now > 0) {
+				if (timeout.rounds > 0)
+					timeout.rounds--;
+				timeout.next = kept;
+				kept = timeout;
+			} else {
+				scheduled--;
+				try {
+					expiry.expire(timeout.request);
+				} catch (final RuntimeException e) {
+					// Log and keep expiring the other requests
+					Activator.getDefault().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, IStatus.ERROR, "Exception expiring requestId=" + timeout.request.getRequestId(), e)); //$NON-NLS-1$
+				}
+			}
+			timeout = next;
+		}
+		wheel[index] = kept;
+	}
+}
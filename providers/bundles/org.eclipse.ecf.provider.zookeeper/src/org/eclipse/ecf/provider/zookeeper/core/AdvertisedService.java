@@ -186,7 +186,22 @@ public class AdvertisedService extends ServiceInfo implements INode, IService {
 	}
 
 	public String getAbsolutePath() {
-		return INode.ROOT_SLASH + getPath();
+		return getParentPath() + INode.SLASH + getPath();
+	}
+
+	/**
+	 * @return the absolute path of the node this service is published in.
+	 *         This is the root node, unless the sharded layout is configured,
+	 *         in which case all services of this ZooDiscovery instance share
+	 *         the same shard.
+	 */
+	public String getParentPath() {
+		if (!ZooDiscoveryContainer.shardedLayout()) {
+			return INode.ROOT;
+		}
+		int shard = Configurator.INSTANCE.getID().getName().hashCode()
+				% INode.SHARDS;
+		return INode.ROOT_SLASH + INode.SHARD_PREFIX + Math.abs(shard);
 	}
 
 	public boolean isLocalNode() {
@@ -42,6 +42,19 @@ public interface IDiscoveryConfig {
 
 	String ZOODISCOVERY_CONSOLELOG = "consoleLog"; //$NON-NLS-1$
 
+	/**
+	 * If found, each instance publishes its services in one of a fixed number
+	 * of shard nodes below the root node, so that readers only list the shard
+	 * that changed. Otherwise services are published directly below the root
+	 * node. Readers of this version read both layouts, but earlier versions
+	 * only read the root node, so set this only once all instances of a
+	 * cluster have been updated. Value is not relevant, only the definition.
+	 * OPTIONAL
+	 * 
+	 * @since 1.1
+	 **/
+	String ZOODISCOVERY_SHARDED_LAYOUT = "shardedLayout"; //$NON-NLS-1$
+
 	/** The number of milliseconds of each tick. OPTIONAL **/
 	String ZOOKEEPER_TICKTIME = "tickTime"; //$NON-NLS-1$
 
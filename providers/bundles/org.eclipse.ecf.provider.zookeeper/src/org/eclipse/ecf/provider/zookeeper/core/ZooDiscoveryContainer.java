@@ -110,6 +110,15 @@ public class ZooDiscoveryContainer extends AbstractDiscoveryContainerAdapter {
 		return System.getProperty(DefaultDiscoveryConfig.ZOODISCOVERY_PREFIX + DefaultDiscoveryConfig.ZOOKEEPER_AUTOSTART) != null;
 	}
 
+	/**
+	 * @return true if services are published in shards instead of directly
+	 *         below the root node.
+	 * @see IDiscoveryConfig#ZOODISCOVERY_SHARDED_LAYOUT
+	 */
+	public static boolean shardedLayout() {
+		return System.getProperty(DefaultDiscoveryConfig.ZOODISCOVERY_PREFIX + IDiscoveryConfig.ZOODISCOVERY_SHARDED_LAYOUT) != null;
+	}
+
 	public synchronized static ZooDiscoveryContainer getSingleton() {
 		if (discovery == null) {
 			discovery = new ZooDiscoveryContainer();
@@ -20,6 +20,13 @@ public interface INode {
 	String ROOT = "/zoodiscovery_root";//$NON-NLS-1$
 	String SLASH = "/";//$NON-NLS-1$
 	String ROOT_SLASH = ROOT + SLASH;
+	/*
+	 * prefix of the persistent nodes below ROOT that services are published
+	 * in, so that a change only concerns the readers of one shard
+	 */
+	String SHARD_PREFIX = "_shard_";//$NON-NLS-1$
+	// number of shards that ZooDiscovery instances are spread over
+	int SHARDS = 64;
 	String _URI_ = "_uri_";//$NON-NLS-1$
 	int ID_POSITION = 0;
 	int URI_POSITION = 1;
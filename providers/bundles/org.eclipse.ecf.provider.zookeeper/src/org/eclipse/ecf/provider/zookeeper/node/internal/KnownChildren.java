@@ -0,0 +1,159 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.provider.zookeeper.node.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The children of {@link INode#ROOT} and of its shards as they were last
+ * listed. Each new listing of a parent is compared with the previous one, so
+ * that {@link ReadRoot} only reads the nodes that were added and stops
+ * reading those that were removed. Not thread safe.
+ */
+public class KnownChildren {
+
+	/**
+	 * The difference between two listings. All paths are absolute.
+	 */
+	public static class Change {
+		private final List<String> addedShards = new ArrayList<String>();
+		private final List<String> addedNodes = new ArrayList<String>();
+		private final List<String> removedNodes = new ArrayList<String>();
+
+		/**
+		 * @return the shards that were added below the root, and whose
+		 *         children have to be listed
+		 */
+		public List<String> getAddedShards() {
+			return addedShards;
+		}
+
+		/**
+		 * @return the service nodes that were added
+		 */
+		public List<String> getAddedNodes() {
+			return addedNodes;
+		}
+
+		/**
+		 * @return the service nodes that were removed, including those of
+		 *         shards that were removed
+		 */
+		public List<String> getRemovedNodes() {
+			return removedNodes;
+		}
+	}
+
+	// key: absolute path of a parent, value: its children when last listed
+	private final Map<String, Set<String>> children = new HashMap<String, Set<String>>();
+	// key: absolute path of a parent, value: the child version of the last
+	// listing, so that a listing handled out of order is ignored
+	private final Map<String, Integer> versions = new HashMap<String, Integer>();
+
+	/**
+	 * @param parentPath
+	 *            absolute path of the parent that was listed
+	 * @param list
+	 *            the names of its children
+	 * @param cversion
+	 *            the child version of the parent when it was listed
+	 * @return what changed since the last listing of the parent, or
+	 *         <code>null</code> if a newer listing has been handled already
+	 */
+	public Change update(String parentPath, List<String> list, int cversion) {
+		Integer last = versions.get(parentPath);
+		if (last != null && last.intValue() > cversion) {
+			return null;
+		}
+		versions.put(parentPath, Integer.valueOf(cversion));
+		Change change = new Change();
+		update(parentPath, list, change);
+		return change;
+	}
+
+	/**
+	 * @param parentPath
+	 *            absolute path of a parent that no longer exists
+	 * @return the nodes that went away with it
+	 */
+	public Change remove(String parentPath) {
+		versions.remove(parentPath);
+		Change change = new Change();
+		update(parentPath, Collections.<String> emptyList(), change);
+		return change;
+	}
+
+	/**
+	 * @param parentPath
+	 *            absolute path of a parent
+	 * @return the names of its children when it was last listed
+	 */
+	public Set<String> get(String parentPath) {
+		Set<String> known = children.get(parentPath);
+		if (known == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(known);
+	}
+
+	public void clear() {
+		children.clear();
+		versions.clear();
+	}
+
+	private void update(String parentPath, Collection<String> list,
+			Change change) {
+		Set<String> previous = children.get(parentPath);
+		if (previous == null) {
+			previous = Collections.emptySet();
+		}
+		Set<String> current = new HashSet<String>(list);
+		boolean isRoot = INode.ROOT.equals(parentPath);
+		if (current.isEmpty() && !isRoot) {
+			children.remove(parentPath);
+		} else {
+			children.put(parentPath, current);
+		}
+		for (String child : current) {
+			if (previous.contains(child)) {
+				continue;
+			}
+			String childPath = parentPath + INode.SLASH + child;
+			if (isRoot && child.startsWith(INode.SHARD_PREFIX)) {
+				change.addedShards.add(childPath);
+			} else {
+				change.addedNodes.add(childPath);
+			}
+		}
+		for (String child : previous) {
+			if (current.contains(child)) {
+				continue;
+			}
+			String childPath = parentPath + INode.SLASH + child;
+			if (isRoot && child.startsWith(INode.SHARD_PREFIX)) {
+				/* the nodes of a removed shard are gone as well */
+				versions.remove(childPath);
+				update(childPath, Collections.<String> emptyList(), change);
+			} else {
+				change.removedNodes.add(childPath);
+			}
+		}
+	}
+}
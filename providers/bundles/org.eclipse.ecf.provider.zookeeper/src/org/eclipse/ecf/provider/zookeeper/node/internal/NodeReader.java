@@ -36,6 +36,7 @@ public class NodeReader implements Watcher,
 		org.apache.zookeeper.AsyncCallback.DataCallback {
 
 	private String path;
+	private final String parentPath;
 	private DiscoverdService discovered;
 	private ZooKeeper zookeeper;
 	private String ip;
@@ -43,15 +44,26 @@ public class NodeReader implements Watcher,
 	private boolean isDisposed;
 	private ReadRoot readRoot;
 
-	public NodeReader(String path, ReadRoot readRoot) {
+	/**
+	 * @param parentPath
+	 *            absolute path of the node's parent, either {@link INode#ROOT}
+	 *            or a shard below it
+	 * @param path
+	 *            name of the node
+	 * @param readRoot
+	 *            the reader of the parent
+	 */
+	public NodeReader(String parentPath, String path, ReadRoot readRoot) {
+		Assert.isNotNull(parentPath);
 		Assert.isNotNull(path);
 		Assert.isNotNull(readRoot);
 		this.readRoot = readRoot;
+		this.parentPath = parentPath;
 		this.path = path;
 		this.zookeeper = readRoot.getReadKeeper();
 		this.ip = readRoot.getIp();
+		/* the data watch also reports the deletion of the node */
 		this.zookeeper.getData(getAbsolutePath(), this, this, null);
-		this.zookeeper.exists(getAbsolutePath(), this, null, null);
 	}
 
 	public void setPath(String path) {
@@ -63,7 +75,7 @@ public class NodeReader implements Watcher,
 	}
 
 	public String getAbsolutePath() {
-		return INode.ROOT_SLASH + getPath();
+		return this.parentPath + INode.SLASH + getPath();
 	}
 
 	public synchronized void processResult(int rc, String p, Object ctx,
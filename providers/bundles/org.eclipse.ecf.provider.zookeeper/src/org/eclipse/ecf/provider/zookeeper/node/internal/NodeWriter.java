@@ -53,6 +53,8 @@ public class NodeWriter {
 	public synchronized void publish() {
 		try {
 			String parentPath = this.getNode().getAbsolutePath();
+			createShard(parentPath.substring(0,
+					parentPath.lastIndexOf(INode.SLASH)));
 			Stat stat = this.writeRoot.getWriteKeeper().exists(parentPath,
 					false);
 			if (stat == null) {
@@ -74,6 +76,25 @@ public class NodeWriter {
 		}
 	}
 
+	/**
+	 * Creates the shard the node is published in, unless it is the root or
+	 * exists already. Shards are persistent and shared by the ZooDiscovery
+	 * instances that hash to them, so they are never deleted.
+	 */
+	private void createShard(String shardPath) throws KeeperException,
+			InterruptedException {
+		if (INode.ROOT.equals(shardPath)
+				|| this.writeRoot.getWriteKeeper().exists(shardPath, false) != null) {
+			return;
+		}
+		try {
+			this.writeRoot.getWriteKeeper().create(shardPath, new byte[0],
+					Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+		} catch (KeeperException.NodeExistsException e) {
+			// created concurrently by another instance
+		}
+	}
+
 	public synchronized void remove() {
 		if (this.writeRoot.isConnected()) {
 			try {
@@ -19,10 +19,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.zookeeper.AsyncCallback.ChildrenCallback;
+import org.apache.zookeeper.AsyncCallback.Children2Callback;
+import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.ecf.provider.zookeeper.core.DiscoverdService;
 import org.eclipse.ecf.provider.zookeeper.core.ZooDiscoveryContainer;
@@ -30,13 +32,24 @@ import org.eclipse.ecf.provider.zookeeper.util.Geo;
 import org.eclipse.ecf.provider.zookeeper.util.Logger;
 import org.osgi.service.log.LogService;
 
-public class ReadRoot implements Watcher, ChildrenCallback {
+/**
+ * Reads the services published below {@link INode#ROOT}. Services are
+ * published directly below the root, or in shard nodes below it (see
+ * {@link INode#SHARD_PREFIX}) by instances that use the sharded layout. Each
+ * parent is watched for changes of its children on its own, and the new list
+ * of children is compared with the previous one, so a change only re-lists
+ * the parent it happened in and only reads the nodes that were added.
+ */
+public class ReadRoot implements Watcher, Children2Callback {
 	ZooKeeper readKeeper;
 	String ip;
 	private final WatchManager watchManager;
 	private boolean isConnected;
+	// key: absolute path of a service node
 	private final Map<String, NodeReader> nodeReaders = Collections
 			.synchronizedMap(new HashMap<String, NodeReader>());
+	// Guarded by connectionLock.
+	private final KnownChildren knownChildren = new KnownChildren();
 	private final Map<String, DiscoverdService> discoverdServices;
 	private final Map<String, List<DiscoverdService>> perTypeDiscoverdServices;
 	private final Object connectionLock = new Object();
@@ -76,10 +89,7 @@ public class ReadRoot implements Watcher, ChildrenCallback {
 							ReadRoot.this.isConnected = true;
 							ReadRoot.this.watchManager
 									.addZooKeeper(ReadRoot.this.readKeeper);
-							ReadRoot.this.readKeeper.exists(INode.ROOT,
-									ReadRoot.this, null, null);
-							ReadRoot.this.readKeeper.getChildren(INode.ROOT,
-									ReadRoot.this, ReadRoot.this, null);
+							listChildren(INode.ROOT);
 						}
 						break;
 
@@ -93,11 +103,10 @@ public class ReadRoot implements Watcher, ChildrenCallback {
 						ReadRoot.this.nodeReaders.remove(event.getPath());
 						break;
 					case NodeChildrenChanged:
-						if (ReadRoot.this.isConnected) {
-							ReadRoot.this.readKeeper.exists(INode.ROOT,
-									ReadRoot.this, null, null);
-							ReadRoot.this.readKeeper.getChildren(INode.ROOT,
-									ReadRoot.this, ReadRoot.this, null);
+						if (ReadRoot.this.isConnected
+								&& event.getPath() != null) {
+							/* only the parent that changed is listed again */
+							listChildren(event.getPath());
 						}
 						break;
 					}
@@ -106,12 +115,18 @@ public class ReadRoot implements Watcher, ChildrenCallback {
 		});
 	}
 
+	private void listChildren(String parentPath) {
+		ReadRoot.this.readKeeper.getChildren(parentPath, ReadRoot.this,
+				ReadRoot.this, null);
+	}
+
 	private void connect() {
 		synchronized (connectionLock) {
 			if (this.isConnected || watchManager.isDisposed())
 				return;
 
 			this.nodeReaders.clear();
+			this.knownChildren.clear();
 			if (this.readKeeper != null) {
 				// discard the current stale reader
 				try {
@@ -136,37 +151,65 @@ public class ReadRoot implements Watcher, ChildrenCallback {
 		}
 	}
 
-	public void processResult(int rc, final String path, Object ctx,
-			final List<String> children) {
+	public void processResult(final int rc, final String path, Object ctx,
+			final List<String> children, final Stat stat) {
 		ZooDiscoveryContainer.CACHED_THREAD_POOL.execute(new Runnable() {
 			public void run() {
 				synchronized (connectionLock) {
-					if (watchManager.isDisposed())
-						return;
-					if (path == null || children == null
-							|| children.size() == 0) {
+					if (watchManager.isDisposed() || path == null)
 						return;
-					}
-					for (String p : children) {
-						if (Geo.isOwnPublication(p)) {
-							/* own publications need not to be discovered */
-							continue;
-						}
-						if (!ReadRoot.this.nodeReaders.containsKey(p)) {
-							/* launch a new reader to handle this node's data */
-							NodeReader nr = new NodeReader(p, ReadRoot.this);
-							/* watch this very path for deletion */
-							ReadRoot.this.readKeeper.exists(
-									nr.getAbsolutePath(), ReadRoot.this, null,
-									null);
-							ReadRoot.this.nodeReaders.put(nr.getPath(), nr);
-						}
+					if (rc == KeeperException.Code.NONODE.intValue()) {
+						/* the parent is gone, and so are its children */
+						updateChildren(knownChildren.remove(path));
+					} else if (rc == KeeperException.Code.OK.intValue()
+							&& children != null && stat != null) {
+						/* null if a newer listing has been handled already */
+						updateChildren(knownChildren.update(path, children,
+								stat.getCversion()));
 					}
 				}
 			}
 		});
 	}
 
+	/**
+	 * Starts reading the nodes that were added to a parent, lists the shards
+	 * that were added and stops reading the nodes that were removed. Must be
+	 * called with the connection lock held.
+	 */
+	private void updateChildren(KnownChildren.Change change) {
+		if (change == null) {
+			return;
+		}
+		for (String shardPath : change.getAddedShards()) {
+			/* a new shard, watch its children */
+			listChildren(shardPath);
+		}
+		for (String childPath : change.getAddedNodes()) {
+			int slash = childPath.lastIndexOf(INode.SLASH);
+			String child = childPath.substring(slash + 1);
+			if (Geo.isOwnPublication(child)) {
+				/* own publications need not to be discovered */
+				continue;
+			}
+			if (!nodeReaders.containsKey(childPath)) {
+				/*
+				 * launch a new reader to handle this node's data. The reader
+				 * watches the node for deletion.
+				 */
+				NodeReader nr = new NodeReader(childPath.substring(0, slash),
+						child, this);
+				nodeReaders.put(childPath, nr);
+			}
+		}
+		for (String childPath : change.getRemovedNodes()) {
+			NodeReader nr = nodeReaders.remove(childPath);
+			if (nr != null) {
+				nr.dispose();
+			}
+		}
+	}
+
 	public ZooKeeper getReadKeeper() {
 		return this.readKeeper;
 	}
@@ -182,4 +225,4 @@ public class ReadRoot implements Watcher, ChildrenCallback {
 	public Map<String, List<DiscoverdService>> getPerTypeDiscoverdServices() {
 		return perTypeDiscoverdServices;
 	}
-}
\ No newline at end of file
+}
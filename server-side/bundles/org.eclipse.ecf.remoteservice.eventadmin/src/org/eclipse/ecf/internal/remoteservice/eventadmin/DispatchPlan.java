@@ -0,0 +1,123 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+
+package org.eclipse.ecf.internal.remoteservice.eventadmin;
+
+import java.security.Permission;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.eclipse.osgi.framework.eventmgr.CopyOnWriteIdentityMap;
+import org.eclipse.osgi.framework.eventmgr.EventDispatcher;
+import org.eclipse.osgi.framework.eventmgr.EventManager;
+import org.eclipse.osgi.framework.eventmgr.ListenerQueue;
+import org.osgi.service.event.TopicPermission;
+
+/**
+ * The handlers subscribing to an event topic, along with the listener queue
+ * and permissions needed to dispatch events with that topic. A plan is
+ * created by {@link EventHandlerTracker#getDispatchPlan(String, EventManager)}
+ * and reused for every event with the topic until the handlers change.
+ */
+public class DispatchPlan {
+	private final EventManager manager;
+	private final boolean secured;
+	private final Set handlers;
+	private final Permission publishPermission;
+	private final ListenerQueue listenerQueue;
+
+	/**
+	 * Create a DispatchPlan.
+	 * 
+	 * @param topic
+	 *            The event topic
+	 * @param handlers
+	 *            The handlers subscribing to the topic
+	 * @param manager
+	 *            The event manager used for asynchronous dispatch
+	 * @param secured
+	 *            Whether a security manager is installed, in which case the
+	 *            topic permissions are created
+	 * @param dispatcher
+	 *            The dispatcher that delivers events to the handlers
+	 */
+	DispatchPlan(String topic, Set handlers, EventManager manager,
+			boolean secured, EventDispatcher dispatcher) {
+		this.manager = manager;
+		this.secured = secured;
+		this.handlers = Collections.unmodifiableSet(handlers);
+		this.publishPermission = secured ? new TopicPermission(topic,
+				TopicPermission.PUBLISH) : null;
+		if (handlers.isEmpty()) {
+			listenerQueue = null;
+		} else {
+			Permission perm = secured ? new TopicPermission(topic,
+					TopicPermission.SUBSCRIBE) : null;
+			CopyOnWriteIdentityMap listeners = new CopyOnWriteIdentityMap();
+			for (Iterator i = handlers.iterator(); i.hasNext();) {
+				listeners.put(i.next(), perm);
+			}
+			// the queue becomes read only once dispatched, and can then be
+			// dispatched from any number of threads
+			listenerQueue = new ListenerQueue(manager);
+			listenerQueue.queueListeners(listeners.entrySet(), dispatcher);
+		}
+	}
+
+	/**
+	 * @param eventManager
+	 *            The current event manager
+	 * @param isSecured
+	 *            Whether a security manager is currently installed
+	 * @return true if this plan can still be used
+	 */
+	boolean isValid(EventManager eventManager, boolean isSecured) {
+		return manager == eventManager && secured == isSecured;
+	}
+
+	/**
+	 * @return The unmodifiable set of handlers subscribing to the topic
+	 */
+	public Set getHandlers() {
+		return handlers;
+	}
+
+	/**
+	 * @return The permission to publish the topic, or null if no security
+	 *         manager was installed when the plan was created
+	 */
+	public Permission getPublishPermission() {
+		return publishPermission;
+	}
+
+	/**
+	 * Dispatch an event to the handlers subscribing to its topic.
+	 * 
+	 * @param event
+	 *            The event to dispatch
+	 * @param isAsync
+	 *            true to dispatch on the event manager's thread, false to
+	 *            dispatch on the calling thread
+	 */
+	public void dispatch(Object event, boolean isAsync) {
+		if (listenerQueue == null) {
+			return;
+		}
+		if (isAsync) {
+			listenerQueue.dispatchEventAsynchronous(0, event);
+		} else {
+			listenerQueue.dispatchEventSynchronous(0, event);
+		}
+	}
+}
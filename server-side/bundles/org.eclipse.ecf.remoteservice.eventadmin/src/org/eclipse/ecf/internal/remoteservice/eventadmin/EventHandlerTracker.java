@@ -15,13 +15,17 @@ package org.eclipse.ecf.internal.remoteservice.eventadmin;
 
 import java.security.Permission;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.osgi.framework.eventmgr.EventDispatcher;
+import org.eclipse.osgi.framework.eventmgr.EventManager;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.event.Event;
@@ -38,6 +42,11 @@ public class EventHandlerTracker extends ServiceTracker implements EventDispatch
 	private final Map partialWildcard;
 	// Map<String,List<EventHandlerWrapper>> key is topic name
 	private final Map topicName;
+	// Map<String,DispatchPlan> key is topic name. Cleared whenever the
+	// buckets change, so that it only holds plans for the current handlers.
+	private final Map plans = new ConcurrentHashMap();
+	// Bounds the plans kept for applications posting many distinct topics
+	private static final int MAX_PLANS = 1024;
 
 	public EventHandlerTracker(BundleContext context, LogService log) {
 		super(context, EventHandler.class.getName(), null);
@@ -50,50 +59,95 @@ public class EventHandlerTracker extends ServiceTracker implements EventDispatch
 	public Object addingService(ServiceReference reference) {
 		EventHandlerWrapper wrapper = new EventHandlerWrapper(reference,
 				context, log);
+		boolean changed = false;
 		synchronized (this) {
 			if (wrapper.init()) {
-				bucket(wrapper);
+				changed = bucket(wrapper);
 			}
 		}
+		if (changed) {
+			topicsChanged();
+		}
 		return wrapper;
 	}
 
 	public void modifiedService(ServiceReference reference, Object service) {
 		EventHandlerWrapper wrapper = (EventHandlerWrapper) service;
+		boolean changed;
+		boolean valid;
 		synchronized (this) {
-			unbucket(wrapper);
-			if (wrapper.init()) {
-				bucket(wrapper);
-				return;
+			changed = unbucket(wrapper);
+			valid = wrapper.init();
+			if (valid) {
+				changed = bucket(wrapper) || changed;
 			}
 		}
-
-		wrapper.flush(); // needs to be called outside sync region
+		if (changed) {
+			topicsChanged();
+		}
+		if (!valid) {
+			wrapper.flush(); // needs to be called outside sync region
+		}
 	}
 
 	public void removedService(ServiceReference reference, Object service) {
 		EventHandlerWrapper wrapper = (EventHandlerWrapper) service;
+		boolean changed;
 		synchronized (this) {
-			unbucket(wrapper);
+			changed = unbucket(wrapper);
+		}
+		if (changed) {
+			topicsChanged();
 		}
 		wrapper.flush(); // needs to be called outside sync region
 	}
 
+	/**
+	 * Called outside the sync region when the set of topics returned by
+	 * {@link #getTopics()} has changed. The default implementation does
+	 * nothing.
+	 */
+	protected void topicsChanged() {
+		// nop
+	}
+
+	/**
+	 * Return the topics that the tracked handlers subscribe to. Wildcard
+	 * topics are returned as they were registered, i.e. "*" or ending with
+	 * "/*".
+	 * 
+	 * @return the subscribed topics. Will not be <code>null</code>.
+	 */
+	public synchronized String[] getTopics() {
+		List topics = new ArrayList(topicName.keySet());
+		for (Iterator i = partialWildcard.keySet().iterator(); i.hasNext();) {
+			topics.add(i.next() + "/*"); //$NON-NLS-1$
+		}
+		if (globalWildcard.size() > 0) {
+			topics.add("*"); //$NON-NLS-1$
+		}
+		return (String[]) topics.toArray(new String[topics.size()]);
+	}
+
 	/**
 	 * Place the wrapper into the appropriate buckets. This is a performance
 	 * optimization for event delivery.
 	 * 
 	 * @param wrapper
 	 *            The wrapper to place in buckets.
+	 * @return true if a topic was added that no other handler subscribes to
 	 * @GuardedBy this
 	 */
-	private void bucket(EventHandlerWrapper wrapper) {
+	private boolean bucket(EventHandlerWrapper wrapper) {
+		plans.clear();
+		boolean changed = false;
 		final String[] topics = wrapper.getTopics();
 		final int length = (topics == null) ? 0 : topics.length;
 		for (int i = 0; i < length; i++) {
 			String topic = topics[i];
 			// global wildcard
 			if (topic.equals("*")) { //$NON-NLS-1$
+				changed |= globalWildcard.size() == 0;
 				globalWildcard.add(wrapper);
 			}
 			// partial wildcard
@@ -108,6 +162,7 @@ public class EventHandlerTracker extends ServiceTracker implements EventDispatch
 				if (wrappers == null) {
 					wrappers = new ArrayList();
 					partialWildcard.put(key, wrappers);
+					changed = true;
 				}
 				wrappers.add(wrapper);
 			}
@@ -117,10 +172,12 @@ public class EventHandlerTracker extends ServiceTracker implements EventDispatch
 				if (wrappers == null) {
 					wrappers = new ArrayList();
 					topicName.put(topic, wrappers);
+					changed = true;
 				}
 				wrappers.add(wrapper);
 			}
 		}
+		return changed;
 	}
 
 	/**
@@ -128,16 +185,21 @@ public class EventHandlerTracker extends ServiceTracker implements EventDispatch
 	 * 
 	 * @param wrapper
 	 *            The wrapper to remove from the buckets.
+	 * @return true if a topic was removed that no other handler subscribes to
 	 * @GuardedBy this
 	 */
-	private void unbucket(EventHandlerWrapper wrapper) {
+	private boolean unbucket(EventHandlerWrapper wrapper) {
+		plans.clear();
+		boolean changed = false;
 		final String[] topics = wrapper.getTopics();
 		final int length = (topics == null) ? 0 : topics.length;
 		for (int i = 0; i < length; i++) {
 			String topic = topics[i];
 			// global wilcard
 			if (topic.equals("*")) { //$NON-NLS-1$
-				globalWildcard.remove(wrapper);
+				if (globalWildcard.remove(wrapper)) {
+					changed |= globalWildcard.size() == 0;
+				}
 			}
 			// partial wildcard
 			else if (topic.endsWith("/*")) { //$NON-NLS-1$
@@ -152,6 +214,7 @@ public class EventHandlerTracker extends ServiceTracker implements EventDispatch
 					wrappers.remove(wrapper);
 					if (wrappers.size() == 0) {
 						partialWildcard.remove(key);
+						changed = true;
 					}
 				}
 			}
@@ -162,10 +225,41 @@ public class EventHandlerTracker extends ServiceTracker implements EventDispatch
 					wrappers.remove(wrapper);
 					if (wrappers.size() == 0) {
 						topicName.remove(topic);
+						changed = true;
 					}
 				}
 			}
 		}
+		return changed;
+	}
+
+	/**
+	 * Return the dispatch plan for the event topic. Plans are cached until the
+	 * handlers change, so events with the same topic are dispatched without
+	 * looking up the handlers again.
+	 * 
+	 * @param topic
+	 *            The event topic
+	 * @param manager
+	 *            The event manager used for asynchronous dispatch
+	 * @return the dispatch plan for the topic
+	 */
+	public DispatchPlan getDispatchPlan(final String topic,
+			EventManager manager) {
+		final boolean secured = System.getSecurityManager() != null;
+		DispatchPlan plan = (DispatchPlan) plans.get(topic);
+		if (plan != null && plan.isValid(manager, secured)) {
+			return plan;
+		}
+		synchronized (this) {
+			plan = new DispatchPlan(topic, collectHandlers(topic), manager,
+					secured, this);
+			if (plans.size() >= MAX_PLANS) {
+				plans.clear();
+			}
+			plans.put(topic, plan);
+		}
+		return plan;
 	}
 
 	/**
@@ -173,9 +267,22 @@ public class EventHandlerTracker extends ServiceTracker implements EventDispatch
 	 * used to ensure a handler is not called for an event more than once.
 	 * 
 	 * @param topic
-	 * @return a set of handlers
+	 * @return an unmodifiable set of handlers
+	 */
+	public Set getHandlers(final String topic) {
+		DispatchPlan plan = (DispatchPlan) plans.get(topic);
+		if (plan != null) {
+			return plan.getHandlers();
+		}
+		synchronized (this) {
+			return Collections.unmodifiableSet(collectHandlers(topic));
+		}
+	}
+
+	/**
+	 * @GuardedBy this
 	 */
-	public synchronized Set getHandlers(final String topic) {
+	private Set collectHandlers(final String topic) {
 		// Use a set to remove duplicates
 		Set handlers = new HashSet();
 
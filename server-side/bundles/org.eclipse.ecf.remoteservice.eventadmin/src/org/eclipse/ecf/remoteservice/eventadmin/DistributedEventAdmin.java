@@ -16,30 +16,40 @@ package org.eclipse.ecf.remoteservice.eventadmin;
 
 import java.io.IOException;
 import java.io.NotSerializableException;
-import java.security.Permission;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.ecf.core.IContainer;
+import org.eclipse.ecf.core.events.IContainerConnectedEvent;
+import org.eclipse.ecf.core.events.IContainerDisconnectedEvent;
+import org.eclipse.ecf.core.events.IContainerEjectedEvent;
 import org.eclipse.ecf.core.identity.ID;
 import org.eclipse.ecf.core.sharedobject.BaseSharedObject;
+import org.eclipse.ecf.core.sharedobject.SharedObjectInitException;
 import org.eclipse.ecf.core.sharedobject.SharedObjectMsg;
+import org.eclipse.ecf.core.sharedobject.events.ISharedObjectActivatedEvent;
 import org.eclipse.ecf.core.sharedobject.events.ISharedObjectCreateResponseEvent;
 import org.eclipse.ecf.core.sharedobject.events.ISharedObjectMessageEvent;
+import org.eclipse.ecf.core.util.IEventProcessor;
 import org.eclipse.ecf.internal.remoteservice.eventadmin.DefaultSerializationHandler;
+import org.eclipse.ecf.internal.remoteservice.eventadmin.DispatchPlan;
 import org.eclipse.ecf.internal.remoteservice.eventadmin.EventHandlerTracker;
-import org.eclipse.ecf.internal.remoteservice.eventadmin.EventHandlerWrapper;
 import org.eclipse.ecf.internal.remoteservice.eventadmin.LogTracker;
 import org.eclipse.ecf.remoteservice.eventadmin.serialization.SerializationHandler;
-import org.eclipse.osgi.framework.eventmgr.CopyOnWriteIdentityMap;
 import org.eclipse.osgi.framework.eventmgr.EventManager;
-import org.eclipse.osgi.framework.eventmgr.ListenerQueue;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceException;
 import org.osgi.framework.ServiceReference;
@@ -47,7 +57,6 @@ import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventHandler;
-import org.osgi.service.event.TopicPermission;
 import org.osgi.service.log.LogService;
 import org.osgi.util.tracker.ServiceTracker;
 import org.osgi.util.tracker.ServiceTrackerCustomizer;
@@ -73,6 +82,42 @@ public class DistributedEventAdmin extends BaseSharedObject implements
 	private final Map topic2serializationHandler = new HashMap();
 
 	private static final String SHARED_OBJECT_MESSAGE_METHOD = "__handlePostEventSharedObjectMsg";
+	private static final String SHARED_OBJECT_MESSAGES_METHOD = "__handlePostEventsSharedObjectMsg";
+	private static final String TOPIC_SUBSCRIPTIONS_METHOD = "__handleTopicSubscriptionsSharedObjectMsg";
+
+	// Map<ID,Set<String>> key is the container ID of a member, value is the
+	// topics that the EventHandlers of the member subscribe to
+	private final Map memberTopics = new HashMap();
+	private volatile boolean topicRouting = !Boolean
+			.getBoolean(DistributedEventAdmin.class.getName()
+					+ ".DisableTopicRouting");
+
+	private final Object batchLock = new Object();
+	// Held while a batch is taken and sent, so that batches are sent in order
+	private final Object batchSendLock = new Object();
+	// List<QueuedMessage> guarded by batchLock
+	private List batch = new ArrayList();
+	private ScheduledExecutorService batchExecutor;
+	private volatile long batchLinger = Long.getLong(
+			DistributedEventAdmin.class.getName() + ".BatchLinger", 0)
+			.longValue();
+	private volatile int maxBatchSize = Integer.getInteger(
+			DistributedEventAdmin.class.getName() + ".MaxBatchSize", 64)
+			.intValue();
+
+	/**
+	 * The message data of an event that is waiting to be sent in a batch.
+	 */
+	private static class QueuedMessage {
+		// null if the event is for all members of the group
+		final ID[] targets;
+		final Object[] messageData;
+
+		QueuedMessage(ID[] targets, Object[] messageData) {
+			this.targets = targets;
+			this.messageData = messageData;
+		}
+	}
 
 	/**
 	 * @since 1.2
@@ -114,8 +159,13 @@ public class DistributedEventAdmin extends BaseSharedObject implements
 			this.logTracker = null;
 			this.log = log;
 		}
-		// Now create eventHandler tracker
-		this.eventHandlerTracker = new EventHandlerTracker(context, log);
+		// Now create eventHandler tracker, which tells the other members when
+		// the subscribed topics change
+		this.eventHandlerTracker = new EventHandlerTracker(context, log) {
+			protected void topicsChanged() {
+				sendTopicSubscriptions(null);
+			}
+		};
 	}
 
 	/**
@@ -197,6 +247,15 @@ public class DistributedEventAdmin extends BaseSharedObject implements
 	 * registration with the OSGi service registry.
 	 */
 	public void stop() {
+		ScheduledExecutorService executor;
+		synchronized (batchLock) {
+			executor = batchExecutor;
+			batchExecutor = null;
+		}
+		if (executor != null)
+			executor.shutdownNow();
+		// send whatever is still waiting to be batched
+		flushBatch();
 		eventHandlerTracker.close();
 		if (eventManager != null) {
 			eventManager.close();
@@ -275,12 +334,20 @@ public class DistributedEventAdmin extends BaseSharedObject implements
 	 * {@link #sendSharedObjectMsgTo(ID, SharedObjectMsg)}.
 	 * <p>
 	 * Prior to actual sending, the {@link #getTarget(Event)} method will be
-	 * called, to allow subclasses to determine the target receiver. Then the
+	 * called, to allow subclasses to determine the target receiver. If the
+	 * target is <code>null</code> and topic routing is enabled (see
+	 * {@link #setTopicRouting(boolean)}), the event is only sent to the
+	 * members whose {@link EventHandler}s subscribe to the event's topic, and
+	 * not at all if there are no such members. Then the
 	 * {@link #createMessageDataFromEvent(ID, Event)} method is called, to
 	 * create an Object[] of data for sending in the message. The Object[]
 	 * returned from {@link #createMessageDataFromEvent(ID, Event)} must be
 	 * serializable. See {@link #createMessageDataFromEvent(ID, Event)}.
 	 * <p>
+	 * If batching is enabled (see {@link #setPostBatching(long, int)}), the
+	 * message data is queued and sent later, together with the other events
+	 * posted within the linger time.
+	 * <p>
 	 * Subclasses may override this method to customize or replace this
 	 * sendMessage behavior.
 	 * <p>
@@ -297,9 +364,23 @@ public class DistributedEventAdmin extends BaseSharedObject implements
 		Object[] messageData = null;
 		try {
 			target = getTarget(eventToSend);
+			final ID[] targets = (target == null) ? getSubscribedMembers(eventToSend
+					.getTopic()) : new ID[] { target };
+			if (targets != null && targets.length == 0)
+				// no member subscribes to the topic
+				return;
 			messageData = createMessageDataFromEvent(target, eventToSend);
-			sendSharedObjectMsgTo(target, SharedObjectMsg.createMsg(
-					SHARED_OBJECT_MESSAGE_METHOD, messageData));
+			if (batchLinger > 0) {
+				queueMessage(targets, messageData);
+			} else if (targets == null) {
+				sendSharedObjectMsgTo(null, SharedObjectMsg.createMsg(
+						SHARED_OBJECT_MESSAGE_METHOD, messageData));
+			} else {
+				final SharedObjectMsg msg = SharedObjectMsg.createMsg(
+						SHARED_OBJECT_MESSAGE_METHOD, messageData);
+				for (int i = 0; i < targets.length; i++)
+					sendSharedObjectMsgTo(targets[i], msg);
+			}
 		} catch (IOException e) {
 			handleSendMessageException("send exception to target=" + target,
 					eventToSend, messageData, e);
@@ -307,6 +388,242 @@ public class DistributedEventAdmin extends BaseSharedObject implements
 	}
 
 /**
+	 * Get the members of the group whose {@link EventHandler}s subscribe to the
+	 * given topic.
+	 * 
+	 * @param topic
+	 *            the topic of the event to send
+	 * @return the members to send the event to, or <code>null</code> if the
+	 *         event should be sent to the whole group
+	 */
+	private ID[] getSubscribedMembers(String topic) {
+		if (!topicRouting)
+			return null;
+		synchronized (memberTopics) {
+			// no member has told us its topics
+			if (memberTopics.isEmpty())
+				return null;
+		}
+		final ID[] members = getGroupMemberIDs();
+		final ID localContainerID = getLocalContainerID();
+		final List subscribed = new ArrayList(members.length);
+		boolean skipped = false;
+		synchronized (memberTopics) {
+			for (int i = 0; i < members.length; i++) {
+				if (members[i].equals(localContainerID))
+					continue;
+				final Set topics = (Set) memberTopics.get(members[i]);
+				// members that have not told us their topics get every event
+				if (topics == null || matchesTopic(topics, topic))
+					subscribed.add(members[i]);
+				else
+					skipped = true;
+			}
+		}
+		return skipped ? (ID[]) subscribed.toArray(new ID[subscribed.size()])
+				: null;
+	}
+
+	/**
+	 * Check whether an event topic matches any of the given handler topics, in
+	 * the same way as {@link EventHandlerTracker#getHandlers(String)}.
+	 */
+	private static boolean matchesTopic(Set topics, String topic) {
+		if (topics.contains("*") || topics.contains(topic)) //$NON-NLS-1$
+			return true;
+		int index = topic.length();
+		while (index >= 0) {
+			final String subTopic = topic.substring(0, index);
+			if (topics.contains(subTopic + "/*")) //$NON-NLS-1$
+				return true;
+			index = subTopic.lastIndexOf('/');
+		}
+		return false;
+	}
+
+	/**
+	 * Send the topics that the local {@link EventHandler}s subscribe to, so
+	 * that the receivers only send the events with those topics to this
+	 * container.
+	 * 
+	 * @param target
+	 *            the member to send the topics to, or <code>null</code> to
+	 *            send them to the whole group
+	 */
+	private void sendTopicSubscriptions(ID target) {
+		if (getConfig() == null || !isConnected() || eventHandlerTracker == null)
+			return;
+		try {
+			sendSharedObjectMsgTo(target, SharedObjectMsg.createMsg(
+					TOPIC_SUBSCRIPTIONS_METHOD,
+					new Object[] { eventHandlerTracker.getTopics() }));
+		} catch (IOException e) {
+			logWarning("DistributedEventAdmin could not send topic subscriptions to target=" + target, e);
+		}
+	}
+
+	private void removeMemberTopics(ID targetID) {
+		final List members = Arrays.asList(getGroupMemberIDs());
+		synchronized (memberTopics) {
+			memberTopics.remove(targetID);
+			memberTopics.keySet().retainAll(members);
+		}
+	}
+
+	/**
+	 * Enable or disable topic routing. If enabled, which is the default unless
+	 * the system property
+	 * <code>org.eclipse.ecf.remoteservice.eventadmin.DistributedEventAdmin.DisableTopicRouting</code>
+	 * is set to <code>true</code>, an event is only sent to the members of the
+	 * group that have {@link EventHandler}s subscribing to the event's topic.
+	 * Members that have not told this instance about their topics, such as
+	 * members running an older version, are sent every event.
+	 * 
+	 * @param enabled
+	 *            <code>true</code> to send events only to subscribed members,
+	 *            <code>false</code> to send every event to all members
+	 * @since 1.5
+	 */
+	public void setTopicRouting(boolean enabled) {
+		this.topicRouting = enabled;
+	}
+
+	/**
+	 * @return <code>true</code> if events are only sent to subscribed
+	 *         members, <code>false</code> otherwise
+	 * @since 1.5
+	 */
+	public boolean isTopicRouting() {
+		return topicRouting;
+	}
+
+	/**
+	 * Enable or disable the batching of posted events. If lingerMillis is
+	 * greater than zero, the events posted within lingerMillis of the first
+	 * one are sent together, as one message per receiver, unless maxEvents
+	 * events are waiting before then. The order of the events sent to a
+	 * receiver is kept. All members of the group must support batching.
+	 * <p>
+	 * The defaults are taken from the system properties
+	 * <code>org.eclipse.ecf.remoteservice.eventadmin.DistributedEventAdmin.BatchLinger</code>
+	 * (0, i.e. disabled) and
+	 * <code>org.eclipse.ecf.remoteservice.eventadmin.DistributedEventAdmin.MaxBatchSize</code>
+	 * (64).
+	 * 
+	 * @param lingerMillis
+	 *            the time in milliseconds to wait for more events before
+	 *            sending, or 0 to send every event immediately
+	 * @param maxEvents
+	 *            the number of waiting events that are sent without waiting
+	 *            any longer
+	 * @since 1.5
+	 */
+	public void setPostBatching(long lingerMillis, int maxEvents) {
+		this.maxBatchSize = Math.max(1, maxEvents);
+		this.batchLinger = lingerMillis;
+		if (lingerMillis <= 0)
+			flushBatch();
+	}
+
+	private void queueMessage(ID[] targets, Object[] messageData) {
+		boolean full;
+		synchronized (batchLock) {
+			batch.add(new QueuedMessage(targets, messageData));
+			full = batch.size() >= maxBatchSize;
+			if (!full && batch.size() == 1) {
+				if (batchExecutor == null)
+					batchExecutor = Executors
+							.newSingleThreadScheduledExecutor(new ThreadFactory() {
+								public Thread newThread(Runnable r) {
+									final Thread thread = new Thread(r,
+											"Distributed EventAdmin Batch Sender"); //$NON-NLS-1$
+									thread.setDaemon(true);
+									return thread;
+								}
+							});
+				batchExecutor.schedule(new Runnable() {
+					public void run() {
+						flushBatch();
+					}
+				}, batchLinger, TimeUnit.MILLISECONDS);
+			}
+		}
+		if (full)
+			flushBatch();
+	}
+
+	/**
+	 * Send the events that are waiting to be sent in a batch now.
+	 * 
+	 * @since 1.5
+	 */
+	public void flushBatch() {
+		synchronized (batchSendLock) {
+			List messages;
+			synchronized (batchLock) {
+				if (batch.isEmpty())
+					return;
+				messages = batch;
+				batch = new ArrayList();
+			}
+			// Map<ID,List<Object[]>> in the order of the first event for each
+			// receiver, a null key means the whole group
+			final Map byTarget = new LinkedHashMap();
+			boolean toGroup = true;
+			for (Iterator i = messages.iterator(); i.hasNext() && toGroup;)
+				toGroup = ((QueuedMessage) i.next()).targets == null;
+			if (toGroup) {
+				final List data = new ArrayList(messages.size());
+				for (Iterator i = messages.iterator(); i.hasNext();)
+					data.add(((QueuedMessage) i.next()).messageData);
+				byTarget.put(null, data);
+			} else {
+				final ID localContainerID = getLocalContainerID();
+				final ID[] members = getGroupMemberIDs();
+				for (Iterator i = messages.iterator(); i.hasNext();) {
+					final QueuedMessage message = (QueuedMessage) i.next();
+					final ID[] targets = (message.targets == null) ? members
+							: message.targets;
+					for (int j = 0; j < targets.length; j++) {
+						if (message.targets == null
+								&& targets[j].equals(localContainerID))
+							continue;
+						List data = (List) byTarget.get(targets[j]);
+						if (data == null) {
+							data = new ArrayList();
+							byTarget.put(targets[j], data);
+						}
+						data.add(message.messageData);
+					}
+				}
+			}
+			for (Iterator i = byTarget.entrySet().iterator(); i.hasNext();) {
+				final Map.Entry entry = (Map.Entry) i.next();
+				sendBatch((ID) entry.getKey(), (List) entry.getValue());
+			}
+		}
+	}
+
+	private void sendBatch(ID target, List data) {
+		try {
+			// a single event is sent as if it was not batched
+			sendSharedObjectMsgTo(target, (data.size() == 1) ? SharedObjectMsg
+					.createMsg(SHARED_OBJECT_MESSAGE_METHOD,
+							(Object[]) data.get(0)) : SharedObjectMsg
+					.createMsg(SHARED_OBJECT_MESSAGES_METHOD, data.toArray()));
+		} catch (IOException e) {
+			if (data.size() > 1) {
+				// send the events separately, so that only the ones that fail
+				// are lost
+				for (Iterator i = data.iterator(); i.hasNext();)
+					sendBatch(target, Collections.singletonList(i.next()));
+			} else {
+				logError("DistributedEventAdmin could not send event to target=" + target + " messageParams=" + Arrays.asList((Object[]) data.get(0)), e);
+			}
+		}
+	}
+
+	/**
 	 * Create message data for deliver to a target (which could be
 	 * <code>null</code> to designate multiple target receivers), The resulting
 	 * Object[] must be Serializable and in a form that receivers can
@@ -538,12 +855,14 @@ public class DistributedEventAdmin extends BaseSharedObject implements
 		if (event != null) {
 
 			String eventTopic = event.getTopic();
+			// cached until the EventHandlers change
+			DispatchPlan plan = eventHandlerTracker.getDispatchPlan(eventTopic,
+					currentManager);
 
 			try {
 				SecurityManager sm = System.getSecurityManager();
 				if (sm != null)
-					sm.checkPermission(new TopicPermission(eventTopic,
-							TopicPermission.PUBLISH));
+					sm.checkPermission(plan.getPublishPermission());
 			} catch (SecurityException e) {
 				logError(
 						"Caller bundle does not have TopicPermission to publish topic "
@@ -551,28 +870,7 @@ public class DistributedEventAdmin extends BaseSharedObject implements
 				throw e;
 			}
 
-			Set eventHandlerWrappers = eventHandlerTracker
-					.getHandlers(eventTopic);
-
-			SecurityManager sm = System.getSecurityManager();
-			Permission perm = (sm == null) ? null : new TopicPermission(
-					eventTopic, TopicPermission.SUBSCRIBE);
-
-			CopyOnWriteIdentityMap listeners = new CopyOnWriteIdentityMap();
-			Iterator iter = eventHandlerWrappers.iterator();
-			while (iter.hasNext()) {
-				EventHandlerWrapper wrapper = (EventHandlerWrapper) iter.next();
-				listeners.put(wrapper, perm);
-			}
-
-			ListenerQueue listenerQueue = new ListenerQueue(currentManager);
-			listenerQueue.queueListeners(listeners.entrySet(),
-					eventHandlerTracker);
-			if (isAsync) {
-				listenerQueue.dispatchEventAsynchronous(0, event);
-			} else {
-				listenerQueue.dispatchEventSynchronous(0, event);
-			}
+			plan.dispatch(event, isAsync);
 
 			notifyPostLocalDispatch(event);
 
@@ -600,18 +898,17 @@ public class DistributedEventAdmin extends BaseSharedObject implements
 	protected boolean handleSharedObjectMsg(ID fromID, SharedObjectMsg msg) {
 		String soMethod = msg.getMethod();
 		if (SHARED_OBJECT_MESSAGE_METHOD.equals(soMethod)) {
-			try {
-				Object[] messageData = msg.getParameters();
-				Event receivedEvent = createEventFromMessageData(fromID,
-						messageData);
-				if (receivedEvent != null) {
-					notifyReceivedEvent(fromID, receivedEvent);
-					localDispatch(receivedEvent, true);
-				}
-			} catch (Exception e) {
-				logError(
-						"DistributedEventAdmin handleSharedObjectMsg error receiving msg="
-								+ msg, e);
+			receiveEvent(fromID, msg, msg.getParameters());
+			return true;
+		} else if (SHARED_OBJECT_MESSAGES_METHOD.equals(soMethod)) {
+			Object[] batchData = msg.getParameters();
+			for (int i = 0; i < batchData.length; i++)
+				receiveEvent(fromID, msg, (Object[]) batchData[i]);
+			return true;
+		} else if (TOPIC_SUBSCRIPTIONS_METHOD.equals(soMethod)) {
+			String[] topics = (String[]) msg.getParameters()[0];
+			synchronized (memberTopics) {
+				memberTopics.put(fromID, new HashSet(Arrays.asList(topics)));
 			}
 			return true;
 		} else {
@@ -621,6 +918,22 @@ public class DistributedEventAdmin extends BaseSharedObject implements
 		return false;
 	}
 
+	private void receiveEvent(ID fromID, SharedObjectMsg msg,
+			Object[] messageData) {
+		try {
+			Event receivedEvent = createEventFromMessageData(fromID,
+					messageData);
+			if (receivedEvent != null) {
+				notifyReceivedEvent(fromID, receivedEvent);
+				localDispatch(receivedEvent, true);
+			}
+		} catch (Exception e) {
+			logError(
+					"DistributedEventAdmin handleSharedObjectMsg error receiving msg="
+							+ msg, e);
+		}
+	}
+
 	/**
 	 * @param fromID fromID
 	 * @param receivedEvent received event
@@ -629,6 +942,48 @@ public class DistributedEventAdmin extends BaseSharedObject implements
 	protected void notifyReceivedEvent(ID fromID, Event receivedEvent) {
 	}
 
+	/**
+	 * Tell the other members about the locally subscribed topics when this
+	 * shared object is activated and when members join, and forget the topics
+	 * of members that leave. Subclasses overriding this method must call
+	 * super.initialize().
+	 * 
+	 * @since 1.5
+	 */
+	protected void initialize() throws SharedObjectInitException {
+		super.initialize();
+		addEventProcessor(new IEventProcessor() {
+			public boolean processEvent(org.eclipse.ecf.core.util.Event event) {
+				if (event instanceof IContainerConnectedEvent) {
+					sendTopicSubscriptions(((IContainerConnectedEvent) event)
+							.getTargetID());
+				} else if (event instanceof IContainerDisconnectedEvent) {
+					removeMemberTopics(((IContainerDisconnectedEvent) event)
+							.getTargetID());
+				} else if (event instanceof IContainerEjectedEvent) {
+					removeMemberTopics(((IContainerEjectedEvent) event)
+							.getTargetID());
+				} else if (event instanceof ISharedObjectActivatedEvent) {
+					if (getID().equals(
+							((ISharedObjectActivatedEvent) event)
+									.getActivatedID()))
+						sendTopicSubscriptions(null);
+				}
+				return false;
+			}
+		});
+	}
+
+	/**
+	 * @since 1.5
+	 */
+	public void dispose(ID containerID) {
+		synchronized (memberTopics) {
+			memberTopics.clear();
+		}
+		super.dispose(containerID);
+	}
+
 	/**
 	 * Override of BaseSharedObject.handleSharedObjectMsgEvent. Subclasses must
 	 * not override this method.
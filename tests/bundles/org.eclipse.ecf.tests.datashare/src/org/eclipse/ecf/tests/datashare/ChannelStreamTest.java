@@ -0,0 +1,218 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.datashare;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.identity.IDFactory;
+import org.eclipse.ecf.datashare.IChannel;
+import org.eclipse.ecf.datashare.IChannelContainerAdapter;
+import org.eclipse.ecf.datashare.IChannelListener;
+import org.eclipse.ecf.datashare.IStreamChannel;
+import org.eclipse.ecf.datashare.events.IChannelEvent;
+import org.eclipse.ecf.datashare.events.IChannelStreamEvent;
+import org.eclipse.ecf.tests.ContainerAbstractTestCase;
+
+/**
+ * Tests streams between the channels of two clients of a generic server: the
+ * data of streams and files, and the cancellation of a stream by its receiver.
+ */
+public class ChannelStreamTest extends ContainerAbstractTestCase {
+
+	private static final String CHANNEL_NAME = "streamchannel";
+
+	private static final long TIMEOUT = 20000;
+
+	/**
+	 * Listener that reads the streams it is sent, or the given number of bytes
+	 * of them before closing them.
+	 */
+	static class StreamListener implements IChannelListener {
+		final List<byte[]> received = new ArrayList<byte[]>();
+		final List<Exception> failures = new ArrayList<Exception>();
+		int events;
+		int readLimit = -1;
+
+		public void handleChannelEvent(IChannelEvent event) {
+			if (!(event instanceof IChannelStreamEvent))
+				return;
+			synchronized (this) {
+				events++;
+			}
+			// Streams are delivered on threads of their own, so they may be
+			// read here
+			final InputStream in = ((IChannelStreamEvent) event).getInputStream();
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[8192];
+			try {
+				int read;
+				while ((readLimit < 0 || out.size() < readLimit) && (read = in.read(buffer)) != -1)
+					out.write(buffer, 0, read);
+				in.close();
+				synchronized (this) {
+					received.add(out.toByteArray());
+					notifyAll();
+				}
+			} catch (final IOException e) {
+				synchronized (this) {
+					failures.add(e);
+					notifyAll();
+				}
+			}
+		}
+
+		synchronized byte[] waitForReceived(int count) throws InterruptedException {
+			final long end = System.currentTimeMillis() + TIMEOUT;
+			long wait;
+			while (received.size() < count && failures.isEmpty() && (wait = end - System.currentTimeMillis()) > 0)
+				wait(wait);
+			assertTrue(failures.toString(), failures.isEmpty());
+			assertEquals(count, received.size());
+			return received.get(count - 1);
+		}
+	}
+
+	private final StreamListener receiver = new StreamListener();
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		setClientCount(2);
+		createServerAndClients();
+		getChannelContainer(0).createChannel(getChannelID(), new StreamListener(), null);
+		getChannelContainer(1).createChannel(getChannelID(), receiver, null);
+		connectClients();
+		// Let the channels be replicated to the other clients
+		sleep(1000);
+	}
+
+	protected void tearDown() throws Exception {
+		cleanUpServerAndClients();
+		super.tearDown();
+	}
+
+	private ID getChannelID() throws Exception {
+		return IDFactory.getDefault().createStringID(CHANNEL_NAME);
+	}
+
+	private IChannelContainerAdapter getChannelContainer(int clientIndex) {
+		return (IChannelContainerAdapter) getClients()[clientIndex].getAdapter(IChannelContainerAdapter.class);
+	}
+
+	private IChannel getChannel(int clientIndex) throws Exception {
+		return getChannelContainer(clientIndex).getChannel(getChannelID());
+	}
+
+	private IStreamChannel getStreamChannel(int clientIndex) throws Exception {
+		final IStreamChannel channel = (IStreamChannel) getChannel(clientIndex).getAdapter(IStreamChannel.class);
+		assertNotNull(channel);
+		return channel;
+	}
+
+	private ID getReceiverID() {
+		return getClients()[1].getID();
+	}
+
+	private static byte[] createData(int length) {
+		final byte[] data = new byte[length];
+		for (int i = 0; i < data.length; i++)
+			data[i] = (byte) (i % 251);
+		return data;
+	}
+
+	private static void assertData(byte[] expected, byte[] actual) {
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++)
+			if (expected[i] != actual[i])
+				fail("byte " + i + " differs");
+	}
+
+	private int getIncomingStreamCount(int clientIndex) throws Exception {
+		final Field field = getChannel(clientIndex).getClass().getDeclaredField("incomingStreams");
+		field.setAccessible(true);
+		return ((Map<?, ?>) field.get(getChannel(clientIndex))).size();
+	}
+
+	public void testSendStream() throws Exception {
+		// Larger than the window of a stream, so the sender waits for the
+		// receiver to read
+		final byte[] expected = createData(3 * 1024 * 1024 + 17);
+		final OutputStream out = getStreamChannel(0).sendStream(getReceiverID());
+		out.write(expected, 0, 100);
+		out.write(expected[100]);
+		out.write(expected, 101, expected.length - 101);
+		out.close();
+
+		assertData(expected, receiver.waitForReceived(1));
+		assertEquals(0, getIncomingStreamCount(1));
+	}
+
+	public void testSendEmptyStream() throws Exception {
+		getStreamChannel(0).sendStream(getReceiverID()).close();
+		assertEquals(0, receiver.waitForReceived(1).length);
+	}
+
+	public void testSendFile() throws Exception {
+		final byte[] expected = createData(2 * 1024 * 1024 + 5);
+		final File file = File.createTempFile("channel", ".bin");
+		try {
+			final FileOutputStream out = new FileOutputStream(file);
+			out.write(expected);
+			out.close();
+			getStreamChannel(0).sendFile(getReceiverID(), file);
+			assertData(expected, receiver.waitForReceived(1));
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testReceiverCancel() throws Exception {
+		receiver.readLimit = 100 * 1024;
+		final OutputStream out = getStreamChannel(0).sendStream(getReceiverID());
+		final byte[] chunk = createData(64 * 1024);
+		final long end = System.currentTimeMillis() + TIMEOUT;
+		try {
+			// Far more than the window, so the sender blocks until it learns
+			// of the cancellation
+			while (System.currentTimeMillis() < end)
+				out.write(chunk);
+			fail("stream not cancelled");
+		} catch (final IOException e) {
+			// cancelled by the receiver
+		}
+		assertTrue(receiver.waitForReceived(1).length >= receiver.readLimit);
+		// Chunks that were in flight when the stream was cancelled are dropped,
+		// rather than starting another stream
+		sleep(1000);
+		assertEquals(1, receiver.events);
+		assertEquals(0, getIncomingStreamCount(1));
+
+		// Streams still work after the cancellation
+		receiver.readLimit = -1;
+		final byte[] expected = createData(1000);
+		final OutputStream next = getStreamChannel(0).sendStream(getReceiverID());
+		next.write(expected);
+		next.close();
+		assertData(expected, receiver.waitForReceived(2));
+		assertEquals(2, receiver.events);
+	}
+}
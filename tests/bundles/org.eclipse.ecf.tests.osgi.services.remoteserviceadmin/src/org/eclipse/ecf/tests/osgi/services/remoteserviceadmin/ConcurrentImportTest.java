@@ -0,0 +1,253 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.osgi.services.remoteserviceadmin;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.core.IContainer;
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.identity.IDFactory;
+import org.eclipse.ecf.core.identity.StringID;
+import org.eclipse.ecf.osgi.services.remoteserviceadmin.EndpointDescription;
+import org.eclipse.ecf.osgi.services.remoteserviceadmin.IConsumerContainerSelector;
+import org.eclipse.ecf.osgi.services.remoteserviceadmin.RemoteConstants;
+import org.eclipse.ecf.osgi.services.remoteserviceadmin.RemoteServiceAdmin;
+import org.eclipse.ecf.remoteservice.IRemoteServiceContainer;
+import org.eclipse.ecf.remoteservice.IRemoteServiceContainerAdapter;
+import org.eclipse.ecf.remoteservice.RemoteServiceContainer;
+import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.service.remoteserviceadmin.ImportRegistration;
+
+/**
+ * Tests that concurrent imports of the same service look up the remote
+ * service once.
+ */
+public class ConcurrentImportTest extends TestCase {
+
+	private static final long DELAY = 500;
+
+	private static final int IMPORTS = 6;
+
+	/**
+	 * Consumer container whose lookups of remote services take a while and
+	 * find nothing, so that imports fail without registering a proxy.
+	 */
+	static class Lookup implements InvocationHandler {
+		private int count;
+
+		synchronized int getCount() {
+			return count;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args)
+				throws Throwable {
+			String name = method.getName();
+			if (name.equals("getRemoteServiceReferences")) {
+				synchronized (this) {
+					count++;
+				}
+				Thread.sleep(DELAY);
+				return null;
+			}
+			if (name.equals("hashCode"))
+				return new Integer(System.identityHashCode(proxy));
+			if (name.equals("equals"))
+				return Boolean.valueOf(proxy == args[0]);
+			if (name.equals("toString"))
+				return "Lookup";
+			return null;
+		}
+	}
+
+	private final Lookup lookup = new Lookup();
+	private RemoteServiceAdmin rsa;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		final ID containerID = IDFactory.getDefault().createStringID(
+				"ecftcp://localhost:3282/consumer");
+		final IContainer container = (IContainer) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class[] { IContainer.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						if (method.getName().equals("getID"))
+							return containerID;
+						return null;
+					}
+				});
+		final IRemoteServiceContainerAdapter adapter = (IRemoteServiceContainerAdapter) Proxy
+				.newProxyInstance(getClass().getClassLoader(),
+						new Class[] { IRemoteServiceContainerAdapter.class },
+						lookup);
+		final IRemoteServiceContainer rsContainer = new RemoteServiceContainer(
+				container, adapter);
+		final IConsumerContainerSelector selector = new IConsumerContainerSelector() {
+			public IRemoteServiceContainer selectConsumerContainer(
+					EndpointDescription endpointDescription) {
+				return rsContainer;
+			}
+		};
+		rsa = new RemoteServiceAdmin(FrameworkUtil.getBundle(getClass())) {
+			protected IConsumerContainerSelector getConsumerContainerSelector() {
+				return selector;
+			}
+		};
+	}
+
+	protected void tearDown() throws Exception {
+		rsa.close();
+		super.tearDown();
+	}
+
+	private EndpointDescription createEndpoint(String id, long serviceId,
+			String frameworkUUID) {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(org.osgi.service.remoteserviceadmin.RemoteConstants.ENDPOINT_ID,
+				id);
+		props.put(Constants.OBJECTCLASS,
+				new String[] { TestServiceInterface1.class.getName() });
+		props.put(
+				org.osgi.service.remoteserviceadmin.RemoteConstants.SERVICE_IMPORTED_CONFIGS,
+				new String[] { "ecf.generic.client" });
+		props.put(
+				org.osgi.service.remoteserviceadmin.RemoteConstants.ENDPOINT_SERVICE_ID,
+				new Long(serviceId));
+		if (frameworkUUID != null)
+			props.put(
+					org.osgi.service.remoteserviceadmin.RemoteConstants.ENDPOINT_FRAMEWORK_UUID,
+					frameworkUUID);
+		props.put(RemoteConstants.ENDPOINT_ID, id);
+		props.put(RemoteConstants.ENDPOINT_TIMESTAMP, new Long(serviceId));
+		props.put(RemoteConstants.ENDPOINT_CONTAINER_ID_NAMESPACE,
+				StringID.class.getName());
+		props.put(org.eclipse.ecf.remoteservice.Constants.SERVICE_ID,
+				new Long(serviceId));
+		return new EndpointDescription(props);
+	}
+
+	/**
+	 * Import each endpoint on its own thread, all at once.
+	 */
+	private List<ImportRegistration> importConcurrently(
+			final List<EndpointDescription> endpoints) throws Exception {
+		final List<ImportRegistration> results = Collections
+				.synchronizedList(new ArrayList<ImportRegistration>());
+		List<Thread> threads = new ArrayList<Thread>();
+		for (final EndpointDescription ed : endpoints) {
+			Thread t = new Thread(new Runnable() {
+				public void run() {
+					results.add(rsa.importService(ed));
+				}
+			});
+			threads.add(t);
+			t.start();
+		}
+		for (Thread t : threads)
+			t.join(10000);
+		assertEquals(endpoints.size(), results.size());
+		return results;
+	}
+
+	private static List<EndpointDescription> copies(EndpointDescription ed,
+			int count) {
+		return Collections.nCopies(count, ed);
+	}
+
+	private static void assertFailedAlike(List<ImportRegistration> results) {
+		Throwable exception = results.get(0).getException();
+		assertNotNull(exception);
+		for (ImportRegistration reg : results) {
+			assertSame(exception, reg.getException());
+			assertNull(reg.getImportReference());
+		}
+	}
+
+	public void testSameServiceLookedUpOnce() throws Exception {
+		long start = System.currentTimeMillis();
+		List<ImportRegistration> results = importConcurrently(copies(
+				createEndpoint("ecftcp://localhost:3282/server", 5, "uuid-a"),
+				IMPORTS));
+		assertEquals(1, lookup.getCount());
+		assertTrue(System.currentTimeMillis() - start < IMPORTS * DELAY);
+		assertFailedAlike(results);
+	}
+
+	public void testSameServiceOfOtherEndpointLookedUpOnce() throws Exception {
+		// the same service as exported through another endpoint
+		List<EndpointDescription> endpoints = new ArrayList<EndpointDescription>();
+		for (int i = 0; i < IMPORTS; i++)
+			endpoints.add(createEndpoint("ecftcp://localhost:" + (3282 + i)
+					+ "/server", 5, "uuid-a"));
+		importConcurrently(endpoints);
+		assertEquals(1, lookup.getCount());
+	}
+
+	public void testWithoutFrameworkUUIDLookedUpOnce() throws Exception {
+		List<ImportRegistration> results = importConcurrently(copies(
+				createEndpoint("ecftcp://localhost:3282/server", 5, null),
+				IMPORTS));
+		assertEquals(1, lookup.getCount());
+		assertFailedAlike(results);
+	}
+
+	public void testOtherServicesLookedUpConcurrently() throws Exception {
+		List<EndpointDescription> endpoints = new ArrayList<EndpointDescription>();
+		for (int i = 0; i < IMPORTS; i++)
+			endpoints.add(createEndpoint("ecftcp://localhost:3282/server",
+					i + 1, "uuid-a"));
+		endpoints.add(createEndpoint("ecftcp://localhost:3282/server", 1,
+				"uuid-b"));
+		endpoints.add(createEndpoint("ecftcp://localhost:3283/server", 1, null));
+		long start = System.currentTimeMillis();
+		importConcurrently(endpoints);
+		assertEquals(endpoints.size(), lookup.getCount());
+		// not one after the other
+		assertTrue(System.currentTimeMillis() - start < 3 * DELAY);
+	}
+
+	public void testLaterImportLooksUpAgain() throws Exception {
+		EndpointDescription ed = createEndpoint(
+				"ecftcp://localhost:3282/server", 5, null);
+		importConcurrently(copies(ed, IMPORTS));
+		// a failed import is not reused once it is done
+		importConcurrently(copies(ed, 1));
+		assertEquals(2, lookup.getCount());
+	}
+
+	public void testImportServices() throws Exception {
+		EndpointDescription ed = createEndpoint(
+				"ecftcp://localhost:3282/server", 5, "uuid-a");
+		EndpointDescription other = createEndpoint(
+				"ecftcp://localhost:3282/server", 6, "uuid-a");
+		List<EndpointDescription> endpoints = new ArrayList<EndpointDescription>(
+				copies(ed, IMPORTS));
+		endpoints.add(other);
+		List<ImportRegistration> results = rsa.importServices(endpoints);
+		assertEquals(endpoints.size(), results.size());
+		assertEquals(2, lookup.getCount());
+		assertFailedAlike(results.subList(0, IMPORTS));
+		assertNotSame(results.get(0).getException(), results.get(IMPORTS)
+				.getException());
+	}
+}
@@ -0,0 +1,425 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.osgi.services.remoteserviceadmin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.core.identity.StringID;
+import org.eclipse.ecf.internal.osgi.services.remoteserviceadmin.EndpointDescriptionParseCache;
+import org.eclipse.ecf.internal.osgi.services.remoteserviceadmin.EndpointDescriptionParser;
+import org.eclipse.ecf.osgi.services.remoteserviceadmin.EndpointDescription;
+import org.eclipse.ecf.osgi.services.remoteserviceadmin.EndpointDescriptionReader;
+import org.eclipse.ecf.osgi.services.remoteserviceadmin.EndpointDescriptionWriter;
+import org.eclipse.ecf.osgi.services.remoteserviceadmin.RemoteConstants;
+import org.osgi.framework.Constants;
+
+/**
+ * Tests the parsing of EDEF documents, the round trip of endpoint descriptions
+ * through {@link EndpointDescriptionWriter} and
+ * {@link EndpointDescriptionReader}, and the cache of parsed documents.
+ */
+public class EndpointDescriptionParserTest extends TestCase {
+
+	private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<endpoint-descriptions xmlns=\"http://www.osgi.org/xmlns/rsa/v1.0.0\">\n";
+
+	private static final String FOOTER = "</endpoint-descriptions>\n";
+
+	private static String document(String... endpoints) {
+		StringBuffer sb = new StringBuffer(HEADER);
+		for (String endpoint : endpoints)
+			sb.append("<endpoint-description>\n").append(endpoint)
+					.append("</endpoint-description>\n");
+		return sb.append(FOOTER).toString();
+	}
+
+	private static InputStream stream(String document) throws IOException {
+		return new ByteArrayInputStream(document.getBytes("UTF-8"));
+	}
+
+	private static List<Map<String, Object>> parseAll(String document)
+			throws IOException {
+		EndpointDescriptionParser parser = new EndpointDescriptionParser();
+		parser.parse(stream(document));
+		List<Map<String, Object>> results = new ArrayList<Map<String, Object>>();
+		for (EndpointDescriptionParser.EndpointDescription ed : parser
+				.getEndpointDescriptions())
+			results.add(ed.getProperties());
+		return results;
+	}
+
+	private static Map<String, Object> parse(String properties)
+			throws IOException {
+		List<Map<String, Object>> results = parseAll(document(properties));
+		assertEquals(1, results.size());
+		return results.get(0);
+	}
+
+	private static String property(String name, String valueType, String value) {
+		return "<property name=\"" + name + "\" value-type=\"" + valueType
+				+ "\" value=\"" + value + "\"/>\n";
+	}
+
+	private static String multiValue(String name, String valueType,
+			String element, String... values) {
+		StringBuffer sb = new StringBuffer("<property name=\"").append(name)
+				.append("\" value-type=\"").append(valueType).append("\">\n<")
+				.append(element).append(">\n");
+		for (String value : values)
+			sb.append("<value>").append(value).append("</value>\n");
+		return sb.append("</").append(element).append(">\n</property>\n")
+				.toString();
+	}
+
+	private static void assertParseFails(String properties) {
+		try {
+			parse(properties);
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	public void testValueTypes() throws Exception {
+		Map<String, Object> props = parse(property("s", "String", "a b")
+				+ "<property name=\"default\" value=\"d\"/>\n"
+				+ property("l", "Long", "-5") + property("pl", "long", "6")
+				+ property("d", "Double", "1.5") + property("pd", "double", "2")
+				+ property("f", "Float", "2.5") + property("pf", "float", "3")
+				+ property("i", "Integer", "7") + property("pi", "int", "8")
+				+ property("b", "Byte", "9") + property("pb", "byte", "10")
+				+ property("c", "Character", "x") + property("pc", "char", "y")
+				+ property("z", "Boolean", "true")
+				+ property("pz", "boolean", "false")
+				+ property("h", "Short", "11") + property("ph", "short", "12")
+				+ property("trimmed", "Integer", " 13 "));
+		assertEquals("a b", props.get("s"));
+		assertEquals("d", props.get("default"));
+		assertEquals(new Long(-5), props.get("l"));
+		assertEquals(new Long(6), props.get("pl"));
+		assertEquals(new Double(1.5), props.get("d"));
+		assertEquals(new Double(2), props.get("pd"));
+		assertEquals(new Float(2.5f), props.get("f"));
+		assertEquals(new Float(3), props.get("pf"));
+		assertEquals(new Integer(7), props.get("i"));
+		assertEquals(new Integer(8), props.get("pi"));
+		assertEquals(new Byte((byte) 9), props.get("b"));
+		assertEquals(new Byte((byte) 10), props.get("pb"));
+		assertEquals(new Character('x'), props.get("c"));
+		assertEquals(new Character('y'), props.get("pc"));
+		assertEquals(Boolean.TRUE, props.get("z"));
+		assertEquals(Boolean.FALSE, props.get("pz"));
+		assertEquals(new Short((short) 11), props.get("h"));
+		assertEquals(new Short((short) 12), props.get("ph"));
+		assertEquals(new Integer(13), props.get("trimmed"));
+		// keys are case insensitive
+		assertEquals("a b", props.get("S"));
+	}
+
+	public void testArrays() throws Exception {
+		Map<String, Object> props = parse(multiValue("s", "String", "array",
+				" a ", "b")
+				+ multiValue("l", "Long", "array", "1", " 2 ")
+				+ multiValue("d", "double", "array", "1.5")
+				+ multiValue("f", "Float", "array", "2.5", "3")
+				+ multiValue("i", "int", "array", "4")
+				+ multiValue("b", "Byte", "array", "5")
+				+ multiValue("c", "char", "array", "x", "y")
+				+ multiValue("z", "Boolean", "array", "true")
+				+ multiValue("h", "short", "array", "6")
+				+ multiValue("empty", "Integer", "array"));
+		// String values are not trimmed
+		assertTrue(Arrays.equals(new String[] { " a ", "b" },
+				(String[]) props.get("s")));
+		assertTrue(Arrays.equals(new Long[] { new Long(1), new Long(2) },
+				(Long[]) props.get("l")));
+		assertTrue(Arrays.equals(new Double[] { new Double(1.5) },
+				(Double[]) props.get("d")));
+		assertTrue(Arrays.equals(new Float[] { new Float(2.5f), new Float(3) },
+				(Float[]) props.get("f")));
+		assertTrue(Arrays.equals(new Integer[] { new Integer(4) },
+				(Integer[]) props.get("i")));
+		assertTrue(Arrays.equals(new Byte[] { new Byte((byte) 5) },
+				(Byte[]) props.get("b")));
+		assertTrue(Arrays.equals(
+				new Character[] { new Character('x'), new Character('y') },
+				(Character[]) props.get("c")));
+		assertTrue(Arrays.equals(new Boolean[] { Boolean.TRUE },
+				(Boolean[]) props.get("z")));
+		assertTrue(Arrays.equals(new Short[] { new Short((short) 6) },
+				(Short[]) props.get("h")));
+		assertEquals(0, ((Integer[]) props.get("empty")).length);
+	}
+
+	public void testListsAndSets() throws Exception {
+		Map<String, Object> props = parse(multiValue("list", "String", "list",
+				"b", "a", "b", "")
+				+ multiValue("longs", "Long", "list", "3", "1")
+				+ multiValue("set", "Integer", "set", "1", "2", "1"));
+		// empty values are left out
+		assertEquals(Arrays.asList(new Object[] { "b", "a", "b" }),
+				props.get("list"));
+		assertEquals(Arrays.asList(new Object[] { new Long(3), new Long(1) }),
+				props.get("longs"));
+		assertEquals(
+				new HashSet<Object>(Arrays.asList(new Object[] {
+						new Integer(1), new Integer(2) })), props.get("set"));
+	}
+
+	public void testXml() throws Exception {
+		Map<String, Object> props = parse("<property name=\"x\">\n<xml>\n"
+				+ "<a:root xmlns:a=\"urn:a\" attr=\"1 &amp; &quot;2&quot;\">"
+				+ "text &lt;&amp;&gt; <child/><![CDATA[<cdata>]]></a:root>\n"
+				+ "</xml>\n</property>\n");
+		assertEquals("<a:root xmlns:a=\"urn:a\" attr=\"1 &amp; &quot;2&quot;\">"
+				+ "text &lt;&amp;&gt; <child></child>&lt;cdata&gt;</a:root>",
+				props.get("x"));
+	}
+
+	public void testDocumentStructure() throws Exception {
+		List<Map<String, Object>> results = parseAll(document(
+				property("a", "String", "1")
+						// properties nested in unknown elements are read
+						+ "<unknown>" + property("b", "String", "2")
+						+ "</unknown>"
+						// properties without a name are left out
+						+ "<property value=\"3\"/>\n",
+				property("a", "String", "4")));
+		assertEquals(2, results.size());
+		assertEquals(2, results.get(0).size());
+		assertEquals("1", results.get(0).get("a"));
+		assertEquals("2", results.get(0).get("b"));
+		assertEquals("4", results.get(1).get("a"));
+		assertTrue(parseAll(
+				"<?xml version=\"1.0\"?><other>" + property("a", "String", "1")
+						+ "</other>").isEmpty());
+	}
+
+	public void testInvalidDocuments() {
+		assertParseFails(property("a", "Object", "1"));
+		assertParseFails("<property name=\"a\" value=\"1\">"
+				+ "<array><value>2</value></array></property>");
+		try {
+			parseAll(HEADER + "<endpoint-description>");
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private static Map<String, Object> createProperties() {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(
+				org.osgi.service.remoteserviceadmin.RemoteConstants.ENDPOINT_ID,
+				"ecftcp://localhost:3282/server");
+		props.put(Constants.OBJECTCLASS,
+				new String[] { TestServiceInterface1.class.getName() });
+		props.put(
+				org.osgi.service.remoteserviceadmin.RemoteConstants.SERVICE_IMPORTED_CONFIGS,
+				new String[] { "ecf.generic.client" });
+		props.put(
+				org.osgi.service.remoteserviceadmin.RemoteConstants.ENDPOINT_SERVICE_ID,
+				new Long(5));
+		props.put(
+				org.osgi.service.remoteserviceadmin.RemoteConstants.ENDPOINT_FRAMEWORK_UUID,
+				"uuid");
+		props.put(RemoteConstants.ENDPOINT_ID, "ecftcp://localhost:3282/server");
+		props.put(RemoteConstants.ENDPOINT_TIMESTAMP, new Long(1));
+		props.put(RemoteConstants.ENDPOINT_CONTAINER_ID_NAMESPACE,
+				StringID.class.getName());
+		props.put(org.eclipse.ecf.remoteservice.Constants.SERVICE_ID,
+				new Long(5));
+		return props;
+	}
+
+	public void testRoundTrip() throws Exception {
+		Map<String, Object> props = createProperties();
+		props.put("plain", "value");
+		props.put("escaped & <name> \"'", "<&> \"quoted\" 'single'");
+		props.put("long", new Long(Long.MAX_VALUE));
+		props.put("double", new Double(0.25));
+		props.put("float", new Float(1.5f));
+		props.put("int", new Integer(-3));
+		props.put("byte", new Byte((byte) 4));
+		props.put("char", new Character('&'));
+		props.put("boolean", Boolean.TRUE);
+		props.put("short", new Short((short) 5));
+		props.put("strings", new String[] { "<a>", " & ", "\"b\"" });
+		props.put("floats", new Float[] { new Float(1), new Float(2.5f) });
+		props.put("chars", new Character[] { new Character('<') });
+		props.put("list", Arrays.asList(new Object[] { "x&y", "x&y" }));
+		props.put("set", new HashSet<Object>(Arrays.asList(new Object[] {
+				new Integer(1), new Integer(2) })));
+		String xml = "<a:root xmlns:a=\"urn:a\" attr=\"&lt;&amp;&quot;\">"
+				+ "t &amp; u<b></b></a:root>";
+		props.put("xml", xml);
+		EndpointDescription ed = new EndpointDescription(props);
+
+		EndpointDescriptionWriter writer = new EndpointDescriptionWriter(
+				Arrays.asList(new String[] { "xml" }));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.writeEndpointDescriptions(out,
+				new org.osgi.service.remoteserviceadmin.EndpointDescription[] { ed });
+		// the document written to a stream is the same as the one in a string
+		assertEquals(
+				writer.writeEndpointDescription(ed).toString(),
+				out.toString("UTF-8"));
+
+		org.osgi.service.remoteserviceadmin.EndpointDescription[] read = new EndpointDescriptionReader()
+				.readEndpointDescriptions(new ByteArrayInputStream(out
+						.toByteArray()));
+		assertEquals(1, read.length);
+		Map<String, Object> result = read[0].getProperties();
+		assertEquals("value", result.get("plain"));
+		assertEquals("<&> \"quoted\" 'single'",
+				result.get("escaped & <name> \"'"));
+		assertEquals(new Long(Long.MAX_VALUE), result.get("long"));
+		assertEquals(new Double(0.25), result.get("double"));
+		assertEquals(new Float(1.5f), result.get("float"));
+		assertEquals(new Integer(-3), result.get("int"));
+		assertEquals(new Byte((byte) 4), result.get("byte"));
+		assertEquals(new Character('&'), result.get("char"));
+		assertEquals(Boolean.TRUE, result.get("boolean"));
+		assertEquals(new Short((short) 5), result.get("short"));
+		assertTrue(Arrays.equals((Object[]) props.get("strings"),
+				(Object[]) result.get("strings")));
+		assertTrue(Arrays.equals((Object[]) props.get("floats"),
+				(Object[]) result.get("floats")));
+		assertTrue(Arrays.equals((Object[]) props.get("chars"),
+				(Object[]) result.get("chars")));
+		assertEquals(props.get("list"), result.get("list"));
+		assertEquals(props.get("set"), result.get("set"));
+		assertEquals(xml, result.get("xml"));
+		assertEquals(ed, read[0]);
+	}
+
+	public void testCacheHit() throws Exception {
+		EndpointDescriptionParseCache cache = new EndpointDescriptionParseCache(
+				4);
+		String document = document(property("a", "String", "1")
+				+ multiValue("array", "String", "array", "x")
+				+ multiValue("list", "String", "list", "y")
+				+ multiValue("set", "String", "set", "z"));
+		List<Map<String, Object>> first = cache.parse(stream(document));
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.size());
+
+		List<Map<String, Object>> second = cache.parse(stream(document));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, second.size());
+		assertNotSame(first.get(0), second.get(0));
+		assertEquals(first.get(0).keySet(), second.get(0).keySet());
+		assertEquals("1", second.get(0).get("a"));
+		assertTrue(Arrays.equals((Object[]) first.get(0).get("array"),
+				(Object[]) second.get(0).get("array")));
+		assertEquals(first.get(0).get("list"), second.get(0).get("list"));
+		assertEquals(first.get(0).get("set"), second.get(0).get("set"));
+		assertNotSame(first.get(0).get("array"), second.get(0).get("array"));
+		assertNotSame(first.get(0).get("list"), second.get(0).get("list"));
+		assertNotSame(first.get(0).get("set"), second.get(0).get("set"));
+	}
+
+	@SuppressWarnings("unchecked")
+	public void testCallersGetCopies() throws Exception {
+		EndpointDescriptionParseCache cache = new EndpointDescriptionParseCache(
+				4);
+		String document = document(property("a", "String", "1")
+				+ multiValue("array", "String", "array", "x")
+				+ multiValue("list", "String", "list", "y")
+				+ multiValue("set", "String", "set", "z"));
+		Map<String, Object> first = cache.parse(stream(document)).get(0);
+		// modify everything the caller got
+		first.put("a", "2");
+		first.put("b", "3");
+		((String[]) first.get("array"))[0] = "changed";
+		((List<Object>) first.get("list")).add("changed");
+		((Set<Object>) first.get("set")).clear();
+
+		Map<String, Object> second = cache.parse(stream(document)).get(0);
+		assertEquals(1, cache.getHits());
+		assertEquals("1", second.get("a"));
+		assertNull(second.get("b"));
+		assertTrue(Arrays.equals(new String[] { "x" },
+				(String[]) second.get("array")));
+		assertEquals(Arrays.asList(new Object[] { "y" }), second.get("list"));
+		assertEquals(new HashSet<Object>(Arrays.asList(new Object[] { "z" })),
+				second.get("set"));
+		// the copies are case insensitive as well
+		assertEquals("1", second.get("A"));
+	}
+
+	public void testLeastRecentlyUsedEvicted() throws Exception {
+		EndpointDescriptionParseCache cache = new EndpointDescriptionParseCache(
+				2);
+		String a = document(property("a", "String", "1"));
+		String b = document(property("b", "String", "1"));
+		String c = document(property("c", "String", "1"));
+		cache.parse(stream(a));
+		cache.parse(stream(b));
+		cache.parse(stream(a));
+		cache.parse(stream(c));
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getHits());
+		cache.parse(stream(a));
+		assertEquals(2, cache.getHits());
+		// b was used least recently
+		cache.parse(stream(b));
+		assertEquals(2, cache.getHits());
+		assertEquals(4, cache.getMisses());
+		cache.clear();
+		assertEquals(0, cache.size());
+		cache.parse(stream(b));
+		assertEquals(5, cache.getMisses());
+	}
+
+	public void testCacheDisabled() throws Exception {
+		EndpointDescriptionParseCache cache = new EndpointDescriptionParseCache(
+				0);
+		String document = document(property("a", "String", "1"));
+		Map<String, Object> first = cache.parse(stream(document)).get(0);
+		first.put("a", "2");
+		assertEquals("1", cache.parse(stream(document)).get(0).get("a"));
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHits());
+	}
+
+	public void testInvalidDocumentNotCached() throws Exception {
+		EndpointDescriptionParseCache cache = new EndpointDescriptionParseCache(
+				4);
+		String document = document(property("a", "Object", "1"));
+		for (int i = 0; i < 2; i++) {
+			try {
+				cache.parse(stream(document));
+				fail();
+			} catch (IOException e) {
+				// expected
+			}
+		}
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHits());
+	}
+}
@@ -0,0 +1,372 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.osgi.services.remoteserviceadmin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.internal.osgi.services.remoteserviceadmin.EndpointEventCoalescer;
+import org.eclipse.ecf.internal.osgi.services.remoteserviceadmin.EndpointEventCoalescer.Event;
+import org.eclipse.ecf.internal.osgi.services.remoteserviceadmin.EndpointEventCounters;
+import org.osgi.framework.Constants;
+import org.osgi.service.remoteserviceadmin.EndpointDescription;
+import org.osgi.service.remoteserviceadmin.EndpointEvent;
+import org.osgi.service.remoteserviceadmin.RemoteConstants;
+
+/**
+ * Tests how an {@link EndpointEventCoalescer} merges the events for a listener
+ * and endpoint, when it passes them on, and what it counts.
+ */
+public class EndpointEventCoalescerTest extends TestCase {
+
+	// long enough for the held back events to be passed on by flush() only
+	private static final long WINDOW = 60000;
+
+	private static final Object L1 = "listener1";
+	private static final Object L2 = "listener2";
+
+	static class Batch {
+		final Object listener;
+		final boolean legacy;
+		final List<Event> events;
+
+		Batch(Object listener, boolean legacy, List<Event> events) {
+			this.listener = listener;
+			this.legacy = legacy;
+			this.events = events;
+		}
+	}
+
+	static class Recorder implements EndpointEventCoalescer.Dispatcher {
+		private final List<Batch> batches = new ArrayList<Batch>();
+
+		public void dispatch(Object listener, boolean legacy, List<Event> events) {
+			synchronized (this) {
+				batches.add(new Batch(listener, legacy, new ArrayList<Event>(events)));
+				notifyAll();
+			}
+		}
+
+		synchronized List<Batch> getBatches() {
+			return new ArrayList<Batch>(batches);
+		}
+
+		synchronized boolean waitFor(int count, long timeout) throws InterruptedException {
+			long end = System.currentTimeMillis() + timeout;
+			while (batches.size() < count) {
+				long left = end - System.currentTimeMillis();
+				if (left <= 0)
+					return false;
+				wait(left);
+			}
+			return true;
+		}
+	}
+
+	private EndpointEventCounters counters;
+	private Recorder recorder;
+	private EndpointEventCoalescer coalescer;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		counters = new EndpointEventCounters();
+		recorder = new Recorder();
+		coalescer = createCoalescer(WINDOW, 1000, recorder);
+	}
+
+	protected void tearDown() throws Exception {
+		coalescer.close();
+		super.tearDown();
+	}
+
+	private EndpointEventCoalescer createCoalescer(long window, int batchSize,
+			EndpointEventCoalescer.Dispatcher dispatcher) {
+		if (coalescer != null)
+			coalescer.close();
+		coalescer = new EndpointEventCoalescer(window, batchSize, counters,
+				dispatcher);
+		return coalescer;
+	}
+
+	private static EndpointDescription createEndpoint(String id, int version) {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(RemoteConstants.ENDPOINT_ID, id);
+		props.put(Constants.OBJECTCLASS,
+				new String[] { TestServiceInterface1.class.getName() });
+		props.put(RemoteConstants.SERVICE_IMPORTED_CONFIGS,
+				new String[] { "ecf.generic.client" });
+		props.put("version", new Integer(version));
+		return new EndpointDescription(props);
+	}
+
+	private void add(Object listener, int type, String id, int version) {
+		coalescer.add(listener, false, type, createEndpoint(id, version),
+				"(filter=" + listener + ")");
+	}
+
+	private static void assertEvent(int type, String id, int version,
+			Event event) {
+		assertEquals(type, event.getType());
+		assertEquals(id, event.getEndpoint().getId());
+		assertEquals(new Integer(version), event.getEndpoint().getProperties()
+				.get("version"));
+	}
+
+	private List<Event> flushOne() {
+		coalescer.flush();
+		List<Batch> batches = recorder.getBatches();
+		assertEquals(1, batches.size());
+		return batches.get(0).events;
+	}
+
+	private void assertCounted(long queued, long coalesced, long depth) {
+		assertEquals(queued, counters.getQueued());
+		assertEquals(coalesced, counters.getCoalesced());
+		assertEquals(depth, counters.getQueueDepth());
+	}
+
+	public void testNotCoalescedWithoutWindow() {
+		createCoalescer(0, 1000, recorder);
+		add(L1, EndpointEvent.ADDED, "ep1", 1);
+		add(L1, EndpointEvent.MODIFIED, "ep1", 2);
+		List<Batch> batches = recorder.getBatches();
+		assertEquals(2, batches.size());
+		assertEvent(EndpointEvent.ADDED, "ep1", 1, batches.get(0).events.get(0));
+		assertEvent(EndpointEvent.MODIFIED, "ep1", 2,
+				batches.get(1).events.get(0));
+		assertCounted(2, 0, 2);
+	}
+
+	public void testHeldBackUntilFlush() {
+		add(L1, EndpointEvent.ADDED, "ep1", 1);
+		assertTrue(recorder.getBatches().isEmpty());
+		List<Event> events = flushOne();
+		assertEquals(1, events.size());
+		assertEvent(EndpointEvent.ADDED, "ep1", 1, events.get(0));
+		// nothing left to pass on
+		coalescer.flush();
+		assertEquals(1, recorder.getBatches().size());
+	}
+
+	public void testAddedThenModified() {
+		long before = System.nanoTime();
+		add(L1, EndpointEvent.ADDED, "ep1", 1);
+		add(L1, EndpointEvent.MODIFIED, "ep1", 2);
+		add(L1, EndpointEvent.MODIFIED, "ep1", 3);
+		List<Event> events = flushOne();
+		assertEquals(1, events.size());
+		// still added, with the latest description, queued with the first
+		assertEvent(EndpointEvent.ADDED, "ep1", 3, events.get(0));
+		assertTrue(events.get(0).getQueued() - before >= 0);
+		assertTrue(events.get(0).getQueued() < System.nanoTime());
+		assertCounted(3, 2, 1);
+	}
+
+	public void testAddedThenRemoved() {
+		add(L1, EndpointEvent.ADDED, "ep1", 1);
+		add(L1, EndpointEvent.MODIFIED, "ep1", 2);
+		add(L1, EndpointEvent.REMOVED, "ep1", 2);
+		add(L1, EndpointEvent.ADDED, "ep2", 1);
+		add(L1, EndpointEvent.MODIFIED_ENDMATCH, "ep2", 2);
+		coalescer.flush();
+		// never notified of either endpoint
+		assertTrue(recorder.getBatches().isEmpty());
+		assertCounted(5, 5, 0);
+	}
+
+	public void testModified() {
+		add(L1, EndpointEvent.MODIFIED, "ep1", 1);
+		add(L1, EndpointEvent.MODIFIED, "ep1", 2);
+		add(L1, EndpointEvent.MODIFIED, "ep2", 1);
+		add(L1, EndpointEvent.REMOVED, "ep2", 1);
+		add(L1, EndpointEvent.MODIFIED, "ep3", 1);
+		add(L1, EndpointEvent.MODIFIED_ENDMATCH, "ep3", 2);
+		List<Event> events = flushOne();
+		assertEquals(3, events.size());
+		assertEvent(EndpointEvent.MODIFIED, "ep1", 2, events.get(0));
+		assertEvent(EndpointEvent.REMOVED, "ep2", 1, events.get(1));
+		assertEvent(EndpointEvent.MODIFIED_ENDMATCH, "ep3", 2, events.get(2));
+		assertCounted(6, 3, 3);
+	}
+
+	public void testRemoved() {
+		add(L1, EndpointEvent.REMOVED, "ep1", 1);
+		add(L1, EndpointEvent.REMOVED, "ep1", 2);
+		// the endpoint may be another service when it is added again
+		add(L1, EndpointEvent.REMOVED, "ep2", 1);
+		add(L1, EndpointEvent.ADDED, "ep2", 2);
+		List<Event> events = flushOne();
+		assertEquals(3, events.size());
+		assertEvent(EndpointEvent.REMOVED, "ep1", 2, events.get(0));
+		assertEvent(EndpointEvent.REMOVED, "ep2", 1, events.get(1));
+		assertEvent(EndpointEvent.ADDED, "ep2", 2, events.get(2));
+		assertCounted(4, 1, 3);
+	}
+
+	public void testModifiedThenAdded() {
+		add(L1, EndpointEvent.MODIFIED, "ep1", 1);
+		add(L1, EndpointEvent.ADDED, "ep1", 2);
+		List<Event> events = flushOne();
+		assertEquals(2, events.size());
+		assertEvent(EndpointEvent.MODIFIED, "ep1", 1, events.get(0));
+		assertEvent(EndpointEvent.ADDED, "ep1", 2, events.get(1));
+	}
+
+	public void testBatchPerListener() {
+		add(L1, EndpointEvent.ADDED, "ep1", 1);
+		add(L2, EndpointEvent.ADDED, "ep1", 1);
+		coalescer.add(L1, true, EndpointEvent.ADDED, createEndpoint("ep1", 1),
+				"(legacy=true)");
+		add(L1, EndpointEvent.ADDED, "ep2", 1);
+		// merged per listener only
+		add(L2, EndpointEvent.REMOVED, "ep1", 1);
+		add(L1, EndpointEvent.MODIFIED, "ep1", 2);
+		coalescer.flush();
+		List<Batch> batches = recorder.getBatches();
+		assertEquals(2, batches.size());
+		Batch batch = batches.get(0);
+		assertSame(L1, batch.listener);
+		assertFalse(batch.legacy);
+		assertEquals(2, batch.events.size());
+		assertEvent(EndpointEvent.ADDED, "ep1", 2, batch.events.get(0));
+		assertEquals("(filter=" + L1 + ")", batch.events.get(0)
+				.getMatchingFilter());
+		assertEvent(EndpointEvent.ADDED, "ep2", 1, batch.events.get(1));
+		batch = batches.get(1);
+		assertSame(L1, batch.listener);
+		assertTrue(batch.legacy);
+		assertEquals(1, batch.events.size());
+		assertEquals("(legacy=true)", batch.events.get(0).getMatchingFilter());
+		assertCounted(6, 3, 3);
+	}
+
+	public void testBatchSize() {
+		createCoalescer(WINDOW, 3, recorder);
+		add(L1, EndpointEvent.ADDED, "ep1", 1);
+		add(L1, EndpointEvent.MODIFIED, "ep1", 2);
+		add(L1, EndpointEvent.ADDED, "ep2", 1);
+		// two events held back after merging
+		assertTrue(recorder.getBatches().isEmpty());
+		add(L2, EndpointEvent.ADDED, "ep3", 1);
+		List<Batch> batches = recorder.getBatches();
+		assertEquals(2, batches.size());
+		assertEquals(2, batches.get(0).events.size());
+		assertEquals(1, batches.get(1).events.size());
+		// counted from zero again
+		add(L1, EndpointEvent.ADDED, "ep4", 1);
+		add(L1, EndpointEvent.ADDED, "ep5", 1);
+		assertEquals(2, recorder.getBatches().size());
+	}
+
+	public void testWindow() throws Exception {
+		createCoalescer(100, 1000, recorder);
+		add(L1, EndpointEvent.ADDED, "ep1", 1);
+		add(L1, EndpointEvent.MODIFIED, "ep1", 2);
+		assertTrue(recorder.waitFor(1, 5000));
+		List<Event> events = recorder.getBatches().get(0).events;
+		assertEquals(1, events.size());
+		assertEvent(EndpointEvent.ADDED, "ep1", 2, events.get(0));
+		// a new window for the next events
+		add(L1, EndpointEvent.REMOVED, "ep1", 2);
+		assertTrue(recorder.waitFor(2, 5000));
+	}
+
+	public void testClose() {
+		add(L1, EndpointEvent.ADDED, "ep1", 1);
+		add(L1, EndpointEvent.ADDED, "ep2", 1);
+		coalescer.close();
+		coalescer.flush();
+		assertTrue(recorder.getBatches().isEmpty());
+		assertCounted(2, 0, 0);
+		// passed on at once, since it can no longer be held back
+		add(L1, EndpointEvent.ADDED, "ep3", 1);
+		assertEquals(1, recorder.getBatches().size());
+	}
+
+	public void testFlushesInOrder() throws Exception {
+		final CountDownLatch dispatching = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		createCoalescer(WINDOW, 1000, new EndpointEventCoalescer.Dispatcher() {
+			public void dispatch(Object listener, boolean legacy,
+					List<Event> events) {
+				if (dispatching.getCount() > 0) {
+					dispatching.countDown();
+					try {
+						release.await(5, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				recorder.dispatch(listener, legacy, events);
+			}
+		});
+		add(L1, EndpointEvent.ADDED, "ep1", 1);
+		Thread first = new Thread(new Runnable() {
+			public void run() {
+				coalescer.flush();
+			}
+		});
+		first.start();
+		assertTrue(dispatching.await(5, TimeUnit.SECONDS));
+		add(L1, EndpointEvent.REMOVED, "ep1", 1);
+		Thread second = new Thread(new Runnable() {
+			public void run() {
+				coalescer.flush();
+			}
+		});
+		second.start();
+		// the second flush waits for the first one to be dispatched
+		second.join(200);
+		assertTrue(second.isAlive());
+		assertTrue(recorder.getBatches().isEmpty());
+		release.countDown();
+		first.join(5000);
+		second.join(5000);
+		List<Batch> batches = recorder.getBatches();
+		assertEquals(2, batches.size());
+		assertEvent(EndpointEvent.ADDED, "ep1", 1, batches.get(0).events.get(0));
+		assertEvent(EndpointEvent.REMOVED, "ep1", 1,
+				batches.get(1).events.get(0));
+	}
+
+	public void testStatistics() {
+		for (int i = 0; i < 3; i++)
+			counters.queued();
+		counters.coalesced(1);
+		assertEquals(2, counters.getQueueDepth());
+		counters.delivered(TimeUnit.MILLISECONDS.toNanos(2));
+		counters.delivered(TimeUnit.MILLISECONDS.toNanos(4));
+		counters.batch();
+		counters.queued();
+		counters.discarded(1);
+		assertEquals(4, counters.getQueued());
+		assertEquals(1, counters.getCoalesced());
+		assertEquals(2, counters.getDelivered());
+		assertEquals(1, counters.getBatches());
+		assertEquals(0, counters.getQueueDepth());
+		assertEquals(3, counters.getMaxQueueDepth());
+		assertEquals(3.0, counters.getAverageLatency(), 0.001);
+		assertEquals(4, counters.getMaxLatency());
+	}
+
+	public void testNoLatencyWithoutDeliveries() {
+		assertEquals(0.0, counters.getAverageLatency(), 0.0);
+		assertEquals(0, counters.getMaxLatency());
+	}
+}
@@ -0,0 +1,202 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.osgi.services.remoteserviceadmin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.internal.osgi.services.remoteserviceadmin.EndpointListenerIndex;
+import org.eclipse.ecf.internal.osgi.services.remoteserviceadmin.EndpointListenerIndex.CompiledFilter;
+import org.eclipse.ecf.internal.osgi.services.remoteserviceadmin.EndpointListenerIndex.Scope;
+import org.osgi.framework.Constants;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.service.remoteserviceadmin.EndpointDescription;
+import org.osgi.service.remoteserviceadmin.RemoteConstants;
+
+/**
+ * Tests the values an {@link EndpointListenerIndex} takes from the filters of
+ * the scopes, and that the listeners it finds for an endpoint include all
+ * those whose scopes match it.
+ */
+public class EndpointListenerIndexTest extends TestCase {
+
+	private static final String UUID = RemoteConstants.ENDPOINT_FRAMEWORK_UUID;
+
+	private static final String[][] SCOPES = {
+			{ "(objectClass=a.A)" },
+			{ "(endpoint.framework.uuid=u1)" },
+			{ "(endpoint.id=*)" },
+			{ "(objectClass=b.B)", "(endpoint.framework.uuid=u1)" },
+			{ "(&(objectClass=a.A)(endpoint.framework.uuid=u2))" },
+			{ "(|(objectClass=a.A)(objectClass=b.B))" },
+			{},
+			{ "(&(endpoint.framework.uuid=u2)(service.intents=x))" } };
+
+	private static void assertRequired(String objectClass,
+			String frameworkUUID, String filter) {
+		String[] required = EndpointListenerIndex.getRequiredValues(filter);
+		assertEquals(filter, objectClass, required[0]);
+		assertEquals(filter, frameworkUUID, required[1]);
+	}
+
+	private static EndpointDescription createEndpoint(String frameworkUUID,
+			String... interfaces) {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(RemoteConstants.ENDPOINT_ID, "ecftcp://localhost:3282/server");
+		props.put(Constants.OBJECTCLASS, interfaces);
+		props.put(RemoteConstants.SERVICE_IMPORTED_CONFIGS,
+				new String[] { "ecf.generic.client" });
+		if (frameworkUUID != null)
+			props.put(UUID, frameworkUUID);
+		return new EndpointDescription(props);
+	}
+
+	private static EndpointListenerIndex createIndex(String[][] scopes)
+			throws InvalidSyntaxException {
+		Scope[] result = new Scope[scopes.length];
+		for (int i = 0; i < scopes.length; i++) {
+			CompiledFilter[] compiled = new CompiledFilter[scopes[i].length];
+			for (int j = 0; j < compiled.length; j++)
+				compiled[j] = EndpointListenerIndex.compile(scopes[i][j]);
+			result[i] = new Scope(Arrays.asList(scopes[i]), compiled);
+		}
+		return new EndpointListenerIndex(0, null, result);
+	}
+
+	private static void assertCandidates(int[] expected, int[] candidates) {
+		assertEquals(Arrays.toString(expected), Arrays.toString(candidates));
+	}
+
+	public void testSingleComparison() {
+		assertRequired("a.A", null, "(objectClass=a.A)");
+		assertRequired(null, "u1", "(endpoint.framework.uuid=u1)");
+		assertRequired("a.A", null, "  (objectClass=a.A) ");
+		// attribute names are case insensitive, values are not
+		assertRequired("a.A", null, "(OBJECTCLASS=a.A)");
+		assertRequired(null, "U1", "(Endpoint.Framework.UUID=U1)");
+		assertRequired(null, null, "(endpoint.id=a.A)");
+	}
+
+	public void testTopLevelAnd() {
+		assertRequired("a.A", "u1",
+				"(&(objectClass=a.A)(endpoint.framework.uuid=u1))");
+		assertRequired("a.A", "u1",
+				"(&(endpoint.framework.uuid=u1) (service.intents=x)(objectClass=a.A))");
+		// the other terms do not need to be simple
+		assertRequired("a.A", null,
+				"(&(|(service.intents=x)(service.intents=y))(objectClass=a.A))");
+		assertRequired("a.A", null, "(&(!(objectClass=b.B))(objectClass=a.A))");
+		// an escaped parenthesis does not end a term
+		assertRequired("a.A", null, "(&(endpoint.id=\\))(objectClass=a.A))");
+		// the first of several values is taken, all of them are required
+		assertRequired("a.A", null, "(&(objectClass=a.A)(objectClass=b.B))");
+	}
+
+	public void testNoRequiredValues() {
+		// a value is only required if every match has it
+		assertRequired(null, null, "(|(objectClass=a.A)(objectClass=b.B))");
+		assertRequired(null, null, "(!(objectClass=a.A))");
+		assertRequired(null, null, "(&(|(objectClass=a.A)(endpoint.id=x)))");
+		// only equality with a plain value
+		assertRequired(null, null, "(objectClass=a.*)");
+		assertRequired(null, null, "(objectClass=*)");
+		assertRequired(null, null, "(objectClass=a\\2a)");
+		assertRequired(null, null, "(objectClass~=a.A)");
+		assertRequired(null, null, "(objectClass>=a.A)");
+		assertRequired(null, null, "(objectClass<=a.A)");
+		assertRequired(null, null, "(objectClass= a.A)");
+		assertRequired(null, null, "(objectClass=)");
+	}
+
+	public void testMalformedFilters() {
+		assertRequired(null, null, "(&(objectClass=a.A)x)");
+		assertRequired(null, null, "(&(objectClass=a.A)))(x=y)");
+		assertRequired(null, null, "(&(objectClass=a.A)");
+		assertRequired(null, null, "objectClass=a.A");
+		assertRequired(null, null, "");
+	}
+
+	public void testCompile() throws Exception {
+		CompiledFilter f = EndpointListenerIndex.compile("(objectClass=a.A)");
+		assertEquals("(objectClass=a.A)", f.getFilter());
+		assertSame(f, EndpointListenerIndex.compile("(objectClass=a.A)"));
+		assertTrue(f.matches(createEndpoint(null, "a.A", "b.B")));
+		assertFalse(f.matches(createEndpoint(null, "b.B")));
+		try {
+			EndpointListenerIndex.compile("(objectClass=a.A");
+			fail();
+		} catch (InvalidSyntaxException e) {
+			// expected
+		}
+	}
+
+	public void testCandidates() throws Exception {
+		EndpointListenerIndex index = createIndex(SCOPES);
+		assertCandidates(new int[] { 0, 1, 2, 3, 4, 5 },
+				index.getCandidates(createEndpoint("u1", "a.A")));
+		// 4 is found by its objectClass only, so it is not evaluated for b.B
+		// although its framework uuid is the same
+		assertCandidates(new int[] { 2, 3, 5, 7 },
+				index.getCandidates(createEndpoint("u2", "b.B")));
+		assertCandidates(new int[] { 2, 5 },
+				index.getCandidates(createEndpoint(null, "c.C")));
+		// 3 is found by both b.B and u1, and listed once
+		assertCandidates(new int[] { 0, 1, 2, 3, 4, 5 },
+				index.getCandidates(createEndpoint("u1", "a.A", "b.B")));
+	}
+
+	public void testCandidatesWithoutUnindexed() throws Exception {
+		EndpointListenerIndex index = createIndex(new String[][] {
+				{ "(objectClass=a.A)" }, { "(endpoint.framework.uuid=u1)" } });
+		assertCandidates(new int[0],
+				index.getCandidates(createEndpoint("u2", "c.C")));
+		assertCandidates(new int[] { 1 },
+				index.getCandidates(createEndpoint("u1", "c.C")));
+		assertCandidates(new int[0],
+				createIndex(new String[0][]).getCandidates(
+						createEndpoint("u1", "a.A")));
+	}
+
+	public void testCandidatesIncludeMatches() throws Exception {
+		EndpointListenerIndex index = createIndex(SCOPES);
+		String[] interfaces = { "a.A", "b.B", "c.C" };
+		String[] uuids = { null, "u1", "u2", "u3" };
+		List<EndpointDescription> endpoints = new ArrayList<EndpointDescription>();
+		for (int i = 0; i < interfaces.length; i++)
+			for (int j = 0; j < uuids.length; j++) {
+				endpoints.add(createEndpoint(uuids[j], interfaces[i]));
+				endpoints.add(createEndpoint(uuids[j], interfaces[i],
+						interfaces[(i + 1) % interfaces.length]));
+			}
+		for (EndpointDescription ed : endpoints) {
+			int[] candidates = index.getCandidates(ed);
+			for (int i = 1; i < candidates.length; i++)
+				assertTrue(candidates[i - 1] < candidates[i]);
+			for (int i = 0; i < SCOPES.length; i++) {
+				String expected = null;
+				for (int j = 0; j < SCOPES[i].length && expected == null; j++)
+					if (ed.matches(SCOPES[i][j]))
+						expected = SCOPES[i][j];
+				assertEquals(expected, index.getScope(i).match(ed));
+				if (expected != null)
+					assertTrue(ed + " " + expected,
+							Arrays.binarySearch(candidates, i) >= 0);
+			}
+		}
+	}
+}
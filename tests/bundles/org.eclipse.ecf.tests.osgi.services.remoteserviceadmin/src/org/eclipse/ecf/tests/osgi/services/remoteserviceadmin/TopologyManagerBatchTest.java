@@ -0,0 +1,181 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.osgi.services.remoteserviceadmin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.core.identity.StringID;
+import org.eclipse.ecf.osgi.services.remoteserviceadmin.EndpointDescription;
+import org.eclipse.ecf.osgi.services.remoteserviceadmin.RemoteConstants;
+import org.eclipse.ecf.osgi.services.remoteserviceadmin.TopologyManager;
+import org.eclipse.ecf.osgi.services.remoteserviceadmin.TopologyManagerImpl;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.service.remoteserviceadmin.EndpointEvent;
+
+/**
+ * Tests that a batch of endpoint events reaches the per-endpoint hooks of
+ * {@link TopologyManagerImpl} that a subclass overrides, and that the added
+ * ECF endpoints are imported together otherwise.
+ */
+public class TopologyManagerBatchTest extends TestCase {
+
+	private static final String SCOPE_PROPERTY = TopologyManager.class
+			.getName() + ".ecfNonLocalEndpointListenerScope";
+
+	private static final String ECF_SCOPE = "("
+			+ RemoteConstants.ENDPOINT_CONTAINER_ID_NAMESPACE + "=*)";
+
+	private final List<String> calls = new ArrayList<String>();
+	private TopologyManagerImpl topologyManager;
+	private String previousScope;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		previousScope = System.setProperty(SCOPE_PROPERTY, ECF_SCOPE);
+	}
+
+	protected void tearDown() throws Exception {
+		if (topologyManager != null)
+			topologyManager.close();
+		if (previousScope == null)
+			System.getProperties().remove(SCOPE_PROPERTY);
+		else
+			System.setProperty(SCOPE_PROPERTY, previousScope);
+		super.tearDown();
+	}
+
+	private static BundleContext getContext() {
+		return FrameworkUtil.getBundle(TopologyManagerBatchTest.class)
+				.getBundleContext();
+	}
+
+	private static EndpointDescription createEndpoint(String id) {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(org.osgi.service.remoteserviceadmin.RemoteConstants.ENDPOINT_ID,
+				id);
+		props.put(Constants.OBJECTCLASS,
+				new String[] { TestServiceInterface1.class.getName() });
+		props.put(
+				org.osgi.service.remoteserviceadmin.RemoteConstants.SERVICE_IMPORTED_CONFIGS,
+				new String[] { "ecf.generic.client" });
+		props.put(
+				org.osgi.service.remoteserviceadmin.RemoteConstants.ENDPOINT_FRAMEWORK_UUID,
+				"remote");
+		props.put(RemoteConstants.ENDPOINT_ID, id);
+		props.put(RemoteConstants.ENDPOINT_TIMESTAMP, new Long(1));
+		props.put(RemoteConstants.ENDPOINT_CONTAINER_ID_NAMESPACE,
+				StringID.class.getName());
+		props.put(org.eclipse.ecf.remoteservice.Constants.SERVICE_ID,
+				new Long(1));
+		return new EndpointDescription(props);
+	}
+
+	private void endpointsChanged(int... types) {
+		EndpointEvent[] events = new EndpointEvent[types.length];
+		String[] filters = new String[types.length];
+		for (int i = 0; i < types.length; i++) {
+			events[i] = new EndpointEvent(types[i], createEndpoint("ep" + i));
+			filters[i] = ECF_SCOPE;
+		}
+		topologyManager.endpointsChanged(events, filters);
+	}
+
+	private void assertCalls(String... expected) {
+		List<String> list = new ArrayList<String>();
+		for (String call : expected)
+			list.add(call);
+		assertEquals(list, calls);
+	}
+
+	public void testHandleEndpointAddedOverridden() {
+		topologyManager = new TopologyManagerImpl(getContext()) {
+			protected void handleEndpointAdded(
+					org.osgi.service.remoteserviceadmin.EndpointDescription endpoint,
+					String matchedFilter) {
+				calls.add("added " + endpoint.getId());
+			}
+
+			protected void handleEndpointRemoved(
+					org.osgi.service.remoteserviceadmin.EndpointDescription endpoint,
+					String matchedFilter) {
+				calls.add("removed " + endpoint.getId());
+			}
+		};
+		endpointsChanged(EndpointEvent.ADDED, EndpointEvent.REMOVED,
+				EndpointEvent.ADDED);
+		assertCalls("added ep0", "removed ep1", "added ep2");
+	}
+
+	public void testEndpointChangedOverridden() {
+		topologyManager = new TopologyManagerImpl(getContext()) {
+			public void endpointChanged(EndpointEvent event,
+					String matchedFilter) {
+				calls.add(event.getType() + " " + event.getEndpoint().getId());
+			}
+		};
+		endpointsChanged(EndpointEvent.ADDED, EndpointEvent.MODIFIED,
+				EndpointEvent.ADDED);
+		assertCalls(EndpointEvent.ADDED + " ep0",
+				EndpointEvent.MODIFIED + " ep1", EndpointEvent.ADDED + " ep2");
+	}
+
+	public void testHandleECFEndpointAddedOverridden() {
+		topologyManager = new TopologyManagerImpl(getContext()) {
+			protected void handleECFEndpointAdded(
+					EndpointDescription endpointDescription) {
+				calls.add("added " + endpointDescription.getId());
+			}
+
+			protected void handleECFEndpointRemoved(
+					org.osgi.service.remoteserviceadmin.EndpointDescription endpointDescription) {
+				calls.add("removed " + endpointDescription.getId());
+			}
+		};
+		endpointsChanged(EndpointEvent.ADDED, EndpointEvent.REMOVED,
+				EndpointEvent.ADDED);
+		assertCalls("added ep0", "removed ep1", "added ep2");
+	}
+
+	public void testAddedImportedTogether() {
+		topologyManager = new TopologyManagerImpl(getContext()) {
+			protected void handleECFEndpointsAdded(
+					List<EndpointDescription> endpointDescriptions) {
+				StringBuffer call = new StringBuffer("added");
+				for (EndpointDescription ed : endpointDescriptions)
+					call.append(' ').append(ed.getId());
+				calls.add(call.toString());
+			}
+
+			protected void handleECFEndpointAdded(
+					EndpointDescription endpointDescription) {
+				calls.add("added one " + endpointDescription.getId());
+			}
+
+			protected void handleECFEndpointRemoved(
+					org.osgi.service.remoteserviceadmin.EndpointDescription endpointDescription) {
+				calls.add("removed " + endpointDescription.getId());
+			}
+		};
+		endpointsChanged(EndpointEvent.ADDED, EndpointEvent.REMOVED,
+				EndpointEvent.ADDED);
+		// removals first, then the imports
+		assertCalls("removed ep1", "added ep0 ep2");
+	}
+}
@@ -0,0 +1,204 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.protocol.bittorrent.internal.net;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.protocol.bittorrent.internal.net.PiecePicker.PeerPieces;
+
+/**
+ * Tests the choices of a {@link PiecePicker}: started pieces first, then
+ * pieces of a higher priority, then the rarest pieces.
+ */
+public class PiecePickerTest extends TestCase {
+
+	private PiecePicker picker;
+
+	protected void setUp() {
+		picker = createPicker(4, PiecePicker.NORMAL);
+	}
+
+	private static PiecePicker createPicker(int numPieces, int priority) {
+		PiecePicker picker = new PiecePicker(numPieces);
+		for (int i = 0; i < numPieces; i++) {
+			picker.setPriority(i, priority);
+		}
+		return picker;
+	}
+
+	private PeerPieces createPeer(int[] pieces) {
+		PeerPieces peer = picker.createPeer();
+		for (int i = 0; i < pieces.length; i++) {
+			assertTrue(picker.addPiece(peer, pieces[i]));
+		}
+		return peer;
+	}
+
+	/**
+	 * Creates three peers so that pieces 0 and 1 are held by all three, piece
+	 * 2 by two of them and piece 3 by only the first.
+	 */
+	private PeerPieces[] createPeers() {
+		return new PeerPieces[] { createPeer(new int[] { 0, 1, 2, 3 }),
+				createPeer(new int[] { 0, 1, 2 }),
+				createPeer(new int[] { 0, 1 }) };
+	}
+
+	public void testAvailability() {
+		PeerPieces[] peers = createPeers();
+		assertEquals(3, picker.getAvailability(0));
+		assertEquals(3, picker.getAvailability(1));
+		assertEquals(2, picker.getAvailability(2));
+		assertEquals(1, picker.getAvailability(3));
+		assertTrue(peers[0].isComplete());
+		assertFalse(peers[1].isComplete());
+		assertTrue(peers[1].has(2));
+		assertFalse(peers[1].has(3));
+	}
+
+	public void testAddPieceTwice() {
+		PeerPieces peer = createPeer(new int[] { 2 });
+		assertFalse(picker.addPiece(peer, 2));
+		assertEquals(1, picker.getAvailability(2));
+	}
+
+	public void testPickRarest() {
+		PeerPieces[] peers = createPeers();
+		assertEquals(3, picker.pick(peers[0]));
+		assertEquals(2, picker.pick(peers[1]));
+		int piece = picker.pick(peers[2]);
+		assertTrue(piece == 0 || piece == 1);
+	}
+
+	public void testPickHighPriorityFirst() {
+		PeerPieces[] peers = createPeers();
+		picker.setPriority(1, PiecePicker.HIGH);
+		assertEquals(1, picker.pick(peers[0]));
+		picker.setPriority(1, PiecePicker.NORMAL);
+		assertEquals(3, picker.pick(peers[0]));
+	}
+
+	public void testPickStartedFirst() {
+		PeerPieces[] peers = createPeers();
+		picker.setStarted(0, true);
+		picker.setPriority(1, PiecePicker.HIGH);
+		assertEquals(0, picker.pick(peers[0]));
+		// a started piece that the peer does not have is not chosen
+		picker.setStarted(3, true);
+		assertEquals(0, picker.pick(peers[1]));
+		picker.setStarted(0, false);
+		assertEquals(1, picker.pick(peers[1]));
+	}
+
+	public void testUnwantedNotPicked() {
+		PeerPieces[] peers = createPeers();
+		picker.setPriority(3, PiecePicker.UNWANTED);
+		assertEquals(2, picker.pick(peers[0]));
+		// started pieces are not chosen once they are no longer wanted
+		picker.setStarted(3, true);
+		assertEquals(2, picker.pick(peers[0]));
+		picker.setPriority(3, PiecePicker.NORMAL);
+		assertEquals(3, picker.pick(peers[0]));
+	}
+
+	public void testNothingWanted() {
+		PeerPieces[] peers = createPeers();
+		for (int i = 0; i < 4; i++) {
+			picker.setPriority(i, PiecePicker.UNWANTED);
+		}
+		for (int i = 0; i < peers.length; i++) {
+			assertEquals(-1, picker.pick(peers[i]));
+		}
+		picker.setPriority(1, PiecePicker.NORMAL);
+		assertEquals(1, picker.pick(peers[2]));
+	}
+
+	public void testPickWithoutPieces() {
+		createPeers();
+		assertEquals(-1, picker.pick(picker.createPeer()));
+	}
+
+	public void testClear() {
+		PeerPieces[] peers = createPeers();
+		picker.clear(peers[0]);
+		assertEquals(2, picker.getAvailability(0));
+		assertEquals(1, picker.getAvailability(2));
+		assertEquals(0, picker.getAvailability(3));
+		assertFalse(peers[0].has(3));
+		assertEquals(-1, picker.pick(peers[0]));
+		assertEquals(2, picker.pick(peers[1]));
+		// clearing twice changes nothing
+		picker.clear(peers[0]);
+		assertEquals(2, picker.getAvailability(0));
+	}
+
+	public void testSetPieces() {
+		PeerPieces[] peers = createPeers();
+		// the array of a bitfield may be longer than the number of pieces
+		picker.setPieces(peers[2], new boolean[] { false, false, true, true,
+				true, true });
+		assertEquals(2, picker.getAvailability(0));
+		assertEquals(3, picker.getAvailability(2));
+		assertEquals(2, picker.getAvailability(3));
+		assertFalse(peers[2].has(0));
+		int piece = picker.pick(peers[2]);
+		assertEquals(3, piece);
+		picker.setPieces(peers[2], new boolean[4]);
+		assertEquals(-1, picker.pick(peers[2]));
+		assertEquals(1, picker.getAvailability(3));
+	}
+
+	public void testTiesBrokenRandomly() {
+		PeerPieces peer = createPeer(new int[] { 0, 1, 2, 3 });
+		boolean[] picked = new boolean[4];
+		for (int i = 0; i < 200; i++) {
+			picked[picker.pick(peer)] = true;
+		}
+		for (int i = 0; i < picked.length; i++) {
+			assertTrue(picked[i]);
+		}
+	}
+
+	public void testPickBeyondScanLimit() {
+		picker = createPicker(600, PiecePicker.NORMAL);
+		// more rare pieces than are looked at within the buckets, none of
+		// which the peer has
+		PeerPieces other = picker.createPeer();
+		for (int i = 0; i < 500; i++) {
+			picker.addPiece(other, i);
+		}
+		PeerPieces peer = createPeer(new int[] { 598, 599 });
+		createPeer(new int[] { 598, 599 });
+		createPeer(new int[] { 598 });
+		assertEquals(599, picker.pick(peer));
+		picker.setPriority(598, PiecePicker.HIGH);
+		assertEquals(598, picker.pick(peer));
+		picker.setPriority(598, PiecePicker.UNWANTED);
+		picker.setPriority(599, PiecePicker.UNWANTED);
+		assertEquals(-1, picker.pick(peer));
+	}
+
+	public void testManyPieces() {
+		picker = createPicker(130, PiecePicker.NORMAL);
+		// pieces on both sides of the boundaries of the 64 bit words
+		PeerPieces peer = createPeer(new int[] { 63, 64, 127, 128, 129 });
+		createPeer(new int[] { 63, 64, 127, 128 });
+		assertEquals(129, picker.pick(peer));
+		picker.setPriority(129, PiecePicker.UNWANTED);
+		int piece = picker.pick(peer);
+		assertTrue(piece == 63 || piece == 64 || piece == 127 || piece == 128);
+		assertTrue(peer.has(127));
+		assertFalse(peer.has(126));
+	}
+
+}
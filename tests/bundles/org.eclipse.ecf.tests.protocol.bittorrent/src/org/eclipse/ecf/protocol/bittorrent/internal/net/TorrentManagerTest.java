@@ -0,0 +1,398 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.protocol.bittorrent.internal.net;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.protocol.bittorrent.ITorrentStateListener;
+import org.eclipse.ecf.protocol.bittorrent.TorrentFile;
+
+/**
+ * Tests how a {@link TorrentManager} serves blocks from a torrent of five
+ * files whose piece boundaries fall inside the files.
+ */
+public class TorrentManagerTest extends TestCase {
+
+	private static final int PIECE_LENGTH = 32768;
+
+	private static final int[] LENGTHS = { 40000, 70000, 32768, 123457, 5 };
+
+	private static final long TIMEOUT = 20000;
+
+	private File directory;
+
+	private File state;
+
+	private File target;
+
+	private byte[] content;
+
+	private TorrentFile torrent;
+
+	private TorrentManager manager;
+
+	private Tracker tracker;
+
+	/**
+	 * A tracker that records the events that it is told of and answers every
+	 * announce without any peers.
+	 */
+	static class Tracker extends Thread {
+
+		private final ServerSocket socket;
+
+		private final List events = new ArrayList();
+
+		Tracker() throws IOException {
+			super("Tracker"); //$NON-NLS-1$
+			socket = new ServerSocket(0);
+			setDaemon(true);
+		}
+
+		String getAnnounce() {
+			return "http://localhost:" + socket.getLocalPort() + "/announce"; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		public void run() {
+			try {
+				while (true) {
+					Socket client = socket.accept();
+					try {
+						BufferedReader reader = new BufferedReader(
+								new InputStreamReader(client.getInputStream(),
+										"ISO-8859-1")); //$NON-NLS-1$
+						String request = reader.readLine();
+						int index = request.indexOf("&event="); //$NON-NLS-1$
+						if (index != -1) {
+							synchronized (events) {
+								events.add(request.substring(index + 7,
+										request.indexOf('&', index + 1)));
+								events.notifyAll();
+							}
+						}
+						String line = reader.readLine();
+						while (line != null && line.length() != 0) {
+							line = reader.readLine();
+						}
+						byte[] body = "d8:intervali1800e5:peers0:e" //$NON-NLS-1$
+								.getBytes("ISO-8859-1"); //$NON-NLS-1$
+						OutputStream out = client.getOutputStream();
+						out.write(("HTTP/1.0 200 OK\r\nContent-Length: " //$NON-NLS-1$
+								+ body.length + "\r\n\r\n").getBytes("ISO-8859-1")); //$NON-NLS-1$ //$NON-NLS-2$
+						out.write(body);
+						out.flush();
+					} finally {
+						client.close();
+					}
+				}
+			} catch (IOException e) {
+				// closed
+			}
+		}
+
+		boolean waitForEvent(String event) throws InterruptedException {
+			long end = System.currentTimeMillis() + TIMEOUT;
+			synchronized (events) {
+				long wait;
+				while (!events.contains(event)
+						&& (wait = end - System.currentTimeMillis()) > 0) {
+					events.wait(wait);
+				}
+				return events.contains(event);
+			}
+		}
+
+		void close() throws IOException {
+			socket.close();
+		}
+	}
+
+	protected void setUp() throws Exception {
+		directory = File.createTempFile("torrent", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		directory.delete();
+		state = new File(directory, "state"); //$NON-NLS-1$
+		state.mkdirs();
+		TorrentManager.setStatePath(state);
+		target = new File(directory, "multi"); //$NON-NLS-1$
+		target.mkdirs();
+
+		int total = 0;
+		for (int i = 0; i < LENGTHS.length; i++) {
+			total += LENGTHS[i];
+		}
+		content = new byte[total];
+		new Random(3).nextBytes(content);
+		int offset = 0;
+		for (int i = 0; i < LENGTHS.length; i++) {
+			FileOutputStream out = new FileOutputStream(new File(target, "f" //$NON-NLS-1$
+					+ i));
+			out.write(content, offset, LENGTHS[i]);
+			out.close();
+			offset += LENGTHS[i];
+		}
+
+		tracker = new Tracker();
+		tracker.start();
+		torrent = new TorrentFile(createTorrent(tracker.getAnnounce()));
+		torrent.setTargetFile(target);
+		manager = new TorrentManager(torrent, null);
+		waitForHashCheck();
+	}
+
+	protected void tearDown() throws Exception {
+		manager.remove();
+		tracker.close();
+		delete(directory);
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (int i = 0; i < children.length; i++) {
+				delete(children[i]);
+			}
+		}
+		file.delete();
+	}
+
+	private static void writeString(ByteArrayOutputStream out, String string)
+			throws IOException {
+		byte[] bytes = string.getBytes("ISO-8859-1"); //$NON-NLS-1$
+		out.write((bytes.length + ":").getBytes("ISO-8859-1")); //$NON-NLS-1$ //$NON-NLS-2$
+		out.write(bytes);
+	}
+
+	private static void writeInteger(ByteArrayOutputStream out, long number)
+			throws IOException {
+		out.write(("i" + number + "e").getBytes("ISO-8859-1")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	/**
+	 * Writes the bencoded metainfo of the files into a <i>.torrent</i> file.
+	 */
+	File createTorrent(String tracker) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+		ByteArrayOutputStream pieces = new ByteArrayOutputStream();
+		for (int i = 0; i < content.length; i += PIECE_LENGTH) {
+			digest.update(content, i, Math.min(PIECE_LENGTH, content.length
+					- i));
+			pieces.write(digest.digest());
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write('d');
+		writeString(out, "announce"); //$NON-NLS-1$
+		writeString(out, tracker);
+		writeString(out, "info"); //$NON-NLS-1$
+		out.write('d');
+		writeString(out, "files"); //$NON-NLS-1$
+		out.write('l');
+		for (int i = 0; i < LENGTHS.length; i++) {
+			out.write('d');
+			writeString(out, "length"); //$NON-NLS-1$
+			writeInteger(out, LENGTHS[i]);
+			writeString(out, "path"); //$NON-NLS-1$
+			out.write('l');
+			writeString(out, "f" + i); //$NON-NLS-1$
+			out.write('e');
+			out.write('e');
+		}
+		out.write('e');
+		writeString(out, "name"); //$NON-NLS-1$
+		writeString(out, "multi"); //$NON-NLS-1$
+		writeString(out, "piece length"); //$NON-NLS-1$
+		writeInteger(out, PIECE_LENGTH);
+		writeString(out, "pieces"); //$NON-NLS-1$
+		writeString(out, new String(pieces.toByteArray(), "ISO-8859-1")); //$NON-NLS-1$
+		out.write('e');
+		out.write('e');
+
+		File file = new File(directory, "multi.torrent"); //$NON-NLS-1$
+		FileOutputStream stream = new FileOutputStream(file);
+		stream.write(out.toByteArray());
+		stream.close();
+		return file;
+	}
+
+	private int getNumPieces() {
+		return (content.length + PIECE_LENGTH - 1) / PIECE_LENGTH;
+	}
+
+	private int getPieceLength(int piece) {
+		return Math.min(PIECE_LENGTH, content.length - piece * PIECE_LENGTH);
+	}
+
+	/**
+	 * Waits for the hash check that the manager starts when it is created,
+	 * which ends by recording the pieces that passed it.
+	 */
+	private void waitForHashCheck() throws InterruptedException {
+		File verified = new File(state, torrent.getHexHash() + ".verified"); //$NON-NLS-1$
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (!verified.exists() && System.currentTimeMillis() < end) {
+			Thread.sleep(50);
+		}
+		assertTrue(verified.exists());
+	}
+
+	private byte[] transfer(int piece, int offset, int length)
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		manager.transferPieceData(piece, offset, length, Channels
+				.newChannel(out));
+		return out.toByteArray();
+	}
+
+	private byte[] content(int piece, int offset, int length) {
+		int start = piece * PIECE_LENGTH + offset;
+		return Arrays.copyOfRange(content, start, start + length);
+	}
+
+	public void testHashCheckPassed() {
+		assertEquals(0, manager.getRemaining());
+	}
+
+	public void testTransferPieces() throws Exception {
+		for (int piece = 0; piece < getNumPieces(); piece++) {
+			int length = getPieceLength(piece);
+			assertTrue(Arrays.equals(content(piece, 0, length), transfer(
+					piece, 0, length)));
+		}
+	}
+
+	public void testTransferBlocks() throws Exception {
+		Random random = new Random(5);
+		for (int piece = 0; piece < getNumPieces(); piece++) {
+			int pieceLength = getPieceLength(piece);
+			for (int i = 0; i < 50; i++) {
+				int offset = random.nextInt(pieceLength);
+				int length = random.nextInt(pieceLength - offset + 1);
+				assertTrue(Arrays.equals(content(piece, offset, length),
+						transfer(piece, offset, length)));
+			}
+		}
+	}
+
+	public void testTransferAcrossFiles() throws Exception {
+		// piece 1 starts within the first file and ends within the second
+		assertTrue(Arrays.equals(content(1, 7000, 2000), transfer(1, 7000,
+				2000)));
+		// the last piece starts within the fourth file and ends with the
+		// fifth
+		int last = getNumPieces() - 1;
+		int length = getPieceLength(last);
+		assertTrue(Arrays.equals(content(last, length - 10, 10), transfer(
+				last, length - 10, 10)));
+	}
+
+	public void testTransferOutOfRange() throws Exception {
+		try {
+			transfer(0, PIECE_LENGTH - 10, 20);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			transfer(0, -1, 10);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			transfer(getNumPieces(), 0, 10);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		int last = getNumPieces() - 1;
+		try {
+			transfer(last, 0, getPieceLength(last) + 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testTransferShortFile() throws Exception {
+		RandomAccessFile file = new RandomAccessFile(new File(target, "f1"), //$NON-NLS-1$
+				"rw"); //$NON-NLS-1$
+		file.setLength(30000);
+		file.close();
+		try {
+			// piece 2 is held by the second file from 25536 on, so this
+			// block would start at 35536 within it
+			transfer(2, 10000, 1000);
+			fail();
+		} catch (EOFException e) {
+			// expected
+		}
+		// blocks before the end of the shortened file can still be served
+		assertTrue(Arrays.equals(content(1, 0, 1000), transfer(1, 0, 1000)));
+	}
+
+	public void testStopAfterFailedSave() throws Exception {
+		final int[] state = new int[] { -1 };
+		manager.addTorrentStateListener(new ITorrentStateListener() {
+			public void stateChanged(int newState) {
+				synchronized (state) {
+					state[0] = newState;
+					state.notifyAll();
+				}
+			}
+		});
+		manager.start();
+		assertTrue(tracker.waitForEvent("started")); //$NON-NLS-1$
+
+		// the verified pieces can no longer be recorded
+		File verified = new File(this.state, torrent.getHexHash()
+				+ ".verified"); //$NON-NLS-1$
+		assertTrue(verified.delete());
+		assertTrue(new File(verified, "blocked").mkdirs()); //$NON-NLS-1$
+		manager.setMaxDownloadSpeed(12345);
+		manager.stop();
+
+		// the tracker is still told, and the settings are still stored
+		assertTrue(tracker.waitForEvent("stopped")); //$NON-NLS-1$
+		synchronized (state) {
+			assertEquals(ITorrentStateListener.STOPPED, state[0]);
+		}
+		Properties properties = new Properties();
+		FileInputStream in = new FileInputStream(new File(this.state, torrent
+				.getHexHash()
+				+ ".properties")); //$NON-NLS-1$
+		properties.load(in);
+		in.close();
+		assertEquals("12345", properties.getProperty("down.speed")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+}
@@ -0,0 +1,187 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.protocol.bittorrent.internal.torrent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the positional reads and transfers of a {@link DataFile} that holds
+ * the end of piece 3, all of piece 4 and the start of piece 5.
+ */
+public class DataFileTest extends TestCase {
+
+	private static final int LENGTH = 100;
+
+	private File file;
+
+	private byte[] content;
+
+	private DataFile dataFile;
+
+	protected void setUp() throws Exception {
+		file = File.createTempFile("datafile", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+		content = new byte[LENGTH];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) (i * 7);
+		}
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(content);
+		out.close();
+		dataFile = new DataFile(file, LENGTH);
+		// bytes 0-9 belong to piece 3, 10-49 to piece 4 and 50-99 to piece 5
+		dataFile.setPieces(new int[] { 3, 4, 5 }, 10, 40);
+	}
+
+	protected void tearDown() throws Exception {
+		dataFile.getChannel().close();
+		file.delete();
+	}
+
+	private byte[] content(int from, int to) {
+		return Arrays.copyOfRange(content, from, to);
+	}
+
+	private byte[] read(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.position()];
+		buffer.flip();
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	public void testGetPieceLength() {
+		assertEquals(10, dataFile.getPieceLength(3));
+		assertEquals(40, dataFile.getPieceLength(4));
+		assertEquals(50, dataFile.getPieceLength(5));
+		assertEquals(-1, dataFile.getPieceLength(2));
+		assertEquals(-1, dataFile.getPieceLength(6));
+	}
+
+	public void testGetData() throws Exception {
+		assertTrue(Arrays.equals(content(0, 10), dataFile.getData(3)));
+		assertTrue(Arrays.equals(content(10, 50), dataFile.getData(4)));
+		assertTrue(Arrays.equals(content(50, 100), dataFile.getData(5)));
+		assertNull(dataFile.getData(6));
+	}
+
+	public void testRead() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(20);
+		assertEquals(20, dataFile.read(4, 5, buffer));
+		assertTrue(Arrays.equals(content(15, 35), read(buffer)));
+	}
+
+	public void testReadAtBufferPosition() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(30);
+		buffer.position(10);
+		assertEquals(20, dataFile.read(5, 30, buffer));
+		assertEquals(30, buffer.position());
+		assertTrue(Arrays.equals(content(80, 100), Arrays.copyOfRange(buffer
+				.array(), 10, 30)));
+	}
+
+	public void testReadStopsAtEndOfPiece() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(64);
+		assertEquals(10, dataFile.read(4, 30, buffer));
+		// the data of the next piece is not read, and the limit is restored
+		assertEquals(64, buffer.limit());
+		assertTrue(Arrays.equals(content(40, 50), read(buffer)));
+	}
+
+	public void testReadAtEndOfPiece() throws Exception {
+		assertEquals(0, dataFile.read(3, 10, ByteBuffer.allocate(8)));
+	}
+
+	public void testReadOtherPiece() throws Exception {
+		assertEquals(-1, dataFile.read(6, 0, ByteBuffer.allocate(8)));
+	}
+
+	public void testReadInvalidOffset() throws Exception {
+		try {
+			dataFile.read(4, 41, ByteBuffer.allocate(8));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			dataFile.read(4, -1, ByteBuffer.allocate(8));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testReadShortFile() throws Exception {
+		dataFile.getChannel().truncate(60);
+		ByteBuffer buffer = ByteBuffer.allocate(50);
+		assertEquals(10, dataFile.read(5, 0, buffer));
+		assertTrue(Arrays.equals(content(50, 60), read(buffer)));
+	}
+
+	public void testReadAfterWrite() throws Exception {
+		byte[] block = new byte[] { 1, 2, 3, 4, 5 };
+		assertNull(dataFile.write(5, 20, block, new int[] { 0, block.length,
+				0 }));
+		// reading does not use the file pointer that the write has moved
+		ByteBuffer buffer = ByteBuffer.allocate(9);
+		assertEquals(9, dataFile.read(5, 18, buffer));
+		byte[] expected = content(68, 77);
+		System.arraycopy(block, 0, expected, 2, block.length);
+		assertTrue(Arrays.equals(expected, read(buffer)));
+	}
+
+	public void testTransferTo() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(20, dataFile.transferTo(4, 5, 20, Channels
+				.newChannel(out)));
+		assertTrue(Arrays.equals(content(15, 35), out.toByteArray()));
+	}
+
+	public void testTransferToStopsAtEndOfPiece() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(10, dataFile.transferTo(5, 40, 100, Channels
+				.newChannel(out)));
+		assertTrue(Arrays.equals(content(90, 100), out.toByteArray()));
+	}
+
+	public void testTransferToOtherPiece() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(-1, dataFile.transferTo(2, 0, 10, Channels
+				.newChannel(out)));
+		assertEquals(0, out.size());
+	}
+
+	public void testTransferToInvalidOffset() throws Exception {
+		try {
+			dataFile.transferTo(3, 11, 1, Channels
+					.newChannel(new ByteArrayOutputStream()));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testTransferToShortFile() throws Exception {
+		dataFile.getChannel().truncate(60);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(10, dataFile.transferTo(5, 0, 50, Channels
+				.newChannel(out)));
+		assertTrue(Arrays.equals(content(50, 60), out.toByteArray()));
+	}
+
+}
@@ -0,0 +1,368 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.provider.datashare.nio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.core.IContainer;
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.identity.IDFactory;
+import org.eclipse.ecf.core.util.ECFException;
+import org.eclipse.ecf.datashare.IChannelListener;
+import org.eclipse.ecf.datashare.events.IChannelEvent;
+import org.eclipse.ecf.datashare.events.IChannelMessageEvent;
+import org.eclipse.ecf.datashare.events.IChannelStreamEvent;
+
+/**
+ * Tests the processing of channel sockets with a selector: ordering and framing
+ * of messages, messages that span several reads, several peers on one channel,
+ * the latency of a round trip and the cancellation of streams.
+ */
+public class NIOChannelTest extends TestCase {
+
+	private static final String LOCALHOST = "127.0.0.1"; //$NON-NLS-1$
+
+	private static final String CHANNEL_NAME = "channel"; //$NON-NLS-1$
+
+	private static final long TIMEOUT = 10000;
+
+	/**
+	 * Listener that records the data of the messages it receives.
+	 */
+	static class MessageListener implements IChannelListener {
+		final List messages = new ArrayList();
+		final List senders = new ArrayList();
+
+		public void handleChannelEvent(IChannelEvent event) {
+			if (event instanceof IChannelMessageEvent) {
+				IChannelMessageEvent e = (IChannelMessageEvent) event;
+				synchronized (this) {
+					messages.add(e.getData());
+					senders.add(e.getFromContainerID());
+					notifyAll();
+				}
+			}
+		}
+
+		synchronized List waitForCount(int count) throws InterruptedException {
+			long end = System.currentTimeMillis() + TIMEOUT;
+			long wait;
+			while (messages.size() < count
+					&& (wait = end - System.currentTimeMillis()) > 0) {
+				wait(wait);
+			}
+			return new ArrayList(messages);
+		}
+	}
+
+	/**
+	 * Listener that reads the given number of bytes of the streams it is sent,
+	 * and closes them.
+	 */
+	static class StreamListener implements IChannelListener {
+		final List received = new ArrayList();
+		int readLimit = -1;
+		int events;
+
+		public void handleChannelEvent(IChannelEvent event) {
+			if (!(event instanceof IChannelStreamEvent)) {
+				return;
+			}
+			synchronized (this) {
+				events++;
+			}
+			InputStream in = ((IChannelStreamEvent) event).getInputStream();
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			try {
+				int read;
+				while ((readLimit < 0 || out.size() < readLimit)
+						&& (read = in.read(buffer)) != -1) {
+					out.write(buffer, 0, read);
+				}
+				in.close();
+			} catch (IOException e) {
+				// the stream is recorded as received so far
+			}
+			synchronized (this) {
+				received.add(out.toByteArray());
+				notifyAll();
+			}
+		}
+
+		synchronized byte[] waitForReceived(int count)
+				throws InterruptedException {
+			long end = System.currentTimeMillis() + TIMEOUT;
+			long wait;
+			while (received.size() < count
+					&& (wait = end - System.currentTimeMillis()) > 0) {
+				wait(wait);
+			}
+			assertEquals(count, received.size());
+			return (byte[]) received.get(count - 1);
+		}
+	}
+
+	private IContainer containerA = new ContainerImpl();
+	private IContainer containerB = new ContainerImpl();
+	private IContainer containerC = new ContainerImpl();
+
+	private ConcreteNIODatashareContainer channelContainerA;
+	private ConcreteNIODatashareContainer channelContainerB;
+	private ConcreteNIODatashareContainer channelContainerC;
+
+	private static ConcreteNIOChannel createChannel(
+			ConcreteNIODatashareContainer channelContainer,
+			IChannelListener listener) throws ECFException {
+		return (ConcreteNIOChannel) channelContainer.createChannel(IDFactory
+				.getDefault().createStringID(CHANNEL_NAME), listener, null);
+	}
+
+	private static byte[] createData(int length, int seed) {
+		byte[] data = new byte[length];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) ((i + seed) % 251);
+		}
+		return data;
+	}
+
+	private static void assertData(byte[] expected, byte[] actual) {
+		assertNotNull(actual);
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			if (expected[i] != actual[i]) {
+				fail("byte " + i + " differs"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		channelContainerA = new ConcreteNIODatashareContainer(containerA);
+		channelContainerB = new ConcreteNIODatashareContainer(containerB);
+		channelContainerC = new ConcreteNIODatashareContainer(containerC);
+	}
+
+	protected void tearDown() throws Exception {
+		containerA.disconnect();
+		containerB.disconnect();
+		containerC.disconnect();
+		super.tearDown();
+	}
+
+	/**
+	 * Connects channel B to the port of channel A, and waits until a first
+	 * message from A arrives at B.
+	 */
+	private void connect(ConcreteNIOChannel channelA,
+			ConcreteNIODatashareContainer from, IContainer fromContainer,
+			MessageListener listener) throws Exception {
+		int count = listener.messages.size();
+		channelA.sendMessage(fromContainer.getConnectedID(), new byte[] { 0 });
+		from.enqueue(new InetSocketAddress(LOCALHOST, channelA.getPort()));
+		assertEquals(count + 1, listener.waitForCount(count + 1).size());
+	}
+
+	public void testMessagesInOrder() throws Exception {
+		MessageListener listener = new MessageListener();
+		ConcreteNIOChannel channelA = createChannel(channelContainerA, null);
+		createChannel(channelContainerB, listener);
+		connect(channelA, channelContainerB, containerB, listener);
+
+		// sent back to back, so that the selector writes several of them at
+		// once and the receiver gets several of them in one read
+		int count = 1000;
+		for (int i = 0; i < count; i++) {
+			channelA.sendMessage(containerB.getConnectedID(), createData(
+					1 + (i * 37) % 3000, i));
+		}
+
+		List messages = listener.waitForCount(count + 1);
+		assertEquals(count + 1, messages.size());
+		for (int i = 0; i < count; i++) {
+			assertData(createData(1 + (i * 37) % 3000, i), (byte[]) messages
+					.get(i + 1));
+		}
+	}
+
+	public void testMessageLargerThanReadBuffer() throws Exception {
+		MessageListener listener = new MessageListener();
+		ConcreteNIOChannel channelA = createChannel(channelContainerA, null);
+		createChannel(channelContainerB, listener);
+		connect(channelA, channelContainerB, containerB, listener);
+
+		// larger than the largest read buffer, so it is read in several parts
+		byte[] large = createData(1024 * 1024 + 3, 7);
+		byte[] small = createData(10, 3);
+		channelA.sendMessage(containerB.getConnectedID(), large);
+		channelA.sendMessage(containerB.getConnectedID(), small);
+
+		List messages = listener.waitForCount(3);
+		assertEquals(3, messages.size());
+		assertData(large, (byte[]) messages.get(1));
+		assertData(small, (byte[]) messages.get(2));
+	}
+
+	public void testSeveralPeers() throws Exception {
+		MessageListener listenerA = new MessageListener();
+		MessageListener listenerB = new MessageListener();
+		MessageListener listenerC = new MessageListener();
+		ConcreteNIOChannel channelA = createChannel(channelContainerA,
+				listenerA);
+		ConcreteNIOChannel channelB = createChannel(channelContainerB,
+				listenerB);
+		ConcreteNIOChannel channelC = createChannel(channelContainerC,
+				listenerC);
+		connect(channelA, channelContainerB, containerB, listenerB);
+		connect(channelA, channelContainerC, containerC, listenerC);
+
+		// the sockets of both peers are served by the one selector of A
+		int count = 100;
+		for (int i = 0; i < count; i++) {
+			channelB.sendMessage(containerA.getConnectedID(), createData(100,
+					i));
+			channelC.sendMessage(containerA.getConnectedID(), createData(200,
+					i));
+		}
+
+		List messages = listenerA.waitForCount(2 * count);
+		assertEquals(2 * count, messages.size());
+		int fromB = 0;
+		int fromC = 0;
+		for (int i = 0; i < messages.size(); i++) {
+			ID sender = (ID) listenerA.senders.get(i);
+			byte[] data = (byte[]) messages.get(i);
+			if (containerB.getConnectedID().equals(sender)) {
+				assertData(createData(100, fromB++), data);
+			} else {
+				assertEquals(containerC.getConnectedID(), sender);
+				assertData(createData(200, fromC++), data);
+			}
+		}
+		assertEquals(count, fromB);
+		assertEquals(count, fromC);
+	}
+
+	public void testRoundTripLatency() throws Exception {
+		MessageListener listenerA = new MessageListener();
+		final ConcreteNIOChannel channelA = createChannel(channelContainerA,
+				listenerA);
+		final ConcreteNIOChannel[] channelB = new ConcreteNIOChannel[1];
+		final IOException[] failure = new IOException[1];
+		MessageListener echo = new MessageListener() {
+			public void handleChannelEvent(IChannelEvent event) {
+				super.handleChannelEvent(event);
+				if (event instanceof IChannelMessageEvent) {
+					try {
+						channelB[0].sendMessage(containerA.getConnectedID(),
+								((IChannelMessageEvent) event).getData());
+					} catch (ECFException e) {
+						failure[0] = new IOException(e.getMessage());
+					}
+				}
+			}
+		};
+		channelB[0] = createChannel(channelContainerB, echo);
+		connect(channelA, channelContainerB, containerB, echo);
+		assertEquals(1, listenerA.waitForCount(1).size());
+
+		int count = 50;
+		long start = System.currentTimeMillis();
+		for (int i = 1; i <= count; i++) {
+			channelA.sendMessage(containerB.getConnectedID(), createData(16,
+					i));
+			assertEquals(i + 1, listenerA.waitForCount(i + 1).size());
+		}
+		long elapsed = System.currentTimeMillis() - start;
+		assertNull(failure[0]);
+		// polling the sockets every 50 ms took at least that long per round
+		// trip
+		assertTrue("elapsed=" + elapsed, elapsed < count * 50 / 2); //$NON-NLS-1$
+	}
+
+	private static int getIncomingStreamCount(ConcreteNIOChannel channel)
+			throws Exception {
+		Field field = channel.getClass().getSuperclass().getDeclaredField(
+				"incomingStreams"); //$NON-NLS-1$
+		field.setAccessible(true);
+		return ((Map) field.get(channel)).size();
+	}
+
+	public void testReceiverCancelsStream() throws Exception {
+		final MessageListener listener = new MessageListener();
+		final StreamListener streams = new StreamListener();
+		ConcreteNIOChannel channelA = createChannel(channelContainerA, null);
+		ConcreteNIOChannel channelB = createChannel(channelContainerB,
+				new IChannelListener() {
+					public void handleChannelEvent(IChannelEvent event) {
+						listener.handleChannelEvent(event);
+						streams.handleChannelEvent(event);
+					}
+				});
+		connect(channelA, channelContainerB, containerB, listener);
+
+		streams.readLimit = 100 * 1024;
+		OutputStream out = channelA.sendStream(containerB.getConnectedID());
+		byte[] chunk = new byte[64 * 1024];
+		long end = System.currentTimeMillis() + TIMEOUT;
+		try {
+			// far more than the window, so the sender blocks until it learns
+			// of the cancellation
+			while (System.currentTimeMillis() < end) {
+				out.write(chunk);
+			}
+			fail("stream not cancelled"); //$NON-NLS-1$
+		} catch (IOException e) {
+			// cancelled by the receiver
+		}
+		assertTrue(streams.waitForReceived(1).length >= streams.readLimit);
+		// frames that were in flight when the stream was cancelled are
+		// dropped, rather than starting another stream
+		Thread.sleep(500);
+		assertEquals(1, streams.events);
+		assertEquals(0, getIncomingStreamCount(channelB));
+
+		streams.readLimit = -1;
+		byte[] expected = createData(1000, 5);
+		out = channelA.sendStream(containerB.getConnectedID());
+		out.write(expected);
+		out.close();
+		assertData(expected, streams.waitForReceived(2));
+		assertEquals(2, streams.events);
+		assertEquals(0, getIncomingStreamCount(channelB));
+	}
+
+	public void testDisposeClosesPort() throws Exception {
+		ConcreteNIOChannel channelA = createChannel(channelContainerA, null);
+		int port = channelA.getPort();
+		channelA.dispose();
+		Thread.sleep(500);
+		try {
+			new Socket(LOCALHOST, port).close();
+			fail();
+		} catch (IOException e) {
+			// nothing listens on the port anymore
+		}
+	}
+}
@@ -12,6 +12,12 @@
  *****************************************************************************/
 package org.eclipse.ecf.tests.provider.datashare.nio;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.InetSocketAddress;
 
 import junit.framework.TestCase;
@@ -27,6 +33,7 @@ import org.eclipse.ecf.datashare.events.IChannelConnectEvent;
 import org.eclipse.ecf.datashare.events.IChannelDisconnectEvent;
 import org.eclipse.ecf.datashare.events.IChannelEvent;
 import org.eclipse.ecf.datashare.events.IChannelMessageEvent;
+import org.eclipse.ecf.datashare.events.IChannelStreamEvent;
 
 public class NIODatashareTest extends TestCase {
 
@@ -285,4 +292,97 @@ public class NIODatashareTest extends TestCase {
 		assertEquals(expected1, actual[0]);
 		assertEquals(expected2, actual[1]);
 	}
+
+	private static byte[] createData(int length) {
+		byte[] data = new byte[length];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i % 251);
+		}
+		return data;
+	}
+
+	private IChannelListener createStreamListener(final byte[][] actual) {
+		return new IChannelListener() {
+			public void handleChannelEvent(IChannelEvent event) {
+				if (event instanceof IChannelStreamEvent) {
+					// the event is delivered on a thread of its own, so the
+					// stream can be read to its end here
+					InputStream in = ((IChannelStreamEvent) event)
+							.getInputStream();
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					byte[] buffer = new byte[8192];
+					try {
+						int read;
+						while ((read = in.read(buffer)) != -1) {
+							out.write(buffer, 0, read);
+						}
+						actual[0] = out.toByteArray();
+					} catch (IOException e) {
+						exception = e;
+					}
+
+					synchronized (waitObject) {
+						waitObject.notify();
+					}
+				}
+			}
+		};
+	}
+
+	public void testSendStream() throws Exception {
+		final byte[][] actual = new byte[1][];
+
+		channelA = createChannel(channelContainerA);
+
+		int targetPort = channelA.getPort();
+
+		channelB = createChannel(channelContainerB,
+				createStreamListener(actual));
+
+		// larger than the window of a stream, so the sender has to wait for
+		// the receiver
+		byte[] expected = createData(3 * 1024 * 1024 + 17);
+
+		channelContainerB.enqueue(new InetSocketAddress(LOCALHOST, targetPort));
+
+		OutputStream out = channelA.sendStream(containerB.getConnectedID());
+		out.write(expected, 0, 100);
+		out.write(expected[100]);
+		out.write(expected, 101, expected.length - 101);
+		out.close();
+
+		waitForCompletion(10000);
+
+		assertEquals(expected, actual[0]);
+	}
+
+	public void testSendFile() throws Exception {
+		final byte[][] actual = new byte[1][];
+
+		channelA = createChannel(channelContainerA);
+
+		int targetPort = channelA.getPort();
+
+		channelB = createChannel(channelContainerB,
+				createStreamListener(actual));
+
+		byte[] expected = createData(2 * 1024 * 1024 + 5);
+		File file = File.createTempFile("nio", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			FileOutputStream out = new FileOutputStream(file);
+			out.write(expected);
+			out.close();
+
+			channelContainerB.enqueue(new InetSocketAddress(LOCALHOST,
+					targetPort));
+
+			channelA.sendFile(containerB.getConnectedID(), file);
+
+			waitForCompletion(10000);
+
+			assertEquals(expected, actual[0]);
+		} finally {
+			file.delete();
+		}
+	}
 }
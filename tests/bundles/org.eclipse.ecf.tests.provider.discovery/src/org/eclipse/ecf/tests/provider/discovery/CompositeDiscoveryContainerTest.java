@@ -0,0 +1,365 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.provider.discovery;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.core.IContainer;
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.identity.IDFactory;
+import org.eclipse.ecf.core.identity.Namespace;
+import org.eclipse.ecf.discovery.IDiscoveryAdvertiser;
+import org.eclipse.ecf.discovery.IDiscoveryLocator;
+import org.eclipse.ecf.discovery.IServiceInfo;
+import org.eclipse.ecf.discovery.ServiceInfo;
+import org.eclipse.ecf.discovery.identity.IServiceID;
+import org.eclipse.ecf.discovery.identity.ServiceTypeID;
+import org.eclipse.ecf.provider.discovery.CompositeDiscoveryContainer;
+import org.eclipse.ecf.provider.discovery.CompositeDiscoveryContainer.CompositeServiceInfoWrapper;
+import org.eclipse.ecf.provider.discovery.DiscoveryProviderStatistics;
+import org.eclipse.ecf.tests.discovery.identity.TestNamespace;
+
+/**
+ * Tests how a {@link CompositeDiscoveryContainer} queries its providers in
+ * parallel, gives up on slow ones and caches their answers.
+ */
+public class CompositeDiscoveryContainerTest extends TestCase {
+
+	private static final long DELAY = 500;
+
+	private static final Namespace NAMESPACE = new TestNamespace();
+
+	static {
+		NAMESPACE.initialize("testnamespace", null);
+	}
+
+	static class TypeID extends ServiceTypeID {
+		private static final long serialVersionUID = 1L;
+
+		TypeID() {
+			super(NAMESPACE, new String[] {"ecftcp"}, new String[] {"local"}, new String[] {"tcp"}, "iana");
+		}
+	}
+
+	/**
+	 * A discovery provider that answers queries for its services after a
+	 * delay.
+	 */
+	static class Provider implements InvocationHandler {
+		final ID id;
+		final IServiceInfo[] services;
+		final Object proxy;
+		long delay;
+		// whether the delay ends when the query is interrupted
+		boolean interruptible = true;
+		boolean failing;
+		private int queries;
+		private boolean interrupted;
+		private boolean released;
+
+		Provider(String name, int serviceCount) {
+			id = IDFactory.getDefault().createStringID(name);
+			services = new IServiceInfo[serviceCount];
+			for (int i = 0; i < serviceCount; i++) {
+				services[i] = new ServiceInfo(URI.create("ecftcp://" + name + ":" + (3282 + i) + "/"), name + i, new TypeID());
+			}
+			proxy = Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {IContainer.class, IDiscoveryLocator.class, IDiscoveryAdvertiser.class}, this);
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			final String name = method.getName();
+			if (name.equals("getID") || name.equals("getConnectedID"))
+				return id;
+			if (name.equals("getServicesNamespace"))
+				return NAMESPACE;
+			if (name.equals("getServices") || name.equals("getServiceInfo"))
+				return query(name, args);
+			if (name.equals("toString"))
+				return id.getName();
+			if (name.equals("hashCode"))
+				return new Integer(System.identityHashCode(proxy));
+			if (name.equals("equals"))
+				return Boolean.valueOf(proxy == args[0]);
+			return null;
+		}
+
+		private Object query(String name, Object[] args) throws InterruptedException {
+			synchronized (this) {
+				queries++;
+				final long end = System.currentTimeMillis() + delay;
+				long wait;
+				while (!released && (wait = end - System.currentTimeMillis()) > 0) {
+					try {
+						wait(wait);
+					} catch (final InterruptedException e) {
+						interrupted = true;
+						notifyAll();
+						if (interruptible)
+							throw e;
+					}
+				}
+			}
+			if (failing)
+				throw new IllegalStateException(id.getName());
+			if (name.equals("getServices"))
+				return services;
+			for (int i = 0; i < services.length; i++) {
+				if (services[i].getServiceID().equals(args[0]))
+					return services[i];
+			}
+			return null;
+		}
+
+		synchronized int getQueries() {
+			return queries;
+		}
+
+		synchronized boolean waitForInterrupt() throws InterruptedException {
+			final long end = System.currentTimeMillis() + 10000;
+			long wait;
+			while (!interrupted && (wait = end - System.currentTimeMillis()) > 0)
+				wait(wait);
+			return interrupted;
+		}
+
+		synchronized void release() {
+			released = true;
+			notifyAll();
+		}
+	}
+
+	private final List providers = new ArrayList();
+	private CompositeDiscoveryContainer container;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		container = new CompositeDiscoveryContainer(new ArrayList());
+		container.connect(null, null);
+		container.setProviderTimeout(5000);
+	}
+
+	protected void tearDown() throws Exception {
+		for (int i = 0; i < providers.size(); i++)
+			((Provider) providers.get(i)).release();
+		container.dispose();
+		super.tearDown();
+	}
+
+	private Provider addProvider(String name, int serviceCount, long delay) {
+		final Provider provider = new Provider(name, serviceCount);
+		provider.delay = delay;
+		providers.add(provider);
+		assertTrue(container.addContainer(provider.proxy));
+		return provider;
+	}
+
+	private DiscoveryProviderStatistics getStatistics(Provider provider) {
+		return (DiscoveryProviderStatistics) container.getProviderStatistics().get(provider.id);
+	}
+
+	/**
+	 * @return the names of the given services, each of which has to come
+	 *         from the provider it names
+	 */
+	private Set getNames(IServiceInfo[] services) {
+		final Set names = new HashSet();
+		for (int i = 0; i < services.length; i++) {
+			final String name = services[i].getServiceName();
+			assertTrue(name, name.startsWith(((CompositeServiceInfoWrapper) services[i]).getId().getName()));
+			assertTrue(name, names.add(name));
+		}
+		return names;
+	}
+
+	private static void waitForCalls(DiscoveryProviderStatistics stats, long calls) throws InterruptedException {
+		final long end = System.currentTimeMillis() + 10000;
+		while (stats.getCalls() < calls && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertEquals(calls, stats.getCalls());
+	}
+
+	public void testProvidersQueriedInParallel() {
+		final Provider a = addProvider("a", 2, DELAY);
+		final Provider b = addProvider("b", 1, DELAY);
+		final Provider c = addProvider("c", 3, DELAY);
+		final long start = System.currentTimeMillis();
+		assertEquals(6, getNames(container.getServices()).size());
+		// one after the other would have taken three times the delay
+		assertTrue(System.currentTimeMillis() - start < 2 * DELAY);
+		assertEquals(1, a.getQueries());
+		assertEquals(1, b.getQueries());
+		assertEquals(1, c.getQueries());
+		final DiscoveryProviderStatistics stats = getStatistics(a);
+		assertEquals(1, stats.getCalls());
+		assertEquals(0, stats.getFailures());
+		assertEquals(0, stats.getTimeouts());
+		assertTrue(stats.getMaxLatency() >= DELAY - 50);
+	}
+
+	public void testFirstAnswer() {
+		addProvider("a", 0, 0);
+		final Provider b = addProvider("b", 2, 0);
+		container.setCacheTimeout(0);
+		final IServiceID serviceID = b.services[1].getServiceID();
+		assertSame(b.services[1], container.getServiceInfo(serviceID));
+		assertNull(container.getServiceInfo(new ServiceInfo(URI.create("ecftcp://c:3282/"), "c", new TypeID()).getServiceID()));
+	}
+
+	public void testSlowProviderTimesOut() throws Exception {
+		final Provider fast = addProvider("fast", 2, 0);
+		final Provider slow = addProvider("slow", 1, 60000);
+		container.setProviderTimeout(DELAY);
+		final long start = System.currentTimeMillis();
+		final Set names = getNames(container.getServices());
+		assertTrue(System.currentTimeMillis() - start < 4 * DELAY);
+		assertEquals(2, names.size());
+		assertTrue(names.contains("fast0"));
+		// the query that timed out is interrupted
+		assertTrue(slow.waitForInterrupt());
+		final DiscoveryProviderStatistics stats = getStatistics(slow);
+		waitForCalls(stats, 1);
+		assertEquals(1, stats.getFailures());
+		assertEquals(1, stats.getTimeouts());
+		assertEquals(0, getStatistics(fast).getTimeouts());
+	}
+
+	public void testHangingProviderSkipped() throws Exception {
+		addProvider("fast", 1, 0);
+		final Provider slow = addProvider("slow", 1, 60000);
+		slow.interruptible = false;
+		container.setProviderTimeout(DELAY);
+		container.setCacheTimeout(0);
+		assertEquals(1, container.getServices().length);
+		assertTrue(slow.waitForInterrupt());
+		// not queried again while it has not returned
+		assertEquals(1, container.getServices().length);
+		assertEquals(1, container.getServices().length);
+		assertEquals(1, slow.getQueries());
+		final DiscoveryProviderStatistics stats = getStatistics(slow);
+		assertEquals(3, stats.getTimeouts());
+		assertEquals(0, stats.getCalls());
+
+		slow.release();
+		waitForCalls(stats, 1);
+		assertEquals(2, container.getServices().length);
+		assertEquals(2, slow.getQueries());
+		assertEquals(3, stats.getTimeouts());
+	}
+
+	public void testFailingProvider() {
+		addProvider("a", 2, 0);
+		final Provider failing = addProvider("b", 2, 0);
+		failing.failing = true;
+		assertEquals(2, container.getServices().length);
+		assertEquals(1, getStatistics(failing).getFailures());
+		// the answer was incomplete, so it is not cached
+		assertEquals(2, container.getServices().length);
+		assertEquals(0, container.getCacheHits());
+		assertEquals(2, container.getCacheMisses());
+	}
+
+	public void testCacheHit() {
+		final Provider a = addProvider("a", 2, 0);
+		final Provider b = addProvider("b", 1, 0);
+		final Set names = getNames(container.getServices());
+		assertEquals(0, container.getCacheHits());
+		assertEquals(1, container.getCacheMisses());
+		assertEquals(names, getNames(container.getServices()));
+		assertEquals(names, getNames(container.getServices()));
+		assertEquals(2, container.getCacheHits());
+		assertEquals(1, container.getCacheMisses());
+		assertEquals(1, a.getQueries());
+		assertEquals(1, b.getQueries());
+		// single services and services of a type come from the cache as well
+		assertSame(a.services[1], container.getServiceInfo(a.services[1].getServiceID()));
+		assertEquals(3, container.getServices(new TypeID()).length);
+		assertEquals(1, a.getQueries());
+		assertEquals(4, container.getCacheHits());
+	}
+
+	public void testCacheNotPrimedByTimeout() throws Exception {
+		addProvider("fast", 1, 0);
+		final Provider slow = addProvider("slow", 1, 60000);
+		container.setProviderTimeout(DELAY);
+		assertEquals(1, container.getServices().length);
+		slow.release();
+		waitForCalls(getStatistics(slow), 1);
+		// the answer was incomplete, so the providers are asked again
+		assertEquals(2, container.getServices().length);
+		assertEquals(2, container.getServices().length);
+		assertEquals(1, container.getCacheHits());
+		assertEquals(2, container.getCacheMisses());
+	}
+
+	public void testCacheDisabled() {
+		final Provider a = addProvider("a", 1, 0);
+		container.setCacheTimeout(0);
+		assertEquals(0, container.getCacheTimeout());
+		container.getServices();
+		container.getServices();
+		assertEquals(2, a.getQueries());
+		assertEquals(0, container.getCacheHits());
+		assertEquals(2, container.getCacheMisses());
+	}
+
+	public void testCacheExpires() throws Exception {
+		final Provider a = addProvider("a", 1, 0);
+		container.setCacheTimeout(DELAY);
+		container.getServices();
+		container.getServices();
+		assertEquals(1, a.getQueries());
+		Thread.sleep(2 * DELAY);
+		container.getServices();
+		assertEquals(2, a.getQueries());
+	}
+
+	public void testCacheInvalidatedByNewProvider() {
+		final Provider a = addProvider("a", 1, 0);
+		assertEquals(1, container.getServices().length);
+		assertEquals(1, container.getServices().length);
+		final Provider b = addProvider("b", 2, 0);
+		assertEquals(3, container.getServices().length);
+		assertEquals(2, a.getQueries());
+		assertEquals(1, b.getQueries());
+		assertEquals(1, container.getCacheHits());
+	}
+
+	public void testProviderRemoved() {
+		final Provider a = addProvider("a", 1, 0);
+		final Provider b = addProvider("b", 2, 0);
+		assertEquals(3, container.getServices().length);
+		assertTrue(container.removeContainer(b.proxy));
+		assertEquals(1, container.getServices().length);
+		assertEquals(1, a.getQueries());
+		assertNotNull(getStatistics(a));
+		assertNull(getStatistics(b));
+	}
+
+	public void testNoQueriesAfterDispose() {
+		container.dispose();
+		final Provider a = new Provider("a", 1);
+		providers.add(a);
+		container.addContainer(a.proxy);
+		assertEquals(0, container.getServices().length);
+		assertEquals(0, a.getQueries());
+	}
+}
@@ -0,0 +1,189 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.provider.discovery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.discovery.identity.IServiceTypeID;
+import org.eclipse.ecf.discovery.identity.ServiceTypeID;
+import org.eclipse.ecf.internal.discovery.ServiceListenerIndex;
+import org.eclipse.ecf.internal.discovery.ServiceTypeComparator;
+import org.eclipse.ecf.tests.discovery.identity.TestNamespace;
+
+/**
+ * Tests that the listeners a {@link ServiceListenerIndex} finds for a service
+ * type are the ones whose types {@link ServiceTypeComparator} matches.
+ */
+public class ServiceListenerIndexTest extends TestCase {
+
+	private static final String[] NAMING_AUTHORITIES = {"iana", "*", "other"};
+	private static final String[][] SERVICES = { {"ecftcp"}, {"*"}, {"a", "b"}, {"a.b"}};
+	private static final String[][] PROTOCOLS = { {"tcp"}, {"*"}, {"udp"}};
+	private static final String[][] SCOPES = { {"local"}, {"*"}, {"global"}};
+
+	static class TypeID extends ServiceTypeID {
+		private static final long serialVersionUID = 1L;
+
+		TypeID(String[] services, String[] scopes, String[] protocols, String namingAuthority) {
+			super(new TestNamespace(), services, scopes, protocols, namingAuthority);
+		}
+	}
+
+	private final List types = new ArrayList();
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		// every combination of plain and wildcard parts
+		for (int i = 0; i < NAMING_AUTHORITIES.length; i++)
+			for (int j = 0; j < SERVICES.length; j++)
+				for (int k = 0; k < PROTOCOLS.length; k++)
+					for (int l = 0; l < SCOPES.length; l++)
+						types.add(new TypeID(SERVICES[j], SCOPES[l], PROTOCOLS[k], NAMING_AUTHORITIES[i]));
+	}
+
+	private IServiceTypeID getType(int index) {
+		return (IServiceTypeID) types.get(index);
+	}
+
+	private static void addListener(Map serviceListeners, IServiceTypeID type, Object listener) {
+		Set listeners = (Set) serviceListeners.get(type);
+		if (listeners == null) {
+			listeners = Collections.synchronizedSet(new HashSet());
+			serviceListeners.put(type, listeners);
+		}
+		listeners.add(listener);
+	}
+
+	private static ServiceListenerIndex createIndex(Map serviceListeners, Set allServiceListeners) {
+		return new ServiceListenerIndex(0, serviceListeners, allServiceListeners, Collections.EMPTY_SET);
+	}
+
+	/**
+	 * Check the listeners of every type against those found by comparing the
+	 * type with every registered type.
+	 */
+	private void assertMatches(Map serviceListeners, Set allServiceListeners) {
+		final ServiceListenerIndex index = createIndex(serviceListeners, allServiceListeners);
+		final ServiceTypeComparator comparator = new ServiceTypeComparator();
+		for (final Iterator itr = types.iterator(); itr.hasNext();) {
+			final IServiceTypeID type = (IServiceTypeID) itr.next();
+			final Set expected = new HashSet(allServiceListeners);
+			for (final Iterator keys = serviceListeners.keySet().iterator(); keys.hasNext();) {
+				final IServiceTypeID registered = (IServiceTypeID) keys.next();
+				if (comparator.compare(type, registered) == 0)
+					expected.addAll((Set) serviceListeners.get(registered));
+			}
+			final Object[] listeners = index.getServiceListeners(type);
+			assertEquals(type.toString(), expected, new HashSet(Arrays.asList(listeners)));
+			// each listener once
+			assertEquals(type.toString(), expected.size(), listeners.length);
+			// the second lookup is answered from the cache
+			assertSame(listeners, index.getServiceListeners(type));
+			assertEquals(expected, new HashSet(index.getListeners(type)));
+		}
+	}
+
+	public void testEachRegisteredType() {
+		for (int i = 0; i < types.size(); i++) {
+			final Map serviceListeners = new HashMap();
+			addListener(serviceListeners, getType(i), "listener");
+			assertMatches(serviceListeners, Collections.EMPTY_SET);
+		}
+	}
+
+	public void testAllRegisteredTypes() {
+		final Map serviceListeners = new HashMap();
+		for (int i = 0; i < types.size(); i++)
+			addListener(serviceListeners, getType(i), "listener" + i);
+		final Set all = new HashSet();
+		all.add("all");
+		assertMatches(serviceListeners, all);
+	}
+
+	public void testRandomRegistrations() {
+		final Random random = new Random(1);
+		for (int trial = 0; trial < 200; trial++) {
+			final Map serviceListeners = new HashMap();
+			final int count = random.nextInt(20);
+			// listeners may be registered for several types
+			for (int i = 0; i < count; i++)
+				addListener(serviceListeners, getType(random.nextInt(types.size())), "listener" + random.nextInt(15));
+			final Set all = new HashSet();
+			final int allCount = random.nextInt(3);
+			for (int i = 0; i < allCount; i++)
+				all.add("listener" + random.nextInt(15));
+			assertMatches(serviceListeners, all);
+		}
+	}
+
+	public void testServicesNotJoined() {
+		// ["a", "b"] and ["a.b"] are different types
+		final IServiceTypeID split = new TypeID(new String[] {"a", "b"}, new String[] {"local"}, new String[] {"tcp"}, "iana");
+		final IServiceTypeID joined = new TypeID(new String[] {"a.b"}, new String[] {"local"}, new String[] {"tcp"}, "iana");
+		final Map serviceListeners = new HashMap();
+		addListener(serviceListeners, split, "split");
+		final ServiceListenerIndex index = createIndex(serviceListeners, Collections.EMPTY_SET);
+		assertEquals(Collections.singletonList("split"), Arrays.asList(index.getServiceListeners(split)));
+		assertEquals(0, index.getServiceListeners(joined).length);
+	}
+
+	public void testWithoutTypeListeners() {
+		final Set all = new HashSet();
+		all.add("all");
+		final ServiceListenerIndex index = createIndex(new HashMap(), all);
+		assertEquals(Collections.singletonList("all"), Arrays.asList(index.getServiceListeners(getType(0))));
+		assertEquals(0, createIndex(new HashMap(), Collections.EMPTY_SET).getServiceListeners(getType(0)).length);
+	}
+
+	public void testListenersReadOnly() {
+		final Map serviceListeners = new HashMap();
+		addListener(serviceListeners, getType(0), "listener");
+		try {
+			createIndex(serviceListeners, Collections.EMPTY_SET).getListeners(getType(0)).clear();
+			fail();
+		} catch (final UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	public void testServiceTypeListeners() {
+		final Set typeListeners = new HashSet();
+		typeListeners.add("typeListener");
+		final ServiceListenerIndex index = new ServiceListenerIndex(3, new HashMap(), Collections.EMPTY_SET, typeListeners);
+		assertEquals(3, index.getVersion());
+		assertEquals(Collections.singletonList("typeListener"), Arrays.asList(index.getServiceTypeListeners()));
+	}
+
+	public void testManyEventTypes() {
+		final IServiceTypeID wildcard = new TypeID(new String[] {"*"}, new String[] {"local"}, new String[] {"tcp"}, "iana");
+		final Map serviceListeners = new HashMap();
+		addListener(serviceListeners, wildcard, "listener");
+		final ServiceListenerIndex index = createIndex(serviceListeners, Collections.EMPTY_SET);
+		// more types than the index caches
+		for (int i = 0; i < 3000; i++) {
+			final IServiceTypeID type = new TypeID(new String[] {"service" + i}, new String[] {i % 2 == 0 ? "local" : "global"}, new String[] {"tcp"}, "iana");
+			assertEquals(i % 2 == 0 ? 1 : 0, index.getServiceListeners(type).length);
+		}
+	}
+}
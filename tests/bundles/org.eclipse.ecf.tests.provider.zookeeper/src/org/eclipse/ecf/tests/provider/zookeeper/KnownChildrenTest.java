@@ -0,0 +1,152 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.provider.zookeeper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.provider.zookeeper.node.internal.INode;
+import org.eclipse.ecf.provider.zookeeper.node.internal.KnownChildren;
+import org.eclipse.ecf.provider.zookeeper.node.internal.KnownChildren.Change;
+
+/**
+ * Tests the comparison of child listings that ReadRoot uses to decide which
+ * nodes to start and stop reading.
+ */
+public class KnownChildrenTest extends TestCase {
+
+	private static final String SHARD = INode.ROOT_SLASH + INode.SHARD_PREFIX
+			+ "7";
+
+	private KnownChildren known;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		known = new KnownChildren();
+	}
+
+	private static List<String> list(String... children) {
+		return Arrays.asList(children);
+	}
+
+	private static List<String> paths(String parent, String... children) {
+		List<String> paths = new ArrayList<String>();
+		for (String child : children) {
+			paths.add(parent + INode.SLASH + child);
+		}
+		return paths;
+	}
+
+	private static void assertChange(Change change, List<String> addedShards,
+			List<String> addedNodes, List<String> removedNodes) {
+		assertNotNull(change);
+		assertEquals(new HashSet<String>(addedShards), new HashSet<String>(
+				change.getAddedShards()));
+		assertEquals(new HashSet<String>(addedNodes), new HashSet<String>(
+				change.getAddedNodes()));
+		assertEquals(new HashSet<String>(removedNodes), new HashSet<String>(
+				change.getRemovedNodes()));
+	}
+
+	public void testFirstListing() {
+		assertChange(known.update(INode.ROOT, list("a", "b"), 1),
+				list(), paths(INode.ROOT, "a", "b"), list());
+		assertEquals(new HashSet<String>(list("a", "b")),
+				known.get(INode.ROOT));
+	}
+
+	public void testOnlyChangesReported() {
+		known.update(INode.ROOT, list("a", "b", "c"), 1);
+		assertChange(known.update(INode.ROOT, list("b", "c", "d"), 2),
+				list(), paths(INode.ROOT, "d"), paths(INode.ROOT, "a"));
+		assertChange(known.update(INode.ROOT, list("b", "c", "d"), 3),
+				list(), list(), list());
+		assertChange(known.update(INode.ROOT, list(), 4), list(), list(),
+				paths(INode.ROOT, "b", "c", "d"));
+		assertTrue(known.get(INode.ROOT).isEmpty());
+	}
+
+	public void testOutOfOrderListingIgnored() {
+		known.update(INode.ROOT, list("a"), 5);
+		assertNull(known.update(INode.ROOT, list("a", "old"), 4));
+		assertEquals(Collections.singleton("a"), known.get(INode.ROOT));
+		// the same version may be listed again
+		assertChange(known.update(INode.ROOT, list("a", "b"), 5), list(),
+				paths(INode.ROOT, "b"), list());
+		// versions are per parent
+		assertChange(known.update(SHARD, list("x"), 1), list(),
+				paths(SHARD, "x"), list());
+	}
+
+	public void testShards() {
+		assertChange(
+				known.update(INode.ROOT, list("a", INode.SHARD_PREFIX + "7"), 1),
+				list(SHARD), paths(INode.ROOT, "a"), list());
+		assertChange(known.update(SHARD, list("x", "y"), 1), list(),
+				paths(SHARD, "x", "y"), list());
+		assertChange(known.update(SHARD, list("y", "z"), 2), list(),
+				paths(SHARD, "z"), paths(SHARD, "x"));
+		// a node named like a shard below a shard is a service node
+		assertChange(
+				known.update(SHARD, list("y", "z", INode.SHARD_PREFIX + "1"), 3),
+				list(), paths(SHARD, INode.SHARD_PREFIX + "1"), list());
+	}
+
+	public void testShardRemoved() {
+		known.update(INode.ROOT, list("a", INode.SHARD_PREFIX + "7"), 1);
+		known.update(SHARD, list("x", "y"), 3);
+		assertChange(known.update(INode.ROOT, list("a"), 2), list(), list(),
+				paths(SHARD, "x", "y"));
+		assertTrue(known.get(SHARD).isEmpty());
+		// the version of a shard is forgotten with it, so that it can be
+		// listed from the start when it is created again
+		known.update(INode.ROOT, list("a", INode.SHARD_PREFIX + "7"), 3);
+		assertChange(known.update(SHARD, list("x"), 1), list(),
+				paths(SHARD, "x"), list());
+	}
+
+	public void testParentRemoved() {
+		known.update(SHARD, list("x", "y"), 3);
+		assertChange(known.remove(SHARD), list(), list(),
+				paths(SHARD, "x", "y"));
+		assertTrue(known.get(SHARD).isEmpty());
+		assertChange(known.update(SHARD, list("x"), 0), list(),
+				paths(SHARD, "x"), list());
+		// removing an unknown parent changes nothing
+		assertChange(known.remove(INode.ROOT_SLASH + "unknown"), list(),
+				list(), list());
+	}
+
+	public void testClear() {
+		known.update(INode.ROOT, list("a"), 5);
+		known.clear();
+		assertTrue(known.get(INode.ROOT).isEmpty());
+		assertChange(known.update(INode.ROOT, list("a"), 1), list(),
+				paths(INode.ROOT, "a"), list());
+	}
+
+	public void testKnownChildrenReadOnly() {
+		known.update(INode.ROOT, list("a"), 1);
+		try {
+			known.get(INode.ROOT).clear();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+}
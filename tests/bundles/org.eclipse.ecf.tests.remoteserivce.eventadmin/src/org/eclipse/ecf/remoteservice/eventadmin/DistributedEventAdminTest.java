@@ -12,9 +12,13 @@
  *****************************************************************************/
 package org.eclipse.ecf.remoteservice.eventadmin;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.identity.IDFactory;
+import org.eclipse.ecf.core.sharedobject.SharedObjectMsg;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -69,4 +73,105 @@ public class DistributedEventAdminTest {
 			Assert.fail("Should not throw a service exception");
 		}
 	}
+
+	private ID createID(String name) throws Exception {
+		return IDFactory.getDefault().createStringID(name);
+	}
+
+	private void subscribe(ID member, String[] topics) {
+		dea.handleSharedObjectMsg(member, SharedObjectMsg.createMsg(
+				"__handleTopicSubscriptionsSharedObjectMsg",
+				new Object[] { topics }));
+	}
+
+	private Event createEvent(String topic) {
+		final Map<String, Object> map = new HashMap<String, Object>();
+		map.put("key", "value");
+		return new Event(topic, map);
+	}
+
+	@Test
+	public void testTopicRouting() throws Exception {
+		final ID local = createID("local");
+		final ID a = createID("a");
+		final ID b = createID("b");
+		final ID unknown = createID("unknown");
+		dea.localContainerID = local;
+		dea.groupMemberIDs = new ID[] { local, a, b, unknown };
+		subscribe(a, new String[] { "foo/*" });
+		subscribe(b, new String[] { "bar" });
+
+		// members that have not sent their topics get everything
+		dea.sendMessage(createEvent("foo/x/y"));
+		Assert.assertEquals(Arrays.asList(a, unknown), dea.sentTargets);
+
+		dea.sentTargets.clear();
+		dea.sendMessage(createEvent("bar"));
+		Assert.assertEquals(Arrays.asList(b, unknown), dea.sentTargets);
+
+		// the whole group is sent to when every member subscribes
+		subscribe(unknown, new String[] { "*" });
+		subscribe(b, new String[] { "foo" });
+		dea.sentTargets.clear();
+		dea.sendMessage(createEvent("foo"));
+		Assert.assertEquals(Arrays.asList(new ID[] { null }), dea.sentTargets);
+
+		dea.setTopicRouting(false);
+		dea.sentTargets.clear();
+		dea.sendMessage(createEvent("bar"));
+		Assert.assertEquals(Arrays.asList(new ID[] { null }), dea.sentTargets);
+	}
+
+	@Test
+	public void testNoSubscribedMembers() throws Exception {
+		final ID local = createID("local");
+		final ID a = createID("a");
+		dea.localContainerID = local;
+		dea.groupMemberIDs = new ID[] { local, a };
+		subscribe(a, new String[] { "foo" });
+
+		// not even serialized, so the non-serializable event is not a problem
+		dea.sendMessage(eventToSend);
+		Assert.assertTrue(dea.sentMessages.isEmpty());
+	}
+
+	@Test
+	public void testPostBatching() throws Exception {
+		final ID local = createID("local");
+		final ID a = createID("a");
+		final ID b = createID("b");
+		dea.localContainerID = local;
+		dea.groupMemberIDs = new ID[] { local, a, b };
+		dea.setPostBatching(60000, 3);
+
+		dea.sendMessage(createEvent("foo/1"));
+		dea.sendMessage(createEvent("foo/2"));
+		Assert.assertTrue(dea.sentMessages.isEmpty());
+		dea.sendMessage(createEvent("foo/3"));
+		Assert.assertEquals(1, dea.sentMessages.size());
+		Assert.assertNull(dea.sentTargets.get(0));
+
+		// a receiver gets the events of the batch in order
+		final TestDistributedEventAdmin receiver = new TestDistributedEventAdmin();
+		Assert.assertTrue(receiver.handleSharedObjectMsg(local, dea.sentMessages.get(0)));
+		Assert.assertEquals(3, receiver.receivedEvents.size());
+		for (int i = 0; i < 3; i++)
+			Assert.assertEquals("foo/" + (i + 1), receiver.receivedEvents.get(i).getTopic());
+
+		// batches are split by receiver when only some members subscribe
+		subscribe(a, new String[] { "foo/*" });
+		subscribe(b, new String[] { "bar" });
+		dea.sentTargets.clear();
+		dea.sentMessages.clear();
+		dea.sendMessage(createEvent("foo/4"));
+		dea.sendMessage(createEvent("bar"));
+		dea.flushBatch();
+		Assert.assertEquals(Arrays.asList(a, b), dea.sentTargets);
+
+		// disabling batching sends right away
+		dea.setPostBatching(0, 3);
+		dea.sentTargets.clear();
+		dea.sendMessage(createEvent("bar"));
+		Assert.assertEquals(Arrays.asList(b), dea.sentTargets);
+	}
 }
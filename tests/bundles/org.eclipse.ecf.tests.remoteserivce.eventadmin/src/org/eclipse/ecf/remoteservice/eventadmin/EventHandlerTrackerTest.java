@@ -0,0 +1,288 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.remoteservice.eventadmin;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.ecf.internal.remoteservice.eventadmin.DispatchPlan;
+import org.eclipse.ecf.internal.remoteservice.eventadmin.EventHandlerTracker;
+import org.eclipse.osgi.framework.eventmgr.EventManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * Tests the dispatch plans that the EventHandlerTracker caches per topic.
+ */
+public class EventHandlerTrackerTest {
+
+	private static final long TIMEOUT = 10000;
+
+	/**
+	 * Handler that records the topics of the events it is given.
+	 */
+	static class RecordingHandler implements EventHandler {
+		final List<String> topics = new ArrayList<String>();
+
+		public synchronized void handleEvent(Event event) {
+			topics.add(event.getTopic());
+			notifyAll();
+		}
+
+		synchronized int waitForEvents(int count) throws InterruptedException {
+			final long end = System.currentTimeMillis() + TIMEOUT;
+			long wait;
+			while (topics.size() < count
+					&& (wait = end - System.currentTimeMillis()) > 0)
+				wait(wait);
+			return topics.size();
+		}
+	}
+
+	private final Map<Object, EventHandler> services = new HashMap<Object, EventHandler>();
+	private EventHandlerTracker tracker;
+	private EventManager manager;
+
+	private Object createProxy(Class<?> type, InvocationHandler handler) {
+		return Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class[] { type }, handler);
+	}
+
+	@Before
+	public void setUp() {
+		final BundleContext context = (BundleContext) createProxy(
+				BundleContext.class, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						if (method.getName().equals("getService"))
+							return services.get(args[0]);
+						if (method.getName().equals("ungetService"))
+							return Boolean.TRUE;
+						return null;
+					}
+				});
+		tracker = new EventHandlerTracker(context, null);
+		manager = new EventManager("EventHandlerTrackerTest");
+	}
+
+	@After
+	public void tearDown() {
+		manager.close();
+	}
+
+	/**
+	 * Create the reference of an EventHandler service subscribing to the
+	 * topic.
+	 */
+	private ServiceReference createReference(final String topic,
+			EventHandler handler) {
+		final Bundle bundle = (Bundle) createProxy(Bundle.class,
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						return null;
+					}
+				});
+		final ServiceReference reference = (ServiceReference) createProxy(
+				ServiceReference.class, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						final String name = method.getName();
+						if (name.equals("getProperty"))
+							return EventConstants.EVENT_TOPIC.equals(args[0]) ? topic
+									: null;
+						if (name.equals("getBundle"))
+							return bundle;
+						if (name.equals("hashCode"))
+							return new Integer(System.identityHashCode(proxy));
+						if (name.equals("equals"))
+							return Boolean.valueOf(proxy == args[0]);
+						return null;
+					}
+				});
+		services.put(reference, handler);
+		return reference;
+	}
+
+	private Object addHandler(ServiceReference reference) {
+		return tracker.addingService(reference);
+	}
+
+	private Event createEvent(String topic) {
+		return new Event(topic, (Map<String, ?>) null);
+	}
+
+	@Test
+	public void testHandlersMatchTopic() {
+		addHandler(createReference("a/b/*", new RecordingHandler()));
+		addHandler(createReference("a/b/c", new RecordingHandler()));
+		addHandler(createReference("x", new RecordingHandler()));
+		Assert.assertEquals(2, tracker.getDispatchPlan("a/b/c", manager)
+				.getHandlers().size());
+		Assert.assertEquals(1, tracker.getDispatchPlan("a/b/d", manager)
+				.getHandlers().size());
+		Assert.assertEquals(1, tracker.getDispatchPlan("a/b/c/d", manager)
+				.getHandlers().size());
+		Assert.assertEquals(0, tracker.getDispatchPlan("a/c", manager)
+				.getHandlers().size());
+
+		// handlers of "*" get every topic, once
+		addHandler(createReference("*", new RecordingHandler()));
+		Assert.assertEquals(3, tracker.getDispatchPlan("a/b/c", manager)
+				.getHandlers().size());
+		Assert.assertEquals(1, tracker.getDispatchPlan("a/c", manager)
+				.getHandlers().size());
+		Assert.assertEquals(tracker.getHandlers("a/b/c"), tracker
+				.getDispatchPlan("a/b/c", manager).getHandlers());
+	}
+
+	@Test
+	public void testPlanCached() {
+		addHandler(createReference("a/b/*", new RecordingHandler()));
+		final DispatchPlan plan = tracker.getDispatchPlan("a/b/c", manager);
+		Assert.assertSame(plan, tracker.getDispatchPlan("a/b/c", manager));
+		Assert.assertSame(plan.getHandlers(), tracker.getHandlers("a/b/c"));
+		Assert.assertNotSame(plan, tracker.getDispatchPlan("a/b/d", manager));
+	}
+
+	@Test
+	public void testPlanRebuiltWhenHandlersChange() {
+		final ServiceReference first = createReference("a/*",
+				new RecordingHandler());
+		final Object wrapper = addHandler(first);
+		final DispatchPlan plan = tracker.getDispatchPlan("a/b", manager);
+		Assert.assertEquals(1, plan.getHandlers().size());
+
+		addHandler(createReference("a/b", new RecordingHandler()));
+		final DispatchPlan added = tracker.getDispatchPlan("a/b", manager);
+		Assert.assertNotSame(plan, added);
+		Assert.assertEquals(2, added.getHandlers().size());
+
+		tracker.removedService(first, wrapper);
+		final DispatchPlan removed = tracker.getDispatchPlan("a/b", manager);
+		Assert.assertNotSame(added, removed);
+		Assert.assertEquals(1, removed.getHandlers().size());
+		Assert.assertFalse(removed.getHandlers().contains(wrapper));
+	}
+
+	@Test
+	public void testPlanRebuiltForNewManager() {
+		addHandler(createReference("a", new RecordingHandler()));
+		final DispatchPlan plan = tracker.getDispatchPlan("a", manager);
+		final EventManager other = new EventManager("other");
+		try {
+			final DispatchPlan otherPlan = tracker.getDispatchPlan("a", other);
+			Assert.assertNotSame(plan, otherPlan);
+			Assert.assertSame(otherPlan, tracker.getDispatchPlan("a", other));
+		} finally {
+			other.close();
+		}
+	}
+
+	@Test
+	public void testManyTopics() {
+		final RecordingHandler handler = new RecordingHandler();
+		addHandler(createReference("t/*", handler));
+		final DispatchPlan plan = tracker.getDispatchPlan("t/0", manager);
+		// more topics than plans are kept for
+		for (int i = 1; i <= 2000; i++)
+			Assert.assertEquals(1, tracker.getDispatchPlan("t/" + i, manager)
+					.getHandlers().size());
+		final DispatchPlan rebuilt = tracker.getDispatchPlan("t/0", manager);
+		Assert.assertNotSame(plan, rebuilt);
+		rebuilt.dispatch(createEvent("t/0"), false);
+		Assert.assertEquals(Collections.singletonList("t/0"), handler.topics);
+	}
+
+	@Test
+	public void testHandlersUnmodifiable() {
+		addHandler(createReference("a", new RecordingHandler()));
+		final Set<?> uncached = tracker.getHandlers("a");
+		final Set<?> cached = tracker.getDispatchPlan("a", manager)
+				.getHandlers();
+		try {
+			uncached.clear();
+			Assert.fail();
+		} catch (final UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			cached.clear();
+			Assert.fail();
+		} catch (final UnsupportedOperationException e) {
+			// expected
+		}
+		Assert.assertEquals(1, tracker.getHandlers("a").size());
+	}
+
+	@Test
+	public void testPublishPermissionWithoutSecurityManager() {
+		Assert.assertNull(System.getSecurityManager());
+		Assert.assertNull(tracker.getDispatchPlan("a", manager)
+				.getPublishPermission());
+	}
+
+	@Test
+	public void testDispatchSynchronous() {
+		final RecordingHandler wildcard = new RecordingHandler();
+		final RecordingHandler exact = new RecordingHandler();
+		addHandler(createReference("a/*", wildcard));
+		addHandler(createReference("a/b", exact));
+		final DispatchPlan plan = tracker.getDispatchPlan("a/b", manager);
+		plan.dispatch(createEvent("a/b"), false);
+		plan.dispatch(createEvent("a/b"), false);
+		Assert.assertEquals(2, wildcard.topics.size());
+		Assert.assertEquals(2, exact.topics.size());
+
+		tracker.getDispatchPlan("a/c", manager).dispatch(createEvent("a/c"),
+				false);
+		Assert.assertEquals(3, wildcard.topics.size());
+		Assert.assertEquals(2, exact.topics.size());
+	}
+
+	@Test
+	public void testDispatchAsynchronous() throws Exception {
+		final RecordingHandler handler = new RecordingHandler();
+		addHandler(createReference("a", handler));
+		final DispatchPlan plan = tracker.getDispatchPlan("a", manager);
+		for (int i = 0; i < 10; i++)
+			plan.dispatch(createEvent("a"), true);
+		Assert.assertEquals(10, handler.waitForEvents(10));
+	}
+
+	@Test
+	public void testDispatchWithoutHandlers() {
+		final RecordingHandler handler = new RecordingHandler();
+		addHandler(createReference("a", handler));
+		final DispatchPlan plan = tracker.getDispatchPlan("b", manager);
+		Assert.assertTrue(plan.getHandlers().isEmpty());
+		plan.dispatch(createEvent("b"), false);
+		plan.dispatch(createEvent("b"), true);
+		Assert.assertTrue(handler.topics.isEmpty());
+	}
+}
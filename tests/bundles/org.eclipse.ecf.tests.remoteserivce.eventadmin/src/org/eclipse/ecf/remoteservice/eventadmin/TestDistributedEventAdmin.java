@@ -12,10 +12,23 @@
  *****************************************************************************/
 package org.eclipse.ecf.remoteservice.eventadmin;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.sharedobject.SharedObjectMsg;
 import org.osgi.service.event.Event;
 
 public class TestDistributedEventAdmin extends DistributedEventAdmin {
 
+	ID localContainerID;
+	ID[] groupMemberIDs = new ID[0];
+	// targets and messages passed to sendSharedObjectMsgTo, in order
+	final List<ID> sentTargets = new ArrayList<ID>();
+	final List<SharedObjectMsg> sentMessages = new ArrayList<SharedObjectMsg>();
+	final List<Event> receivedEvents = new ArrayList<Event>();
+
 	public void setIgnoreSerializationFailures(boolean ignore) {
 		DistributedEventAdmin.ignoreSerializationExceptions = ignore;
 	}
@@ -28,4 +41,31 @@ public class TestDistributedEventAdmin extends DistributedEventAdmin {
 		super.sendMessage(eventToSend);
 	}
 
+	@Override
+	public boolean handleSharedObjectMsg(ID fromID, SharedObjectMsg msg) {
+		return super.handleSharedObjectMsg(fromID, msg);
+	}
+
+	@Override
+	protected ID getLocalContainerID() {
+		return localContainerID;
+	}
+
+	@Override
+	protected ID[] getGroupMemberIDs() {
+		return groupMemberIDs;
+	}
+
+	@Override
+	protected void sendSharedObjectMsgTo(ID toID, SharedObjectMsg msg)
+			throws IOException {
+		sentTargets.add(toID);
+		sentMessages.add(msg);
+	}
+
+	@Override
+	protected void notifyReceivedEvent(ID fromID, Event receivedEvent) {
+		receivedEvents.add(receivedEvent);
+	}
+
 }
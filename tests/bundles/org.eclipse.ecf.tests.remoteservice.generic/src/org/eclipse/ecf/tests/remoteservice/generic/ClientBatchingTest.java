@@ -0,0 +1,145 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.remoteservice.generic;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.ecf.core.IContainer;
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.identity.IDFactory;
+import org.eclipse.ecf.core.sharedobject.BaseSharedObject;
+import org.eclipse.ecf.core.sharedobject.ISharedObjectContainer;
+import org.eclipse.ecf.core.sharedobject.SharedObjectMsg;
+import org.eclipse.ecf.provider.comm.tcp.Client;
+import org.eclipse.ecf.provider.generic.SOContainerConfig;
+import org.eclipse.ecf.provider.generic.TCPClientSOContainer;
+import org.eclipse.ecf.tests.ContainerAbstractTestCase;
+
+/**
+ * Tests that the tcp client writes the asynchronous messages queued behind each other
+ * with one flush, and that batching does not lose or reorder messages.
+ */
+public class ClientBatchingTest extends ContainerAbstractTestCase {
+
+	private static final int MESSAGE_COUNT = 2000;
+
+	private static final long TIMEOUT = 20000;
+
+	/**
+	 * Client container that gives access to its connection.
+	 */
+	static class BatchingClientContainer extends TCPClientSOContainer {
+		BatchingClientContainer() throws Exception {
+			super(new SOContainerConfig(IDFactory.getDefault().createGUID()));
+		}
+
+		Client getClient() {
+			return (Client) getConnection();
+		}
+	}
+
+	public static class Sender extends BaseSharedObject {
+		void send(ID toID, int number) throws IOException {
+			sendSharedObjectMsgTo(toID, SharedObjectMsg.createMsg("receive", new Integer(number)));
+		}
+	}
+
+	public static class Receiver extends BaseSharedObject {
+		final List numbers = new ArrayList();
+
+		protected boolean handleSharedObjectMsg(SharedObjectMsg msg) {
+			synchronized (numbers) {
+				numbers.add(msg.getParameters()[0]);
+				numbers.notifyAll();
+			}
+			return true;
+		}
+
+		List waitForCount(int count) throws InterruptedException {
+			final long end = System.currentTimeMillis() + TIMEOUT;
+			synchronized (numbers) {
+				long wait;
+				while (numbers.size() < count && (wait = end - System.currentTimeMillis()) > 0)
+					numbers.wait(wait);
+				return new ArrayList(numbers);
+			}
+		}
+	}
+
+	private Sender sender;
+	private Receiver receiver;
+
+	protected IContainer createClient(int index) throws Exception {
+		return new BatchingClientContainer();
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		createServerAndClients();
+		final ID sharedObjectID = IDFactory.getDefault().createStringID("batching");
+		receiver = new Receiver();
+		((ISharedObjectContainer) getServer()).getSharedObjectManager().addSharedObject(sharedObjectID, receiver, null);
+		connectClients();
+		sender = new Sender();
+		((ISharedObjectContainer) getClient(0)).getSharedObjectManager().addSharedObject(sharedObjectID, sender, null);
+	}
+
+	protected void tearDown() throws Exception {
+		cleanUpServerAndClients();
+		super.tearDown();
+	}
+
+	private Client getConnection() {
+		return ((BatchingClientContainer) getClient(0)).getClient();
+	}
+
+	/**
+	 * Send the messages, and check that all of them arrive in order.
+	 *
+	 * @return the number of flushes for the messages
+	 */
+	private long sendMessages() throws Exception {
+		final Client client = getConnection();
+		final long messagesBefore = client.getMessagesSent();
+		final long flushesBefore = client.getFlushes();
+		for (int i = 0; i < MESSAGE_COUNT; i++)
+			sender.send(getServer().getID(), i);
+		final List numbers = receiver.waitForCount(MESSAGE_COUNT);
+		assertEquals(MESSAGE_COUNT, numbers.size());
+		for (int i = 0; i < MESSAGE_COUNT; i++)
+			assertEquals(new Integer(i), numbers.get(i));
+		assertEquals(MESSAGE_COUNT, client.getMessagesSent() - messagesBefore);
+		return client.getFlushes() - flushesBefore;
+	}
+
+	public void testDefaultBatching() throws Exception {
+		final long flushes = sendMessages();
+		// Without linger only messages that are already queued are batched
+		assertTrue(flushes > 0);
+		assertTrue(flushes <= MESSAGE_COUNT);
+	}
+
+	public void testLingerFillsBatches() throws Exception {
+		getConnection().setBatching(64, 200);
+		final long flushes = sendMessages();
+		// Messages are queued much faster than the sender waits, so batches are mostly full
+		assertTrue("flushes=" + flushes, flushes < MESSAGE_COUNT / 8);
+	}
+
+	public void testFlushPerMessage() throws Exception {
+		getConnection().setBatching(1, 0);
+		assertEquals(MESSAGE_COUNT, sendMessages());
+	}
+}
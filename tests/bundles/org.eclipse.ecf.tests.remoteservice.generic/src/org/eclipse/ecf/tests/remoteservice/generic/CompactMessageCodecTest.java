@@ -0,0 +1,153 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.remoteservice.generic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.identity.IDFactory;
+import org.eclipse.ecf.core.sharedobject.SharedObjectMsg;
+import org.eclipse.ecf.provider.generic.codec.CompactInput;
+import org.eclipse.ecf.provider.generic.codec.CompactMessageCodec;
+import org.eclipse.ecf.provider.generic.codec.CompactOutput;
+import org.eclipse.ecf.provider.generic.codec.ITypeCodec;
+import org.eclipse.ecf.provider.remoteservice.generic.RemoteCallImpl;
+import org.eclipse.ecf.provider.remoteservice.generic.RemoteServiceTypeCodecs;
+import org.eclipse.ecf.provider.remoteservice.generic.Request;
+import org.eclipse.ecf.provider.remoteservice.generic.Response;
+
+import junit.framework.TestCase;
+
+public class CompactMessageCodecTest extends TestCase {
+
+	private CompactMessageCodec codec;
+	private ID sharedObjectID;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		RemoteServiceTypeCodecs.register();
+		codec = CompactMessageCodec.getDefault();
+		sharedObjectID = IDFactory.getDefault().createStringID("registry");
+	}
+
+	protected void tearDown() throws Exception {
+		codec = null;
+		sharedObjectID = null;
+		super.tearDown();
+	}
+
+	private Object roundTrip(Object message) throws Exception {
+		final byte[] bytes = codec.serializeMessage(sharedObjectID, message);
+		assertTrue(codec.isEncoded(bytes, 0, bytes.length));
+		return codec.deserializeMessage(bytes);
+	}
+
+	public void testValues() throws Exception {
+		final Map map = new HashMap();
+		map.put("key", new Long(-5));
+		map.put(new Integer(7), new Date(0));
+		final List list = new ArrayList();
+		list.add(new int[] {1, -2, Integer.MAX_VALUE});
+		list.add(null);
+		list.add(IDFactory.getDefault().createGUID());
+		list.add(Arrays.asList(new String[] {"a", "b"}));
+		final Object[] values = new Object[] {"caf\u00e9", Boolean.TRUE, new Double(1.5), new Character('c'), map, list, new String[] {"x", null}};
+
+		final Object[] result = (Object[]) roundTrip(values);
+		assertEquals(String[].class, result[6].getClass());
+		assertTrue(Arrays.equals((Object[]) values[6], (Object[]) result[6]));
+		assertTrue(Arrays.equals((int[]) list.get(0), (int[]) ((List) result[5]).get(0)));
+		list.set(0, null);
+		((List) result[5]).set(0, null);
+		assertEquals(Arrays.asList(values).subList(0, 6), Arrays.asList(result).subList(0, 6));
+	}
+
+	public void testRequest() throws Exception {
+		final ID requestContainerID = IDFactory.getDefault().createGUID();
+		final RemoteCallImpl call = RemoteCallImpl.createRemoteCall(null, "concat", new Object[] {"foo", "bar"}, 5000);
+		final Request request = new Request(requestContainerID, 42, call);
+
+		final SharedObjectMsg result = (SharedObjectMsg) roundTrip(SharedObjectMsg.createMsg("handleCallRequest", request));
+		final Request resultRequest = (Request) result.getParameters()[0];
+		assertEquals(request.getRequestId(), resultRequest.getRequestId());
+		assertEquals(requestContainerID, resultRequest.getRequestContainerID());
+		assertEquals(42, resultRequest.getServiceId());
+		assertEquals("concat", resultRequest.getCall().getMethod());
+		assertEquals(5000, resultRequest.getCall().getTimeout());
+		assertTrue(Arrays.equals(call.getParameters(), resultRequest.getCall().getParameters()));
+	}
+
+	public void testResponse() throws Exception {
+		final Response response = (Response) roundTrip(new Response(3, "foobar"));
+		assertEquals(3, response.getRequestId());
+		assertEquals("foobar", response.getResponse());
+		assertFalse(response.hadException());
+
+		final Response exceptionResponse = (Response) roundTrip(new Response(4, new IllegalStateException("failed")));
+		assertTrue(exceptionResponse.hadException());
+		assertEquals("failed", exceptionResponse.getException().getMessage());
+	}
+
+	static class Lines {
+		final List lines = new ArrayList();
+	}
+
+	public void testReadLine() throws Exception {
+		final ITypeCodec linesCodec = new ITypeCodec() {
+			public Class getType() {
+				return Lines.class;
+			}
+
+			public String getTypeName() {
+				return "test.lines";
+			}
+
+			public void write(CompactOutput out, Object value) {
+				out.writeBytes("first\r\nsecond\rthird\n\n");
+				out.writeInt(7);
+			}
+
+			public Object read(CompactInput in) throws java.io.IOException {
+				final Lines result = new Lines();
+				for (int i = 0; i < 4; i++)
+					result.lines.add(in.readLine());
+				assertEquals(7, in.readInt());
+				assertNull(in.readLine());
+				return result;
+			}
+		};
+		codec.addTypeCodec(linesCodec);
+		try {
+			final Lines result = (Lines) roundTrip(new Lines());
+			assertEquals(Arrays.asList(new String[] {"first", "second", "third", ""}), result.lines);
+		} finally {
+			codec.removeTypeCodec(linesCodec);
+		}
+	}
+
+	public void testSmallerThanJavaSerialization() throws Exception {
+		final Request request = new Request(IDFactory.getDefault().createGUID(), 1, RemoteCallImpl.createRemoteCall(null, "concat", new Object[] {"foo", "bar"}, 5000));
+		final Object message = SharedObjectMsg.createMsg("handleCallRequest", request);
+		final java.io.ByteArrayOutputStream bouts = new java.io.ByteArrayOutputStream();
+		final java.io.ObjectOutputStream oos = new java.io.ObjectOutputStream(bouts);
+		oos.writeObject(sharedObjectID);
+		oos.writeObject(message);
+		oos.close();
+		assertTrue(codec.serializeMessage(sharedObjectID, message).length < bouts.size());
+	}
+}
@@ -0,0 +1,127 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.remoteservice.generic;
+
+import org.eclipse.ecf.core.IContainer;
+import org.eclipse.ecf.core.identity.IDFactory;
+import org.eclipse.ecf.provider.comm.tcp.MultiplexClient;
+import org.eclipse.ecf.provider.comm.tcp.Multiplexer;
+import org.eclipse.ecf.provider.generic.SOContainerConfig;
+import org.eclipse.ecf.provider.generic.TCPClientSOContainer;
+import org.eclipse.ecf.provider.generic.TCPServerSOContainer;
+import org.eclipse.ecf.tests.connect.ClientContainerConnectTest;
+
+/**
+ * Runs the client connect tests with client containers that share one multiplexed
+ * connection to the generic server.
+ */
+public class MultiplexClientContainerConnectTest extends ClientContainerConnectTest {
+
+	/**
+	 * Client container that connects with a session of a multiplexed connection.
+	 */
+	public static class MultiplexClientContainer extends TCPClientSOContainer {
+		public MultiplexClientContainer() throws Exception {
+			super(new SOContainerConfig(IDFactory.getDefault().createGUID()), TCPServerSOContainer.DEFAULT_KEEPALIVE);
+		}
+
+		protected boolean isMultiplexed() {
+			return true;
+		}
+
+		/**
+		 * @return the multiplexer of the connection, or <code>null</code> if not connected
+		 * or connected with a plain connection
+		 */
+		public Multiplexer getMultiplexer() {
+			final MultiplexClient connection = (MultiplexClient) getConnection();
+			return (connection == null) ? null : connection.getMultiplexer();
+		}
+	}
+
+	protected IContainer createClient(int index) throws Exception {
+		return new MultiplexClientContainer();
+	}
+
+	protected void disconnectClients() throws Exception {
+		super.disconnectClients();
+		// The server closes a session before it fires its disconnected event, and a session
+		// is closed as soon as the close message arrives, unlike a socket
+		sleep(500);
+	}
+
+	protected Multiplexer getMultiplexer(int client) {
+		return ((MultiplexClientContainer) getClient(client)).getMultiplexer();
+	}
+
+	public void testSharedConnection() throws Exception {
+		connectClients();
+		final Multiplexer multiplexer = getMultiplexer(0);
+		assertNotNull(multiplexer);
+		for (int i = 1; i < getClientCount(); i++)
+			assertSame(multiplexer, getMultiplexer(i));
+		assertEquals(getClientCount(), multiplexer.getSessionCount());
+		// Disconnecting a client closes only its session
+		getClient(0).disconnect();
+		assertEquals(getClientCount() - 1, multiplexer.getSessionCount());
+		assertTrue(getClient(1).getConnectedID() != null);
+		for (int i = 1; i < getClientCount(); i++)
+			getClient(i).disconnect();
+		assertEquals(0, multiplexer.getSessionCount());
+		// Reconnecting opens a new connection once the last session closed it
+		getClient(0).connect(createServerID(), null);
+		assertNotNull(getMultiplexer(0));
+		assertEquals(1, getMultiplexer(0).getSessionCount());
+	}
+
+	public void testConcurrentConnect() throws Exception {
+		final Exception[] failures = new Exception[getClientCount()];
+		final Thread[] threads = new Thread[getClientCount()];
+		for (int i = 0; i < threads.length; i++) {
+			final int client = i;
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						connectClient(client);
+					} catch (final Exception e) {
+						failures[client] = e;
+					}
+				}
+			});
+		}
+		for (int i = 0; i < threads.length; i++)
+			threads[i].start();
+		for (int i = 0; i < threads.length; i++)
+			threads[i].join(30000);
+		for (int i = 0; i < threads.length; i++)
+			assertNull(failures[i]);
+		// The clients that connected while the connection was being opened waited for it
+		final Multiplexer multiplexer = getMultiplexer(0);
+		assertNotNull(multiplexer);
+		for (int i = 1; i < getClientCount(); i++)
+			assertSame(multiplexer, getMultiplexer(i));
+		assertEquals(getClientCount(), multiplexer.getSessionCount());
+	}
+
+	public void testServerDisconnect() throws Exception {
+		connectClients();
+		sleep(1000);
+		final Multiplexer multiplexer = getMultiplexer(0);
+		getServer().disconnect();
+		sleep(2000);
+		// Sessions are closed by the server, and the connection with the last of them
+		for (int i = 0; i < getClientCount(); i++)
+			assertNull(getClient(i).getConnectedID());
+		assertEquals(0, multiplexer.getSessionCount());
+	}
+}
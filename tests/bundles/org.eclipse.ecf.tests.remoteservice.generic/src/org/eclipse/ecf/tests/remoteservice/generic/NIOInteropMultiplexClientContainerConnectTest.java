@@ -0,0 +1,45 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.remoteservice.generic;
+
+import org.eclipse.ecf.core.IContainer;
+import org.eclipse.ecf.tests.connect.ClientContainerConnectTest;
+import org.eclipse.ecf.tests.remoteservice.generic.MultiplexClientContainerConnectTest.MultiplexClientContainer;
+
+/**
+ * Multiplexing client containers connecting to a selector based generic server, which does
+ * not accept multiplexed connections, so that the clients connect with plain connections.
+ */
+public class NIOInteropMultiplexClientContainerConnectTest extends ClientContainerConnectTest {
+
+	public NIOInteropMultiplexClientContainerConnectTest() {
+		genericServerName = "ecf.generic.nio.server";
+		// Servers that reject multiplexing are remembered by port
+		genericServerPort = 30001;
+	}
+
+	protected IContainer createClient(int index) throws Exception {
+		return new MultiplexClientContainer();
+	}
+
+	public void testPlainConnection() throws Exception {
+		connectClients();
+		for (int i = 0; i < getClientCount(); i++) {
+			assertNotNull(getClient(i).getConnectedID());
+			assertNull(((MultiplexClientContainer) getClient(i)).getMultiplexer());
+		}
+		disconnectClients();
+		for (int i = 0; i < getClientCount(); i++)
+			assertNull(getClient(i).getConnectedID());
+	}
+}
@@ -0,0 +1,134 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.remoteservice.generic;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.ecf.core.util.ECFException;
+import org.eclipse.ecf.remoteservice.IRemoteService;
+import org.eclipse.ecf.tests.remoteservice.AbstractRemoteServiceTest;
+import org.eclipse.ecf.tests.remoteservice.IConcatService;
+import org.eclipse.equinox.concurrent.future.IFuture;
+
+/**
+ * Tests the futures of the generic provider, which are completed by the complete event of
+ * the call rather than by a thread waiting for the response.  A failed call reports the
+ * exception of the remote call itself rather than the ECFException thrown by callSync.
+ */
+public class RemoteCallFutureTest extends AbstractRemoteServiceTest {
+
+	private static final long TIMEOUT = 10000;
+
+	public interface IFailService extends IConcatService {
+		public String echo(String value);
+
+		public String fail(String message);
+	}
+
+	public interface IFailServiceAsync {
+		public Future echoAsync(String value);
+
+		public Future failAsync(String message);
+	}
+
+	public static class FailService implements IFailService {
+		public String concat(String string1, String string2) {
+			return string1.concat(string2);
+		}
+
+		public String echo(String value) {
+			return value;
+		}
+
+		public String fail(String message) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+	protected String getClientContainerName() {
+		return Generic.CONSUMER_CONTAINER_TYPE;
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		setClientCount(2);
+		createServerAndClients();
+		setupRemoteServiceAdapters();
+		connectClients();
+		addRemoteServiceListeners();
+	}
+
+	protected void tearDown() throws Exception {
+		cleanUpServerAndClients();
+		super.tearDown();
+	}
+
+	protected Object createService() {
+		return new FailService();
+	}
+
+	private IRemoteService registerAndGetFailService() throws Exception {
+		final IRemoteService service = registerAndGetRemoteService(adapters[0], adapters[1], getClient(0).getConnectedID(), getIDFilter(), IFailService.class.getName(), null, SLEEPTIME);
+		assertNotNull(service);
+		return service;
+	}
+
+	private void assertRemoteException(Throwable t, String message) {
+		assertNotNull(t);
+		assertFalse(t instanceof ECFException);
+		assertTrue(t instanceof InvocationTargetException);
+		final Throwable target = ((InvocationTargetException) t).getTargetException();
+		assertTrue(target instanceof IllegalStateException);
+		assertEquals(message, target.getMessage());
+	}
+
+	public void testIFuture() throws Exception {
+		final IRemoteService service = registerAndGetFailService();
+		final IFuture future = service.callAsync(createRemoteCall("echo", new Object[] {"echo"}));
+		assertEquals("echo", future.get(TIMEOUT));
+		assertTrue(future.getStatus().isOK());
+	}
+
+	public void testIFutureException() throws Exception {
+		final IRemoteService service = registerAndGetFailService();
+		final IFuture future = service.callAsync(createRemoteCall("fail", new Object[] {"failed"}));
+		assertNull(future.get(TIMEOUT));
+		assertTrue(future.isDone());
+		final IStatus status = future.getStatus();
+		assertEquals(IStatus.ERROR, status.getSeverity());
+		assertRemoteException(status.getException(), "failed");
+	}
+
+	public void testFuture() throws Exception {
+		final IRemoteService service = registerAndGetFailService();
+		final Object proxy = service.getProxy();
+		assertTrue(proxy instanceof IFailServiceAsync);
+		final Future future = ((IFailServiceAsync) proxy).echoAsync("echo");
+		assertEquals("echo", future.get(TIMEOUT, TimeUnit.MILLISECONDS));
+	}
+
+	public void testFutureException() throws Exception {
+		final IRemoteService service = registerAndGetFailService();
+		final Future future = ((IFailServiceAsync) service.getProxy()).failAsync("failed");
+		try {
+			future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+			fail();
+		} catch (final ExecutionException e) {
+			assertRemoteException(e.getCause(), "failed");
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.remoteservice.generic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.ecf.remoteservice.IRemoteCall;
+import org.eclipse.ecf.remoteservice.IRemoteCallListener;
+import org.eclipse.ecf.remoteservice.IRemoteService;
+import org.eclipse.ecf.remoteservice.events.IRemoteCallCompleteEvent;
+import org.eclipse.ecf.remoteservice.events.IRemoteCallEvent;
+import org.eclipse.ecf.tests.remoteservice.AbstractRemoteServiceTest;
+import org.eclipse.ecf.tests.remoteservice.IConcatService;
+import org.osgi.framework.ServiceException;
+
+/**
+ * Tests the expiry of remote calls that do not get a response within their timeout.
+ */
+public class RemoteCallTimeoutTest extends AbstractRemoteServiceTest {
+
+	private static final String SLOW = "slow";
+	private static final long SERVICE_DELAY = 2000;
+
+	protected String getClientContainerName() {
+		return Generic.CONSUMER_CONTAINER_TYPE;
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		setClientCount(2);
+		createServerAndClients();
+		setupRemoteServiceAdapters();
+		connectClients();
+		addRemoteServiceListeners();
+	}
+
+	protected void tearDown() throws Exception {
+		cleanUpServerAndClients();
+		super.tearDown();
+	}
+
+	protected Object createService() {
+		return new IConcatService() {
+			public String concat(String string1, String string2) {
+				if (SLOW.equals(string1)) {
+					try {
+						Thread.sleep(SERVICE_DELAY);
+					} catch (final InterruptedException e) {
+						// return early
+					}
+				}
+				return string1.concat(string2);
+			}
+		};
+	}
+
+	private IRemoteCall createRemoteConcat(final String first, final String second, final long timeout) {
+		return new IRemoteCall() {
+			public String getMethod() {
+				return "concat";
+			}
+
+			public Object[] getParameters() {
+				return new Object[] {first, second};
+			}
+
+			public long getTimeout() {
+				return timeout;
+			}
+		};
+	}
+
+	private static class CompleteListener implements IRemoteCallListener {
+		final List events = new ArrayList();
+
+		public void handleEvent(IRemoteCallEvent event) {
+			if (event instanceof IRemoteCallCompleteEvent) {
+				synchronized (events) {
+					events.add((IRemoteCallCompleteEvent) event);
+					events.notifyAll();
+				}
+			}
+		}
+
+		IRemoteCallCompleteEvent waitForComplete(long timeout) throws InterruptedException {
+			final long end = System.currentTimeMillis() + timeout;
+			synchronized (events) {
+				long wait;
+				while (events.isEmpty() && (wait = end - System.currentTimeMillis()) > 0)
+					events.wait(wait);
+				return events.isEmpty() ? null : (IRemoteCallCompleteEvent) events.get(0);
+			}
+		}
+
+		int getCount() {
+			synchronized (events) {
+				return events.size();
+			}
+		}
+	}
+
+	public void testCallAsyncTimeout() throws Exception {
+		final IRemoteService service = registerAndGetRemoteService();
+		assertNotNull(service);
+		final CompleteListener listener = new CompleteListener();
+		final long start = System.currentTimeMillis();
+		service.callAsync(createRemoteConcat(SLOW, "call", 500), listener);
+
+		final IRemoteCallCompleteEvent event = listener.waitForComplete(SERVICE_DELAY);
+		assertNotNull(event);
+		assertTrue(System.currentTimeMillis() - start < SERVICE_DELAY);
+		assertTrue(event.hadException());
+		assertTrue(event.getException() instanceof java.util.concurrent.TimeoutException);
+		// The response arriving after the timeout must not complete the call again
+		Thread.sleep(SERVICE_DELAY);
+		assertEquals(1, listener.getCount());
+	}
+
+	public void testCallAsyncCompletesBeforeTimeout() throws Exception {
+		final IRemoteService service = registerAndGetRemoteService();
+		assertNotNull(service);
+		final CompleteListener listener = new CompleteListener();
+		service.callAsync(createRemoteConcat("fast ", "call", 1000), listener);
+
+		final IRemoteCallCompleteEvent event = listener.waitForComplete(1000);
+		assertNotNull(event);
+		assertFalse(event.hadException());
+		assertEquals("fast call", event.getResponse());
+		// The timeout of a completed call is dropped without completing it again
+		Thread.sleep(1500);
+		assertEquals(1, listener.getCount());
+	}
+
+	public void testCallSyncTimeout() throws Exception {
+		final IRemoteService service = registerAndGetRemoteService();
+		assertNotNull(service);
+		final long start = System.currentTimeMillis();
+		try {
+			service.callSync(createRemoteConcat(SLOW, "call", 500));
+			fail();
+		} catch (final ServiceException e) {
+			assertTrue(e.getCause() instanceof org.eclipse.equinox.concurrent.future.TimeoutException);
+		}
+		assertTrue(System.currentTimeMillis() - start < SERVICE_DELAY);
+		// A call after the timed out one still succeeds
+		assertEquals("fast call", service.callSync(createRemoteConcat("fast ", "call", 5000)));
+	}
+}
@@ -0,0 +1,186 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.remoteservice.generic;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.eclipse.ecf.core.util.ECFException;
+import org.eclipse.ecf.remoteservice.IRemoteService;
+import org.eclipse.ecf.tests.remoteservice.AbstractRemoteServiceTest;
+import org.eclipse.ecf.tests.remoteservice.IConcatService;
+
+/**
+ * Tests the dispatch of remote calls to the methods of a service:  methods that are not
+ * overloaded, overloaded methods, primitive parameters, invalid arguments and exceptions
+ * thrown by the service.
+ */
+public class RemoteServiceDispatchTest extends AbstractRemoteServiceTest {
+
+	public interface IDispatchService extends IConcatService {
+		public String echo(String value);
+
+		public String echo(Object value);
+
+		public int add(int first, int second);
+
+		public long add(long first, long second);
+
+		public String fail(String message);
+	}
+
+	/**
+	 * Public service class, so its methods are invoked through method handles.
+	 */
+	public static class DispatchService implements IDispatchService {
+		public String concat(String string1, String string2) {
+			return string1.concat(string2);
+		}
+
+		public String echo(String value) {
+			return "String:" + value;
+		}
+
+		public String echo(Object value) {
+			return "Object:" + value;
+		}
+
+		public int add(int first, int second) {
+			return first + second;
+		}
+
+		public long add(long first, long second) {
+			return first + second + 1000;
+		}
+
+		public String fail(String message) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+	private boolean anonymousService;
+
+	protected String getClientContainerName() {
+		return Generic.CONSUMER_CONTAINER_TYPE;
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		setClientCount(2);
+		createServerAndClients();
+		setupRemoteServiceAdapters();
+		connectClients();
+		addRemoteServiceListeners();
+	}
+
+	protected void tearDown() throws Exception {
+		cleanUpServerAndClients();
+		super.tearDown();
+	}
+
+	protected Object createService() {
+		if (!anonymousService)
+			return new DispatchService();
+		// Service class that is not public, so its methods are invoked with reflection
+		return new DispatchService() {
+			public String concat(String string1, String string2) {
+				return "anonymous:" + super.concat(string1, string2);
+			}
+		};
+	}
+
+	private IRemoteService registerAndGetDispatchService() throws Exception {
+		final IRemoteService service = registerAndGetRemoteService(adapters[0], adapters[1], getClient(0).getConnectedID(), getIDFilter(), IDispatchService.class.getName(), null, SLEEPTIME);
+		assertNotNull(service);
+		return service;
+	}
+
+	private Object call(IRemoteService service, String method, Object[] params) throws ECFException {
+		return service.callSync(createRemoteCall(method, params));
+	}
+
+	public void testMethod() throws Exception {
+		final IRemoteService service = registerAndGetDispatchService();
+		for (int i = 0; i < 3; i++)
+			assertEquals("foobar" + i, call(service, "concat", new Object[] {"foo", "bar" + i}));
+	}
+
+	public void testOverloadedByType() throws Exception {
+		final IRemoteService service = registerAndGetDispatchService();
+		assertEquals("String:foo", call(service, "echo", new Object[] {"foo"}));
+		assertEquals("Object:1", call(service, "echo", new Object[] {new Integer(1)}));
+		// Cached resolutions are per argument types
+		assertEquals("String:bar", call(service, "echo", new Object[] {"bar"}));
+		assertEquals("Object:2", call(service, "echo", new Object[] {new Integer(2)}));
+	}
+
+	public void testPrimitiveParameters() throws Exception {
+		final IRemoteService service = registerAndGetDispatchService();
+		assertEquals(new Integer(5), call(service, "add", new Object[] {new Integer(2), new Integer(3)}));
+		assertEquals(new Long(1005), call(service, "add", new Object[] {new Long(2), new Long(3)}));
+	}
+
+	public void testInvalidArguments() throws Exception {
+		final IRemoteService service = registerAndGetDispatchService();
+		try {
+			call(service, "concat", new Object[] {"foo", new Integer(1)});
+			fail();
+		} catch (final ECFException e) {
+			// No concat(String, Integer)
+		}
+		try {
+			call(service, "add", new Object[] {null, new Integer(1)});
+			fail();
+		} catch (final ECFException e) {
+			// null for a primitive parameter
+		}
+		try {
+			call(service, "concat", new Object[] {"foo"});
+			fail();
+		} catch (final ECFException e) {
+			// Wrong number of arguments
+		}
+		// The table is still usable after failed lookups
+		assertEquals("foobar", call(service, "concat", new Object[] {"foo", "bar"}));
+	}
+
+	private void assertServiceException(ECFException e, String message) {
+		// As with Method.invoke, the exception thrown by the service is the target exception
+		assertTrue(e.getCause() instanceof InvocationTargetException);
+		final Throwable target = ((InvocationTargetException) e.getCause()).getTargetException();
+		assertTrue(target instanceof IllegalStateException);
+		assertEquals(message, target.getMessage());
+	}
+
+	public void testServiceException() throws Exception {
+		final IRemoteService service = registerAndGetDispatchService();
+		try {
+			call(service, "fail", new Object[] {"failed"});
+			fail();
+		} catch (final ECFException e) {
+			assertServiceException(e, "failed");
+		}
+	}
+
+	public void testNonPublicServiceClass() throws Exception {
+		anonymousService = true;
+		final IRemoteService service = registerAndGetDispatchService();
+		assertEquals("anonymous:foobar", call(service, "concat", new Object[] {"foo", "bar"}));
+		assertEquals(new Integer(5), call(service, "add", new Object[] {new Integer(2), new Integer(3)}));
+		try {
+			call(service, "fail", new Object[] {"failed"});
+			fail();
+		} catch (final ECFException e) {
+			assertServiceException(e, "failed");
+		}
+	}
+}
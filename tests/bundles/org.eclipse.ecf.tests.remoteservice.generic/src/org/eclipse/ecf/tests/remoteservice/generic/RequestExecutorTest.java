@@ -0,0 +1,195 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.remoteservice.generic;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.ecf.core.identity.IDFactory;
+import org.eclipse.ecf.core.sharedobject.ISharedObjectContainer;
+import org.eclipse.ecf.core.util.ECFException;
+import org.eclipse.ecf.provider.remoteservice.generic.RegistrySharedObject;
+import org.eclipse.ecf.provider.remoteservice.generic.Request;
+import org.eclipse.ecf.provider.remoteservice.generic.RequestExecutor;
+import org.eclipse.ecf.remoteservice.IRemoteCall;
+import org.eclipse.ecf.remoteservice.IRemoteCallListener;
+import org.eclipse.ecf.remoteservice.IRemoteService;
+import org.eclipse.ecf.remoteservice.IRemoteServiceContainerAdapter;
+import org.eclipse.ecf.remoteservice.events.IRemoteCallCompleteEvent;
+import org.eclipse.ecf.remoteservice.events.IRemoteCallEvent;
+import org.eclipse.ecf.tests.remoteservice.AbstractRemoteServiceTest;
+import org.eclipse.ecf.tests.remoteservice.IConcatService;
+import org.eclipse.equinox.concurrent.future.IExecutor;
+import org.eclipse.equinox.concurrent.future.IProgressRunnable;
+
+/**
+ * Tests a host whose remote call requests run on a bounded pool, which answers the calls
+ * it has no room for with an error rather than leaving them to time out.
+ */
+public class RequestExecutorTest extends AbstractRemoteServiceTest {
+
+	private static final String BLOCK = "block";
+
+	private static final long TIMEOUT = 10000;
+
+	/**
+	 * Registry whose requests run on one thread, with room for one waiting request.
+	 */
+	public static class BoundedRegistrySharedObject extends RegistrySharedObject {
+		protected IExecutor createRequestExecutor(Request request) {
+			return RequestExecutor.createPool("Bounded Request Handler", 1, 1);
+		}
+	}
+
+	private final Object lock = new Object();
+	private int blocked;
+	private boolean released;
+
+	protected String getClientContainerName() {
+		return Generic.CONSUMER_CONTAINER_TYPE;
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		setClientCount(2);
+		createServerAndClients();
+		// The host uses the bounded registry rather than the one the adapter factory creates
+		((ISharedObjectContainer) getClient(0)).getSharedObjectManager().addSharedObject(IDFactory.getDefault().createStringID(IRemoteServiceContainerAdapter.class.getName()), new BoundedRegistrySharedObject(), null);
+		setupRemoteServiceAdapters();
+		connectClients();
+		addRemoteServiceListeners();
+	}
+
+	protected void tearDown() throws Exception {
+		release();
+		cleanUpServerAndClients();
+		super.tearDown();
+	}
+
+	protected Object createService() {
+		return new IConcatService() {
+			public String concat(String string1, String string2) {
+				if (BLOCK.equals(string1)) {
+					synchronized (lock) {
+						blocked++;
+						lock.notifyAll();
+						try {
+							while (!released)
+								lock.wait();
+						} catch (final InterruptedException e) {
+							// return early
+						}
+					}
+				}
+				return string1.concat(string2);
+			}
+		};
+	}
+
+	private void release() {
+		synchronized (lock) {
+			released = true;
+			lock.notifyAll();
+		}
+	}
+
+	private void waitForBlocked(int count) throws InterruptedException {
+		final long end = System.currentTimeMillis() + TIMEOUT;
+		synchronized (lock) {
+			long wait;
+			while (blocked < count && (wait = end - System.currentTimeMillis()) > 0)
+				lock.wait(wait);
+			assertEquals(count, blocked);
+		}
+	}
+
+	private IRemoteCall createCall(String first, String second) {
+		return createRemoteCall("concat", new Object[] {first, second});
+	}
+
+	private static class CompleteListener implements IRemoteCallListener {
+		IRemoteCallCompleteEvent event;
+
+		public synchronized void handleEvent(IRemoteCallEvent e) {
+			if (e instanceof IRemoteCallCompleteEvent) {
+				event = (IRemoteCallCompleteEvent) e;
+				notifyAll();
+			}
+		}
+
+		synchronized IRemoteCallCompleteEvent waitForComplete() throws InterruptedException {
+			final long end = System.currentTimeMillis() + TIMEOUT;
+			long wait;
+			while (event == null && (wait = end - System.currentTimeMillis()) > 0)
+				wait(wait);
+			return event;
+		}
+	}
+
+	private static boolean hasCause(Throwable t, Class type) {
+		for (; t != null; t = t.getCause())
+			if (type.isInstance(t))
+				return true;
+		return false;
+	}
+
+	public void testRejectedWhenSaturated() throws Exception {
+		final IRemoteService service = registerAndGetRemoteService();
+		assertNotNull(service);
+		// The first call takes the only thread, and the second one the only place in the queue
+		final CompleteListener running = new CompleteListener();
+		service.callAsync(createCall(BLOCK, "1"), running);
+		waitForBlocked(1);
+		final CompleteListener queued = new CompleteListener();
+		service.callAsync(createCall(BLOCK, "2"), queued);
+		Thread.sleep(500);
+
+		final long start = System.currentTimeMillis();
+		try {
+			service.callSync(createCall("rejected", "call"));
+			fail();
+		} catch (final ECFException e) {
+			assertTrue(hasCause(e, RejectedExecutionException.class));
+		}
+		// Answered at once rather than after the timeout of the call
+		assertTrue(System.currentTimeMillis() - start < 5000);
+
+		release();
+		final IRemoteCallCompleteEvent first = running.waitForComplete();
+		assertNotNull(first);
+		assertFalse(first.hadException());
+		assertEquals("block1", first.getResponse());
+		final IRemoteCallCompleteEvent second = queued.waitForComplete();
+		assertNotNull(second);
+		assertFalse(second.hadException());
+		assertEquals("block2", second.getResponse());
+		// There is room again once the pool is idle
+		assertEquals("accepted call", service.callSync(createCall("accepted ", "call")));
+	}
+
+	public void testShutdownPoolRejects() throws Exception {
+		final RequestExecutor executor = RequestExecutor.createPool("Test Request Handler", 1, 0);
+		executor.shutdown();
+		try {
+			executor.execute(new IProgressRunnable() {
+				public Object run(IProgressMonitor monitor) throws Exception {
+					return null;
+				}
+			}, new NullProgressMonitor());
+			fail();
+		} catch (final RejectedExecutionException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,398 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+
+package org.eclipse.ecf.tests.remoteservice.r_osgi;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import ch.ethz.iks.r_osgi.URI;
+import ch.ethz.iks.r_osgi.channels.ChannelEndpoint;
+import ch.ethz.iks.r_osgi.channels.NetworkChannel;
+import ch.ethz.iks.r_osgi.impl.ChannelEndpointImpl;
+import ch.ethz.iks.r_osgi.messages.RemoteOSGiMessage;
+import ch.ethz.iks.r_osgi.messages.StreamRequestMessage;
+import ch.ethz.iks.r_osgi.streams.InputStreamHandle;
+import ch.ethz.iks.r_osgi.streams.InputStreamProxy;
+import ch.ethz.iks.r_osgi.streams.OutputStreamHandle;
+import ch.ethz.iks.r_osgi.streams.OutputStreamProxy;
+
+/**
+ * Tests the stream proxies of two r-OSGi channel endpoints connected in
+ * memory: the data, the end of the stream and remote exceptions, the read
+ * ahead against the remote stream and the worker threads of the peer.
+ */
+public class StreamProxyTest extends TestCase {
+
+	private static int connections;
+
+	private MemoryChannel clientChannel;
+	private MemoryChannel serverChannel;
+	private ChannelEndpointImpl client;
+	private ChannelEndpointImpl server;
+
+	/**
+	 * One end of an in-memory connection. The messages are serialized as on
+	 * the network and delivered in order by a thread of the receiving end.
+	 */
+	static class MemoryChannel implements NetworkChannel {
+
+		final String name;
+		MemoryChannel peer;
+		ChannelEndpoint endpoint;
+
+		/**
+		 * the protocol version the peer sees in the messages sent.
+		 */
+		byte version = RemoteOSGiMessage.VERSION;
+
+		private final LinkedList queue = new LinkedList();
+		private final Set readRequests = new HashSet();
+		private int outstandingReads;
+		int maxOutstandingReads;
+
+		private final Thread thread = new Thread() {
+			public void run() {
+				try {
+					while (true) {
+						final byte[] bytes;
+						synchronized (queue) {
+							while (queue.isEmpty())
+								queue.wait();
+							bytes = (byte[]) queue.removeFirst();
+						}
+						final RemoteOSGiMessage msg = RemoteOSGiMessage
+								.parse(new ObjectInputStream(
+										new ByteArrayInputStream(bytes)));
+						if (peer.version != RemoteOSGiMessage.VERSION)
+							setVersion(msg, peer.version);
+						received(msg);
+						endpoint.receivedMessage(msg);
+					}
+				} catch (final InterruptedException e) {
+					// closed
+				} catch (final Exception e) {
+					e.printStackTrace();
+				}
+			}
+		};
+
+		MemoryChannel(String name) {
+			this.name = name;
+			thread.setDaemon(true);
+		}
+
+		public String getProtocol() {
+			return "mem";
+		}
+
+		public URI getRemoteAddress() {
+			return URI.create("mem://" + peer.name + ":1");
+		}
+
+		public URI getLocalAddress() {
+			return URI.create("mem://" + name + ":1");
+		}
+
+		public void bind(ChannelEndpoint endpoint) {
+			this.endpoint = endpoint;
+			thread.start();
+		}
+
+		public void close() {
+			thread.interrupt();
+		}
+
+		public void sendMessage(RemoteOSGiMessage msg) throws IOException {
+			if (msg instanceof StreamRequestMessage
+					&& ((StreamRequestMessage) msg).getOp() == StreamRequestMessage.READ_ARRAY) {
+				synchronized (this) {
+					readRequests.add(new Integer(msg.getXID()));
+					maxOutstandingReads = Math.max(maxOutstandingReads,
+							++outstandingReads);
+				}
+			}
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final ObjectOutputStream out = new ObjectOutputStream(bytes);
+			msg.send(out);
+			out.close();
+			synchronized (peer.queue) {
+				peer.queue.add(bytes.toByteArray());
+				peer.queue.notify();
+			}
+		}
+
+		/**
+		 * this end received a message from the peer.
+		 */
+		synchronized void received(RemoteOSGiMessage msg) {
+			if (readRequests.remove(new Integer(msg.getXID())))
+				outstandingReads--;
+		}
+
+		synchronized int getMaxOutstandingReads() {
+			return maxOutstandingReads;
+		}
+	}
+
+	/**
+	 * An input stream that has its data after a delay, in small pieces.
+	 */
+	static class SlowInputStream extends InputStream {
+
+		private final int pieces;
+		private final int pieceSize;
+		private final long delay;
+		private int read;
+
+		SlowInputStream(int pieces, int pieceSize, long delay) {
+			this.pieces = pieces;
+			this.pieceSize = pieceSize;
+			this.delay = delay;
+		}
+
+		public int read() throws IOException {
+			final byte[] b = new byte[1];
+			return (read(b, 0, 1) < 0) ? -1 : b[0] & 0xff;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (read >= pieces)
+				return -1;
+			try {
+				Thread.sleep(delay);
+			} catch (final InterruptedException e) {
+				throw new IOException("interrupted");
+			}
+			final int n = Math.min(len, pieceSize);
+			for (int i = 0; i < n; i++)
+				b[off + i] = (byte) read;
+			read++;
+			return n;
+		}
+	}
+
+	static void setVersion(RemoteOSGiMessage msg, byte version)
+			throws Exception {
+		final Field field = RemoteOSGiMessage.class
+				.getDeclaredField("version");
+		field.setAccessible(true);
+		field.setByte(msg, version);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		final int connection = ++connections;
+		clientChannel = new MemoryChannel("client" + connection);
+		serverChannel = new MemoryChannel("server" + connection);
+		clientChannel.peer = serverChannel;
+		serverChannel.peer = clientChannel;
+		client = createEndpoint(clientChannel);
+		server = createEndpoint(serverChannel);
+	}
+
+	protected void tearDown() throws Exception {
+		client.dispose();
+		server.dispose();
+		super.tearDown();
+	}
+
+	private static ChannelEndpointImpl createEndpoint(NetworkChannel channel)
+			throws Exception {
+		final Constructor constructor = ChannelEndpointImpl.class
+				.getDeclaredConstructor(new Class[] { NetworkChannel.class });
+		constructor.setAccessible(true);
+		return (ChannelEndpointImpl) constructor
+				.newInstance(new Object[] { channel });
+	}
+
+	private Object createHandle(String method, Class type, Object stream)
+			throws Exception {
+		final Method m = ChannelEndpointImpl.class.getDeclaredMethod(method,
+				new Class[] { type });
+		m.setAccessible(true);
+		try {
+			return m.invoke(server, new Object[] { stream });
+		} catch (final InvocationTargetException e) {
+			throw (Exception) e.getTargetException();
+		}
+	}
+
+	/**
+	 * @return a proxy on the client for the input stream on the server.
+	 */
+	private InputStream remote(InputStream in) throws Exception {
+		final InputStreamHandle handle = (InputStreamHandle) createHandle(
+				"getInputStreamPlaceholder", InputStream.class, in);
+		return new InputStreamProxy(handle.getStreamID(), client);
+	}
+
+	/**
+	 * @return a proxy on the client for the output stream on the server.
+	 */
+	private OutputStream remote(OutputStream out) throws Exception {
+		final OutputStreamHandle handle = (OutputStreamHandle) createHandle(
+				"getOutputStreamPlaceholder", OutputStream.class, out);
+		return new OutputStreamProxy(handle.getStreamID(), client);
+	}
+
+	private static byte[] createData(int size) {
+		final byte[] data = new byte[size];
+		new Random(size).nextBytes(data);
+		return data;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		final ByteArrayOutputStream result = new ByteArrayOutputStream();
+		final byte[] b = new byte[4096];
+		for (int i = 0;; i++) {
+			if (i % 97 == 0) {
+				final int c = in.read();
+				if (c < 0)
+					break;
+				result.write(c);
+			} else {
+				final int n = in.read(b, 0, b.length);
+				if (n < 0)
+					break;
+				result.write(b, 0, n);
+			}
+		}
+		return result.toByteArray();
+	}
+
+	public void testRead() throws Exception {
+		final byte[] data = createData(4 * ChannelEndpointImpl.STREAM_CHUNK_SIZE + 1000);
+		final InputStream in = remote(new ByteArrayInputStream(data));
+		assertTrue(Arrays.equals(data, readAll(in)));
+		assertEquals(-1, in.read());
+		assertEquals(-1, in.read(new byte[1], 0, 1));
+		if (ChannelEndpointImpl.STREAM_WINDOW > 1) {
+			assertTrue(client.isStreamPipelined());
+			// full chunks are read ahead
+			assertTrue(clientChannel.getMaxOutstandingReads() > 1);
+		}
+	}
+
+	public void testReadOldPeer() throws Exception {
+		serverChannel.version = 1;
+		final byte[] data = createData(4 * ChannelEndpointImpl.STREAM_CHUNK_SIZE + 1000);
+		final InputStream in = remote(new ByteArrayInputStream(data));
+		assertTrue(Arrays.equals(data, readAll(in)));
+		assertEquals(-1, in.read());
+		assertFalse(client.isStreamPipelined());
+		assertEquals(1, clientChannel.getMaxOutstandingReads());
+	}
+
+	public void testShortChunksNotReadAhead() throws Exception {
+		final InputStream in = remote(new SlowInputStream(20, 100, 5));
+		final byte[] data = readAll(in);
+		assertEquals(20 * 100, data.length);
+		for (int i = 0; i < data.length; i++)
+			assertEquals(i / 100, data[i]);
+		// a request for data the remote stream does not have yet blocks a
+		// worker thread of the peer, so there is one at a time
+		assertEquals(1, clientChannel.getMaxOutstandingReads());
+	}
+
+	public void testReadException() throws Exception {
+		final InputStream in = remote(new InputStream() {
+			private int read;
+
+			public int read() throws IOException {
+				if (++read > 10)
+					throw new IOException("broken");
+				return read;
+			}
+		});
+		try {
+			readAll(in);
+			fail();
+		} catch (final IOException e) {
+			assertEquals("broken", e.getMessage());
+		}
+	}
+
+	public void testWorkerHeldForOneRequest() throws Exception {
+		final long delay = 200;
+		final InputStreamHandle slow1 = (InputStreamHandle) createHandle(
+				"getInputStreamPlaceholder", InputStream.class,
+				new SlowInputStream(4, 1, delay));
+		final InputStreamHandle slow2 = (InputStreamHandle) createHandle(
+				"getInputStreamPlaceholder", InputStream.class,
+				new SlowInputStream(4, 1, delay));
+		final InputStreamHandle fast = (InputStreamHandle) createHandle(
+				"getInputStreamPlaceholder", InputStream.class,
+				new ByteArrayInputStream(new byte[10]));
+		final ChannelEndpointImpl.PendingStreamOp[] pending = new ChannelEndpointImpl.PendingStreamOp[8];
+		for (int i = 0; i < 4; i++) {
+			pending[2 * i] = client.sendReadStream(slow1.getStreamID(), 1);
+			pending[2 * i + 1] = client.sendReadStream(slow2.getStreamID(), 1);
+		}
+		final long start = System.currentTimeMillis();
+		assertEquals(10, client.sendReadStream(fast.getStreamID(), 10)
+				.getResult().getLen());
+		// the slow streams get a worker thread again after the request of
+		// the fast one
+		assertTrue(System.currentTimeMillis() - start < 3 * delay);
+		for (int i = 0; i < pending.length; i++)
+			assertEquals(1, pending[i].getResult().getLen());
+	}
+
+	public void testWrite() throws Exception {
+		final byte[] data = createData(4 * ChannelEndpointImpl.STREAM_CHUNK_SIZE + 1000);
+		final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+		final OutputStream out = remote(sink);
+		out.write(data, 0, 1000);
+		out.write(7);
+		out.write(data, 1000, data.length - 1000);
+		// written remotely when the write returns
+		final byte[] expected = new byte[data.length + 1];
+		System.arraycopy(data, 0, expected, 0, 1000);
+		expected[1000] = 7;
+		System.arraycopy(data, 1000, expected, 1001, data.length - 1000);
+		assertTrue(Arrays.equals(expected, sink.toByteArray()));
+	}
+
+	public void testWriteException() throws Exception {
+		final OutputStream out = remote(new OutputStream() {
+			private int written;
+
+			public void write(int b) throws IOException {
+				if (++written > 2 * ChannelEndpointImpl.STREAM_CHUNK_SIZE)
+					throw new IOException("full");
+			}
+		});
+		try {
+			out.write(createData(4 * ChannelEndpointImpl.STREAM_CHUNK_SIZE));
+			fail();
+		} catch (final IOException e) {
+			assertEquals("full", e.getMessage());
+		}
+	}
+}
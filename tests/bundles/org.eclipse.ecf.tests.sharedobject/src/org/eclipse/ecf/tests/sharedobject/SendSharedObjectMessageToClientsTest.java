@@ -0,0 +1,96 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.sharedobject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.identity.IDFactory;
+
+/**
+ * Messages sent by a shared object on one client and forwarded by the server to
+ * the same shared object on another client.
+ */
+public class SendSharedObjectMessageToClientsTest extends AbstractSharedObjectTest {
+
+	public static final String TEST_USERNAME0 = "slewis";
+
+	public static final String TEST_USERNAME1 = "mkuppe";
+
+	private static final int MESSAGE_SEND_COUNT = 10;
+
+	private static final String MESSAGE = "greetings program";
+
+	ID sharedObjectID;
+	TestMessagingSharedObject sharedObject;
+	List received;
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.ecf.tests.ContainerAbstractTestCase#getClientCount()
+	 */
+	protected int getClientCount() {
+		return 2;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.ecf.tests.ContainerAbstractTestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+		received = new ArrayList();
+		createServerAndClients();
+		// Add the shared objects before connecting, so that they are not replicated
+		sharedObjectID = addClientSharedObject(0, IDFactory.getDefault().createStringID("foo0"), new TestMessagingSharedObject(TEST_USERNAME0, null), null);
+		sharedObject = (TestMessagingSharedObject) getClientSOManager(0).getSharedObject(sharedObjectID);
+		addClientSharedObject(1, sharedObjectID, new TestMessagingSharedObject(TEST_USERNAME1, new IMessageReceiver() {
+			public void handleMessage(ID fromID, Object message) {
+				synchronized (received) {
+					received.add(message);
+				}
+			}
+		}), null);
+		connectClients();
+		sleep(2000);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		cleanUpServerAndClients();
+		sharedObjectID = null;
+		sharedObject = null;
+		received = null;
+	}
+
+	public void testMessageSend() throws Exception {
+		for (int i = 0; i < MESSAGE_SEND_COUNT; i++) {
+			sharedObject.sendMessage(null, MESSAGE);
+		}
+		sleep(3000);
+		synchronized (received) {
+			assertEquals(MESSAGE_SEND_COUNT, received.size());
+			for (int i = 0; i < received.size(); i++)
+				assertEquals(MESSAGE, received.get(i));
+		}
+	}
+
+}
@@ -0,0 +1,300 @@
+/****************************************************************************
+ * Copyright (c) 2026 Composent, Inc. and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *    Composent, Inc. - initial API and implementation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *****************************************************************************/
+package org.eclipse.ecf.tests.sharedobject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ecf.core.identity.ID;
+import org.eclipse.ecf.core.identity.IDFactory;
+import org.eclipse.ecf.core.sharedobject.BaseSharedObject;
+import org.eclipse.ecf.core.sharedobject.ISharedObjectConnector;
+import org.eclipse.ecf.core.sharedobject.ISharedObjectManager;
+import org.eclipse.ecf.core.sharedobject.events.ISharedObjectEvent;
+import org.eclipse.ecf.core.util.Event;
+import org.eclipse.ecf.provider.generic.SOContainerConfig;
+import org.eclipse.ecf.provider.generic.TCPClientSOContainer;
+
+/**
+ * Tests shared objects whose events are processed from bounded mailboxes on a
+ * shared executor rather than on threads of their own.
+ */
+public class SharedObjectExecutorTest extends TestCase {
+
+	private static final String EXECUTOR_THREAD = "TestSOExecutor";
+
+	private static final long TIMEOUT = 10000;
+
+	static class TestEvent implements ISharedObjectEvent {
+		final ID sender;
+		final int number;
+
+		TestEvent(ID sender, int number) {
+			this.sender = sender;
+			this.number = number;
+		}
+
+		public ID getSenderSharedObjectID() {
+			return sender;
+		}
+
+		public Event getEvent() {
+			return this;
+		}
+	}
+
+	/**
+	 * Client container that processes its shared objects on the test executor.
+	 */
+	class ExecutorContainer extends TCPClientSOContainer {
+		final int capacity;
+		final boolean blocking;
+
+		ExecutorContainer(int capacity, boolean blocking) throws Exception {
+			super(new SOContainerConfig(IDFactory.getDefault().createGUID()));
+			this.capacity = capacity;
+			this.blocking = blocking;
+		}
+
+		protected Executor getSharedObjectExecutor(ID sharedObjectID) {
+			return executor;
+		}
+
+		protected int getSharedObjectMailboxCapacity() {
+			return capacity;
+		}
+
+		protected boolean isSharedObjectMailboxBlocking() {
+			return blocking;
+		}
+	}
+
+	/**
+	 * Shared object that records the test events it gets, and that may block in the
+	 * first of them until released.
+	 */
+	static class RecordingSharedObject extends BaseSharedObject {
+		final List numbers = new ArrayList();
+		final List threads = new ArrayList();
+		boolean blockFirst;
+		boolean blocked;
+		boolean released;
+		int active;
+		int maxActive;
+		String disposeThread;
+
+		public void handleEvent(Event event) {
+			if (!(event instanceof TestEvent)) {
+				super.handleEvent(event);
+				return;
+			}
+			synchronized (this) {
+				active++;
+				maxActive = Math.max(maxActive, active);
+			}
+			try {
+				synchronized (this) {
+					if (blockFirst && !blocked) {
+						blocked = true;
+						notifyAll();
+						while (!released)
+							wait();
+					}
+				}
+				// Give other executor threads the chance to process the same mailbox
+				Thread.yield();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				synchronized (this) {
+					active--;
+					numbers.add(new Integer(((TestEvent) event).number));
+					threads.add(Thread.currentThread().getName());
+					notifyAll();
+				}
+			}
+		}
+
+		protected void handleUnhandledEvent(Event event) {
+			// Activation and other container events
+		}
+
+		public void dispose(ID containerID) {
+			super.dispose(containerID);
+			synchronized (this) {
+				disposeThread = Thread.currentThread().getName();
+				notifyAll();
+			}
+		}
+
+		synchronized String waitForDispose() throws InterruptedException {
+			final long end = System.currentTimeMillis() + TIMEOUT;
+			long wait;
+			while (disposeThread == null && (wait = end - System.currentTimeMillis()) > 0)
+				wait(wait);
+			return disposeThread;
+		}
+
+		synchronized void waitForBlocked() throws InterruptedException {
+			final long end = System.currentTimeMillis() + TIMEOUT;
+			long wait;
+			while (!blocked && (wait = end - System.currentTimeMillis()) > 0)
+				wait(wait);
+			assertTrue(blocked);
+		}
+
+		synchronized void release() {
+			released = true;
+			notifyAll();
+		}
+
+		synchronized List waitForCount(int count) throws InterruptedException {
+			final long end = System.currentTimeMillis() + TIMEOUT;
+			long wait;
+			while (numbers.size() < count && (wait = end - System.currentTimeMillis()) > 0)
+				wait(wait);
+			return new ArrayList(numbers);
+		}
+	}
+
+	ExecutorService executor;
+	ExecutorContainer container;
+	ID senderID;
+	ID receiverID;
+	RecordingSharedObject receiver;
+	ISharedObjectConnector connector;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		executor = Executors.newFixedThreadPool(4, new ThreadFactory() {
+			int count;
+
+			public synchronized Thread newThread(Runnable r) {
+				final Thread t = new Thread(r, EXECUTOR_THREAD + ":" + (++count));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	protected void tearDown() throws Exception {
+		if (connector != null)
+			connector.dispose();
+		if (container != null)
+			container.dispose();
+		executor.shutdownNow();
+		super.tearDown();
+	}
+
+	private void createSharedObjects(int capacity, boolean blocking, boolean blockFirst) throws Exception {
+		container = new ExecutorContainer(capacity, blocking);
+		final ISharedObjectManager manager = container.getSharedObjectManager();
+		senderID = manager.addSharedObject(IDFactory.getDefault().createStringID("sender"), new RecordingSharedObject(), null);
+		receiver = new RecordingSharedObject();
+		receiver.blockFirst = blockFirst;
+		receiverID = manager.addSharedObject(IDFactory.getDefault().createStringID("receiver"), receiver, null);
+		connector = manager.connectSharedObjects(senderID, new ID[] {receiverID});
+		// Let the activation events be processed, so that the mailbox is empty
+		Thread.sleep(500);
+	}
+
+	private void send(int number) throws Exception {
+		connector.enqueue(new TestEvent(senderID, number));
+	}
+
+	private void assertSequence(List numbers, int first, int count) {
+		assertEquals(count, numbers.size());
+		for (int i = 0; i < count; i++)
+			assertEquals(new Integer(first + i), numbers.get(i));
+	}
+
+	public void testEventsProcessedInOrderOnExecutor() throws Exception {
+		createSharedObjects(0, true, false);
+		final int count = 1000;
+		for (int i = 0; i < count; i++)
+			send(i);
+		assertSequence(receiver.waitForCount(count), 0, count);
+		synchronized (receiver) {
+			// One executor thread at a time
+			assertEquals(1, receiver.maxActive);
+			for (int i = 0; i < receiver.threads.size(); i++)
+				assertTrue(((String) receiver.threads.get(i)).startsWith(EXECUTOR_THREAD));
+		}
+	}
+
+	public void testFullMailboxDropsEvents() throws Exception {
+		createSharedObjects(4, false, true);
+		send(0);
+		receiver.waitForBlocked();
+		// Event 0 is being processed, so the mailbox has room for 4 of the rest
+		for (int i = 1; i <= 20; i++)
+			send(i);
+		receiver.release();
+		assertSequence(receiver.waitForCount(5), 0, 5);
+		Thread.sleep(500);
+		assertEquals(5, receiver.numbers.size());
+		// Events are accepted again once the mailbox has room
+		send(21);
+		final List numbers = receiver.waitForCount(6);
+		assertEquals(6, numbers.size());
+		assertEquals(new Integer(21), numbers.get(5));
+	}
+
+	public void testFullMailboxBlocksSender() throws Exception {
+		createSharedObjects(2, true, true);
+		send(0);
+		receiver.waitForBlocked();
+		final int count = 10;
+		final Exception[] failure = new Exception[1];
+		final Thread sender = new Thread(new Runnable() {
+			public void run() {
+				try {
+					for (int i = 1; i <= count; i++)
+						send(i);
+				} catch (final Exception e) {
+					failure[0] = e;
+				}
+			}
+		});
+		sender.start();
+		sender.join(1000);
+		// The sender waits for space while event 0 is being processed
+		assertTrue(sender.isAlive());
+		receiver.release();
+		sender.join(TIMEOUT);
+		assertFalse(sender.isAlive());
+		assertNull(failure[0]);
+		// No event was dropped
+		assertSequence(receiver.waitForCount(count + 1), 0, count + 1);
+	}
+
+	public void testDisposeStopsProcessing() throws Exception {
+		createSharedObjects(0, true, false);
+		send(0);
+		assertSequence(receiver.waitForCount(1), 0, 1);
+		connector.dispose();
+		connector = null;
+		container.getSharedObjectManager().removeSharedObject(receiverID);
+		// Disposed in order after its events, on the executor
+		final String thread = receiver.waitForDispose();
+		assertNotNull(thread);
+		assertTrue(thread.startsWith(EXECUTOR_THREAD));
+		assertEquals(1, receiver.numbers.size());
+	}
+}